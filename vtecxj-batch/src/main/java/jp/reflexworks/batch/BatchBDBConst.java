@@ -17,6 +17,8 @@ public interface BatchBDBConst {
 	public static final String LOG_ENTRY_NUMBER_LIMIT = "_log.entry.number.limit";
 	/** 設定 : アラートメール送信ディスク使用率 */
 	public static final String DISK_USAGE_ALERT = "_disk.usage.alert";
+	/** 設定 : 警告ログを出力する名前空間ごとのBDBログ増加量(バイト/秒) (0以下は出力しない) */
+	public static final String DISK_USAGE_GROWTH_ALERT = "_disk.usage.growth.alert";
 
 	/** 設定デフォルト : 夜間バッチフラグ有効期限(秒) */
 	static final int BATCH_BDB_EXPIRE_SEC_DEFAULT = 10800;
@@ -28,6 +30,8 @@ public interface BatchBDBConst {
 	public static final int LOG_ENTRY_NUMBER_LIMIT_DEFAULT = 1000;
 	/** 設定デフォルト : アラートメール送信ディスク使用率 */
 	public static final int DISK_USAGE_ALERT_DEFAULT = 70;
+	/** 設定デフォルト : 警告ログを出力する名前空間ごとのBDBログ増加量(バイト/秒) (1MB) */
+	public static final long DISK_USAGE_GROWTH_ALERT_DEFAULT = 1048576;
 
 	/** データストアのAPIサイズエラーメッセージ(コミット時のみ) */
 	public static final String DSMSG_COMMIT_MAXSIZEEXCEEDED = "I/O error";
@@ -112,6 +112,7 @@ public class CheckBDBDiskUsageBlogic implements ReflexBlogic<ReflexContext, Bool
 						}
 					}
 					checkDiskUsage(serverName, diskUsageStr, systemContext);
+					checkGrowthRates(serverName, feed);
 
 				} catch (ExecutionException | InterruptedException e) {
 					StringBuilder sb = new StringBuilder();
@@ -204,6 +205,43 @@ public class CheckBDBDiskUsageBlogic implements ReflexBlogic<ReflexContext, Bool
 		}
 	}
 	
+	/**
+	 * 名前空間ごとのBDBログ増加量のチェック.
+	 * 指定された増加量を超えた名前空間を警告ログに出力する。
+	 * @param serverName サーバ名
+	 * @param feed ディスク使用量取得結果 (entryのtitleに名前空間、summaryに増加量(バイト/秒))
+	 */
+	private void checkGrowthRates(String serverName, FeedBase feed) {
+		if (feed == null || feed.entry == null) {
+			return;
+		}
+		long alertGrowthRate = TaggingEnvUtil.getSystemPropLong(
+				BatchBDBConst.DISK_USAGE_GROWTH_ALERT,
+				BatchBDBConst.DISK_USAGE_GROWTH_ALERT_DEFAULT);
+		if (alertGrowthRate <= 0) {
+			return;
+		}
+		for (EntryBase entry : feed.entry) {
+			if (!StringUtils.isLong(entry.summary)) {
+				// 前回取得時にオープンしていない名前空間
+				continue;
+			}
+			long growthRate = Long.parseLong(entry.summary);
+			if (growthRate >= alertGrowthRate) {
+				StringBuilder sb = new StringBuilder();
+				sb.append("[checkGrowthRates] serverName=");
+				sb.append(serverName);
+				sb.append(", namespace=");
+				sb.append(entry.title);
+				sb.append(" : BDB log is growing fast. growthRate=");
+				sb.append(growthRate);
+				sb.append(" bytes/sec, logSize=");
+				sb.append(entry.subtitle);
+				logger.warn(sb.toString());
+			}
+		}
+	}
+
 	/**
 	 * アラートメール送信
 	 * @param serverName サーバ名
@@ -13,6 +13,9 @@ public class AllocidsConst {
 	/** `DBIncrement` : カウンタ */
 	static final String DB_INCREMENT = "DBIncrement";
 
+	/** メモリ上のstaticオブジェクト格納キー : 加算待ちキューMap */
+	static final String STATIC_NAME_INCREMENT_QUEUE_MAP = "_allocids_increment_queue_map";
+
 	/** テーブル名リスト */
 	public static final List<String> DB_NAMES = new CopyOnWriteArrayList<String>();
 	static {
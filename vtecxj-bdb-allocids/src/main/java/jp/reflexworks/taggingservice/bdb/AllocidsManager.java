@@ -40,6 +40,10 @@ public class AllocidsManager {
 
 	/**
 	 * 採番処理.
+	 * <p>
+	 * シーケンスハンドルはBDB環境に保持したものを使用し、採番数分のシーケンス値をまとめて取得する。
+	 * ハンドルを保持できない場合は、トランザクション内でシーケンスをオープンして取得する。
+	 * </p>
 	 * @param namespace 名前空間
 	 * @param uri キー
 	 * @param num 採番数
@@ -51,50 +55,60 @@ public class AllocidsManager {
 	public String allocids(String namespace, String uri, int num, String serviceName,
 			RequestInfo requestInfo, ConnectionInfo connectionInfo)
 	throws IOException, TaggingException {
+		if (num <= 0) {
+			return "";
+		}
 		int numRetries = BDBEnvUtil.getBDBRetryCount();
 		int waitMillis = BDBEnvUtil.getBDBRetryWaitmillis();
 		for (int r = 0; r <= numRetries; r++) {
+			BDBEnv bdbEnv = null;
 			BDBTransaction bdbTxn = null;
 			BDBSequence sequence = null;
+			boolean isCachedSequence = false;
 			try {
 				// BDB環境情報取得
-				BDBEnv bdbEnv = getBDBEnvByNamespace(namespace, true);
-
-				// トランザクション開始
-				bdbTxn = bdbEnv.beginTransaction();
+				bdbEnv = getBDBEnvByNamespace(namespace, true);
 
-				List<String> allocidsList = new ArrayList<String>();
-				sequence = bdbEnv.getSequence(AllocidsConst.DB_ALLOCIDS, bdbTxn, uri);
+				sequence = bdbEnv.getCachedSequence(AllocidsConst.DB_ALLOCIDS, uri);
+				if (sequence != null) {
+					isCachedSequence = true;
+				} else {
+					// トランザクション開始
+					bdbTxn = bdbEnv.beginTransaction();
+					sequence = bdbEnv.getSequence(AllocidsConst.DB_ALLOCIDS, bdbTxn, uri);
+				}
 
-				// sequenceの最初は0なので、0であれば飛ばして1から返すようにする。
-				int start = 0;
 				long startTime = 0;
 				if (BDBUtil.isEnableAccessLog()) {
 					logger.debug(LogUtil.getRequestInfoStr(requestInfo) +
 							BDBUtil.getStartLog(serviceName, LOG_ALLOCIDS, sequence, uri));
 					startTime = new Date().getTime();
 				}
-				long allocids = sequence.get(bdbTxn, 1);
+				// 採番数分をまとめて取得する。
+				long allocids = sequence.get(bdbTxn, num);
+				List<Long> allocidsList = new ArrayList<Long>(num);
+				for (long i = 0; i < num; i++) {
+					allocidsList.add(allocids + i);
+				}
+				// sequenceの最初は0なので、0であれば飛ばして1から返すようにする。
+				if (allocids == 0) {
+					allocidsList.remove(0);
+					allocidsList.add(sequence.get(bdbTxn, 1));
+				}
 				if (BDBUtil.isEnableAccessLog()) {
 					logger.debug(LogUtil.getRequestInfoStr(requestInfo) +
 							BDBUtil.getEndLog(serviceName, LOG_ALLOCIDS, sequence, uri, startTime));
 				}
 
-				if (allocids > 0) {
-					start = 1;
-					allocidsList.add(String.valueOf(allocids));
-				}
-				for (int i = start; i < num; i++) {
-					allocids = sequence.get(bdbTxn, 1);
-					allocidsList.add(String.valueOf(allocids));
+				if (bdbTxn != null) {
+					bdbTxn.commit();
+					bdbTxn = null;
 				}
-				bdbTxn.commit();
-				bdbTxn = null;
 
 				// 戻り値編集
 				StringBuilder sb = new StringBuilder();
 				boolean isFirst = true;
-				for (String allocid : allocidsList) {
+				for (Long allocid : allocidsList) {
 					if (isFirst) {
 						isFirst = false;
 					} else {
@@ -105,6 +119,12 @@ public class AllocidsManager {
 				return sb.toString();
 
 			} catch (DatabaseException e) {
+				if (isCachedSequence) {
+					// 保持しているシーケンスハンドルは破棄し、リトライ時に再オープンする。
+					bdbEnv.removeCachedSequence(AllocidsConst.DB_ALLOCIDS, uri);
+					isCachedSequence = false;
+					sequence = null;
+				}
 				// リトライ判定、入力エラー判定
 				BDBUtil.convertError(e, uri, requestInfo);
 				if (r >= numRetries) {
@@ -125,9 +145,10 @@ public class AllocidsManager {
 						logger.warn("[allocids] abort error.", e);
 					}
 				}
-				if (sequence != null) {
+				if (sequence != null && !isCachedSequence) {
 					sequence.close();
 				}
+				BDBUtil.releaseBDBEnv(bdbEnv);
 			}
 		}
 		throw new IllegalStateException("Unreachable code.");
@@ -163,11 +184,12 @@ public class AllocidsManager {
 		int numRetries = BDBEnvUtil.getBDBRetryCount();
 		int waitMillis = BDBEnvUtil.getBDBRetryWaitmillis();
 		for (int r = 0; r <= numRetries; r++) {
+			BDBEnv bdbEnv = null;
 			try {
 				// テーブル判定
 				BDBDatabase db = null;
 				EntryBinding<?> binding = null;
-				BDBEnv bdbEnv = getBDBEnvByNamespace(namespace);
+				bdbEnv = getBDBEnvByNamespace(namespace);
 				if (bdbEnv == null) {
 					return null;
 				}
@@ -187,8 +209,15 @@ public class AllocidsManager {
 				String keyend = IndexUtil.getEndKeyStr(keyprefix);
 				BDBCondition bdbCondition = new BDBCondition(keyprefix, keyend, pointerStr);
 
-				FetchInfo<?> fetchInfo = bdbQuery.getByQuery(namespace, null, db, binding,
-						bdbCondition, limit, requestInfo);
+				FetchInfo<?> fetchInfo = null;
+				if (param.getOption(AllocidsRequestParam.PARAM_COUNT) != null) {
+					// 件数取得はキーのみ参照
+					fetchInfo = bdbQuery.countByQuery(namespace, null, db, bdbCondition,
+							limit, requestInfo);
+				} else {
+					fetchInfo = bdbQuery.getByQuery(namespace, null, db, binding,
+							bdbCondition, limit, requestInfo);
+				}
 				return fetchInfo;
 
 			} catch (DatabaseException e) {
@@ -203,6 +232,8 @@ public class AllocidsManager {
 							"[getList] " + ReflexBDBLogUtil.getRetryLog(e, r));
 				}
 				BDBUtil.sleep(waitMillis + r * 10);
+			} finally {
+				BDBUtil.releaseBDBEnv(bdbEnv);
 			}
 		}
 		throw new IllegalStateException("Unreachable code.");
@@ -274,6 +305,7 @@ public class AllocidsManager {
 
 	/**
 	 * 名前空間からBDB環境情報を取得.
+	 * 使用後は{@link BDBUtil#releaseBDBEnv(BDBEnv)}を呼び出すこと。
 	 * @param namespace 名前空間
 	 * @param isCreate 指定された名前空間のBDB環境が存在しない時作成する場合true
 	 * @return BDB環境情報
@@ -281,7 +313,7 @@ public class AllocidsManager {
 	private BDBEnv getBDBEnvByNamespace(String namespace,
 			boolean isCreate)
 	throws IOException, TaggingException {
-		boolean setAccesstime = false;	// 
+		boolean setAccesstime = true;
 		BDBEnvManager bdbEnvManager = new BDBEnvManager();
 		return bdbEnvManager.getBDBEnvByNamespace(AllocidsConst.DB_NAMES,
 				namespace, isCreate, setAccesstime);
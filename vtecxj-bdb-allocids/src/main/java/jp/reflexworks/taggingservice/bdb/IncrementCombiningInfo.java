@@ -0,0 +1,39 @@
+package jp.reflexworks.taggingservice.bdb;
+
+import java.util.concurrent.CompletableFuture;
+
+import jp.reflexworks.taggingservice.api.ConnectionInfo;
+import jp.reflexworks.taggingservice.api.RequestInfo;
+
+/**
+ * 加算待ちのリクエスト情報.
+ */
+class IncrementCombiningInfo {
+
+	/** 加算値 */
+	final long num;
+	/** サービス名(ログ用) */
+	final String serviceName;
+	/** リクエスト情報 */
+	final RequestInfo requestInfo;
+	/** コネクション情報 */
+	final ConnectionInfo connectionInfo;
+	/** 加算結果 */
+	final CompletableFuture<Long> future = new CompletableFuture<>();
+
+	/**
+	 * コンストラクタ.
+	 * @param num 加算値
+	 * @param serviceName サービス名(ログ用)
+	 * @param requestInfo リクエスト情報
+	 * @param connectionInfo コネクション情報
+	 */
+	IncrementCombiningInfo(long num, String serviceName,
+			RequestInfo requestInfo, ConnectionInfo connectionInfo) {
+		this.num = num;
+		this.serviceName = serviceName;
+		this.requestInfo = requestInfo;
+		this.connectionInfo = connectionInfo;
+	}
+
+}
@@ -0,0 +1,172 @@
+package jp.reflexworks.taggingservice.bdb;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jp.reflexworks.taggingservice.api.ConnectionInfo;
+import jp.reflexworks.taggingservice.api.ReflexStatic;
+import jp.reflexworks.taggingservice.api.RequestInfo;
+import jp.reflexworks.taggingservice.exception.StaticDuplicatedException;
+import jp.reflexworks.taggingservice.exception.TaggingException;
+import jp.reflexworks.taggingservice.plugin.ReflexPlugin;
+import jp.reflexworks.taggingservice.util.LogUtil;
+
+/**
+ * 加算まとめ処理管理クラス.
+ * <p>
+ * 同じキーへの同時の加算リクエストをキューに登録し、リーダーとなった1スレッドが
+ * キューに溜まった加算を1トランザクションでまとめて行う。
+ * 加算はキューの登録順に1件ずつ計算し、リクエストごとに異なる加算結果を返す。
+ * 範囲チェックはリクエストごとに行い、範囲外のリクエストのみエラーとする。
+ * </p>
+ * <p>
+ * 設定 _bdb.increment.enable.combining がtrueの場合のみ使用する(デフォルトは無効)。
+ * </p>
+ */
+public class IncrementCombiningManager implements ReflexPlugin {
+
+	/** キューMapのキーの区切り文字 */
+	private static final String QUEUE_KEY_DELIMITER = "\u0000";
+
+	/** ロガー. */
+	private Logger logger = LoggerFactory.getLogger(this.getClass());
+
+	/**
+	 * 初期処理.
+	 */
+	@Override
+	public void init() {
+		// 加算待ちキューMapを格納
+		// キー: 名前空間とキー、値: 加算待ちキュー
+		ConcurrentMap<String, IncrementCombiningQueue> queueMap =
+				new ConcurrentHashMap<String, IncrementCombiningQueue>();
+		try {
+			ReflexStatic.setStatic(AllocidsConst.STATIC_NAME_INCREMENT_QUEUE_MAP, queueMap);
+		} catch (StaticDuplicatedException e) {
+			logger.warn("[init] StaticDuplicatedException: " +
+					AllocidsConst.STATIC_NAME_INCREMENT_QUEUE_MAP, e);
+		}
+	}
+
+	/**
+	 * シャットダウン処理.
+	 */
+	@Override
+	public void close() {
+		// Do nothing.
+	}
+
+	/**
+	 * 加算処理.
+	 * 同じキーへの他の加算リクエストとまとめて加算する。加算完了後に返却する。
+	 * @param namespace 名前空間
+	 * @param uri キー
+	 * @param num 加算値
+	 * @param serviceName サービス名(ログ用)
+	 * @param requestInfo リクエスト情報
+	 * @param connectionInfo コネクション情報
+	 * @return 加算結果
+	 */
+	public long addids(String namespace, String uri, long num,
+			String serviceName, RequestInfo requestInfo, ConnectionInfo connectionInfo)
+	throws IOException, TaggingException {
+		IncrementCombiningInfo info = new IncrementCombiningInfo(num, serviceName,
+				requestInfo, connectionInfo);
+		String queueKey = namespace + QUEUE_KEY_DELIMITER + uri;
+		ConcurrentMap<String, IncrementCombiningQueue> queueMap = getQueueMap();
+		IncrementCombiningQueue queue = queueMap.computeIfAbsent(queueKey,
+				k -> new IncrementCombiningQueue());
+		queue.add(info);
+
+		// リーダーになれた場合、キューに溜まった加算をまとめて行う。
+		// リーダー解除後に登録されたリクエストが取り残されないよう、キューが空になるまで繰り返す。
+		boolean isLeader = false;
+		do {
+			if (!queue.tryLead()) {
+				break;
+			}
+			isLeader = true;
+			try {
+				combine(namespace, uri, queue);
+			} finally {
+				queue.release();
+			}
+		} while (!queue.isEmpty());
+		if (isLeader) {
+			// 使用されなくなったキューを除く。
+			// 除いた後に登録したスレッドも、自らリーダーとなって処理する。
+			queueMap.remove(queueKey, queue);
+		}
+
+		// 加算完了を待つ
+		try {
+			return info.future.get();
+
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException)cause;
+			} else if (cause instanceof TaggingException) {
+				throw (TaggingException)cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException)cause;
+			} else if (cause instanceof Error) {
+				throw (Error)cause;
+			} else {
+				throw new IOException(cause);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException(e);
+		}
+	}
+
+	/**
+	 * キューに溜まった加算リクエストをまとめて加算する.
+	 * @param namespace 名前空間
+	 * @param uri キー
+	 * @param queue 加算待ちキュー
+	 */
+	private void combine(String namespace, String uri, IncrementCombiningQueue queue) {
+		List<IncrementCombiningInfo> infos = new ArrayList<>();
+		IncrementCombiningInfo info = null;
+		while ((info = queue.poll()) != null) {
+			infos.add(info);
+		}
+		if (infos.isEmpty()) {
+			return;
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug(LogUtil.getRequestInfoStr(infos.get(0).requestInfo) +
+					"[combine] uri=" + uri + " requests=" + infos.size());
+		}
+
+		IncrementManager incrementManager = new IncrementManager();
+		try {
+			incrementManager.addidsCombined(namespace, uri, infos);
+
+		} catch (IOException | TaggingException | RuntimeException | Error e) {
+			for (IncrementCombiningInfo tmpInfo : infos) {
+				tmpInfo.future.completeExceptionally(e);
+			}
+		}
+	}
+
+	/**
+	 * static領域から加算待ちキューMapを取得.
+	 * @return 加算待ちキューMap
+	 */
+	@SuppressWarnings("unchecked")
+	private ConcurrentMap<String, IncrementCombiningQueue> getQueueMap() {
+		return (ConcurrentMap<String, IncrementCombiningQueue>)ReflexStatic.getStatic(
+				AllocidsConst.STATIC_NAME_INCREMENT_QUEUE_MAP);
+	}
+
+}
@@ -0,0 +1,57 @@
+package jp.reflexworks.taggingservice.bdb;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * キーごとの加算待ちキュー.
+ * キューに登録したスレッドのうち、リーダーとなった1スレッドがまとめて加算する。
+ */
+class IncrementCombiningQueue {
+
+	/** 加算待ちリクエスト */
+	private final ConcurrentLinkedQueue<IncrementCombiningInfo> requests =
+			new ConcurrentLinkedQueue<>();
+	/** リーダースレッドが処理中の場合true */
+	private final AtomicBoolean leading = new AtomicBoolean(false);
+
+	/**
+	 * 加算待ちリクエストを登録.
+	 * @param info 加算リクエスト情報
+	 */
+	void add(IncrementCombiningInfo info) {
+		requests.add(info);
+	}
+
+	/**
+	 * 加算待ちリクエストを1件取り出す.
+	 * @return 加算リクエスト情報。キューが空の場合null。
+	 */
+	IncrementCombiningInfo poll() {
+		return requests.poll();
+	}
+
+	/**
+	 * 加算待ちリクエストが存在しないかどうか.
+	 * @return 加算待ちリクエストが存在しない場合true
+	 */
+	boolean isEmpty() {
+		return requests.isEmpty();
+	}
+
+	/**
+	 * リーダーになる.
+	 * @return リーダーになれた場合true。他スレッドがリーダーの場合false。
+	 */
+	boolean tryLead() {
+		return leading.compareAndSet(false, true);
+	}
+
+	/**
+	 * リーダーを解除する.
+	 */
+	void release() {
+		leading.set(false);
+	}
+
+}
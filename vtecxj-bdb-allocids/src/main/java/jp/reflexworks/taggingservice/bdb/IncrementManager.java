@@ -1,6 +1,7 @@
 package jp.reflexworks.taggingservice.bdb;
 
 import java.io.IOException;
+import java.util.List;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -9,6 +10,7 @@ import com.sleepycat.je.DatabaseException;
 
 import jp.reflexworks.taggingservice.api.ConnectionInfo;
 import jp.reflexworks.taggingservice.api.RequestInfo;
+import jp.reflexworks.taggingservice.env.AllocidsEnvUtil;
 import jp.reflexworks.taggingservice.env.BDBEnvManager;
 import jp.reflexworks.taggingservice.env.BDBEnvUtil;
 import jp.reflexworks.taggingservice.exception.OutOfRangeException;
@@ -41,8 +43,9 @@ public class IncrementManager {
 		int numRetries = BDBEnvUtil.getBDBRetryCount();
 		int waitMillis = BDBEnvUtil.getBDBRetryWaitmillis();
 		for (int r = 0; r <= numRetries; r++) {
+			BDBEnv bdbEnv = null;
 			try {
-				BDBEnv bdbEnv = getBDBEnvByNamespace(namespace, true);
+				bdbEnv = getBDBEnvByNamespace(namespace, true);
 				BDBDatabase dbIncrement = bdbEnv.getDb(AllocidsConst.DB_INCREMENT);
 				IncrementBinding binding = BDBUtil.getIncrementBinding();
 				BDBGet<IncrementInfo> bdbGet = new BDBGet<IncrementInfo>();
@@ -62,6 +65,8 @@ public class IncrementManager {
 							"[getids] " + ReflexBDBLogUtil.getRetryLog(e, r));
 				}
 				BDBUtil.sleep(waitMillis + r * 10);
+			} finally {
+				BDBUtil.releaseBDBEnv(bdbEnv);
 			}
 		}
 		throw new IllegalStateException("Unreachable code.");
@@ -81,8 +86,9 @@ public class IncrementManager {
 		int numRetries = BDBEnvUtil.getBDBRetryCount();
 		int waitMillis = BDBEnvUtil.getBDBRetryWaitmillis();
 		for (int r = 0; r <= numRetries; r++) {
+			BDBEnv bdbEnv = null;
 			try {
-				BDBEnv bdbEnv = getBDBEnvByNamespace(namespace, true);
+				bdbEnv = getBDBEnvByNamespace(namespace, true);
 				BDBDatabase dbIncrement = bdbEnv.getDb(AllocidsConst.DB_INCREMENT);
 				IncrementBinding binding = BDBUtil.getIncrementBinding();
 				BDBGet<IncrementInfo> bdbGet = new BDBGet<IncrementInfo>();
@@ -106,6 +112,8 @@ public class IncrementManager {
 							"[getRangeids] " + ReflexBDBLogUtil.getRetryLog(e, r));
 				}
 				BDBUtil.sleep(waitMillis + r * 10);
+			} finally {
+				BDBUtil.releaseBDBEnv(bdbEnv);
 			}
 		}
 		throw new IllegalStateException("Unreachable code.");
@@ -113,6 +121,7 @@ public class IncrementManager {
 
 	/**
 	 * 加算処理.
+	 * 加算まとめ処理が有効な場合、同じキーへの同時の加算リクエストとまとめて加算する。
 	 * @param uri キー
 	 * @param num 加算値
 	 * @param requestInfo リクエスト情報
@@ -122,14 +131,35 @@ public class IncrementManager {
 	 */
 	public long addids(String namespace, String uri, long num,
 			String serviceName, RequestInfo requestInfo, ConnectionInfo connectionInfo)
+	throws IOException, TaggingException {
+		if (AllocidsEnvUtil.isEnableIncrementCombining()) {
+			IncrementCombiningManager combiningManager = new IncrementCombiningManager();
+			return combiningManager.addids(namespace, uri, num, serviceName,
+					requestInfo, connectionInfo);
+		}
+		return addidsProc(namespace, uri, num, serviceName, requestInfo, connectionInfo);
+	}
+
+	/**
+	 * 加算処理.
+	 * リクエストごとに1トランザクションで加算する。
+	 * @param uri キー
+	 * @param num 加算値
+	 * @param requestInfo リクエスト情報
+	 * @param connectionInfo コネクション情報
+	 * @return 加算結果
+	 */
+	private long addidsProc(String namespace, String uri, long num,
+			String serviceName, RequestInfo requestInfo, ConnectionInfo connectionInfo)
 	throws IOException, TaggingException {
 		int numRetries = BDBEnvUtil.getBDBRetryCount();
 		int waitMillis = BDBEnvUtil.getBDBRetryWaitmillis();
 		for (int r = 0; r <= numRetries; r++) {
 			BDBTransaction bdbTxn = null;
+			BDBEnv bdbEnv = null;
 			try {
 				// BDB環境情報取得
-				BDBEnv bdbEnv = getBDBEnvByNamespace(namespace, true);
+				bdbEnv = getBDBEnvByNamespace(namespace, true);
 				BDBDatabase dbIncrement = bdbEnv.getDb(AllocidsConst.DB_INCREMENT);
 				IncrementBinding binding = BDBUtil.getIncrementBinding();
 
@@ -191,6 +221,113 @@ public class IncrementManager {
 						logger.warn("[addids] abort error.", e);
 					}
 				}
+				BDBUtil.releaseBDBEnv(bdbEnv);
+			}
+		}
+		throw new IllegalStateException("Unreachable code.");
+	}
+
+	/**
+	 * 複数の加算リクエストを1トランザクションでまとめて加算する.
+	 * <p>
+	 * 加算はリクエストの順に1件ずつ計算し、リクエストごとの加算結果をFutureに設定する。
+	 * 範囲外となるリクエストはそのリクエストのみエラーとし、加算しない。
+	 * Futureへの設定はコミット後に行う。
+	 * </p>
+	 * @param namespace 名前空間
+	 * @param uri キー
+	 * @param infos 加算リクエスト情報リスト
+	 */
+	void addidsCombined(String namespace, String uri, List<IncrementCombiningInfo> infos)
+	throws IOException, TaggingException {
+		IncrementCombiningInfo firstInfo = infos.get(0);
+		String serviceName = firstInfo.serviceName;
+		RequestInfo requestInfo = firstInfo.requestInfo;
+		ConnectionInfo connectionInfo = firstInfo.connectionInfo;
+		int numRetries = BDBEnvUtil.getBDBRetryCount();
+		int waitMillis = BDBEnvUtil.getBDBRetryWaitmillis();
+		for (int r = 0; r <= numRetries; r++) {
+			BDBTransaction bdbTxn = null;
+			BDBEnv bdbEnv = null;
+			try {
+				// BDB環境情報取得
+				bdbEnv = getBDBEnvByNamespace(namespace, true);
+				BDBDatabase dbIncrement = bdbEnv.getDb(AllocidsConst.DB_INCREMENT);
+				IncrementBinding binding = BDBUtil.getIncrementBinding();
+
+				// トランザクション開始
+				bdbTxn = bdbEnv.beginTransaction();
+
+				// まず取得
+				BDBGet<IncrementInfo> bdbGet = new BDBGet<IncrementInfo>();
+				IncrementInfo incrInfo = bdbGet.get(serviceName, bdbTxn, dbIncrement, binding,
+						BDBUtil.getLockModeRMW(), uri, requestInfo, connectionInfo);
+
+				// 現在値と枠を抽出
+				long newNum = 0;
+				IncrementRangeInfo rangeInfo = null;
+				if (incrInfo != null) {
+					newNum = incrInfo.getNum();
+					rangeInfo = getIncrementRangeInfo(incrInfo.getRange());
+				}
+				String range = getIncrementRange(rangeInfo);
+
+				// リクエストごとに加算と範囲チェック
+				Object[] results = new Object[infos.size()];
+				boolean isUpdated = false;
+				for (int i = 0; i < infos.size(); i++) {
+					long tmpNum = newNum + infos.get(i).num;
+					try {
+						checkWithinRange(tmpNum, rangeInfo, uri, false);
+						results[i] = editNumber(new IncrementInfo(tmpNum, range), false, uri);
+						newNum = tmpNum;
+						isUpdated = true;
+					} catch (OutOfRangeException e) {
+						results[i] = e;
+					}
+				}
+
+				// インクリメント更新
+				if (isUpdated) {
+					IncrementInfo newIncrInfo = new IncrementInfo(newNum, range);
+					BDBPut<IncrementInfo> bdbPut = new BDBPut<IncrementInfo>();
+					bdbPut.put(serviceName, bdbTxn, dbIncrement, binding, uri, newIncrInfo,
+							requestInfo, connectionInfo);
+				}
+				bdbTxn.commit();
+				bdbTxn = null;
+
+				for (int i = 0; i < infos.size(); i++) {
+					if (results[i] instanceof OutOfRangeException) {
+						infos.get(i).future.completeExceptionally((OutOfRangeException)results[i]);
+					} else {
+						infos.get(i).future.complete((Long)results[i]);
+					}
+				}
+				return;
+
+			} catch (DatabaseException e) {
+				// リトライ判定、入力エラー判定
+				BDBUtil.convertError(e, uri, requestInfo);
+				if (r >= numRetries) {
+					// リトライ対象だがリトライ回数を超えた場合
+					BDBUtil.convertIOError(e, uri);
+				}
+				if (logger.isInfoEnabled()) {
+					logger.info(LogUtil.getRequestInfoStr(requestInfo) +
+							"[addidsCombined] " + ReflexBDBLogUtil.getRetryLog(e, r));
+				}
+				BDBUtil.sleep(waitMillis + r * 10);
+
+			} finally {
+				if (bdbTxn != null) {
+					try {
+						bdbTxn.abort();
+					} catch (Throwable e) {
+						logger.warn("[addidsCombined] abort error.", e);
+					}
+				}
+				BDBUtil.releaseBDBEnv(bdbEnv);
 			}
 		}
 		throw new IllegalStateException("Unreachable code.");
@@ -211,9 +348,10 @@ public class IncrementManager {
 		int waitMillis = BDBEnvUtil.getBDBRetryWaitmillis();
 		for (int r = 0; r <= numRetries; r++) {
 			BDBTransaction bdbTxn = null;
+			BDBEnv bdbEnv = null;
 			try {
 				// BDB環境情報取得
-				BDBEnv bdbEnv = getBDBEnvByNamespace(namespace, true);
+				bdbEnv = getBDBEnvByNamespace(namespace, true);
 				BDBDatabase dbIncrement = bdbEnv.getDb(AllocidsConst.DB_INCREMENT);
 				IncrementBinding binding = BDBUtil.getIncrementBinding();
 
@@ -265,6 +403,7 @@ public class IncrementManager {
 						logger.warn("[setids] abort error.", e);
 					}
 				}
+				BDBUtil.releaseBDBEnv(bdbEnv);
 			}
 		}
 		throw new IllegalStateException("Unreachable code.");
@@ -285,9 +424,10 @@ public class IncrementManager {
 		int waitMillis = BDBEnvUtil.getBDBRetryWaitmillis();
 		for (int r = 0; r <= numRetries; r++) {
 			BDBTransaction bdbTxn = null;
+			BDBEnv bdbEnv = null;
 			try {
 				// BDB環境情報取得
-				BDBEnv bdbEnv = getBDBEnvByNamespace(namespace, true);
+				bdbEnv = getBDBEnvByNamespace(namespace, true);
 				BDBDatabase dbIncrement = bdbEnv.getDb(AllocidsConst.DB_INCREMENT);
 				IncrementBinding binding = BDBUtil.getIncrementBinding();
 
@@ -340,6 +480,7 @@ public class IncrementManager {
 						logger.warn("[rangeids] abort error.", e);
 					}
 				}
+				BDBUtil.releaseBDBEnv(bdbEnv);
 			}
 		}
 		throw new IllegalStateException("Unreachable code.");
@@ -435,6 +576,7 @@ public class IncrementManager {
 
 	/**
 	 * 名前空間からBDB環境情報を取得.
+	 * 使用後は{@link BDBUtil#releaseBDBEnv(BDBEnv)}を呼び出すこと。
 	 * @param namespace 名前空間
 	 * @param isCreate 指定された名前空間のBDB環境が存在しない時作成する場合true
 	 * @return BDB環境情報
@@ -442,7 +584,7 @@ public class IncrementManager {
 	private BDBEnv getBDBEnvByNamespace(String namespace,
 			boolean isCreate)
 	throws IOException, TaggingException {
-		boolean setAccesstime = false;	// 
+		boolean setAccesstime = true;
 		BDBEnvManager bdbEnvManager = new BDBEnvManager();
 		return bdbEnvManager.getBDBEnvByNamespace(AllocidsConst.DB_NAMES,
 				namespace, isCreate, setAccesstime);
@@ -258,10 +258,7 @@ public class AllocidsContext implements BaseReflexContext {
 		FeedBase retFeed = TaggingEntryUtil.createAtomFeed();
 		int cnt = 0;
 		if (fetchInfo != null) {
-			Map<String, Object> result = (Map<String, Object>)fetchInfo.getResult();
-			if (result != null) {
-				cnt = result.size();
-			}
+			cnt = fetchInfo.getCount();
 			// カーソル
 			if (!StringUtils.isBlank(fetchInfo.getPointerStr())) {
 				TaggingEntryUtil.setCursorToFeed(fetchInfo.getPointerStr(), retFeed);
@@ -392,7 +389,8 @@ public class AllocidsContext implements BaseReflexContext {
 	public void backupBDB(String storageUrl)
 	throws IOException, TaggingException {
 		// BDBクリーン、バックアップ
-		ReflexBDBBackupUtil.backup(namespace, storageUrl, serviceName, requestInfo);
+		ReflexBDBBackupUtil.backup(namespace, AllocidsConst.DB_NAMES, storageUrl, serviceName,
+				requestInfo);
 	}
 
 }
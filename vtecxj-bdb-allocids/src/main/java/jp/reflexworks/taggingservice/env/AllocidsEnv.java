@@ -1,6 +1,7 @@
 package jp.reflexworks.taggingservice.env;
 
 import jp.reflexworks.servlet.util.ServletContextUtil;
+import jp.reflexworks.taggingservice.bdb.IncrementCombiningManager;
 
 /**
  * Tagging BDB 環境情報
@@ -19,7 +20,7 @@ public class AllocidsEnv extends ReflexBDBEnvBase {
 	 * プラグイン機能.
 	 */
 	protected void initPlugin() {
-		// Do nothing.
+		initPluginProc(IncrementCombiningManager.class);
 	}
 
 }
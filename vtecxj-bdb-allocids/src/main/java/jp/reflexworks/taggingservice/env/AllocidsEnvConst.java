@@ -0,0 +1,17 @@
+package jp.reflexworks.taggingservice.env;
+
+/**
+ * 採番・カウンタサーバ 環境定数クラス
+ */
+public interface AllocidsEnvConst extends ReflexEnvConst {
+
+	/** 設定 : 同じキーへの同時加算を1トランザクションにまとめるかどうか */
+	public static final String INCREMENT_ENABLE_COMBINING = "_bdb.increment.enable.combining";
+
+	/**
+	 * 設定デフォルト : 同じキーへの同時加算を1トランザクションにまとめるかどうか.
+	 * 単一キーへの高負荷時の効果を計測するまでは無効とする。
+	 */
+	public static final boolean INCREMENT_ENABLE_COMBINING_DEFAULT = false;
+
+}
@@ -0,0 +1,23 @@
+package jp.reflexworks.taggingservice.env;
+
+/**
+ * 採番・カウンタサーバ 設定値取得ユーティリティ
+ */
+public class AllocidsEnvUtil {
+
+	/**
+	 * コンストラクタ(生成不可).
+	 */
+	private AllocidsEnvUtil() {}
+
+	/**
+	 * 同じキーへの同時加算を1トランザクションにまとめるかどうかを取得.
+	 * @return 同じキーへの同時加算を1トランザクションにまとめる場合true
+	 */
+	public static boolean isEnableIncrementCombining() {
+		return ReflexEnvUtil.getSystemPropBoolean(
+				AllocidsEnvConst.INCREMENT_ENABLE_COMBINING,
+				AllocidsEnvConst.INCREMENT_ENABLE_COMBINING_DEFAULT);
+	}
+
+}
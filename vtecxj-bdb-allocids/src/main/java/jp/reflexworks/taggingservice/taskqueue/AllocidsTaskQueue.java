@@ -94,4 +94,13 @@ public class AllocidsTaskQueue<T> implements ReflexTaskQueue<T> {
 		}
 	}
 
+	/**
+	 * 非同期処理の対象サービス名を取得.
+	 * @return サービス名
+	 */
+	@Override
+	public String getServiceName() {
+		return serviceName;
+	}
+
 }
@@ -0,0 +1,368 @@
+package jp.reflexworks.taggingservice.backup;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sleepycat.je.DatabaseException;
+import com.sleepycat.je.Environment;
+import com.sleepycat.je.util.DbBackup;
+
+import jp.reflexworks.taggingservice.util.Constants;
+
+/**
+ * BDBバックアップ処理.
+ * <p>
+ * JEのDbBackupでログファイルの削除を止めた状態で、バックアップ対象のログファイルを
+ * バックアップ格納先にコピーする。
+ * 前回のバックアップのマニフェストに同じ名前・サイズで記録されているログファイルはコピーせず、
+ * 前回の格納先を参照する。(JEのログファイルは追記のみで、書き込みが終わったファイルは変更されない。)
+ * コピーは指定された転送量(バイト/秒)を超えないよう待機しながら行い、SHA-256チェックサムを
+ * マニフェストに記録する。
+ * </p>
+ * <pre>
+ * {格納先}/log/{ログファイル名}.{サイズ}      ログファイル
+ * {格納先}/manifest/{yyyyMMddHHmmssSSS}.txt  マニフェスト
+ * {格納先}/manifest/latest                  最新のマニフェスト名
+ * </pre>
+ */
+public class BDBBackupEngine {
+
+	/** 格納先のログファイルディレクトリ */
+	public static final String DIR_LOG = "log/";
+	/** 格納先のマニフェストディレクトリ */
+	public static final String DIR_MANIFEST = "manifest/";
+	/** 最新のマニフェスト名を格納するファイル */
+	public static final String NAME_LATEST = DIR_MANIFEST + "latest";
+	/** マニフェストの拡張子 */
+	private static final String MANIFEST_SUFFIX = ".txt";
+	/** 作成日時のフォーマット */
+	private static final String CREATED_FORMAT = "yyyyMMddHHmmssSSS";
+	/** チェックサムのアルゴリズム */
+	private static final String HASH_ALGORITHM = Constants.HASH_ALGORITHM;
+	/** コピーのバッファサイズ */
+	private static final int BUFFER_SIZE = 64 * 1024;
+	/** BDBログファイルの拡張子 */
+	private static final String JE_LOG_SUFFIX = ".jdb";
+
+	/** ロガー. */
+	private Logger logger = LoggerFactory.getLogger(this.getClass());
+
+	/** 転送量の上限(バイト/秒)。0以下は無制限。 */
+	private final long bytesPerSec;
+
+	/**
+	 * コンストラクタ.
+	 * @param bytesPerSec 転送量の上限(バイト/秒)。0以下は無制限。
+	 */
+	public BDBBackupEngine(long bytesPerSec) {
+		this.bytesPerSec = bytesPerSec;
+	}
+
+	/**
+	 * 格納先URLからバックアップ格納先を生成.
+	 * Cloud Storage URLの場合はCloud Storage、それ以外はローカルディレクトリとする。
+	 * @param url 格納先URL
+	 * @return バックアップ格納先
+	 */
+	public static BDBBackupSink createSink(String url) {
+		if (CloudStorageBackupSink.isCloudStorageUrl(url)) {
+			return new CloudStorageBackupSink(url);
+		}
+		String path = url;
+		if (path.startsWith("file://")) {
+			path = path.substring("file://".length());
+		}
+		return new LocalBackupSink(new File(path));
+	}
+
+	/**
+	 * バックアップ.
+	 * @param jeEnv BDB環境
+	 * @param sink バックアップ格納先
+	 * @return 作成したマニフェスト
+	 */
+	public BDBBackupManifest backup(Environment jeEnv, BDBBackupSink sink)
+	throws IOException {
+		BDBBackupManifest prevManifest = readManifest(sink, null);
+		File envHome = jeEnv.getHome();
+		String created = new SimpleDateFormat(CREATED_FORMAT).format(new Date());
+		BDBBackupManifest manifest = new BDBBackupManifest(created);
+		Throttle throttle = new Throttle(bytesPerSec);
+		long copySize = 0;
+		int copyCnt = 0;
+
+		DbBackup dbBackup = null;
+		try {
+			dbBackup = new DbBackup(jeEnv);
+			// バックアップ終了までログファイルは削除されない
+			dbBackup.startBackup();
+			for (String fileName : dbBackup.getLogFilesInBackupSet()) {
+				File file = new File(envHome, fileName);
+				long size = file.length();
+				BDBBackupManifest.Item prevItem = null;
+				if (prevManifest != null) {
+					prevItem = prevManifest.getItem(fileName);
+				}
+				if (prevItem != null && prevItem.getSize() == size) {
+					manifest.add(prevItem);
+					continue;
+				}
+				String key = DIR_LOG + fileName + "." + size;
+				String checksum = null;
+				try (InputStream in = new FileInputStream(file);
+						OutputStream out = sink.create(key)) {
+					checksum = copy(in, out, size, throttle);
+				}
+				manifest.add(new BDBBackupManifest.Item(fileName, size, checksum, key));
+				copySize += size;
+				copyCnt++;
+			}
+		} catch (DatabaseException e) {
+			throw new IOException(e);
+		} finally {
+			if (dbBackup != null) {
+				try {
+					dbBackup.endBackup();
+				} catch (DatabaseException e) {
+					logger.warn("[backup] endBackup failed. " + envHome.getPath(), e);
+				}
+			}
+		}
+
+		// ログファイルの格納が終わってからマニフェストを格納し、最新のマニフェストを更新する
+		String manifestName = DIR_MANIFEST + created + MANIFEST_SUFFIX;
+		try (OutputStream out = sink.create(manifestName)) {
+			manifest.write(out);
+		}
+		try (OutputStream out = sink.create(NAME_LATEST)) {
+			out.write(manifestName.getBytes(Constants.ENCODING));
+		}
+
+		if (logger.isInfoEnabled()) {
+			StringBuilder sb = new StringBuilder();
+			sb.append("[backup] ");
+			sb.append(envHome.getPath());
+			sb.append(" -> ");
+			sb.append(sink.getUrl());
+			sb.append(" manifest=");
+			sb.append(manifestName);
+			sb.append(" files=");
+			sb.append(manifest.getItems().size());
+			sb.append(" copied=");
+			sb.append(copyCnt);
+			sb.append(" copiedBytes=");
+			sb.append(copySize);
+			sb.append(" totalBytes=");
+			sb.append(manifest.getTotalSize());
+			logger.info(sb.toString());
+		}
+		return manifest;
+	}
+
+	/**
+	 * リストア.
+	 * マニフェストに記録されたログファイルをリストア先ディレクトリにコピーし、
+	 * サイズとチェックサムを検証する。
+	 * @param sink バックアップ格納先
+	 * @param manifestName マニフェスト名。nullの場合は最新のマニフェスト。
+	 * @param targetDir リストア先ディレクトリ (BDB環境が存在しないこと)
+	 * @return リストアしたマニフェスト
+	 */
+	public BDBBackupManifest restore(BDBBackupSink sink, String manifestName, File targetDir)
+	throws IOException {
+		if (targetDir.exists()) {
+			File[] jeLogFiles = targetDir.listFiles(
+					(dir, name) -> name.endsWith(JE_LOG_SUFFIX));
+			if (jeLogFiles == null || jeLogFiles.length > 0) {
+				throw new IOException("The restore directory is not empty. " +
+						targetDir.getPath());
+			}
+		}
+		BDBBackupManifest manifest = readManifest(sink, manifestName);
+		if (manifest == null) {
+			throw new FileNotFoundException("The backup manifest does not exist. " +
+					sink.getUrl());
+		}
+		Throttle throttle = new Throttle(bytesPerSec);
+		for (BDBBackupManifest.Item item : manifest.getItems()) {
+			File file = new File(targetDir, item.getFileName());
+			File parent = file.getParentFile();
+			if (!parent.exists() && !parent.mkdirs() && !parent.isDirectory()) {
+				throw new IOException("Could not create the directory. " + parent.getPath());
+			}
+			File tmpFile = new File(parent, file.getName() + ".tmp");
+			String checksum = null;
+			try (InputStream in = sink.open(item.getKey());
+					OutputStream out = new FileOutputStream(tmpFile)) {
+				checksum = copy(in, out, item.getSize(), throttle);
+			}
+			if (tmpFile.length() != item.getSize() || !item.getChecksum().equals(checksum)) {
+				Files.deleteIfExists(tmpFile.toPath());
+				throw new IOException("The backup file is corrupted. " + item.getKey());
+			}
+			Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+
+		if (logger.isInfoEnabled()) {
+			StringBuilder sb = new StringBuilder();
+			sb.append("[restore] ");
+			sb.append(sink.getUrl());
+			sb.append(" manifest=");
+			sb.append(manifest.getCreated());
+			sb.append(" -> ");
+			sb.append(targetDir.getPath());
+			sb.append(" files=");
+			sb.append(manifest.getItems().size());
+			sb.append(" totalBytes=");
+			sb.append(manifest.getTotalSize());
+			logger.info(sb.toString());
+		}
+		return manifest;
+	}
+
+	/**
+	 * マニフェストを読み込む.
+	 * @param sink バックアップ格納先
+	 * @param manifestName マニフェスト名。nullの場合は最新のマニフェスト。
+	 * @return マニフェスト。存在しない場合null。
+	 */
+	public BDBBackupManifest readManifest(BDBBackupSink sink, String manifestName)
+	throws IOException {
+		String name = manifestName;
+		if (name == null) {
+			if (!sink.exists(NAME_LATEST)) {
+				return null;
+			}
+			try (InputStream in = sink.open(NAME_LATEST)) {
+				name = new String(readAll(in), Constants.ENCODING).trim();
+			}
+		} else if (!name.startsWith(DIR_MANIFEST)) {
+			name = DIR_MANIFEST + name;
+		}
+		if (!sink.exists(name)) {
+			return null;
+		}
+		try (InputStream in = sink.open(name)) {
+			return BDBBackupManifest.read(in);
+		}
+	}
+
+	/**
+	 * 指定されたサイズをコピーし、チェックサムを計算.
+	 * @param in 入力ストリーム
+	 * @param out 出力ストリーム
+	 * @param size サイズ
+	 * @param throttle 転送量制御
+	 * @return SHA-256チェックサム (16進数)。入力がサイズに満たない場合も読み込んだ分のチェックサム。
+	 */
+	private String copy(InputStream in, OutputStream out, long size, Throttle throttle)
+	throws IOException {
+		MessageDigest digest = null;
+		try {
+			digest = MessageDigest.getInstance(HASH_ALGORITHM);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+		byte[] buf = new byte[BUFFER_SIZE];
+		long remaining = size;
+		while (remaining > 0) {
+			int len = in.read(buf, 0, (int)Math.min(buf.length, remaining));
+			if (len < 0) {
+				break;
+			}
+			out.write(buf, 0, len);
+			digest.update(buf, 0, len);
+			remaining -= len;
+			throttle.add(len);
+		}
+		return toHex(digest.digest());
+	}
+
+	/**
+	 * ストリームを全て読み込む.
+	 * @param in 入力ストリーム
+	 * @return バイト配列
+	 */
+	private static byte[] readAll(InputStream in) throws IOException {
+		java.io.ByteArrayOutputStream bout = new java.io.ByteArrayOutputStream();
+		byte[] buf = new byte[4096];
+		int len;
+		while ((len = in.read(buf)) > 0) {
+			bout.write(buf, 0, len);
+		}
+		return bout.toByteArray();
+	}
+
+	/**
+	 * バイト配列を16進数文字列に変換.
+	 * @param bytes バイト配列
+	 * @return 16進数文字列
+	 */
+	private static String toHex(byte[] bytes) {
+		StringBuilder sb = new StringBuilder(bytes.length * 2);
+		for (byte b : bytes) {
+			sb.append(Character.forDigit((b >> 4) & 0xf, 16));
+			sb.append(Character.forDigit(b & 0xf, 16));
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * 転送量制御.
+	 * 開始からの転送量が上限を超えないよう、超過分の時間待機する。
+	 */
+	private static class Throttle {
+
+		/** 転送量の上限(バイト/秒)。0以下は無制限。 */
+		private final long bytesPerSec;
+		/** 開始時刻(ナノ秒) */
+		private final long startNanos = System.nanoTime();
+		/** 転送量 */
+		private long bytes;
+
+		/**
+		 * コンストラクタ.
+		 * @param bytesPerSec 転送量の上限(バイト/秒)
+		 */
+		Throttle(long bytesPerSec) {
+			this.bytesPerSec = bytesPerSec;
+		}
+
+		/**
+		 * 転送量を加算し、上限を超えている場合は待機.
+		 * @param len 転送量
+		 */
+		void add(int len) throws IOException {
+			if (bytesPerSec <= 0) {
+				return;
+			}
+			bytes += len;
+			long expectedNanos = (long)(bytes * 1000000000d / bytesPerSec);
+			long waitMillis = (expectedNanos - (System.nanoTime() - startNanos)) / 1000000;
+			if (waitMillis > 0) {
+				try {
+					Thread.sleep(waitMillis);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException("The backup was interrupted.");
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,233 @@
+package jp.reflexworks.taggingservice.backup;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import jp.reflexworks.taggingservice.util.Constants;
+
+/**
+ * BDBバックアップマニフェスト.
+ * <p>
+ * バックアップ時点でBDB環境を復元するために必要なログファイルの一覧。
+ * ログファイルごとにサイズ、SHA-256チェックサム、バックアップ格納先の名前を保持する。
+ * 以前のバックアップで格納済みのログファイルは、以前の格納先の名前をそのまま参照する。
+ * </p>
+ * <pre>
+ * version	1
+ * created	{yyyyMMddHHmmssSSS}
+ * file	{ログファイル名}	{サイズ}	{チェックサム}	{格納先の名前}
+ * </pre>
+ */
+public class BDBBackupManifest {
+
+	/** マニフェストのフォーマットバージョン */
+	public static final String VERSION = "1";
+
+	/** 項目区切り文字 */
+	private static final String DELIMITER = "\t";
+	/** 行の種類 : バージョン */
+	private static final String LINE_VERSION = "version";
+	/** 行の種類 : 作成日時 */
+	private static final String LINE_CREATED = "created";
+	/** 行の種類 : ログファイル */
+	private static final String LINE_FILE = "file";
+
+	/** 作成日時 */
+	private final String created;
+	/** ログファイル キー:ログファイル名、値:ログファイル情報 */
+	private final Map<String, Item> items = new LinkedHashMap<>();
+
+	/**
+	 * コンストラクタ.
+	 * @param created 作成日時
+	 */
+	public BDBBackupManifest(String created) {
+		this.created = created;
+	}
+
+	/**
+	 * 作成日時を取得.
+	 * @return 作成日時
+	 */
+	public String getCreated() {
+		return created;
+	}
+
+	/**
+	 * ログファイル情報を追加.
+	 * @param item ログファイル情報
+	 */
+	public void add(Item item) {
+		items.put(item.getFileName(), item);
+	}
+
+	/**
+	 * ログファイル情報を取得.
+	 * @param fileName ログファイル名
+	 * @return ログファイル情報。存在しない場合null。
+	 */
+	public Item getItem(String fileName) {
+		return items.get(fileName);
+	}
+
+	/**
+	 * ログファイル情報一覧を取得.
+	 * @return ログファイル情報一覧
+	 */
+	public List<Item> getItems() {
+		return Collections.unmodifiableList(new ArrayList<>(items.values()));
+	}
+
+	/**
+	 * ログファイルの合計サイズを取得.
+	 * @return ログファイルの合計サイズ
+	 */
+	public long getTotalSize() {
+		long total = 0;
+		for (Item item : items.values()) {
+			total += item.getSize();
+		}
+		return total;
+	}
+
+	/**
+	 * マニフェストを書き込む.
+	 * @param out 出力ストリーム
+	 */
+	public void write(OutputStream out) throws IOException {
+		StringBuilder sb = new StringBuilder();
+		sb.append(LINE_VERSION);
+		sb.append(DELIMITER);
+		sb.append(VERSION);
+		sb.append(Constants.NEWLINE);
+		sb.append(LINE_CREATED);
+		sb.append(DELIMITER);
+		sb.append(created);
+		sb.append(Constants.NEWLINE);
+		for (Item item : items.values()) {
+			sb.append(LINE_FILE);
+			sb.append(DELIMITER);
+			sb.append(item.getFileName());
+			sb.append(DELIMITER);
+			sb.append(item.getSize());
+			sb.append(DELIMITER);
+			sb.append(item.getChecksum());
+			sb.append(DELIMITER);
+			sb.append(item.getKey());
+			sb.append(Constants.NEWLINE);
+		}
+		out.write(sb.toString().getBytes(Constants.ENCODING));
+	}
+
+	/**
+	 * マニフェストを読み込む.
+	 * @param in 入力ストリーム
+	 * @return マニフェスト
+	 */
+	public static BDBBackupManifest read(InputStream in) throws IOException {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(in,
+				Constants.ENCODING));
+		String version = null;
+		String created = null;
+		List<Item> tmpItems = new ArrayList<>();
+		String line;
+		while ((line = reader.readLine()) != null) {
+			if (line.isEmpty()) {
+				continue;
+			}
+			String[] parts = line.split(DELIMITER);
+			if (LINE_VERSION.equals(parts[0]) && parts.length == 2) {
+				version = parts[1];
+			} else if (LINE_CREATED.equals(parts[0]) && parts.length == 2) {
+				created = parts[1];
+			} else if (LINE_FILE.equals(parts[0]) && parts.length == 5) {
+				try {
+					tmpItems.add(new Item(parts[1], Long.parseLong(parts[2]), parts[3],
+							parts[4]));
+				} catch (NumberFormatException e) {
+					throw new IOException("Invalid backup manifest line: " + line);
+				}
+			} else {
+				throw new IOException("Invalid backup manifest line: " + line);
+			}
+		}
+		if (!VERSION.equals(version) || created == null) {
+			throw new IOException("Unsupported backup manifest. version=" + version);
+		}
+		BDBBackupManifest manifest = new BDBBackupManifest(created);
+		for (Item item : tmpItems) {
+			manifest.add(item);
+		}
+		return manifest;
+	}
+
+	/**
+	 * ログファイル情報.
+	 */
+	public static class Item {
+
+		/** ログファイル名 (BDB環境ディレクトリからの相対パス) */
+		private final String fileName;
+		/** サイズ */
+		private final long size;
+		/** SHA-256チェックサム (16進数) */
+		private final String checksum;
+		/** バックアップ格納先の名前 */
+		private final String key;
+
+		/**
+		 * コンストラクタ.
+		 * @param fileName ログファイル名
+		 * @param size サイズ
+		 * @param checksum SHA-256チェックサム (16進数)
+		 * @param key バックアップ格納先の名前
+		 */
+		public Item(String fileName, long size, String checksum, String key) {
+			this.fileName = fileName;
+			this.size = size;
+			this.checksum = checksum;
+			this.key = key;
+		}
+
+		/**
+		 * ログファイル名を取得.
+		 * @return ログファイル名
+		 */
+		public String getFileName() {
+			return fileName;
+		}
+
+		/**
+		 * サイズを取得.
+		 * @return サイズ
+		 */
+		public long getSize() {
+			return size;
+		}
+
+		/**
+		 * SHA-256チェックサムを取得.
+		 * @return SHA-256チェックサム (16進数)
+		 */
+		public String getChecksum() {
+			return checksum;
+		}
+
+		/**
+		 * バックアップ格納先の名前を取得.
+		 * @return バックアップ格納先の名前
+		 */
+		public String getKey() {
+			return key;
+		}
+	}
+
+}
@@ -0,0 +1,46 @@
+package jp.reflexworks.taggingservice.backup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * BDBバックアップ格納先インタフェース.
+ * <p>
+ * バックアップ格納先のルート配下に、名前を指定してファイルを書き込み・読み込みする。
+ * 名前の階層区切りは"/"とする。
+ * </p>
+ */
+public interface BDBBackupSink {
+
+	/**
+	 * ファイルを書き込むストリームを取得.
+	 * 同じ名前のファイルが存在する場合は上書きする。
+	 * ストリームのクローズで書き込みが確定する。
+	 * @param name 名前
+	 * @return 出力ストリーム
+	 */
+	public OutputStream create(String name) throws IOException;
+
+	/**
+	 * ファイルを読み込むストリームを取得.
+	 * @param name 名前
+	 * @return 入力ストリーム
+	 * @throws java.io.FileNotFoundException ファイルが存在しない場合
+	 */
+	public InputStream open(String name) throws IOException;
+
+	/**
+	 * ファイルが存在するかどうか.
+	 * @param name 名前
+	 * @return ファイルが存在する場合true
+	 */
+	public boolean exists(String name) throws IOException;
+
+	/**
+	 * バックアップ格納先のURLを取得.
+	 * @return バックアップ格納先のURL
+	 */
+	public String getUrl();
+
+}
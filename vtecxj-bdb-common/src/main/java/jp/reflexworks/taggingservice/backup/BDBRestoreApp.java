@@ -0,0 +1,72 @@
+package jp.reflexworks.taggingservice.backup;
+
+import java.io.File;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jp.reflexworks.taggingservice.env.BDBEnvConst;
+import jp.sourceforge.reflex.util.StringUtils;
+
+/**
+ * BDBリストア処理.
+ *  ・BDBBackupEngineで作成したバックアップを、BDB環境ディレクトリにリストアする。
+ *  ・リストア先のBDB環境はオープンしていないこと。
+ */
+public class BDBRestoreApp {
+
+	/** アプリ名 */
+	public static final String APP_NAME = "[BDBRestoreApp]";
+
+	/** ロガー. */
+	private static Logger logger = LoggerFactory.getLogger(BDBRestoreApp.class);
+
+	/**
+	 * main
+	 * @param args 引数
+	 *             [0]バックアップ格納先URL (gs://〜、https://storage.googleapis.com/〜、またはディレクトリ)
+	 *             [1]リストア先BDB環境ディレクトリ(フルパス)
+	 *             [2]マニフェスト名 (省略時は最新)
+	 *             [3]転送量の上限(バイト/秒) (省略時は設定デフォルト、0以下は無制限)
+	 */
+	public static void main(String[] args) {
+		int status = 0;
+		try {
+			// 引数チェック
+			if (args == null || args.length < 2) {
+				throw new IllegalArgumentException("引数を指定してください。[0]バックアップ格納先URL、[1]リストア先BDB環境ディレクトリ");
+			}
+			String backupUrl = args[0];
+			if (StringUtils.isBlank(backupUrl)) {
+				throw new IllegalArgumentException("引数[0]のバックアップ格納先URLを指定してください。");
+			}
+			String targetDirname = args[1];
+			if (StringUtils.isBlank(targetDirname)) {
+				throw new IllegalArgumentException("引数[1]のリストア先BDB環境ディレクトリを指定してください。");
+			}
+			String manifestName = null;
+			if (args.length > 2 && !StringUtils.isBlank(args[2])) {
+				manifestName = args[2];
+			}
+			long bytesPerSec = BDBEnvConst.BDB_BACKUP_BYTES_PER_SEC_DEFAULT;
+			if (args.length > 3 && !StringUtils.isBlank(args[3])) {
+				try {
+					bytesPerSec = Long.parseLong(args[3]);
+				} catch (NumberFormatException e) {
+					throw new IllegalArgumentException("引数[3]の転送量の上限は数値で指定してください。");
+				}
+			}
+
+			BDBBackupEngine engine = new BDBBackupEngine(bytesPerSec);
+			engine.restore(BDBBackupEngine.createSink(backupUrl), manifestName,
+					new File(targetDirname));
+
+		} catch (Throwable e) {
+			logger.error(APP_NAME + " Error occured. " + e.getClass().getName(), e);
+			status = 1;
+		}
+
+		System.exit(status);
+	}
+
+}
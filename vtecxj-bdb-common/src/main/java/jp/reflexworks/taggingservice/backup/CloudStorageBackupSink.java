@@ -0,0 +1,291 @@
+package jp.reflexworks.taggingservice.backup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import jp.reflexworks.taggingservice.util.Constants;
+
+/**
+ * BDBバックアップ格納先 : Cloud Storage.
+ * <p>
+ * Cloud StorageのJSON APIに直接アップロード・ダウンロードする。
+ * アクセストークンはGCEのメタデータサーバから、インスタンスのサービスアカウントのものを取得する。
+ * </p>
+ */
+public class CloudStorageBackupSink implements BDBBackupSink {
+
+	/** Cloud Storage URLパターン (gs://{bucket}/{prefix} または https://storage.googleapis.com/{bucket}/{prefix}) */
+	private static final Pattern PATTERN_URL = Pattern.compile(
+			"^(?:gs://|https://storage\\.googleapis\\.com/)([^/]+)/?(.*)$");
+	/** アップロードURL */
+	private static final String UPLOAD_URL = "https://storage.googleapis.com/upload/storage/v1/b/";
+	/** オブジェクトURL */
+	private static final String OBJECT_URL = "https://storage.googleapis.com/storage/v1/b/";
+	/** アクセストークン取得URL (メタデータサーバ) */
+	private static final String TOKEN_URL =
+			"http://metadata.google.internal/computeMetadata/v1/instance/service-accounts/default/token";
+	/** アクセストークンのパターン */
+	private static final Pattern PATTERN_ACCESS_TOKEN = Pattern.compile(
+			"\"access_token\"\\s*:\\s*\"([^\"]+)\"");
+	/** アクセストークン有効期間のパターン */
+	private static final Pattern PATTERN_EXPIRES_IN = Pattern.compile(
+			"\"expires_in\"\\s*:\\s*([0-9]+)");
+	/** アクセストークンの有効期限前に再取得する時間(ミリ秒) */
+	private static final long TOKEN_MARGIN_MILLIS = 60000;
+	/** アップロードのチャンクサイズ */
+	private static final int CHUNK_SIZE = 1024 * 1024;
+	/** 接続タイムアウト(ミリ秒) */
+	private static final int TIMEOUT_MILLIS = 60000;
+
+	/** バケット名 */
+	private final String bucket;
+	/** オブジェクト名の接頭辞 */
+	private final String prefix;
+	/** URL */
+	private final String url;
+	/** アクセストークン */
+	private String accessToken;
+	/** アクセストークンの有効期限 */
+	private long tokenExpireMillis;
+
+	/**
+	 * コンストラクタ.
+	 * @param url Cloud Storage URL
+	 */
+	public CloudStorageBackupSink(String url) {
+		Matcher matcher = PATTERN_URL.matcher(url);
+		if (!matcher.matches()) {
+			throw new IllegalArgumentException("Invalid storage url: " + url);
+		}
+		this.url = url;
+		this.bucket = matcher.group(1);
+		String tmpPrefix = matcher.group(2);
+		if (tmpPrefix.length() > 0 && !tmpPrefix.endsWith("/")) {
+			tmpPrefix = tmpPrefix + "/";
+		}
+		this.prefix = tmpPrefix;
+	}
+
+	/**
+	 * Cloud Storage URLかどうか.
+	 * @param url URL
+	 * @return Cloud Storage URLの場合true
+	 */
+	public static boolean isCloudStorageUrl(String url) {
+		return url != null && PATTERN_URL.matcher(url).matches();
+	}
+
+	/**
+	 * ファイルを書き込むストリームを取得.
+	 * クローズ時にアップロードのレスポンスを確認する。
+	 * @param name 名前
+	 * @return 出力ストリーム
+	 */
+	@Override
+	public OutputStream create(String name) throws IOException {
+		StringBuilder sb = new StringBuilder();
+		sb.append(UPLOAD_URL);
+		sb.append(bucket);
+		sb.append("/o?uploadType=media&name=");
+		sb.append(encode(prefix + name));
+		HttpURLConnection conn = openConnection(sb.toString(), "POST");
+		conn.setDoOutput(true);
+		conn.setChunkedStreamingMode(CHUNK_SIZE);
+		conn.setRequestProperty("Content-Type", "application/octet-stream");
+		return new FilterOutputStream(conn.getOutputStream()) {
+			/** クローズ済みの場合true */
+			private boolean isClosed;
+
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				out.write(b, off, len);
+			}
+
+			@Override
+			public void close() throws IOException {
+				if (isClosed) {
+					return;
+				}
+				isClosed = true;
+				super.close();
+				try {
+					checkResponse(conn, name);
+				} finally {
+					conn.disconnect();
+				}
+			}
+		};
+	}
+
+	/**
+	 * ファイルを読み込むストリームを取得.
+	 * @param name 名前
+	 * @return 入力ストリーム
+	 */
+	@Override
+	public InputStream open(String name) throws IOException {
+		HttpURLConnection conn = openConnection(getObjectUrl(name) + "?alt=media", "GET");
+		try {
+			checkResponse(conn, name);
+		} catch (IOException e) {
+			conn.disconnect();
+			throw e;
+		}
+		return conn.getInputStream();
+	}
+
+	/**
+	 * ファイルが存在するかどうか.
+	 * @param name 名前
+	 * @return ファイルが存在する場合true
+	 */
+	@Override
+	public boolean exists(String name) throws IOException {
+		HttpURLConnection conn = openConnection(getObjectUrl(name), "GET");
+		try {
+			checkResponse(conn, name);
+			return true;
+		} catch (FileNotFoundException e) {
+			return false;
+		} finally {
+			conn.disconnect();
+		}
+	}
+
+	/**
+	 * バックアップ格納先のURLを取得.
+	 * @return Cloud Storage URL
+	 */
+	@Override
+	public String getUrl() {
+		return url;
+	}
+
+	/**
+	 * オブジェクトのURLを取得.
+	 * @param name 名前
+	 * @return オブジェクトのURL
+	 */
+	private String getObjectUrl(String name) throws IOException {
+		StringBuilder sb = new StringBuilder();
+		sb.append(OBJECT_URL);
+		sb.append(bucket);
+		sb.append("/o/");
+		sb.append(encode(prefix + name));
+		return sb.toString();
+	}
+
+	/**
+	 * 認証ヘッダを設定したコネクションを取得.
+	 * @param urlStr URL
+	 * @param method メソッド
+	 * @return コネクション
+	 */
+	private HttpURLConnection openConnection(String urlStr, String method) throws IOException {
+		HttpURLConnection conn = (HttpURLConnection)new URL(urlStr).openConnection();
+		conn.setRequestMethod(method);
+		conn.setConnectTimeout(TIMEOUT_MILLIS);
+		conn.setReadTimeout(TIMEOUT_MILLIS);
+		conn.setRequestProperty("Authorization", "Bearer " + getAccessToken());
+		return conn;
+	}
+
+	/**
+	 * レスポンスステータスを確認.
+	 * @param conn コネクション
+	 * @param name 名前
+	 * @throws FileNotFoundException ファイルが存在しない場合
+	 * @throws IOException 成功以外のステータスの場合
+	 */
+	private void checkResponse(HttpURLConnection conn, String name) throws IOException {
+		int status = conn.getResponseCode();
+		if (status == HttpURLConnection.HTTP_OK) {
+			return;
+		}
+		if (status == HttpURLConnection.HTTP_NOT_FOUND) {
+			throw new FileNotFoundException(url + " " + name);
+		}
+		String errorMessage = null;
+		InputStream err = conn.getErrorStream();
+		if (err != null) {
+			try {
+				errorMessage = readString(err);
+			} finally {
+				err.close();
+			}
+		}
+		throw new IOException("Cloud Storage request failed. status=" + status +
+				", name=" + name + ", message=" + errorMessage);
+	}
+
+	/**
+	 * アクセストークンを取得.
+	 * 有効期限が近い場合はメタデータサーバから再取得する。
+	 * @return アクセストークン
+	 */
+	private synchronized String getAccessToken() throws IOException {
+		long now = System.currentTimeMillis();
+		if (accessToken != null && now < tokenExpireMillis - TOKEN_MARGIN_MILLIS) {
+			return accessToken;
+		}
+		HttpURLConnection conn = (HttpURLConnection)new URL(TOKEN_URL).openConnection();
+		conn.setConnectTimeout(TIMEOUT_MILLIS);
+		conn.setReadTimeout(TIMEOUT_MILLIS);
+		conn.setRequestProperty("Metadata-Flavor", "Google");
+		String json = null;
+		try {
+			if (conn.getResponseCode() != HttpURLConnection.HTTP_OK) {
+				throw new IOException("Could not get the access token. status=" +
+						conn.getResponseCode());
+			}
+			try (InputStream in = conn.getInputStream()) {
+				json = readString(in);
+			}
+		} finally {
+			conn.disconnect();
+		}
+		Matcher tokenMatcher = PATTERN_ACCESS_TOKEN.matcher(json);
+		if (!tokenMatcher.find()) {
+			throw new IOException("Could not get the access token.");
+		}
+		accessToken = tokenMatcher.group(1);
+		Matcher expiresMatcher = PATTERN_EXPIRES_IN.matcher(json);
+		long expiresInSec = expiresMatcher.find() ? Long.parseLong(expiresMatcher.group(1)) : 0;
+		tokenExpireMillis = now + expiresInSec * 1000;
+		return accessToken;
+	}
+
+	/**
+	 * オブジェクト名をURLエンコード.
+	 * @param objectName オブジェクト名
+	 * @return URLエンコードした文字列
+	 */
+	private static String encode(String objectName) throws IOException {
+		return URLEncoder.encode(objectName, Constants.ENCODING).replace("+", "%20");
+	}
+
+	/**
+	 * ストリームを文字列として読み込む.
+	 * @param in 入力ストリーム
+	 * @return 文字列
+	 */
+	private static String readString(InputStream in) throws IOException {
+		ByteArrayOutputStream bout = new ByteArrayOutputStream();
+		byte[] buf = new byte[4096];
+		int len;
+		while ((len = in.read(buf)) > 0) {
+			bout.write(buf, 0, len);
+		}
+		return new String(bout.toByteArray(), Constants.ENCODING);
+	}
+
+}
@@ -0,0 +1,108 @@
+package jp.reflexworks.taggingservice.backup;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * BDBバックアップ格納先 : ローカルディレクトリ.
+ * <p>
+ * 書き込み中のファイルは一時ファイルとし、クローズ時に名前を変更して確定する。
+ * </p>
+ */
+public class LocalBackupSink implements BDBBackupSink {
+
+	/** 書き込み中の一時ファイルの接尾辞 */
+	private static final String TMP_SUFFIX = ".tmp";
+
+	/** ルートディレクトリ */
+	private final File rootDir;
+
+	/**
+	 * コンストラクタ.
+	 * @param rootDir ルートディレクトリ
+	 */
+	public LocalBackupSink(File rootDir) {
+		this.rootDir = rootDir;
+	}
+
+	/**
+	 * ファイルを書き込むストリームを取得.
+	 * @param name 名前
+	 * @return 出力ストリーム
+	 */
+	@Override
+	public OutputStream create(String name) throws IOException {
+		File file = getFile(name);
+		File parent = file.getParentFile();
+		if (!parent.exists() && !parent.mkdirs() && !parent.isDirectory()) {
+			throw new IOException("Could not create the directory. " + parent.getPath());
+		}
+		File tmpFile = new File(parent, file.getName() + TMP_SUFFIX);
+		return new FilterOutputStream(new FileOutputStream(tmpFile)) {
+			/** クローズ済みの場合true */
+			private boolean isClosed;
+
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				out.write(b, off, len);
+			}
+
+			@Override
+			public void close() throws IOException {
+				if (isClosed) {
+					return;
+				}
+				isClosed = true;
+				super.close();
+				Files.move(tmpFile.toPath(), file.toPath(),
+						StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			}
+		};
+	}
+
+	/**
+	 * ファイルを読み込むストリームを取得.
+	 * @param name 名前
+	 * @return 入力ストリーム
+	 */
+	@Override
+	public InputStream open(String name) throws IOException {
+		return new FileInputStream(getFile(name));
+	}
+
+	/**
+	 * ファイルが存在するかどうか.
+	 * @param name 名前
+	 * @return ファイルが存在する場合true
+	 */
+	@Override
+	public boolean exists(String name) {
+		return getFile(name).isFile();
+	}
+
+	/**
+	 * バックアップ格納先のURLを取得.
+	 * @return ルートディレクトリのパス
+	 */
+	@Override
+	public String getUrl() {
+		return rootDir.getPath();
+	}
+
+	/**
+	 * 名前からファイルを取得.
+	 * @param name 名前
+	 * @return ファイル
+	 */
+	private File getFile(String name) {
+		return new File(rootDir, name.replace('/', File.separatorChar));
+	}
+
+}
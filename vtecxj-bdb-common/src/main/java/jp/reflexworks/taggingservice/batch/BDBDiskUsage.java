@@ -0,0 +1,99 @@
+package jp.reflexworks.taggingservice.batch;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * ディスク使用量.
+ * BDBデータ格納ディレクトリのファイルシステム使用量と、名前空間ごとのBDBログサイズを保持する。
+ */
+public class BDBDiskUsage {
+
+	/** 取得時刻(ミリ秒) */
+	private final long time;
+	/** ファイルシステムの合計サイズ(バイト) */
+	private final long totalSpace;
+	/** ファイルシステムの空きサイズ(バイト) */
+	private final long unallocatedSpace;
+	/** ファイルシステムの使用可能サイズ(バイト) */
+	private final long usableSpace;
+	/** 名前空間ごとのBDBログサイズ キー:名前空間、値:ログサイズ(バイト) */
+	private final Map<String, Long> logSizes;
+	/** 名前空間ごとのBDBログ増加量 キー:名前空間、値:前回取得時からの増加量(バイト/秒) */
+	private final Map<String, Long> growthRates;
+
+	/**
+	 * コンストラクタ.
+	 * @param time 取得時刻(ミリ秒)
+	 * @param totalSpace ファイルシステムの合計サイズ(バイト)
+	 * @param unallocatedSpace ファイルシステムの空きサイズ(バイト)
+	 * @param usableSpace ファイルシステムの使用可能サイズ(バイト)
+	 * @param logSizes 名前空間ごとのBDBログサイズ
+	 * @param growthRates 名前空間ごとのBDBログ増加量(バイト/秒)
+	 */
+	public BDBDiskUsage(long time, long totalSpace, long unallocatedSpace, long usableSpace,
+			Map<String, Long> logSizes, Map<String, Long> growthRates) {
+		this.time = time;
+		this.totalSpace = totalSpace;
+		this.unallocatedSpace = unallocatedSpace;
+		this.usableSpace = usableSpace;
+		this.logSizes = Collections.unmodifiableMap(logSizes);
+		this.growthRates = Collections.unmodifiableMap(growthRates);
+	}
+
+	/**
+	 * 取得時刻を取得.
+	 * @return 取得時刻(ミリ秒)
+	 */
+	public long getTime() {
+		return time;
+	}
+
+	/**
+	 * ファイルシステムの合計サイズを取得.
+	 * @return ファイルシステムの合計サイズ(バイト)
+	 */
+	public long getTotalSpace() {
+		return totalSpace;
+	}
+
+	/**
+	 * ファイルシステムの使用可能サイズを取得.
+	 * @return ファイルシステムの使用可能サイズ(バイト)
+	 */
+	public long getUsableSpace() {
+		return usableSpace;
+	}
+
+	/**
+	 * ディスク使用率(%)を取得.
+	 * dfコマンドと同じく、使用サイズ / (使用サイズ + 使用可能サイズ) を切り上げる。
+	 * @return ディスク使用率(%)
+	 */
+	public int getUsagePercent() {
+		long used = totalSpace - unallocatedSpace;
+		long size = used + usableSpace;
+		if (size <= 0) {
+			return 0;
+		}
+		return (int)((used * 100 + size - 1) / size);
+	}
+
+	/**
+	 * 名前空間ごとのBDBログサイズを取得.
+	 * @return 名前空間ごとのBDBログサイズ キー:名前空間、値:ログサイズ(バイト)
+	 */
+	public Map<String, Long> getLogSizes() {
+		return logSizes;
+	}
+
+	/**
+	 * 名前空間ごとのBDBログ増加量を取得.
+	 * 前回取得時にオープンしていなかった名前空間は含まない。
+	 * @return 名前空間ごとのBDBログ増加量 キー:名前空間、値:増加量(バイト/秒)
+	 */
+	public Map<String, Long> getGrowthRates() {
+		return growthRates;
+	}
+
+}
@@ -11,7 +11,6 @@ import org.slf4j.LoggerFactory;
 
 import jp.reflexworks.taggingservice.api.RequestInfo;
 import jp.reflexworks.taggingservice.bdb.BDBEnv;
-import jp.reflexworks.taggingservice.bdb.BDBUtil;
 import jp.reflexworks.taggingservice.env.BDBEnvManager;
 import jp.reflexworks.taggingservice.env.BDBEnvUtil;
 import jp.reflexworks.taggingservice.exception.TaggingException;
@@ -166,12 +165,14 @@ public class ReflexBDBCleanCallable extends ReflexBDBCallable<Boolean> {
 		logger.info(LogUtil.getRequestInfoStr(requestInfo) +
 				"[deleteNs] delete start. namespace=" + namespace);
 		// BDB環境をクローズ
-		BDBEnv bdbEnv = BDBUtil.getBDBEnvByNamespace(dbNames, namespace, false);
+		// 削除対象のため最終アクセス日時は更新しない。
+		BDBEnvManager bdbEnvManager = new BDBEnvManager();
+		BDBEnv bdbEnv = bdbEnvManager.getBDBEnvByNamespace(dbNames, namespace, false, false);
 		String bdbDir = null;
 		if (bdbEnv != null) {
 			bdbDir = bdbEnv.getBdbDir();
+			bdbEnv.release();
 			//bdbEnv.close();
-			BDBEnvManager bdbEnvManager = new BDBEnvManager();
 			bdbEnvManager.closeBDBEnv(namespace);
 		} else {
 			bdbDir = BDBEnvUtil.getBDBDirByNamespace(namespace);
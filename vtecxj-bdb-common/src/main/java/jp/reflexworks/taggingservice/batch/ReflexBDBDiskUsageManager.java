@@ -1,22 +1,39 @@
 package jp.reflexworks.taggingservice.batch;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.sleepycat.je.DatabaseException;
+import com.sleepycat.je.EnvironmentStats;
+import com.sleepycat.je.StatsConfig;
+
 import jp.reflexworks.taggingservice.api.ConnectionInfo;
+import jp.reflexworks.taggingservice.api.ReflexStatic;
 import jp.reflexworks.taggingservice.api.RequestInfo;
+import jp.reflexworks.taggingservice.bdb.BDBConst;
+import jp.reflexworks.taggingservice.bdb.BDBEnv;
 import jp.reflexworks.taggingservice.env.BDBEnvConst;
+import jp.reflexworks.taggingservice.env.BDBEnvUtil;
 import jp.reflexworks.taggingservice.env.ReflexEnvUtil;
-import jp.reflexworks.taggingservice.util.Constants;
-import jp.sourceforge.reflex.util.StringUtils;
+import jp.reflexworks.taggingservice.util.LogUtil;
 
 /**
  * ディスク使用量のチェッククラス.
+ * <p>
+ * BDBデータ格納ディレクトリのファイルシステム使用量をFileStoreから、
+ * 名前空間ごとのBDBログサイズをオープン中のBDB環境の統計情報から取得する。
+ * 取得結果はstatic領域に保持し、有効期間内は再取得しない。
+ * 名前空間ごとのログ増加量は、前回の取得結果との差分から求める。
+ * </p>
  */
 public class ReflexBDBDiskUsageManager {
 
@@ -24,162 +41,134 @@ public class ReflexBDBDiskUsageManager {
 	private Logger logger = LoggerFactory.getLogger(this.getClass());
 
 	/**
-	 * ディスク使用率(%)を取得.
-	 * dfを実行するシェルを実行する。
+	 * ディスク使用量を取得.
+	 * 前回の取得から有効期間内の場合は前回の取得結果を返す。
 	 * @param requestInfo リクエスト情報
 	 * @param connectionInfo コネクション情報
-	 * @return ディスク使用率(%)
+	 * @return ディスク使用量
 	 */
-	public String getDiskUsage(RequestInfo requestInfo, ConnectionInfo connectionInfo)
+	public BDBDiskUsage getDiskUsage(RequestInfo requestInfo, ConnectionInfo connectionInfo)
 	throws IOException {
-		String bdbHome = ReflexEnvUtil.getSystemProp(BDBEnvConst.BDB_DIR, BDBEnvConst.BDB_DIR_DEFAULT);
-		String cmdFilepath = ReflexEnvUtil.getSystemProp(BDBEnvConst.CMD_PATH_DISKUSAGE, 
-				BDBEnvConst.CMD_PATH_DISKUSAGE_DEFAULT);
-		
-		// df -m |grep {grepDir}
-
-		// コマンドインジェクション防止: bdbHome はパスとして有効な文字のみ許可
-		if (bdbHome == null || !bdbHome.matches("[a-zA-Z0-9_\\-\\./]+")) {
-			throw new IllegalArgumentException("Invalid bdbHome: " + bdbHome);
+		AtomicReference<BDBDiskUsage> diskUsageRef = getDiskUsageRef();
+		if (diskUsageRef == null) {
+			return createDiskUsage(null, requestInfo);
 		}
-		//String[] command = {"df", "-m", "|grep", "'" + grepDir + "'"}; // 起動コマンドを指定する
-		String[] command = {cmdFilepath, bdbHome}; // 起動コマンドを指定する
-
-		try {
-			// ログ用接頭辞
-			String logprefix = null;
-			if (logger.isDebugEnabled()) {
-				StringBuilder prefixsb = new StringBuilder();
-				prefixsb.append("[getDiskUsage] command = ");
-				boolean isFirst = true;
-				for (String part : command) {
-					if (isFirst) {
-						isFirst = false;
-					} else {
-						prefixsb.append(" ");
-					}
-					prefixsb.append(part);
-				}
-				logprefix = prefixsb.toString();
-			}
-
-			Process process = new ProcessBuilder(command).start(); // 指定したコマンドを実行する
-			StreamReader stdout = new StreamReader(process.getInputStream());
-			StreamReader stderr = new StreamReader(process.getErrorStream());
-			stdout.start();
-			stderr.start();
-
-			// リターンコード
-			int returnCode = process.waitFor();
-			stdout.join();
-			stderr.join();
-			if (logger.isTraceEnabled()) {
-				StringBuilder logsbc = new StringBuilder();
-				logsbc.append(logprefix);
-				logsbc.append(" [Return code] ");
-				logsbc.append(returnCode);
-				logger.debug(logsbc.toString());
+		long cacheMillis = BDBEnvUtil.getDiskUsageCacheMillis();
+		BDBDiskUsage diskUsage = diskUsageRef.get();
+		if (isValid(diskUsage, cacheMillis)) {
+			return diskUsage;
+		}
+		synchronized (diskUsageRef) {
+			// 他スレッドで再取得済みの場合はその結果を返す
+			diskUsage = diskUsageRef.get();
+			if (isValid(diskUsage, cacheMillis)) {
+				return diskUsage;
 			}
+			BDBDiskUsage newDiskUsage = createDiskUsage(diskUsage, requestInfo);
+			diskUsageRef.set(newDiskUsage);
+			return newDiskUsage;
+		}
+	}
 
-			// 標準出力
-			String str = StringUtils.trim(stdout.getResult());
-			if (logger.isDebugEnabled()) {
-				logger.debug(logprefix + " [out] " + str);
-			}
+	/**
+	 * ディスク使用量が有効期間内かどうか.
+	 * @param diskUsage ディスク使用量
+	 * @param cacheMillis 有効期間(ミリ秒)
+	 * @return 有効期間内の場合true
+	 */
+	private boolean isValid(BDBDiskUsage diskUsage, long cacheMillis) {
+		return diskUsage != null &&
+				System.currentTimeMillis() - diskUsage.getTime() < cacheMillis;
+	}
 
-			// エラー出力
-			String errStr = stderr.getResult();
-			if (!StringUtils.isBlank(errStr)) {
-				if (logger.isDebugEnabled()) {
-					// エラー出力
-					// 以下のメッセージがエラー出力されているが問題なし。
-					// 「Activated service account credentials for: [サービスアカウント名]」
-					StringBuilder logsb = new StringBuilder();
-					logsb.append(logprefix);
-					logsb.append(" [Error out] ");
-					logsb.append(errStr);
-					logger.debug(logsb.toString());
+	/**
+	 * ディスク使用量を取得.
+	 * @param prevDiskUsage 前回のディスク使用量。ログ増加量の算出に使用する。
+	 * @param requestInfo リクエスト情報
+	 * @return ディスク使用量
+	 */
+	private BDBDiskUsage createDiskUsage(BDBDiskUsage prevDiskUsage, RequestInfo requestInfo)
+	throws IOException {
+		long now = System.currentTimeMillis();
+		String bdbHome = ReflexEnvUtil.getSystemProp(BDBEnvConst.BDB_DIR,
+				BDBEnvConst.BDB_DIR_DEFAULT);
+		FileStore fileStore = Files.getFileStore(Paths.get(bdbHome));
+
+		// 名前空間ごとのBDBログサイズ
+		Map<String, Long> logSizes = new HashMap<>();
+		ConcurrentMap<String, BDBEnv> bdbEnvMap = getBDBEnvMap();
+		if (bdbEnvMap != null) {
+			StatsConfig statsConfig = new StatsConfig();
+			statsConfig.setFast(true);
+			for (Map.Entry<String, BDBEnv> mapEntry : bdbEnvMap.entrySet()) {
+				String namespace = mapEntry.getKey();
+				try {
+					EnvironmentStats stats = mapEntry.getValue().getJeEnv().getStats(statsConfig);
+					logSizes.put(namespace, stats.getTotalLogSize());
+				} catch (DatabaseException | IllegalStateException e) {
+					// クローズ中のBDB環境は対象外
+					if (logger.isDebugEnabled()) {
+						logger.debug(LogUtil.getRequestInfoStr(requestInfo) +
+								"[createDiskUsage] namespace=" + namespace + " " +
+								e.getClass().getName() + ": " + e.getMessage());
+					}
 				}
 			}
+		}
 
-			// リターンコードが1でなければエラー
-			if (returnCode > 1) {
-				StringBuilder errsb = new StringBuilder();
-				errsb.append("ReturnCode=");
-				errsb.append(returnCode);
-				errsb.append(" ");
-				errsb.append(errStr);
-				throw new IllegalStateException(errsb.toString());
-			}
-			
-			// 文字列から"n%"を抽出する。
-			String[] parts = str.split(" +");
-			for (int i = parts.length - 1; i >= 0; i--) {
-				String part = parts[i];
-				if (logger.isTraceEnabled()) {
-					StringBuilder psb = new StringBuilder();
-					psb.append(logprefix);
-					psb.append(" part[");
-					psb.append(i);
-					psb.append("] = ");
-					psb.append(part);
-					logger.debug(psb.toString());
-				}
-				if (part.endsWith("%")) {
-					return part.substring(0, part.length() - 1);
+		// 名前空間ごとのBDBログ増加量
+		Map<String, Long> growthRates = new HashMap<>();
+		if (prevDiskUsage != null) {
+			long elapsedMillis = now - prevDiskUsage.getTime();
+			Map<String, Long> prevLogSizes = prevDiskUsage.getLogSizes();
+			if (elapsedMillis > 0) {
+				for (Map.Entry<String, Long> mapEntry : logSizes.entrySet()) {
+					Long prevLogSize = prevLogSizes.get(mapEntry.getKey());
+					if (prevLogSize != null) {
+						growthRates.put(mapEntry.getKey(),
+								(mapEntry.getValue() - prevLogSize) * 1000 / elapsedMillis);
+					}
 				}
 			}
-			return null;
+		}
 
-		} catch (InterruptedException e) {
-			Thread.currentThread().interrupt();
-			throw new IOException(e);
+		BDBDiskUsage diskUsage = new BDBDiskUsage(now, fileStore.getTotalSpace(),
+				fileStore.getUnallocatedSpace(), fileStore.getUsableSpace(),
+				logSizes, growthRates);
+		if (logger.isDebugEnabled()) {
+			StringBuilder sb = new StringBuilder();
+			sb.append(LogUtil.getRequestInfoStr(requestInfo));
+			sb.append("[createDiskUsage] usage=");
+			sb.append(diskUsage.getUsagePercent());
+			sb.append("%, total=");
+			sb.append(diskUsage.getTotalSpace());
+			sb.append(", usable=");
+			sb.append(diskUsage.getUsableSpace());
+			sb.append(", namespaces=");
+			sb.append(logSizes.size());
+			logger.debug(sb.toString());
 		}
+		return diskUsage;
 	}
 
 	/**
-	 * プロセス出力を読み取るスレッド.
+	 * static領域からBDB環境オブジェクトMapを取得.
+	 * @return BDB環境オブジェクトMap
 	 */
-	private static class StreamReader extends Thread {
-
-		/** 入力ストリーム. */
-		private final InputStream in;
-		/** 読み取り結果. */
-		private final StringBuilder result = new StringBuilder();
-		/** 読み取り例外. */
-		private IOException exception;
-
-		/**
-		 * コンストラクタ.
-		 * @param in 入力ストリーム
-		 */
-		StreamReader(InputStream in) {
-			this.in = in;
-		}
-
-		@Override
-		public void run() {
-			try (BufferedReader br = new BufferedReader(new InputStreamReader(in, Constants.ENCODING))) {
-				String line;
-				while ((line = br.readLine()) != null) {
-					result.append(line);
-					result.append(Constants.NEWLINE);
-				}
-			} catch (IOException e) {
-				exception = e;
-			}
-		}
+	@SuppressWarnings("unchecked")
+	private ConcurrentMap<String, BDBEnv> getBDBEnvMap() {
+		return (ConcurrentMap<String, BDBEnv>)ReflexStatic.getStatic(
+				BDBConst.STATIC_NAME_BDBENV_MAP);
+	}
 
-		/**
-		 * 読み取り結果を取得.
-		 * @return 読み取り結果
-		 */
-		String getResult() throws IOException {
-			if (exception != null) {
-				throw exception;
-			}
-			return result.toString();
-		}
+	/**
+	 * static領域からディスク使用量の保持領域を取得.
+	 * @return ディスク使用量の保持領域
+	 */
+	@SuppressWarnings("unchecked")
+	private AtomicReference<BDBDiskUsage> getDiskUsageRef() {
+		return (AtomicReference<BDBDiskUsage>)ReflexStatic.getStatic(
+				BDBConst.STATIC_NAME_BDB_DISKUSAGE);
 	}
 
 }
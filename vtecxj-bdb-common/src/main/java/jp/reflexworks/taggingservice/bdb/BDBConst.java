@@ -13,10 +13,14 @@ public interface BDBConst {
 
 	/** メモリ上のstaticオブジェクト格納キー : BDB環境オブジェクトMap */
 	public static final String STATIC_NAME_BDBENV_MAP ="_bdbenv_map";
-	/** メモリ上のstaticオブジェクト格納キー : BDB環境ロックMap */
-	public static final String STATIC_NAME_BDBENV_LOCK_MAP ="_bdbenv_lock_map";
+	/** メモリ上のstaticオブジェクト格納キー : BDB環境オープン中Map */
+	public static final String STATIC_NAME_BDBENV_OPENING_MAP ="_bdbenv_opening_map";
 	/** メモリ上のstaticオブジェクト格納キー : BDB環境へのアクセス時間Map */
 	public static final String STATIC_NAME_BDBENV_ACCESSTIME_MAP ="_bdbenv_accesstime_map";
+	/** メモリ上のstaticオブジェクト格納キー : BDB環境プール統計情報 */
+	public static final String STATIC_NAME_BDBENV_POOL_STATS ="_bdbenv_pool_stats";
+	/** メモリ上のstaticオブジェクト格納キー : ディスク使用量 */
+	public static final String STATIC_NAME_BDB_DISKUSAGE ="_bdb_diskusage";
 
 	/** Encoding */
 	public static final String ENCODING = AtomConst.ENCODING;
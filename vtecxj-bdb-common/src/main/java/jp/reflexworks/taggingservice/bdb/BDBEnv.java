@@ -1,11 +1,14 @@
 package jp.reflexworks.taggingservice.bdb;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -24,6 +27,10 @@ import jp.reflexworks.taggingservice.env.BDBEnvUtil;
 /**
  * BDB 環境情報保持クラス.
  * 各サービスごとに本クラスが生成される。
+ * <p>
+ * 使用中の数を保持し、使用中のBDB環境はアイドル状態のクローズ対象としない。
+ * 使用する場合は{@link #acquire()}、使用後は{@link #release()}を呼び出す。
+ * </p>
  */
 public class BDBEnv {
 
@@ -38,12 +45,23 @@ public class BDBEnv {
 	/** SequenceConfig */
 	private SequenceConfig sequenceConfig;
 
+	/** 保持するシーケンスハンドル キー: テーブル名とキー、値: シーケンス */
+	private ConcurrentMap<String, BDBSequence> cachedSequenceMap = new ConcurrentHashMap<>();
+
+	/** 状態を参照する更新処理と、状態の変更を排他するロック */
+	private final ReadWriteLock statusLock = new ReentrantReadWriteLock();
+
 	/** ロガー. */
 	private Logger logger = LoggerFactory.getLogger(this.getClass());
 
 	/** BDBデータ格納ディレクトリ */
 	private String bdbDir;
 
+	/** 使用中の数 */
+	private int refCount;
+	/** クローズ済みの場合true */
+	private boolean closed;
+
 	/**
 	 * BDBの環境設定.
 	 * サービスごとに本クラスが生成される。
@@ -190,11 +208,67 @@ public class BDBEnv {
 		return new BDBTransaction(jeEnv.beginTransaction(null, tranConfig));
 	}
 
+	/**
+	 * テーブル名リストを取得.
+	 * @return テーブル名リスト
+	 */
+	public List<String> getDbNames() {
+		return new ArrayList<String>(dbMap.keySet());
+	}
+
+	/**
+	 * 使用開始.
+	 * 使用後は{@link #release()}を呼び出してください。
+	 * @return 使用できる場合true。クローズ済みの場合false。
+	 */
+	public synchronized boolean acquire() {
+		if (closed) {
+			return false;
+		}
+		refCount++;
+		return true;
+	}
+
+	/**
+	 * 使用終了.
+	 */
+	public synchronized void release() {
+		if (refCount > 0) {
+			refCount--;
+		}
+	}
+
+	/**
+	 * 使用中でない場合、クローズ済みとする.
+	 * クローズ済みとした後は{@link #acquire()}で使用できないため、{@link #close()}を呼び出してください。
+	 * @return クローズ済みとした場合true。使用中の場合false。
+	 */
+	public synchronized boolean markClosedIfUnused() {
+		if (refCount > 0) {
+			return false;
+		}
+		closed = true;
+		return true;
+	}
+
 	/**
 	 * Close the store and environment.
 	 */
 	public void close() {
+		synchronized (this) {
+			closed = true;
+		}
 		if (jeEnv != null) {
+			// シーケンスはテーブルより先にクローズする
+			for (BDBSequence sequence : cachedSequenceMap.values()) {
+				try {
+					sequence.close();
+				} catch (RuntimeException dbe) {
+					logger.error(getCloseErrorLogMessage(dbe));
+				}
+			}
+			cachedSequenceMap.clear();
+
 			for (Map.Entry<String, BDBDatabase> mapEntry : dbMap.entrySet()) {
 				BDBDatabase db = mapEntry.getValue();
 				try {
@@ -258,6 +332,67 @@ public class BDBEnv {
 		}
 	}
 
+	/**
+	 * 保持しているシーケンスハンドルを取得.
+	 * <p>
+	 * シーケンスハンドルはBDB環境のクローズまで保持し、複数スレッドで共有する。
+	 * シーケンスのキャッシュ数が設定されている場合、シーケンス値はメモリ上で払い出されるため、
+	 * 取得時にトランザクションを指定しないこと。
+	 * キャッシュしたシーケンス値のうち未使用のものは、BDB環境のクローズ時に欠番となる。
+	 * 保持数が最大数に達している場合はnullを返すため、{@link #getSequence} を使用すること。
+	 * </p>
+	 * @param dbName テーブル名
+	 * @param keyStr キー
+	 * @return シーケンス。テーブルが存在しない場合、または保持数が最大数に達している場合null。
+	 */
+	public BDBSequence getCachedSequence(String dbName, String keyStr) {
+		String mapKey = getSequenceMapKey(dbName, keyStr);
+		BDBSequence sequence = cachedSequenceMap.get(mapKey);
+		if (sequence != null) {
+			return sequence;
+		}
+		BDBDatabase db = getDb(dbName);
+		if (db == null || cachedSequenceMap.size() >= BDBEnvUtil.getBDBSequenceHandleMax()) {
+			return null;
+		}
+		return cachedSequenceMap.computeIfAbsent(mapKey, k -> {
+			SequenceConfig cachedSequenceConfig = new SequenceConfig();
+			cachedSequenceConfig.setAllowCreate(true);
+			int cacheSize = BDBEnvUtil.getBDBSequenceCacheSize();
+			if (cacheSize > 0) {
+				cachedSequenceConfig.setCacheSize(cacheSize);
+			}
+			return db.openSequence(null, BDBUtil.getDbKey(keyStr), cachedSequenceConfig);
+		});
+	}
+
+	/**
+	 * 保持しているシーケンスハンドルをクローズして除去.
+	 * シーケンス操作でエラーが発生した場合に使用する。
+	 * @param dbName テーブル名
+	 * @param keyStr キー
+	 */
+	public void removeCachedSequence(String dbName, String keyStr) {
+		BDBSequence sequence = cachedSequenceMap.remove(getSequenceMapKey(dbName, keyStr));
+		if (sequence != null) {
+			try {
+				sequence.close();
+			} catch (RuntimeException dbe) {
+				logger.warn(getCloseErrorLogMessage(dbe));
+			}
+		}
+	}
+
+	/**
+	 * シーケンスハンドル保持Mapのキーを取得.
+	 * @param dbName テーブル名
+	 * @param keyStr キー
+	 * @return シーケンスハンドル保持Mapのキー
+	 */
+	private String getSequenceMapKey(String dbName, String keyStr) {
+		return dbName + BDBConst.END_STRING + keyStr;
+	}
+
 	/**
 	 * スリープ処理.
 	 * @param msec スリープ時間(ミリ秒)
@@ -268,6 +403,17 @@ public class BDBEnv {
 		} catch (InterruptedException e) {}
 	}
 
+	/**
+	 * 状態を参照する更新処理と、状態の変更を排他するロックを取得.
+	 * 状態を参照する更新処理はトランザクション終了まで読み込みロックを保持し、
+	 * 状態の変更は書き込みロックを取得して行う。
+	 * 状態のキーが未登録の場合はBDBのロックで排他できないため、このロックを使用する。
+	 * @return ロック
+	 */
+	public ReadWriteLock getStatusLock() {
+		return statusLock;
+	}
+
 	/**
 	 * BDBが配置されたディレクトリを取得.
 	 * @return BDBが配置されたディレクトリ
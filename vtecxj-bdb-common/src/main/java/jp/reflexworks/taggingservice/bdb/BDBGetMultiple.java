@@ -0,0 +1,106 @@
+package jp.reflexworks.taggingservice.bdb;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sleepycat.bind.EntryBinding;
+import com.sleepycat.je.DatabaseEntry;
+import com.sleepycat.je.LockMode;
+import com.sleepycat.je.OperationStatus;
+
+import jp.reflexworks.taggingservice.api.ConnectionInfo;
+import jp.reflexworks.taggingservice.api.RequestInfo;
+import jp.reflexworks.taggingservice.exception.IllegalParameterException;
+import jp.reflexworks.taggingservice.util.LogUtil;
+import jp.sourceforge.reflex.util.StringUtils;
+
+/**
+ * 複数件getクラス.
+ * キーをBDBのキー順にソートし、1つのカーソルで順に検索する。
+ */
+public class BDBGetMultiple<T> {
+
+	/** ログ出力用メソッド名 */
+	private static final String LOG_METHOD = "getMultiple";
+
+	/** ロガー. */
+	private Logger logger = LoggerFactory.getLogger(this.getClass());
+
+	/**
+	 * データ複数件検索.
+	 * @param serviceName サービス名 (ログ用)
+	 * @param txn トランザクション
+	 * @param db データベース
+	 * @param binding バインドクラス
+	 * @param lockMode トランザクションのロックモード
+	 * @param keyStrs キーリスト
+	 * @param requestInfo リクエスト情報
+	 * @param connectionInfo コネクション情報
+	 * @return データリスト。キーリストと同じ順序で返却する。データが存在しないキーはnull。
+	 */
+	public List<T> getMultiple(String serviceName, BDBTransaction txn, BDBDatabase db,
+			EntryBinding<T> binding, LockMode lockMode, List<String> keyStrs,
+			RequestInfo requestInfo, ConnectionInfo connectionInfo) {
+		if (keyStrs == null || keyStrs.isEmpty()) {
+			throw new IllegalParameterException("The key is required.");
+		}
+		int size = keyStrs.size();
+		byte[][] keyBytesArray = new byte[size][];
+		Integer[] order = new Integer[size];
+		for (int i = 0; i < size; i++) {
+			String keyStr = keyStrs.get(i);
+			if (StringUtils.isBlank(keyStr)) {
+				throw new IllegalParameterException("The key is required.");
+			}
+			keyBytesArray[i] = BDBUtil.getDbKey(keyStr).getData();
+			order[i] = i;
+		}
+		// BDBのキー順(バイト配列の符号なし比較)に並べ替える。
+		Arrays.sort(order, (o1, o2) -> Arrays.compareUnsigned(
+				keyBytesArray[o1], keyBytesArray[o2]));
+
+		long startTime = 0;
+		if (BDBUtil.isEnableAccessLog()) {
+			logger.debug(LogUtil.getRequestInfoStr(requestInfo) +
+					BDBUtil.getStartLog(serviceName, LOG_METHOD, db, keyStrs.get(order[0])));
+			startTime = new Date().getTime();
+		}
+
+		Object[] results = new Object[size];
+		BDBCursor cursor = null;
+		try {
+			cursor = db.openCursor(txn, BDBConst.CURSOR_CONFIG);
+			DatabaseEntry dbKey = new DatabaseEntry();
+			for (int idx : order) {
+				DatabaseEntry dbData = new DatabaseEntry();
+				dbKey.setData(keyBytesArray[idx]);
+				OperationStatus retVal = cursor.getSearchKey(dbKey, dbData, lockMode);
+				if (retVal == OperationStatus.SUCCESS && dbData.getSize() > 0) {
+					results[idx] = binding.entryToObject(dbData);
+				}
+			}
+		} finally {
+			if (cursor != null) {
+				cursor.close();
+			}
+		}
+
+		if (BDBUtil.isEnableAccessLog()) {
+			logger.debug(LogUtil.getRequestInfoStr(requestInfo) +
+					BDBUtil.getEndLog(serviceName, LOG_METHOD, db,
+							keyStrs.get(order[size - 1]), startTime));
+		}
+
+		List<T> retList = new ArrayList<>(size);
+		for (Object result : results) {
+			retList.add((T)result);
+		}
+		return retList;
+	}
+
+}
@@ -0,0 +1,240 @@
+package jp.reflexworks.taggingservice.bdb;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+import com.sleepycat.bind.tuple.StringBinding;
+
+import jp.reflexworks.taggingservice.api.ConnectionInfo;
+import jp.reflexworks.taggingservice.api.RequestInfo;
+import jp.reflexworks.taggingservice.util.TaggingEntryUtil;
+
+/**
+ * インデックス一括更新クラス.
+ * <p>
+ * 複数IDのインデックス更新を1トランザクションで行う。
+ * IDごとにAncestorに登録された現在のインデックスと今回のインデックスをハッシュで比較し、
+ * 追加・削除されたキーのみを更新する。現在のインデックスに含まれるキーは、
+ * 値(ID)が異なる場合のみ更新する。
+ * インデックス、Ancestorの更新はそれぞれキーの昇順に行う。
+ * </p>
+ */
+public class BDBIndexBatchWriter {
+
+	/** インデックステーブル */
+	private final BDBDatabase db;
+	/** インデックスAncestorテーブル */
+	private final BDBDatabase dbAncestor;
+	/** インデックスからインデックス項目短縮値を取得する関数 */
+	private final Function<String, String> shortingFunc;
+
+	/**
+	 * コンストラクタ.
+	 * @param db インデックステーブル
+	 * @param dbAncestor インデックスAncestorテーブル
+	 * @param shortingFunc インデックスからインデックス項目短縮値を取得する関数
+	 */
+	public BDBIndexBatchWriter(BDBDatabase db, BDBDatabase dbAncestor,
+			Function<String, String> shortingFunc) {
+		this.db = db;
+		this.dbAncestor = dbAncestor;
+		this.shortingFunc = shortingFunc;
+	}
+
+	/**
+	 * インデックス情報を一括更新.
+	 * @param serviceName サービス名 (ログ用)
+	 * @param bdbTxn トランザクション
+	 * @param indexesMap キー:ID、値:インデックスリスト (Entry削除の場合はnull)
+	 * @param isPartial 指定されたキー・項目のみの更新の場合true
+	 * @param isDelete 削除の場合true
+	 * @param requestInfo リクエスト情報
+	 * @param connectionInfo コネクション情報
+	 */
+	public void write(String serviceName, BDBTransaction bdbTxn,
+			Map<String, List<String>> indexesMap, boolean isPartial, boolean isDelete,
+			RequestInfo requestInfo, ConnectionInfo connectionInfo) {
+		if (indexesMap == null || indexesMap.isEmpty()) {
+			return;
+		}
+		BDBGet<List<String>> bdbGetAncestor = new BDBGet<>();
+		ListBinding listBinding = new ListBinding();
+
+		// Ancestorのキー順に処理する。同じURIのIDは指定順を保持する。
+		List<String> ids = new ArrayList<>(indexesMap.keySet());
+		Collections.sort(ids, new Comparator<String>() {
+			@Override
+			public int compare(String id1, String id2) {
+				return TaggingEntryUtil.getUriById(id1).compareTo(
+						TaggingEntryUtil.getUriById(id2));
+			}
+		});
+
+		// インデックスの更新内容 キー:インデックス、値:更新内容
+		TreeMap<String, IndexUpdate> indexUpdates = new TreeMap<>();
+		// Ancestorの更新内容 キー:ID URI、値:インデックスリスト (削除の場合null)
+		TreeMap<String, List<String>> ancestorUpdates = new TreeMap<>();
+		// 処理済みのAncestor キー:ID URI、値:インデックスリスト
+		Map<String, List<String>> ancestors = new HashMap<>();
+
+		for (String id : ids) {
+			List<String> indexList = indexesMap.get(id);
+
+			// 現在のIndexを取得
+			String idUri = TaggingEntryUtil.getUriById(id);
+			List<String> currentIndexes = null;
+			if (ancestors.containsKey(idUri)) {
+				currentIndexes = ancestors.get(idUri);
+			} else {
+				currentIndexes = bdbGetAncestor.get(serviceName, bdbTxn, dbAncestor,
+						listBinding, BDBUtil.getLockMode(), idUri, requestInfo, connectionInfo);
+			}
+			Set<String> currentIndexSet = null;
+			if (currentIndexes != null) {
+				currentIndexSet = new HashSet<>(currentIndexes);
+			} else {
+				currentIndexSet = Collections.emptySet();
+			}
+
+			// 今回のIndexを生成
+			boolean isPutAncestor = false;
+			Set<String> newIndexes = new LinkedHashSet<>();
+			if (indexList != null && !isDelete) {
+				// 登録更新
+				for (String index : indexList) {
+					if (!newIndexes.add(index)) {
+						continue;
+					}
+					boolean isExisting = currentIndexSet.contains(index);
+					indexUpdates.put(index, new IndexUpdate(id, isExisting));
+					if (!isExisting) {
+						isPutAncestor = true;
+					}
+				}
+			}
+
+			// 除去されたインデックスを削除
+			if (currentIndexes != null) {
+				Set<String> targetShortings = null;
+				if (isPartial) {
+					// 部分更新は新しく登録したインデックス、部分削除は指定されたインデックスの
+					// インデックス項目短縮値が対象
+					targetShortings = getShortings(isDelete ? indexList : newIndexes);
+				}
+				List<String> remainingCurrentIndexes = new ArrayList<>();
+				for (String currentIndex : currentIndexes) {
+					if (newIndexes.contains(currentIndex)) {
+						continue;
+					}
+					if (isPartial &&
+							!targetShortings.contains(shortingFunc.apply(currentIndex))) {
+						// isPartial=trueでインデックス項目短縮値が合致しない場合は、
+						// 変更対象でないので残す。
+						remainingCurrentIndexes.add(currentIndex);
+						continue;
+					}
+					indexUpdates.put(currentIndex, new IndexUpdate(null, false));
+					isPutAncestor = true;
+				}
+				newIndexes.addAll(remainingCurrentIndexes);
+			}
+
+			// Ancestorを上書き
+			if (isPutAncestor) {
+				List<String> ancestorIndexes = null;
+				if (!isDelete || isPartial) {
+					// 更新または部分削除
+					ancestorIndexes = new ArrayList<>(newIndexes);
+				}
+				ancestorUpdates.put(idUri, ancestorIndexes);
+				ancestors.put(idUri, ancestorIndexes);
+			} else {
+				ancestors.put(idUri, currentIndexes);
+			}
+		}
+
+		// インデックスをキー順に更新
+		BDBGet<String> bdbGetString = new BDBGet<>();
+		BDBPut<String> bdbPutString = new BDBPut<>();
+		BDBDelete bdbDelete = new BDBDelete();
+		StringBinding stringBinding = BDBUtil.getStringBinding();
+		for (Map.Entry<String, IndexUpdate> mapEntry : indexUpdates.entrySet()) {
+			String index = mapEntry.getKey();
+			IndexUpdate indexUpdate = mapEntry.getValue();
+			if (indexUpdate.id == null) {
+				bdbDelete.delete(serviceName, bdbTxn, db, index, requestInfo, connectionInfo);
+				continue;
+			}
+			if (indexUpdate.isExisting) {
+				// 登録済みのキーは値が変わった場合のみ更新
+				String currentId = bdbGetString.get(serviceName, bdbTxn, db, stringBinding,
+						BDBUtil.getLockMode(), index, requestInfo, connectionInfo);
+				if (indexUpdate.id.equals(currentId)) {
+					continue;
+				}
+			}
+			bdbPutString.put(serviceName, bdbTxn, db, stringBinding, index, indexUpdate.id,
+					requestInfo, connectionInfo);
+		}
+
+		// Ancestorをキー順に更新
+		BDBPut<List<String>> bdbPutAncestor = new BDBPut<>();
+		for (Map.Entry<String, List<String>> mapEntry : ancestorUpdates.entrySet()) {
+			String idUri = mapEntry.getKey();
+			List<String> ancestorIndexes = mapEntry.getValue();
+			if (ancestorIndexes == null) {
+				bdbDelete.delete(serviceName, bdbTxn, dbAncestor, idUri, requestInfo,
+						connectionInfo);
+			} else {
+				bdbPutAncestor.put(serviceName, bdbTxn, dbAncestor, listBinding, idUri,
+						ancestorIndexes, requestInfo, connectionInfo);
+			}
+		}
+	}
+
+	/**
+	 * インデックスのインデックス項目短縮値を取得.
+	 * @param indexes インデックス
+	 * @return インデックス項目短縮値
+	 */
+	private Set<String> getShortings(Iterable<String> indexes) {
+		Set<String> shortings = new HashSet<>();
+		if (indexes != null) {
+			for (String index : indexes) {
+				shortings.add(shortingFunc.apply(index));
+			}
+		}
+		return shortings;
+	}
+
+	/**
+	 * インデックスの更新内容.
+	 */
+	private static class IndexUpdate {
+
+		/** ID (削除の場合null) */
+		private final String id;
+		/** 現在のインデックスに含まれる場合true */
+		private final boolean isExisting;
+
+		/**
+		 * コンストラクタ.
+		 * @param id ID (削除の場合null)
+		 * @param isExisting 現在のインデックスに含まれる場合true
+		 */
+		IndexUpdate(String id, boolean isExisting) {
+			this.id = id;
+			this.isExisting = isExisting;
+		}
+	}
+
+}
@@ -0,0 +1,187 @@
+package jp.reflexworks.taggingservice.bdb;
+
+import com.sleepycat.je.DatabaseEntry;
+
+import jp.reflexworks.taggingservice.model.BDBCondition;
+import jp.sourceforge.reflex.util.StringUtils;
+
+/**
+ * キー範囲判定クラス.
+ * <p>
+ * 検索条件の開始キー・終了キーをあらかじめバイト配列に変換しておき、
+ * カーソルで取得したキーを文字列に変換せずにバイト配列のまま範囲判定する。<br>
+ * キーはUTF-8でエンコードされているため、バイト配列の比較はUnicodeのコードポイント順となる。
+ * 文字列(UTF-16)の比較結果と合わせるため、U+E000以上のBMP文字と補助文字の大小のみ補正して比較する。
+ * </p>
+ */
+public class BDBKeyRange {
+
+	/** UTF-8の3バイト文字(U+E000〜U+FFFF)の先頭バイトの下限 */
+	private static final int UTF8_LEAD_BMP_HIGH = 0xee;
+	/** UTF-8の4バイト文字(補助文字)の先頭バイトの下限 */
+	private static final int UTF8_LEAD_SUPPLEMENTARY = 0xf0;
+	/** U+E000以上のBMP文字の先頭バイトを補助文字より大きくするための補正値 */
+	private static final int UTF8_LEAD_BMP_HIGH_SHIFT = 0x10;
+
+	/** インデックスの区切り文字 */
+	private static final byte[] INDEX_SELF_BYTES = BDBUtil.getDbKey(BDBConst.INDEX_SELF).getData();
+
+	/** 開始キー */
+	private final byte[] startKey;
+	/** 開始キーを含まないかどうか */
+	private final boolean excludeStartKey;
+	/** 終了キー (指定なしの場合null) */
+	private final byte[] endKey;
+	/** 終了キーの末尾1文字を除いたもの (終了キーを含まない場合の判定用) */
+	private final byte[] endKeyPrefix;
+	/** 終了キーを含まないかどうか */
+	private final boolean excludeEndKey;
+
+	/**
+	 * コンストラクタ.
+	 * @param bdbCondition 検索条件
+	 */
+	public BDBKeyRange(BDBCondition bdbCondition) {
+		String startKeyStr = bdbCondition.startKeyStr;
+		String endKeyStr = bdbCondition.endKeyStr;
+		this.startKey = startKeyStr != null ? BDBUtil.getDbKey(startKeyStr).getData() : null;
+		this.excludeStartKey = bdbCondition.excludeStartKey && startKey != null;
+		if (!StringUtils.isBlank(endKeyStr)) {
+			this.endKey = BDBUtil.getDbKey(endKeyStr).getData();
+			this.endKeyPrefix = BDBUtil.getDbKey(
+					endKeyStr.substring(0, endKeyStr.length() - 1)).getData();
+		} else {
+			this.endKey = null;
+			this.endKeyPrefix = null;
+		}
+		this.excludeEndKey = bdbCondition.excludeEndKey;
+	}
+
+	/**
+	 * 検索されたキーが、開始キーを含まない場合の対象外キーかどうか.
+	 * 開始キーの直後がインデックスの区切り文字である場合、対象外とする。
+	 * @param foundKey 検索されたキー
+	 * @return 開始キーを含まない指定で、検索されたキーが開始キーと等しい場合true
+	 */
+	public boolean isExcludedStartKey(DatabaseEntry foundKey) {
+		if (!excludeStartKey) {
+			return false;
+		}
+		byte[] data = foundKey.getData();
+		int offset = foundKey.getOffset();
+		int size = foundKey.getSize();
+		if (size < startKey.length + INDEX_SELF_BYTES.length) {
+			return false;
+		}
+		return startsWith(data, offset, size, startKey, 0) &&
+				startsWith(data, offset, size, INDEX_SELF_BYTES, startKey.length);
+	}
+
+	/**
+	 * 検索されたキーが取得対象かどうか.
+	 * @param foundKey 検索されたキー
+	 * @return 検索されたキーが取得対象の場合true
+	 */
+	public boolean isInRange(DatabaseEntry foundKey) {
+		if (endKey == null) {
+			// 検索範囲の終端指定がない場合は全てが対象。
+			return true;
+		}
+		byte[] data = foundKey.getData();
+		int offset = foundKey.getOffset();
+		int size = foundKey.getSize();
+		if (compare(endKey, 0, endKey.length, data, offset, size) <= 0) {
+			return false;
+		}
+		if (excludeEndKey) {
+			// LESS_THAN は終了条件と同じであれば対象外
+			// INDEX_SELF文字の2番目までを比較する。
+			int idx1 = indexOf(data, offset, size, INDEX_SELF_BYTES, 0);
+			int idx2 = indexOf(data, offset, size, INDEX_SELF_BYTES, idx1 + 1);
+			int len = idx2 >= 0 ? idx2 : size;
+			if (len >= endKeyPrefix.length &&
+					startsWith(data, offset, size, endKeyPrefix, 0)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * UTF-8のバイト配列を、文字列(UTF-16)の順序で比較.
+	 * @param b1 バイト配列1
+	 * @param off1 バイト配列1の開始位置
+	 * @param len1 バイト配列1の長さ
+	 * @param b2 バイト配列2
+	 * @param off2 バイト配列2の開始位置
+	 * @param len2 バイト配列2の長さ
+	 * @return バイト配列1が小さい場合負の値、等しい場合0、大きい場合正の値
+	 */
+	public static int compare(byte[] b1, int off1, int len1, byte[] b2, int off2, int len2) {
+		int len = Math.min(len1, len2);
+		for (int i = 0; i < len; i++) {
+			int c1 = b1[off1 + i] & 0xff;
+			int c2 = b2[off2 + i] & 0xff;
+			if (c1 != c2) {
+				// 先頭の一致部分は同じ文字で終わるため、最初に異なるバイトは
+				// 両方とも文字の先頭バイトか、両方とも後続バイトとなる。
+				return fixupLeadByte(c1) - fixupLeadByte(c2);
+			}
+		}
+		return len1 - len2;
+	}
+
+	/**
+	 * UTF-8の先頭バイトを文字列(UTF-16)の順序に補正.
+	 * UTF-16では補助文字がサロゲート(U+D800〜U+DFFF)となり、U+E000以上のBMP文字より小さい。
+	 * @param c バイト値
+	 * @return 補正したバイト値
+	 */
+	private static int fixupLeadByte(int c) {
+		if (c >= UTF8_LEAD_BMP_HIGH && c < UTF8_LEAD_SUPPLEMENTARY) {
+			return c + UTF8_LEAD_BMP_HIGH_SHIFT;
+		}
+		return c;
+	}
+
+	/**
+	 * バイト配列の指定位置が、指定されたバイト配列と一致するかどうか.
+	 * @param data バイト配列
+	 * @param offset バイト配列の開始位置
+	 * @param size バイト配列の長さ
+	 * @param prefix 比較するバイト配列
+	 * @param from 比較位置 (開始位置からの相対位置)
+	 * @return 一致する場合true
+	 */
+	private static boolean startsWith(byte[] data, int offset, int size, byte[] prefix,
+			int from) {
+		if (from + prefix.length > size) {
+			return false;
+		}
+		for (int i = 0; i < prefix.length; i++) {
+			if (data[offset + from + i] != prefix[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * バイト配列から、指定されたバイト配列の位置を検索.
+	 * @param data バイト配列
+	 * @param offset バイト配列の開始位置
+	 * @param size バイト配列の長さ
+	 * @param target 検索するバイト配列
+	 * @param from 検索開始位置 (開始位置からの相対位置)
+	 * @return 位置 (開始位置からの相対位置)。存在しない場合-1。
+	 */
+	private static int indexOf(byte[] data, int offset, int size, byte[] target, int from) {
+		for (int i = Math.max(from, 0); i + target.length <= size; i++) {
+			if (startsWith(data, offset, size, target, i)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+}
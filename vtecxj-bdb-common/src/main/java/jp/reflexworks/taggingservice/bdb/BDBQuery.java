@@ -28,6 +28,10 @@ public class BDBQuery<T> {
 
 	/** ログ出力用メソッド名 */
 	private static final String LOG_METHOD = "fetch";
+	/** ログ出力用メソッド名 (件数取得) */
+	private static final String LOG_METHOD_COUNT = "count";
+	/** 件数取得でカーソルを一度に読み飛ばす件数の初期値 */
+	private static final long COUNT_SKIP_STEP = 1000;
 
 	/** ロガー. */
 	private Logger logger = LoggerFactory.getLogger(this.getClass());
@@ -61,25 +65,18 @@ public class BDBQuery<T> {
 	 * @param bdbCondition 検索条件リスト
 	 *        (開始キー、終了キー、デコード済みカーソル)
 	 * @param limit 結果データ最大数
-	 * @param currentCache 同じ条件で読み込み済みキャッシュ(全文検索インデックス検索で使用)
-	 *                     キャッシュを使用する場合はnullでなくオブジェクトを引き渡すこと。
-	 *                     キー:値、値:検索キー
+	 * @param duplicateChecker 重複判定 (全文検索インデックス検索で使用)。
+	 *                         値の重複を除く場合はnullでなくオブジェクトを引き渡すこと。
+	 *                         値はString型であること。
 	 * @param requestInfo リクエスト情報
 	 */
 	FetchInfo<T> getByQuery(String namespace, BDBTransaction txn,
 			BDBDatabase db, EntryBinding<T> binding, BDBCondition bdbCondition,
-			int limit, Map<String, String> currentCache, RequestInfo requestInfo) {
-		String newPointerStr = null;
+			int limit, BDBQueryDuplicateChecker duplicateChecker, RequestInfo requestInfo) {
 		int fetchCnt = 0;
 		int fetchLimit = BDBEnvUtil.getFetchLimit();
 
 		Map<String, T> results = new LinkedHashMap<>();
-		boolean isCheckCache = false;
-		Map<String, String> newCache = null;
-		if (currentCache != null) {
-			newCache = new LinkedHashMap<>();
-			isCheckCache = true;
-		}
 
 		if (BDBUtil.isEnableAccessLog()) {
 			StringBuilder sb = new StringBuilder();
@@ -91,13 +88,15 @@ public class BDBQuery<T> {
 			logger.debug(sb.toString());
 		}
 
+		// キー範囲はバイト配列のまま判定する
+		BDBKeyRange keyRange = new BDBKeyRange(bdbCondition);
+
 		long startTime = 0;
 		BDBCursor cursor = null;
+		// 次回の検索開始キー。文字列への変換は返却時に行う。
+		DatabaseEntry pointerKey = null;
 		try {
 			OperationStatus retVal = null;
-			String foundKeyStr = null;
-			//String foundDataStr = null;
-			Object foundDataVal = null;
 
 			// open
 			DatabaseEntry foundKey = new DatabaseEntry();
@@ -138,52 +137,27 @@ public class BDBQuery<T> {
 
 			if (retVal == OperationStatus.SUCCESS) {
 				// 範囲指定で指定された値を含まない場合(GREATER_THAN)、次のデータからを対象にする。
-				if (bdbCondition.excludeStartKey) {
-					int keyLen = 0;
-					if (keyStr != null) {
-						keyLen = keyStr.length();
-					}
-					while (retVal == OperationStatus.SUCCESS) {
-						String searchKeyStr = BDBUtil.getDbString(foundKey);
-						if (!(searchKeyStr.startsWith(keyStr) &&
-								searchKeyStr.length() > keyLen &&
-								BDBConst.INDEX_SELF.equals(
-										searchKeyStr.substring(
-										keyLen, keyLen + 1)))) {
-							break;
-						}
-						retVal = cursor.getNext(foundKey, foundData, BDBConst.LOCK_MODE);
-						fetchCnt++;
-						if (fetchCnt > fetchLimit) {
-							// フェッチ制限超え
-							throw new FetchExceededException(
-									FetchExceededException.MESSAGE);
-						}
+				while (retVal == OperationStatus.SUCCESS &&
+						keyRange.isExcludedStartKey(foundKey)) {
+					retVal = cursor.getNext(foundKey, foundData, BDBConst.LOCK_MODE);
+					fetchCnt++;
+					if (fetchCnt > fetchLimit) {
+						// フェッチ制限超え
+						throw new FetchExceededException(
+								FetchExceededException.MESSAGE);
 					}
 				}
 
 				// キー範囲チェック
-				foundKeyStr = BDBUtil.getDbString(foundKey);
-				//if (!isIntheRange(foundKeyStr, bdbCondition.endKeyStr)) {
-				if (!isIntheRange(foundKeyStr, bdbCondition.endKeyStr,
-						bdbCondition.excludeEndKey)) {
+				if (retVal == OperationStatus.SUCCESS && !keyRange.isInRange(foundKey)) {
 					retVal = OperationStatus.NOTFOUND;
-					foundKeyStr = null;
-					//foundDataStr = null;
-				} else {
-					T tmpFoundDataVal = binding.entryToObject(foundData);
-					foundDataVal = tmpFoundDataVal;
-					//foundDataStr = getDataStr(tmpFoundDataVal);
 				}
 			}
 
-			// 全ての条件のfoundDataが等しければ採用
-			// 異なる場合、一番小さい条件のcursorをnextする。
-
 			// next
 			while (retVal == OperationStatus.SUCCESS) {
 
-				newPointerStr = foundKeyStr;
+				pointerKey = foundKey;
 
 				// フェッチ数チェック
 				fetchCnt++;
@@ -192,6 +166,15 @@ public class BDBQuery<T> {
 					throw new FetchExceededException(FetchExceededException.MESSAGE);
 				}
 
+				// 件数チェック
+				if (results.size() >= limit) {
+					// 件数一杯
+					break;
+				}
+
+				// 取得対象のキー・データのみ変換する
+				String foundKeyStr = BDBUtil.getDbString(foundKey);
+				T foundDataVal = binding.entryToObject(foundData);
 				if (BDBUtil.isEnableAccessLog()) {
 					StringBuilder sb = new StringBuilder();
 					sb.append(LogUtil.getRequestInfoStr(requestInfo));
@@ -203,48 +186,33 @@ public class BDBQuery<T> {
 				}
 
 				// 戻り値データ格納
-				boolean hasCache = false;
-				String val = null;
-				if (isCheckCache) {
-					val = (String)foundDataVal;
-					hasCache = hasCache(val, foundKeyStr, currentCache, newCache);
+				boolean isDuplicated = false;
+				if (duplicateChecker != null) {
+					isDuplicated = duplicateChecker.isDuplicated((String)foundDataVal,
+							foundKeyStr);
 				}
-				if (!hasCache) {
-					// 件数チェック
-					if (results.size() >= limit) {
-						// 件数一杯
-						break;
-					}
-
-					results.put(foundKeyStr, (T)foundDataVal);
-					if (isCheckCache) {
-						newCache.put(val, foundKeyStr);
+				if (!isDuplicated) {
+					results.put(foundKeyStr, foundDataVal);
+					if (duplicateChecker != null) {
+						duplicateChecker.add((String)foundDataVal, foundKeyStr);
 					}
 				}
 
 				// カーソルをnext
 				retVal = cursor.getNext(foundKey, foundData,
 						BDBConst.LOCK_MODE);
-				newPointerStr = null;
+				pointerKey = null;
 
 				if (retVal == OperationStatus.SUCCESS) {
 					// キー範囲チェック
-					foundKeyStr = BDBUtil.getDbString(foundKey);
-					//if (!isIntheRange(foundKeyStr, bdbCondition.endKeyStr)) {
-					if (!isIntheRange(foundKeyStr, bdbCondition.endKeyStr,
-							bdbCondition.excludeEndKey)) {
+					if (!keyRange.isInRange(foundKey)) {
 						retVal = OperationStatus.NOTFOUND;
-						foundKeyStr = null;
-						//foundDataStr = null;
-					} else {
-						T tmpFoundDataVal = binding.entryToObject(foundData);
-						foundDataVal = tmpFoundDataVal;
-						//foundDataStr = getDataStr(tmpFoundDataVal);
 					}
 				}
 			}
 
-			String newEncodingPointerStr = PointerUtil.encode(newPointerStr);
+			String newEncodingPointerStr = PointerUtil.encode(
+					BDBUtil.getDbString(pointerKey));
 			if (BDBUtil.isEnableAccessLog()) {
 				logger.debug(LogUtil.getRequestInfoStr(requestInfo) +
 						// TODO keyStrは仮
@@ -254,7 +222,8 @@ public class BDBQuery<T> {
 
 		} catch (FetchExceededException e) {
 			// フェッチ数超過の場合
-			String newEncodingPointerStr = PointerUtil.encode(newPointerStr);
+			String newEncodingPointerStr = PointerUtil.encode(
+					BDBUtil.getDbString(pointerKey));
 			FetchInfo<T> fetchInfo = new FetchInfo<T>(results, newEncodingPointerStr);
 			fetchInfo.setFetchExceeded(true);
 			if (BDBUtil.isEnableAccessLog()) {
@@ -272,86 +241,158 @@ public class BDBQuery<T> {
 	}
 
 	/**
-	 * 検索されたキーが取得対象かどうか.
-	 * @param foundKeyStr 検索されたキー
-	 * @param matchingEnd 検索範囲の終端
-	 * @param isLessThan 検索範囲の終端を条件に含むかどうか (Index用)
-	 * @return 検索されたキーが取得対象の場合true
+	 * クエリ件数取得.
+	 * データは読まずキーのみを参照し、範囲内はカーソルの読み飛ばし(skipNext)で件数を数える。
+	 * 件数、カーソル、フェッチ制限超えかどうかは{@link #getByQuery}と同じ結果となる。
+	 * @param namespace 名前空間 (ログ用)
+	 * @param txn トランザクション
+	 * @param db データベース
+	 * @param bdbCondition 検索条件リスト
+	 *        (開始キー、終了キー、デコード済みカーソル)
+	 * @param limit 結果データ最大数
+	 * @param requestInfo リクエスト情報
+	 * @return 件数とカーソル
 	 */
-	/*
-	private boolean isIntheRange(String foundKeyStr, String matchingEnd) {
-		if (StringUtils.isBlank(matchingEnd)) {
-			// 検索範囲の終端指定がない場合は全てが対象。
-			return true;
-		}
-		if (matchingEnd.compareTo(foundKeyStr) > 0) {
-			return true;
-		}
-		return false;
-	}
-	*/
+	FetchInfo<T> countByQuery(String namespace, BDBTransaction txn,
+			BDBDatabase db, BDBCondition bdbCondition, int limit, RequestInfo requestInfo) {
+		int fetchCnt = 0;
+		int fetchLimit = BDBEnvUtil.getFetchLimit();
+		int cnt = 0;
+		boolean isFetchExceeded = false;
 
-	/**
-	 * 検索されたキーが取得対象かどうか.
-	 * @param foundKeyStr 検索されたキー
-	 * @param matchingEnd 検索範囲の終端
-	 * @param excludeEndKey 検索範囲の終端を条件に含まないかどうか
-	 * @return 検索されたキーが取得対象の場合true
-	 */
-	private boolean isIntheRange(String foundKeyStr, String matchingEnd, boolean excludeEndKey) {
-		if (StringUtils.isBlank(matchingEnd)) {
-			// 検索範囲の終端指定がない場合は全てが対象。
-			return true;
+		if (BDBUtil.isEnableAccessLog()) {
+			StringBuilder sb = new StringBuilder();
+			sb.append(LogUtil.getRequestInfoStr(requestInfo));
+			sb.append("[countByQuery] ");
+			sb.append(db.getDatabaseName());
+			sb.append(" ");
+			sb.append(bdbCondition);
+			logger.debug(sb.toString());
 		}
-		if (matchingEnd.compareTo(foundKeyStr) > 0) {
-			if (excludeEndKey) {
-				// LESS_THAN は終了条件と同じであれば対象外
-				String tmpMatchingEnd = matchingEnd.substring(0, matchingEnd.length() - 1);
-				// INDEX_SELF文字の2番目までを抽出する。
-				int idx1 = foundKeyStr.indexOf(BDBConst.INDEX_SELF);
-				String tmpFoundKeyStr = foundKeyStr.substring(0,
-						foundKeyStr.indexOf(BDBConst.INDEX_SELF, idx1 + 1));
-				if (tmpFoundKeyStr.startsWith(tmpMatchingEnd)) {
-					return false;
+
+		// キー範囲はバイト配列のまま判定する
+		BDBKeyRange keyRange = new BDBKeyRange(bdbCondition);
+
+		long startTime = 0;
+		BDBCursor cursor = null;
+		// 次回の検索開始キー
+		DatabaseEntry pointerKey = null;
+		try {
+			OperationStatus retVal = null;
+
+			// open
+			DatabaseEntry foundKey = new DatabaseEntry();
+			// データは読まない
+			DatabaseEntry foundData = new DatabaseEntry();
+			foundData.setPartial(0, 0, true);
+			String keyStr = bdbCondition.startKeyStr;
+			String pointerStr = bdbCondition.cursorStr;
+
+			if (BDBUtil.isEnableAccessLog()) {
+				logger.debug(LogUtil.getRequestInfoStr(requestInfo) +
+						BDBUtil.getStartLogNs(namespace, LOG_METHOD_COUNT, db, keyStr));
+				startTime = new Date().getTime();
+			}
+
+			cursor = db.openCursor(txn, BDBConst.CURSOR_CONFIG);
+
+			// search
+			if (!StringUtils.isBlank(pointerStr)) {
+				foundKey.setData(BDBUtil.getDbKey(pointerStr).getData());
+				retVal = cursor.getSearchKeyRange(foundKey, foundData,
+						BDBConst.LOCK_MODE);
+			} else if (!StringUtils.isBlank(keyStr)) {
+				foundKey.setData(BDBUtil.getDbKey(keyStr).getData());
+				retVal = cursor.getSearchKeyRange(foundKey, foundData,
+						BDBConst.LOCK_MODE);
+			} else {
+				// 先頭から検索
+				retVal = cursor.getFirst(foundKey, foundData,
+						BDBConst.LOCK_MODE);
+			}
+
+			// 範囲指定で指定された値を含まない場合(GREATER_THAN)、次のデータからを対象にする。
+			while (retVal == OperationStatus.SUCCESS &&
+					keyRange.isExcludedStartKey(foundKey)) {
+				retVal = cursor.getNext(foundKey, foundData, BDBConst.LOCK_MODE);
+				fetchCnt++;
+				if (fetchCnt > fetchLimit) {
+					// フェッチ制限超え
+					isFetchExceeded = true;
+					retVal = OperationStatus.NOTFOUND;
+				}
+			}
+
+			if (retVal == OperationStatus.SUCCESS && keyRange.isInRange(foundKey)) {
+				// 件数上限 (フェッチ数制限を含む)
+				int maxCnt = Math.min(limit, fetchLimit - fetchCnt);
+				long foundCnt = countInRange(cursor, foundKey, foundData, keyRange,
+						maxCnt + 1);
+				if (foundCnt > maxCnt) {
+					// 続きあり。カーソルは続きの先頭データを指している。
+					cnt = maxCnt;
+					pointerKey = foundKey;
+					isFetchExceeded = fetchCnt + maxCnt + 1 > fetchLimit;
+				} else {
+					cnt = (int)foundCnt;
 				}
 			}
-			return true;
+
+			FetchInfo<T> fetchInfo = new FetchInfo<T>(cnt,
+					PointerUtil.encode(BDBUtil.getDbString(pointerKey)));
+			fetchInfo.setFetchExceeded(isFetchExceeded);
+			if (BDBUtil.isEnableAccessLog()) {
+				logger.debug(LogUtil.getRequestInfoStr(requestInfo) +
+						BDBUtil.getEndLogNs(namespace, LOG_METHOD_COUNT, db, "", startTime));
+			}
+			return fetchInfo;
+
+		} finally {
+			if (cursor != null) {
+				cursor.close();
+			}
 		}
-		return false;
 	}
 
-
 	/**
-	 * 検索した値が読み込み済みキャッシュに存在するかどうかチェック
-	 * @param val 値
-	 * @param foundKeyStr 全文検索インデックス値
-	 * @param currentCache セッション登録キャッシュ (キー:BDBの値、値:インデックスキー)
-	 * @param newCache このリクエストで追加予定キャッシュ
-	 * @return キャッシュに存在する場合true、存在しない場合false
+	 * 検索範囲内の件数を数える.
+	 * カーソルを読み飛ばし、範囲外まで進んだ場合は戻って読み飛ばし件数を狭める。
+	 * @param cursor 検索範囲内のデータを指しているカーソル
+	 * @param foundKey キー
+	 * @param foundData データ (部分読み込み指定)
+	 * @param keyRange キー範囲
+	 * @param maxCount 最大件数
+	 * @return カーソルの指しているデータを含めた件数。カーソルは最後に数えたデータを指す。
 	 */
-	private boolean hasCache(String val, String foundKeyStr, Map<String, String> currentCache,
-			Map<String, String> newCache) {
-		// セッションキャッシュに存在するかどうか
-		if (currentCache != null && currentCache.containsKey(val)) {
-			String cacheIndex = currentCache.get(val);
-			int compare = foundKeyStr.compareTo(cacheIndex);
-			if (compare <= 0) {
-				return false;	// 自分自身はデータ返却対象。< は論理上なし。
-			} else if (compare > 0) {
-				return true;	// キャッシュに存在済み
+	private long countInRange(BDBCursor cursor, DatabaseEntry foundKey,
+			DatabaseEntry foundData, BDBKeyRange keyRange, long maxCount) {
+		long cnt = 1;
+		long step = COUNT_SKIP_STEP;
+		while (cnt < maxCount) {
+			long skipCount = Math.min(step, maxCount - cnt);
+			long skipped = cursor.skipNext(skipCount, foundKey, foundData,
+					BDBConst.LOCK_MODE);
+			if (skipped == 0) {
+				// 最終データ
+				break;
 			}
-		}
-		// 今回読み込んだ追加キャッシュ分に存在するかどうか
-		if (newCache != null && newCache.containsKey(val)) {
-			String cacheIndex = newCache.get(val);
-			int compare = foundKeyStr.compareTo(cacheIndex);
-			if (compare <= 0) {
-				return false;	// 論理上なし。
-			} else if (compare > 0) {
-				return true;	// キャッシュに存在済み
+			if (keyRange.isInRange(foundKey)) {
+				cnt += skipped;
+				if (skipped < skipCount) {
+					// 最終データ
+					break;
+				}
+				continue;
+			}
+			if (skipped == 1) {
+				// 次のデータが範囲外
+				break;
 			}
+			// 範囲外まで進んだので戻る
+			cursor.skipPrev(skipped, foundKey, foundData, BDBConst.LOCK_MODE);
+			step = skipped / 2;
 		}
-		return false;
+		return cnt;
 	}
 
 }
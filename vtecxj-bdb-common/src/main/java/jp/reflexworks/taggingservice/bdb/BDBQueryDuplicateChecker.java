@@ -0,0 +1,27 @@
+package jp.reflexworks.taggingservice.bdb;
+
+/**
+ * クエリ検索の重複判定インタフェース.
+ * <p>
+ * 全文検索インデックスのように1件のEntryが複数のキーに合致する場合に、
+ * 同じ値を複数回返却しないために使用する。
+ * </p>
+ */
+public interface BDBQueryDuplicateChecker {
+
+	/**
+	 * 検索した値が、前のキーで返却済みかどうか.
+	 * @param val 値
+	 * @param foundKeyStr 検索したキー
+	 * @return 返却済みの場合true
+	 */
+	public boolean isDuplicated(String val, String foundKeyStr);
+
+	/**
+	 * 返却した値を登録.
+	 * @param val 値
+	 * @param foundKeyStr 検索したキー
+	 */
+	public void add(String val, String foundKeyStr);
+
+}
@@ -508,10 +508,21 @@ public class BDBUtil {
 	public static BDBEnv getBDBEnvByNamespace(List<String> dbNames, String namespace,
 			boolean isCreate)
 	throws IOException, TaggingException {
-		boolean setAccesstime = false;	// TODO
+		boolean setAccesstime = true;
 		BDBEnvManager bdbEnvManager = new BDBEnvManager();
 		return bdbEnvManager.getBDBEnvByNamespace(dbNames,
 				namespace, isCreate, setAccesstime);
 	}
 
+	/**
+	 * BDB環境情報の使用終了.
+	 * 名前空間から取得したBDB環境情報は、使用後にこのメソッドを呼び出す。
+	 * @param bdbEnv BDB環境情報 (nullの場合は何もしない)
+	 */
+	public static void releaseBDBEnv(BDBEnv bdbEnv) {
+		if (bdbEnv != null) {
+			bdbEnv.release();
+		}
+	}
+
 }
@@ -10,6 +10,7 @@ import jp.reflexworks.atom.entry.EntryBase;
 import jp.reflexworks.atom.mapper.CipherUtil;
 import jp.reflexworks.atom.mapper.FeedTemplateMapper;
 import jp.reflexworks.taggingservice.exception.BindException;
+import jp.reflexworks.taggingservice.util.EntryCodec;
 import jp.reflexworks.taggingservice.util.EntrySerializer;
 
 /**
@@ -52,7 +53,8 @@ public class EntryBaseBinding implements EntryBinding<EntryBase> {
 		}
 		
 		try {
-			CipherUtil cipherUtil = new CipherUtil();
+			// 暗号化ツールはスレッドごとに再利用する
+			CipherUtil cipherUtil = EntryCodec.getCipherUtil();
 			return EntrySerializer.deserializeEntry(mapper, data, cipherUtil,
 					deflateUtil);
 			
@@ -73,7 +75,7 @@ public class EntryBaseBinding implements EntryBinding<EntryBase> {
 		}
 		try {
 			// EntryオブジェクトをMessagePack形式に変換、Deflate圧縮。
-			CipherUtil cipherUtil = new CipherUtil();
+			CipherUtil cipherUtil = EntryCodec.getCipherUtil();
 			byte[] regData = EntrySerializer.serialize(mapper, entry, 
 					cipherUtil, deflateUtil);
 			
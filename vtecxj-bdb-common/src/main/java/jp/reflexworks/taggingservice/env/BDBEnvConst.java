@@ -25,12 +25,36 @@ public interface BDBEnvConst extends ReflexEnvConst {
 	public static final String BDBENV_RETRY_COUNT = "_bdbenv.retry.count";
 	/** BDB環境取得リトライ時のスリープ時間(ミリ秒) **/
 	public static final String BDBENV_RETRY_WAITMILLIS = "_bdbenv.retry.waitmillis";
+	/** 同時にオープンするBDB環境の最大数 (0以下は無制限) **/
+	public static final String BDBENV_POOL_MAX = "_bdbenv.pool.max";
+	/** BDB環境の最大数を超えた場合に、クローズ対象とする最終アクセスからの経過時間(ミリ秒) **/
+	public static final String BDBENV_POOL_EVICT_IDLEMILLIS = "_bdbenv.pool.evict.idlemillis";
+	/** BDBクリーン時に、最終アクセスからこの時間(ミリ秒)を経過したBDB環境をクローズする (0以下はクローズしない) **/
+	public static final String BDBENV_IDLE_CLOSEMILLIS = "_bdbenv.idle.closemillis";
+	/** 起動時に、前回アクセスの新しい順にオープンするBDB環境の数 (0以下はオープンしない) **/
+	public static final String BDBENV_WARMUP_SIZE = "_bdbenv.warmup.size";
+	/** シーケンスのキャッシュ数 (0以下はキャッシュしない) **/
+	public static final String BDB_SEQUENCE_CACHESIZE = "_bdb.sequence.cachesize";
+	/** シーケンスハンドルを保持する最大数 (BDB環境ごと) **/
+	public static final String BDB_SEQUENCE_HANDLE_MAX = "_bdb.sequence.handle.max";
+	/** インデックス更新で1トランザクションに含めるIDの最大数 **/
+	public static final String BDB_INDEX_BATCH_SIZE = "_bdb.index.batch.size";
+	/** フォルダ件数を維持するかどうか (維持する場合、同じ親階層への登録・削除はフォルダ件数の更新で直列化される) **/
+	public static final String BDB_ENABLE_FOLDERCOUNT = "_bdb.enable.foldercount";
+	/** フォルダ件数の再集計で1トランザクションに含めるマニフェストの最大数 **/
+	public static final String BDB_FOLDERCOUNT_BATCH_SIZE = "_bdb.foldercount.batch.size";
 	/** Entryの最大サイズ(バイト) */
 	public static final String ENTRY_MAX_BYTES = "_entry.max.bytes";
 	/** データ移行前のバックアップシェル コマンドの配置パス */
 	public static final String CMD_PATH_BACKUP = "_cmd.path.backup";
-	/** ディスク使用量取得シェル コマンドの配置パス */
-	public static final String CMD_PATH_DISKUSAGE = "_cmd.path.diskusage";
+	/** データ移行前のバックアップをシェルでなくJVM内で行うかどうか */
+	public static final String BDB_BACKUP_INPROCESS = "_bdb.backup.inprocess";
+	/** JVM内バックアップ・リストアの転送量の上限(バイト/秒) (0以下は無制限) */
+	public static final String BDB_BACKUP_BYTES_PER_SEC = "_bdb.backup.bytes.per.sec";
+	/** JVM内バックアップの格納先ルート (gs://〜、https://storage.googleapis.com/〜、またはディレクトリ)。配下に名前空間ごとの格納先を作成する。 */
+	public static final String BDB_BACKUP_INPROCESS_ROOT = "_bdb.backup.inprocess.root";
+	/** ディスク使用量の取得結果を保持する時間(ミリ秒) */
+	public static final String BDB_DISKUSAGE_CACHE_MILLIS = "_bdb.diskusage.cache.millis";
 
 	/** BDBデータ格納ディレクトリデフォルト */
 	public static final String BDB_DIR_DEFAULT = "/bdb";
@@ -42,11 +66,33 @@ public interface BDBEnvConst extends ReflexEnvConst {
 	public static final int BDBENV_RETRY_COUNT_DEFAULT = 100;
 	/** 設定デフォルト : BDB環境取得リトライ時のスリープ時間(ミリ秒) */
 	public static final int BDBENV_RETRY_WAITMILLIS_DEFAULT = 100;
+	/** 設定デフォルト : 同時にオープンするBDB環境の最大数 (無制限) */
+	public static final int BDBENV_POOL_MAX_DEFAULT = 0;
+	/** 設定デフォルト : BDB環境の最大数を超えた場合に、クローズ対象とする最終アクセスからの経過時間(ミリ秒) */
+	public static final int BDBENV_POOL_EVICT_IDLEMILLIS_DEFAULT = 60000;
+	/** 設定デフォルト : BDBクリーン時にアイドル状態のBDB環境をクローズする経過時間(ミリ秒) (クローズしない) */
+	public static final int BDBENV_IDLE_CLOSEMILLIS_DEFAULT = 0;
+	/** 設定デフォルト : 起動時にオープンするBDB環境の数 (オープンしない) */
+	public static final int BDBENV_WARMUP_SIZE_DEFAULT = 0;
+	/** 設定デフォルト : シーケンスのキャッシュ数 (キャッシュしない) */
+	public static final int BDB_SEQUENCE_CACHESIZE_DEFAULT = 0;
+	/** 設定デフォルト : シーケンスハンドルを保持する最大数 (BDB環境ごと) */
+	public static final int BDB_SEQUENCE_HANDLE_MAX_DEFAULT = 1000;
+	/** 設定デフォルト : インデックス更新で1トランザクションに含めるIDの最大数 */
+	public static final int BDB_INDEX_BATCH_SIZE_DEFAULT = 100;
+	/** 設定デフォルト : フォルダ件数を維持するかどうか (維持しない) */
+	public static final boolean BDB_ENABLE_FOLDERCOUNT_DEFAULT = false;
+	/** 設定デフォルト : フォルダ件数の再集計で1トランザクションに含めるマニフェストの最大数 */
+	public static final int BDB_FOLDERCOUNT_BATCH_SIZE_DEFAULT = 1000;
+	/** BDB環境アクセス一覧ファイル名 (BDBデータ格納ディレクトリ直下) */
+	public static final String BDBENV_ACCESSLIST_FILENAME = "_bdbenv_accesslist.txt";
 	/** 設定デフォルト : Entryの最大サイズ(バイト) (1MB) */
 	public static final long ENTRY_MAX_BYTES_DEFAULT = 1048576;
 	/** 設定デフォルト : データ移行前のバックアップシェル コマンドの配置パス */
 	public static final String CMD_PATH_BACKUP_DEFAULT = "/var/vtecx/sh/bdb_backup.sh";
-	/** 設定デフォルト : ディスク使用量取得シェル コマンドの配置パス */
-	public static final String CMD_PATH_DISKUSAGE_DEFAULT = "/var/vtecx/sh/bdb_diskusage.sh";
+	/** 設定デフォルト : JVM内バックアップ・リストアの転送量の上限(バイト/秒) (64MB) */
+	public static final long BDB_BACKUP_BYTES_PER_SEC_DEFAULT = 67108864;
+	/** 設定デフォルト : ディスク使用量の取得結果を保持する時間(ミリ秒) */
+	public static final long BDB_DISKUSAGE_CACHE_MILLIS_DEFAULT = 10000;
 
 }
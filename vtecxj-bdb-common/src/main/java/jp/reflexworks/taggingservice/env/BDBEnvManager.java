@@ -1,12 +1,29 @@
 package jp.reflexworks.taggingservice.env;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -16,24 +33,46 @@ import com.sleepycat.je.Environment;
 import com.sleepycat.je.EnvironmentStats;
 import com.sleepycat.je.StatsConfig;
 
+import jp.reflexworks.atom.entry.EntryBase;
 import jp.reflexworks.atom.entry.FeedBase;
 import jp.reflexworks.taggingservice.api.ConnectionInfo;
 import jp.reflexworks.taggingservice.api.ReflexStatic;
 import jp.reflexworks.taggingservice.api.RequestInfo;
+import jp.reflexworks.taggingservice.batch.BDBDiskUsage;
 import jp.reflexworks.taggingservice.batch.ReflexBDBDiskUsageManager;
 import jp.reflexworks.taggingservice.bdb.BDBConst;
 import jp.reflexworks.taggingservice.bdb.BDBEnv;
 import jp.reflexworks.taggingservice.bdb.BDBUtil;
 import jp.reflexworks.taggingservice.exception.StaticDuplicatedException;
 import jp.reflexworks.taggingservice.exception.TaggingException;
+import jp.reflexworks.taggingservice.plugin.TaskQueueManager;
+import jp.reflexworks.taggingservice.taskqueue.ReflexTaskQueueAbstractManager;
 import jp.reflexworks.taggingservice.util.TaggingEntryUtil;
 import jp.sourceforge.reflex.util.StringUtils;
 
 /**
  * BDB環境情報管理クラス
+ * <p>
+ * BDB環境は名前空間ごとにオープンし、static領域に保持する。
+ * 同時にオープンするBDB環境の最大数が設定されている場合、最大数を超えたときに
+ * 最終アクセスの古いBDB環境からクローズする。
+ * 取得したBDB環境は使用中として数え、使用中のBDB環境はクローズしない。
+ * BDB環境を取得した場合、使用後に{@link BDBEnv#release()}を呼び出すこと。
+ * 同じ名前空間のBDB環境を複数スレッドが同時に要求した場合、オープン処理は1スレッドのみが行い、
+ * 他のスレッドはその完了を待つ。
+ * </p>
+ * <p>
+ * シャットダウン時とBDBクリーン時に、オープン中のBDB環境と最終アクセス時間をファイルに出力する。
+ * 起動時にこのファイルを読み、最終アクセスの新しいBDB環境を指定数オープンする。
+ * </p>
  */
 public class BDBEnvManager {
 
+	/** BDB環境アクセス一覧ファイルの項目区切り文字 */
+	private static final String ACCESSLIST_DELIMITER = "\t";
+	/** BDB環境アクセス一覧ファイルのテーブル名区切り文字 */
+	private static final String ACCESSLIST_DBNAME_DELIMITER = ",";
+
 	/** ロガー. */
 	private Logger logger = LoggerFactory.getLogger(this.getClass());
 
@@ -51,15 +90,15 @@ public class BDBEnvManager {
 			logger.warn("[init] StaticDuplicatedException: " +
 					BDBConst.STATIC_NAME_BDBENV_MAP, e);
 		}
-		// BDB環境へのロック時間Mapを格納
-		// キー: 名前空間、値: true
-		ConcurrentMap<String, Boolean> bdbEnvLockMap =
-				new ConcurrentHashMap<String, Boolean>();
+		// BDB環境オープン中Mapを格納
+		// キー: 名前空間、値: オープン処理の完了を待つFuture
+		ConcurrentMap<String, CompletableFuture<BDBEnv>> bdbEnvOpeningMap =
+				new ConcurrentHashMap<String, CompletableFuture<BDBEnv>>();
 		try {
-			ReflexStatic.setStatic(BDBConst.STATIC_NAME_BDBENV_LOCK_MAP, bdbEnvLockMap);
+			ReflexStatic.setStatic(BDBConst.STATIC_NAME_BDBENV_OPENING_MAP, bdbEnvOpeningMap);
 		} catch (StaticDuplicatedException e) {
 			logger.warn("[init] StaticDuplicatedException: " +
-					BDBConst.STATIC_NAME_BDBENV_LOCK_MAP, e);
+					BDBConst.STATIC_NAME_BDBENV_OPENING_MAP, e);
 		}
 		// BDB環境へのアクセス時間Mapを格納
 		// キー: 名前空間、値: アクセス時間
@@ -72,6 +111,26 @@ public class BDBEnvManager {
 			logger.warn("[init] StaticDuplicatedException: " +
 					BDBConst.STATIC_NAME_BDBENV_ACCESSTIME_MAP, e);
 		}
+		// BDB環境プール統計情報を格納
+		BDBEnvPoolStats poolStats = new BDBEnvPoolStats();
+		try {
+			ReflexStatic.setStatic(BDBConst.STATIC_NAME_BDBENV_POOL_STATS, poolStats);
+		} catch (StaticDuplicatedException e) {
+			logger.warn("[init] StaticDuplicatedException: " +
+					BDBConst.STATIC_NAME_BDBENV_POOL_STATS, e);
+		}
+
+		// ディスク使用量の保持領域を格納
+		AtomicReference<BDBDiskUsage> diskUsageRef = new AtomicReference<BDBDiskUsage>();
+		try {
+			ReflexStatic.setStatic(BDBConst.STATIC_NAME_BDB_DISKUSAGE, diskUsageRef);
+		} catch (StaticDuplicatedException e) {
+			logger.warn("[init] StaticDuplicatedException: " +
+					BDBConst.STATIC_NAME_BDB_DISKUSAGE, e);
+		}
+
+		// 前回アクセスの新しいBDB環境をオープン
+		warmup();
 	}
 
 	/**
@@ -82,6 +141,9 @@ public class BDBEnvManager {
 				(ConcurrentMap<String, BDBEnv>)ReflexStatic.getStatic(
 						BDBConst.STATIC_NAME_BDBENV_MAP);
 		if (bdbEnvMap != null) {
+			// 次回起動時のためにオープン中のBDB環境を出力
+			writeAccesslist(bdbEnvMap);
+
 			for (Map.Entry<String, BDBEnv> mapEntry : bdbEnvMap.entrySet()) {
 				try {
 					BDBEnv bdbEnv = mapEntry.getValue();
@@ -97,6 +159,11 @@ public class BDBEnvManager {
 
 	/**
 	 * 名前空間からBDB環境情報を取得.
+	 * <p>
+	 * 他スレッドが同じ名前空間のBDB環境をオープン中の場合、その完了を待つ。
+	 * BDB環境をオープンした結果、最大数を超えた場合は最終アクセスの古いBDB環境をクローズする。
+	 * 返却したBDB環境は使用中として数えるため、使用後に{@link BDBEnv#release()}を呼び出すこと。
+	 * </p>
 	 * @param dbNames テーブル名リスト
 	 * @param namespace 名前空間
 	 * @param isCreate 指定された名前空間のBDB環境が存在しない時、環境を作成する場合true。
@@ -106,67 +173,27 @@ public class BDBEnvManager {
 	public BDBEnv getBDBEnvByNamespace(List<String> dbNames, String namespace,
 			boolean isCreate, boolean setAccesstime) {
 		if (!StringUtils.isBlank(namespace)) {
-			ConcurrentMap<String, BDBEnv> bdbEnvMap =
-					(ConcurrentMap<String, BDBEnv>)ReflexStatic.getStatic(
-							BDBConst.STATIC_NAME_BDBENV_MAP);
-			ConcurrentMap<String, Boolean> bdbLockMap =
-					(ConcurrentMap<String, Boolean>)ReflexStatic.getStatic(
-							BDBConst.STATIC_NAME_BDBENV_LOCK_MAP);
-			ConcurrentMap<String, Long> bdbAccesstimeMap =
-					(ConcurrentMap<String, Long>)ReflexStatic.getStatic(
-							BDBConst.STATIC_NAME_BDBENV_ACCESSTIME_MAP);
+			ConcurrentMap<String, BDBEnv> bdbEnvMap = getBDBEnvMap();
+			ConcurrentMap<String, Long> bdbAccesstimeMap = getBDBAccesstimeMap();
 
 			// アクセス時間を設定
 			if (setAccesstime) {
 				bdbAccesstimeMap.put(namespace, new Date().getTime());
 			}
 
-			BDBEnv bdbEnv = null;
-			int numRetries = BDBEnvUtil.getBDBEnvRetryCount();
-			int waitMillis = BDBEnvUtil.getBDBEnvRetryWaitmillis();
-			for (int r = 0; r <= numRetries; r++) {
-				Boolean isLock = bdbLockMap.get(namespace);
-				boolean isCreateEnv = false;
-				if (isLock == null) {	// ロックされていない場合環境情報を取得
-					bdbEnv = bdbEnvMap.get(namespace);
+			while (true) {
+				BDBEnv bdbEnv = bdbEnvMap.get(namespace);
+				if (bdbEnv == null) {
+					bdbEnv = openOrWaitBDBEnv(dbNames, namespace, isCreate);
 					if (bdbEnv == null) {
-						String bdbDir = BDBEnvUtil.getBDBDirByNamespace(namespace);
-						if (isCreate) {
-							isCreateEnv = true;
-						} else {
-							// BDB環境を新規作成しない場合、既にディレクトリが存在すればBDB環境オブジェクトを生成する。
-							File bdbDirFile = new File(bdbDir);
-							if (bdbDirFile.exists() && bdbDirFile.isDirectory()) {
-								isCreateEnv = true;
-							}
-						}
-
-						if (isCreateEnv) {
-							// BDB環境生成ロックを取得
-							Boolean ret = false;
-							try {
-								ret = bdbLockMap.putIfAbsent(namespace, true);
-								if (ret == null) {
-									// 新しくBDB環境情報を生成
-									bdbEnv = new BDBEnv(bdbDir, dbNames);
-									bdbEnvMap.put(namespace, bdbEnv);
-								}
-							} finally {
-								if (ret == null) {
-									bdbLockMap.remove(namespace);
-								}
-							}
-						}
-					}
-					if (bdbEnv != null || !isCreateEnv) {
 						break;
 					}
 				}
-				// 他スレッドによるBDB環境情報生成中。少し待つ。
-				BDBUtil.sleep(waitMillis + r * 10);
-			}
-			if (bdbEnv != null) {
-				return bdbEnv;
+				if (bdbEnv.acquire()) {
+					return bdbEnv;
+				}
+				// 取得後にクローズされた場合、Mapから除いて再度取得する
+				bdbEnvMap.remove(namespace, bdbEnv);
 			}
 		}
 		if (isCreate) {
@@ -175,6 +202,346 @@ public class BDBEnvManager {
 		return null;
 	}
 
+	/**
+	 * BDB環境をオープン、または他スレッドによるオープンの完了を待つ.
+	 * @param dbNames テーブル名リスト
+	 * @param namespace 名前空間
+	 * @param isCreate 指定された名前空間のBDB環境が存在しない時、環境を作成する場合true。
+	 * @return BDB環境情報。存在しない場合、またはオープンに失敗した場合null。
+	 */
+	private BDBEnv openOrWaitBDBEnv(List<String> dbNames, String namespace,
+			boolean isCreate) {
+		ConcurrentMap<String, BDBEnv> bdbEnvMap = getBDBEnvMap();
+		BDBEnv bdbEnv = null;
+		String bdbDir = BDBEnvUtil.getBDBDirByNamespace(namespace);
+		boolean isCreateEnv = false;
+		if (isCreate) {
+			isCreateEnv = true;
+		} else {
+			// BDB環境を新規作成しない場合、既にディレクトリが存在すればBDB環境オブジェクトを生成する。
+			File bdbDirFile = new File(bdbDir);
+			if (bdbDirFile.exists() && bdbDirFile.isDirectory()) {
+				isCreateEnv = true;
+			}
+		}
+
+		if (isCreateEnv) {
+			ConcurrentMap<String, CompletableFuture<BDBEnv>> bdbOpeningMap =
+					getBDBOpeningMap();
+			CompletableFuture<BDBEnv> future = new CompletableFuture<BDBEnv>();
+			CompletableFuture<BDBEnv> openingFuture = bdbOpeningMap.putIfAbsent(
+					namespace, future);
+			if (openingFuture == null) {
+				// このスレッドでBDB環境を生成する
+				boolean isOpened = false;
+				try {
+					// 他スレッドのオープン完了直後の場合、生成済みのBDB環境を使用する
+					bdbEnv = bdbEnvMap.get(namespace);
+					if (bdbEnv == null) {
+						bdbEnv = openBDBEnv(dbNames, namespace, bdbDir);
+						isOpened = true;
+					}
+					future.complete(bdbEnv);
+
+				} catch (RuntimeException | Error e) {
+					future.completeExceptionally(e);
+					throw e;
+				} finally {
+					bdbOpeningMap.remove(namespace, future);
+				}
+				if (isOpened) {
+					// 最大数を超えた場合、最終アクセスの古いBDB環境をクローズする
+					evict(namespace);
+				}
+			} else {
+				// 他スレッドによるBDB環境情報生成中。完了を待つ。
+				bdbEnv = waitOpening(namespace, openingFuture);
+			}
+		}
+		return bdbEnv;
+	}
+
+	/**
+	 * BDB環境をオープン.
+	 * @param dbNames テーブル名リスト
+	 * @param namespace 名前空間
+	 * @param bdbDir BDBデータ格納ディレクトリ
+	 * @return BDB環境情報
+	 */
+	private BDBEnv openBDBEnv(List<String> dbNames, String namespace, String bdbDir) {
+		BDBEnvPoolStats poolStats = getPoolStats();
+		long startTime = new Date().getTime();
+		BDBEnv bdbEnv = null;
+		try {
+			bdbEnv = new BDBEnv(bdbDir, dbNames);
+		} catch (RuntimeException | Error e) {
+			poolStats.addOpenError();
+			throw e;
+		}
+		long openMillis = new Date().getTime() - startTime;
+		getBDBEnvMap().put(namespace, bdbEnv);
+		// アクセス時間を設定しない場合もクローズ順の判定のためオープン時間を設定する
+		getBDBAccesstimeMap().putIfAbsent(namespace, startTime);
+		poolStats.addOpen(openMillis);
+		if (logger.isDebugEnabled()) {
+			logger.debug("[openBDBEnv] open bdbEnv. namespace=" + namespace +
+					" openMillis=" + openMillis);
+		}
+		return bdbEnv;
+	}
+
+	/**
+	 * 他スレッドによるBDB環境のオープン完了を待つ.
+	 * 待機時間はBDB環境取得のリトライ総数 × リトライ時のスリープ時間。
+	 * @param namespace 名前空間
+	 * @param openingFuture オープン処理のFuture
+	 * @return BDB環境情報。オープンに失敗した場合、または待機時間を超えた場合null。
+	 */
+	private BDBEnv waitOpening(String namespace, CompletableFuture<BDBEnv> openingFuture) {
+		long timeoutMillis = (long)(BDBEnvUtil.getBDBEnvRetryCount() + 1) *
+				BDBEnvUtil.getBDBEnvRetryWaitmillis();
+		try {
+			return openingFuture.get(timeoutMillis, TimeUnit.MILLISECONDS);
+
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause == null) {
+				cause = e;
+			}
+			logger.warn("[waitOpening] Opening bdbEnv failed. namespace=" + namespace + " " +
+					cause.getClass().getName() + ": " + cause.getMessage());
+		} catch (TimeoutException e) {
+			logger.warn("[waitOpening] Opening bdbEnv timed out. namespace=" + namespace +
+					" timeoutMillis=" + timeoutMillis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			logger.warn("[waitOpening] InterruptedException: " + e.getMessage() +
+					" namespace=" + namespace);
+		}
+		return null;
+	}
+
+	/**
+	 * 同時にオープンするBDB環境の最大数を超えた場合、最終アクセスの古いBDB環境をクローズする.
+	 * 使用中のBDB環境と、最終アクセスから指定時間を経過していないBDB環境はクローズしない。
+	 * @param openedNamespace オープンした名前空間 (クローズ対象外)
+	 */
+	private void evict(String openedNamespace) {
+		int poolMax = BDBEnvUtil.getBDBEnvPoolMax();
+		if (poolMax <= 0) {
+			return;
+		}
+		ConcurrentMap<String, BDBEnv> bdbEnvMap = getBDBEnvMap();
+		int overSize = bdbEnvMap.size() - poolMax;
+		if (overSize <= 0) {
+			return;
+		}
+		long limitTime = new Date().getTime() - BDBEnvUtil.getBDBEnvPoolEvictIdlemillis();
+		List<String> namespaces = getIdleNamespaces(limitTime);
+		namespaces.remove(openedNamespace);
+		BDBEnvPoolStats poolStats = getPoolStats();
+		for (String namespace : namespaces) {
+			if (overSize <= 0) {
+				break;
+			}
+			if (closeIdleBDBEnv(namespace, limitTime)) {
+				poolStats.addEvict();
+				overSize--;
+			}
+		}
+		if (overSize > 0 && logger.isInfoEnabled()) {
+			logger.info("[evict] The number of bdbEnv exceeds the maximum. size=" +
+					bdbEnvMap.size() + " max=" + poolMax);
+		}
+	}
+
+	/**
+	 * 最終アクセス時間が指定時間以前のBDB環境の名前空間を、最終アクセスの古い順に取得.
+	 * @param limitTime 指定時間
+	 * @return 名前空間リスト
+	 */
+	private List<String> getIdleNamespaces(long limitTime) {
+		ConcurrentMap<String, Long> bdbAccesstimeMap = getBDBAccesstimeMap();
+		List<Map.Entry<String, Long>> idleList = new ArrayList<Map.Entry<String, Long>>();
+		for (String namespace : getBDBEnvMap().keySet()) {
+			Long time = bdbAccesstimeMap.get(namespace);
+			long accesstime = time != null ? time : 0;
+			if (accesstime <= limitTime) {
+				idleList.add(new AbstractMap.SimpleEntry<String, Long>(
+						namespace, accesstime));
+			}
+		}
+		Collections.sort(idleList, new Comparator<Map.Entry<String, Long>>() {
+			@Override
+			public int compare(Map.Entry<String, Long> e1, Map.Entry<String, Long> e2) {
+				return Long.compare(e1.getValue(), e2.getValue());
+			}
+		});
+		List<String> namespaces = new ArrayList<String>(idleList.size());
+		for (Map.Entry<String, Long> mapEntry : idleList) {
+			namespaces.add(mapEntry.getKey());
+		}
+		return namespaces;
+	}
+
+	/**
+	 * 最終アクセス時間が指定時間以前のBDB環境をクローズする.
+	 * 使用中のBDB環境はクローズしない。
+	 * @param namespace 名前空間
+	 * @param limitTime 指定時間
+	 * @return クローズした場合true
+	 */
+	private boolean closeIdleBDBEnv(String namespace, long limitTime) {
+		Long time = getBDBAccesstimeMap().get(namespace);
+		if (time != null && time > limitTime) {
+			// 判定後にアクセスされた
+			return false;
+		}
+		BDBEnv bdbEnv = getBDBEnvMap().get(namespace);
+		if (bdbEnv == null) {
+			return false;
+		}
+		// 使用中でないことを確認してクローズ済みとし、以降の取得で使用されないようにする。
+		// 他スレッドとの重複クローズもここで防ぐ。
+		if (!bdbEnv.markClosedIfUnused()) {
+			return false;
+		}
+		getBDBEnvMap().remove(namespace, bdbEnv);
+		if (logger.isInfoEnabled()) {
+			logger.info("[closeIdleBDBEnv] close bdbEnv. namespace=" + namespace);
+		}
+		bdbEnv.close();
+		return true;
+	}
+
+	/**
+	 * 最終アクセスから指定時間を経過したBDB環境をクローズする.
+	 */
+	private void closeIdle() {
+		int idleClosemillis = BDBEnvUtil.getBDBEnvIdleClosemillis();
+		if (idleClosemillis <= 0) {
+			return;
+		}
+		long limitTime = new Date().getTime() - idleClosemillis;
+		BDBEnvPoolStats poolStats = getPoolStats();
+		for (String namespace : getIdleNamespaces(limitTime)) {
+			if (closeIdleBDBEnv(namespace, limitTime)) {
+				poolStats.addIdleClose();
+			}
+		}
+	}
+
+	/**
+	 * 起動時に、前回アクセスの新しい順に指定数のBDB環境をオープンする.
+	 */
+	private void warmup() {
+		int warmupSize = BDBEnvUtil.getBDBEnvWarmupSize();
+		int poolMax = BDBEnvUtil.getBDBEnvPoolMax();
+		if (poolMax > 0 && warmupSize > poolMax) {
+			warmupSize = poolMax;
+		}
+		if (warmupSize <= 0) {
+			return;
+		}
+		List<AccesslistItem> items = readAccesslist();
+		if (items.isEmpty()) {
+			return;
+		}
+		Collections.sort(items, new Comparator<AccesslistItem>() {
+			@Override
+			public int compare(AccesslistItem i1, AccesslistItem i2) {
+				return Long.compare(i2.accesstime, i1.accesstime);
+			}
+		});
+		BDBEnvPoolStats poolStats = getPoolStats();
+		int cnt = 0;
+		for (AccesslistItem item : items) {
+			if (cnt >= warmupSize) {
+				break;
+			}
+			try {
+				BDBEnv bdbEnv = getBDBEnvByNamespace(item.dbNames, item.namespace,
+						false, false);
+				if (bdbEnv != null) {
+					bdbEnv.release();
+					getBDBAccesstimeMap().put(item.namespace, item.accesstime);
+					poolStats.addWarmup();
+					cnt++;
+				}
+			} catch (RuntimeException e) {
+				logger.warn("[warmup] Error occured. namespace=" + item.namespace, e);
+			}
+		}
+		if (logger.isInfoEnabled()) {
+			logger.info("[warmup] opened bdbEnv. size=" + cnt);
+		}
+	}
+
+	/**
+	 * BDB環境アクセス一覧ファイルを読む.
+	 * 各行は「名前空間 タブ 最終アクセス時間 タブ カンマ区切りのテーブル名」の形式。
+	 * @return BDB環境アクセス一覧。ファイルが存在しない場合は空のリスト。
+	 */
+	private List<AccesslistItem> readAccesslist() {
+		List<AccesslistItem> items = new ArrayList<AccesslistItem>();
+		Path path = Paths.get(BDBEnvUtil.getBDBEnvAccesslistFilepath());
+		if (!Files.exists(path)) {
+			return items;
+		}
+		try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+			String line = null;
+			while ((line = reader.readLine()) != null) {
+				String[] parts = line.split(ACCESSLIST_DELIMITER);
+				if (parts.length < 3 || StringUtils.isBlank(parts[0]) ||
+						!StringUtils.isLong(parts[1]) || StringUtils.isBlank(parts[2])) {
+					continue;
+				}
+				items.add(new AccesslistItem(parts[0], Long.parseLong(parts[1]),
+						Arrays.asList(parts[2].split(ACCESSLIST_DBNAME_DELIMITER))));
+			}
+		} catch (IOException e) {
+			logger.warn("[readAccesslist] IOException: " + e.getMessage());
+		}
+		return items;
+	}
+
+	/**
+	 * オープン中のBDB環境を、BDB環境アクセス一覧ファイルに出力する.
+	 * 一時ファイルに出力してから置き換える。
+	 * @param bdbEnvMap BDB環境オブジェクトMap
+	 */
+	private void writeAccesslist(ConcurrentMap<String, BDBEnv> bdbEnvMap) {
+		if (BDBEnvUtil.getBDBEnvWarmupSize() <= 0) {
+			return;
+		}
+		ConcurrentMap<String, Long> bdbAccesstimeMap = getBDBAccesstimeMap();
+		Path path = Paths.get(BDBEnvUtil.getBDBEnvAccesslistFilepath());
+		Path tmpPath = Paths.get(path.toString() + ".tmp");
+		try {
+			try (BufferedWriter writer = Files.newBufferedWriter(tmpPath,
+					StandardCharsets.UTF_8)) {
+				for (Map.Entry<String, BDBEnv> mapEntry : bdbEnvMap.entrySet()) {
+					String namespace = mapEntry.getKey();
+					Long time = bdbAccesstimeMap.get(namespace);
+					if (time == null) {
+						continue;
+					}
+					writer.write(namespace);
+					writer.write("\t");
+					writer.write(String.valueOf(time));
+					writer.write("\t");
+					writer.write(String.join(ACCESSLIST_DBNAME_DELIMITER,
+							mapEntry.getValue().getDbNames()));
+					writer.newLine();
+				}
+			}
+			Files.move(tmpPath, path, StandardCopyOption.REPLACE_EXISTING);
+
+		} catch (IOException e) {
+			logger.warn("[writeAccesslist] IOException: " + e.getMessage());
+		}
+	}
+
 	/**
 	 * BDBクリーナー実行
 	 */
@@ -183,6 +550,20 @@ public class BDBEnvManager {
 				(ConcurrentMap<String, BDBEnv>)ReflexStatic.getStatic(
 						BDBConst.STATIC_NAME_BDBENV_MAP);
 		if (bdbEnvMap != null) {
+			// アイドル状態のBDB環境をクローズ
+			closeIdle();
+			// 次回起動時のためにオープン中のBDB環境を出力
+			writeAccesslist(bdbEnvMap);
+			if (BDBEnvUtil.isEnableStatsLog()) {
+				logger.debug("[clean] BDBEnvPoolStats : size=" + bdbEnvMap.size() + ", " +
+						getPoolStats().toString());
+				TaskQueueManager taskQueueManager = BDBEnvUtil.getTaskQueueManager();
+				if (taskQueueManager instanceof ReflexTaskQueueAbstractManager) {
+					logger.debug("[clean] TaskQueueStats : " +
+							((ReflexTaskQueueAbstractManager)taskQueueManager).getStats());
+				}
+			}
+
 			for (Map.Entry<String, BDBEnv> mapEntry : bdbEnvMap.entrySet()) {
 				String namespace = mapEntry.getKey();
 				BDBEnv bdbEnv = mapEntry.getValue();
@@ -210,10 +591,14 @@ public class BDBEnvManager {
 	/**
 	 * BDBクリーナー実行
 	 * 環境ごとの処理.
+	 * クローズ済みのBDB環境は処理しない。
 	 * @param namespace 名前空間
 	 * @param bdbEnv BDB環境情報
 	 */
 	private void cleanProc(String namespace, BDBEnv bdbEnv) {
+		if (!bdbEnv.acquire()) {
+			return;
+		}
 		try {
 			String logPrefix = "[cleanProc] namespace=" + namespace + " ";
 			if (BDBEnvUtil.isEnableStatsLog()) {
@@ -241,6 +626,8 @@ public class BDBEnvManager {
 
 		} catch (DatabaseException | IOException | IllegalStateException e) {
 			logger.warn("[cleanProc] namespace=" + namespace + " Error occured.", e);
+		} finally {
+			bdbEnv.release();
 		}
 	}
 
@@ -340,7 +727,12 @@ public class BDBEnvManager {
 		BDBEnv bdbEnv = getBDBEnvByNamespace(dbNames, namespace, false, false);
 		if (bdbEnv != null) {
 			// 名前空間も出力
-			EnvironmentStats jeEnvStats = getJeEnvStats(bdbEnv);
+			EnvironmentStats jeEnvStats = null;
+			try {
+				jeEnvStats = getJeEnvStats(bdbEnv);
+			} finally {
+				bdbEnv.release();
+			}
 			StringBuilder sb = new StringBuilder();
 			sb.append("BDB environment stat. namespace=");
 			sb.append(namespace);
@@ -349,23 +741,123 @@ public class BDBEnvManager {
 		} else {
 			retFeed.title = "The BDB environment is not opened. namespace=" + namespace;
 		}
+		// BDB環境プール統計情報
+		retFeed.rights = getPoolStatsString();
 		return retFeed;
 	}
+
+	/**
+	 * BDB環境プール統計情報の文字列表現を取得.
+	 * @return BDB環境プール統計情報の文字列表現
+	 */
+	public String getPoolStatsString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("BDB environment pool stat. size=");
+		sb.append(getBDBEnvMap().size());
+		sb.append(", max=");
+		sb.append(BDBEnvUtil.getBDBEnvPoolMax());
+		sb.append(", ");
+		sb.append(getPoolStats().toString());
+		return sb.toString();
+	}
 	
 	/**
-	 * ディスク使用率を取得.
+	 * ディスク使用量を取得.
 	 * @param requestInfo リクエスト情報
 	 * @param connectionInfo コネクション情報
-	 * @return ディスク使用率(%) (Feedのsubtitleに設定)
+	 * @return ディスク使用量。
+	 *         Feedのtitleにディスク使用率(%)、subtitleに合計サイズ、rightsに使用可能サイズ(バイト)を設定。
+	 *         entryは名前空間ごとに、titleに名前空間、subtitleにBDBログサイズ(バイト)、
+	 *         summaryにBDBログ増加量(バイト/秒、前回取得時にオープンしていない場合は設定なし)を設定。
 	 */
-	public FeedBase getDiskUsage(RequestInfo requestInfo, ConnectionInfo connectionInfo) 
+	public FeedBase getDiskUsage(RequestInfo requestInfo, ConnectionInfo connectionInfo)
 	throws IOException {
 		ReflexBDBDiskUsageManager diskUsageManager = new ReflexBDBDiskUsageManager();
-		String diskUsage = diskUsageManager.getDiskUsage(requestInfo, connectionInfo);
+		BDBDiskUsage diskUsage = diskUsageManager.getDiskUsage(requestInfo, connectionInfo);
 		FeedBase retFeed = TaggingEntryUtil.createAtomFeed();
-		retFeed.title = diskUsage;
+		retFeed.title = String.valueOf(diskUsage.getUsagePercent());
+		retFeed.subtitle = String.valueOf(diskUsage.getTotalSpace());
+		retFeed.rights = String.valueOf(diskUsage.getUsableSpace());
+		List<EntryBase> entries = new ArrayList<>();
+		for (Map.Entry<String, Long> mapEntry : diskUsage.getLogSizes().entrySet()) {
+			String namespace = mapEntry.getKey();
+			EntryBase entry = TaggingEntryUtil.createAtomEntry();
+			entry.title = namespace;
+			entry.subtitle = String.valueOf(mapEntry.getValue());
+			Long growthRate = diskUsage.getGrowthRates().get(namespace);
+			if (growthRate != null) {
+				entry.summary = String.valueOf(growthRate);
+			}
+			entries.add(entry);
+		}
+		if (!entries.isEmpty()) {
+			retFeed.entry = entries;
+		}
 		return retFeed;
 	}
-	
+
+	/**
+	 * static領域からBDB環境オブジェクトMapを取得.
+	 * @return BDB環境オブジェクトMap
+	 */
+	@SuppressWarnings("unchecked")
+	private ConcurrentMap<String, BDBEnv> getBDBEnvMap() {
+		return (ConcurrentMap<String, BDBEnv>)ReflexStatic.getStatic(
+				BDBConst.STATIC_NAME_BDBENV_MAP);
+	}
+
+	/**
+	 * static領域からBDB環境オープン中Mapを取得.
+	 * @return BDB環境オープン中Map
+	 */
+	@SuppressWarnings("unchecked")
+	private ConcurrentMap<String, CompletableFuture<BDBEnv>> getBDBOpeningMap() {
+		return (ConcurrentMap<String, CompletableFuture<BDBEnv>>)ReflexStatic.getStatic(
+				BDBConst.STATIC_NAME_BDBENV_OPENING_MAP);
+	}
+
+	/**
+	 * static領域からBDB環境へのアクセス時間Mapを取得.
+	 * @return BDB環境へのアクセス時間Map
+	 */
+	@SuppressWarnings("unchecked")
+	private ConcurrentMap<String, Long> getBDBAccesstimeMap() {
+		return (ConcurrentMap<String, Long>)ReflexStatic.getStatic(
+				BDBConst.STATIC_NAME_BDBENV_ACCESSTIME_MAP);
+	}
+
+	/**
+	 * static領域からBDB環境プール統計情報を取得.
+	 * @return BDB環境プール統計情報
+	 */
+	private BDBEnvPoolStats getPoolStats() {
+		return (BDBEnvPoolStats)ReflexStatic.getStatic(
+				BDBConst.STATIC_NAME_BDBENV_POOL_STATS);
+	}
+
+	/**
+	 * BDB環境アクセス一覧ファイルの1行.
+	 */
+	private static class AccesslistItem {
+
+		/** 名前空間 */
+		private final String namespace;
+		/** 最終アクセス時間 */
+		private final long accesstime;
+		/** テーブル名リスト */
+		private final List<String> dbNames;
+
+		/**
+		 * コンストラクタ.
+		 * @param namespace 名前空間
+		 * @param accesstime 最終アクセス時間
+		 * @param dbNames テーブル名リスト
+		 */
+		AccesslistItem(String namespace, long accesstime, List<String> dbNames) {
+			this.namespace = namespace;
+			this.accesstime = accesstime;
+			this.dbNames = dbNames;
+		}
+	}
 
 }
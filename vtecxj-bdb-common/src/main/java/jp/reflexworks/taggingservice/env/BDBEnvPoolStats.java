@@ -0,0 +1,148 @@
+package jp.reflexworks.taggingservice.env;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * BDB環境プール統計情報.
+ * BDB環境のオープン・クローズ件数と、オープン所要時間を保持する。
+ */
+public class BDBEnvPoolStats {
+
+	/** オープン件数 */
+	private final AtomicLong openCount = new AtomicLong();
+	/** オープン失敗件数 */
+	private final AtomicLong openErrorCount = new AtomicLong();
+	/** 最大数超過によるクローズ件数 */
+	private final AtomicLong evictCount = new AtomicLong();
+	/** アイドル状態によるクローズ件数 */
+	private final AtomicLong idleCloseCount = new AtomicLong();
+	/** 起動時のオープン件数 */
+	private final AtomicLong warmupCount = new AtomicLong();
+	/** オープン所要時間の合計(ミリ秒) */
+	private final AtomicLong openMillisTotal = new AtomicLong();
+	/** オープン所要時間の最大(ミリ秒) */
+	private final AtomicLong openMillisMax = new AtomicLong();
+
+	/**
+	 * オープンを記録.
+	 * @param millis オープン所要時間(ミリ秒)
+	 */
+	void addOpen(long millis) {
+		openCount.incrementAndGet();
+		openMillisTotal.addAndGet(millis);
+		openMillisMax.accumulateAndGet(millis, Math::max);
+	}
+
+	/**
+	 * オープン失敗を記録.
+	 */
+	void addOpenError() {
+		openErrorCount.incrementAndGet();
+	}
+
+	/**
+	 * 最大数超過によるクローズを記録.
+	 */
+	void addEvict() {
+		evictCount.incrementAndGet();
+	}
+
+	/**
+	 * アイドル状態によるクローズを記録.
+	 */
+	void addIdleClose() {
+		idleCloseCount.incrementAndGet();
+	}
+
+	/**
+	 * 起動時のオープンを記録.
+	 */
+	void addWarmup() {
+		warmupCount.incrementAndGet();
+	}
+
+	/**
+	 * オープン件数を取得.
+	 * @return オープン件数
+	 */
+	public long getOpenCount() {
+		return openCount.get();
+	}
+
+	/**
+	 * オープン失敗件数を取得.
+	 * @return オープン失敗件数
+	 */
+	public long getOpenErrorCount() {
+		return openErrorCount.get();
+	}
+
+	/**
+	 * 最大数超過によるクローズ件数を取得.
+	 * @return 最大数超過によるクローズ件数
+	 */
+	public long getEvictCount() {
+		return evictCount.get();
+	}
+
+	/**
+	 * アイドル状態によるクローズ件数を取得.
+	 * @return アイドル状態によるクローズ件数
+	 */
+	public long getIdleCloseCount() {
+		return idleCloseCount.get();
+	}
+
+	/**
+	 * 起動時のオープン件数を取得.
+	 * @return 起動時のオープン件数
+	 */
+	public long getWarmupCount() {
+		return warmupCount.get();
+	}
+
+	/**
+	 * オープン所要時間の平均を取得.
+	 * @return オープン所要時間の平均(ミリ秒)
+	 */
+	public long getOpenMillisAverage() {
+		long cnt = openCount.get();
+		if (cnt == 0) {
+			return 0;
+		}
+		return openMillisTotal.get() / cnt;
+	}
+
+	/**
+	 * オープン所要時間の最大を取得.
+	 * @return オープン所要時間の最大(ミリ秒)
+	 */
+	public long getOpenMillisMax() {
+		return openMillisMax.get();
+	}
+
+	/**
+	 * 文字列表現を取得.
+	 * @return 文字列表現
+	 */
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("openCount=");
+		sb.append(getOpenCount());
+		sb.append(", openErrorCount=");
+		sb.append(getOpenErrorCount());
+		sb.append(", evictCount=");
+		sb.append(getEvictCount());
+		sb.append(", idleCloseCount=");
+		sb.append(getIdleCloseCount());
+		sb.append(", warmupCount=");
+		sb.append(getWarmupCount());
+		sb.append(", openMillisAverage=");
+		sb.append(getOpenMillisAverage());
+		sb.append(", openMillisMax=");
+		sb.append(getOpenMillisMax());
+		return sb.toString();
+	}
+
+}
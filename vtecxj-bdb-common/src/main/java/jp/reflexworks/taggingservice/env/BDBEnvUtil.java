@@ -283,6 +283,141 @@ public class BDBEnvUtil {
 				BDBEnvConst.BDBENV_RETRY_WAITMILLIS_DEFAULT);
 	}
 
+	/**
+	 * 同時にオープンするBDB環境の最大数を取得.
+	 * @return 同時にオープンするBDB環境の最大数 (0以下は無制限)
+	 */
+	public static int getBDBEnvPoolMax() {
+		return ReflexEnvUtil.getSystemPropInt(BDBEnvConst.BDBENV_POOL_MAX,
+				BDBEnvConst.BDBENV_POOL_MAX_DEFAULT);
+	}
+
+	/**
+	 * BDB環境の最大数を超えた場合に、クローズ対象とする最終アクセスからの経過時間を取得.
+	 * @return クローズ対象とする最終アクセスからの経過時間(ミリ秒)
+	 */
+	public static int getBDBEnvPoolEvictIdlemillis() {
+		return ReflexEnvUtil.getSystemPropInt(BDBEnvConst.BDBENV_POOL_EVICT_IDLEMILLIS,
+				BDBEnvConst.BDBENV_POOL_EVICT_IDLEMILLIS_DEFAULT);
+	}
+
+	/**
+	 * BDBクリーン時にアイドル状態のBDB環境をクローズする経過時間を取得.
+	 * @return アイドル状態のBDB環境をクローズする経過時間(ミリ秒) (0以下はクローズしない)
+	 */
+	public static int getBDBEnvIdleClosemillis() {
+		return ReflexEnvUtil.getSystemPropInt(BDBEnvConst.BDBENV_IDLE_CLOSEMILLIS,
+				BDBEnvConst.BDBENV_IDLE_CLOSEMILLIS_DEFAULT);
+	}
+
+	/**
+	 * 起動時にオープンするBDB環境の数を取得.
+	 * @return 起動時にオープンするBDB環境の数 (0以下はオープンしない)
+	 */
+	public static int getBDBEnvWarmupSize() {
+		return ReflexEnvUtil.getSystemPropInt(BDBEnvConst.BDBENV_WARMUP_SIZE,
+				BDBEnvConst.BDBENV_WARMUP_SIZE_DEFAULT);
+	}
+
+	/**
+	 * BDB環境アクセス一覧ファイルのパスを取得.
+	 * @return BDB環境アクセス一覧ファイルのパス ({_bdb.dir}/_bdbenv_accesslist.txt)
+	 */
+	public static String getBDBEnvAccesslistFilepath() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(getBDBHomeDir());
+		sb.append(File.separator);
+		sb.append(BDBEnvConst.BDBENV_ACCESSLIST_FILENAME);
+		return sb.toString();
+	}
+
+	/**
+	 * シーケンスのキャッシュ数を取得.
+	 * @return シーケンスのキャッシュ数 (0以下はキャッシュしない)
+	 */
+	public static int getBDBSequenceCacheSize() {
+		return ReflexEnvUtil.getSystemPropInt(BDBEnvConst.BDB_SEQUENCE_CACHESIZE,
+				BDBEnvConst.BDB_SEQUENCE_CACHESIZE_DEFAULT);
+	}
+
+	/**
+	 * シーケンスハンドルを保持する最大数を取得.
+	 * @return シーケンスハンドルを保持する最大数 (BDB環境ごと)
+	 */
+	public static int getBDBSequenceHandleMax() {
+		return ReflexEnvUtil.getSystemPropInt(BDBEnvConst.BDB_SEQUENCE_HANDLE_MAX,
+				BDBEnvConst.BDB_SEQUENCE_HANDLE_MAX_DEFAULT);
+	}
+
+	/**
+	 * インデックス更新で1トランザクションに含めるIDの最大数を取得.
+	 * @return インデックス更新で1トランザクションに含めるIDの最大数
+	 */
+	public static int getBDBIndexBatchSize() {
+		int size = ReflexEnvUtil.getSystemPropInt(BDBEnvConst.BDB_INDEX_BATCH_SIZE,
+				BDBEnvConst.BDB_INDEX_BATCH_SIZE_DEFAULT);
+		if (size <= 0) {
+			return BDBEnvConst.BDB_INDEX_BATCH_SIZE_DEFAULT;
+		}
+		return size;
+	}
+
+	/**
+	 * フォルダ件数を維持するかどうか.
+	 * @return フォルダ件数を維持する場合true
+	 */
+	public static boolean isEnableFolderCount() {
+		return ReflexEnvUtil.getSystemPropBoolean(BDBEnvConst.BDB_ENABLE_FOLDERCOUNT,
+				BDBEnvConst.BDB_ENABLE_FOLDERCOUNT_DEFAULT);
+	}
+
+	/**
+	 * フォルダ件数の再集計で1トランザクションに含めるマニフェストの最大数を取得.
+	 * @return フォルダ件数の再集計で1トランザクションに含めるマニフェストの最大数
+	 */
+	public static int getBDBFolderCountBatchSize() {
+		int size = ReflexEnvUtil.getSystemPropInt(BDBEnvConst.BDB_FOLDERCOUNT_BATCH_SIZE,
+				BDBEnvConst.BDB_FOLDERCOUNT_BATCH_SIZE_DEFAULT);
+		if (size <= 0) {
+			return BDBEnvConst.BDB_FOLDERCOUNT_BATCH_SIZE_DEFAULT;
+		}
+		return size;
+	}
+
+	/**
+	 * データ移行前のバックアップをJVM内で行うかどうか.
+	 * @return JVM内でバックアップする場合true
+	 */
+	public static boolean isBackupInprocess() {
+		return ReflexEnvUtil.getSystemPropBoolean(BDBEnvConst.BDB_BACKUP_INPROCESS, false);
+	}
+
+	/**
+	 * JVM内バックアップ・リストアの転送量の上限を取得.
+	 * @return 転送量の上限(バイト/秒)。0以下は無制限。
+	 */
+	public static long getBackupBytesPerSec() {
+		return ReflexEnvUtil.getSystemPropLong(BDBEnvConst.BDB_BACKUP_BYTES_PER_SEC,
+				BDBEnvConst.BDB_BACKUP_BYTES_PER_SEC_DEFAULT);
+	}
+
+	/**
+	 * JVM内バックアップの格納先ルートを取得.
+	 * @return JVM内バックアップの格納先ルート。設定がない場合null。
+	 */
+	public static String getBackupInprocessRoot() {
+		return ReflexEnvUtil.getSystemProp(BDBEnvConst.BDB_BACKUP_INPROCESS_ROOT, null);
+	}
+
+	/**
+	 * ディスク使用量の取得結果を保持する時間を取得.
+	 * @return ディスク使用量の取得結果を保持する時間(ミリ秒)
+	 */
+	public static long getDiskUsageCacheMillis() {
+		return ReflexEnvUtil.getSystemPropLong(BDBEnvConst.BDB_DISKUSAGE_CACHE_MILLIS,
+				BDBEnvConst.BDB_DISKUSAGE_CACHE_MILLIS_DEFAULT);
+	}
+
 	/**
 	 * BDBデータをDeflate圧縮するかどうか.
 	 * @return BDBデータをDeflate圧縮しない場合true
@@ -5,6 +5,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -12,6 +13,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import jp.reflexworks.taggingservice.api.RequestInfo;
+import jp.reflexworks.taggingservice.backup.BDBBackupEngine;
+import jp.reflexworks.taggingservice.bdb.BDBEnv;
 import jp.reflexworks.taggingservice.env.BDBEnvConst;
 import jp.reflexworks.taggingservice.env.BDBEnvManager;
 import jp.reflexworks.taggingservice.env.BDBEnvUtil;
@@ -33,13 +36,21 @@ public class ReflexBDBBackupUtil {
 
 	/**
 	 * バックアップ処理.
-	 * シェルを実行する。
+	 * シェルを実行する。JVM内バックアップが有効な場合はBDBBackupEngineでバックアップする。
+	 * <p>
+	 * JVM内バックアップは前回のバックアップと同じ格納先に差分のみコピーするため、
+	 * 格納先は実行ごとに変えず、名前空間ごとに固定する。
+	 * 格納先ルート(_bdb.backup.inprocess.root)の設定がある場合は {格納先ルート}/{名前空間}、
+	 * 設定がない場合は指定された格納先URLとする。実行ごとのバックアップはマニフェスト名で区別する。
+	 * JVM内バックアップの格納先にはローカルディレクトリも指定できる。
+	 * </p>
 	 * @param namespace 名前空間
+	 * @param dbNames データベース名リスト
 	 * @param storageUrl Cloud Storage格納先URL
 	 * @param serviceName サービス名
 	 * @param requestInfo リクエスト情報
 	 */
-	public static void backup(String namespace, String storageUrl,
+	public static void backup(String namespace, List<String> dbNames, String storageUrl,
 			String serviceName, RequestInfo requestInfo)
 	throws IOException {
 		// BDBデータが存在するかどうかチェック
@@ -61,22 +72,48 @@ public class ReflexBDBBackupUtil {
 		BDBEnvManager envManager = new BDBEnvManager();
 		envManager.clean(namespace);
 
-		// BDBバックアップ処理
-		// まずはシェルの配置パスを取得
-		String cmdPath = ReflexEnvUtil.getSystemProp(BDBEnvConst.CMD_PATH_BACKUP,
-				BDBEnvConst.CMD_PATH_BACKUP_DEFAULT);
-
-		// $1 : 名前空間
-		// $2 : Cloud Storage URL
-
-		// コマンドインジェクション防止: namespace は英数字・ハイフン・アンダースコア・ドットのみ許可
+		// コマンドインジェクション・パストラバーサル防止: namespace は英数字・ハイフン・アンダースコア・ドットのみ許可
 		if (namespace == null || !ServiceCommonUtil.matchServiceNamePattern(namespace)) {
 			throw new IllegalArgumentException("Invalid namespace: " + namespace);
 		}
+
+		if (BDBEnvUtil.isBackupInprocess()) {
+			// JVM内バックアップ
+			String sinkUrl = getInprocessSinkUrl(BDBEnvUtil.getBackupInprocessRoot(),
+					storageUrl, namespace);
+			if (!matchStorageUrl(sinkUrl) && !isLocalPath(sinkUrl)) {
+				throw new IllegalArgumentException("Invalid storageUrl: " + sinkUrl);
+			}
+			BDBEnv bdbEnv = envManager.getBDBEnvByNamespace(dbNames, namespace, false, false);
+			if (bdbEnv == null) {
+				throw new IOException("The BDB environment could not be opened. namespace=" +
+						namespace);
+			}
+			try {
+				if (logger.isInfoEnabled()) {
+					logger.info("[backup] namespace=" + namespace + " storageUrl=" + storageUrl +
+							" -> " + sinkUrl);
+				}
+				BDBBackupEngine engine = new BDBBackupEngine(BDBEnvUtil.getBackupBytesPerSec());
+				engine.backup(bdbEnv.getJeEnv(), BDBBackupEngine.createSink(sinkUrl));
+			} finally {
+				bdbEnv.release();
+			}
+			return;
+		}
+
 		// storageUrl は gs:// または https://storage.googleapis.com/ のみ許可
 		if (!matchStorageUrl(storageUrl)) {
 			throw new IllegalArgumentException("Invalid storageUrl: " + storageUrl);
 		}
+
+		// BDBバックアップ処理
+		// まずはシェルの配置パスを取得
+		String cmdPath = ReflexEnvUtil.getSystemProp(BDBEnvConst.CMD_PATH_BACKUP,
+				BDBEnvConst.CMD_PATH_BACKUP_DEFAULT);
+
+		// $1 : 名前空間
+		// $2 : Cloud Storage URL
 		String[] command = {cmdPath, namespace, storageUrl}; // 起動コマンドを指定する
 
 		try {
@@ -166,6 +203,43 @@ public class ReflexBDBBackupUtil {
 		return matcher.matches();
 	}
 
+	/**
+	 * JVM内バックアップの格納先URLを取得.
+	 * @param root 格納先ルート。nullまたは空の場合は指定された格納先URLを使用する。
+	 * @param storageUrl 指定された格納先URL
+	 * @param namespace 名前空間
+	 * @return JVM内バックアップの格納先URL
+	 */
+	static String getInprocessSinkUrl(String root, String storageUrl, String namespace) {
+		if (StringUtils.isBlank(root)) {
+			return storageUrl;
+		}
+		StringBuilder sb = new StringBuilder();
+		sb.append(root);
+		if (!root.endsWith("/")) {
+			sb.append("/");
+		}
+		sb.append(namespace);
+		return sb.toString();
+	}
+
+	/**
+	 * ローカルディレクトリのパスかどうか.
+	 * 絶対パス、またはfile://で始まる絶対パスのみ許可する。
+	 * @param url 格納先URL
+	 * @return ローカルディレクトリのパスの場合true
+	 */
+	private static boolean isLocalPath(String url) {
+		if (StringUtils.isBlank(url)) {
+			return false;
+		}
+		String path = url;
+		if (path.startsWith("file://")) {
+			path = path.substring("file://".length());
+		}
+		return new File(path).isAbsolute() && !path.contains("..");
+	}
+
 	/**
 	 * プロセス出力を読み取るスレッド.
 	 */
@@ -0,0 +1,244 @@
+package jp.reflexworks.taggingservice.backup;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sleepycat.je.Database;
+import com.sleepycat.je.DatabaseConfig;
+import com.sleepycat.je.DatabaseEntry;
+import com.sleepycat.je.Environment;
+import com.sleepycat.je.EnvironmentConfig;
+import com.sleepycat.je.OperationStatus;
+
+/**
+ * BDBバックアップ処理テスト.
+ * <p>
+ * ローカルディレクトリの格納先に、バックアップ、差分バックアップ、リストアを行う。
+ * </p>
+ */
+public class BDBBackupEngineTest {
+
+	/** データベース名 */
+	private static final String DB_NAME = "backuptest";
+	/** 1回に登録する件数 */
+	private static final int PUT_NUM = 3000;
+	/** データサイズ */
+	private static final int DATA_SIZE = 1024;
+
+	private File tmpDir;
+	private File envDir;
+	private CountingSink sink;
+	private BDBBackupEngine engine;
+
+	@Before
+	public void setUp() throws IOException {
+		tmpDir = Files.createTempDirectory("bdbbackuptest").toFile();
+		envDir = new File(tmpDir, "env");
+		envDir.mkdirs();
+		sink = new CountingSink(new File(tmpDir, "sink"));
+		engine = new BDBBackupEngine(0);
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		try (Stream<java.nio.file.Path> paths = Files.walk(tmpDir.toPath())) {
+			paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+		}
+	}
+
+	@Test
+	public void testBackupIncrementalRestore() throws Exception {
+		BDBBackupManifest first;
+		BDBBackupManifest second;
+		Environment env = openEnv(envDir, false);
+		try {
+			Database db = openDb(env, false);
+			try {
+				put(db, 0, PUT_NUM);
+				first = engine.backup(env, sink);
+				assertTrue(first.getItems().size() > 1);
+
+				// 同じ格納先への2回目は、変更のないログファイルをコピーしない
+				Thread.sleep(10);
+				put(db, PUT_NUM, PUT_NUM * 2);
+				sink.created.clear();
+				second = engine.backup(env, sink);
+			} finally {
+				db.close();
+			}
+		} finally {
+			env.close();
+		}
+
+		int reused = 0;
+		Set<String> keys = new HashSet<>();
+		for (BDBBackupManifest.Item item : first.getItems()) {
+			keys.add(item.getKey());
+			BDBBackupManifest.Item secondItem = second.getItem(item.getFileName());
+			if (secondItem != null && secondItem.getKey().equals(item.getKey())) {
+				reused++;
+			}
+		}
+		// 最後のログファイル以外は前回のものを参照し、コピーするのは追加・変更されたファイルのみ
+		assertTrue(reused >= first.getItems().size() - 1);
+		for (String name : sink.created) {
+			if (name.startsWith(BDBBackupEngine.DIR_LOG)) {
+				assertTrue(name, !keys.contains(name));
+			}
+		}
+		assertTrue(second.getItems().size() > first.getItems().size());
+		for (BDBBackupManifest.Item item : second.getItems()) {
+			keys.add(item.getKey());
+		}
+		// 格納先のログファイルは2回分の重複を除いた数
+		assertEquals(keys.size(), new File(tmpDir, "sink/log").list().length);
+
+		// 最新のマニフェストをリストア
+		File restoreDir = new File(tmpDir, "restore");
+		BDBBackupManifest restored = engine.restore(sink, null, restoreDir);
+		assertEquals(second.getCreated(), restored.getCreated());
+		verify(restoreDir, PUT_NUM * 2);
+
+		// 1回目のマニフェストをリストア
+		File restoreFirstDir = new File(tmpDir, "restorefirst");
+		restored = engine.restore(sink, first.getCreated() + ".txt", restoreFirstDir);
+		assertEquals(first.getCreated(), restored.getCreated());
+		verify(restoreFirstDir, PUT_NUM);
+	}
+
+	@Test
+	public void testRestoreCorrupted() throws Exception {
+		Environment env = openEnv(envDir, false);
+		BDBBackupManifest manifest;
+		try {
+			Database db = openDb(env, false);
+			try {
+				put(db, 0, PUT_NUM);
+				manifest = engine.backup(env, sink);
+			} finally {
+				db.close();
+			}
+		} finally {
+			env.close();
+		}
+
+		// 格納先のログファイルを書き換える
+		BDBBackupManifest.Item item = manifest.getItems().get(0);
+		byte[] data = Files.readAllBytes(new File(tmpDir, "sink/" + item.getKey()).toPath());
+		data[data.length / 2] ^= 0xff;
+		try (OutputStream out = sink.create(item.getKey())) {
+			out.write(data);
+		}
+
+		// リストアでチェックサムを検証する
+		try {
+			engine.restore(sink, null, new File(tmpDir, "restore"));
+			fail("IOException is expected.");
+		} catch (IOException e) {
+			assertTrue(e.getMessage().contains(item.getKey()));
+		}
+
+		// リストア先が空でない場合はリストアしない
+		try {
+			engine.restore(sink, null, envDir);
+			fail("IOException is expected.");
+		} catch (IOException e) {
+			assertTrue(e.getMessage().contains(envDir.getPath()));
+		}
+	}
+
+	/**
+	 * 書き込んだ名前を記録するローカルディレクトリの格納先.
+	 */
+	private static class CountingSink extends LocalBackupSink {
+
+		/** 書き込んだ名前 */
+		private final Set<String> created = new HashSet<>();
+
+		CountingSink(File rootDir) {
+			super(rootDir);
+		}
+
+		@Override
+		public OutputStream create(String name) throws IOException {
+			created.add(name);
+			return super.create(name);
+		}
+	}
+
+	private static Environment openEnv(File dir, boolean readOnly) {
+		EnvironmentConfig config = new EnvironmentConfig();
+		config.setAllowCreate(!readOnly);
+		config.setReadOnly(readOnly);
+		config.setTransactional(!readOnly);
+		// 複数のログファイルを作成する
+		config.setConfigParam(EnvironmentConfig.LOG_FILE_MAX, "1000000");
+		return new Environment(dir, config);
+	}
+
+	private static Database openDb(Environment env, boolean readOnly) {
+		DatabaseConfig config = new DatabaseConfig();
+		config.setAllowCreate(!readOnly);
+		config.setReadOnly(readOnly);
+		config.setTransactional(!readOnly);
+		return env.openDatabase(null, DB_NAME, config);
+	}
+
+	private static void put(Database db, int from, int to) {
+		for (int i = from; i < to; i++) {
+			db.put(null, key(i), data(i));
+		}
+	}
+
+	private static void verify(File dir, int num) {
+		Environment env = openEnv(dir, true);
+		try {
+			Database db = openDb(env, true);
+			try {
+				assertEquals(num, db.count());
+				for (int i = 0; i < num; i++) {
+					DatabaseEntry found = new DatabaseEntry();
+					assertEquals(OperationStatus.SUCCESS, db.get(null, key(i), found, null));
+					assertArrayEquals(data(i).getData(), found.getData());
+				}
+				assertTrue(db.get(null, key(num), new DatabaseEntry(), null) ==
+						OperationStatus.NOTFOUND);
+			} finally {
+				db.close();
+			}
+		} finally {
+			env.close();
+		}
+		assertNotNull(dir.list());
+	}
+
+	private static DatabaseEntry key(int i) {
+		return new DatabaseEntry(String.format("/test/%08d", i).getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static DatabaseEntry data(int i) {
+		byte[] data = new byte[DATA_SIZE];
+		for (int j = 0; j < data.length; j++) {
+			data[j] = (byte)(i + j);
+		}
+		return new DatabaseEntry(data);
+	}
+
+}
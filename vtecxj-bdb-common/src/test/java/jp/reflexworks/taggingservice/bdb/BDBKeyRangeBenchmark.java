@@ -0,0 +1,169 @@
+package jp.reflexworks.taggingservice.bdb;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.sleepycat.je.Cursor;
+import com.sleepycat.je.Database;
+import com.sleepycat.je.DatabaseConfig;
+import com.sleepycat.je.DatabaseEntry;
+import com.sleepycat.je.Environment;
+import com.sleepycat.je.EnvironmentConfig;
+import com.sleepycat.je.OperationStatus;
+
+import jp.reflexworks.taggingservice.model.BDBCondition;
+
+/**
+ * キー範囲判定ベンチマーク.
+ * <p>
+ * 一時ディレクトリに合成したキーのDBを作成し、範囲検索のカーソル走査で
+ * キーを文字列に変換して判定する従来の方法と、バイト配列のまま判定する方法を比較する。
+ * テストクラスのコンパイル後、mainメソッドを実行する。
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BDBKeyRangeBenchmark {
+
+	/** キー数 */
+	@Param("1000000")
+	public int keyNum;
+
+	/** 親キー (マルチバイト文字を含む) */
+	private static final String PARENT = "/データ/entry";
+
+	private File dir;
+	private Environment env;
+	private Database db;
+	private String startKeyStr;
+	private String endKeyStr;
+	private BDBKeyRange keyRange;
+
+	@Setup
+	public void setup() throws IOException {
+		dir = Files.createTempDirectory("bdbkeyrange").toFile();
+		EnvironmentConfig envConfig = new EnvironmentConfig();
+		envConfig.setAllowCreate(true);
+		envConfig.setTransactional(false);
+		env = new Environment(dir, envConfig);
+		DatabaseConfig dbConfig = new DatabaseConfig();
+		dbConfig.setAllowCreate(true);
+		dbConfig.setDeferredWrite(true);
+		db = env.openDatabase(null, "keyrange", dbConfig);
+
+		DatabaseEntry data = new DatabaseEntry(new byte[64]);
+		for (int i = 0; i < keyNum; i++) {
+			db.put(null, BDBUtil.getDbKey(key(i)), data);
+		}
+		db.sync();
+
+		// 全体の1/5を範囲とする
+		startKeyStr = key(keyNum * 2 / 5);
+		endKeyStr = key(keyNum * 3 / 5);
+		keyRange = new BDBKeyRange(new BDBCondition(startKeyStr, endKeyStr, null));
+	}
+
+	@TearDown
+	public void tearDown() {
+		db.close();
+		env.close();
+		File[] files = dir.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		dir.delete();
+	}
+
+	/**
+	 * 従来の判定. キーを文字列に変換して比較する。
+	 */
+	@Benchmark
+	public int scanString() {
+		int cnt = 0;
+		try (Cursor cursor = db.openCursor(null, BDBConst.CURSOR_CONFIG)) {
+			DatabaseEntry foundKey = BDBUtil.getDbKey(startKeyStr);
+			DatabaseEntry foundData = new DatabaseEntry();
+			OperationStatus retVal = cursor.getSearchKeyRange(foundKey, foundData,
+					BDBConst.LOCK_MODE);
+			while (retVal == OperationStatus.SUCCESS) {
+				String foundKeyStr = new String(foundKey.getData(), foundKey.getOffset(),
+						foundKey.getSize(), StandardCharsets.UTF_8);
+				if (endKeyStr.compareTo(foundKeyStr) <= 0) {
+					break;
+				}
+				cnt++;
+				retVal = cursor.getNext(foundKey, foundData, BDBConst.LOCK_MODE);
+			}
+		}
+		return cnt;
+	}
+
+	/**
+	 * バイト配列のまま判定.
+	 */
+	@Benchmark
+	public int scanBytes() {
+		int cnt = 0;
+		try (Cursor cursor = db.openCursor(null, BDBConst.CURSOR_CONFIG)) {
+			DatabaseEntry foundKey = BDBUtil.getDbKey(startKeyStr);
+			DatabaseEntry foundData = new DatabaseEntry();
+			OperationStatus retVal = cursor.getSearchKeyRange(foundKey, foundData,
+					BDBConst.LOCK_MODE);
+			while (retVal == OperationStatus.SUCCESS) {
+				if (!keyRange.isInRange(foundKey)) {
+					break;
+				}
+				cnt++;
+				retVal = cursor.getNext(foundKey, foundData, BDBConst.LOCK_MODE);
+			}
+		}
+		return cnt;
+	}
+
+	/**
+	 * キーを生成.
+	 * @param i 番号
+	 * @return キー
+	 */
+	private static String key(int i) {
+		return PARENT + BDBConst.INDEX_SELF + String.format("%08d", i);
+	}
+
+	/**
+	 * ベンチマーク実行.
+	 * @param args 引数
+	 */
+	public static void main(String[] args) throws RunnerException {
+		Options options = new OptionsBuilder()
+				.include(BDBKeyRangeBenchmark.class.getSimpleName())
+				.build();
+		new Runner(options).run();
+	}
+
+}
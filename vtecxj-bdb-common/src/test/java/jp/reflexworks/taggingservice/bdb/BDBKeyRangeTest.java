@@ -0,0 +1,209 @@
+package jp.reflexworks.taggingservice.bdb;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.sleepycat.je.DatabaseEntry;
+
+import jp.reflexworks.taggingservice.model.BDBCondition;
+import jp.sourceforge.reflex.util.StringUtils;
+
+/**
+ * キー範囲判定テスト.
+ * <p>
+ * バイト配列での判定結果が、従来の文字列での判定結果と一致することを確認する。
+ * </p>
+ */
+public class BDBKeyRangeTest {
+
+	/** インデックスの区切り文字 */
+	private static final String SELF = BDBConst.INDEX_SELF;
+
+	/** キーに使用する文字 (1バイト〜4バイトのUTF-8、U+E000以上のBMP文字と補助文字を含む) */
+	private static final String[] CHARS = {
+			SELF, "\u0002", "/", "0", "a", "b", "\u007f", "\u0080", "\u07ff", "\u0800",
+			"\u3042", "\u3044", "\ud7ff", "\ue000", "\uff01", "\ufffe", "\uffff",
+			"\ud800\udc00", "\ud840\udc0b", "\udbff\udfff"};
+
+	@Test
+	public void testCompare() {
+		List<String> keys = createKeys(new Random(1), 300);
+		for (String key1 : keys) {
+			byte[] b1 = bytes(key1);
+			for (String key2 : keys) {
+				byte[] b2 = bytes(key2);
+				assertEquals(key1 + " : " + key2, Integer.signum(key1.compareTo(key2)),
+						Integer.signum(BDBKeyRange.compare(b1, 0, b1.length, b2, 0, b2.length)));
+			}
+		}
+	}
+
+	@Test
+	public void testBoundary() {
+		BDBKeyRange range = new BDBKeyRange(new BDBCondition("/a", "/b", null));
+		assertTrue(range.isInRange(entry("/a")));
+		assertTrue(range.isInRange(entry("/a\uffff")));
+		assertTrue(range.isInRange(entry("/a\ud840\udc0b")));
+		assertFalse(range.isInRange(entry("/b")));
+		assertFalse(range.isInRange(entry("/b" + SELF)));
+
+		// 補助文字はU+E000以上のBMP文字より小さい
+		range = new BDBKeyRange(new BDBCondition("/", "/\uff01", null));
+		assertTrue(range.isInRange(entry("/\ud840\udc0b")));
+		assertTrue(range.isInRange(entry("/\ue000")));
+		assertFalse(range.isInRange(entry("/\uff01")));
+		assertFalse(range.isInRange(entry("/\uffff")));
+
+		// 終了キーを含まない (2番目の区切り文字までを比較)
+		range = new BDBKeyRange(new BDBCondition("/a" + SELF, "/a" + SELF + "v\u0002", null,
+				false, true));
+		assertFalse(range.isInRange(entry("/a" + SELF + "v" + SELF + "1")));
+		assertTrue(range.isInRange(entry("/a" + SELF + "u" + SELF + "1")));
+		range = new BDBKeyRange(new BDBCondition("/a" + SELF, "/a" + SELF + "v" + SELF + "x\u0002",
+				null, false, true));
+		assertTrue(range.isInRange(entry("/a" + SELF + "v" + SELF + "x")));
+
+		// 開始キーを含まない
+		range = new BDBKeyRange(new BDBCondition("/a", null, null, true, false));
+		assertTrue(range.isExcludedStartKey(entry("/a" + SELF + "1")));
+		assertFalse(range.isExcludedStartKey(entry("/a")));
+		assertFalse(range.isExcludedStartKey(entry("/ab" + SELF + "1")));
+	}
+
+	@Test
+	public void testSameAsString() {
+		Random random = new Random(2);
+		List<String> keys = createKeys(random, 200);
+		List<String> foundKeys = new ArrayList<>(keys);
+		// インデックス形式のキー (名前、区切り文字、値、区切り文字、ID)
+		for (int i = 0; i < 200; i++) {
+			foundKeys.add(randomKey(random, 3) + SELF + randomKey(random, 3) + SELF +
+					randomKey(random, 2));
+		}
+		List<String> endKeys = new ArrayList<>();
+		endKeys.add(null);
+		endKeys.add("");
+		for (String key : keys) {
+			// 末尾の1文字を除いた判定を行うため、補助文字で終わるキーは終了キーにしない
+			if (!key.isEmpty() && !Character.isLowSurrogate(key.charAt(key.length() - 1))) {
+				endKeys.add(key);
+			}
+		}
+
+		int checked = 0;
+		for (int i = 0; i < keys.size(); i++) {
+			String startKey = keys.get(i);
+			String endKey = endKeys.get(i % endKeys.size());
+			for (boolean excludeStartKey : new boolean[]{false, true}) {
+				for (boolean excludeEndKey : new boolean[]{false, true}) {
+					BDBCondition condition = new BDBCondition(startKey, endKey, null,
+							excludeStartKey, excludeEndKey);
+					BDBKeyRange range = new BDBKeyRange(condition);
+					for (String foundKey : foundKeys) {
+						String msg = condition + " foundKey=" + foundKey;
+						DatabaseEntry found = entry(foundKey);
+						if (excludeStartKey) {
+							assertEquals(msg, isExcludedStartKey(foundKey, startKey),
+									range.isExcludedStartKey(found));
+						}
+						Boolean expected = isIntheRange(foundKey, endKey, excludeEndKey);
+						if (expected != null) {
+							assertEquals(msg, expected, range.isInRange(found));
+							checked++;
+						}
+					}
+				}
+			}
+		}
+		assertTrue(checked > 0);
+	}
+
+	/**
+	 * 従来の開始キーを含まない場合の判定 (BDBQuery).
+	 */
+	private static boolean isExcludedStartKey(String searchKeyStr, String keyStr) {
+		int keyLen = keyStr.length();
+		return searchKeyStr.startsWith(keyStr) &&
+				searchKeyStr.length() > keyLen &&
+				SELF.equals(searchKeyStr.substring(keyLen, keyLen + 1));
+	}
+
+	/**
+	 * 従来のキー範囲の判定 (BDBQuery).
+	 * @return 取得対象の場合true。従来の判定で例外となる場合null。
+	 */
+	private static Boolean isIntheRange(String foundKeyStr, String matchingEnd,
+			boolean excludeEndKey) {
+		if (StringUtils.isBlank(matchingEnd)) {
+			return true;
+		}
+		if (matchingEnd.compareTo(foundKeyStr) > 0) {
+			if (excludeEndKey) {
+				String tmpMatchingEnd = matchingEnd.substring(0, matchingEnd.length() - 1);
+				int idx1 = foundKeyStr.indexOf(SELF);
+				int idx2 = foundKeyStr.indexOf(SELF, idx1 + 1);
+				if (idx2 < 0) {
+					return null;
+				}
+				String tmpFoundKeyStr = foundKeyStr.substring(0, idx2);
+				if (tmpFoundKeyStr.startsWith(tmpMatchingEnd)) {
+					return false;
+				}
+			}
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * キーを生成.
+	 * 共通の接頭辞を持つキーが多くなるよう、生成済みのキーに文字を追加したキーを含める。
+	 */
+	private static List<String> createKeys(Random random, int num) {
+		List<String> keys = new ArrayList<>();
+		keys.add("");
+		for (String c : CHARS) {
+			keys.add(c);
+		}
+		while (keys.size() < num) {
+			String base = keys.get(random.nextInt(keys.size()));
+			keys.add(base + randomKey(random, 3));
+		}
+		return keys;
+	}
+
+	private static String randomKey(Random random, int maxLen) {
+		StringBuilder sb = new StringBuilder();
+		int len = 1 + random.nextInt(maxLen);
+		for (int i = 0; i < len; i++) {
+			sb.append(CHARS[random.nextInt(CHARS.length)]);
+		}
+		return sb.toString();
+	}
+
+	private static byte[] bytes(String key) {
+		return BDBUtil.getDbKey(key).getData();
+	}
+
+	/**
+	 * カーソルで取得したキーと同様、前後に余分な領域を持つDatabaseEntry.
+	 */
+	private static DatabaseEntry entry(String key) {
+		byte[] data = bytes(key);
+		byte[] buf = new byte[data.length + 6];
+		buf[0] = 'x';
+		buf[1] = 'x';
+		buf[2] = 'x';
+		System.arraycopy(data, 0, buf, 3, data.length);
+		buf[buf.length - 1] = 'y';
+		return new DatabaseEntry(buf, 3, data.length);
+	}
+
+}
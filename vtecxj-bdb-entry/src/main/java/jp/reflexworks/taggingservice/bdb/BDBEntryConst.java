@@ -8,6 +8,13 @@ import java.util.concurrent.CopyOnWriteArrayList;
  */
 public class BDBEntryConst {
 
+	/** メモリ上のstaticオブジェクト格納キー : グループコミット待ちキューMap */
+	static final String STATIC_NAME_GROUPCOMMIT_QUEUE_MAP = "_bdbentry_groupcommit_queue_map";
+	/** メモリ上のstaticオブジェクト格納キー : グループコミット統計情報 */
+	static final String STATIC_NAME_GROUPCOMMIT_STATS = "_bdbentry_groupcommit_stats";
+	/** メモリ上のstaticオブジェクト格納キー : 条件指定のEntry複数取得用ResourceMapper保持Map */
+	static final String STATIC_NAME_FILTER_MAPPER_MAP = "_bdbentry_filter_mapper_map";
+
 	/** `DBEntry` : Entry */
 	static final String DB_ENTRY = "DBEntry";
 
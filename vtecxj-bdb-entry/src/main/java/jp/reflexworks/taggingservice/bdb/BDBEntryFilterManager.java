@@ -0,0 +1,193 @@
+package jp.reflexworks.taggingservice.bdb;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jp.reflexworks.atom.entry.EntryBase;
+import jp.reflexworks.atom.mapper.FeedTemplateMapper;
+import jp.reflexworks.taggingservice.api.ReflexStatic;
+import jp.reflexworks.taggingservice.conn.ReflexBDBConnectionInfo;
+import jp.reflexworks.taggingservice.env.ReflexEnvConst;
+import jp.reflexworks.taggingservice.exception.StaticDuplicatedException;
+import jp.reflexworks.taggingservice.model.EntryFilterInfo;
+import jp.reflexworks.taggingservice.model.ReflexBDBRequestInfo;
+import jp.reflexworks.taggingservice.plugin.ReflexPlugin;
+import jp.reflexworks.taggingservice.util.EntryFilterUtil;
+import jp.reflexworks.taggingservice.util.EntrySerializer;
+import jp.reflexworks.taggingservice.util.LogUtil;
+
+/**
+ * 条件指定のEntry複数取得管理クラス.
+ * <p>
+ * Entryサーバはサービスのテンプレートを保持しないため、リクエストで受け取ったテンプレートから
+ * ResourceMapperを生成し、サービスごとに保持する。テンプレートが変更された場合は再生成する。<br>
+ * Entryデータは復号せずにデシリアライズするため、暗号化項目の条件はリクエスト側で除くこと。
+ * デシリアライズできないEntryは条件に合致するものとして返却し、リクエスト側の判定に任せる。
+ * </p>
+ */
+public class BDBEntryFilterManager implements ReflexPlugin {
+
+	/** テンプレート定義の区切り文字 */
+	private static final String TEMPLATE_SEPARATOR = "\n";
+
+	/** ロガー. */
+	private Logger logger = LoggerFactory.getLogger(this.getClass());
+
+	/**
+	 * 初期処理.
+	 */
+	@Override
+	public void init() {
+		// 条件指定のEntry複数取得用ResourceMapper保持Mapを格納
+		// キー: サービス名、値: テンプレートとResourceMapper
+		ConcurrentMap<String, FilterMapper> mapperMap =
+				new ConcurrentHashMap<String, FilterMapper>();
+		try {
+			ReflexStatic.setStatic(BDBEntryConst.STATIC_NAME_FILTER_MAPPER_MAP, mapperMap);
+		} catch (StaticDuplicatedException e) {
+			logger.warn("[init] StaticDuplicatedException: " +
+					BDBEntryConst.STATIC_NAME_FILTER_MAPPER_MAP, e);
+		}
+	}
+
+	/**
+	 * シャットダウン処理.
+	 */
+	@Override
+	public void close() {
+		// Do nothing.
+	}
+
+	/**
+	 * 取得したEntryデータを条件で絞り込む.
+	 * @param ids IDリスト
+	 * @param dataList Entryのバイト配列データリスト (IDリストと同じ順序)
+	 * @param filterInfo 条件指定のEntry複数取得リクエストの読み込み結果
+	 * @param serviceName サービス名
+	 * @param requestInfo リクエスト情報
+	 * @param connectionInfo コネクション情報
+	 * @return 条件に合致しないEntryデータをnullにしたデータリスト (IDリストと同じ順序)
+	 */
+	public List<byte[]> filter(List<String> ids, List<byte[]> dataList,
+			EntryFilterInfo filterInfo, String serviceName,
+			ReflexBDBRequestInfo requestInfo, ReflexBDBConnectionInfo connectionInfo)
+	throws IOException {
+		if (dataList == null || filterInfo == null || !filterInfo.hasConditions()) {
+			return dataList;
+		}
+		FeedTemplateMapper mapper = getMapper(filterInfo, serviceName, requestInfo);
+		if (mapper == null) {
+			return dataList;
+		}
+		List<byte[]> retDataList = new ArrayList<>(dataList.size());
+		for (int i = 0; i < dataList.size(); i++) {
+			byte[] data = dataList.get(i);
+			if (data == null || data.length == 0) {
+				retDataList.add(data);
+				continue;
+			}
+			boolean isMatch = true;
+			try {
+				EntryBase entry = EntrySerializer.deserializeEntry(mapper, data, null,
+						connectionInfo.getDeflateUtil());
+				if (entry != null) {
+					isMatch = EntryFilterUtil.isMatch(entry, filterInfo.getConditions());
+				}
+			} catch (IOException | RuntimeException e) {
+				// デシリアライズできない場合は返却する
+				if (logger.isDebugEnabled()) {
+					logger.debug(LogUtil.getRequestInfoStr(requestInfo) +
+							"[filter] deserialize error. id=" + ids.get(i) + " " +
+							e.getClass().getName() + ": " + e.getMessage());
+				}
+			}
+			retDataList.add(isMatch ? data : null);
+		}
+		return retDataList;
+	}
+
+	/**
+	 * 条件判定用のResourceMapperを取得.
+	 * 保持しているResourceMapperのテンプレートがリクエストと異なる場合は再生成する。
+	 * @param filterInfo 条件指定のEntry複数取得リクエストの読み込み結果
+	 * @param serviceName サービス名
+	 * @param requestInfo リクエスト情報
+	 * @return ResourceMapper。テンプレートが不正な場合null。
+	 */
+	private FeedTemplateMapper getMapper(EntryFilterInfo filterInfo, String serviceName,
+			ReflexBDBRequestInfo requestInfo) {
+		String templateKey = getTemplateKey(filterInfo);
+		ConcurrentMap<String, FilterMapper> mapperMap = getMapperMap();
+		FilterMapper filterMapper = mapperMap.get(serviceName);
+		if (filterMapper != null && filterMapper.templateKey.equals(templateKey)) {
+			return filterMapper.mapper;
+		}
+		try {
+			// 復号しないため暗号化キーは指定しない
+			FeedTemplateMapper mapper = new FeedTemplateMapper(filterInfo.getTemplate(),
+					filterInfo.getRights(), ReflexEnvConst.INDEX_LIMIT_DEFAULT, "");
+			mapperMap.put(serviceName, new FilterMapper(templateKey, mapper));
+			return mapper;
+
+		} catch (ParseException e) {
+			logger.warn(LogUtil.getRequestInfoStr(requestInfo) +
+					"[getMapper] ParseException: " + e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * テンプレートの比較用文字列を取得.
+	 * @param filterInfo 条件指定のEntry複数取得リクエストの読み込み結果
+	 * @return テンプレートの比較用文字列
+	 */
+	private String getTemplateKey(EntryFilterInfo filterInfo) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.join(TEMPLATE_SEPARATOR, filterInfo.getTemplate()));
+		sb.append(TEMPLATE_SEPARATOR);
+		sb.append(TEMPLATE_SEPARATOR);
+		if (filterInfo.getRights() != null) {
+			sb.append(String.join(TEMPLATE_SEPARATOR, filterInfo.getRights()));
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * static領域から条件指定のEntry複数取得用ResourceMapper保持Mapを取得.
+	 * @return 条件指定のEntry複数取得用ResourceMapper保持Map
+	 */
+	@SuppressWarnings("unchecked")
+	private ConcurrentMap<String, FilterMapper> getMapperMap() {
+		return (ConcurrentMap<String, FilterMapper>)ReflexStatic.getStatic(
+				BDBEntryConst.STATIC_NAME_FILTER_MAPPER_MAP);
+	}
+
+	/**
+	 * テンプレートとResourceMapper.
+	 */
+	private static class FilterMapper {
+
+		/** テンプレートの比較用文字列 */
+		private final String templateKey;
+		/** ResourceMapper */
+		private final FeedTemplateMapper mapper;
+
+		/**
+		 * コンストラクタ.
+		 * @param templateKey テンプレートの比較用文字列
+		 * @param mapper ResourceMapper
+		 */
+		FilterMapper(String templateKey, FeedTemplateMapper mapper) {
+			this.templateKey = templateKey;
+			this.mapper = mapper;
+		}
+	}
+
+}
@@ -0,0 +1,44 @@
+package jp.reflexworks.taggingservice.bdb;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import jp.reflexworks.taggingservice.api.ConnectionInfo;
+import jp.reflexworks.taggingservice.api.RequestInfo;
+
+/**
+ * グループコミット待ちの更新リクエスト情報.
+ */
+class BDBEntryGroupCommitInfo {
+
+	/** IDリスト */
+	final List<String> ids;
+	/** Entryのバイト配列データリスト */
+	final List<byte[]> dataList;
+	/** サービス名(ログ用) */
+	final String serviceName;
+	/** リクエスト情報 */
+	final RequestInfo requestInfo;
+	/** コネクション情報 */
+	final ConnectionInfo connectionInfo;
+	/** 更新結果 */
+	final CompletableFuture<Boolean> future = new CompletableFuture<>();
+
+	/**
+	 * コンストラクタ.
+	 * @param ids IDリスト
+	 * @param dataList Entryのバイト配列データリスト
+	 * @param serviceName サービス名(ログ用)
+	 * @param requestInfo リクエスト情報
+	 * @param connectionInfo コネクション情報
+	 */
+	BDBEntryGroupCommitInfo(List<String> ids, List<byte[]> dataList, String serviceName,
+			RequestInfo requestInfo, ConnectionInfo connectionInfo) {
+		this.ids = ids;
+		this.dataList = dataList;
+		this.serviceName = serviceName;
+		this.requestInfo = requestInfo;
+		this.connectionInfo = connectionInfo;
+	}
+
+}
@@ -0,0 +1,243 @@
+package jp.reflexworks.taggingservice.bdb;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jp.reflexworks.taggingservice.api.ConnectionInfo;
+import jp.reflexworks.taggingservice.api.ReflexStatic;
+import jp.reflexworks.taggingservice.api.RequestInfo;
+import jp.reflexworks.taggingservice.env.BDBEntryEnvUtil;
+import jp.reflexworks.taggingservice.exception.StaticDuplicatedException;
+import jp.reflexworks.taggingservice.exception.TaggingException;
+import jp.reflexworks.taggingservice.plugin.ReflexPlugin;
+import jp.reflexworks.taggingservice.util.LogUtil;
+
+/**
+ * グループコミット管理クラス.
+ * <p>
+ * 同じ名前空間への更新リクエストを指定時間待ち合わせ、1トランザクションでまとめてコミットする。
+ * 待ち時間(_bdb.entry.groupcommit.waitmillis)が0以下の場合はリクエストごとにコミットする。
+ * いずれの場合も、1トランザクションで更新するEntry数は_bdb.entry.groupcommit.batchsize件までとする。
+ * </p>
+ */
+public class BDBEntryGroupCommitManager implements ReflexPlugin {
+
+	/** ロガー. */
+	private Logger logger = LoggerFactory.getLogger(this.getClass());
+
+	/**
+	 * 初期処理.
+	 */
+	@Override
+	public void init() {
+		// グループコミット待ちキューMapを格納
+		// キー: 名前空間、値: グループコミット待ちキュー
+		ConcurrentMap<String, BDBEntryGroupCommitQueue> queueMap =
+				new ConcurrentHashMap<String, BDBEntryGroupCommitQueue>();
+		try {
+			ReflexStatic.setStatic(BDBEntryConst.STATIC_NAME_GROUPCOMMIT_QUEUE_MAP, queueMap);
+		} catch (StaticDuplicatedException e) {
+			logger.warn("[init] StaticDuplicatedException: " +
+					BDBEntryConst.STATIC_NAME_GROUPCOMMIT_QUEUE_MAP, e);
+		}
+		// グループコミット統計情報を格納
+		BDBEntryGroupCommitStats stats = new BDBEntryGroupCommitStats();
+		try {
+			ReflexStatic.setStatic(BDBEntryConst.STATIC_NAME_GROUPCOMMIT_STATS, stats);
+		} catch (StaticDuplicatedException e) {
+			logger.warn("[init] StaticDuplicatedException: " +
+					BDBEntryConst.STATIC_NAME_GROUPCOMMIT_STATS, e);
+		}
+	}
+
+	/**
+	 * シャットダウン処理.
+	 */
+	@Override
+	public void close() {
+		// Do nothing.
+	}
+
+	/**
+	 * Entry複数登録・更新.
+	 * グループコミットが有効な場合、同じ名前空間への他の更新リクエストとまとめてコミットする。
+	 * コミット完了後に返却する。
+	 * @param namespace 名前空間
+	 * @param ids IDリスト
+	 * @param dataList Entryのバイト配列データリスト (IDリストと同じ順序)
+	 * @param serviceName サービス名(ログ用)
+	 * @param requestInfo リクエスト情報
+	 * @param connectionInfo コネクション情報
+	 */
+	public void put(String namespace, List<String> ids, List<byte[]> dataList,
+			String serviceName, RequestInfo requestInfo, ConnectionInfo connectionInfo)
+	throws IOException, TaggingException {
+		BDBEntryManager bdbManager = new BDBEntryManager();
+		bdbManager.checkPutMultiple(ids, dataList);
+
+		int waitMillis = BDBEntryEnvUtil.getGroupCommitWaitMillis();
+		if (waitMillis <= 0) {
+			// リクエスト単位でコミット
+			int commitCnt = bdbManager.putMultiple(namespace, ids, dataList,
+					serviceName, requestInfo, connectionInfo);
+			addStats(commitCnt, ids.size(), 1);
+			return;
+		}
+
+		BDBEntryGroupCommitInfo info = new BDBEntryGroupCommitInfo(ids, dataList,
+				serviceName, requestInfo, connectionInfo);
+		BDBEntryGroupCommitQueue queue = getQueue(namespace);
+		queue.add(info);
+
+		// リーダーになれた場合、待ち時間経過後にキューに溜まった更新をまとめてコミットする。
+		// リーダー解除後に登録されたリクエストが取り残されないよう、キューが空になるまで繰り返す。
+		do {
+			if (!queue.tryLead()) {
+				break;
+			}
+			try {
+				BDBUtil.sleep(waitMillis);
+				commitGroup(namespace, queue, info);
+			} finally {
+				queue.release();
+			}
+		} while (!queue.isEmpty());
+
+		// コミット完了を待つ
+		try {
+			info.future.get();
+
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException)cause;
+			} else if (cause instanceof TaggingException) {
+				throw (TaggingException)cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException)cause;
+			} else if (cause instanceof Error) {
+				throw (Error)cause;
+			} else {
+				throw new IOException(cause);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException(e);
+		}
+	}
+
+	/**
+	 * キューに溜まった更新リクエストをまとめてコミットする.
+	 * まとめたコミットでエラーが発生した場合、エラーの発生したリクエストを特定するため
+	 * リクエストごとにコミットし直す。
+	 * <p>
+	 * コミットはリーダーのスレッドで実行するため、コネクション情報はリーダーのものを使用する。
+	 * (他のリクエストのコネクション情報は、そのリクエストのスレッドに属するため使用しない。)
+	 * まとめたコミットのログはリーダーのリクエスト情報で出力する。
+	 * リーダー自身の更新は、前のリーダーによりコミット済みの場合もある。
+	 * </p>
+	 * @param namespace 名前空間
+	 * @param queue グループコミット待ちキュー
+	 * @param leaderInfo リーダーの更新リクエスト情報
+	 */
+	private void commitGroup(String namespace, BDBEntryGroupCommitQueue queue,
+			BDBEntryGroupCommitInfo leaderInfo) {
+		List<BDBEntryGroupCommitInfo> infos = new ArrayList<>();
+		List<String> groupIds = new ArrayList<>();
+		List<byte[]> groupDataList = new ArrayList<>();
+		BDBEntryGroupCommitInfo info = null;
+		while ((info = queue.poll()) != null) {
+			infos.add(info);
+			groupIds.addAll(info.ids);
+			groupDataList.addAll(info.dataList);
+		}
+		if (infos.isEmpty()) {
+			return;
+		}
+
+		BDBEntryManager bdbManager = new BDBEntryManager();
+		try {
+			int commitCnt = bdbManager.putMultiple(namespace, groupIds, groupDataList,
+					leaderInfo.serviceName, leaderInfo.requestInfo, leaderInfo.connectionInfo);
+			addStats(commitCnt, groupIds.size(), infos.size());
+			for (BDBEntryGroupCommitInfo tmpInfo : infos) {
+				tmpInfo.future.complete(true);
+			}
+			return;
+
+		} catch (IOException | TaggingException | RuntimeException e) {
+			if (infos.size() == 1) {
+				infos.get(0).future.completeExceptionally(e);
+				return;
+			}
+			if (logger.isInfoEnabled()) {
+				StringBuilder sb = new StringBuilder();
+				sb.append(LogUtil.getRequestInfoStr(leaderInfo.requestInfo));
+				sb.append("[commitGroup] ");
+				sb.append(e.getClass().getSimpleName());
+				sb.append(": ");
+				sb.append(e.getMessage());
+				sb.append(" Retry by request. namespace=");
+				sb.append(namespace);
+				sb.append(", requests=");
+				sb.append(infos.size());
+				logger.info(sb.toString());
+			}
+		}
+
+		// リクエストごとにコミット
+		for (BDBEntryGroupCommitInfo tmpInfo : infos) {
+			try {
+				int commitCnt = bdbManager.putMultiple(namespace, tmpInfo.ids, tmpInfo.dataList,
+						tmpInfo.serviceName, tmpInfo.requestInfo, leaderInfo.connectionInfo);
+				addStats(commitCnt, tmpInfo.ids.size(), 1);
+				tmpInfo.future.complete(true);
+			} catch (IOException | TaggingException | RuntimeException e) {
+				tmpInfo.future.completeExceptionally(e);
+			}
+		}
+	}
+
+	/**
+	 * 名前空間のグループコミット待ちキューを取得.
+	 * 存在しない場合は生成する。
+	 * @param namespace 名前空間
+	 * @return グループコミット待ちキュー
+	 */
+	private BDBEntryGroupCommitQueue getQueue(String namespace) {
+		ConcurrentMap<String, BDBEntryGroupCommitQueue> queueMap =
+				(ConcurrentMap<String, BDBEntryGroupCommitQueue>)ReflexStatic.getStatic(
+						BDBEntryConst.STATIC_NAME_GROUPCOMMIT_QUEUE_MAP);
+		return queueMap.computeIfAbsent(namespace, k -> new BDBEntryGroupCommitQueue());
+	}
+
+	/**
+	 * 統計情報を加算.
+	 * @param commitCnt コミット数
+	 * @param entryCnt 更新Entry数
+	 * @param requestCnt 更新リクエスト数
+	 */
+	private void addStats(long commitCnt, long entryCnt, long requestCnt) {
+		BDBEntryGroupCommitStats stats = getStats();
+		if (stats != null) {
+			stats.add(commitCnt, entryCnt, requestCnt);
+		}
+	}
+
+	/**
+	 * グループコミット統計情報を取得.
+	 * @return グループコミット統計情報
+	 */
+	public BDBEntryGroupCommitStats getStats() {
+		return (BDBEntryGroupCommitStats)ReflexStatic.getStatic(
+				BDBEntryConst.STATIC_NAME_GROUPCOMMIT_STATS);
+	}
+
+}
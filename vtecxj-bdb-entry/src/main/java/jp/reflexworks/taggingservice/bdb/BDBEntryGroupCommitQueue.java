@@ -0,0 +1,57 @@
+package jp.reflexworks.taggingservice.bdb;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 名前空間ごとのグループコミット待ちキュー.
+ * キューに登録したスレッドのうち、リーダーとなった1スレッドがまとめてコミットする。
+ */
+class BDBEntryGroupCommitQueue {
+
+	/** コミット待ちリクエスト */
+	private final ConcurrentLinkedQueue<BDBEntryGroupCommitInfo> requests =
+			new ConcurrentLinkedQueue<>();
+	/** リーダースレッドが処理中の場合true */
+	private final AtomicBoolean leading = new AtomicBoolean(false);
+
+	/**
+	 * コミット待ちリクエストを登録.
+	 * @param info 更新リクエスト情報
+	 */
+	void add(BDBEntryGroupCommitInfo info) {
+		requests.add(info);
+	}
+
+	/**
+	 * コミット待ちリクエストを1件取り出す.
+	 * @return 更新リクエスト情報。キューが空の場合null。
+	 */
+	BDBEntryGroupCommitInfo poll() {
+		return requests.poll();
+	}
+
+	/**
+	 * コミット待ちリクエストが存在しないかどうか.
+	 * @return コミット待ちリクエストが存在しない場合true
+	 */
+	boolean isEmpty() {
+		return requests.isEmpty();
+	}
+
+	/**
+	 * リーダーになる.
+	 * @return リーダーになれた場合true。他スレッドがリーダーの場合false。
+	 */
+	boolean tryLead() {
+		return leading.compareAndSet(false, true);
+	}
+
+	/**
+	 * リーダーを解除する.
+	 */
+	void release() {
+		leading.set(false);
+	}
+
+}
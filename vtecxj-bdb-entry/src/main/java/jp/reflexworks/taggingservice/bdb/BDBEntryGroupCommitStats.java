@@ -0,0 +1,76 @@
+package jp.reflexworks.taggingservice.bdb;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import jp.reflexworks.atom.entry.EntryBase;
+import jp.reflexworks.taggingservice.util.TaggingEntryUtil;
+
+/**
+ * グループコミット統計情報.
+ */
+public class BDBEntryGroupCommitStats {
+
+	/** 統計開始日時 */
+	private final long startTime = new Date().getTime();
+	/** コミット数 */
+	private final LongAdder commits = new LongAdder();
+	/** 更新Entry数 */
+	private final LongAdder entries = new LongAdder();
+	/** 更新リクエスト数 */
+	private final LongAdder requests = new LongAdder();
+
+	/**
+	 * 統計情報を加算.
+	 * @param commitCnt コミット数
+	 * @param entryCnt 更新Entry数
+	 * @param requestCnt 更新リクエスト数
+	 */
+	void add(long commitCnt, long entryCnt, long requestCnt) {
+		commits.add(commitCnt);
+		entries.add(entryCnt);
+		requests.add(requestCnt);
+	}
+
+	/**
+	 * 統計情報をEntryリストで取得.
+	 * titleに項目名、summaryに値を設定する。
+	 * @return 統計情報
+	 */
+	public List<EntryBase> getStatsEntries() {
+		long commitCnt = commits.sum();
+		long entryCnt = entries.sum();
+		long requestCnt = requests.sum();
+		long elapsedMillis = Math.max(new Date().getTime() - startTime, 1);
+
+		List<EntryBase> statsEntries = new ArrayList<>();
+		statsEntries.add(createStatsEntry("groupcommit.commits", String.valueOf(commitCnt)));
+		statsEntries.add(createStatsEntry("groupcommit.entries", String.valueOf(entryCnt)));
+		statsEntries.add(createStatsEntry("groupcommit.requests", String.valueOf(requestCnt)));
+		statsEntries.add(createStatsEntry("groupcommit.commits_per_sec",
+				String.valueOf((double)commitCnt * 1000 / elapsedMillis)));
+		double avgBatchSize = 0;
+		if (commitCnt > 0) {
+			avgBatchSize = (double)entryCnt / commitCnt;
+		}
+		statsEntries.add(createStatsEntry("groupcommit.avg_batch_size",
+				String.valueOf(avgBatchSize)));
+		return statsEntries;
+	}
+
+	/**
+	 * 統計情報Entryを生成.
+	 * @param name 項目名
+	 * @param value 値
+	 * @return 統計情報Entry
+	 */
+	private EntryBase createStatsEntry(String name, String value) {
+		EntryBase entry = TaggingEntryUtil.createAtomEntry();
+		entry.title = name;
+		entry.summary = value;
+		return entry;
+	}
+
+}
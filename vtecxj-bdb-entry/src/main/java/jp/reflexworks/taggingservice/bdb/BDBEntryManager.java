@@ -1,6 +1,7 @@
 package jp.reflexworks.taggingservice.bdb;
 
 import java.io.IOException;
+import java.util.List;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -11,6 +12,7 @@ import com.sleepycat.je.DatabaseException;
 import jp.reflexworks.atom.entry.FeedBase;
 import jp.reflexworks.taggingservice.api.ConnectionInfo;
 import jp.reflexworks.taggingservice.api.RequestInfo;
+import jp.reflexworks.taggingservice.env.BDBEntryEnvUtil;
 import jp.reflexworks.taggingservice.env.BDBEnvManager;
 import jp.reflexworks.taggingservice.env.BDBEnvUtil;
 import jp.reflexworks.taggingservice.exception.IllegalParameterException;
@@ -55,9 +57,10 @@ public class BDBEntryManager {
 		int numRetries = BDBEnvUtil.getBDBRetryCount();
 		int waitMillis = BDBEnvUtil.getBDBRetryWaitmillis();
 		for (int r = 0; r <= numRetries; r++) {
+			BDBEnv bdbEnv = null;
 			try {
 				// BDB環境情報取得
-				BDBEnv bdbEnv = getBDBEnvByNamespace(namespace, true);
+				bdbEnv = getBDBEnvByNamespace(namespace, true);
 
 				BDBDatabase dbEntry = bdbEnv.getDb(BDBEntryConst.DB_ENTRY);
 				ByteArrayBinding byteArrayBinding = BDBUtil.getByteArrayBinding();
@@ -97,6 +100,133 @@ public class BDBEntryManager {
 							"[put] " + ReflexBDBLogUtil.getRetryLog(e, r));
 				}
 				BDBUtil.sleep(waitMillis + r * 10);
+			} finally {
+				BDBUtil.releaseBDBEnv(bdbEnv);
+			}
+		}
+		throw new IllegalStateException("Unreachable code.");
+	}
+
+	/**
+	 * Entry複数登録・更新.
+	 * 指定件数ごとに1トランザクションでまとめて登録し、コミットする。
+	 * @param namespace 名前空間
+	 * @param ids IDリスト
+	 * @param dataList Entryのバイト配列データリスト (IDリストと同じ順序)
+	 * @param serviceName サービス名(ログ用)
+	 * @param requestInfo リクエスト情報
+	 * @param connectionInfo コネクション情報
+	 * @return コミット回数
+	 */
+	public int putMultiple(String namespace, List<String> ids, List<byte[]> dataList,
+			String serviceName, RequestInfo requestInfo, ConnectionInfo connectionInfo)
+	throws IOException, TaggingException {
+		checkPutMultiple(ids, dataList);
+
+		int size = ids.size();
+		int batchSize = BDBEntryEnvUtil.getGroupCommitBatchSize();
+		int commitCnt = 0;
+		for (int fromIdx = 0; fromIdx < size; fromIdx += batchSize) {
+			int toIdx = Math.min(fromIdx + batchSize, size);
+			putBatch(namespace, ids.subList(fromIdx, toIdx), dataList.subList(fromIdx, toIdx),
+					serviceName, requestInfo, connectionInfo);
+			commitCnt++;
+		}
+		return commitCnt;
+	}
+
+	/**
+	 * Entry複数登録・更新の入力チェック.
+	 * @param ids IDリスト
+	 * @param dataList Entryのバイト配列データリスト
+	 */
+	public void checkPutMultiple(List<String> ids, List<byte[]> dataList) {
+		if (ids == null || ids.isEmpty()) {
+			throw new IllegalParameterException("ID is required.");
+		}
+		if (dataList == null || dataList.size() != ids.size()) {
+			throw new IllegalParameterException("Entry data is required.");
+		}
+		int size = ids.size();
+		for (int i = 0; i < size; i++) {
+			if (StringUtils.isBlank(ids.get(i))) {
+				throw new IllegalParameterException("ID is required.");
+			}
+			byte[] data = dataList.get(i);
+			if (data == null || data.length == 0) {
+				throw new IllegalParameterException("Entry data is required. " + ids.get(i));
+			}
+		}
+	}
+
+	/**
+	 * Entry複数登録・更新.
+	 * 指定された全てのEntryを1トランザクションで登録し、コミットする。
+	 * @param namespace 名前空間
+	 * @param ids IDリスト
+	 * @param dataList Entryのバイト配列データリスト (IDリストと同じ順序)
+	 * @param serviceName サービス名(ログ用)
+	 * @param requestInfo リクエスト情報
+	 * @param connectionInfo コネクション情報
+	 */
+	private void putBatch(String namespace, List<String> ids, List<byte[]> dataList,
+			String serviceName, RequestInfo requestInfo, ConnectionInfo connectionInfo)
+	throws IOException, TaggingException {
+		String firstId = ids.get(0);
+		int numRetries = BDBEnvUtil.getBDBRetryCount();
+		int waitMillis = BDBEnvUtil.getBDBRetryWaitmillis();
+		for (int r = 0; r <= numRetries; r++) {
+			String currentId = firstId;
+			BDBEnv bdbEnv = null;
+			try {
+				// BDB環境情報取得
+				bdbEnv = getBDBEnvByNamespace(namespace, true);
+
+				BDBDatabase dbEntry = bdbEnv.getDb(BDBEntryConst.DB_ENTRY);
+				ByteArrayBinding byteArrayBinding = BDBUtil.getByteArrayBinding();
+
+				// トランザクション開始
+				BDBTransaction bdbTxn = bdbEnv.beginTransaction();
+				try {
+					BDBPut<byte[]> bdbPut = new BDBPut<>();
+					int i = 0;
+					for (String id : ids) {
+						currentId = id;
+						bdbPut.put(serviceName, bdbTxn, dbEntry, byteArrayBinding, id,
+								dataList.get(i), requestInfo, connectionInfo);
+						i++;
+					}
+
+					// コミット
+					bdbTxn.commit();
+					bdbTxn = null;
+
+				} finally {
+					if (bdbTxn != null) {
+						try {
+							bdbTxn.abort();
+						} catch (DatabaseException e) {
+							logger.warn(LogUtil.getRequestInfoStr(requestInfo) +
+									"[putBatch] " + e.getClass().getName(), e);
+						}
+					}
+				}
+				return;
+
+			} catch (DatabaseException e) {
+				// リトライ判定、入力エラー判定
+				BDBUtil.convertError(e, currentId, requestInfo);
+				if (r >= numRetries) {
+					// リトライ対象だがリトライ回数を超えた場合
+					BDBUtil.convertIOError(e, currentId);
+				}
+				if (logger.isInfoEnabled()) {
+					logger.info(LogUtil.getRequestInfoStr(requestInfo) +
+							"[putBatch] " + ReflexBDBLogUtil.getRetryLog(e, r));
+				}
+				BDBUtil.sleep(waitMillis + r * 10);
+			} finally {
+				BDBUtil.releaseBDBEnv(bdbEnv);
 			}
 		}
 		throw new IllegalStateException("Unreachable code.");
@@ -120,9 +250,10 @@ public class BDBEntryManager {
 		int numRetries = BDBEnvUtil.getBDBRetryCount();
 		int waitMillis = BDBEnvUtil.getBDBRetryWaitmillis();
 		for (int r = 0; r <= numRetries; r++) {
+			BDBEnv bdbEnv = null;
 			try {
 				// BDB環境情報取得
-				BDBEnv bdbEnv = getBDBEnvByNamespace(namespace, true);
+				bdbEnv = getBDBEnvByNamespace(namespace, true);
 
 				BDBDatabase dbEntry = bdbEnv.getDb(BDBEntryConst.DB_ENTRY);
 
@@ -161,6 +292,8 @@ public class BDBEntryManager {
 							"[delete] " + ReflexBDBLogUtil.getRetryLog(e, r));
 				}
 				BDBUtil.sleep(waitMillis + r * 10);
+			} finally {
+				BDBUtil.releaseBDBEnv(bdbEnv);
 			}
 		}
 		throw new IllegalStateException("Unreachable code.");
@@ -184,9 +317,10 @@ public class BDBEntryManager {
 		int numRetries = BDBEnvUtil.getBDBRetryCount();
 		int waitMillis = BDBEnvUtil.getBDBRetryWaitmillis();
 		for (int r = 0; r <= numRetries; r++) {
+			BDBEnv bdbEnv = null;
 			try {
 				// BDB環境情報取得
-				BDBEnv bdbEnv = getBDBEnvByNamespace(namespace, true);
+				bdbEnv = getBDBEnvByNamespace(namespace, true);
 
 				BDBDatabase dbEntry = bdbEnv.getDb(BDBEntryConst.DB_ENTRY);
 				ByteArrayBinding byteArrayBinding = BDBUtil.getByteArrayBinding();
@@ -206,6 +340,64 @@ public class BDBEntryManager {
 							"[get] " + ReflexBDBLogUtil.getRetryLog(e, r));
 				}
 				BDBUtil.sleep(waitMillis + r * 10);
+			} finally {
+				BDBUtil.releaseBDBEnv(bdbEnv);
+			}
+		}
+		throw new IllegalStateException("Unreachable code.");
+	}
+
+	/**
+	 * Entry複数取得.
+	 * IDをキー順にソートし、1つのカーソルで検索する。
+	 * @param namespace 名前空間
+	 * @param ids IDリスト
+	 * @param serviceName サービス名(ログ用)
+	 * @param requestInfo リクエスト情報
+	 * @param connectionInfo コネクション情報
+	 * @return Entryバイト配列リスト。IDリストと同じ順序で返却する。存在しないEntryはnull。
+	 */
+	public List<byte[]> getMultiple(String namespace, List<String> ids, String serviceName,
+			RequestInfo requestInfo, ConnectionInfo connectionInfo)
+	throws IOException, TaggingException {
+		if (ids == null || ids.isEmpty()) {
+			throw new IllegalParameterException("ID is required.");
+		}
+		for (String id : ids) {
+			if (StringUtils.isBlank(id)) {
+				throw new IllegalParameterException("ID is required.");
+			}
+		}
+
+		int numRetries = BDBEnvUtil.getBDBRetryCount();
+		int waitMillis = BDBEnvUtil.getBDBRetryWaitmillis();
+		for (int r = 0; r <= numRetries; r++) {
+			BDBEnv bdbEnv = null;
+			try {
+				// BDB環境情報取得
+				bdbEnv = getBDBEnvByNamespace(namespace, true);
+
+				BDBDatabase dbEntry = bdbEnv.getDb(BDBEntryConst.DB_ENTRY);
+				ByteArrayBinding byteArrayBinding = BDBUtil.getByteArrayBinding();
+				BDBGetMultiple<byte[]> bdbGetMultiple = new BDBGetMultiple<>();
+				return bdbGetMultiple.getMultiple(serviceName, null, dbEntry, byteArrayBinding,
+						BDBUtil.getLockMode(), ids, requestInfo, connectionInfo);
+
+			} catch (DatabaseException e) {
+				// リトライ判定、入力エラー判定
+				String id = ids.get(0);
+				BDBUtil.convertError(e, id, requestInfo);
+				if (r >= numRetries) {
+					// リトライ対象だがリトライ回数を超えた場合
+					BDBUtil.convertIOError(e, id);
+				}
+				if (logger.isInfoEnabled()) {
+					logger.info(LogUtil.getRequestInfoStr(requestInfo) +
+							"[getMultiple] " + ReflexBDBLogUtil.getRetryLog(e, r));
+				}
+				BDBUtil.sleep(waitMillis + r * 10);
+			} finally {
+				BDBUtil.releaseBDBEnv(bdbEnv);
 			}
 		}
 		throw new IllegalStateException("Unreachable code.");
@@ -241,11 +433,12 @@ public class BDBEntryManager {
 		int numRetries = BDBEnvUtil.getBDBRetryCount();
 		int waitMillis = BDBEnvUtil.getBDBRetryWaitmillis();
 		for (int r = 0; r <= numRetries; r++) {
+			BDBEnv bdbEnv = null;
 			try {
 				// テーブル判定
 				BDBDatabase db = null;
 				EntryBinding<?> binding = null;
-				BDBEnv bdbEnv = getBDBEnvByNamespace(namespace);
+				bdbEnv = getBDBEnvByNamespace(namespace);
 				if (bdbEnv == null) {
 					return null;
 				}
@@ -262,8 +455,15 @@ public class BDBEntryManager {
 				String keyend = IndexUtil.getEndKeyStr(keyprefix);
 				BDBCondition bdbCondition = new BDBCondition(keyprefix, keyend, pointerStr);
 
-				FetchInfo<?> fetchInfo = bdbQuery.getByQuery(namespace, null, db, binding,
-						bdbCondition, limit, requestInfo);
+				FetchInfo<?> fetchInfo = null;
+				if (param.getOption(BDBEntryRequestParam.PARAM_COUNT) != null) {
+					// 件数取得はキーのみ参照
+					fetchInfo = bdbQuery.countByQuery(namespace, null, db, bdbCondition,
+							limit, requestInfo);
+				} else {
+					fetchInfo = bdbQuery.getByQuery(namespace, null, db, binding,
+							bdbCondition, limit, requestInfo);
+				}
 				return fetchInfo;
 
 			} catch (DatabaseException e) {
@@ -278,6 +478,8 @@ public class BDBEntryManager {
 							"[getList] " + ReflexBDBLogUtil.getRetryLog(e, r));
 				}
 				BDBUtil.sleep(waitMillis + r * 10);
+			} finally {
+				BDBUtil.releaseBDBEnv(bdbEnv);
 			}
 		}
 		throw new IllegalStateException("Unreachable code.");
@@ -299,14 +501,22 @@ public class BDBEntryManager {
 	 * @param param テーブル名
 	 * @param requestInfo リクエスト情報
 	 * @param connectionInfo コネクション情報
-	 * @return BDB環境統計情報 (Feedのsubtitleに設定)
+	 * @return BDB環境統計情報 (Feedのsubtitleに設定)。
+	 *         グループコミット統計情報はentryのtitleに項目名、summaryに値を設定。
 	 */
 	public FeedBase getStats(String namespace, BDBEntryRequestParam param,
 			RequestInfo requestInfo, ConnectionInfo connectionInfo)
 	throws IOException, TaggingException {
 		BDBEnvManager bdbEnvManager = new BDBEnvManager();
-		return bdbEnvManager.getStatsByNamespace(BDBEntryConst.DB_NAMES, namespace,
+		FeedBase retFeed = bdbEnvManager.getStatsByNamespace(BDBEntryConst.DB_NAMES, namespace,
 				requestInfo, connectionInfo);
+		// グループコミット統計情報
+		BDBEntryGroupCommitManager groupCommitManager = new BDBEntryGroupCommitManager();
+		BDBEntryGroupCommitStats groupCommitStats = groupCommitManager.getStats();
+		if (groupCommitStats != null) {
+			retFeed.entry = groupCommitStats.getStatsEntries();
+		}
+		return retFeed;
 	}
 
 	/**
@@ -349,6 +559,7 @@ public class BDBEntryManager {
 
 	/**
 	 * 名前空間からBDB環境情報を取得.
+	 * 使用後は{@link BDBUtil#releaseBDBEnv(BDBEnv)}を呼び出すこと。
 	 * @param namespace 名前空間
 	 * @param isCreate 指定された名前空間のBDB環境が存在しない時作成する場合true
 	 * @return BDB環境情報
@@ -356,7 +567,7 @@ public class BDBEntryManager {
 	private BDBEnv getBDBEnvByNamespace(String namespace,
 			boolean isCreate)
 	throws IOException, TaggingException {
-		boolean setAccesstime = false;	// TODO
+		boolean setAccesstime = true;
 		BDBEnvManager bdbEnvManager = new BDBEnvManager();
 		return bdbEnvManager.getBDBEnvByNamespace(BDBEntryConst.DB_NAMES,
 				namespace, isCreate, setAccesstime);
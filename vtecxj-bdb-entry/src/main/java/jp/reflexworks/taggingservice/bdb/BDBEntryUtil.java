@@ -7,8 +7,10 @@ import java.util.List;
 
 import jp.reflexworks.servlet.util.UrlUtil;
 import jp.reflexworks.taggingservice.exception.IllegalParameterException;
+import jp.reflexworks.taggingservice.model.EntryFrameInfo;
 import jp.reflexworks.taggingservice.servlet.BDBEntryRequest;
 import jp.reflexworks.taggingservice.util.Constants;
+import jp.reflexworks.taggingservice.util.EntryFrameUtil;
 import jp.sourceforge.reflex.util.StringUtils;
 
 /**
@@ -16,6 +18,66 @@ import jp.sourceforge.reflex.util.StringUtils;
  */
 public class BDBEntryUtil {
 
+	/**
+	 * 複数Entryフレーム形式のリクエストかどうか.
+	 * @param req リクエスト
+	 * @return 複数Entryフレーム形式のリクエストの場合true
+	 */
+	public static boolean isEntryFrame(BDBEntryRequest req) {
+		return Constants.HEADER_VALUE_ENTRY_FORMAT_FRAME.equals(
+				req.getHeader(Constants.HEADER_ENTRY_FORMAT));
+	}
+
+	/**
+	 * リクエストデータから複数Entryフレームを読み込む.
+	 * @param req リクエスト
+	 * @return 複数Entryフレームの読み込み結果
+	 */
+	public static EntryFrameInfo getEntryFrame(BDBEntryRequest req)
+	throws IOException {
+		return EntryFrameUtil.decode(req.getPayload());
+	}
+
+	/**
+	 * リクエストからIDリストを取得.
+	 * 複数Entryフレーム形式の場合はリクエストデータから、それ以外はリクエストヘッダから取得する。
+	 * @param req リクエスト
+	 * @return IDリスト
+	 */
+	public static List<String> getIdsFromRequest(BDBEntryRequest req)
+	throws IOException {
+		if (isEntryFrame(req)) {
+			EntryFrameInfo frameInfo = getEntryFrame(req);
+			if (frameInfo == null) {
+				return null;
+			}
+			return frameInfo.getIds();
+		}
+		return getIdsFromHeader(req);
+	}
+
+	/**
+	 * メッセージ用 IDリスト文字列を取得.
+	 * @param ids IDリスト
+	 * @return IDリスト文字列
+	 */
+	public static String getIdsStr(List<String> ids) {
+		if (ids == null) {
+			return null;
+		}
+		StringBuilder sb = new StringBuilder();
+		boolean isFirst = true;
+		for (String id : ids) {
+			if (isFirst) {
+				isFirst = false;
+			} else {
+				sb.append(Constants.HEADER_VALUE_SEPARATOR);
+			}
+			sb.append(id);
+		}
+		return sb.toString();
+	}
+
 	/**
 	 * リクエストヘッダからIDリストを取得.
 	 * @param req リクエスト
@@ -93,6 +155,23 @@ public class BDBEntryUtil {
 		return sb.toString();
 	}
 
+	/**
+	 * Entryデータがある件数を取得.
+	 * @param dataList Entryデータリスト
+	 * @return Entryデータがある件数
+	 */
+	public static int countData(List<byte[]> dataList) {
+		int cnt = 0;
+		if (dataList != null) {
+			for (byte[] data : dataList) {
+				if (data != null && data.length > 0) {
+					cnt++;
+				}
+			}
+		}
+		return cnt;
+	}
+
 	/**
 	 * Entryバイト配列リストを1つのバイト配列に並べる.
 	 * @param dataList Entryバイト配列
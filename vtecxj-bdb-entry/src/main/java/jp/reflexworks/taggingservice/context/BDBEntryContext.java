@@ -2,6 +2,7 @@ package jp.reflexworks.taggingservice.context;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -15,12 +16,15 @@ import jp.reflexworks.taggingservice.api.BaseReflexContext;
 import jp.reflexworks.taggingservice.api.ReflexAuthentication;
 import jp.reflexworks.taggingservice.batch.ReflexBDBCleanCallable;
 import jp.reflexworks.taggingservice.bdb.BDBEntryConst;
+import jp.reflexworks.taggingservice.bdb.BDBEntryFilterManager;
+import jp.reflexworks.taggingservice.bdb.BDBEntryGroupCommitManager;
 import jp.reflexworks.taggingservice.bdb.BDBEntryManager;
 import jp.reflexworks.taggingservice.conn.ReflexBDBConnectionInfo;
 import jp.reflexworks.taggingservice.env.BDBEnvUtil;
 import jp.reflexworks.taggingservice.exception.IllegalParameterException;
 import jp.reflexworks.taggingservice.exception.TaggingException;
 import jp.reflexworks.taggingservice.model.BDBEntryRequestParam;
+import jp.reflexworks.taggingservice.model.EntryFilterInfo;
 import jp.reflexworks.taggingservice.model.FetchInfo;
 import jp.reflexworks.taggingservice.model.ReflexBDBRequestInfo;
 import jp.reflexworks.taggingservice.taskqueue.BDBEntryTaskQueueUtil;
@@ -69,12 +73,14 @@ public class BDBEntryContext implements BaseReflexContext {
 	 */
 	public void put(String id, byte[] data)
 	throws IOException, TaggingException {
-		BDBEntryManager bdbManager = new BDBEntryManager();
-		bdbManager.put(namespace, id, data, serviceName, requestInfo, connectionInfo);
+		BDBEntryGroupCommitManager groupCommitManager = new BDBEntryGroupCommitManager();
+		groupCommitManager.put(namespace, Collections.singletonList(id),
+				Collections.singletonList(data), serviceName, requestInfo, connectionInfo);
 	}
 
 	/**
-	 * Entry複数登録更新
+	 * Entry複数登録更新.
+	 * まとめてコミットする。
 	 * @param ids IDリスト
 	 * @param dataList Entryデータリスト
 	 */
@@ -104,12 +110,9 @@ public class BDBEntryContext implements BaseReflexContext {
 			sb.append(dataListSize);
 			throw new IllegalParameterException(sb.toString());
 		}
-		int i = 0;
-		for (byte[] data : dataList) {
-			String id = ids.get(i);
-			i++;
-			put(id, data);
-		}
+		BDBEntryGroupCommitManager groupCommitManager = new BDBEntryGroupCommitManager();
+		groupCommitManager.put(namespace, ids, dataList, serviceName, requestInfo,
+				connectionInfo);
 	}
 
 	/**
@@ -154,15 +157,23 @@ public class BDBEntryContext implements BaseReflexContext {
 	 */
 	public List<byte[]> getMultiple(List<String> ids)
 	throws IOException, TaggingException {
-		if (ids == null || ids.isEmpty()) {
-			throw new IllegalParameterException("ID is required.");
-		}
-		List<byte[]> bytesList = new ArrayList<>();
-		for (String id : ids) {
-			byte[] entryBytes = get(id);
-			bytesList.add(entryBytes);
-		}
-		return bytesList;
+		BDBEntryManager bdbManager = new BDBEntryManager();
+		return bdbManager.getMultiple(namespace, ids, serviceName, requestInfo, connectionInfo);
+	}
+
+	/**
+	 * 取得したEntryデータを条件で絞り込む.
+	 * @param ids IDリスト
+	 * @param dataList Entryのバイト配列データリスト (IDリストと同じ順序)
+	 * @param filterInfo 条件指定のEntry複数取得リクエストの読み込み結果
+	 * @return 条件に合致しないEntryデータをnullにしたデータリスト (IDリストと同じ順序)
+	 */
+	public List<byte[]> filter(List<String> ids, List<byte[]> dataList,
+			EntryFilterInfo filterInfo)
+	throws IOException, TaggingException {
+		BDBEntryFilterManager filterManager = new BDBEntryFilterManager();
+		return filterManager.filter(ids, dataList, filterInfo, serviceName,
+				requestInfo, connectionInfo);
 	}
 
 	/**
@@ -227,10 +238,7 @@ public class BDBEntryContext implements BaseReflexContext {
 		FeedBase retFeed = TaggingEntryUtil.createAtomFeed();
 		int cnt = 0;
 		if (fetchInfo != null) {
-			Map<String, Object> result = (Map<String, Object>)fetchInfo.getResult();
-			if (result != null) {
-				cnt = result.size();
-			}
+			cnt = fetchInfo.getCount();
 			// カーソル
 			if (!StringUtils.isBlank(fetchInfo.getPointerStr())) {
 				TaggingEntryUtil.setCursorToFeed(fetchInfo.getPointerStr(), retFeed);
@@ -361,7 +369,8 @@ public class BDBEntryContext implements BaseReflexContext {
 	public void backupBDB(String storageUrl)
 	throws IOException, TaggingException {
 		// BDBクリーン、バックアップ
-		ReflexBDBBackupUtil.backup(namespace, storageUrl, serviceName, requestInfo);
+		ReflexBDBBackupUtil.backup(namespace, BDBEntryConst.DB_NAMES, storageUrl, serviceName,
+				requestInfo);
 	}
 
 }
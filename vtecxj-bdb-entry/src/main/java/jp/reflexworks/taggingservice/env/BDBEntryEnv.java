@@ -1,6 +1,8 @@
 package jp.reflexworks.taggingservice.env;
 
 import jp.reflexworks.servlet.util.ServletContextUtil;
+import jp.reflexworks.taggingservice.bdb.BDBEntryFilterManager;
+import jp.reflexworks.taggingservice.bdb.BDBEntryGroupCommitManager;
 
 /**
  * Tagging BDB 環境情報
@@ -19,7 +21,8 @@ public class BDBEntryEnv extends ReflexBDBEnvBase {
 	 * プラグイン機能.
 	 */
 	protected void initPlugin() {
-		// Do nothing.
+		initPluginProc(BDBEntryGroupCommitManager.class);
+		initPluginProc(BDBEntryFilterManager.class);
 	}
 
 }
@@ -0,0 +1,18 @@
+package jp.reflexworks.taggingservice.env;
+
+/**
+ * Entryサーバ 環境定数クラス
+ */
+public interface BDBEntryEnvConst extends ReflexEnvConst {
+
+	/** 設定 : 1トランザクションで更新するEntryの最大件数 */
+	public static final String GROUPCOMMIT_BATCHSIZE = "_bdb.entry.groupcommit.batchsize";
+	/** 設定 : 同じ名前空間への更新をまとめてコミットするための待ち時間(ミリ秒)。0以下の場合はまとめない。 */
+	public static final String GROUPCOMMIT_WAITMILLIS = "_bdb.entry.groupcommit.waitmillis";
+
+	/** 設定デフォルト : 1トランザクションで更新するEntryの最大件数 */
+	public static final int GROUPCOMMIT_BATCHSIZE_DEFAULT = 500;
+	/** 設定デフォルト : 同じ名前空間への更新をまとめてコミットするための待ち時間(ミリ秒) */
+	public static final int GROUPCOMMIT_WAITMILLIS_DEFAULT = 0;
+
+}
@@ -0,0 +1,37 @@
+package jp.reflexworks.taggingservice.env;
+
+/**
+ * Entryサーバ 設定値取得ユーティリティ
+ */
+public class BDBEntryEnvUtil {
+
+	/**
+	 * コンストラクタ(生成不可).
+	 */
+	private BDBEntryEnvUtil() {}
+
+	/**
+	 * 1トランザクションで更新するEntryの最大件数を取得.
+	 * @return 1トランザクションで更新するEntryの最大件数
+	 */
+	public static int getGroupCommitBatchSize() {
+		int batchSize = ReflexEnvUtil.getSystemPropInt(
+				BDBEntryEnvConst.GROUPCOMMIT_BATCHSIZE,
+				BDBEntryEnvConst.GROUPCOMMIT_BATCHSIZE_DEFAULT);
+		if (batchSize < 1) {
+			return BDBEntryEnvConst.GROUPCOMMIT_BATCHSIZE_DEFAULT;
+		}
+		return batchSize;
+	}
+
+	/**
+	 * 同じ名前空間への更新をまとめてコミットするための待ち時間を取得.
+	 * @return 待ち時間(ミリ秒)。0以下の場合はまとめない。
+	 */
+	public static int getGroupCommitWaitMillis() {
+		return ReflexEnvUtil.getSystemPropInt(
+				BDBEntryEnvConst.GROUPCOMMIT_WAITMILLIS,
+				BDBEntryEnvConst.GROUPCOMMIT_WAITMILLIS_DEFAULT);
+	}
+
+}
@@ -24,8 +24,12 @@ import jp.reflexworks.taggingservice.env.BDBEnvUtil;
 import jp.reflexworks.taggingservice.exception.IllegalParameterException;
 import jp.reflexworks.taggingservice.exception.MethodNotAllowedException;
 import jp.reflexworks.taggingservice.model.BDBEntryRequestParam;
+import jp.reflexworks.taggingservice.model.EntryFilterInfo;
+import jp.reflexworks.taggingservice.model.EntryFrameInfo;
 import jp.reflexworks.taggingservice.model.ReflexBDBRequestInfo;
 import jp.reflexworks.taggingservice.util.Constants;
+import jp.reflexworks.taggingservice.util.EntryFilterUtil;
+import jp.reflexworks.taggingservice.util.EntryFrameUtil;
 import jp.reflexworks.taggingservice.util.LogUtil;
 import jp.reflexworks.taggingservice.util.TaggingEntryUtil;
 import jp.sourceforge.reflex.util.StringUtils;
@@ -98,6 +102,7 @@ public class BDBEntryServlet extends ReflexServlet {
 		try {
 			int status = HttpStatus.SC_OK;
 			Object retObj = null;
+			List<String> ids = null;
 
 			// Entry取得 : GET /b{ID}?e
 			// BDBデータ確認 (管理用) : GET /b/?_list={テーブル名}
@@ -107,7 +112,7 @@ public class BDBEntryServlet extends ReflexServlet {
 				// Entry取得
 				if (param.getOption(BDBEntryRequestParam.PARAM_MULTIPLE) != null) {
 					// 複数
-					List<String> ids = BDBEntryUtil.getIdsFromHeader(req);
+					ids = BDBEntryUtil.getIdsFromHeader(req);
 					retObj = reflexContext.getMultiple(ids);
 				} else {
 					// 1件
@@ -154,7 +159,7 @@ public class BDBEntryServlet extends ReflexServlet {
 				if (retObj instanceof byte[]) {
 					doResponseBytes(req, resp, (byte[])retObj);
 				} else if (retObj instanceof List) {
-					doResponseBytesList(req, resp, (List<byte[]>)retObj);
+					doResponseBytesList(req, resp, ids, (List<byte[]>)retObj);
 				} else {
 					doResponse(req, resp, retObj, status);
 				}
@@ -175,11 +180,72 @@ public class BDBEntryServlet extends ReflexServlet {
 	@Override
 	public void doPost(HttpServletRequest httpReq, HttpServletResponse httpResp)
 	throws IOException {
+		if (!(httpReq instanceof BDBEntryRequest)) {
+			logger.warn("[doPost] HttpServletRequest is not BDBEntryRequest. " + httpReq.getClass().getName());
+			return;
+		}
+		if (!(httpResp instanceof BDBEntryResponse)) {
+			logger.warn("[doPost] HttpServletResponse is not BDBEntryRequest. " + httpResp.getClass().getName());
+			return;
+		}
+		BDBEntryRequest req = (BDBEntryRequest)httpReq;
+		BDBEntryResponse resp = (BDBEntryResponse)httpResp;
+		BDBEntryRequestParam param = req.getRequestType();
+		String serviceName = req.getServiceName();
+		String namespace = req.getNamespace();
+		ReflexBDBRequestInfo requestInfo = req.getRequestInfo();
+		ReflexBDBConnectionInfo connectionInfo = req.getConnectionInfo();
+		if (param == null) {
+			return;
+		}
+		if (logger.isTraceEnabled()) {
+			logger.trace(LogUtil.getRequestInfoStr(requestInfo) + "doPost start");
+		}
+
+		BDBEntryContext reflexContext = new BDBEntryContext(serviceName, namespace,
+				requestInfo, connectionInfo);
+		try {
+			// Entry複数取得 : POST /b/?e&_multiple (IDリストを複数Entryフレーム形式で指定)
+			// 条件指定のEntry複数取得 : POST /b/?e&_multiple&_filter (IDリスト・テンプレート・条件を複数Entryフレーム形式で指定)
+
+			if (param.getOption(BDBEntryRequestParam.PARAM_ENTRY) != null &&
+					param.getOption(BDBEntryRequestParam.PARAM_MULTIPLE) != null &&
+					BDBEntryUtil.isEntryFrame(req)) {
+				if (param.getOption(BDBEntryRequestParam.PARAM_FILTER) != null) {
+					// 条件指定
+					EntryFilterInfo filterInfo = EntryFilterUtil.decode(
+							BDBEntryUtil.getEntryFrame(req));
+					List<String> ids = null;
+					if (filterInfo != null) {
+						ids = filterInfo.getIds();
+					}
+					List<byte[]> dataList = reflexContext.getMultiple(ids);
+					List<byte[]> filteredDataList = reflexContext.filter(ids, dataList,
+							filterInfo);
+					int scanned = BDBEntryUtil.countData(dataList);
+					int matched = BDBEntryUtil.countData(filteredDataList);
+					if (logger.isTraceEnabled()) {
+						logger.debug(LogUtil.getRequestInfoStr(requestInfo) +
+								"[doPost] filter scanned=" + scanned + ", matched=" + matched);
+					}
+					resp.addHeader(Constants.HEADER_FILTER_SCANNED, String.valueOf(scanned));
+					resp.addHeader(Constants.HEADER_FILTER_MATCHED, String.valueOf(matched));
+					doResponseBytesList(req, resp, ids, filteredDataList);
 
-		// なし
+				} else {
+					List<String> ids = BDBEntryUtil.getIdsFromRequest(req);
+					List<byte[]> dataList = reflexContext.getMultiple(ids);
+					doResponseBytesList(req, resp, ids, dataList);
+				}
 
-		throw new MethodNotAllowedException("Method not allowed. " + httpReq.getMethod());
+			} else {
+				// その他は無効
+				throw new MethodNotAllowedException("Method not allowed. " + httpReq.getMethod());
+			}
 
+		} catch (Throwable e) {
+			throw new IOException(e);
+		}
 	}
 
 	/**
@@ -225,11 +291,21 @@ public class BDBEntryServlet extends ReflexServlet {
 				// Entry登録更新
 				if (param.getOption(BDBEntryRequestParam.PARAM_MULTIPLE) != null) {
 					// 複数
-					List<String> ids = BDBEntryUtil.getIdsFromHeader(req);
-					List<byte[]> dataList = BDBEntryUtil.getDataListFromRequest(req);
+					List<String> ids = null;
+					List<byte[]> dataList = null;
+					if (BDBEntryUtil.isEntryFrame(req)) {
+						EntryFrameInfo frameInfo = BDBEntryUtil.getEntryFrame(req);
+						if (frameInfo != null) {
+							ids = frameInfo.getIds();
+							dataList = frameInfo.getDataList();
+						}
+					} else {
+						ids = BDBEntryUtil.getIdsFromHeader(req);
+						dataList = BDBEntryUtil.getDataListFromRequest(req);
+					}
 					reflexContext.putMultiple(ids, dataList);
 					status = HttpStatus.SC_CREATED;
-					retObj = createMessageFeed("Created or updated. " + req.getHeader(Constants.HEADER_ID));
+					retObj = createMessageFeed("Created or updated. " + BDBEntryUtil.getIdsStr(ids));
 				} else {
 					// 1件
 					String id = req.getPathInfo();
@@ -313,9 +389,9 @@ public class BDBEntryServlet extends ReflexServlet {
 				// Entry削除
 				if (param.getOption(BDBEntryRequestParam.PARAM_MULTIPLE) != null) {
 					// 複数
-					List<String> ids = BDBEntryUtil.getIdsFromHeader(req);
+					List<String> ids = BDBEntryUtil.getIdsFromRequest(req);
 					reflexContext.deleteMultiple(ids);
-					retObj = createMessageFeed("Deleted. " + req.getHeader(Constants.HEADER_ID));
+					retObj = createMessageFeed("Deleted. " + BDBEntryUtil.getIdsStr(ids));
 				} else {
 					// 1件
 					String id = req.getPathInfo();
@@ -376,13 +452,15 @@ public class BDBEntryServlet extends ReflexServlet {
 
 	/**
 	 * バイト配列リストをそのままレスポンスする.
-	 * レスポンスヘッダにバイト配列長を設定する。
+	 * 複数Entryフレーム形式のリクエストの場合、IDとバイト配列長をデータと合わせてフレーム形式でレスポンスする。
+	 * それ以外の場合、レスポンスヘッダにバイト配列長を設定する。
 	 * @param req リクエスト
 	 * @param resp レスポンス
+	 * @param ids IDリスト
 	 * @param respDataList バイト配列データリスト
 	 */
 	private void doResponseBytesList(BDBEntryRequest req, BDBEntryResponse resp,
-			List<byte[]> respDataList)
+			List<String> ids, List<byte[]> respDataList)
 	throws IOException {
 		int status = HttpStatus.SC_OK;
 		if (respDataList == null || respDataList.isEmpty()) {
@@ -390,10 +468,16 @@ public class BDBEntryServlet extends ReflexServlet {
 		}
 
 		doResponseHeader(req, resp, status);
-		String entryLengthStr = BDBEntryUtil.getHeaderEntryLength(respDataList);
-		resp.addHeader(Constants.HEADER_ENTRY_LENGTH, entryLengthStr);
-
-		byte[] allData = BDBEntryUtil.lineupData(respDataList);
+		byte[] allData = null;
+		if (BDBEntryUtil.isEntryFrame(req)) {
+			resp.addHeader(Constants.HEADER_ENTRY_FORMAT,
+					Constants.HEADER_VALUE_ENTRY_FORMAT_FRAME);
+			allData = EntryFrameUtil.encode(ids, respDataList);
+		} else {
+			String entryLengthStr = BDBEntryUtil.getHeaderEntryLength(respDataList);
+			resp.addHeader(Constants.HEADER_ENTRY_LENGTH, entryLengthStr);
+			allData = BDBEntryUtil.lineupData(respDataList);
+		}
 		doResponseData(req, resp, allData, status);
 	}
 
@@ -0,0 +1,128 @@
+package jp.reflexworks.taggingservice.bdb;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.sleepycat.je.DatabaseEntry;
+import com.sleepycat.je.OperationStatus;
+
+import jp.reflexworks.taggingservice.util.FullTextBloomFilter;
+import jp.reflexworks.taggingservice.util.TaggingEntryUtil;
+
+/**
+ * suffix形式の全文検索インデックス検索の重複判定.
+ * <p>
+ * 1件のEntryは値の接尾辞ごとにインデックスキーを持つため、検索範囲内の複数のキーに合致する。
+ * Entryは検索範囲内の最初のキーで返却し、2番目以降のキーは重複として除く。
+ * 前のリクエストまでに返却したIDはセッションのBloomフィルタに保持する。
+ * Bloomフィルタに含まれる可能性がある場合は、Ancestorのインデックスキーから
+ * 検索範囲内の最初のキーを求めて正確に判定する。
+ * </p>
+ */
+class FullTextDuplicateChecker implements BDBQueryDuplicateChecker {
+
+	/** 全文検索インデックスAncestorテーブル */
+	private final BDBDatabase dbAncestor;
+	/** 検索範囲の開始キー */
+	private final String startKeyStr;
+	/** 検索範囲の終了キー */
+	private final String endKeyStr;
+	/** 前のリクエストまでに返却したIDのBloomフィルタ */
+	private final FullTextBloomFilter filter;
+	/** このリクエストで返却したID キー:ID、値:インデックスキー */
+	private final Map<String, String> added = new HashMap<>();
+
+	/**
+	 * コンストラクタ.
+	 * @param dbAncestor 全文検索インデックスAncestorテーブル
+	 * @param startKeyStr 検索範囲の開始キー
+	 * @param endKeyStr 検索範囲の終了キー
+	 * @param filter 前のリクエストまでに返却したIDのBloomフィルタ
+	 */
+	FullTextDuplicateChecker(BDBDatabase dbAncestor, String startKeyStr, String endKeyStr,
+			FullTextBloomFilter filter) {
+		this.dbAncestor = dbAncestor;
+		this.startKeyStr = startKeyStr;
+		this.endKeyStr = endKeyStr;
+		this.filter = filter;
+	}
+
+	/**
+	 * 検索した値が、前のキーで返却済みかどうか.
+	 * @param val ID
+	 * @param foundKeyStr 検索したインデックスキー
+	 * @return 返却済みの場合true
+	 */
+	@Override
+	public boolean isDuplicated(String val, String foundKeyStr) {
+		String addedKeyStr = added.get(val);
+		if (addedKeyStr != null) {
+			return foundKeyStr.compareTo(addedKeyStr) > 0;
+		}
+		if (!filter.mightContain(val)) {
+			return false;
+		}
+		// 検索範囲内の最初のキーでない場合は返却済み
+		String firstKeyStr = getFirstKey(val);
+		return firstKeyStr != null && foundKeyStr.compareTo(firstKeyStr) > 0;
+	}
+
+	/**
+	 * 返却した値を登録.
+	 * @param val ID
+	 * @param foundKeyStr 検索したインデックスキー
+	 */
+	@Override
+	public void add(String val, String foundKeyStr) {
+		if (added.containsKey(val)) {
+			return;
+		}
+		added.put(val, foundKeyStr);
+		if (!filter.mightContain(val)) {
+			filter.add(val);
+		}
+	}
+
+	/**
+	 * このリクエストで返却した値があるかどうか.
+	 * @return 返却した値がある場合true
+	 */
+	boolean isAdded() {
+		return !added.isEmpty();
+	}
+
+	/**
+	 * Bloomフィルタを取得.
+	 * @return Bloomフィルタ
+	 */
+	FullTextBloomFilter getFilter() {
+		return filter;
+	}
+
+	/**
+	 * IDのインデックスキーのうち、検索範囲内の最初のキーを取得.
+	 * @param id ID
+	 * @return 検索範囲内の最初のキー。存在しない場合null。
+	 */
+	private String getFirstKey(String id) {
+		DatabaseEntry key = BDBUtil.getDbKey(TaggingEntryUtil.getUriById(id));
+		DatabaseEntry data = new DatabaseEntry();
+		OperationStatus status = dbAncestor.get(null, key, data, BDBUtil.getLockMode());
+		if (status != OperationStatus.SUCCESS) {
+			return null;
+		}
+		List<String> indexes = BDBUtil.getListBinding().entryToObject(data);
+		String firstKeyStr = null;
+		if (indexes != null) {
+			for (String index : indexes) {
+				if (index.compareTo(startKeyStr) >= 0 && index.compareTo(endKeyStr) < 0 &&
+						(firstKeyStr == null || index.compareTo(firstKeyStr) < 0)) {
+					firstKeyStr = index;
+				}
+			}
+		}
+		return firstKeyStr;
+	}
+
+}
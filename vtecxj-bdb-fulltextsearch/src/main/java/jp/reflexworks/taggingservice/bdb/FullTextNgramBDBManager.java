@@ -0,0 +1,919 @@
+package jp.reflexworks.taggingservice.bdb;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sleepycat.bind.tuple.StringBinding;
+import com.sleepycat.je.DatabaseEntry;
+import com.sleepycat.je.OperationStatus;
+
+import jp.reflexworks.taggingservice.api.ConnectionInfo;
+import jp.reflexworks.taggingservice.api.RequestInfo;
+import jp.reflexworks.taggingservice.env.BDBEnvUtil;
+import jp.reflexworks.taggingservice.exception.TaggingException;
+import jp.reflexworks.taggingservice.model.FetchInfo;
+import jp.reflexworks.taggingservice.model.FullTextIndexField;
+import jp.reflexworks.taggingservice.util.FullTextNgramUtil;
+import jp.reflexworks.taggingservice.util.FullTextSearchIndexUtil;
+import jp.reflexworks.taggingservice.util.LogUtil;
+import jp.reflexworks.taggingservice.util.PointerUtil;
+import jp.reflexworks.taggingservice.util.TaggingEntryUtil;
+import jp.sourceforge.reflex.util.StringUtils;
+
+/**
+ * N-gram形式の全文検索インデックス操作クラス.
+ * <p>
+ * 1件のEntryに文書番号を採番し、グラムごとのポスティングリストに文書番号を登録する。
+ * 更新時は変更前後のグラムの差分のみポスティングリストを更新する。
+ * 検索時は検索文字列のグラムのポスティングリストをブロック単位で突き合わせ、
+ * 候補の文書の値に検索文字列が含まれるかを確認する。複数の検索語のAND・OR条件もブロック単位で突き合わせる。
+ * トランザクションとリトライは呼び出し元 (FullTextSearchBDBManager) で行う。
+ * </p>
+ */
+public class FullTextNgramBDBManager {
+
+	/** 文書番号のキーの桁数 */
+	private static final int DOCNO_DIGITS = 19;
+
+	/** ロガー. */
+	private Logger logger = LoggerFactory.getLogger(this.getClass());
+
+	/**
+	 * N-gram形式の全文検索インデックスを更新.
+	 * @param namespace 名前空間
+	 * @param bdbTxn トランザクション
+	 * @param bdbEnv BDB環境
+	 * @param id ID
+	 * @param fields インデックス項目リスト
+	 * @param isPartial 指定されたキー・項目のみの更新の場合true
+	 * @param isDelete 削除の場合true
+	 * @param ngramSize N-gramの文字数
+	 * @param requestInfo リクエスト情報
+	 * @param connectionInfo コネクション情報
+	 */
+	void updateDoc(String namespace, BDBTransaction bdbTxn, BDBEnv bdbEnv,
+			String id, List<FullTextIndexField> fields, boolean isPartial, boolean isDelete,
+			int ngramSize, RequestInfo requestInfo, ConnectionInfo connectionInfo)
+	throws IOException, TaggingException {
+		String idUri = TaggingEntryUtil.getUriById(id);
+		BDBDatabase dbDocNo = bdbEnv.getDb(FullTextSearchBDBConst.DB_FULL_TEXT_NGRAM_DOCNO);
+		BDBDatabase dbDoc = bdbEnv.getDb(FullTextSearchBDBConst.DB_FULL_TEXT_NGRAM_DOC);
+		BDBDatabase dbNgram = bdbEnv.getDb(FullTextSearchBDBConst.DB_FULL_TEXT_NGRAM);
+		StringBinding stringBinding = BDBUtil.getStringBinding();
+
+		// 現在のインデックス項目を取得
+		BDBGet<String> bdbGetString = new BDBGet<>();
+		String docNoStr = bdbGetString.get(namespace, bdbTxn, dbDocNo, stringBinding,
+				BDBUtil.getLockModeRMW(), idUri, requestInfo, connectionInfo);
+		List<FullTextIndexField> currentFields = null;
+		if (docNoStr != null) {
+			currentFields = getFields(namespace, bdbTxn, dbDoc, docNoStr,
+					requestInfo, connectionInfo);
+		}
+
+		// 今回のインデックス項目を生成
+		List<FullTextIndexField> newFields = mergeFields(currentFields, fields,
+				isPartial, isDelete);
+		if (docNoStr == null) {
+			if (newFields.isEmpty()) {
+				return;
+			}
+			// 文書番号を採番
+			FullTextSearchBDBManager bdbManager = new FullTextSearchBDBManager();
+			docNoStr = bdbManager.allocids(bdbEnv, FullTextSearchBDBConst.KEY_DOCNO,
+					false, requestInfo, connectionInfo);
+			BDBPut<String> bdbPutString = new BDBPut<>();
+			bdbPutString.put(namespace, bdbTxn, dbDocNo, stringBinding, idUri, docNoStr,
+					requestInfo, connectionInfo);
+		}
+		long docNo = Long.parseLong(docNoStr);
+
+		// グラムの差分のみポスティングリストを更新
+		Set<String> currentGrams = getGramKeyPrefixes(currentFields, ngramSize);
+		Set<String> newGrams = getGramKeyPrefixes(newFields, ngramSize);
+		for (String gramKeyPrefix : currentGrams) {
+			if (!newGrams.contains(gramKeyPrefix)) {
+				updatePosting(namespace, bdbTxn, dbNgram, gramKeyPrefix, docNo, false,
+						requestInfo, connectionInfo);
+			}
+		}
+		for (String gramKeyPrefix : newGrams) {
+			if (!currentGrams.contains(gramKeyPrefix)) {
+				updatePosting(namespace, bdbTxn, dbNgram, gramKeyPrefix, docNo, true,
+						requestInfo, connectionInfo);
+			}
+		}
+
+		// 文書情報を更新
+		String docKey = getDocKey(docNo);
+		if (newFields.isEmpty()) {
+			BDBDelete bdbDelete = new BDBDelete();
+			bdbDelete.delete(namespace, bdbTxn, dbDoc, docKey, requestInfo, connectionInfo);
+			bdbDelete.delete(namespace, bdbTxn, dbDocNo, idUri, requestInfo, connectionInfo);
+		} else {
+			BDBPut<List<String>> bdbPutList = new BDBPut<>();
+			bdbPutList.put(namespace, bdbTxn, dbDoc, BDBUtil.getListBinding(), docKey,
+					toDocValues(idUri, id, newFields), requestInfo, connectionInfo);
+		}
+	}
+
+	/**
+	 * N-gram形式の全文検索インデックスを削除.
+	 * 形式変換後の旧形式削除に使用。
+	 * @param namespace 名前空間
+	 * @param bdbTxn トランザクション
+	 * @param bdbEnv BDB環境
+	 * @param idUri ID URI
+	 * @param ngramSize N-gramの文字数
+	 * @param requestInfo リクエスト情報
+	 * @param connectionInfo コネクション情報
+	 */
+	void deleteDoc(String namespace, BDBTransaction bdbTxn, BDBEnv bdbEnv,
+			String idUri, int ngramSize, RequestInfo requestInfo, ConnectionInfo connectionInfo)
+	throws IOException, TaggingException {
+		String id = getId(namespace, bdbTxn, bdbEnv, idUri, requestInfo, connectionInfo);
+		if (id != null) {
+			updateDoc(namespace, bdbTxn, bdbEnv, id, null, false, true, ngramSize,
+					requestInfo, connectionInfo);
+		}
+	}
+
+	/**
+	 * ID URIのIDを取得.
+	 * @param namespace 名前空間
+	 * @param bdbTxn トランザクション
+	 * @param bdbEnv BDB環境
+	 * @param idUri ID URI
+	 * @param requestInfo リクエスト情報
+	 * @param connectionInfo コネクション情報
+	 * @return ID。登録されていない場合null。
+	 */
+	String getId(String namespace, BDBTransaction bdbTxn, BDBEnv bdbEnv, String idUri,
+			RequestInfo requestInfo, ConnectionInfo connectionInfo)
+	throws IOException, TaggingException {
+		List<String> docValues = getDocValues(namespace, bdbTxn, bdbEnv, idUri,
+				requestInfo, connectionInfo);
+		if (docValues == null || docValues.size() < 2) {
+			return null;
+		}
+		return docValues.get(1);
+	}
+
+	/**
+	 * ID URIのインデックス項目リストを取得.
+	 * @param namespace 名前空間
+	 * @param bdbTxn トランザクション
+	 * @param bdbEnv BDB環境
+	 * @param idUri ID URI
+	 * @param requestInfo リクエスト情報
+	 * @param connectionInfo コネクション情報
+	 * @return インデックス項目リスト。登録されていない場合null。
+	 */
+	List<FullTextIndexField> getFields(String namespace, BDBTransaction bdbTxn,
+			BDBEnv bdbEnv, String idUri,
+			RequestInfo requestInfo, ConnectionInfo connectionInfo)
+	throws IOException, TaggingException {
+		List<String> docValues = getDocValues(namespace, bdbTxn, bdbEnv, idUri,
+				requestInfo, connectionInfo);
+		if (docValues == null) {
+			return null;
+		}
+		return toFields(docValues);
+	}
+
+	/**
+	 * 全文検索.
+	 * <p>
+	 * 検索語ごとに、文書番号順にポスティングブロックを返す検索対象を生成し、ブロック番号順に突き合わせる。
+	 * <ul>
+	 *   <li>AND条件 : N文字以上の全検索語のグラムのポスティングリストをブロック番号順に突き合わせ(leapfrog join)、全グラムを含む文書を候補とする。
+	 *       全検索語がN文字未満の場合、最も長い検索語で始まるグラムのポスティングリストの和集合を候補とする。</li>
+	 *   <li>OR条件 : 検索語ごとの候補を、最小のブロック番号から順に和集合にする。</li>
+	 * </ul>
+	 * 検索語がN文字未満の場合、検索語で始まるグラムのポスティングリストの和集合をその検索語の候補とする。
+	 * 候補の文書は値に検索語が含まれることを確認してから返却する。
+	 * いずれの場合も文書番号順に返却するため、カーソルは次に確認する文書番号となる。
+	 * </p>
+	 * @param namespace 名前空間
+	 * @param bdbEnv BDB環境
+	 * @param prefix インデックス接頭辞
+	 * @param texts 正規化済み検索語リスト
+	 * @param isOr 検索語をOR条件とする場合true、AND条件とする場合false
+	 * @param ngramSize N-gramの文字数
+	 * @param cursorStr デコード済みカーソル (次に確認する文書番号)
+	 * @param limit 最大件数
+	 * @param requestInfo リクエスト情報
+	 * @param connectionInfo コネクション情報
+	 * @return キー:文書番号、値:ID。続きがある場合はカーソルを設定する。
+	 */
+	FetchInfo<String> getFeedKeys(String namespace, BDBEnv bdbEnv, String prefix,
+			List<String> texts, boolean isOr, int ngramSize, String cursorStr, int limit,
+			RequestInfo requestInfo, ConnectionInfo connectionInfo)
+	throws IOException, TaggingException {
+		long startDocNo = StringUtils.longValue(cursorStr, 0);
+		NgramQuery query = new NgramQuery(namespace, bdbEnv, prefix, texts, isOr, limit,
+				requestInfo, connectionInfo);
+		query.search(ngramSize, startDocNo);
+
+		FetchInfo<String> fetchInfo = new FetchInfo<>(query.results,
+				PointerUtil.encode(query.pointerStr));
+		fetchInfo.setFetchExceeded(query.isFetchExceeded);
+		if (logger.isTraceEnabled()) {
+			StringBuilder sb = new StringBuilder();
+			sb.append(LogUtil.getRequestInfoStr(requestInfo));
+			sb.append("[getFeedKeys] prefix=");
+			sb.append(prefix);
+			sb.append(", texts=");
+			sb.append(texts);
+			sb.append(", isOr=");
+			sb.append(isOr);
+			sb.append(", size=");
+			sb.append(query.results.size());
+			sb.append(", fetchCnt=");
+			sb.append(query.fetchCnt);
+			logger.trace(sb.toString());
+		}
+		return fetchInfo;
+	}
+
+	/**
+	 * 文書番号のキーを取得.
+	 * @param docNo 文書番号
+	 * @return 文書番号のキー (ゼロ埋め)
+	 */
+	static String getDocKey(long docNo) {
+		StringBuilder sb = new StringBuilder();
+		String docNoStr = String.valueOf(docNo);
+		for (int i = docNoStr.length(); i < DOCNO_DIGITS; i++) {
+			sb.append("0");
+		}
+		sb.append(docNoStr);
+		return sb.toString();
+	}
+
+	/**
+	 * 今回のインデックス項目を生成.
+	 * 部分更新・部分削除の場合、インデックス項目短縮値が合致しない現在の項目は残す。
+	 * @param currentFields 現在のインデックス項目
+	 * @param fields 指定されたインデックス項目
+	 * @param isPartial 指定されたキー・項目のみの更新の場合true
+	 * @param isDelete 削除の場合true
+	 * @return 今回のインデックス項目 (値が空の項目は除く)
+	 */
+	private List<FullTextIndexField> mergeFields(List<FullTextIndexField> currentFields,
+			List<FullTextIndexField> fields, boolean isPartial, boolean isDelete) {
+		List<FullTextIndexField> newFields = new ArrayList<>();
+		if (isPartial) {
+			Set<String> shortings = new LinkedHashSet<>();
+			if (fields != null) {
+				for (FullTextIndexField field : fields) {
+					shortings.add(field.getShorting());
+				}
+			}
+			if (currentFields != null) {
+				for (FullTextIndexField currentField : currentFields) {
+					if (!shortings.contains(currentField.getShorting())) {
+						// 変更対象でないので残す。
+						newFields.add(currentField);
+					}
+				}
+			}
+		}
+		if (!isDelete && fields != null) {
+			for (FullTextIndexField field : fields) {
+				if (!StringUtils.isBlank(field.text)) {
+					newFields.add(field);
+				}
+			}
+		}
+		return newFields;
+	}
+
+	/**
+	 * インデックス項目リストのグラムのキー接頭辞を取得.
+	 * @param fields インデックス項目リスト
+	 * @param ngramSize N-gramの文字数
+	 * @return グラムのキー接頭辞セット
+	 */
+	private Set<String> getGramKeyPrefixes(List<FullTextIndexField> fields, int ngramSize) {
+		Set<String> gramKeyPrefixes = new LinkedHashSet<>();
+		if (fields != null) {
+			for (FullTextIndexField field : fields) {
+				for (String gram : FullTextNgramUtil.getGrams(field.text, ngramSize)) {
+					gramKeyPrefixes.add(FullTextNgramUtil.getGramKeyPrefix(field.prefix, gram));
+				}
+			}
+		}
+		return gramKeyPrefixes;
+	}
+
+	/**
+	 * ポスティングブロックに文書番号を追加、または削除.
+	 * ブロックが空になった場合はレコードを削除する。
+	 * @param namespace 名前空間
+	 * @param bdbTxn トランザクション
+	 * @param dbNgram N-gramテーブル
+	 * @param gramKeyPrefix グラムのキー接頭辞
+	 * @param docNo 文書番号
+	 * @param isAdd 追加の場合true、削除の場合false
+	 * @param requestInfo リクエスト情報
+	 * @param connectionInfo コネクション情報
+	 */
+	private void updatePosting(String namespace, BDBTransaction bdbTxn, BDBDatabase dbNgram,
+			String gramKeyPrefix, long docNo, boolean isAdd,
+			RequestInfo requestInfo, ConnectionInfo connectionInfo)
+	throws IOException, TaggingException {
+		ByteArrayBinding binding = BDBUtil.getByteArrayBinding();
+		String postingKey = FullTextNgramUtil.getPostingKey(gramKeyPrefix,
+				FullTextNgramUtil.getBlock(docNo));
+		BDBGet<byte[]> bdbGet = new BDBGet<>();
+		byte[] data = bdbGet.get(namespace, bdbTxn, dbNgram, binding,
+				BDBUtil.getLockModeRMW(), postingKey, requestInfo, connectionInfo);
+		int[] offsets = FullTextNgramUtil.decodePosting(data);
+		int[] newOffsets = FullTextNgramUtil.updatePosting(offsets,
+				FullTextNgramUtil.getOffset(docNo), isAdd);
+		if (newOffsets == offsets) {
+			return;
+		}
+		if (newOffsets.length == 0) {
+			BDBDelete bdbDelete = new BDBDelete();
+			bdbDelete.delete(namespace, bdbTxn, dbNgram, postingKey,
+					requestInfo, connectionInfo);
+		} else {
+			BDBPut<byte[]> bdbPut = new BDBPut<>();
+			bdbPut.put(namespace, bdbTxn, dbNgram, binding, postingKey,
+					FullTextNgramUtil.encodePosting(newOffsets, newOffsets.length),
+					requestInfo, connectionInfo);
+		}
+	}
+
+	/**
+	 * ID URIの文書情報を取得.
+	 * @param namespace 名前空間
+	 * @param bdbTxn トランザクション
+	 * @param bdbEnv BDB環境
+	 * @param idUri ID URI
+	 * @param requestInfo リクエスト情報
+	 * @param connectionInfo コネクション情報
+	 * @return 文書情報 [ID URI, ID, (インデックス接頭辞, 自階層, 値)...]
+	 */
+	private List<String> getDocValues(String namespace, BDBTransaction bdbTxn,
+			BDBEnv bdbEnv, String idUri,
+			RequestInfo requestInfo, ConnectionInfo connectionInfo)
+	throws IOException, TaggingException {
+		BDBDatabase dbDocNo = bdbEnv.getDb(FullTextSearchBDBConst.DB_FULL_TEXT_NGRAM_DOCNO);
+		BDBGet<String> bdbGetString = new BDBGet<>();
+		String docNoStr = bdbGetString.get(namespace, bdbTxn, dbDocNo,
+				BDBUtil.getStringBinding(), BDBUtil.getLockMode(), idUri,
+				requestInfo, connectionInfo);
+		if (docNoStr == null) {
+			return null;
+		}
+		BDBDatabase dbDoc = bdbEnv.getDb(FullTextSearchBDBConst.DB_FULL_TEXT_NGRAM_DOC);
+		BDBGet<List<String>> bdbGetList = new BDBGet<>();
+		return bdbGetList.get(namespace, bdbTxn, dbDoc, BDBUtil.getListBinding(),
+				BDBUtil.getLockMode(), getDocKey(Long.parseLong(docNoStr)),
+				requestInfo, connectionInfo);
+	}
+
+	/**
+	 * 文書番号のインデックス項目リストを取得.
+	 * @param namespace 名前空間
+	 * @param bdbTxn トランザクション
+	 * @param dbDoc 文書テーブル
+	 * @param docNoStr 文書番号
+	 * @param requestInfo リクエスト情報
+	 * @param connectionInfo コネクション情報
+	 * @return インデックス項目リスト
+	 */
+	private List<FullTextIndexField> getFields(String namespace, BDBTransaction bdbTxn,
+			BDBDatabase dbDoc, String docNoStr,
+			RequestInfo requestInfo, ConnectionInfo connectionInfo)
+	throws IOException, TaggingException {
+		BDBGet<List<String>> bdbGetList = new BDBGet<>();
+		List<String> docValues = bdbGetList.get(namespace, bdbTxn, dbDoc,
+				BDBUtil.getListBinding(), BDBUtil.getLockModeRMW(),
+				getDocKey(Long.parseLong(docNoStr)), requestInfo, connectionInfo);
+		return toFields(docValues);
+	}
+
+	/**
+	 * 文書情報をインデックス項目リストに変換.
+	 * @param docValues 文書情報 [ID URI, ID, (インデックス接頭辞, 自階層, 値)...]
+	 * @return インデックス項目リスト
+	 */
+	private List<FullTextIndexField> toFields(List<String> docValues) {
+		List<FullTextIndexField> fields = new ArrayList<>();
+		if (docValues != null) {
+			for (int i = 2; i + 2 < docValues.size(); i += 3) {
+				fields.add(new FullTextIndexField(docValues.get(i), docValues.get(i + 1),
+						docValues.get(i + 2)));
+			}
+		}
+		return fields;
+	}
+
+	/**
+	 * インデックス項目リストを文書情報に変換.
+	 * @param idUri ID URI
+	 * @param id ID
+	 * @param fields インデックス項目リスト
+	 * @return 文書情報 [ID URI, ID, (インデックス接頭辞, 自階層, 値)...]
+	 */
+	private List<String> toDocValues(String idUri, String id, List<FullTextIndexField> fields) {
+		List<String> docValues = new ArrayList<>(2 + fields.size() * 3);
+		docValues.add(idUri);
+		docValues.add(id);
+		for (FullTextIndexField field : fields) {
+			docValues.add(field.prefix);
+			docValues.add(StringUtils.null2blank(field.selfid));
+			docValues.add(field.text);
+		}
+		return docValues;
+	}
+
+	/**
+	 * N-gram形式の全文検索 1リクエスト分の検索処理.
+	 */
+	private class NgramQuery {
+
+		/** 名前空間 */
+		private final String namespace;
+		/** BDB環境 */
+		private final BDBEnv bdbEnv;
+		/** インデックス接頭辞 */
+		private final String prefix;
+		/** 正規化済み検索語リスト */
+		private final List<String> texts;
+		/** 検索語をOR条件とする場合true */
+		private final boolean isOr;
+		/** 最大件数 */
+		private final int limit;
+		/** リクエスト情報 */
+		private final RequestInfo requestInfo;
+		/** コネクション情報 */
+		private final ConnectionInfo connectionInfo;
+		/** フェッチ最大数 */
+		private final int fetchLimit = BDBEnvUtil.getFetchLimit();
+
+		/** 検索結果 キー:文書番号、値:ID */
+		private Map<String, String> results = new LinkedHashMap<>();
+		/** カーソル (次に確認する文書番号) */
+		private String pointerStr;
+		/** フェッチ数 */
+		private int fetchCnt;
+		/** フェッチ数超過の場合true */
+		private boolean isFetchExceeded;
+
+		/**
+		 * コンストラクタ.
+		 * @param namespace 名前空間
+		 * @param bdbEnv BDB環境
+		 * @param prefix インデックス接頭辞
+		 * @param texts 正規化済み検索語リスト
+		 * @param isOr 検索語をOR条件とする場合true
+		 * @param limit 最大件数
+		 * @param requestInfo リクエスト情報
+		 * @param connectionInfo コネクション情報
+		 */
+		NgramQuery(String namespace, BDBEnv bdbEnv, String prefix, List<String> texts,
+				boolean isOr, int limit, RequestInfo requestInfo,
+				ConnectionInfo connectionInfo) {
+			this.namespace = namespace;
+			this.bdbEnv = bdbEnv;
+			this.prefix = prefix;
+			this.texts = texts;
+			this.isOr = isOr;
+			this.limit = limit;
+			this.requestInfo = requestInfo;
+			this.connectionInfo = connectionInfo;
+		}
+
+		/**
+		 * 検索.
+		 * 検索対象ごとの次のポスティングブロックのうち、最小のブロック番号から順に候補を確認する。
+		 * @param ngramSize N-gramの文字数
+		 * @param startDocNo 開始文書番号
+		 */
+		void search(int ngramSize, long startDocNo)
+		throws IOException, TaggingException {
+			List<PostingSource> sources = createSources(ngramSize);
+			try {
+				long block = FullTextNgramUtil.getBlock(startDocNo);
+				while (true) {
+					long minBlock = -1;
+					for (PostingSource source : sources) {
+						long foundBlock = source.seek(block);
+						if (isFetchExceeded) {
+							pointerStr = String.valueOf(Math.max(startDocNo,
+									FullTextNgramUtil.getDocNo(block, 0)));
+							return;
+						}
+						if (foundBlock >= 0 && (minBlock < 0 || foundBlock < minBlock)) {
+							minBlock = foundBlock;
+						}
+					}
+					if (minBlock < 0) {
+						// 全ての検索対象のポスティングリストが終了
+						return;
+					}
+
+					// ブロック内の文書番号の和集合 (AND条件の場合、検索対象は1件)
+					int[] offsets = null;
+					for (PostingSource source : sources) {
+						if (source.block == minBlock) {
+							offsets = offsets == null ? source.offsets :
+								union(offsets, source.offsets);
+						}
+					}
+					if (!addCandidates(minBlock, offsets, startDocNo)) {
+						return;
+					}
+					block = minBlock + 1;
+				}
+
+			} finally {
+				for (PostingSource source : sources) {
+					source.close();
+				}
+			}
+		}
+
+		/**
+		 * 検索対象リストを生成.
+		 * <ul>
+		 *   <li>AND条件 : N文字以上の全検索語のグラムを1つの検索対象とする。
+		 *       全検索語がN文字未満の場合、最も長い検索語で始まるグラムを検索対象とする。</li>
+		 *   <li>OR条件 : 検索語ごとに検索対象とする。</li>
+		 * </ul>
+		 * @param ngramSize N-gramの文字数
+		 * @return 検索対象リスト
+		 */
+		private List<PostingSource> createSources(int ngramSize) {
+			List<PostingSource> sources = new ArrayList<>();
+			if (isOr) {
+				for (String text : texts) {
+					if (FullTextNgramUtil.getLength(text) < ngramSize) {
+						sources.add(new PrefixSource(text));
+					} else {
+						sources.add(new GramSource(getQueryGramKeyPrefixes(text, ngramSize)));
+					}
+				}
+			} else {
+				Set<String> gramKeyPrefixes = new LinkedHashSet<>();
+				String longestText = null;
+				for (String text : texts) {
+					if (FullTextNgramUtil.getLength(text) >= ngramSize) {
+						gramKeyPrefixes.addAll(getQueryGramKeyPrefixes(text, ngramSize));
+					}
+					if (longestText == null || FullTextNgramUtil.getLength(text) >
+							FullTextNgramUtil.getLength(longestText)) {
+						longestText = text;
+					}
+				}
+				if (gramKeyPrefixes.isEmpty()) {
+					sources.add(new PrefixSource(longestText));
+				} else {
+					sources.add(new GramSource(new ArrayList<>(gramKeyPrefixes)));
+				}
+			}
+			return sources;
+		}
+
+		/**
+		 * 検索語のグラムのキー接頭辞リストを取得.
+		 * @param text 正規化済み検索語
+		 * @param ngramSize N-gramの文字数
+		 * @return グラムのキー接頭辞リスト
+		 */
+		private List<String> getQueryGramKeyPrefixes(String text, int ngramSize) {
+			List<String> gramKeyPrefixes = new ArrayList<>();
+			for (String gram : FullTextNgramUtil.getQueryGrams(text, ngramSize)) {
+				gramKeyPrefixes.add(FullTextNgramUtil.getGramKeyPrefix(prefix, gram));
+			}
+			return gramKeyPrefixes;
+		}
+
+		/**
+		 * 候補の文書を確認し、検索結果に追加.
+		 * @param block ブロック番号
+		 * @param offsets 候補のブロック内オフセット
+		 * @param startDocNo 開始文書番号
+		 * @return 検索を続ける場合true、件数一杯またはフェッチ数超過の場合false
+		 */
+		private boolean addCandidates(long block, int[] offsets, long startDocNo)
+		throws IOException, TaggingException {
+			BDBDatabase dbDoc = bdbEnv.getDb(FullTextSearchBDBConst.DB_FULL_TEXT_NGRAM_DOC);
+			BDBGet<List<String>> bdbGetList = new BDBGet<>();
+			for (int offset : offsets) {
+				long docNo = FullTextNgramUtil.getDocNo(block, offset);
+				if (docNo < startDocNo) {
+					continue;
+				}
+				if (results.size() >= limit || isFetchExceeded()) {
+					// 件数一杯
+					pointerStr = String.valueOf(docNo);
+					return false;
+				}
+				List<String> docValues = bdbGetList.get(namespace, null, dbDoc,
+						BDBUtil.getListBinding(), BDBUtil.getLockMode(), getDocKey(docNo),
+						requestInfo, connectionInfo);
+				if (docValues != null && FullTextSearchIndexUtil.containsTexts(
+						toFields(docValues), prefix, texts, isOr)) {
+					results.put(String.valueOf(docNo), docValues.get(1));
+				}
+			}
+			return true;
+		}
+
+		/**
+		 * フェッチ数を加算し、フェッチ最大数を超えたかどうか判定.
+		 * @return フェッチ最大数を超えた場合true
+		 */
+		private boolean isFetchExceeded() {
+			fetchCnt++;
+			if (fetchCnt > fetchLimit) {
+				isFetchExceeded = true;
+			}
+			return isFetchExceeded;
+		}
+
+		/**
+		 * 昇順のオフセット配列同士の和集合を取得.
+		 * @param offsets1 昇順のオフセット
+		 * @param offsets2 昇順のオフセット
+		 * @return 和集合
+		 */
+		private int[] union(int[] offsets1, int[] offsets2) {
+			int[] ret = new int[offsets1.length + offsets2.length];
+			int size = 0;
+			int i = 0;
+			int j = 0;
+			while (i < offsets1.length || j < offsets2.length) {
+				if (j >= offsets2.length ||
+						(i < offsets1.length && offsets1[i] < offsets2[j])) {
+					ret[size++] = offsets1[i++];
+				} else if (i >= offsets1.length || offsets1[i] > offsets2[j]) {
+					ret[size++] = offsets2[j++];
+				} else {
+					ret[size++] = offsets1[i++];
+					j++;
+				}
+			}
+			return Arrays.copyOf(ret, size);
+		}
+
+		/**
+		 * 検索対象.
+		 * 指定ブロック以降で最初の候補を含むポスティングブロックを、ブロック番号順に返す。
+		 */
+		private abstract class PostingSource {
+
+			/** 現在のブロック番号 (未検索の場合-1) */
+			long block = -1;
+			/** 現在のブロックの候補のブロック内オフセット */
+			int[] offsets;
+			/** ポスティングリストが終了した場合true */
+			boolean isEnd;
+
+			/**
+			 * 指定ブロック以降のポスティングブロックに移動.
+			 * 現在のブロックが指定ブロック以降の場合は移動しない。
+			 * @param startBlock ブロック番号
+			 * @return 移動したブロック番号。ポスティングリストが終了した場合、またはフェッチ数超過の場合-1。
+			 */
+			long seek(long startBlock) {
+				if (isEnd) {
+					return -1;
+				}
+				if (block >= startBlock) {
+					return block;
+				}
+				return seekProc(startBlock);
+			}
+
+			/**
+			 * 指定ブロック以降のポスティングブロックに移動.
+			 * @param startBlock ブロック番号
+			 * @return 移動したブロック番号。ポスティングリストが終了した場合、またはフェッチ数超過の場合-1。
+			 */
+			abstract long seekProc(long startBlock);
+
+			/**
+			 * クローズ処理.
+			 */
+			abstract void close();
+		}
+
+		/**
+		 * 検索語の全グラムを含む文書の検索対象.
+		 * グラムごとにカーソルを開き、全グラムのカーソルが同じブロックに揃うまで進める。
+		 */
+		private class GramSource extends PostingSource {
+
+			/** グラムのキー接頭辞リスト */
+			private final List<String> gramKeyPrefixes;
+			/** グラムごとのカーソル */
+			private final BDBCursor[] cursors;
+
+			/**
+			 * コンストラクタ.
+			 * @param gramKeyPrefixes グラムのキー接頭辞リスト
+			 */
+			GramSource(List<String> gramKeyPrefixes) {
+				this.gramKeyPrefixes = gramKeyPrefixes;
+				this.cursors = new BDBCursor[gramKeyPrefixes.size()];
+			}
+
+			/**
+			 * 指定ブロック以降で全グラムを含むポスティングブロックに移動.
+			 * @param startBlock ブロック番号
+			 * @return 移動したブロック番号。ポスティングリストが終了した場合、またはフェッチ数超過の場合-1。
+			 */
+			@Override
+			long seekProc(long startBlock) {
+				BDBDatabase dbNgram = bdbEnv.getDb(FullTextSearchBDBConst.DB_FULL_TEXT_NGRAM);
+				int size = gramKeyPrefixes.size();
+				byte[][] datas = new byte[size][];
+				long currentBlock = startBlock;
+				int matched = 0;
+				int i = 0;
+				while (matched < size) {
+					if (cursors[i] == null) {
+						cursors[i] = dbNgram.openCursor(null, BDBConst.CURSOR_CONFIG);
+					}
+					DatabaseEntry foundData = new DatabaseEntry();
+					long foundBlock = seekCursor(cursors[i], gramKeyPrefixes.get(i),
+							currentBlock, foundData);
+					if (foundBlock < 0) {
+						// いずれかのグラムのポスティングリストが終了
+						isEnd = true;
+						return -1;
+					}
+					if (isFetchExceeded()) {
+						return -1;
+					}
+					datas[i] = BDBUtil.getDbBytes(foundData);
+					if (foundBlock == currentBlock) {
+						matched++;
+					} else {
+						currentBlock = foundBlock;
+						matched = 1;
+					}
+					i = (i + 1) % size;
+				}
+
+				// ブロック内の文書番号の積集合
+				int[] tmpOffsets = FullTextNgramUtil.decodePosting(datas[0]);
+				for (int j = 1; j < size && tmpOffsets.length > 0; j++) {
+					tmpOffsets = FullTextNgramUtil.intersect(tmpOffsets,
+							FullTextNgramUtil.decodePosting(datas[j]));
+				}
+				block = currentBlock;
+				offsets = tmpOffsets;
+				return block;
+			}
+
+			/**
+			 * カーソルを指定ブロック以降のポスティングブロックに移動.
+			 * @param cursor カーソル
+			 * @param gramKeyPrefix グラムのキー接頭辞
+			 * @param startBlock ブロック番号
+			 * @param foundData 取得したポスティングブロックの値
+			 * @return 移動したブロック番号。グラムのポスティングブロックがない場合-1。
+			 */
+			private long seekCursor(BDBCursor cursor, String gramKeyPrefix, long startBlock,
+					DatabaseEntry foundData) {
+				DatabaseEntry foundKey = BDBUtil.getDbKey(
+						FullTextNgramUtil.getPostingKey(gramKeyPrefix, startBlock));
+				OperationStatus retVal = cursor.getSearchKeyRange(foundKey, foundData,
+						BDBUtil.getLockMode());
+				if (retVal != OperationStatus.SUCCESS) {
+					return -1;
+				}
+				return FullTextNgramUtil.getBlockByPostingKey(gramKeyPrefix,
+						BDBUtil.getDbString(foundKey));
+			}
+
+			/**
+			 * クローズ処理.
+			 */
+			@Override
+			void close() {
+				for (BDBCursor cursor : cursors) {
+					if (cursor != null) {
+						cursor.close();
+					}
+				}
+			}
+		}
+
+		/**
+		 * 検索語で始まるグラムを含む文書の検索対象.
+		 * 検索語がN文字未満の場合に使用する。
+		 * 初回の移動時に、検索語で始まるグラムのポスティングブロックの和集合をブロック番号ごとに読み込む。
+		 */
+		private class PrefixSource extends PostingSource {
+
+			/** 正規化済み検索語 */
+			private final String text;
+			/** キー:ブロック番号、値:ブロック内オフセットの和集合 */
+			private TreeMap<Long, int[]> blocks;
+
+			/**
+			 * コンストラクタ.
+			 * @param text 正規化済み検索語
+			 */
+			PrefixSource(String text) {
+				this.text = text;
+			}
+
+			/**
+			 * 指定ブロック以降で検索語で始まるグラムを含むポスティングブロックに移動.
+			 * @param startBlock ブロック番号
+			 * @return 移動したブロック番号。ポスティングリストが終了した場合、またはフェッチ数超過の場合-1。
+			 */
+			@Override
+			long seekProc(long startBlock) {
+				if (blocks == null) {
+					blocks = readBlocks(startBlock);
+					if (isFetchExceeded) {
+						return -1;
+					}
+				}
+				Map.Entry<Long, int[]> mapEntry = blocks.ceilingEntry(startBlock);
+				if (mapEntry == null) {
+					isEnd = true;
+					return -1;
+				}
+				block = mapEntry.getKey();
+				offsets = mapEntry.getValue();
+				return block;
+			}
+
+			/**
+			 * 検索語で始まるグラムのポスティングブロックを読み込む.
+			 * @param startBlock 開始ブロック番号
+			 * @return キー:ブロック番号、値:ブロック内オフセットの和集合
+			 */
+			private TreeMap<Long, int[]> readBlocks(long startBlock) {
+				BDBDatabase dbNgram = bdbEnv.getDb(FullTextSearchBDBConst.DB_FULL_TEXT_NGRAM);
+				String startKey = prefix + text;
+				TreeMap<Long, int[]> tmpBlocks = new TreeMap<>();
+				BDBCursor cursor = null;
+				try {
+					cursor = dbNgram.openCursor(null, BDBConst.CURSOR_CONFIG);
+					DatabaseEntry foundKey = BDBUtil.getDbKey(startKey);
+					DatabaseEntry foundData = new DatabaseEntry();
+					OperationStatus retVal = cursor.getSearchKeyRange(foundKey, foundData,
+							BDBUtil.getLockMode());
+					while (retVal == OperationStatus.SUCCESS) {
+						String foundKeyStr = BDBUtil.getDbString(foundKey);
+						if (!foundKeyStr.startsWith(startKey)) {
+							break;
+						}
+						if (isFetchExceeded()) {
+							break;
+						}
+						String gramKeyPrefix = FullTextNgramUtil.getGramKeyPrefixByPostingKey(
+								foundKeyStr);
+						long foundBlock = FullTextNgramUtil.getBlockByPostingKey(gramKeyPrefix,
+								foundKeyStr);
+						if (foundBlock >= startBlock) {
+							int[] foundOffsets = FullTextNgramUtil.decodePosting(
+									BDBUtil.getDbBytes(foundData));
+							int[] current = tmpBlocks.get(foundBlock);
+							tmpBlocks.put(foundBlock, current == null ? foundOffsets :
+								union(current, foundOffsets));
+						}
+						retVal = cursor.getNext(foundKey, foundData, BDBUtil.getLockMode());
+					}
+				} finally {
+					if (cursor != null) {
+						cursor.close();
+					}
+				}
+				return tmpBlocks;
+			}
+
+			/**
+			 * クローズ処理.
+			 */
+			@Override
+			void close() {
+				// 読み込み時にカーソルを閉じているため処理なし
+			}
+		}
+	}
+
+}
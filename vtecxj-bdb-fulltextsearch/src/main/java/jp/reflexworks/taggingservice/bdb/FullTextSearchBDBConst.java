@@ -18,6 +18,14 @@ public class FullTextSearchBDBConst {
 	static final String DB_DISTKEY_ITEM = "DBDistkeyItem";
 	/** `DBAllocids` : 採番テーブル */
 	static final String DB_ALLOCIDS = "DBAllocids";
+	/** `DBFullTextNgram` : N-gram形式の全文検索インデックス (グラムごとの文書番号ポスティングリスト) */
+	static final String DB_FULL_TEXT_NGRAM = "DBFullTextNgram";
+	/** `DBFullTextNgramDocNo` : N-gram形式の全文検索インデックスのID URIと文書番号の対応 */
+	static final String DB_FULL_TEXT_NGRAM_DOCNO = "DBFullTextNgramDocNo";
+	/** `DBFullTextNgramDoc` : N-gram形式の全文検索インデックスの文書番号ごとのIDとインデックス値 */
+	static final String DB_FULL_TEXT_NGRAM_DOC = "DBFullTextNgramDoc";
+	/** `DBFullTextIndexFormat` : 全文検索インデックス形式の格納テーブル */
+	static final String DB_FULL_TEXT_INDEX_FORMAT = "DBFullTextIndexFormat";
 
 	/** テーブル名リスト */
 	public static final List<String> DB_NAMES = new CopyOnWriteArrayList<String>();
@@ -27,10 +35,30 @@ public class FullTextSearchBDBConst {
 		DB_NAMES.add(DB_FULL_TEXT_INDEX_ITEM);
 		DB_NAMES.add(DB_DISTKEY_ITEM);
 		DB_NAMES.add(DB_ALLOCIDS);
+		DB_NAMES.add(DB_FULL_TEXT_NGRAM);
+		DB_NAMES.add(DB_FULL_TEXT_NGRAM_DOCNO);
+		DB_NAMES.add(DB_FULL_TEXT_NGRAM_DOC);
+		DB_NAMES.add(DB_FULL_TEXT_INDEX_FORMAT);
 	}
 
 	/** 短縮値のキー */
 	public static final String KEY_SHORTENING = "item";
+	/** N-gram形式の文書番号のキー */
+	static final String KEY_DOCNO = "docno";
+	/** 全文検索インデックス形式のキー */
+	static final String KEY_FORMAT = "format";
+
+	/** 全文検索インデックス形式 : suffix形式 (先頭から1文字ずつ削った文字列をキーとする) */
+	public static final String FORMAT_SUFFIX = "suffix";
+	/** 全文検索インデックス形式 : N-gram形式 (グラムごとのポスティングリスト) */
+	public static final String FORMAT_NGRAM = "ngram";
+
+	/** 全文検索インデックス形式変換の状態 : 変換中 */
+	public static final String CONVERT_STATUS_CONVERTING = "converting";
+	/** 全文検索インデックス形式変換の状態 : 旧形式の削除中 */
+	public static final String CONVERT_STATUS_CLEANING = "cleaning";
+	/** 全文検索インデックス形式変換の状態 : 完了 */
+	public static final String CONVERT_STATUS_COMPLETED = "completed";
 
 	/** 全文検索条件の検索済みキー格納キー */
 	static final String SESSION_FULLTEXTSEARCH = "_FTGET_";
@@ -2,6 +2,8 @@ package jp.reflexworks.taggingservice.bdb;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
@@ -31,8 +33,12 @@ import jp.reflexworks.taggingservice.exception.RetryExceededException;
 import jp.reflexworks.taggingservice.exception.TaggingException;
 import jp.reflexworks.taggingservice.model.BDBCondition;
 import jp.reflexworks.taggingservice.model.FetchInfo;
+import jp.reflexworks.taggingservice.model.FullTextIndexField;
+import jp.reflexworks.taggingservice.model.FullTextIndexFormat;
 import jp.reflexworks.taggingservice.model.FullTextSearchCondition;
 import jp.reflexworks.taggingservice.model.FullTextSearchRequestParam;
+import jp.reflexworks.taggingservice.util.FullTextBloomFilter;
+import jp.reflexworks.taggingservice.util.FullTextNgramUtil;
 import jp.reflexworks.taggingservice.util.FullTextSearchCheckUtil;
 import jp.reflexworks.taggingservice.util.FullTextSearchIndexUtil;
 import jp.reflexworks.taggingservice.util.LogUtil;
@@ -70,6 +76,8 @@ public class FullTextSearchBDBManager {
 
 		// キー: ID、値: インデックス値
 		Map<String, Set<String>> putIndexes = new LinkedHashMap<>();
+		// キー: ID、値: N-gram形式のインデックス項目
+		Map<String, List<FullTextIndexField>> putFields = new LinkedHashMap<>();
 		// 全文検索インデックス項目名の短縮値 一度取得したものを格納するMap
 		Map<String, String> indexItemMap = new HashMap<>();
 		// DISTKEYの項目名の短縮値 一度取得したものを格納するMap
@@ -115,6 +123,11 @@ public class FullTextSearchBDBManager {
 					indexes = new LinkedHashSet<>();
 					putIndexes.put(id, indexes);
 				}
+				List<FullTextIndexField> fields = putFields.get(id);
+				if (fields == null) {
+					fields = new ArrayList<>();
+					putFields.put(id, fields);
+				}
 				if (!(isDelete && isPartial) &&
 						StringUtils.isBlank(text)) {
 					// 部分削除以外は値必須
@@ -141,13 +154,25 @@ public class FullTextSearchBDBManager {
 				if (newIndexes != null && !newIndexes.isEmpty()) {
 					indexes.addAll(newIndexes);
 				}
+				// N-gram形式のインデックス項目
+				String normalizeText = StringUtils.null2blank(
+						FullTextSearchIndexUtil.convertFullTextIndex(text));
+				for (String prefix : FullTextSearchIndexUtil.getFullTextIndexPrefixes(
+						parentItemShortening, distkeys)) {
+					fields.add(new FullTextIndexField(prefix, uriPair.selfid, normalizeText));
+				}
 
 			} else {
 				// Entry削除
 				putIndexes.put(id, null);
+				putFields.put(id, null);
 			}
 		}
 
+		// 全文検索インデックスを一括更新
+		// キー: id、値: インデックスリスト
+		Map<String, List<String>> batchIndexes = new LinkedHashMap<>();
+		int batchSize = BDBEnvUtil.getBDBIndexBatchSize();
 		for (Map.Entry<String, Set<String>> mapEntry : putIndexes.entrySet()) {
 			String id = mapEntry.getKey();
 			List<String> indexes = null;
@@ -156,40 +181,55 @@ public class FullTextSearchBDBManager {
 				indexes = new ArrayList<>(values.size());
 				indexes.addAll(values);
 			}
-			updateIndexes(namespace, id, indexes, isPartial, isDelete,
+			batchIndexes.put(id, indexes);
+			if (batchIndexes.size() >= batchSize) {
+				updateIndexes(namespace, batchIndexes, putFields, isPartial, isDelete,
+						requestInfo, connectionInfo);
+				batchIndexes = new LinkedHashMap<>();
+			}
+		}
+		if (!batchIndexes.isEmpty()) {
+			updateIndexes(namespace, batchIndexes, putFields, isPartial, isDelete,
 					requestInfo, connectionInfo);
 		}
 	}
 
 	/**
 	 * 全文検索インデックスを更新.
+	 * 名前空間の全文検索インデックス形式 (形式変換中の場合は変換先の形式も) を、
+	 * 指定されたIDについて1トランザクションで更新する。
 	 * @param namespace 名前空間
-	 * @param id ID
-	 * @param newIndexes インデックスリスト
+	 * @param indexesMap キー:ID、値:インデックスリスト
+	 * @param fieldsMap キー:ID、値:N-gram形式のインデックス項目リスト
 	 * @param isPartial 指定されたキー・項目のみの更新の場合true
 	 * @param isDelete 削除の場合true
 	 * @param requestInfo リクエスト情報
 	 * @param connectionInfo コネクション情報
 	 */
-	private void updateIndexes(String namespace, String id, List<String> newIndexes,
-			boolean isPartial, boolean isDelete,
+	private void updateIndexes(String namespace, Map<String, List<String>> indexesMap,
+			Map<String, List<FullTextIndexField>> fieldsMap, boolean isPartial, boolean isDelete,
 			RequestInfo requestInfo, ConnectionInfo connectionInfo)
 	throws IOException, TaggingException {
+		// エラー時のキーは先頭のID
+		String id = indexesMap.keySet().iterator().next();
 		// test
 		if (logger.isTraceEnabled()) {
 			StringBuilder sb = new StringBuilder();
 			sb.append(LogUtil.getRequestInfoStr(requestInfo));
 			sb.append("[updateIndexes] start. id=");
 			sb.append(id);
+			sb.append(" size=");
+			sb.append(indexesMap.size());
 			logger.info(sb.toString());
 		}
 		
 		int numRetries = BDBEnvUtil.getBDBRetryCount();
 		int waitMillis = BDBEnvUtil.getBDBRetryWaitmillis();
 		for (int r = 0; r <= numRetries; r++) {
+			BDBEnv bdbEnv = null;
 			try {
 				// BDB環境情報取得
-				BDBEnv bdbEnv = getBDBEnvByNamespace(namespace, true);
+				bdbEnv = getBDBEnvByNamespace(namespace, true);
 
 				BDBDatabase dbIndex = bdbEnv.getDb(FullTextSearchBDBConst.DB_FULL_TEXT_INDEX);
 				BDBDatabase dbIndexAncestor = bdbEnv.getDb(FullTextSearchBDBConst.DB_FULL_TEXT_INDEX_ANCESTOR);
@@ -199,9 +239,25 @@ public class FullTextSearchBDBManager {
 					// トランザクション開始
 					bdbTxn = bdbEnv.beginTransaction();
 
+					// 全文検索インデックス形式を取得
+					FullTextIndexFormat formatInfo = getIndexFormat(namespace, bdbTxn, bdbEnv,
+							requestInfo, connectionInfo);
+
 					// 全文検索indexを更新
-					updateIndexesProc(namespace, bdbTxn, dbIndex, dbIndexAncestor, id,
-							newIndexes, isPartial, isDelete, requestInfo, connectionInfo);
+					if (formatInfo.isWrite(FullTextSearchBDBConst.FORMAT_SUFFIX)) {
+						BDBIndexBatchWriter batchWriter = new BDBIndexBatchWriter(dbIndex,
+								dbIndexAncestor, FullTextSearchIndexUtil::getShortingByIndexUri);
+						batchWriter.write(namespace, bdbTxn, indexesMap, isPartial, isDelete,
+								requestInfo, connectionInfo);
+					}
+					if (formatInfo.isWrite(FullTextSearchBDBConst.FORMAT_NGRAM)) {
+						FullTextNgramBDBManager ngramManager = new FullTextNgramBDBManager();
+						for (String fieldsId : indexesMap.keySet()) {
+							ngramManager.updateDoc(namespace, bdbTxn, bdbEnv, fieldsId,
+									fieldsMap.get(fieldsId), isPartial, isDelete,
+									formatInfo.ngramSize, requestInfo, connectionInfo);
+						}
+					}
 
 					// コミット
 					bdbTxn.commit();
@@ -236,116 +292,13 @@ public class FullTextSearchBDBManager {
 					logger.info(sb.toString());
 				}
 				BDBUtil.sleep(waitMillis + r * 10);
+			} finally {
+				BDBUtil.releaseBDBEnv(bdbEnv);
 			}
 		}
 		throw new IllegalStateException("Unreachable code.");
 	}
 
-	/**
-	 * 全文検索インデックス情報を更新
-	 * @param namespace 名前空間
-	 * @param bdbTxn トランザクション
-	 * @param db 全文検索インデックステーブル
-	 * @param dbAncestor 全文検索インデックスAncestor
-	 * @param id ID
-	 * @param indexList インデックスリスト
-	 * @param isPartial 指定されたキー・項目のみの更新の場合true
-	 * @param isDelete 削除の場合true
-	 * @param requestInfo リクエスト情報
-	 * @param connectionInfo コネクション情報
-	 */
-	private void updateIndexesProc(String namespace, BDBTransaction bdbTxn,
-			BDBDatabase db, BDBDatabase dbAncestor, String id,
-			List<String> indexList, boolean isPartial, boolean isDelete,
-			RequestInfo requestInfo, ConnectionInfo connectionInfo)
-	throws IOException, TaggingException {
-		BDBGet<List<String>> bdbGetAncestor = new BDBGet<>();
-		BDBPut<String> bdbPutString = new BDBPut<>();
-		BDBPut<List<String>> bdbPutAncestor = new BDBPut<>();
-		BDBDelete bdbDelete = new BDBDelete();
-
-		ListBinding listBinding = new ListBinding();
-		StringBinding stringBinding = BDBUtil.getStringBinding();
-
-		// 現在のIndexを取得
-		String idUri = TaggingEntryUtil.getUriById(id);
-		List<String> currentIndexes = bdbGetAncestor.get(namespace, bdbTxn, dbAncestor,
-				listBinding, BDBUtil.getLockMode(), idUri, requestInfo, connectionInfo);
-
-		// 今回のIndexを生成
-		boolean isPutAncestor = false;
-		List<String> newIndexes = new ArrayList<>();
-		if (indexList != null && !isDelete) {
-			// 登録更新
-			for (String index : indexList) {
-				newIndexes.add(index);
-				// 登録
-				bdbPutString.put(namespace, bdbTxn, db, stringBinding, index, id,
-						requestInfo, connectionInfo);
-				if (!isPutAncestor) {
-					if (currentIndexes == null || !currentIndexes.contains(index)) {
-						isPutAncestor = true;
-					}
-				}
-			}
-		}
-
-		// 除去されたインデックスを削除
-		if (currentIndexes != null) {
-			List<String> remainingCurrentIndexes = new ArrayList<>();
-			for (String currentIndex : currentIndexes) {
-				if (newIndexes.contains(currentIndex)) {
-					continue;
-				}
-				boolean isDeleteCurrent = true;
-				if (isPartial) {
-					if (!isDelete) {
-						// 部分更新
-						// インデックス項目短縮値が等しく、
-						// 新しく登録したインデックスに合致しないものがあれば削除する。
-						if (!containsShorting(currentIndex, newIndexes)) {
-							// isPartial=trueでインデックス項目短縮値が合致しない場合は、
-							// 変更対象でないので残す。
-							isDeleteCurrent = false;
-							remainingCurrentIndexes.add(currentIndex);
-						}
-					} else {
-						// 部分削除
-						if (!containsShorting(currentIndex, indexList)) {
-							// 変更対象でないので残す。
-							isDeleteCurrent = false;
-							remainingCurrentIndexes.add(currentIndex);
-						}
-					}
-				}
-
-				if (isDeleteCurrent) {
-					bdbDelete.delete(namespace, bdbTxn, db, currentIndex,
-							requestInfo, connectionInfo);
-					if (!isPutAncestor) {
-						isPutAncestor = true;
-					}
-				}
-			}
-			if (!remainingCurrentIndexes.isEmpty()) {
-				newIndexes.addAll(remainingCurrentIndexes);
-			}
-		}
-
-		// 全文検索インデックスに変更があれば、Ancestorを更新
-		if (isPutAncestor) {
-			if (isDelete && !isPartial) {
-				// 削除
-				bdbDelete.delete(namespace, bdbTxn, dbAncestor, idUri, requestInfo,
-						connectionInfo);
-			} else {
-				// 更新または部分削除
-				bdbPutAncestor.put(namespace, bdbTxn, dbAncestor, listBinding, idUri,
-						newIndexes, requestInfo, connectionInfo);
-			}
-		}
-	}
-
 	/**
 	 * 条件検索.
 	 * キーリストを返却する。
@@ -375,40 +328,60 @@ public class FullTextSearchBDBManager {
 		FullTextSearchCheckUtil.checkUri(uri);
 		FullTextSearchCondition condition = param.getFullTextSearchCondition();
 		checkCondition(condition);
+		List<FullTextSearchCondition> conditions = param.getFullTextSearchConditions();
+		checkConditions(conditions);
+		boolean isOr = param.isFullTextSearchOr();
 
 		int limit = getLimit(param.getOption(FullTextSearchRequestParam.PARAM_LIMIT));
 		// 検索用インデックスを取得
-		String index = getFullTextIndexForGet(namespace, uri, condition,
+		String prefix = getFullTextIndexPrefixForGet(namespace, uri, condition,
 				distkeyItem, distkeyValue, requestInfo, connectionInfo);
+		String text = FullTextSearchIndexUtil.convertFullTextIndex(condition.text);
+		List<String> texts = getTexts(conditions);
 
 		String cursorStr = PointerUtil.decode(
 				param.getOption(FullTextSearchRequestParam.PARAM_NEXT));
+
+		// 全文検索インデックス形式がN-gram形式の場合
+		FullTextIndexFormat formatInfo = getIndexFormat(namespace, requestInfo, connectionInfo);
+		if (formatInfo != null &&
+				FullTextSearchBDBConst.FORMAT_NGRAM.equals(formatInfo.format)) {
+			return getFeedKeysByNgram(namespace, prefix, texts, isOr, formatInfo.ngramSize,
+					cursorStr, limit, requestInfo, connectionInfo);
+		}
+		// 検索語が複数の場合
+		if (texts.size() > 1) {
+			return getFeedKeysByTexts(namespace, param, prefix, texts, isOr, cursorStr,
+					limit, reflexContext);
+		}
+
+		String index = prefix + text;
 		String endKeyStr = FullTextSearchIndexUtil.getEndKeyStr(index);
 		BDBCondition bdbCondition = new BDBCondition(index, endKeyStr, cursorStr);
-		Map<String, String> currentCache = null;
-		FeedBase currentCacheFeed = null;
-		if (param.getOption(FullTextSearchRequestParam.PARAM_CLEARCACHE) != null) {
-			currentCache = new HashMap<>();
-		} else {
-			currentCacheFeed = getFullTextCacheFeed(index, reflexContext);
-			currentCache = convertFullTextCacheMap(currentCacheFeed);
-		}
+		byte[] filterData = getFullTextFilterData(index,
+				param.getOption(FullTextSearchRequestParam.PARAM_CLEARCACHE) != null,
+				reflexContext);
 
 		int numRetries = BDBEnvUtil.getBDBRetryCount();
 		int waitMillis = BDBEnvUtil.getBDBRetryWaitmillis();
 		for (int r = 0; r <= numRetries; r++) {
+			BDBEnv bdbEnv = null;
 			try {
-				BDBEnv bdbEnv = getBDBEnvByNamespace(namespace, false);
+				bdbEnv = getBDBEnvByNamespace(namespace, false);
 				if (bdbEnv == null) {
 					// 環境が存在しない場合はデータなし
 					return null;
 				}
 				BDBDatabase db = bdbEnv.getDb(FullTextSearchBDBConst.DB_FULL_TEXT_INDEX);
+				BDBDatabase dbAncestor = bdbEnv.getDb(
+						FullTextSearchBDBConst.DB_FULL_TEXT_INDEX_ANCESTOR);
+				FullTextDuplicateChecker duplicateChecker = new FullTextDuplicateChecker(
+						dbAncestor, index, endKeyStr, FullTextBloomFilter.valueOf(filterData));
 				FetchInfo<String> fetchInfo = bdbQuery.getByQuery(namespace, null, db,
-						binding, bdbCondition, limit, currentCache, requestInfo);
+						binding, bdbCondition, limit, duplicateChecker, requestInfo);
 
-				// キャッシュをセッションに登録
-				setFullTextCache(index, currentCacheFeed, fetchInfo, reflexContext);
+				// 返却済みIDをセッションに登録
+				setFullTextFilter(index, duplicateChecker, reflexContext);
 
 				return fetchInfo;
 
@@ -424,11 +397,742 @@ public class FullTextSearchBDBManager {
 							"[getFeedKeys] " + ReflexBDBLogUtil.getRetryLog(e, r));
 				}
 				BDBUtil.sleep(waitMillis + r * 10);
+			} finally {
+				BDBUtil.releaseBDBEnv(bdbEnv);
+			}
+		}
+		throw new IllegalStateException("Unreachable code.");
+	}
+
+	/**
+	 * N-gram形式の全文検索インデックスで条件検索.
+	 * 検索結果に重複がないため、検索済みキーのセッション登録は行わない。
+	 * @param namespace 名前空間
+	 * @param prefix インデックス接頭辞
+	 * @param texts 正規化済み検索語リスト
+	 * @param isOr 検索語をOR条件とする場合true、AND条件とする場合false
+	 * @param ngramSize N-gramの文字数
+	 * @param cursorStr デコード済みカーソル
+	 * @param limit 最大件数
+	 * @param requestInfo リクエスト情報
+	 * @param connectionInfo コネクション情報
+	 * @return Entryの IDリストと、続きがある場合はカーソルを返す。
+	 */
+	private FetchInfo<String> getFeedKeysByNgram(String namespace, String prefix,
+			List<String> texts, boolean isOr, int ngramSize, String cursorStr, int limit,
+			RequestInfo requestInfo, ConnectionInfo connectionInfo)
+	throws IOException, TaggingException {
+		FullTextNgramBDBManager ngramManager = new FullTextNgramBDBManager();
+		int numRetries = BDBEnvUtil.getBDBRetryCount();
+		int waitMillis = BDBEnvUtil.getBDBRetryWaitmillis();
+		for (int r = 0; r <= numRetries; r++) {
+			BDBEnv bdbEnv = null;
+			try {
+				bdbEnv = getBDBEnvByNamespace(namespace, false);
+				if (bdbEnv == null) {
+					// 環境が存在しない場合はデータなし
+					return null;
+				}
+				return ngramManager.getFeedKeys(namespace, bdbEnv, prefix, texts, isOr,
+						ngramSize, cursorStr, limit, requestInfo, connectionInfo);
+
+			} catch (DatabaseException e) {
+				// リトライ判定、入力エラー判定
+				BDBUtil.convertError(e, prefix, requestInfo);
+				if (r >= numRetries) {
+					// リトライ対象だがリトライ回数を超えた場合
+					BDBUtil.convertIOError(e, prefix);
+				}
+				if (logger.isInfoEnabled()) {
+					logger.info(LogUtil.getRequestInfoStr(requestInfo) +
+							"[getFeedKeysByNgram] " + ReflexBDBLogUtil.getRetryLog(e, r));
+				}
+				BDBUtil.sleep(waitMillis + r * 10);
+			} finally {
+				BDBUtil.releaseBDBEnv(bdbEnv);
 			}
 		}
 		throw new IllegalStateException("Unreachable code.");
 	}
 
+	/**
+	 * suffix形式の全文検索インデックスで複数の検索語による条件検索.
+	 * <p>
+	 * suffix形式のインデックスは値の順に並ぶため、検索語ごとの範囲をIDで突き合わせることはできない。
+	 * 検索語の範囲を走査し、Ancestorから復元した値で他の検索語を確認する。
+	 * <ul>
+	 *   <li>AND条件 : 最も長い検索語の範囲を走査し、全ての検索語を含むEntryを返却する。</li>
+	 *   <li>OR条件 : 指定順に検索語の範囲を走査する。前の検索語を含むEntryは前の検索語の走査で返却するため除く。</li>
+	 * </ul>
+	 * カーソルは {走査中の検索語の番号}\u0001{検索語の範囲内のカーソル} とする。
+	 * 検索済みキーのセッション登録は、走査する検索語ごとに行う。
+	 * </p>
+	 * @param namespace 名前空間
+	 * @param param 検索条件
+	 * @param prefix インデックス接頭辞
+	 * @param texts 正規化済み検索語リスト
+	 * @param isOr 検索語をOR条件とする場合true、AND条件とする場合false
+	 * @param cursorStr デコード済みカーソル
+	 * @param limit 最大件数
+	 * @param reflexContext ReflexContext
+	 * @return Entryの IDリストと、続きがある場合はカーソルを返す。
+	 */
+	private FetchInfo<String> getFeedKeysByTexts(String namespace,
+			FullTextSearchRequestParam param, String prefix, List<String> texts,
+			boolean isOr, String cursorStr, int limit, FullTextSearchContext reflexContext)
+	throws IOException, TaggingException {
+		RequestInfo requestInfo = reflexContext.getRequestInfo();
+		boolean isClearCache =
+				param.getOption(FullTextSearchRequestParam.PARAM_CLEARCACHE) != null;
+
+		// 走査する検索語
+		List<String> scanTexts = new ArrayList<>();
+		if (isOr) {
+			scanTexts.addAll(texts);
+		} else {
+			String longestText = null;
+			for (String text : texts) {
+				if (longestText == null || text.length() > longestText.length()) {
+					longestText = text;
+				}
+			}
+			scanTexts.add(longestText);
+		}
+
+		// カーソルを検索語の番号と検索語の範囲内のカーソルに分解
+		int startTextNo = 0;
+		String textCursorStr = cursorStr;
+		if (!StringUtils.isBlank(cursorStr)) {
+			int idx = cursorStr.indexOf(FullTextSearchIndexUtil.INDEX_SELF);
+			if (idx > 0) {
+				startTextNo = StringUtils.intValue(cursorStr.substring(0, idx), 0);
+				textCursorStr = cursorStr.substring(
+						idx + FullTextSearchIndexUtil.INDEX_SELF.length());
+			}
+		}
+
+		int numRetries = BDBEnvUtil.getBDBRetryCount();
+		int waitMillis = BDBEnvUtil.getBDBRetryWaitmillis();
+		for (int r = 0; r <= numRetries; r++) {
+			BDBEnv bdbEnv = null;
+			try {
+				bdbEnv = getBDBEnvByNamespace(namespace, false);
+				if (bdbEnv == null) {
+					// 環境が存在しない場合はデータなし
+					return null;
+				}
+				return getFeedKeysByTextsProc(namespace, bdbEnv, prefix, texts, isOr,
+						scanTexts, startTextNo, textCursorStr, limit, isClearCache,
+						reflexContext);
+
+			} catch (DatabaseException e) {
+				// リトライ判定、入力エラー判定
+				BDBUtil.convertError(e, prefix, requestInfo);
+				if (r >= numRetries) {
+					// リトライ対象だがリトライ回数を超えた場合
+					BDBUtil.convertIOError(e, prefix);
+				}
+				if (logger.isInfoEnabled()) {
+					logger.info(LogUtil.getRequestInfoStr(requestInfo) +
+							"[getFeedKeysByTexts] " + ReflexBDBLogUtil.getRetryLog(e, r));
+				}
+				BDBUtil.sleep(waitMillis + r * 10);
+			} finally {
+				BDBUtil.releaseBDBEnv(bdbEnv);
+			}
+		}
+		throw new IllegalStateException("Unreachable code.");
+	}
+
+	/**
+	 * suffix形式の全文検索インデックスで複数の検索語による条件検索 (リトライ単位の処理).
+	 * @param namespace 名前空間
+	 * @param bdbEnv BDB環境
+	 * @param prefix インデックス接頭辞
+	 * @param texts 正規化済み検索語リスト
+	 * @param isOr 検索語をOR条件とする場合true、AND条件とする場合false
+	 * @param scanTexts 走査する検索語リスト
+	 * @param startTextNo 走査を開始する検索語の番号
+	 * @param textCursorStr 走査を開始する検索語の範囲内のカーソル
+	 * @param limit 最大件数
+	 * @param isClearCache 検索済みキーのセッション登録をクリアする場合true
+	 * @param reflexContext ReflexContext
+	 * @return Entryの IDリストと、続きがある場合はカーソルを返す。
+	 */
+	private FetchInfo<String> getFeedKeysByTextsProc(String namespace, BDBEnv bdbEnv,
+			String prefix, List<String> texts, boolean isOr, List<String> scanTexts,
+			int startTextNo, String textCursorStr, int limit, boolean isClearCache,
+			FullTextSearchContext reflexContext)
+	throws IOException, TaggingException {
+		RequestInfo requestInfo = reflexContext.getRequestInfo();
+		ConnectionInfo connectionInfo = reflexContext.getConnectionInfo();
+		BDBDatabase db = bdbEnv.getDb(FullTextSearchBDBConst.DB_FULL_TEXT_INDEX);
+		BDBDatabase dbAncestor = bdbEnv.getDb(FullTextSearchBDBConst.DB_FULL_TEXT_INDEX_ANCESTOR);
+		BDBQuery<String> bdbQuery = new BDBQuery<>();
+		StringBinding binding = BDBUtil.getStringBinding();
+		String cacheKey = getTextsCacheKey(prefix, texts, isOr);
+
+		Map<String, String> results = new LinkedHashMap<>();
+		String pointerStr = null;
+		boolean isFetchExceeded = false;
+		for (int i = startTextNo; i < scanTexts.size(); i++) {
+			String index = prefix + scanTexts.get(i);
+			String endKeyStr = FullTextSearchIndexUtil.getEndKeyStr(index);
+			BDBCondition bdbCondition = new BDBCondition(index, endKeyStr,
+					i == startTextNo ? textCursorStr : null);
+			String textCacheKey = cacheKey + FullTextSearchIndexUtil.ITEM_PREFIX + i;
+			byte[] filterData = getFullTextFilterData(textCacheKey, isClearCache,
+					reflexContext);
+			FullTextDuplicateChecker duplicateChecker = new FullTextDuplicateChecker(
+					dbAncestor, index, endKeyStr, FullTextBloomFilter.valueOf(filterData));
+			FetchInfo<String> fetchInfo = bdbQuery.getByQuery(namespace, null, db,
+					binding, bdbCondition, limit - results.size(), duplicateChecker,
+					requestInfo);
+			if (fetchInfo == null) {
+				continue;
+			}
+			// 返却済みIDをセッションに登録
+			setFullTextFilter(textCacheKey, duplicateChecker, reflexContext);
+
+			// AND条件の場合は他の検索語を含むこと、OR条件の場合は前の検索語を含まないことを確認
+			List<String> checkTexts = isOr ? texts.subList(0, i) : texts;
+			for (Map.Entry<String, String> mapEntry : fetchInfo.getResult().entrySet()) {
+				String id = mapEntry.getValue();
+				if (checkTexts.isEmpty()) {
+					results.put(mapEntry.getKey(), id);
+					continue;
+				}
+				List<FullTextIndexField> fields = getFieldsById(namespace, dbAncestor, id,
+						requestInfo, connectionInfo);
+				boolean contains = FullTextSearchIndexUtil.containsTexts(fields, prefix,
+						checkTexts, isOr);
+				if (contains != isOr) {
+					results.put(mapEntry.getKey(), id);
+				}
+			}
+
+			String nextPointerStr = PointerUtil.decode(fetchInfo.getPointerStr());
+			if (!StringUtils.isBlank(nextPointerStr)) {
+				pointerStr = getTextsPointerStr(i, nextPointerStr);
+				isFetchExceeded = fetchInfo.isFetchExceeded();
+				break;
+			}
+			if (results.size() >= limit) {
+				if (i + 1 < scanTexts.size()) {
+					pointerStr = getTextsPointerStr(i + 1, null);
+				}
+				break;
+			}
+		}
+
+		FetchInfo<String> fetchInfo = new FetchInfo<>(results, PointerUtil.encode(pointerStr));
+		fetchInfo.setFetchExceeded(isFetchExceeded);
+		return fetchInfo;
+	}
+
+	/**
+	 * IDのインデックス項目リストをAncestorから復元して取得.
+	 * @param namespace 名前空間
+	 * @param dbAncestor 全文検索インデックスAncestorテーブル
+	 * @param id ID
+	 * @param requestInfo リクエスト情報
+	 * @param connectionInfo コネクション情報
+	 * @return インデックス項目リスト
+	 */
+	private List<FullTextIndexField> getFieldsById(String namespace, BDBDatabase dbAncestor,
+			String id, RequestInfo requestInfo, ConnectionInfo connectionInfo)
+	throws IOException, TaggingException {
+		BDBGet<List<String>> bdbGetAncestor = new BDBGet<>();
+		List<String> indexes = bdbGetAncestor.get(namespace, null, dbAncestor,
+				BDBUtil.getListBinding(), BDBUtil.getLockMode(),
+				TaggingEntryUtil.getUriById(id), requestInfo, connectionInfo);
+		return FullTextSearchIndexUtil.getFieldsByIndexes(indexes);
+	}
+
+	/**
+	 * 複数の検索語による検索の検索済みキーリストのキーを取得.
+	 * @param prefix インデックス接頭辞
+	 * @param texts 正規化済み検索語リスト
+	 * @param isOr 検索語をOR条件とする場合true
+	 * @return 検索済みキーリストのキー
+	 */
+	private String getTextsCacheKey(String prefix, List<String> texts, boolean isOr) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(prefix);
+		for (String text : texts) {
+			sb.append("&");
+			sb.append(text);
+		}
+		if (isOr) {
+			sb.append("&");
+			sb.append(FullTextSearchRequestParam.PARAM_FTOR);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * 複数の検索語による検索のカーソルを取得.
+	 * @param textNo 検索語の番号
+	 * @param textPointerStr 検索語の範囲内のカーソル
+	 * @return カーソル
+	 */
+	private String getTextsPointerStr(int textNo, String textPointerStr) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(textNo);
+		sb.append(FullTextSearchIndexUtil.INDEX_SELF);
+		sb.append(StringUtils.null2blank(textPointerStr));
+		return sb.toString();
+	}
+
+	/**
+	 * 全文検索インデックス形式を変換.
+	 * <p>
+	 * 1リクエストで指定件数ずつ処理する。レスポンスのカーソルを指定して、状態が完了になるまで繰り返し呼び出すこと。
+	 * <ol>
+	 *   <li>変換中 (converting) : 旧形式のインデックスを新形式に変換する。この間、更新は両方の形式に行う。</li>
+	 *   <li>旧形式の削除中 (cleaning) : 検索を新形式に切り替え、旧形式のインデックスを削除する。</li>
+	 *   <li>完了 (completed)</li>
+	 * </ol>
+	 * </p>
+	 * @param namespace 名前空間
+	 * @param param 変換先の形式、件数、カーソル
+	 * @param requestInfo リクエスト情報
+	 * @param connectionInfo コネクション情報
+	 * @return 状態 (Feedのtitleに設定)。続きがある場合はカーソルを設定する。
+	 */
+	public FeedBase convertFormat(String namespace, FullTextSearchRequestParam param,
+			RequestInfo requestInfo, ConnectionInfo connectionInfo)
+	throws IOException, TaggingException {
+		String targetFormat = param.getOption(FullTextSearchRequestParam.PARAM_FTFORMAT);
+		if (!FullTextSearchBDBConst.FORMAT_SUFFIX.equals(targetFormat) &&
+				!FullTextSearchBDBConst.FORMAT_NGRAM.equals(targetFormat)) {
+			throw new IllegalParameterException("Invalid full text index format. " + targetFormat);
+		}
+		int limit = getLimit(param.getOption(FullTextSearchRequestParam.PARAM_LIMIT));
+		String pointerStr = PointerUtil.decode(
+				param.getOption(FullTextSearchRequestParam.PARAM_NEXT));
+
+		// 変換開始
+		FullTextIndexFormat formatInfo = updateIndexFormat(namespace, targetFormat, false,
+				requestInfo, connectionInfo);
+		String status = null;
+		String newPointerStr = null;
+		if (formatInfo.convertFormat != null) {
+			// 旧形式から新形式へ変換
+			newPointerStr = convertFormatProc(namespace, formatInfo, formatInfo.format,
+					false, pointerStr, limit, requestInfo, connectionInfo);
+			if (newPointerStr != null) {
+				status = FullTextSearchBDBConst.CONVERT_STATUS_CONVERTING;
+			} else {
+				// 変換完了。検索を新形式に切り替える。
+				formatInfo = updateIndexFormat(namespace, targetFormat, true,
+						requestInfo, connectionInfo);
+				status = FullTextSearchBDBConst.CONVERT_STATUS_CLEANING;
+			}
+		} else if (formatInfo.cleanupFormat != null) {
+			// 旧形式を削除
+			newPointerStr = convertFormatProc(namespace, formatInfo, formatInfo.cleanupFormat,
+					true, pointerStr, limit, requestInfo, connectionInfo);
+			if (newPointerStr != null) {
+				status = FullTextSearchBDBConst.CONVERT_STATUS_CLEANING;
+			} else {
+				formatInfo = updateIndexFormat(namespace, targetFormat, true,
+						requestInfo, connectionInfo);
+				status = FullTextSearchBDBConst.CONVERT_STATUS_COMPLETED;
+			}
+		} else {
+			status = FullTextSearchBDBConst.CONVERT_STATUS_COMPLETED;
+		}
+
+		if (logger.isInfoEnabled()) {
+			StringBuilder sb = new StringBuilder();
+			sb.append(LogUtil.getRequestInfoStr(requestInfo));
+			sb.append("[convertFormat] namespace=");
+			sb.append(namespace);
+			sb.append(", status=");
+			sb.append(status);
+			sb.append(", ");
+			sb.append(formatInfo);
+			logger.info(sb.toString());
+		}
+
+		FeedBase feed = TaggingEntryUtil.createAtomFeed();
+		feed.title = status;
+		feed.subtitle = formatInfo.format;
+		if (!StringUtils.isBlank(newPointerStr)) {
+			TaggingEntryUtil.setCursorToFeed(newPointerStr, feed);
+		}
+		return feed;
+	}
+
+	/**
+	 * 全文検索インデックス形式の変換状態を更新.
+	 * @param namespace 名前空間
+	 * @param targetFormat 変換先の形式
+	 * @param isNext 次の状態に進める場合true、変換開始の場合false
+	 * @param requestInfo リクエスト情報
+	 * @param connectionInfo コネクション情報
+	 * @return 更新後の全文検索インデックス形式
+	 */
+	private FullTextIndexFormat updateIndexFormat(String namespace, String targetFormat,
+			boolean isNext, RequestInfo requestInfo, ConnectionInfo connectionInfo)
+	throws IOException, TaggingException {
+		int numRetries = BDBEnvUtil.getBDBRetryCount();
+		int waitMillis = BDBEnvUtil.getBDBRetryWaitmillis();
+		for (int r = 0; r <= numRetries; r++) {
+			BDBEnv bdbEnv = null;
+			try {
+				bdbEnv = getBDBEnvByNamespace(namespace, true);
+				BDBTransaction bdbTxn = null;
+				try {
+					// トランザクション開始
+					bdbTxn = bdbEnv.beginTransaction();
+
+					FullTextIndexFormat formatInfo = getIndexFormat(namespace, bdbTxn, bdbEnv,
+							requestInfo, connectionInfo);
+					boolean isChanged = false;
+					if (!isNext) {
+						if (formatInfo.convertFormat == null && formatInfo.cleanupFormat == null) {
+							if (!targetFormat.equals(formatInfo.format)) {
+								formatInfo.convertFormat = targetFormat;
+								if (FullTextSearchBDBConst.FORMAT_NGRAM.equals(targetFormat)) {
+									formatInfo.ngramSize = FullTextNgramUtil.getNgramSize();
+								}
+								isChanged = true;
+							}
+						} else if ((formatInfo.convertFormat != null &&
+								!targetFormat.equals(formatInfo.convertFormat)) ||
+								(formatInfo.cleanupFormat != null &&
+								!targetFormat.equals(formatInfo.format))) {
+							throw new IllegalParameterException(
+									"Another full text index format conversion is in progress. " +
+									formatInfo);
+						}
+					} else {
+						if (formatInfo.convertFormat != null) {
+							formatInfo.cleanupFormat = formatInfo.format;
+							formatInfo.format = formatInfo.convertFormat;
+							formatInfo.convertFormat = null;
+							isChanged = true;
+						} else if (formatInfo.cleanupFormat != null) {
+							formatInfo.cleanupFormat = null;
+							isChanged = true;
+						}
+					}
+
+					if (isChanged) {
+						BDBDatabase dbFormat = bdbEnv.getDb(
+								FullTextSearchBDBConst.DB_FULL_TEXT_INDEX_FORMAT);
+						BDBPut<List<String>> bdbPut = new BDBPut<>();
+						bdbPut.put(namespace, bdbTxn, dbFormat, BDBUtil.getListBinding(),
+								FullTextSearchBDBConst.KEY_FORMAT, formatInfo.toList(),
+								requestInfo, connectionInfo);
+					}
+
+					// コミット
+					bdbTxn.commit();
+					bdbTxn = null;
+					return formatInfo;
+
+				} finally {
+					if (bdbTxn != null) {
+						try {
+							bdbTxn.abort();
+						} catch (DatabaseException e) {
+							logger.warn(LogUtil.getRequestInfoStr(requestInfo) +
+									"[updateIndexFormat] " + e.getClass().getName(), e);
+						}
+					}
+				}
+
+			} catch (DatabaseException e) {
+				// リトライ判定、入力エラー判定
+				BDBUtil.convertError(e, namespace, requestInfo);
+				if (r >= numRetries) {
+					// リトライ対象だがリトライ回数を超えた場合
+					BDBUtil.convertIOError(e, namespace);
+				}
+				if (logger.isInfoEnabled()) {
+					logger.info(LogUtil.getRequestInfoStr(requestInfo) +
+							"[updateIndexFormat] " + ReflexBDBLogUtil.getRetryLog(e, r));
+				}
+				BDBUtil.sleep(waitMillis + r * 10);
+			} finally {
+				BDBUtil.releaseBDBEnv(bdbEnv);
+			}
+		}
+		throw new IllegalStateException("Unreachable code.");
+	}
+
+	/**
+	 * 全文検索インデックス形式の変換、または旧形式の削除を指定件数分行う.
+	 * Entryごとにトランザクションを分ける。
+	 * @param namespace 名前空間
+	 * @param formatInfo 全文検索インデックス形式
+	 * @param sourceFormat 処理対象の形式 (変換元、または削除対象)
+	 * @param isCleanup 旧形式の削除の場合true、変換の場合false
+	 * @param pointerStr デコード済みカーソル
+	 * @param limit 件数
+	 * @param requestInfo リクエスト情報
+	 * @param connectionInfo コネクション情報
+	 * @return 続きがある場合カーソル
+	 */
+	private String convertFormatProc(String namespace, FullTextIndexFormat formatInfo,
+			String sourceFormat, boolean isCleanup, String pointerStr, int limit,
+			RequestInfo requestInfo, ConnectionInfo connectionInfo)
+	throws IOException, TaggingException {
+		BDBQuery bdbQuery = new BDBQuery();
+		FullTextNgramBDBManager ngramManager = new FullTextNgramBDBManager();
+		boolean isSourceNgram = FullTextSearchBDBConst.FORMAT_NGRAM.equals(sourceFormat);
+		int numRetries = BDBEnvUtil.getBDBRetryCount();
+		int waitMillis = BDBEnvUtil.getBDBRetryWaitmillis();
+		for (int r = 0; r <= numRetries; r++) {
+			BDBEnv bdbEnv = null;
+			try {
+				bdbEnv = getBDBEnvByNamespace(namespace, true);
+				BDBDatabase dbIndex = bdbEnv.getDb(FullTextSearchBDBConst.DB_FULL_TEXT_INDEX);
+				BDBDatabase dbIndexAncestor = bdbEnv.getDb(
+						FullTextSearchBDBConst.DB_FULL_TEXT_INDEX_ANCESTOR);
+
+				// 処理対象の形式のID URI一覧
+				BDBDatabase db = null;
+				EntryBinding<?> binding = null;
+				if (isSourceNgram) {
+					db = bdbEnv.getDb(FullTextSearchBDBConst.DB_FULL_TEXT_NGRAM_DOCNO);
+					binding = BDBUtil.getStringBinding();
+				} else {
+					db = dbIndexAncestor;
+					binding = BDBUtil.getListBinding();
+				}
+				BDBCondition bdbCondition = new BDBCondition(null, null, pointerStr);
+				FetchInfo<?> fetchInfo = bdbQuery.getByQuery(namespace, null, db, binding,
+						bdbCondition, limit, null, requestInfo);
+				if (fetchInfo == null || fetchInfo.getKeys() == null) {
+					return null;
+				}
+
+				for (String idUri : fetchInfo.getKeys()) {
+					BDBTransaction bdbTxn = null;
+					try {
+						// トランザクション開始
+						bdbTxn = bdbEnv.beginTransaction();
+
+						if (isCleanup) {
+							if (isSourceNgram) {
+								ngramManager.deleteDoc(namespace, bdbTxn, bdbEnv, idUri,
+										formatInfo.ngramSize, requestInfo, connectionInfo);
+							} else {
+								deleteIndexesProc(namespace, bdbTxn, dbIndex, dbIndexAncestor,
+										idUri, requestInfo, connectionInfo);
+							}
+						} else {
+							if (isSourceNgram) {
+								convertNgramToSuffix(namespace, bdbTxn, bdbEnv, dbIndex,
+										dbIndexAncestor, idUri, requestInfo, connectionInfo);
+							} else {
+								convertSuffixToNgram(namespace, bdbTxn, bdbEnv, dbIndex,
+										dbIndexAncestor, idUri, formatInfo.ngramSize,
+										requestInfo, connectionInfo);
+							}
+						}
+
+						// コミット
+						bdbTxn.commit();
+						bdbTxn = null;
+
+					} finally {
+						if (bdbTxn != null) {
+							try {
+								bdbTxn.abort();
+							} catch (DatabaseException e) {
+								logger.warn(LogUtil.getRequestInfoStr(requestInfo) +
+										"[convertFormatProc] " + e.getClass().getName(), e);
+							}
+						}
+					}
+				}
+				// 処理済みのEntryを再度処理しても結果は変わらないため、リトライ時は先頭から処理し直す。
+				return fetchInfo.getPointerStr();
+
+			} catch (DatabaseException e) {
+				// リトライ判定、入力エラー判定
+				BDBUtil.convertError(e, namespace, requestInfo);
+				if (r >= numRetries) {
+					// リトライ対象だがリトライ回数を超えた場合
+					BDBUtil.convertIOError(e, namespace);
+				}
+				if (logger.isInfoEnabled()) {
+					logger.info(LogUtil.getRequestInfoStr(requestInfo) +
+							"[convertFormatProc] " + ReflexBDBLogUtil.getRetryLog(e, r));
+				}
+				BDBUtil.sleep(waitMillis + r * 10);
+			} finally {
+				BDBUtil.releaseBDBEnv(bdbEnv);
+			}
+		}
+		throw new IllegalStateException("Unreachable code.");
+	}
+
+	/**
+	 * suffix形式の全文検索インデックスをN-gram形式に変換.
+	 * @param namespace 名前空間
+	 * @param bdbTxn トランザクション
+	 * @param bdbEnv BDB環境
+	 * @param dbIndex 全文検索インデックステーブル
+	 * @param dbIndexAncestor 全文検索インデックスAncestor
+	 * @param idUri ID URI
+	 * @param ngramSize N-gramの文字数
+	 * @param requestInfo リクエスト情報
+	 * @param connectionInfo コネクション情報
+	 */
+	private void convertSuffixToNgram(String namespace, BDBTransaction bdbTxn, BDBEnv bdbEnv,
+			BDBDatabase dbIndex, BDBDatabase dbIndexAncestor, String idUri, int ngramSize,
+			RequestInfo requestInfo, ConnectionInfo connectionInfo)
+	throws IOException, TaggingException {
+		BDBGet<List<String>> bdbGetAncestor = new BDBGet<>();
+		List<String> indexes = bdbGetAncestor.get(namespace, bdbTxn, dbIndexAncestor,
+				BDBUtil.getListBinding(), BDBUtil.getLockMode(), idUri,
+				requestInfo, connectionInfo);
+		if (indexes == null || indexes.isEmpty()) {
+			return;
+		}
+		BDBGet<String> bdbGetIndex = new BDBGet<>();
+		String id = bdbGetIndex.get(namespace, bdbTxn, dbIndex, BDBUtil.getStringBinding(),
+				BDBUtil.getLockMode(), indexes.get(0), requestInfo, connectionInfo);
+		if (StringUtils.isBlank(id)) {
+			return;
+		}
+		List<FullTextIndexField> fields = FullTextSearchIndexUtil.getFieldsByIndexes(indexes);
+		FullTextNgramBDBManager ngramManager = new FullTextNgramBDBManager();
+		ngramManager.updateDoc(namespace, bdbTxn, bdbEnv, id, fields, false, false,
+				ngramSize, requestInfo, connectionInfo);
+	}
+
+	/**
+	 * N-gram形式の全文検索インデックスをsuffix形式に変換.
+	 * @param namespace 名前空間
+	 * @param bdbTxn トランザクション
+	 * @param bdbEnv BDB環境
+	 * @param dbIndex 全文検索インデックステーブル
+	 * @param dbIndexAncestor 全文検索インデックスAncestor
+	 * @param idUri ID URI
+	 * @param requestInfo リクエスト情報
+	 * @param connectionInfo コネクション情報
+	 */
+	private void convertNgramToSuffix(String namespace, BDBTransaction bdbTxn, BDBEnv bdbEnv,
+			BDBDatabase dbIndex, BDBDatabase dbIndexAncestor, String idUri,
+			RequestInfo requestInfo, ConnectionInfo connectionInfo)
+	throws IOException, TaggingException {
+		FullTextNgramBDBManager ngramManager = new FullTextNgramBDBManager();
+		String id = ngramManager.getId(namespace, bdbTxn, bdbEnv, idUri,
+				requestInfo, connectionInfo);
+		List<FullTextIndexField> fields = ngramManager.getFields(namespace, bdbTxn, bdbEnv,
+				idUri, requestInfo, connectionInfo);
+		if (StringUtils.isBlank(id) || fields == null) {
+			return;
+		}
+		List<String> indexes = new ArrayList<>();
+		for (FullTextIndexField field : fields) {
+			indexes.addAll(FullTextSearchIndexUtil.getFullTextIndexesByPrefix(
+					field.prefix, field.selfid, field.text));
+		}
+		BDBIndexBatchWriter batchWriter = new BDBIndexBatchWriter(dbIndex, dbIndexAncestor,
+				FullTextSearchIndexUtil::getShortingByIndexUri);
+		batchWriter.write(namespace, bdbTxn, Collections.singletonMap(id, indexes),
+				false, false, requestInfo, connectionInfo);
+	}
+
+	/**
+	 * suffix形式の全文検索インデックスを削除.
+	 * 形式変換後の旧形式削除に使用。
+	 * @param namespace 名前空間
+	 * @param bdbTxn トランザクション
+	 * @param db 全文検索インデックステーブル
+	 * @param dbAncestor 全文検索インデックスAncestor
+	 * @param idUri ID URI
+	 * @param requestInfo リクエスト情報
+	 * @param connectionInfo コネクション情報
+	 */
+	private void deleteIndexesProc(String namespace, BDBTransaction bdbTxn,
+			BDBDatabase db, BDBDatabase dbAncestor, String idUri,
+			RequestInfo requestInfo, ConnectionInfo connectionInfo)
+	throws IOException, TaggingException {
+		BDBGet<List<String>> bdbGetAncestor = new BDBGet<>();
+		List<String> currentIndexes = bdbGetAncestor.get(namespace, bdbTxn, dbAncestor,
+				BDBUtil.getListBinding(), BDBUtil.getLockMode(), idUri,
+				requestInfo, connectionInfo);
+		BDBDelete bdbDelete = new BDBDelete();
+		if (currentIndexes != null) {
+			for (String currentIndex : currentIndexes) {
+				bdbDelete.delete(namespace, bdbTxn, db, currentIndex,
+						requestInfo, connectionInfo);
+			}
+		}
+		bdbDelete.delete(namespace, bdbTxn, dbAncestor, idUri, requestInfo, connectionInfo);
+	}
+
+	/**
+	 * 名前空間の全文検索インデックス形式を取得.
+	 * @param namespace 名前空間
+	 * @param requestInfo リクエスト情報
+	 * @param connectionInfo コネクション情報
+	 * @return 全文検索インデックス形式。BDB環境が存在しない場合null。
+	 */
+	private FullTextIndexFormat getIndexFormat(String namespace,
+			RequestInfo requestInfo, ConnectionInfo connectionInfo)
+	throws IOException, TaggingException {
+		int numRetries = BDBEnvUtil.getBDBRetryCount();
+		int waitMillis = BDBEnvUtil.getBDBRetryWaitmillis();
+		for (int r = 0; r <= numRetries; r++) {
+			BDBEnv bdbEnv = null;
+			try {
+				bdbEnv = getBDBEnvByNamespace(namespace, false);
+				if (bdbEnv == null) {
+					return null;
+				}
+				return getIndexFormat(namespace, null, bdbEnv, requestInfo, connectionInfo);
+
+			} catch (DatabaseException e) {
+				// リトライ判定、入力エラー判定
+				BDBUtil.convertError(e, namespace, requestInfo);
+				if (r >= numRetries) {
+					// リトライ対象だがリトライ回数を超えた場合
+					BDBUtil.convertIOError(e, namespace);
+				}
+				if (logger.isInfoEnabled()) {
+					logger.info(LogUtil.getRequestInfoStr(requestInfo) +
+							"[getIndexFormat] " + ReflexBDBLogUtil.getRetryLog(e, r));
+				}
+				BDBUtil.sleep(waitMillis + r * 10);
+			} finally {
+				BDBUtil.releaseBDBEnv(bdbEnv);
+			}
+		}
+		throw new IllegalStateException("Unreachable code.");
+	}
+
+	/**
+	 * 名前空間の全文検索インデックス形式を取得.
+	 * 登録されていない場合はsuffix形式。
+	 * @param namespace 名前空間
+	 * @param bdbTxn トランザクション
+	 * @param bdbEnv BDB環境
+	 * @param requestInfo リクエスト情報
+	 * @param connectionInfo コネクション情報
+	 * @return 全文検索インデックス形式
+	 */
+	private FullTextIndexFormat getIndexFormat(String namespace, BDBTransaction bdbTxn,
+			BDBEnv bdbEnv, RequestInfo requestInfo, ConnectionInfo connectionInfo)
+	throws IOException, TaggingException {
+		BDBDatabase dbFormat = bdbEnv.getDb(FullTextSearchBDBConst.DB_FULL_TEXT_INDEX_FORMAT);
+		BDBGet<List<String>> bdbGet = new BDBGet<>();
+		List<String> values = bdbGet.get(namespace, bdbTxn, dbFormat, BDBUtil.getListBinding(),
+				BDBUtil.getLockMode(), FullTextSearchBDBConst.KEY_FORMAT,
+				requestInfo, connectionInfo);
+		return FullTextIndexFormat.valueOf(values, FullTextSearchBDBConst.FORMAT_SUFFIX,
+				FullTextNgramUtil.getNgramSize());
+	}
+
 	/**
 	 * テーブルデータ全件取得.
 	 * キーリストを返却する。
@@ -459,11 +1163,12 @@ public class FullTextSearchBDBManager {
 		int numRetries = BDBEnvUtil.getBDBRetryCount();
 		int waitMillis = BDBEnvUtil.getBDBRetryWaitmillis();
 		for (int r = 0; r <= numRetries; r++) {
+			BDBEnv bdbEnv = null;
 			try {
 				// テーブル判定
 				BDBDatabase db = null;
 				EntryBinding<?> binding = null;
-				BDBEnv bdbEnv = getBDBEnvByNamespace(namespace, false);
+				bdbEnv = getBDBEnvByNamespace(namespace, false);
 				if (bdbEnv == null) {
 					return null;
 				}
@@ -483,6 +1188,18 @@ public class FullTextSearchBDBManager {
 				} else if (FullTextSearchBDBConst.DB_ALLOCIDS.equals(tableName)) {
 					db = bdbEnv.getDb(FullTextSearchBDBConst.DB_ALLOCIDS);
 					binding = BDBUtil.getIntegerBinding();
+				} else if (FullTextSearchBDBConst.DB_FULL_TEXT_NGRAM.equals(tableName)) {
+					db = bdbEnv.getDb(FullTextSearchBDBConst.DB_FULL_TEXT_NGRAM);
+					binding = BDBUtil.getByteArrayBinding();
+				} else if (FullTextSearchBDBConst.DB_FULL_TEXT_NGRAM_DOCNO.equals(tableName)) {
+					db = bdbEnv.getDb(FullTextSearchBDBConst.DB_FULL_TEXT_NGRAM_DOCNO);
+					binding = BDBUtil.getStringBinding();
+				} else if (FullTextSearchBDBConst.DB_FULL_TEXT_NGRAM_DOC.equals(tableName)) {
+					db = bdbEnv.getDb(FullTextSearchBDBConst.DB_FULL_TEXT_NGRAM_DOC);
+					binding = BDBUtil.getListBinding();
+				} else if (FullTextSearchBDBConst.DB_FULL_TEXT_INDEX_FORMAT.equals(tableName)) {
+					db = bdbEnv.getDb(FullTextSearchBDBConst.DB_FULL_TEXT_INDEX_FORMAT);
+					binding = BDBUtil.getListBinding();
 
 				} else {
 					throw new IllegalArgumentException("The specified table does not exist. " + tableName);
@@ -492,6 +1209,12 @@ public class FullTextSearchBDBManager {
 				String keyend = FullTextSearchIndexUtil.getEndKeyStr(keyprefix);
 				BDBCondition bdbCondition = new BDBCondition(keyprefix, keyend, pointerStr);
 
+				if (param.getOption(FullTextSearchRequestParam.PARAM_COUNT) != null) {
+					// 件数取得はキーのみ参照
+					return bdbQuery.countByQuery(namespace, null, db, bdbCondition,
+							limit, requestInfo);
+				}
+
 				FetchInfo<?> fetchInfo = bdbQuery.getByQuery(namespace, null, db, binding,
 						bdbCondition, limit, null, requestInfo);
 				if (FullTextSearchBDBConst.DB_ALLOCIDS.equals(tableName)) {
@@ -502,6 +1225,13 @@ public class FullTextSearchBDBManager {
 					return getAllocidsList(bdbEnv, fetchInfo.getKeys(), fetchInfo.getPointerStr(),
 							requestInfo, connectionInfo);
 
+				} else if (FullTextSearchBDBConst.DB_FULL_TEXT_NGRAM.equals(tableName)) {
+					// ポスティングブロックは文書番号のリストに変換する。
+					if (fetchInfo == null) {
+						return null;
+					}
+					return getPostingList((FetchInfo<byte[]>)fetchInfo);
+
 				} else {
 					return fetchInfo;
 				}
@@ -518,6 +1248,8 @@ public class FullTextSearchBDBManager {
 							"[getList] " + ReflexBDBLogUtil.getRetryLog(e, r));
 				}
 				BDBUtil.sleep(waitMillis + r * 10);
+			} finally {
+				BDBUtil.releaseBDBEnv(bdbEnv);
 			}
 		}
 		throw new IllegalStateException("Unreachable code.");
@@ -543,6 +1275,39 @@ public class FullTextSearchBDBManager {
 		FullTextSearchCheckUtil.checkNotNull(condition.text, "condition text");
 	}
 
+	/**
+	 * 複数条件のチェック.
+	 * 全文検索サーバの振り分けは項目単位のため、全ての条件は同じ項目であること。
+	 * @param conditions 条件リスト
+	 */
+	private void checkConditions(List<FullTextSearchCondition> conditions) {
+		String item = null;
+		for (FullTextSearchCondition condition : conditions) {
+			checkCondition(condition);
+			if (item == null) {
+				item = condition.item;
+			} else if (!item.equals(condition.item)) {
+				throw new IllegalParameterException(
+						"Multiple full text search conditions must be the same item. " +
+						item + ", " + condition.item);
+			}
+		}
+	}
+
+	/**
+	 * 条件リストの検索語を正規化して取得.
+	 * 重複した検索語は除く。
+	 * @param conditions 条件リスト
+	 * @return 正規化済み検索語リスト (指定順)
+	 */
+	private List<String> getTexts(List<FullTextSearchCondition> conditions) {
+		Set<String> texts = new LinkedHashSet<>();
+		for (FullTextSearchCondition condition : conditions) {
+			texts.add(FullTextSearchIndexUtil.convertFullTextIndex(condition.text));
+		}
+		return new ArrayList<>(texts);
+	}
+
 	/**
 	 * BDB環境統計情報取得.
 	 * @param namespace 名前空間
@@ -655,10 +1420,11 @@ public class FullTextSearchBDBManager {
 		int waitMillis = BDBEnvUtil.getBDBRetryWaitmillis();
 		for (int r = 0; r <= numRetries; r++) {
 			BDBTransaction bdbTxn = null;
+			BDBEnv bdbEnv = null;
 			try {
 				// まずItemテーブルから値を取得
 				// BDB環境情報取得
-				BDBEnv bdbEnv = getBDBEnvByNamespace(namespace, true);
+				bdbEnv = getBDBEnvByNamespace(namespace, true);
 
 				BDBDatabase dbItem = null;
 				if (isDistkey) {
@@ -751,6 +1517,8 @@ public class FullTextSearchBDBManager {
 							"[getShortening] " + ReflexBDBLogUtil.getRetryLog(e, r));
 				}
 				BDBUtil.sleep(waitMillis + r * 10);
+			} finally {
+				BDBUtil.releaseBDBEnv(bdbEnv);
 			}
 		}
 
@@ -775,7 +1543,7 @@ public class FullTextSearchBDBManager {
 	 * @param connectionInfo コネクション情報
 	 * @return 短縮値
 	 */
-	private String allocids(BDBEnv bdbEnv, String key, boolean refer,
+	String allocids(BDBEnv bdbEnv, String key, boolean refer,
 			RequestInfo requestInfo, ConnectionInfo connectionInfo) {
 		BDBTransaction bdbTxn = null;
 		BDBSequence sequence = null;
@@ -815,7 +1583,7 @@ public class FullTextSearchBDBManager {
 	}
 
 	/**
-	 * 検索のための全文検索インデックスリストを取得.
+	 * 検索のための全文検索インデックス接頭辞を取得.
 	 * @param namespace 名前空間
 	 * @param parentUri キー
 	 * @param conditions 条件
@@ -823,9 +1591,9 @@ public class FullTextSearchBDBManager {
 	 * @param distkeyValue DISTKEYの値
 	 * @param requestInfo リクエスト情報
 	 * @param connectionInfo コネクション情報
-	 * @return 検索のための全文検索インデックスリスト
+	 * @return 検索のための全文検索インデックス接頭辞
 	 */
-	private String getFullTextIndexForGet(String namespace, String parentUri,
+	private String getFullTextIndexPrefixForGet(String namespace, String parentUri,
 			FullTextSearchCondition condition,
 			String distkeyItem, String distkeyValue,
 			RequestInfo requestInfo,
@@ -843,8 +1611,8 @@ public class FullTextSearchBDBManager {
 		String distkeyShortening = getDistkeyItemShortening(namespace, distkeyItem,
 				requestInfo, connectionInfo);
 
-		return FullTextSearchIndexUtil.getFullTextIndex(parentItemShortening,
-				condition, distkeyShortening, distkeyValue);
+		return FullTextSearchIndexUtil.getFullTextIndexPrefix(parentItemShortening,
+				distkeyShortening, distkeyValue);
 	}
 
 	/**
@@ -873,6 +1641,27 @@ public class FullTextSearchBDBManager {
 		return new FetchInfo<String>(result, pointerStr);
 	}
 
+	/**
+	 * N-gramテーブルの値リスト取得.
+	 * @param fetchInfo N-gramテーブルの検索結果
+	 * @return N-gramテーブルの値リスト (文書番号のカンマ区切り文字列)
+	 */
+	private FetchInfo<String> getPostingList(FetchInfo<byte[]> fetchInfo) {
+		Map<String, String> result = new LinkedHashMap<>();
+		if (fetchInfo.getResult() != null) {
+			for (Map.Entry<String, byte[]> mapEntry : fetchInfo.getResult().entrySet()) {
+				String postingKey = mapEntry.getKey();
+				long block = FullTextNgramUtil.getBlockByPostingKey(
+						FullTextNgramUtil.getGramKeyPrefixByPostingKey(postingKey), postingKey);
+				result.put(postingKey, FullTextNgramUtil.toPostingString(block,
+						mapEntry.getValue()));
+			}
+		}
+		FetchInfo<String> postingInfo = new FetchInfo<String>(result, fetchInfo.getPointerStr());
+		postingInfo.setFetchExceeded(fetchInfo.isFetchExceeded());
+		return postingInfo;
+	}
+
 	/**
 	 * セッション用キーを取得.
 	 * @param uriStr 検索条件
@@ -883,97 +1672,41 @@ public class FullTextSearchBDBManager {
 	}
 
 	/**
-	 * 全文検索検索済みキーリストFeedを取得.
+	 * 全文検索の返却済みIDのBloomフィルタをセッションから取得.
 	 * @param uri 検索条件
+	 * @param isClear 返却済みIDをクリアする場合true
 	 * @param reflexContext ReflexContext
-	 * @return 全文検索検索済みキーリストFeed
+	 * @return Bloomフィルタのバイト配列。登録されていない場合、クリアする場合はnull。
 	 */
-	private FeedBase getFullTextCacheFeed(String uri, FullTextSearchContext reflexContext)
-	throws IOException, TaggingException {
-		String name = getSessionKey(uri);
-		return reflexContext.getSessionFeed(name);
-	}
-
-	/**
-	 * 全文検索検索済みキーリストFeedをMapに変換.
-	 * @param feed 全文検索検索済みキーリストFeed (id:entry.id、index:entry.title)
-	 * @return 全文検索検索済みキーMap (キー:ID URI、値:全文検索インデックス値)
-	 */
-	private Map<String, String> convertFullTextCacheMap(FeedBase feed)
+	private byte[] getFullTextFilterData(String uri, boolean isClear,
+			FullTextSearchContext reflexContext)
 	throws IOException, TaggingException {
-		Map<String, String> currentCache = new HashMap<>();
-		if (TaggingEntryUtil.isExistData(feed)) {
-			for (EntryBase entry : feed.entry) {
-				String id = entry.id;	// TODO
-				String index = entry.title;
-				currentCache.put(id, index);
-			}
+		if (isClear) {
+			return null;
+		}
+		String filterStr = reflexContext.getSessionString(getSessionKey(uri));
+		if (StringUtils.isBlank(filterStr)) {
+			return null;
 		}
-		return currentCache;
+		return Base64.getDecoder().decode(filterStr);
 	}
 
 	/**
-	 * 全文検索検索済みキーリストFeedをセッションに登録
+	 * 全文検索の返却済みIDのBloomフィルタをセッションに登録.
+	 * 今回返却したIDがない場合は登録しない。
 	 * @param uri 検索条件
-	 * @param currentCacheFeed 登録済みIDリスト (id:entry.id、index:entry.title)
-	 * @param fetchInfo 今回の検索結果
+	 * @param duplicateChecker 今回の検索の重複判定
 	 * @param reflexContext ReflexContext
 	 */
-	private void setFullTextCache(String uri, FeedBase currentCacheFeed,
-			FetchInfo<String> fetchInfo, FullTextSearchContext reflexContext)
+	private void setFullTextFilter(String uri, FullTextDuplicateChecker duplicateChecker,
+			FullTextSearchContext reflexContext)
 	throws IOException, TaggingException {
-		if (fetchInfo == null) {
-			return;
-		}
-		// 取得結果は キー:インデックス、値:ID URI
-		Map<String, String> result = fetchInfo.getResult();
-		if (result == null || result.isEmpty()) {
+		if (!duplicateChecker.isAdded()) {
 			return;
 		}
-
-		boolean setSession = false;
-		List<EntryBase> entries = convertFullTextCacheMap(result);
-		if (currentCacheFeed != null && currentCacheFeed.entry != null &&
-				!currentCacheFeed.entry.isEmpty()) {
-			// セッションに登録済みの場合、末尾のインデックスを比較する。(titleにインデックス)
-			String currentLastIndex = currentCacheFeed.entry.get(
-					currentCacheFeed.entry.size() - 1).title;
-			String fetchLastIndex = entries.get(entries.size() - 1).title;
-			if (fetchLastIndex.compareTo(currentLastIndex) > 0) {
-				currentCacheFeed.entry.addAll(entries);
-				setSession = true;
-			}
-		} else {
-			// セッションに未登録の場合
-			currentCacheFeed = TaggingEntryUtil.createAtomFeed();
-			currentCacheFeed.entry = entries;
-			setSession = true;
-		}
-
-		// セッションに登録
-		if (setSession) {
-			String name = getSessionKey(uri);
-			reflexContext.setSessionFeed(name, currentCacheFeed);
-		}
-	}
-
-	/**
-	 * 検索結果を検索済みキーリスト形式に変換
-	 * @param result 検索結果
-	 * @return 検索済みIDリスト (id:entry.id、index:entry.title)
-	 */
-	private List<EntryBase> convertFullTextCacheMap(Map<String, String> result) {
-		List<EntryBase> entries = new ArrayList<>();
-		// 取得結果は キー:インデックス、値:ID
-		for (Map.Entry<String, String> mapEntry : result.entrySet()) {
-			String index = mapEntry.getKey();
-			String id = mapEntry.getValue();
-			EntryBase entry = TaggingEntryUtil.createAtomEntry();
-			entry.id = id;
-			entry.title = index;
-			entries.add(entry);
-		}
-		return entries;
+		String filterStr = Base64.getEncoder().encodeToString(
+				duplicateChecker.getFilter().toBytes());
+		reflexContext.setSessionString(getSessionKey(uri), filterStr);
 	}
 
 	/**
@@ -988,21 +1721,4 @@ public class FullTextSearchBDBManager {
 				namespace, isCreate);
 	}
 
-	/**
-	 * 現在のインデックスが、新しく登録したインデックスのうち項目短縮値に合致するかどうかチェック
-	 * @param currentIndex 現在登録されているインデックス
-	 * @param newIndexes 新しいインデックスリスト
-	 * @return インデックス項目短縮値が等しい場合true
-	 */
-	private boolean containsShorting(String currentIndex, List<String> newIndexes) {
-		String currentIndexShorting = FullTextSearchIndexUtil.getShortingByIndexUri(currentIndex);
-		for (String newIndex : newIndexes) {
-			String newIndexShorting = FullTextSearchIndexUtil.getShortingByIndexUri(newIndex);
-			if (currentIndexShorting.equals(newIndexShorting)) {
-				return true;
-			}
-		}
-		return false;
-	}
-
 }
@@ -191,10 +191,7 @@ public class FullTextSearchContext implements BaseReflexContext {
 		FeedBase retFeed = TaggingEntryUtil.createAtomFeed();
 		int cnt = 0;
 		if (fetchInfo != null) {
-			Map<String, Object> result = (Map<String, Object>)fetchInfo.getResult();
-			if (result != null) {
-				cnt = result.size();
-			}
+			cnt = fetchInfo.getCount();
 			// カーソル
 			if (!StringUtils.isBlank(fetchInfo.getPointerStr())) {
 				TaggingEntryUtil.setCursorToFeed(fetchInfo.getPointerStr(), retFeed);
@@ -244,6 +241,17 @@ public class FullTextSearchContext implements BaseReflexContext {
 		bdbManager.put(namespace, feed, isPartial, isDelete, requestInfo, connectionInfo);
 	}
 
+	/**
+	 * 全文検索インデックス形式の変換.
+	 * @param param 変換先の形式、件数、カーソル
+	 * @return 状態 (Feedのtitleに設定)。続きがある場合はカーソルを設定する。
+	 */
+	public FeedBase convertFormat(FullTextSearchRequestParam param)
+	throws IOException, TaggingException {
+		FullTextSearchBDBManager bdbManager = new FullTextSearchBDBManager();
+		return bdbManager.convertFormat(namespace, param, requestInfo, connectionInfo);
+	}
+
 	/**
 	 * BDBクリーン.
 	 * 注) この処理は指定されていない名前空間を全て削除するため、実行には注意が必要。
@@ -360,6 +368,28 @@ public class FullTextSearchContext implements BaseReflexContext {
 		return sessionManager.setFeed(sid, name, feed, this);
 	}
 
+	/**
+	 * セッションから文字列を取得
+	 * @param name 第二キー
+	 * @return 文字列
+	 */
+	public String getSessionString(String name) throws IOException, TaggingException {
+		JedisSessionManager sessionManager = new JedisSessionManager();
+		return sessionManager.getString(sid, name, this);
+	}
+
+	/**
+	 * セッションへ文字列を登録
+	 * @param name 第二キー
+	 * @param text 文字列
+	 * @return 登録した文字列
+	 */
+	public String setSessionString(String name, String text)
+	throws IOException, TaggingException {
+		JedisSessionManager sessionManager = new JedisSessionManager();
+		return sessionManager.setString(sid, name, text, this);
+	}
+
 	/**
 	 * BDBバックアップ.
 	 * クリーン処理後、バックアップ処理を行う
@@ -368,7 +398,8 @@ public class FullTextSearchContext implements BaseReflexContext {
 	public void backupBDB(String storageUrl)
 	throws IOException, TaggingException {
 		// BDBクリーン、バックアップ
-		ReflexBDBBackupUtil.backup(namespace, storageUrl, serviceName, requestInfo);
+		ReflexBDBBackupUtil.backup(namespace, FullTextSearchBDBConst.DB_NAMES, storageUrl, serviceName,
+				requestInfo);
 	}
 
 }
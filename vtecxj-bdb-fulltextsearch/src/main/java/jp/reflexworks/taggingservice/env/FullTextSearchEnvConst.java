@@ -7,9 +7,13 @@ public interface FullTextSearchEnvConst extends ReflexEnvConst {
 
 	/** 設定 : 全文検索インデックスの最大文字数 */
 	public static final String FULLTEXTINDEX_WORDCOUNT_LIMIT = "_fulltextindex.wordcount.limit";
+	/** 設定 : N-gram形式の全文検索インデックスのグラム文字数 */
+	public static final String FULLTEXTINDEX_NGRAM_SIZE = "_fulltextindex.ngram.size";
 
 	/** 設定デフォルト : 全文検索インデックスの最大文字数 */
 	public static final int FULLTEXTINDEX_WORDCOUNT_LIMIT_DEFAULT = 50;
+	/** 設定デフォルト : N-gram形式の全文検索インデックスのグラム文字数 */
+	public static final int FULLTEXTINDEX_NGRAM_SIZE_DEFAULT = 2;
 
 	/** 設定デフォルト : Redisリトライ総数 */
 	static final int REDIS_RETRY_COUNT_DEFAULT = 2;
@@ -31,4 +31,18 @@ public class FullTextSearchEnvUtil {
 				FullTextSearchEnvConst.FULLTEXTINDEX_WORDCOUNT_LIMIT,
 				FullTextSearchEnvConst.FULLTEXTINDEX_WORDCOUNT_LIMIT_DEFAULT);
 	}
+
+	/**
+	 * N-gram形式の全文検索インデックスのグラム文字数を取得.
+	 * @return N-gram形式の全文検索インデックスのグラム文字数
+	 */
+	public static int getFulltextindexNgramSize() {
+		int size = ReflexEnvUtil.getSystemPropInt(
+				FullTextSearchEnvConst.FULLTEXTINDEX_NGRAM_SIZE,
+				FullTextSearchEnvConst.FULLTEXTINDEX_NGRAM_SIZE_DEFAULT);
+		if (size < 1) {
+			return FullTextSearchEnvConst.FULLTEXTINDEX_NGRAM_SIZE_DEFAULT;
+		}
+		return size;
+	}
 }
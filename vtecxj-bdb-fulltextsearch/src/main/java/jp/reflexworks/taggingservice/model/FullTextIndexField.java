@@ -0,0 +1,52 @@
+package jp.reflexworks.taggingservice.model;
+
+import jp.reflexworks.taggingservice.util.FullTextSearchIndexUtil;
+
+/**
+ * N-gram形式の全文検索インデックス項目.
+ * 1件のEntryの1項目 (DISTKEYごと) の値を保持する。
+ */
+public class FullTextIndexField {
+
+	/**
+	 * インデックス接頭辞.
+	 * (DISTKEYなし) : \u0001{全文検索インデックス項目短縮値}/
+	 * (DISTKEYあり) : {DISTKEY項目短縮値}/{DISTKEY項目の値}\u0001{全文検索インデックス項目短縮値}/
+	 */
+	public String prefix;
+	/** 自階層 */
+	public String selfid;
+	/** 正規化済みの値 */
+	public String text;
+
+	/**
+	 * コンストラクタ.
+	 * @param prefix インデックス接頭辞
+	 * @param selfid 自階層
+	 * @param text 正規化済みの値
+	 */
+	public FullTextIndexField(String prefix, String selfid, String text) {
+		this.prefix = prefix;
+		this.selfid = selfid;
+		this.text = text;
+	}
+
+	/**
+	 * インデックス項目短縮値までの文字列を取得.
+	 * suffix形式のインデックスの FullTextSearchIndexUtil.getShortingByIndexUri と同じ値。
+	 * @return インデックス項目短縮値までの文字列
+	 */
+	public String getShorting() {
+		return prefix.substring(0, prefix.length() - FullTextSearchIndexUtil.ITEM_END.length());
+	}
+
+	/**
+	 * 文字列表現.
+	 * @return このオブジェクトの文字列表現
+	 */
+	@Override
+	public String toString() {
+		return "FullTextIndexField [prefix=" + prefix + ", selfid=" + selfid + ", text=" + text + "]";
+	}
+
+}
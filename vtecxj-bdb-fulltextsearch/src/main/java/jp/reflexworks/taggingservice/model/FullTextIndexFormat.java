@@ -0,0 +1,97 @@
+package jp.reflexworks.taggingservice.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import jp.sourceforge.reflex.util.StringUtils;
+
+/**
+ * 名前空間の全文検索インデックス形式.
+ * 形式変換中は、変換先の形式にも書き込みを行う。
+ */
+public class FullTextIndexFormat {
+
+	/** 現在の形式 (検索に使用する形式) */
+	public String format;
+	/** 変換先の形式 (変換中の場合に設定) */
+	public String convertFormat;
+	/** 削除中の旧形式 (変換後の旧形式削除中の場合に設定) */
+	public String cleanupFormat;
+	/** N-gram形式のグラム文字数 */
+	public int ngramSize;
+
+	/**
+	 * コンストラクタ.
+	 * @param format 現在の形式
+	 * @param ngramSize N-gram形式のグラム文字数
+	 */
+	public FullTextIndexFormat(String format, int ngramSize) {
+		this.format = format;
+		this.ngramSize = ngramSize;
+	}
+
+	/**
+	 * 格納値から生成.
+	 * @param values 格納値 [現在の形式, 変換先の形式, 削除中の旧形式, N-gram形式のグラム文字数]
+	 * @param defaultFormat 格納値がない場合の形式
+	 * @param defaultNgramSize 格納値がない場合のグラム文字数
+	 * @return 全文検索インデックス形式
+	 */
+	public static FullTextIndexFormat valueOf(List<String> values, String defaultFormat,
+			int defaultNgramSize) {
+		if (values == null || values.isEmpty()) {
+			return new FullTextIndexFormat(defaultFormat, defaultNgramSize);
+		}
+		FullTextIndexFormat formatInfo = new FullTextIndexFormat(values.get(0),
+				StringUtils.intValue(getValue(values, 3), defaultNgramSize));
+		formatInfo.convertFormat = getValue(values, 1);
+		formatInfo.cleanupFormat = getValue(values, 2);
+		return formatInfo;
+	}
+
+	/**
+	 * 格納値に変換.
+	 * @return 格納値 [現在の形式, 変換先の形式, 削除中の旧形式, N-gram形式のグラム文字数]
+	 */
+	public List<String> toList() {
+		List<String> values = new ArrayList<>(4);
+		values.add(format);
+		values.add(StringUtils.null2blank(convertFormat));
+		values.add(StringUtils.null2blank(cleanupFormat));
+		values.add(String.valueOf(ngramSize));
+		return values;
+	}
+
+	/**
+	 * 指定された形式のインデックスを更新するかどうか.
+	 * @param targetFormat 形式
+	 * @return 現在の形式、または変換先の形式の場合true
+	 */
+	public boolean isWrite(String targetFormat) {
+		return targetFormat.equals(format) || targetFormat.equals(convertFormat);
+	}
+
+	/**
+	 * 格納値から指定位置の値を取得.
+	 * @param values 格納値
+	 * @param idx 位置
+	 * @return 値。空文字の場合null。
+	 */
+	private static String getValue(List<String> values, int idx) {
+		if (values.size() > idx && !StringUtils.isBlank(values.get(idx))) {
+			return values.get(idx);
+		}
+		return null;
+	}
+
+	/**
+	 * 文字列表現.
+	 * @return このオブジェクトの文字列表現
+	 */
+	@Override
+	public String toString() {
+		return "FullTextIndexFormat [format=" + format + ", convertFormat=" + convertFormat +
+				", cleanupFormat=" + cleanupFormat + ", ngramSize=" + ngramSize + "]";
+	}
+
+}
@@ -20,6 +20,10 @@ public class FullTextSearchRequestParam implements RequestType {
 
 	/** Encoding */
 	public static final String ENCODING = AtomConst.ENCODING;
+	/** URLパラメータ : 全文検索インデックス形式の変換 */
+	public static final String PARAM_FTFORMAT = "_ftformat";
+	/** URLパラメータ : 複数の全文検索条件をOR条件とする */
+	public static final String PARAM_FTOR = "_ftor";
 
 	/** キー */
 	private String uri;
@@ -33,6 +37,8 @@ public class FullTextSearchRequestParam implements RequestType {
 	private Map<String, String> options = new HashMap<String, String>();
 	/** 検索条件 */
 	private FullTextSearchCondition condition;
+	/** 検索条件リスト (指定順) */
+	private List<FullTextSearchCondition> conditions;
 	/** レスポンスフォーマット 0:XML, 1:JSON, 2:MessagePack */
 	private int format = ReflexServletConst.FORMAT_MESSAGEPACK;	// デフォルトはMessagePack
 
@@ -117,6 +123,23 @@ public class FullTextSearchRequestParam implements RequestType {
 		return condition;
 	}
 
+	/**
+	 * 全文検索条件リストを取得.
+	 * 全文検索条件が複数指定された場合、指定順に全ての条件を返却する。
+	 * @return 全文検索条件リスト。指定がない場合はnull。
+	 */
+	public List<FullTextSearchCondition> getFullTextSearchConditions() {
+		return conditions;
+	}
+
+	/**
+	 * 複数の全文検索条件をOR条件とするかどうか.
+	 * @return OR条件の場合true、AND条件の場合false
+	 */
+	public boolean isFullTextSearchOr() {
+		return options.containsKey(PARAM_FTOR);
+	}
+
 	/**
 	 * 指定されたオプションの値を取得.
 	 * QueryStringに指定された一文字のパラメータ、または"_"で始まるパラメータの値を返却します。
@@ -199,26 +222,33 @@ public class FullTextSearchRequestParam implements RequestType {
 				paramList.add(new String[] {key, val});
 			}
 			// 検索条件抽出
-			condition = createCondition(paramList);
+			conditions = createConditions(paramList);
+			if (conditions != null) {
+				condition = conditions.get(0);
+			}
 		}
 	}
 
 	/**
 	 * 指定された検索条件をオブジェクトに変換して取得.
 	 * @param paramList URLパラメータリスト([0]key、[1]val)
-	 * @return 検索条件
+	 * @return 検索条件リスト (指定順)。指定がない場合はnull。
 	 */
-	private FullTextSearchCondition createCondition(
+	private List<FullTextSearchCondition> createConditions(
 			List<String[]> paramList) {
+		List<FullTextSearchCondition> ftConditions = null;
 		for (String[] paramPart : paramList) {
 			String key = paramPart[0];
 			FullTextSearchCondition ftCondition =
 					FullTextSearchIndexUtil.getCondition(key);
 			if (ftCondition != null) {
-				return ftCondition;
+				if (ftConditions == null) {
+					ftConditions = new ArrayList<>();
+				}
+				ftConditions.add(ftCondition);
 			}
 		}
-		return null;
+		return ftConditions;
 	}
 
 	/**
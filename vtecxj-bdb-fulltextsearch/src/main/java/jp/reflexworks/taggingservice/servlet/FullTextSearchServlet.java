@@ -223,6 +223,7 @@ public class FullTextSearchServlet extends ReflexServlet {
 
 			// PUT /b/?_index リクエストデータにFeed
 			// PUT /b/?_backup BDBバックアップ
+			// PUT /b/?_ftformat={suffix|ngram}&l={件数}&p={カーソル} 全文検索インデックス形式の変換
 
 			if (param.getOption(FullTextSearchRequestParam.PARAM_INDEX) != null) {
 				// データ更新
@@ -251,6 +252,13 @@ public class FullTextSearchServlet extends ReflexServlet {
 
 				retObj = createMessageFeed("Backup complete. " + storageUrl);
 
+			} else if (param.getOption(FullTextSearchRequestParam.PARAM_FTFORMAT) != null) {
+				// 全文検索インデックス形式の変換
+				if (logger.isTraceEnabled()) {
+					logger.debug(LogUtil.getRequestInfoStr(requestInfo) + "_ftformat");
+				}
+				retObj = reflexContext.convertFormat(param);
+
 			} else {
 				throw new MethodNotAllowedException("Invalid parameter.");
 			}
@@ -98,4 +98,13 @@ public class FullTextSearchTaskQueue<T> implements ReflexTaskQueue<T> {
 		}
 	}
 
+	/**
+	 * 非同期処理の対象サービス名を取得.
+	 * @return サービス名
+	 */
+	@Override
+	public String getServiceName() {
+		return serviceName;
+	}
+
 }
@@ -0,0 +1,230 @@
+package jp.reflexworks.taggingservice.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 全文検索の返却済みIDを保持するBloomフィルタ.
+ * <p>
+ * 登録件数に応じてスライスを追加する可変長のBloomフィルタ(scalable Bloom filter)。
+ * スライスが容量に達した場合、2倍の容量のスライスを追加する。
+ * 判定は偽陽性があるため、含まれる可能性がある場合は呼び出し元で正確に確認すること。
+ * 偽陰性はない。
+ * </p>
+ * <p>
+ * バイト配列の形式は以下の通り。
+ * <ul>
+ *   <li>バージョン (1バイト)</li>
+ *   <li>スライス数 (int)</li>
+ *   <li>スライスごとに、容量 (int)、登録件数 (int)、ビット配列 (long × (容量 × 1件あたりのビット数 / 64))</li>
+ * </ul>
+ * </p>
+ */
+public class FullTextBloomFilter {
+
+	/** バイト配列の形式のバージョン */
+	private static final byte VERSION = 1;
+	/** 最初のスライスの容量 */
+	private static final int INITIAL_CAPACITY = 1024;
+	/** 1件あたりのビット数 (偽陽性率 約1%) */
+	private static final int BITS_PER_ITEM = 10;
+	/** ハッシュ関数の数 */
+	private static final int NUM_HASHES = 7;
+
+	/** スライスリスト */
+	private final List<Slice> slices = new ArrayList<>();
+
+	/**
+	 * コンストラクタ.
+	 */
+	public FullTextBloomFilter() {
+	}
+
+	/**
+	 * バイト配列からBloomフィルタを復元.
+	 * @param data バイト配列
+	 * @return Bloomフィルタ。データがない場合、または形式が異なる場合は空のBloomフィルタ。
+	 */
+	public static FullTextBloomFilter valueOf(byte[] data) {
+		FullTextBloomFilter filter = new FullTextBloomFilter();
+		if (data == null || data.length == 0) {
+			return filter;
+		}
+		try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+			if (in.readByte() != VERSION) {
+				return filter;
+			}
+			int sliceSize = in.readInt();
+			for (int i = 0; i < sliceSize; i++) {
+				int capacity = in.readInt();
+				int count = in.readInt();
+				Slice slice = new Slice(capacity);
+				slice.count = count;
+				for (int j = 0; j < slice.bits.length; j++) {
+					slice.bits[j] = in.readLong();
+				}
+				filter.slices.add(slice);
+			}
+			return filter;
+
+		} catch (IOException e) {
+			// 形式が異なる場合は空とする
+			return new FullTextBloomFilter();
+		}
+	}
+
+	/**
+	 * 値を登録.
+	 * @param val 値
+	 */
+	public void add(String val) {
+		Slice slice = null;
+		if (!slices.isEmpty()) {
+			slice = slices.get(slices.size() - 1);
+		}
+		if (slice == null || slice.count >= slice.capacity) {
+			int capacity = slice == null ? INITIAL_CAPACITY : slice.capacity * 2;
+			slice = new Slice(capacity);
+			slices.add(slice);
+		}
+		slice.add(hash(val));
+	}
+
+	/**
+	 * 値が登録されている可能性があるかどうか.
+	 * @param val 値
+	 * @return 登録されている可能性がある場合true、登録されていない場合false
+	 */
+	public boolean mightContain(String val) {
+		if (slices.isEmpty()) {
+			return false;
+		}
+		long hash = hash(val);
+		for (Slice slice : slices) {
+			if (slice.mightContain(hash)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * 登録件数を取得.
+	 * @return 登録件数
+	 */
+	public int getCount() {
+		int count = 0;
+		for (Slice slice : slices) {
+			count += slice.count;
+		}
+		return count;
+	}
+
+	/**
+	 * バイト配列に変換.
+	 * @return バイト配列
+	 */
+	public byte[] toBytes() {
+		int size = 5;
+		for (Slice slice : slices) {
+			size += 8 + slice.bits.length * 8;
+		}
+		ByteArrayOutputStream bout = new ByteArrayOutputStream(size);
+		try (DataOutputStream out = new DataOutputStream(bout)) {
+			out.writeByte(VERSION);
+			out.writeInt(slices.size());
+			for (Slice slice : slices) {
+				out.writeInt(slice.capacity);
+				out.writeInt(slice.count);
+				for (long bit : slice.bits) {
+					out.writeLong(bit);
+				}
+			}
+		} catch (IOException e) {
+			// ByteArrayOutputStreamのため発生しない
+			throw new IllegalStateException(e);
+		}
+		return bout.toByteArray();
+	}
+
+	/**
+	 * 値の64bitハッシュを取得 (FNV-1a).
+	 * @param val 値
+	 * @return ハッシュ
+	 */
+	private static long hash(String val) {
+		long hash = 0xcbf29ce484222325L;
+		for (byte b : val.getBytes(StandardCharsets.UTF_8)) {
+			hash ^= (b & 0xff);
+			hash *= 0x100000001b3L;
+		}
+		// 下位ビットの偏りを除くため撹拌する
+		hash ^= (hash >>> 33);
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= (hash >>> 33);
+		return hash;
+	}
+
+	/**
+	 * Bloomフィルタのスライス.
+	 */
+	private static class Slice {
+
+		/** 容量 */
+		private final int capacity;
+		/** ビット数 */
+		private final int numBits;
+		/** ビット配列 */
+		private final long[] bits;
+		/** 登録件数 */
+		private int count;
+
+		/**
+		 * コンストラクタ.
+		 * @param capacity 容量
+		 */
+		Slice(int capacity) {
+			this.capacity = capacity;
+			this.bits = new long[(int)(((long)capacity * BITS_PER_ITEM + 63) / 64)];
+			this.numBits = bits.length * 64;
+		}
+
+		/**
+		 * ハッシュを登録.
+		 * @param hash ハッシュ
+		 */
+		void add(long hash) {
+			int h1 = (int)hash;
+			int h2 = (int)(hash >>> 32);
+			for (int i = 0; i < NUM_HASHES; i++) {
+				int idx = Math.floorMod(h1 + i * h2, numBits);
+				bits[idx >>> 6] |= (1L << idx);
+			}
+			count++;
+		}
+
+		/**
+		 * ハッシュが登録されている可能性があるかどうか.
+		 * @param hash ハッシュ
+		 * @return 登録されている可能性がある場合true
+		 */
+		boolean mightContain(long hash) {
+			int h1 = (int)hash;
+			int h2 = (int)(hash >>> 32);
+			for (int i = 0; i < NUM_HASHES; i++) {
+				int idx = Math.floorMod(h1 + i * h2, numBits);
+				if ((bits[idx >>> 6] & (1L << idx)) == 0) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+}
@@ -0,0 +1,306 @@
+package jp.reflexworks.taggingservice.util;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import jp.reflexworks.taggingservice.env.FullTextSearchEnvUtil;
+import jp.sourceforge.reflex.util.StringUtils;
+
+/**
+ * 全文検索 N-gramインデックス ユーティリティ.
+ * <p>
+ * N-gram形式の全文検索インデックスは、グラムごとに文書番号のポスティングリストを保持する。
+ * ポスティングリストは文書番号の上位ビットでブロックに分割し、1ブロックを1レコードとする。
+ * <ul>
+ *   <li>キー : {インデックス接頭辞}{グラム}\u0001{ブロック番号(16桁ゼロ埋め)}</li>
+ *   <li>値 : ブロック内オフセットの差分を可変長整数で並べたバイト配列</li>
+ * </ul>
+ * インデックス接頭辞は suffix形式のキーのうち値の直前まで ({DISTKEY項目短縮値}/{DISTKEY項目の値}\u0001{全文検索インデックス項目短縮値}/) 。
+ * </p>
+ */
+public class FullTextNgramUtil {
+
+	/** ブロック番号を求めるための文書番号のシフト数 */
+	public static final int BLOCK_BITS = 12;
+	/** ブロック内オフセットのマスク */
+	private static final long BLOCK_MASK = (1L << BLOCK_BITS) - 1;
+	/** ブロック番号の桁数 */
+	private static final int BLOCK_DIGITS = 16;
+	/** グラムとブロック番号の区切り文字 */
+	public static final String GRAM_END = Constants.START_STRING;
+
+	/**
+	 * コンストラクタ(生成不可).
+	 */
+	private FullTextNgramUtil() {}
+
+	/**
+	 * N-gramの文字数を取得.
+	 * @return N-gramの文字数
+	 */
+	public static int getNgramSize() {
+		return FullTextSearchEnvUtil.getFulltextindexNgramSize();
+	}
+
+	/**
+	 * 正規化済み文字列のグラムを取得.
+	 * 全ての開始位置について最大n文字を切り出す。末尾のグラムはn文字未満になる。
+	 * サロゲートペアは1文字として扱う。
+	 * @param text 正規化済み文字列
+	 * @param n N-gramの文字数
+	 * @return グラムのセット (出現順)
+	 */
+	public static Set<String> getGrams(String text, int n) {
+		Set<String> grams = new LinkedHashSet<>();
+		if (StringUtils.isBlank(text)) {
+			return grams;
+		}
+		int[] codePoints = text.codePoints().toArray();
+		for (int i = 0; i < codePoints.length; i++) {
+			int len = Math.min(n, codePoints.length - i);
+			grams.add(new String(codePoints, i, len));
+		}
+		return grams;
+	}
+
+	/**
+	 * 検索文字列の検索用グラムを取得.
+	 * n文字のグラムのみを返す。検索文字列がn文字未満の場合は空のセット。
+	 * @param text 正規化済み検索文字列
+	 * @param n N-gramの文字数
+	 * @return 検索用グラムのセット (出現順)
+	 */
+	public static Set<String> getQueryGrams(String text, int n) {
+		Set<String> grams = new LinkedHashSet<>();
+		if (StringUtils.isBlank(text)) {
+			return grams;
+		}
+		int[] codePoints = text.codePoints().toArray();
+		for (int i = 0; i + n <= codePoints.length; i++) {
+			grams.add(new String(codePoints, i, n));
+		}
+		return grams;
+	}
+
+	/**
+	 * 文字列の文字数を取得 (サロゲートペアは1文字).
+	 * @param text 文字列
+	 * @return 文字数
+	 */
+	public static int getLength(String text) {
+		if (text == null) {
+			return 0;
+		}
+		return text.codePointCount(0, text.length());
+	}
+
+	/**
+	 * 文書番号のブロック番号を取得.
+	 * @param docNo 文書番号
+	 * @return ブロック番号
+	 */
+	public static long getBlock(long docNo) {
+		return docNo >>> BLOCK_BITS;
+	}
+
+	/**
+	 * 文書番号のブロック内オフセットを取得.
+	 * @param docNo 文書番号
+	 * @return ブロック内オフセット
+	 */
+	public static int getOffset(long docNo) {
+		return (int)(docNo & BLOCK_MASK);
+	}
+
+	/**
+	 * ブロック番号とオフセットから文書番号を取得.
+	 * @param block ブロック番号
+	 * @param offset ブロック内オフセット
+	 * @return 文書番号
+	 */
+	public static long getDocNo(long block, int offset) {
+		return (block << BLOCK_BITS) | offset;
+	}
+
+	/**
+	 * グラムのキー接頭辞を取得.
+	 * {インデックス接頭辞}{グラム}\u0001
+	 * @param prefix インデックス接頭辞
+	 * @param gram グラム
+	 * @return グラムのキー接頭辞
+	 */
+	public static String getGramKeyPrefix(String prefix, String gram) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(prefix);
+		sb.append(gram);
+		sb.append(GRAM_END);
+		return sb.toString();
+	}
+
+	/**
+	 * ポスティングブロックのキーを取得.
+	 * {インデックス接頭辞}{グラム}\u0001{ブロック番号}
+	 * @param gramKeyPrefix グラムのキー接頭辞
+	 * @param block ブロック番号
+	 * @return ポスティングブロックのキー
+	 */
+	public static String getPostingKey(String gramKeyPrefix, long block) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(gramKeyPrefix);
+		String blockStr = String.valueOf(block);
+		for (int i = blockStr.length(); i < BLOCK_DIGITS; i++) {
+			sb.append("0");
+		}
+		sb.append(blockStr);
+		return sb.toString();
+	}
+
+	/**
+	 * ポスティングブロックのキーからブロック番号を取得.
+	 * @param gramKeyPrefix グラムのキー接頭辞
+	 * @param postingKey ポスティングブロックのキー
+	 * @return ブロック番号。グラムのキー接頭辞に合致しない場合は-1。
+	 */
+	public static long getBlockByPostingKey(String gramKeyPrefix, String postingKey) {
+		if (postingKey == null || !postingKey.startsWith(gramKeyPrefix) ||
+				postingKey.length() != gramKeyPrefix.length() + BLOCK_DIGITS) {
+			return -1;
+		}
+		return Long.parseLong(postingKey.substring(gramKeyPrefix.length()));
+	}
+
+	/**
+	 * ポスティングブロックのキーからグラムのキー接頭辞を取得.
+	 * @param postingKey ポスティングブロックのキー
+	 * @return グラムのキー接頭辞
+	 */
+	public static String getGramKeyPrefixByPostingKey(String postingKey) {
+		return postingKey.substring(0, postingKey.length() - BLOCK_DIGITS);
+	}
+
+	/**
+	 * ブロック内オフセットの配列をバイト配列に変換.
+	 * 昇順のオフセットの差分を可変長整数で出力する。
+	 * @param offsets 昇順のブロック内オフセット
+	 * @param size 有効な要素数
+	 * @return バイト配列
+	 */
+	public static byte[] encodePosting(int[] offsets, int size) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(size * 2);
+		int prev = 0;
+		for (int i = 0; i < size; i++) {
+			int delta = offsets[i] - prev;
+			prev = offsets[i];
+			while ((delta & ~0x7f) != 0) {
+				out.write((delta & 0x7f) | 0x80);
+				delta >>>= 7;
+			}
+			out.write(delta);
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * バイト配列をブロック内オフセットの配列に変換.
+	 * @param data バイト配列
+	 * @return 昇順のブロック内オフセット
+	 */
+	public static int[] decodePosting(byte[] data) {
+		if (data == null || data.length == 0) {
+			return new int[0];
+		}
+		int[] offsets = new int[data.length];
+		int size = 0;
+		int prev = 0;
+		int idx = 0;
+		while (idx < data.length) {
+			int delta = 0;
+			int shift = 0;
+			int b = 0;
+			do {
+				b = data[idx++];
+				delta |= (b & 0x7f) << shift;
+				shift += 7;
+			} while ((b & 0x80) != 0 && idx < data.length);
+			prev += delta;
+			offsets[size++] = prev;
+		}
+		return Arrays.copyOf(offsets, size);
+	}
+
+	/**
+	 * ポスティングブロックにオフセットを追加、または削除する.
+	 * @param offsets 昇順のブロック内オフセット
+	 * @param offset 対象オフセット
+	 * @param isAdd 追加の場合true、削除の場合false
+	 * @return 更新後のオフセット。変更がない場合は引数の配列をそのまま返す。
+	 */
+	public static int[] updatePosting(int[] offsets, int offset, boolean isAdd) {
+		int idx = Arrays.binarySearch(offsets, offset);
+		if (isAdd) {
+			if (idx >= 0) {
+				return offsets;
+			}
+			int ins = -idx - 1;
+			int[] newOffsets = new int[offsets.length + 1];
+			System.arraycopy(offsets, 0, newOffsets, 0, ins);
+			newOffsets[ins] = offset;
+			System.arraycopy(offsets, ins, newOffsets, ins + 1, offsets.length - ins);
+			return newOffsets;
+		} else {
+			if (idx < 0) {
+				return offsets;
+			}
+			int[] newOffsets = new int[offsets.length - 1];
+			System.arraycopy(offsets, 0, newOffsets, 0, idx);
+			System.arraycopy(offsets, idx + 1, newOffsets, idx, offsets.length - idx - 1);
+			return newOffsets;
+		}
+	}
+
+	/**
+	 * 昇順のオフセット配列同士の積集合を取得.
+	 * @param offsets1 昇順のオフセット
+	 * @param offsets2 昇順のオフセット
+	 * @return 積集合
+	 */
+	public static int[] intersect(int[] offsets1, int[] offsets2) {
+		int[] ret = new int[Math.min(offsets1.length, offsets2.length)];
+		int size = 0;
+		int i = 0;
+		int j = 0;
+		while (i < offsets1.length && j < offsets2.length) {
+			if (offsets1[i] < offsets2[j]) {
+				i++;
+			} else if (offsets1[i] > offsets2[j]) {
+				j++;
+			} else {
+				ret[size++] = offsets1[i];
+				i++;
+				j++;
+			}
+		}
+		return Arrays.copyOf(ret, size);
+	}
+
+	/**
+	 * ポスティングブロックの値を表示用文字列に変換.
+	 * @param block ブロック番号
+	 * @param data バイト配列
+	 * @return 文書番号のカンマ区切り文字列
+	 */
+	public static String toPostingString(long block, byte[] data) {
+		int[] offsets = decodePosting(data);
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < offsets.length; i++) {
+			if (i > 0) {
+				sb.append(",");
+			}
+			sb.append(getDocNo(block, offsets[i]));
+		}
+		return sb.toString();
+	}
+
+}
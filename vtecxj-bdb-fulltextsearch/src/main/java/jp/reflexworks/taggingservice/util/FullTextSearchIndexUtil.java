@@ -2,11 +2,13 @@ package jp.reflexworks.taggingservice.util;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 
 import jp.reflexworks.taggingservice.env.FullTextSearchEnvUtil;
+import jp.reflexworks.taggingservice.model.FullTextIndexField;
 import jp.reflexworks.taggingservice.model.FullTextSearchCondition;
 import jp.sourceforge.reflex.util.StringUtils;
 
@@ -127,6 +129,141 @@ public class FullTextSearchIndexUtil extends IndexUtil {
 				distkeyShortening, distkeyValue);
 	}
 
+	/**
+	 * 全文検索インデックス接頭辞リストを取得.
+	 * N-gram形式のインデックス登録更新時に使用。
+	 * <ul>
+	 *   <li>接頭辞 (DISTKEYなし) : \u0001{全文検索インデックス項目短縮値}/</li>
+	 *   <li>接頭辞 (DISTKEYあり) : {DISTKEY項目短縮値}/{DISTKEY項目の値}\u0001{全文検索インデックス項目短縮値}/</li>
+	 * </ul>
+	 * @param parentItemShortening 親階層#Index項目名の短縮値
+	 * @param distkeys DISTKEYリスト キー:DISTKEY短縮値、値:DISTKEYの値
+	 * @return インデックス接頭辞リスト
+	 */
+	public static List<String> getFullTextIndexPrefixes(String parentItemShortening,
+			Map<String, String> distkeys) {
+		List<String> prefixes = new ArrayList<>();
+		if (distkeys != null && !distkeys.isEmpty()) {
+			for (Map.Entry<String, String> mapEntry : distkeys.entrySet()) {
+				prefixes.add(getFullTextIndexPrefix(parentItemShortening,
+						mapEntry.getKey(), mapEntry.getValue()));
+			}
+		} else {
+			prefixes.add(getFullTextIndexPrefix(parentItemShortening, null, null));
+		}
+		return prefixes;
+	}
+
+	/**
+	 * 全文検索インデックス接頭辞を取得.
+	 * @param parentItemShortening 親階層#Index項目名の短縮値
+	 * @param distkeyShortening DISTKEY短縮値
+	 * @param distkeyValue DISTKEYの値
+	 * @return インデックス接頭辞
+	 */
+	public static String getFullTextIndexPrefix(String parentItemShortening,
+			String distkeyShortening, String distkeyValue) {
+		return editFullTextIndex(parentItemShortening, null, "",
+				distkeyShortening, distkeyValue);
+	}
+
+	/**
+	 * インデックス接頭辞と正規化済みの値から、全文検索インデックスリストを取得.
+	 * N-gram形式からsuffix形式への変換に使用。
+	 * @param prefix インデックス接頭辞
+	 * @param selfid 自階層
+	 * @param normalizeText 正規化済みの値
+	 * @return インデックスキー文字列
+	 */
+	public static List<String> getFullTextIndexesByPrefix(String prefix, String selfid,
+			String normalizeText) {
+		List<String> indexes = new ArrayList<>();
+		if (StringUtils.isBlank(normalizeText)) {
+			return indexes;
+		}
+		int len = normalizeText.length();
+		for (int i = 0; i < len; i++) {
+			StringBuilder sb = new StringBuilder();
+			sb.append(prefix);
+			sb.append(substringFullTextIndex(normalizeText.substring(i)));
+			if (!StringUtils.isBlank(selfid)) {
+				sb.append(INDEX_SELF);
+				sb.append(selfid);
+			}
+			indexes.add(sb.toString());
+		}
+		return indexes;
+	}
+
+	/**
+	 * suffix形式の全文検索インデックスリストから、インデックス項目リストを復元.
+	 * suffix形式からN-gram形式への変換に使用。
+	 * 値は、先頭の文字列に、規定の文字数で切り取られた後続の文字列の末尾1文字ずつを連結して復元する。
+	 * @param indexes 1件のEntryの全文検索インデックスリスト (登録順)
+	 * @return インデックス項目リスト
+	 */
+	public static List<FullTextIndexField> getFieldsByIndexes(List<String> indexes) {
+		// キー: インデックス接頭辞 + \u0001 + selfid、値: インデックス項目
+		Map<String, FullTextIndexField> fieldMap = new LinkedHashMap<>();
+		// キー: インデックス接頭辞 + \u0001 + selfid、値: 先頭の文字列の長さ
+		Map<String, Integer> lenMap = new LinkedHashMap<>();
+		if (indexes == null) {
+			return new ArrayList<>();
+		}
+		for (String index : indexes) {
+			String prefix = getShortingByIndexUri(index) + ITEM_END;
+			String valueAndSelfid = index.substring(prefix.length());
+			String value = valueAndSelfid;
+			String selfid = null;
+			int idx = valueAndSelfid.lastIndexOf(INDEX_SELF);
+			if (idx >= 0) {
+				value = valueAndSelfid.substring(0, idx);
+				selfid = valueAndSelfid.substring(idx + INDEX_SELF.length());
+			}
+			String fieldKey = prefix + INDEX_SELF + StringUtils.null2blank(selfid);
+			FullTextIndexField field = fieldMap.get(fieldKey);
+			if (field == null) {
+				fieldMap.put(fieldKey, new FullTextIndexField(prefix, selfid, value));
+				lenMap.put(fieldKey, value.length());
+			} else {
+				int len = lenMap.get(fieldKey);
+				if (len > 0 && value.length() == len) {
+					field.text = field.text + value.charAt(len - 1);
+				}
+			}
+		}
+		return new ArrayList<>(fieldMap.values());
+	}
+
+	/**
+	 * インデックス項目の値に検索語が含まれるかどうか.
+	 * インデックス接頭辞が合致する項目の値を対象とする。
+	 * @param fields インデックス項目リスト
+	 * @param prefix インデックス接頭辞
+	 * @param texts 正規化済み検索語リスト
+	 * @param isOr OR条件の場合true、AND条件の場合false
+	 * @return AND条件の場合は全ての検索語、OR条件の場合はいずれかの検索語が含まれる場合true
+	 */
+	public static boolean containsTexts(List<FullTextIndexField> fields, String prefix,
+			List<String> texts, boolean isOr) {
+		for (String text : texts) {
+			boolean contains = false;
+			for (FullTextIndexField field : fields) {
+				if (prefix.equals(field.prefix) && field.text != null &&
+						field.text.contains(text)) {
+					contains = true;
+					break;
+				}
+			}
+			if (isOr && contains) {
+				return true;
+			} else if (!isOr && !contains) {
+				return false;
+			}
+		}
+		return !isOr;
+	}
+
 	/**
 	 * 全文検索インデックス文字列リストを取得.
 	 * 例) 値が「電子レンジ」の場合のインデックス値は以下の通り。
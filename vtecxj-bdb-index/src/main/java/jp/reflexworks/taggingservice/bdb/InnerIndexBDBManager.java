@@ -161,6 +161,10 @@ public class InnerIndexBDBManager {
 			}
 		}
 
+		// インデックスを一括更新
+		// キー: id、値: インデックスリスト
+		Map<String, List<String>> batchIndexes = new LinkedHashMap<>();
+		int batchSize = BDBEnvUtil.getBDBIndexBatchSize();
 		for (Map.Entry<String, Set<String>> mapEntry : putIndexes.entrySet()) {
 			String id = mapEntry.getKey();
 			List<String> indexes = null;
@@ -172,42 +176,55 @@ public class InnerIndexBDBManager {
 					indexes.addAll(values);
 				}
 			}
-			updateIndexes(namespace, id, indexes, isPartial, isDelete,
+			batchIndexes.put(id, indexes);
+			if (batchIndexes.size() >= batchSize) {
+				updateIndexes(namespace, batchIndexes, isPartial, isDelete,
+						requestInfo, connectionInfo);
+				batchIndexes = new LinkedHashMap<>();
+			}
+		}
+		if (!batchIndexes.isEmpty()) {
+			updateIndexes(namespace, batchIndexes, isPartial, isDelete,
 					requestInfo, connectionInfo);
 		}
 	}
 
 	/**
 	 * インデックスを更新.
+	 * 指定されたIDのインデックスを1トランザクションで更新する。
 	 * @param namespace 名前空間
-	 * @param id ID
-	 * @param newIndexes インデックスリスト
+	 * @param indexesMap キー:ID、値:インデックスリスト (Entry削除の場合はnull)
 	 * @param isPartial 指定されたキー・項目のみの更新の場合true
 	 * @param isDelete 削除の場合true
 	 * @param requestInfo リクエスト情報
 	 * @param connectionInfo コネクション情報
 	 */
-	private void updateIndexes(String namespace, String id, List<String> newIndexes,
+	private void updateIndexes(String namespace, Map<String, List<String>> indexesMap,
 			boolean isPartial, boolean isDelete,
 			RequestInfo requestInfo, ConnectionInfo connectionInfo)
 	throws IOException, TaggingException {
+		// エラー時のキーは先頭のID
+		String id = indexesMap.keySet().iterator().next();
 		int numRetries = BDBEnvUtil.getBDBRetryCount();
 		int waitMillis = BDBEnvUtil.getBDBRetryWaitmillis();
 		for (int r = 0; r <= numRetries; r++) {
+			BDBEnv bdbEnv = null;
 			try {
 				// BDB環境情報取得
-				BDBEnv bdbEnv = getBDBEnvByNamespace(
+				bdbEnv = getBDBEnvByNamespace(
 						namespace, true);
 
 				BDBDatabase dbIndex = bdbEnv.getDb(InnerIndexBDBConst.DB_INNER_INDEX);
 				BDBDatabase dbIndexAncestor = bdbEnv.getDb(InnerIndexBDBConst.DB_INNER_INDEX_ANCESTOR);
+				BDBIndexBatchWriter batchWriter = new BDBIndexBatchWriter(dbIndex,
+						dbIndexAncestor, InnerIndexUtil::getShortingByIndexUri);
 
 				// トランザクション開始
 				BDBTransaction bdbTxn = bdbEnv.beginTransaction();
 				try {
 					// インデックスを更新
-					updateIndexesProc(namespace, bdbTxn, dbIndex, dbIndexAncestor, id,
-							newIndexes, isPartial, isDelete, requestInfo, connectionInfo);
+					batchWriter.write(namespace, bdbTxn, indexesMap, isPartial, isDelete,
+							requestInfo, connectionInfo);
 
 					// コミット
 					bdbTxn.commit();
@@ -237,129 +254,64 @@ public class InnerIndexBDBManager {
 							"[updateIndexes] " + ReflexBDBLogUtil.getRetryLog(e, r));
 				}
 				BDBUtil.sleep(waitMillis + r * 10);
+			} finally {
+				BDBUtil.releaseBDBEnv(bdbEnv);
 			}
 		}
 		throw new IllegalStateException("Unreachable code.");
 	}
 
 	/**
-	 * インデックス情報を更新
+	 * 条件検索.
+	 * キーリストを返却する。
 	 * @param namespace 名前空間
-	 * @param bdbTxn トランザクション
-	 * @param db インデックステーブル
-	 * @param dbAncestor インデックスAncestor
-	 * @param id ID
-	 * @param indexList インデックスリスト (Entry削除の場合はnull)
-	 * @param isPartial 指定されたキー・項目のみの更新の場合true
-	 * @param isDelete 削除の場合true
-	 * @param requestInfo リクエスト情報
-	 * @param connectionInfo コネクション情報
+	 * @param param 親URI、検索条件
+	 * @param distkeyItem DISTKEY項目
+	 * @param distkeyValue DISTKEYの値
+	 * @param reflexContext ReflexContext
+	 * @return EntryのIDリストと、続きがある場合はカーソルを返す。
 	 */
-	private void updateIndexesProc(String namespace, BDBTransaction bdbTxn,
-			BDBDatabase db, BDBDatabase dbAncestor, String id,
-			List<String> indexList, boolean isPartial, boolean isDelete,
-			RequestInfo requestInfo, ConnectionInfo connectionInfo)
+	public FetchInfo<String> getFeedKeys(String namespace,
+			InnerIndexRequestParam param,
+			String distkeyItem, String distkeyValue,
+			InnerIndexContext reflexContext)
 	throws IOException, TaggingException {
-		BDBGet<List<String>> bdbGetAncestor = new BDBGet<>();
-		BDBPut<String> bdbPutString = new BDBPut<>();
-		BDBPut<List<String>> bdbPutAncestor = new BDBPut<>();
-		BDBDelete bdbDelete = new BDBDelete();
-
-		ListBinding listBinding = new ListBinding();
-		StringBinding stringBinding = BDBUtil.getStringBinding();
-
-		// 現在のIndexを取得
-		String idUri = TaggingEntryUtil.getUriById(id);
-		List<String> currentIndexes = bdbGetAncestor.get(namespace, bdbTxn, dbAncestor,
-				listBinding, BDBUtil.getLockMode(), idUri, requestInfo, connectionInfo);
-
-		// 今回のIndexを生成
-		boolean isPutAncestor = false;
-		List<String> newIndexes = new ArrayList<>();
-		if (indexList != null && !isDelete) {
-			// 登録更新
-			for (String index : indexList) {
-				newIndexes.add(index);
-				// 登録
-				bdbPutString.put(namespace, bdbTxn, db, stringBinding, index, id,
-						requestInfo, connectionInfo);
-				if (!isPutAncestor) {
-					if (currentIndexes == null || !currentIndexes.contains(index)) {
-						isPutAncestor = true;
-					}
-				}
-			}
-		}
-
-		// 除去されたインデックスを削除
-		if (currentIndexes != null) {
-			List<String> remainingCurrentIndexes = new ArrayList<>();
-			for (String currentIndex : currentIndexes) {
-				if (newIndexes.contains(currentIndex)) {
-					continue;
-				}
-				boolean isDeleteCurrent = true;
-				if (isPartial) {
-					if (!isDelete) {
-						// 部分更新
-						// インデックス項目短縮値が等しく、
-						// 新しく登録したインデックスに合致しないものがあれば削除する。
-						if (!containsShorting(currentIndex, newIndexes)) {
-							// isPartial=trueでインデックス項目短縮値が合致しない場合は、
-							// 変更対象でないので残す。
-							isDeleteCurrent = false;
-							remainingCurrentIndexes.add(currentIndex);
-						}
-					} else {
-						// 部分削除
-						if (!containsShorting(currentIndex, indexList)) {
-							// 変更対象でないので残す。
-							isDeleteCurrent = false;
-							remainingCurrentIndexes.add(currentIndex);
-						}
-					}
-				}
-
-				if (isDeleteCurrent) {
-					bdbDelete.delete(namespace, bdbTxn, db, currentIndex,
-							requestInfo, connectionInfo);
-					if (!isPutAncestor) {
-						isPutAncestor = true;
-					}
-				}
-			}
-			if (!remainingCurrentIndexes.isEmpty()) {
-				newIndexes.addAll(remainingCurrentIndexes);
-			}
-		}
+		return getFeedKeys(namespace, param, distkeyItem, distkeyValue, false,
+				reflexContext);
+	}
 
-		// Ancestorを上書き
-		if (isPutAncestor) {
-			if (isDelete && !isPartial) {
-				// 削除
-				bdbDelete.delete(namespace, bdbTxn, dbAncestor, idUri, requestInfo,
-						connectionInfo);
-			} else {
-				// 更新または部分削除
-				bdbPutAncestor.put(namespace, bdbTxn, dbAncestor, listBinding, idUri,
-						newIndexes, requestInfo, connectionInfo);
-			}
-		}
+	/**
+	 * 条件検索の件数取得.
+	 * データは読まずにキーのみで件数を数える。
+	 * @param namespace 名前空間
+	 * @param param 親URI、検索条件
+	 * @param distkeyItem DISTKEY項目
+	 * @param distkeyValue DISTKEYの値
+	 * @param reflexContext ReflexContext
+	 * @return 件数と、続きがある場合はカーソルを返す。
+	 */
+	public FetchInfo<String> getCount(String namespace,
+			InnerIndexRequestParam param,
+			String distkeyItem, String distkeyValue,
+			InnerIndexContext reflexContext)
+	throws IOException, TaggingException {
+		return getFeedKeys(namespace, param, distkeyItem, distkeyValue, true,
+				reflexContext);
 	}
 
 	/**
 	 * 条件検索.
-	 * キーリストを返却する。
 	 * @param namespace 名前空間
 	 * @param param 親URI、検索条件
 	 * @param distkeyItem DISTKEY項目
 	 * @param distkeyValue DISTKEYの値
+	 * @param isCount 件数のみ取得する場合true
 	 * @param reflexContext ReflexContext
-	 * @return EntryのIDリストと、続きがある場合はカーソルを返す。
+	 * @return EntryのIDリスト (件数取得の場合は件数) と、続きがある場合はカーソルを返す。
 	 */
-	public FetchInfo<String> getFeedKeys(String namespace,
+	private FetchInfo<String> getFeedKeys(String namespace,
 			InnerIndexRequestParam param,
-			String distkeyItem, String distkeyValue,
+			String distkeyItem, String distkeyValue, boolean isCount,
 			InnerIndexContext reflexContext)
 	throws IOException, TaggingException {
 		RequestInfo requestInfo = reflexContext.getRequestInfo();
@@ -384,16 +336,23 @@ public class InnerIndexBDBManager {
 		int numRetries = BDBEnvUtil.getBDBRetryCount();
 		int waitMillis = BDBEnvUtil.getBDBRetryWaitmillis();
 		for (int r = 0; r <= numRetries; r++) {
+			BDBEnv bdbEnv = null;
 			try {
-				BDBEnv bdbEnv = getBDBEnvByNamespace(
+				bdbEnv = getBDBEnvByNamespace(
 						namespace);
 				if (bdbEnv == null) {
 					// 環境が存在しない場合はデータなし
 					return null;
 				}
 				BDBDatabase db = bdbEnv.getDb(InnerIndexBDBConst.DB_INNER_INDEX);
-				FetchInfo<String> fetchInfo = bdbQuery.getByQuery(namespace, null, db,
-						binding, bdbCondition, limit, requestInfo);
+				FetchInfo<String> fetchInfo = null;
+				if (isCount) {
+					fetchInfo = bdbQuery.countByQuery(namespace, null, db, bdbCondition,
+							limit, requestInfo);
+				} else {
+					fetchInfo = bdbQuery.getByQuery(namespace, null, db,
+							binding, bdbCondition, limit, requestInfo);
+				}
 
 				return fetchInfo;
 
@@ -409,6 +368,8 @@ public class InnerIndexBDBManager {
 							"[getFeedKeys] " + ReflexBDBLogUtil.getRetryLog(e, r));
 				}
 				BDBUtil.sleep(waitMillis + r * 10);
+			} finally {
+				BDBUtil.releaseBDBEnv(bdbEnv);
 			}
 		}
 		throw new IllegalStateException("Unreachable code.");
@@ -444,11 +405,12 @@ public class InnerIndexBDBManager {
 		int numRetries = BDBEnvUtil.getBDBRetryCount();
 		int waitMillis = BDBEnvUtil.getBDBRetryWaitmillis();
 		for (int r = 0; r <= numRetries; r++) {
+			BDBEnv bdbEnv = null;
 			try {
 				// テーブル判定
 				BDBDatabase db = null;
 				EntryBinding<?> binding = null;
-				BDBEnv bdbEnv = getBDBEnvByNamespace(namespace);
+				bdbEnv = getBDBEnvByNamespace(namespace);
 				if (bdbEnv == null) {
 					return null;
 				}
@@ -477,6 +439,12 @@ public class InnerIndexBDBManager {
 				String keyend = InnerIndexUtil.getEndKeyStr(keyprefix);
 				BDBCondition bdbCondition = new BDBCondition(keyprefix, keyend, pointerStr);
 
+				if (param.getOption(InnerIndexRequestParam.PARAM_COUNT) != null) {
+					// 件数取得はキーのみ参照
+					return bdbQuery.countByQuery(namespace, null, db, bdbCondition,
+							limit, requestInfo);
+				}
+
 				FetchInfo<?> fetchInfo = bdbQuery.getByQuery(namespace, null, db, binding,
 						bdbCondition, limit, requestInfo);
 
@@ -504,6 +472,8 @@ public class InnerIndexBDBManager {
 							"[getList] " + ReflexBDBLogUtil.getRetryLog(e, r));
 				}
 				BDBUtil.sleep(waitMillis + r * 10);
+			} finally {
+				BDBUtil.releaseBDBEnv(bdbEnv);
 			}
 		}
 		throw new IllegalStateException("Unreachable code.");
@@ -649,10 +619,11 @@ public class InnerIndexBDBManager {
 		int waitMillis = BDBEnvUtil.getBDBRetryWaitmillis();
 		for (int r = 0; r <= numRetries; r++) {
 			BDBTransaction bdbTxn = null;
+			BDBEnv bdbEnv = null;
 			try {
 				// まずItemテーブルから値を取得
 				// BDB環境情報取得
-				BDBEnv bdbEnv = getBDBEnvByNamespace(namespace, true);
+				bdbEnv = getBDBEnvByNamespace(namespace, true);
 
 				BDBDatabase dbItem = null;
 				if (isDistkey) {
@@ -744,6 +715,8 @@ public class InnerIndexBDBManager {
 							"[getShortening] " + ReflexBDBLogUtil.getRetryLog(e, r));
 				}
 				BDBUtil.sleep(waitMillis + r * 10);
+			} finally {
+				BDBUtil.releaseBDBEnv(bdbEnv);
 			}
 		}
 
@@ -867,23 +840,6 @@ public class InnerIndexBDBManager {
 		return new FetchInfo<String>(result, pointerStr);
 	}
 
-	/**
-	 * 現在のインデックスが、新しく登録したインデックスのうち項目短縮値に合致するかどうかチェック
-	 * @param currentIndex 現在登録されているインデックス
-	 * @param newIndexes 新しいインデックスリスト
-	 * @return インデックス項目短縮値が等しい場合true
-	 */
-	private boolean containsShorting(String currentIndex, List<String> newIndexes) {
-		String currentIndexShorting = InnerIndexUtil.getShortingByIndexUri(currentIndex);
-		for (String newIndex : newIndexes) {
-			String newIndexShorting = InnerIndexUtil.getShortingByIndexUri(newIndex);
-			if (currentIndexShorting.equals(newIndexShorting)) {
-				return true;
-			}
-		}
-		return false;
-	}
-
 	/**
 	 * BDB検索条件オブジェクトを生成
 	 * @param namespace 名前空間
@@ -988,6 +944,7 @@ public class InnerIndexBDBManager {
 
 	/**
 	 * 名前空間からBDB環境情報を取得.
+	 * 使用後は{@link BDBUtil#releaseBDBEnv(BDBEnv)}を呼び出すこと。
 	 * @param namespace 名前空間
 	 * @param isCreate 指定された名前空間のBDB環境が存在しない時作成する場合true
 	 * @return BDB環境情報
@@ -995,7 +952,7 @@ public class InnerIndexBDBManager {
 	private BDBEnv getBDBEnvByNamespace(String namespace,
 			boolean isCreate)
 	throws IOException, TaggingException {
-		boolean setAccesstime = false;	// 
+		boolean setAccesstime = true;
 		BDBEnvManager bdbEnvManager = new BDBEnvManager();
 		return bdbEnvManager.getBDBEnvByNamespace(InnerIndexBDBConst.DB_NAMES,
 				namespace, isCreate, setAccesstime);
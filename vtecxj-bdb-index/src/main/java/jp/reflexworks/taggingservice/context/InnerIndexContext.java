@@ -118,8 +118,8 @@ public class InnerIndexContext implements BaseReflexContext {
 			String distkeyItem, String distkeyValue)
 	throws IOException, TaggingException {
 		InnerIndexBDBManager bdbManager = new InnerIndexBDBManager();
-		// ID一覧を取得
-		FetchInfo<String> fetchInfo = bdbManager.getFeedKeys(namespace, param,
+		// キーのみで件数を取得
+		FetchInfo<String> fetchInfo = bdbManager.getCount(namespace, param,
 				distkeyItem, distkeyValue, this);
 		return returnCount(fetchInfo);
 	}
@@ -186,10 +186,7 @@ public class InnerIndexContext implements BaseReflexContext {
 		FeedBase retFeed = TaggingEntryUtil.createAtomFeed();
 		int cnt = 0;
 		if (fetchInfo != null) {
-			Map<String, Object> result = (Map<String, Object>)fetchInfo.getResult();
-			if (result != null) {
-				cnt = result.size();
-			}
+			cnt = fetchInfo.getCount();
 			// カーソル
 			if (!StringUtils.isBlank(fetchInfo.getPointerStr())) {
 				TaggingEntryUtil.setCursorToFeed(fetchInfo.getPointerStr(), retFeed);
@@ -333,7 +330,8 @@ public class InnerIndexContext implements BaseReflexContext {
 	public void backupBDB(String storageUrl)
 	throws IOException, TaggingException {
 		// BDBクリーン、バックアップ
-		ReflexBDBBackupUtil.backup(namespace, storageUrl, serviceName, requestInfo);
+		ReflexBDBBackupUtil.backup(namespace, InnerIndexBDBConst.DB_NAMES, storageUrl, serviceName,
+				requestInfo);
 	}
 
 }
@@ -0,0 +1,46 @@
+package jp.reflexworks.taggingservice.batch;
+
+import java.io.IOException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jp.reflexworks.taggingservice.api.BaseReflexContext;
+import jp.reflexworks.taggingservice.bdb.ManifestFolderCountManager;
+import jp.reflexworks.taggingservice.exception.TaggingException;
+import jp.reflexworks.taggingservice.taskqueue.ReflexBDBCallable;
+import jp.reflexworks.taggingservice.util.LogUtil;
+
+/**
+ * フォルダ件数の再集計非同期処理.
+ */
+public class ManifestFolderCountRebuildCallable extends ReflexBDBCallable<Long> {
+
+	/** ロガー. */
+	private Logger logger = LoggerFactory.getLogger(this.getClass());
+
+	/**
+	 * フォルダ件数の再集計 非同期処理.
+	 * @return 再集計したフォルダ数
+	 */
+	@Override
+	public Long call() throws IOException, TaggingException {
+		BaseReflexContext reflexContext = getReflexContext();
+		if (logger.isTraceEnabled()) {
+			logger.debug(LogUtil.getRequestInfoStr(reflexContext.getRequestInfo()) +
+					"[rebuildFolderCount call] start.");
+		}
+
+		ManifestFolderCountManager folderCountManager = new ManifestFolderCountManager();
+		long folderCnt = folderCountManager.rebuild(reflexContext.getNamespace(),
+				reflexContext.getServiceName(), reflexContext.getRequestInfo(),
+				reflexContext.getConnectionInfo());
+
+		if (logger.isTraceEnabled()) {
+			logger.debug(LogUtil.getRequestInfoStr(reflexContext.getRequestInfo()) +
+					"[rebuildFolderCount call] end.");
+		}
+		return folderCnt;
+	}
+
+}
@@ -12,12 +12,15 @@ public class ManifestConst {
 	static final String DB_MANIFEST = "DBManifest";
 	/** `DBManifestAncestor` : マニフェスト更新用Ancestor */
 	static final String DB_MANIFEST_ANCESTOR = "DBManifestAncestor";
+	/** `DBManifestCount` : フォルダ件数 */
+	static final String DB_MANIFEST_COUNT = "DBManifestCount";
 
 	/** テーブル名リスト */
 	public static final List<String> DB_NAMES = new CopyOnWriteArrayList<String>();
 	static {
 		DB_NAMES.add(DB_MANIFEST);
 		DB_NAMES.add(DB_MANIFEST_ANCESTOR);
+		DB_NAMES.add(DB_MANIFEST_COUNT);
 	}
 
 }
@@ -0,0 +1,900 @@
+package jp.reflexworks.taggingservice.bdb;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.Lock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.sleepycat.bind.tuple.StringBinding;
+import com.sleepycat.je.CursorConfig;
+import com.sleepycat.je.DatabaseEntry;
+import com.sleepycat.je.DatabaseException;
+import com.sleepycat.je.OperationStatus;
+
+import jp.reflexworks.atom.entry.FeedBase;
+import jp.reflexworks.atom.entry.Link;
+import jp.reflexworks.taggingservice.api.ConnectionInfo;
+import jp.reflexworks.taggingservice.api.RequestInfo;
+import jp.reflexworks.taggingservice.env.BDBEnvManager;
+import jp.reflexworks.taggingservice.env.BDBEnvUtil;
+import jp.reflexworks.taggingservice.exception.TaggingException;
+import jp.reflexworks.taggingservice.util.LogUtil;
+import jp.reflexworks.taggingservice.util.ReflexBDBLogUtil;
+import jp.reflexworks.taggingservice.util.TaggingEntryUtil;
+import jp.sourceforge.reflex.util.StringUtils;
+
+/**
+ * フォルダ件数管理クラス.
+ * <p>
+ * 親階層ごとのマニフェスト件数をフォルダ件数テーブルに保持する。
+ * キーはマニフェストの親階層キー(親階層 + {@link BDBConst#END_PARENT_URI_STRING})、値は件数。<br>
+ * フォルダ件数は再集計を実行した名前空間のみ維持する。
+ * 再集計の開始時に状態キーを登録し、以降のマニフェスト更新では同じトランザクションで件数を更新する。
+ * 再集計が完了するまでは件数を返却しない。
+ * </p>
+ * <p>
+ * マニフェスト更新は最初に状態キーを読み込み、トランザクション終了までロックを保持する。
+ * 再集計は親階層ごとに一定件数ずつ別トランザクションで数え、状態キーに集計済みの最終キーを登録する。
+ * マニフェスト更新では、再集計中の親階層の集計済みの最終キーより後のキーの増減は件数に反映しない。
+ * </p>
+ * <p>
+ * 件数は親階層ごとに1レコードのため、同じ親階層への登録・削除はフォルダ件数のロックで直列化される。
+ * 1つの親階層に大量の登録が集中する場合は更新の並列度が下がるため、
+ * フォルダ件数の維持は設定(_bdb.enable.foldercount)で有効にした場合のみ行う。
+ * 無効の場合、マニフェスト更新は状態キーを削除してフォルダ件数を使用不可にする。
+ * 有効に戻した場合は再集計を実行すること。
+ * </p>
+ */
+public class ManifestFolderCountManager {
+
+	/** 状態キー (マニフェストの親階層キーは"/"または区切り文字で始まるため重複しない) */
+	static final String KEY_STATUS = "_status";
+	/** 状態 : 再集計中 */
+	static final String STATUS_BUILDING = "building";
+	/** 状態 : 使用可能 */
+	static final String STATUS_READY = "ready";
+	/** 状態と集計済みの最終キーの区切り文字 */
+	private static final String STATUS_DELIMITER = "\n";
+	/** 親階層キーの区切り文字の次の文字 */
+	private static final String FOLDER_KEY_UPPER = "\uffff";
+
+	/** ロガー. */
+	private Logger logger = LoggerFactory.getLogger(this.getClass());
+
+	/**
+	 * フォルダ件数を維持している場合、フォルダごとの増減の集計を生成.
+	 * マニフェスト更新のトランザクション内で、マニフェストの更新より先に呼び出すこと。
+	 * 状態キーのロックはトランザクション終了まで保持されるため、再集計の各トランザクションと排他される。
+	 * 状態キーが未登録の場合はロックされないため、呼び出し元で
+	 * {@link BDBEnv#getStatusLock()}の読み込みロックを保持すること。
+	 * フォルダ件数の維持が無効の場合、状態キーが登録されていれば削除する。
+	 * @param serviceName サービス名(ログ用)
+	 * @param bdbTxn トランザクション
+	 * @param dbCount フォルダ件数テーブル
+	 * @param requestInfo リクエスト情報
+	 * @param connectionInfo コネクション情報
+	 * @return フォルダごとの増減の集計。フォルダ件数を維持していない場合null。
+	 */
+	CountDeltas createCountDeltas(String serviceName, BDBTransaction bdbTxn,
+			BDBDatabase dbCount, RequestInfo requestInfo, ConnectionInfo connectionInfo)
+	throws IOException, TaggingException {
+		if (!BDBEnvUtil.isEnableFolderCount()) {
+			disableCounts(serviceName, bdbTxn, dbCount, requestInfo, connectionInfo);
+			return null;
+		}
+		BDBGet<String> bdbGet = new BDBGet<>();
+		String statusValue = bdbGet.get(serviceName, bdbTxn, dbCount,
+				BDBUtil.getStringBinding(), BDBUtil.getLockMode(), KEY_STATUS,
+				requestInfo, connectionInfo);
+		if (statusValue == null) {
+			return null;
+		}
+		return new CountDeltas(getRecountedKey(statusValue));
+	}
+
+	/**
+	 * フォルダ件数の維持が無効の場合、状態キーを削除してフォルダ件数を使用不可にする.
+	 * 状態キーが未登録の場合はロックしないよう、先にトランザクションなしで存在を確認する。
+	 * @param serviceName サービス名(ログ用)
+	 * @param bdbTxn トランザクション
+	 * @param dbCount フォルダ件数テーブル
+	 * @param requestInfo リクエスト情報
+	 * @param connectionInfo コネクション情報
+	 */
+	private void disableCounts(String serviceName, BDBTransaction bdbTxn,
+			BDBDatabase dbCount, RequestInfo requestInfo, ConnectionInfo connectionInfo)
+	throws IOException, TaggingException {
+		if (getStatus(serviceName, dbCount, requestInfo, connectionInfo) == null) {
+			return;
+		}
+		BDBGet<String> bdbGet = new BDBGet<>();
+		String statusValue = bdbGet.get(serviceName, bdbTxn, dbCount,
+				BDBUtil.getStringBinding(), BDBUtil.getLockModeRMW(), KEY_STATUS,
+				requestInfo, connectionInfo);
+		if (statusValue == null) {
+			return;
+		}
+		BDBDelete bdbDelete = new BDBDelete();
+		bdbDelete.delete(serviceName, bdbTxn, dbCount, KEY_STATUS, requestInfo,
+				connectionInfo);
+		logger.info(LogUtil.getRequestInfoStr(requestInfo) +
+				"[disableCounts] The folder count is disabled. status=" +
+				getStatusName(statusValue));
+	}
+
+	/**
+	 * フォルダ件数を更新.
+	 * デッドロックを避けるため、親階層キーの昇順に更新すること。
+	 * @param serviceName サービス名(ログ用)
+	 * @param bdbTxn トランザクション
+	 * @param dbCount フォルダ件数テーブル
+	 * @param countDeltas フォルダごとの増減の集計
+	 * @param requestInfo リクエスト情報
+	 * @param connectionInfo コネクション情報
+	 */
+	void updateCounts(String serviceName, BDBTransaction bdbTxn, BDBDatabase dbCount,
+			CountDeltas countDeltas, RequestInfo requestInfo,
+			ConnectionInfo connectionInfo)
+	throws IOException, TaggingException {
+		BDBGet<String> bdbGet = new BDBGet<>();
+		StringBinding stringBinding = BDBUtil.getStringBinding();
+		for (Map.Entry<String, Long> mapEntry : countDeltas.deltas.entrySet()) {
+			String folderKey = mapEntry.getKey();
+			String currentCount = bdbGet.get(serviceName, bdbTxn, dbCount, stringBinding,
+					BDBUtil.getLockModeRMW(), folderKey, requestInfo, connectionInfo);
+			long count = StringUtils.longValue(currentCount, 0) + mapEntry.getValue();
+			if (count < 0) {
+				logger.warn(LogUtil.getRequestInfoStr(requestInfo) +
+						"[updateCounts] The folder count is negative. folder=" +
+						getParentUri(folderKey) + " count=" + count);
+				count = 0;
+			}
+			putCount(serviceName, bdbTxn, dbCount, folderKey, count, requestInfo,
+					connectionInfo);
+		}
+	}
+
+	/**
+	 * フォルダ件数を取得.
+	 * フォルダ件数の維持が無効の場合はnullを返す。
+	 * @param namespace 名前空間
+	 * @param parentUri 親階層
+	 * @param serviceName サービス名(ログ用)
+	 * @param requestInfo リクエスト情報
+	 * @param connectionInfo コネクション情報
+	 * @return フォルダ件数。フォルダ件数が使用可能でない場合null。
+	 */
+	public Long getFolderCount(String namespace, String parentUri, String serviceName,
+			RequestInfo requestInfo, ConnectionInfo connectionInfo)
+	throws IOException, TaggingException {
+		if (!BDBEnvUtil.isEnableFolderCount()) {
+			return null;
+		}
+		String folderKey = BDBUtil.getManifestParentUri(parentUri);
+		int numRetries = BDBEnvUtil.getBDBRetryCount();
+		int waitMillis = BDBEnvUtil.getBDBRetryWaitmillis();
+		for (int r = 0; r <= numRetries; r++) {
+			BDBEnv bdbEnv = null;
+			try {
+				bdbEnv = getBDBEnvByNamespace(namespace, false);
+				if (bdbEnv == null) {
+					return null;
+				}
+				BDBDatabase dbCount = bdbEnv.getDb(ManifestConst.DB_MANIFEST_COUNT);
+				if (!STATUS_READY.equals(getStatus(serviceName, dbCount, requestInfo,
+						connectionInfo))) {
+					return null;
+				}
+				BDBGet<String> bdbGet = new BDBGet<>();
+				String count = bdbGet.get(serviceName, null, dbCount,
+						BDBUtil.getStringBinding(), BDBUtil.getLockMode(), folderKey,
+						requestInfo, connectionInfo);
+				return StringUtils.longValue(count, 0);
+
+			} catch (DatabaseException e) {
+				// リトライ判定、入力エラー判定
+				BDBUtil.convertError(e, parentUri, requestInfo);
+				if (r >= numRetries) {
+					// リトライ対象だがリトライ回数を超えた場合
+					BDBUtil.convertIOError(e, parentUri);
+				}
+				if (logger.isInfoEnabled()) {
+					logger.info(LogUtil.getRequestInfoStr(requestInfo) +
+							"[getFolderCount] " + ReflexBDBLogUtil.getRetryLog(e, r));
+				}
+				BDBUtil.sleep(waitMillis + r * 10);
+			} finally {
+				BDBUtil.releaseBDBEnv(bdbEnv);
+			}
+		}
+		throw new IllegalStateException("Unreachable code.");
+	}
+
+	/**
+	 * フォルダ件数を再集計.
+	 * <ol>
+	 *   <li>状態を再集計中にする。以降のマニフェスト更新ではフォルダ件数が更新される。</li>
+	 *   <li>マニフェストの親階層ごとに、件数を一定件数ずつトランザクション内で数え直す。</li>
+	 *   <li>マニフェストが存在しない親階層の件数を削除する。</li>
+	 *   <li>状態を使用可能にする。</li>
+	 * </ol>
+	 * 再集計中にフォルダ件数の維持が無効になった場合は中断する。
+	 * @param namespace 名前空間
+	 * @param serviceName サービス名(ログ用)
+	 * @param requestInfo リクエスト情報
+	 * @param connectionInfo コネクション情報
+	 * @return 再集計したフォルダ数
+	 */
+	public long rebuild(String namespace, String serviceName,
+			RequestInfo requestInfo, ConnectionInfo connectionInfo)
+	throws IOException, TaggingException {
+		logger.info(LogUtil.getRequestInfoStr(requestInfo) +
+				"[rebuild] start. namespace=" + namespace);
+		putStatus(namespace, STATUS_BUILDING, serviceName, requestInfo, connectionInfo);
+
+		// マニフェストの親階層ごとに数え直す
+		long folderCnt = 0;
+		String folderKey = nextFolderKey(namespace, ManifestConst.DB_MANIFEST, null,
+				requestInfo);
+		while (folderKey != null) {
+			if (!BDBEnvUtil.isEnableFolderCount()) {
+				logger.warn(LogUtil.getRequestInfoStr(requestInfo) +
+						"[rebuild] The folder count is disabled. namespace=" + namespace);
+				return folderCnt;
+			}
+			recount(namespace, folderKey, serviceName, requestInfo, connectionInfo);
+			folderCnt++;
+			folderKey = nextFolderKey(namespace, ManifestConst.DB_MANIFEST,
+					getNextFolderStartKey(folderKey), requestInfo);
+		}
+
+		// マニフェストが存在しない親階層の件数を削除
+		String countKey = nextFolderKey(namespace, ManifestConst.DB_MANIFEST_COUNT, null,
+				requestInfo);
+		while (countKey != null) {
+			if (!BDBEnvUtil.isEnableFolderCount()) {
+				logger.warn(LogUtil.getRequestInfoStr(requestInfo) +
+						"[rebuild] The folder count is disabled. namespace=" + namespace);
+				return folderCnt;
+			}
+			if (countFolder(namespace, countKey, requestInfo) == 0) {
+				recount(namespace, countKey, serviceName, requestInfo, connectionInfo);
+			}
+			countKey = nextFolderKey(namespace, ManifestConst.DB_MANIFEST_COUNT,
+					getNextFolderStartKey(countKey), requestInfo);
+		}
+
+		putStatus(namespace, STATUS_READY, serviceName, requestInfo, connectionInfo);
+		logger.info(LogUtil.getRequestInfoStr(requestInfo) +
+				"[rebuild] end. namespace=" + namespace + " folders=" + folderCnt);
+		return folderCnt;
+	}
+
+	/**
+	 * フォルダ件数を検証.
+	 * マニフェストの件数とフォルダ件数が異なる親階層を返却する。
+	 * @param namespace 名前空間
+	 * @param limit 返却する親階層の最大数
+	 * @param serviceName サービス名(ログ用)
+	 * @param requestInfo リクエスト情報
+	 * @param connectionInfo コネクション情報
+	 * @return 検証結果。titleに不一致の親階層数、subtitleに状態、
+	 *         linkに不一致の親階層(hrefに親階層、titleに「{フォルダ件数},{マニフェスト件数}」)を設定。
+	 */
+	public FeedBase verify(String namespace, int limit, String serviceName,
+			RequestInfo requestInfo, ConnectionInfo connectionInfo)
+	throws IOException, TaggingException {
+		List<Link> links = new ArrayList<>();
+		long mismatchCnt = 0;
+		String status = null;
+		BDBEnv bdbEnv = getBDBEnvByNamespace(namespace, false);
+		try {
+			if (bdbEnv != null) {
+				BDBDatabase dbCount = bdbEnv.getDb(ManifestConst.DB_MANIFEST_COUNT);
+				status = getStatus(serviceName, dbCount, requestInfo, connectionInfo);
+
+				// マニフェストの親階層
+				String folderKey = nextFolderKey(namespace, ManifestConst.DB_MANIFEST, null,
+						requestInfo);
+				while (folderKey != null) {
+					if (addMismatch(namespace, dbCount, folderKey, links, limit, serviceName,
+							requestInfo, connectionInfo)) {
+						mismatchCnt++;
+					}
+					folderKey = nextFolderKey(namespace, ManifestConst.DB_MANIFEST,
+							getNextFolderStartKey(folderKey), requestInfo);
+				}
+				// マニフェストが存在しない親階層
+				String countKey = nextFolderKey(namespace, ManifestConst.DB_MANIFEST_COUNT, null,
+						requestInfo);
+				while (countKey != null) {
+					if (countFolder(namespace, countKey, requestInfo) == 0 &&
+							addMismatch(namespace, dbCount, countKey, links, limit, serviceName,
+									requestInfo, connectionInfo)) {
+						mismatchCnt++;
+					}
+					countKey = nextFolderKey(namespace, ManifestConst.DB_MANIFEST_COUNT,
+							getNextFolderStartKey(countKey), requestInfo);
+				}
+			}
+		} finally {
+			BDBUtil.releaseBDBEnv(bdbEnv);
+		}
+
+		FeedBase retFeed = TaggingEntryUtil.createAtomFeed();
+		retFeed.title = String.valueOf(mismatchCnt);
+		retFeed.subtitle = status;
+		if (!links.isEmpty()) {
+			retFeed.link = links;
+		}
+		return retFeed;
+	}
+
+	/**
+	 * 親階層のフォルダ件数とマニフェスト件数を比較し、異なる場合は返却リストに追加.
+	 * @param namespace 名前空間
+	 * @param dbCount フォルダ件数テーブル
+	 * @param folderKey 親階層キー
+	 * @param links 返却リスト
+	 * @param limit 返却する親階層の最大数
+	 * @param serviceName サービス名(ログ用)
+	 * @param requestInfo リクエスト情報
+	 * @param connectionInfo コネクション情報
+	 * @return 件数が異なる場合true
+	 */
+	private boolean addMismatch(String namespace, BDBDatabase dbCount, String folderKey,
+			List<Link> links, int limit, String serviceName,
+			RequestInfo requestInfo, ConnectionInfo connectionInfo)
+	throws IOException, TaggingException {
+		BDBGet<String> bdbGet = new BDBGet<>();
+		String count = bdbGet.get(serviceName, null, dbCount, BDBUtil.getStringBinding(),
+				BDBUtil.getLockMode(), folderKey, requestInfo, connectionInfo);
+		long folderCount = StringUtils.longValue(count, 0);
+		long manifestCount = countFolder(namespace, folderKey, requestInfo);
+		if (folderCount == manifestCount) {
+			return false;
+		}
+		if (links.size() < limit) {
+			Link link = new Link();
+			link._$rel = Link.REL_SELF;
+			link._$href = getParentUri(folderKey);
+			link._$title = folderCount + "," + manifestCount;
+			links.add(link);
+		}
+		return true;
+	}
+
+	/**
+	 * 親階層のフォルダ件数を数え直す.
+	 * マニフェストを一定件数ずつ別トランザクションで数え、フォルダ件数に加算する。
+	 * @param namespace 名前空間
+	 * @param folderKey 親階層キー
+	 * @param serviceName サービス名(ログ用)
+	 * @param requestInfo リクエスト情報
+	 * @param connectionInfo コネクション情報
+	 */
+	private void recount(String namespace, String folderKey, String serviceName,
+			RequestInfo requestInfo, ConnectionInfo connectionInfo)
+	throws IOException, TaggingException {
+		String recountedKey = null;
+		do {
+			recountedKey = recountBatch(namespace, folderKey, recountedKey, serviceName,
+					requestInfo, connectionInfo);
+		} while (recountedKey != null);
+	}
+
+	/**
+	 * 親階層のマニフェストを一定件数数え、フォルダ件数に加算する.
+	 * マニフェスト更新と競合しないよう、先に状態キーをロックし、
+	 * 同じトランザクションで集計済みの最終キーを状態キーに登録する。
+	 * @param namespace 名前空間
+	 * @param folderKey 親階層キー
+	 * @param fromKey 集計済みの最終キー (親階層の最初から数える場合null)
+	 * @param serviceName サービス名(ログ用)
+	 * @param requestInfo リクエスト情報
+	 * @param connectionInfo コネクション情報
+	 * @return 集計済みの最終キー。親階層のマニフェストを全て数えた場合null。
+	 */
+	private String recountBatch(String namespace, String folderKey, String fromKey,
+			String serviceName, RequestInfo requestInfo, ConnectionInfo connectionInfo)
+	throws IOException, TaggingException {
+		int batchSize = BDBEnvUtil.getBDBFolderCountBatchSize();
+		int numRetries = BDBEnvUtil.getBDBRetryCount();
+		int waitMillis = BDBEnvUtil.getBDBRetryWaitmillis();
+		for (int r = 0; r <= numRetries; r++) {
+			BDBEnv bdbEnv = null;
+			try {
+				bdbEnv = getBDBEnvByNamespace(namespace, true);
+				BDBDatabase dbManifest = bdbEnv.getDb(ManifestConst.DB_MANIFEST);
+				BDBDatabase dbCount = bdbEnv.getDb(ManifestConst.DB_MANIFEST_COUNT);
+				StringBinding stringBinding = BDBUtil.getStringBinding();
+
+				// トランザクション開始
+				BDBTransaction bdbTxn = bdbEnv.beginTransaction();
+				try {
+					// 更新処理と競合しないよう、先に状態キーとフォルダ件数をロックする。
+					BDBGet<String> bdbGet = new BDBGet<>();
+					bdbGet.get(serviceName, bdbTxn, dbCount, stringBinding,
+							BDBUtil.getLockModeRMW(), KEY_STATUS, requestInfo, connectionInfo);
+					String currentCount = bdbGet.get(serviceName, bdbTxn, dbCount,
+							stringBinding, BDBUtil.getLockModeRMW(), folderKey, requestInfo,
+							connectionInfo);
+
+					// 集計済みの最終キーの次から数える
+					byte[] prefix = BDBUtil.getDbKey(folderKey).getData();
+					DatabaseEntry foundKey = new DatabaseEntry(prefix);
+					if (fromKey != null) {
+						foundKey.setData(BDBUtil.getDbKey(fromKey).getData());
+					}
+					// データは読まない
+					DatabaseEntry foundData = new DatabaseEntry();
+					foundData.setPartial(0, 0, true);
+					long count = 0;
+					String lastKey = null;
+					BDBCursor cursor = dbManifest.openCursor(bdbTxn, CursorConfig.DEFAULT);
+					try {
+						OperationStatus retVal = cursor.getSearchKeyRange(foundKey, foundData,
+								BDBUtil.getLockMode());
+						if (retVal == OperationStatus.SUCCESS && fromKey != null &&
+								fromKey.equals(BDBUtil.getDbString(foundKey))) {
+							// 集計済み
+							retVal = cursor.getNext(foundKey, foundData, BDBUtil.getLockMode());
+						}
+						while (retVal == OperationStatus.SUCCESS && startsWith(foundKey, prefix)) {
+							count++;
+							if (count >= batchSize) {
+								// 続きは次のトランザクションで数える
+								lastKey = BDBUtil.getDbString(foundKey);
+								break;
+							}
+							retVal = cursor.getNext(foundKey, foundData, BDBUtil.getLockMode());
+						}
+					} finally {
+						cursor.close();
+					}
+					if (fromKey != null) {
+						count += StringUtils.longValue(currentCount, 0);
+					}
+					putCount(serviceName, bdbTxn, dbCount, folderKey, count, requestInfo,
+							connectionInfo);
+					// 集計済みの最終キーを登録
+					String statusValue = STATUS_BUILDING;
+					if (lastKey != null) {
+						statusValue = STATUS_BUILDING + STATUS_DELIMITER + lastKey;
+					}
+					BDBPut<String> bdbPut = new BDBPut<>();
+					bdbPut.put(serviceName, bdbTxn, dbCount, stringBinding, KEY_STATUS,
+							statusValue, requestInfo, connectionInfo);
+
+					// コミット
+					bdbTxn.commit();
+					bdbTxn = null;
+					return lastKey;
+
+				} finally {
+					if (bdbTxn != null) {
+						try {
+							bdbTxn.abort();
+						} catch (DatabaseException e) {
+							logger.warn(LogUtil.getRequestInfoStr(requestInfo) +
+									"[recountBatch] " + e.getClass().getName(), e);
+						}
+					}
+				}
+
+			} catch (DatabaseException e) {
+				// リトライ判定、入力エラー判定
+				BDBUtil.convertError(e, folderKey, requestInfo);
+				if (r >= numRetries) {
+					// リトライ対象だがリトライ回数を超えた場合
+					BDBUtil.convertIOError(e, folderKey);
+				}
+				if (logger.isInfoEnabled()) {
+					logger.info(LogUtil.getRequestInfoStr(requestInfo) +
+							"[recountBatch] " + ReflexBDBLogUtil.getRetryLog(e, r));
+				}
+				BDBUtil.sleep(waitMillis + r * 10);
+			} finally {
+				BDBUtil.releaseBDBEnv(bdbEnv);
+			}
+		}
+		throw new IllegalStateException("Unreachable code.");
+	}
+
+	/**
+	 * 親階層のマニフェスト件数を取得 (トランザクションなし).
+	 * @param namespace 名前空間
+	 * @param folderKey 親階層キー
+	 * @param requestInfo リクエスト情報
+	 * @return マニフェスト件数
+	 */
+	private long countFolder(String namespace, String folderKey, RequestInfo requestInfo)
+	throws IOException, TaggingException {
+		int numRetries = BDBEnvUtil.getBDBRetryCount();
+		int waitMillis = BDBEnvUtil.getBDBRetryWaitmillis();
+		for (int r = 0; r <= numRetries; r++) {
+			BDBEnv bdbEnv = null;
+			try {
+				bdbEnv = getBDBEnvByNamespace(namespace, false);
+				if (bdbEnv == null) {
+					return 0;
+				}
+				BDBDatabase dbManifest = bdbEnv.getDb(ManifestConst.DB_MANIFEST);
+				return countFolder(null, dbManifest, folderKey);
+
+			} catch (DatabaseException e) {
+				// リトライ判定、入力エラー判定
+				BDBUtil.convertError(e, folderKey, requestInfo);
+				if (r >= numRetries) {
+					// リトライ対象だがリトライ回数を超えた場合
+					BDBUtil.convertIOError(e, folderKey);
+				}
+				if (logger.isInfoEnabled()) {
+					logger.info(LogUtil.getRequestInfoStr(requestInfo) +
+							"[countFolder] " + ReflexBDBLogUtil.getRetryLog(e, r));
+				}
+				BDBUtil.sleep(waitMillis + r * 10);
+			} finally {
+				BDBUtil.releaseBDBEnv(bdbEnv);
+			}
+		}
+		throw new IllegalStateException("Unreachable code.");
+	}
+
+	/**
+	 * 親階層のマニフェスト件数を数える.
+	 * 未コミットの更新を数えないよう、読み飛ばしは使用せず1件ずつロックして数える。
+	 * @param bdbTxn トランザクション
+	 * @param dbManifest マニフェストテーブル
+	 * @param folderKey 親階層キー
+	 * @return マニフェスト件数
+	 */
+	private long countFolder(BDBTransaction bdbTxn, BDBDatabase dbManifest,
+			String folderKey) {
+		byte[] prefix = BDBUtil.getDbKey(folderKey).getData();
+		DatabaseEntry foundKey = new DatabaseEntry(prefix);
+		// データは読まない
+		DatabaseEntry foundData = new DatabaseEntry();
+		foundData.setPartial(0, 0, true);
+		long count = 0;
+		BDBCursor cursor = dbManifest.openCursor(bdbTxn, CursorConfig.DEFAULT);
+		try {
+			OperationStatus retVal = cursor.getSearchKeyRange(foundKey, foundData,
+					BDBUtil.getLockMode());
+			while (retVal == OperationStatus.SUCCESS && startsWith(foundKey, prefix)) {
+				count++;
+				retVal = cursor.getNext(foundKey, foundData, BDBUtil.getLockMode());
+			}
+		} finally {
+			cursor.close();
+		}
+		return count;
+	}
+
+	/**
+	 * 指定キー以降の最初のデータの親階層キーを取得.
+	 * 状態キーは除く。
+	 * @param namespace 名前空間
+	 * @param dbName テーブル名
+	 * @param fromKey 検索開始キー (先頭から検索する場合null)
+	 * @param requestInfo リクエスト情報
+	 * @return 親階層キー。データが存在しない場合null。
+	 */
+	private String nextFolderKey(String namespace, String dbName, String fromKey,
+			RequestInfo requestInfo)
+	throws IOException, TaggingException {
+		int numRetries = BDBEnvUtil.getBDBRetryCount();
+		int waitMillis = BDBEnvUtil.getBDBRetryWaitmillis();
+		for (int r = 0; r <= numRetries; r++) {
+			BDBEnv bdbEnv = null;
+			try {
+				bdbEnv = getBDBEnvByNamespace(namespace, false);
+				if (bdbEnv == null) {
+					return null;
+				}
+				BDBDatabase db = bdbEnv.getDb(dbName);
+				DatabaseEntry foundKey = new DatabaseEntry();
+				DatabaseEntry foundData = new DatabaseEntry();
+				foundData.setPartial(0, 0, true);
+				BDBCursor cursor = db.openCursor(null, CursorConfig.READ_COMMITTED);
+				try {
+					OperationStatus retVal = null;
+					if (fromKey != null) {
+						foundKey.setData(BDBUtil.getDbKey(fromKey).getData());
+						retVal = cursor.getSearchKeyRange(foundKey, foundData,
+								BDBUtil.getLockMode());
+					} else {
+						retVal = cursor.getFirst(foundKey, foundData, BDBUtil.getLockMode());
+					}
+					while (retVal == OperationStatus.SUCCESS) {
+						String key = BDBUtil.getDbString(foundKey);
+						if (!KEY_STATUS.equals(key)) {
+							return getFolderKey(key);
+						}
+						retVal = cursor.getNext(foundKey, foundData, BDBUtil.getLockMode());
+					}
+					return null;
+				} finally {
+					cursor.close();
+				}
+
+			} catch (DatabaseException e) {
+				// リトライ判定、入力エラー判定
+				BDBUtil.convertError(e, fromKey, requestInfo);
+				if (r >= numRetries) {
+					// リトライ対象だがリトライ回数を超えた場合
+					BDBUtil.convertIOError(e, fromKey);
+				}
+				if (logger.isInfoEnabled()) {
+					logger.info(LogUtil.getRequestInfoStr(requestInfo) +
+							"[nextFolderKey] " + ReflexBDBLogUtil.getRetryLog(e, r));
+				}
+				BDBUtil.sleep(waitMillis + r * 10);
+			} finally {
+				BDBUtil.releaseBDBEnv(bdbEnv);
+			}
+		}
+		throw new IllegalStateException("Unreachable code.");
+	}
+
+	/**
+	 * 状態を取得 (トランザクションなし).
+	 * @param serviceName サービス名(ログ用)
+	 * @param dbCount フォルダ件数テーブル
+	 * @param requestInfo リクエスト情報
+	 * @param connectionInfo コネクション情報
+	 * @return 状態。フォルダ件数を維持していない場合null。
+	 */
+	private String getStatus(String serviceName, BDBDatabase dbCount,
+			RequestInfo requestInfo, ConnectionInfo connectionInfo)
+	throws IOException, TaggingException {
+		BDBGet<String> bdbGet = new BDBGet<>();
+		String statusValue = bdbGet.get(serviceName, null, dbCount,
+				BDBUtil.getStringBinding(), BDBUtil.getLockMode(), KEY_STATUS,
+				requestInfo, connectionInfo);
+		if (statusValue == null) {
+			return null;
+		}
+		return getStatusName(statusValue);
+	}
+
+	/**
+	 * 状態キーの値から状態を取得.
+	 * @param statusValue 状態キーの値 ({状態}または{状態}\n{集計済みの最終キー})
+	 * @return 状態
+	 */
+	private static String getStatusName(String statusValue) {
+		int idx = statusValue.indexOf(STATUS_DELIMITER);
+		if (idx < 0) {
+			return statusValue;
+		}
+		return statusValue.substring(0, idx);
+	}
+
+	/**
+	 * 状態を登録.
+	 * 状態を参照中のマニフェスト更新が終了するのを待ってから登録する。
+	 * @param namespace 名前空間
+	 * @param status 状態
+	 * @param serviceName サービス名(ログ用)
+	 * @param requestInfo リクエスト情報
+	 * @param connectionInfo コネクション情報
+	 */
+	private void putStatus(String namespace, String status, String serviceName,
+			RequestInfo requestInfo, ConnectionInfo connectionInfo)
+	throws IOException, TaggingException {
+		int numRetries = BDBEnvUtil.getBDBRetryCount();
+		int waitMillis = BDBEnvUtil.getBDBRetryWaitmillis();
+		for (int r = 0; r <= numRetries; r++) {
+			BDBEnv bdbEnv = null;
+			try {
+				bdbEnv = getBDBEnvByNamespace(namespace, true);
+				BDBDatabase dbCount = bdbEnv.getDb(ManifestConst.DB_MANIFEST_COUNT);
+				Lock statusLock = bdbEnv.getStatusLock().writeLock();
+				statusLock.lock();
+				try {
+					BDBPut<String> bdbPut = new BDBPut<>();
+					bdbPut.put(serviceName, null, dbCount, BDBUtil.getStringBinding(),
+							KEY_STATUS, status, requestInfo, connectionInfo);
+				} finally {
+					statusLock.unlock();
+				}
+				return;
+
+			} catch (DatabaseException e) {
+				// リトライ判定、入力エラー判定
+				BDBUtil.convertError(e, KEY_STATUS, requestInfo);
+				if (r >= numRetries) {
+					// リトライ対象だがリトライ回数を超えた場合
+					BDBUtil.convertIOError(e, KEY_STATUS);
+				}
+				if (logger.isInfoEnabled()) {
+					logger.info(LogUtil.getRequestInfoStr(requestInfo) +
+							"[putStatus] " + ReflexBDBLogUtil.getRetryLog(e, r));
+				}
+				BDBUtil.sleep(waitMillis + r * 10);
+			} finally {
+				BDBUtil.releaseBDBEnv(bdbEnv);
+			}
+		}
+		throw new IllegalStateException("Unreachable code.");
+	}
+
+	/**
+	 * フォルダ件数を登録.
+	 * 0件の場合は削除する。
+	 * @param serviceName サービス名(ログ用)
+	 * @param bdbTxn トランザクション
+	 * @param dbCount フォルダ件数テーブル
+	 * @param folderKey 親階層キー
+	 * @param count 件数
+	 * @param requestInfo リクエスト情報
+	 * @param connectionInfo コネクション情報
+	 */
+	private void putCount(String serviceName, BDBTransaction bdbTxn, BDBDatabase dbCount,
+			String folderKey, long count, RequestInfo requestInfo,
+			ConnectionInfo connectionInfo)
+	throws IOException, TaggingException {
+		if (count > 0) {
+			BDBPut<String> bdbPut = new BDBPut<>();
+			bdbPut.put(serviceName, bdbTxn, dbCount, BDBUtil.getStringBinding(), folderKey,
+					String.valueOf(count), requestInfo, connectionInfo);
+		} else {
+			BDBDelete bdbDelete = new BDBDelete();
+			bdbDelete.delete(serviceName, bdbTxn, dbCount, folderKey, requestInfo,
+					connectionInfo);
+		}
+	}
+
+	/**
+	 * 状態キーの値から、再集計中の親階層の集計済みの最終キーを取得.
+	 * @param statusValue 状態キーの値 ({状態}または{状態}\n{集計済みの最終キー})
+	 * @return 集計済みの最終キー。親階層を再集計中でない場合null。
+	 */
+	private static String getRecountedKey(String statusValue) {
+		int idx = statusValue.indexOf(STATUS_DELIMITER);
+		if (idx < 0) {
+			return null;
+		}
+		return statusValue.substring(idx + STATUS_DELIMITER.length());
+	}
+
+	/**
+	 * マニフェストキーから親階層キーを取得.
+	 * @param manifestUri マニフェストキー
+	 * @return 親階層キー
+	 */
+	static String getFolderKey(String manifestUri) {
+		int idx = manifestUri.lastIndexOf(BDBConst.END_PARENT_URI_STRING);
+		if (idx < 0) {
+			return manifestUri;
+		}
+		return manifestUri.substring(0, idx + BDBConst.END_PARENT_URI_STRING.length());
+	}
+
+	/**
+	 * 親階層キーの次の親階層の検索開始キーを取得.
+	 * 末尾の区切り文字(U+FFFE)をU+FFFFに置き換えると、UTF-8のバイト順で
+	 * この親階層のキー全てより大きく、他の親階層のキーより小さいキーとなる。
+	 * @param folderKey 親階層キー
+	 * @return 次の親階層の検索開始キー
+	 */
+	private static String getNextFolderStartKey(String folderKey) {
+		return folderKey.substring(0,
+				folderKey.length() - BDBConst.END_PARENT_URI_STRING.length()) +
+				FOLDER_KEY_UPPER;
+	}
+
+	/**
+	 * 親階層キーから親階層を取得.
+	 * @param folderKey 親階層キー
+	 * @return 親階層
+	 */
+	private static String getParentUri(String folderKey) {
+		String parentUri = folderKey;
+		if (parentUri.endsWith(BDBConst.END_PARENT_URI_STRING)) {
+			parentUri = parentUri.substring(0,
+					parentUri.length() - BDBConst.END_PARENT_URI_STRING.length());
+		}
+		if (StringUtils.isBlank(parentUri)) {
+			return "/";
+		}
+		return parentUri;
+	}
+
+	/**
+	 * キーが指定されたバイト配列で始まるかどうか.
+	 * @param foundKey キー
+	 * @param prefix 接頭辞
+	 * @return キーが接頭辞で始まる場合true
+	 */
+	private static boolean startsWith(DatabaseEntry foundKey, byte[] prefix) {
+		if (foundKey.getSize() < prefix.length) {
+			return false;
+		}
+		byte[] data = foundKey.getData();
+		int offset = foundKey.getOffset();
+		for (int i = 0; i < prefix.length; i++) {
+			if (data[offset + i] != prefix[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * フォルダごとの増減の集計.
+	 * 再集計中の親階層の、集計済みの最終キーより後のキーの増減は集計しない。
+	 * (再集計の続きのトランザクションで数えられるため)
+	 */
+	static class CountDeltas {
+
+		/** フォルダごとの増減 キー:親階層キー、値:増減 (キーの昇順) */
+		private final Map<String, Long> deltas = new TreeMap<>();
+		/** 再集計中の親階層キー */
+		private final String recountingFolderKey;
+		/** 再集計中の親階層の集計済みの最終キー */
+		private final byte[] recountedKey;
+
+		/**
+		 * コンストラクタ.
+		 * @param recountedKey 再集計中の親階層の集計済みの最終キー (再集計中でない場合null)
+		 */
+		private CountDeltas(String recountedKey) {
+			if (recountedKey != null) {
+				this.recountingFolderKey = getFolderKey(recountedKey);
+				this.recountedKey = BDBUtil.getDbKey(recountedKey).getData();
+			} else {
+				this.recountingFolderKey = null;
+				this.recountedKey = null;
+			}
+		}
+
+		/**
+		 * マニフェストの増減を集計.
+		 * @param manifestUri マニフェストキー
+		 * @param delta 増減
+		 */
+		void add(String manifestUri, long delta) {
+			String folderKey = getFolderKey(manifestUri);
+			if (folderKey.equals(recountingFolderKey) && Arrays.compareUnsigned(
+					BDBUtil.getDbKey(manifestUri).getData(), recountedKey) > 0) {
+				return;
+			}
+			Long value = deltas.merge(folderKey, delta, Long::sum);
+			if (value == 0) {
+				deltas.remove(folderKey);
+			}
+		}
+
+		/**
+		 * 増減が無いかどうか.
+		 * @return 増減が無い場合true
+		 */
+		boolean isEmpty() {
+			return deltas.isEmpty();
+		}
+	}
+
+	/**
+	 * 名前空間からBDB環境情報を取得.
+	 * 使用後は{@link BDBUtil#releaseBDBEnv(BDBEnv)}を呼び出すこと。
+	 * @param namespace 名前空間
+	 * @param isCreate 指定された名前空間のBDB環境が存在しない時作成する場合true
+	 * @return BDB環境情報
+	 */
+	private BDBEnv getBDBEnvByNamespace(String namespace, boolean isCreate)
+	throws IOException, TaggingException {
+		boolean setAccesstime = true;
+		BDBEnvManager bdbEnvManager = new BDBEnvManager();
+		return bdbEnvManager.getBDBEnvByNamespace(ManifestConst.DB_NAMES,
+				namespace, isCreate, setAccesstime);
+	}
+
+}
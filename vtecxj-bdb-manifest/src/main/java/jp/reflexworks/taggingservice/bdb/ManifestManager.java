@@ -5,6 +5,7 @@ import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.locks.Lock;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -12,6 +13,7 @@ import org.slf4j.LoggerFactory;
 import com.sleepycat.bind.EntryBinding;
 import com.sleepycat.bind.tuple.StringBinding;
 import com.sleepycat.je.DatabaseException;
+import com.sleepycat.je.OperationStatus;
 
 import jp.reflexworks.atom.entry.FeedBase;
 import jp.reflexworks.atom.entry.Link;
@@ -102,37 +104,61 @@ public class ManifestManager {
 		int waitMillis = BDBEnvUtil.getBDBRetryWaitmillis();
 		for (int r = 0; r <= numRetries; r++) {
 			String id = null;
+			BDBEnv bdbEnv = null;
 			try {
 				// BDB環境情報取得
-				BDBEnv bdbEnv = getBDBEnvByNamespace(namespace, true);
+				bdbEnv = getBDBEnvByNamespace(namespace, true);
 
 				BDBDatabase dbManifest = bdbEnv.getDb(ManifestConst.DB_MANIFEST);
 				BDBDatabase dbManifestAncestor = bdbEnv.getDb(ManifestConst.DB_MANIFEST_ANCESTOR);
+				BDBDatabase dbManifestCount = bdbEnv.getDb(ManifestConst.DB_MANIFEST_COUNT);
 
-				// トランザクション開始
-				BDBTransaction bdbTxn = bdbEnv.beginTransaction();
+				// 状態の変更と排他する
+				Lock statusLock = bdbEnv.getStatusLock().readLock();
+				statusLock.lock();
 				try {
-					for (Map.Entry<String, List<String>> mapEntry : manifestMap.entrySet()) {
-						id = mapEntry.getKey();
-						List<String> manifests = mapEntry.getValue();
-						// マニフェストを更新
-						updateManifestProc(bdbTxn, dbManifest, dbManifestAncestor,
-								id, manifests, serviceName, requestInfo, connectionInfo);
-					}
+					// トランザクション開始
+					BDBTransaction bdbTxn = bdbEnv.beginTransaction();
+					try {
+						// フォルダ件数を維持している場合、フォルダごとの増減を集計する。
+						ManifestFolderCountManager folderCountManager =
+								new ManifestFolderCountManager();
+						ManifestFolderCountManager.CountDeltas countDeltas =
+								folderCountManager.createCountDeltas(serviceName, bdbTxn,
+										dbManifestCount, requestInfo, connectionInfo);
+
+						for (Map.Entry<String, List<String>> mapEntry : manifestMap.entrySet()) {
+							id = mapEntry.getKey();
+							List<String> manifests = mapEntry.getValue();
+							// マニフェストを更新
+							updateManifestProc(bdbTxn, dbManifest, dbManifestAncestor,
+									id, manifests, countDeltas, serviceName, requestInfo,
+									connectionInfo);
+						}
 
-					// コミット
-					bdbTxn.commit();
-					bdbTxn = null;
+						// フォルダ件数を更新
+						if (countDeltas != null && !countDeltas.isEmpty()) {
+							id = null;
+							folderCountManager.updateCounts(serviceName, bdbTxn, dbManifestCount,
+									countDeltas, requestInfo, connectionInfo);
+						}
 
-				} finally {
-					if (bdbTxn != null) {
-						try {
-							bdbTxn.abort();
-						} catch (DatabaseException e) {
-							logger.warn(LogUtil.getRequestInfoStr(requestInfo) +
-									"[updateManifest] " + e.getClass().getName(), e);
+						// コミット
+						bdbTxn.commit();
+						bdbTxn = null;
+
+					} finally {
+						if (bdbTxn != null) {
+							try {
+								bdbTxn.abort();
+							} catch (DatabaseException e) {
+								logger.warn(LogUtil.getRequestInfoStr(requestInfo) +
+										"[updateManifest] " + e.getClass().getName(), e);
+							}
 						}
 					}
+				} finally {
+					statusLock.unlock();
 				}
 				return;
 
@@ -148,6 +174,8 @@ public class ManifestManager {
 							"[updateManifest] " + ReflexBDBLogUtil.getRetryLog(e, r));
 				}
 				BDBUtil.sleep(waitMillis + r * 10);
+			} finally {
+				BDBUtil.releaseBDBEnv(bdbEnv);
 			}
 		}
 		throw new IllegalStateException("Unreachable code.");
@@ -160,15 +188,18 @@ public class ManifestManager {
 	 * @param dbAncestor マニフェストAncestor
 	 * @param id ID
 	 * @param manifests Manifestリスト (Entry削除の場合はリストが空)
+	 * @param countDeltas フォルダごとの増減 (フォルダ件数を維持しない場合null)
 	 * @param serviceName サービス名(ログ用)
 	 * @param requestInfo リクエスト情報
 	 * @param connectionInfo コネクション情報
 	 */
 	private void updateManifestProc(BDBTransaction bdbTxn,
 			BDBDatabase db, BDBDatabase dbAncestor, String id, List<String> manifests,
-			String serviceName, RequestInfo requestInfo, ConnectionInfo connectionInfo)
+			ManifestFolderCountManager.CountDeltas countDeltas, String serviceName,
+			RequestInfo requestInfo, ConnectionInfo connectionInfo)
 	throws IOException, TaggingException {
 		BDBGet<List<String>> bdbGetAncestor = new BDBGet<>();
+		BDBGet<String> bdbGetString = new BDBGet<>();
 		BDBPut<String> bdbPutString = new BDBPut<>();
 		BDBPut<List<String>> bdbPutAncestor = new BDBPut<>();
 		BDBDelete bdbDelete = new BDBDelete();
@@ -189,10 +220,20 @@ public class ManifestManager {
 			// 登録更新
 			for (String manifest : manifests) {
 				newManifests.add(manifest);
+				boolean isNewManifest = currentManifests == null ||
+						!currentManifests.contains(manifest);
+				if (countDeltas != null && isNewManifest) {
+					// 未登録のキーの場合フォルダ件数を加算
+					String currentId = bdbGetString.get(serviceName, bdbTxn, db, stringBinding,
+							BDBUtil.getLockModeRMW(), manifest, requestInfo, connectionInfo);
+					if (currentId == null) {
+						countDeltas.add(manifest, 1);
+					}
+				}
 				// 登録
 				bdbPutString.put(serviceName, bdbTxn, db, stringBinding, manifest, id,
 						requestInfo, connectionInfo);
-				if (currentManifests == null || !currentManifests.contains(manifest)) {
+				if (isNewManifest) {
 					if (!isPutAncestor) {
 						isPutAncestor = true;
 					}
@@ -206,8 +247,12 @@ public class ManifestManager {
 				if (newManifests.contains(currentIndex)) {
 					continue;
 				}
-				bdbDelete.delete(serviceName, bdbTxn, db, currentIndex,
-						requestInfo, connectionInfo);
+				OperationStatus status = bdbDelete.delete(serviceName, bdbTxn, db,
+						currentIndex, requestInfo, connectionInfo);
+				if (countDeltas != null && status == OperationStatus.SUCCESS) {
+					// フォルダ件数を減算
+					countDeltas.add(currentIndex, -1);
+				}
 				if (!isPutAncestor) {
 					isPutAncestor = true;
 				}
@@ -273,9 +318,10 @@ public class ManifestManager {
 		int numRetries = BDBEnvUtil.getBDBRetryCount();
 		int waitMillis = BDBEnvUtil.getBDBRetryWaitmillis();
 		for (int r = 0; r <= numRetries; r++) {
+			BDBEnv bdbEnv = null;
 			try {
 				// BDB環境情報取得
-				BDBEnv bdbEnv = getBDBEnvByNamespace(namespace, true);
+				bdbEnv = getBDBEnvByNamespace(namespace, true);
 
 				BDBDatabase dbManifest = bdbEnv.getDb(ManifestConst.DB_MANIFEST);
 				StringBinding stringBinding = BDBUtil.getStringBinding();
@@ -295,6 +341,8 @@ public class ManifestManager {
 							"[get] " + ReflexBDBLogUtil.getRetryLog(e, r));
 				}
 				BDBUtil.sleep(waitMillis + r * 10);
+			} finally {
+				BDBUtil.releaseBDBEnv(bdbEnv);
 			}
 		}
 		throw new IllegalStateException("Unreachable code.");
@@ -312,6 +360,36 @@ public class ManifestManager {
 	public FetchInfo<String> getFeedKeys(String namespace,
 			ManifestRequestParam param,
 			ManifestContext reflexContext)
+	throws IOException, TaggingException {
+		return getFeedKeys(namespace, param, false, reflexContext);
+	}
+
+	/**
+	 * 条件検索の件数取得.
+	 * データは読まずにキーのみで件数を数える。
+	 * @param namespace 名前空間
+	 * @param param 親URI、検索条件(URI前方一致かどうか)
+	 * @param reflexContext ReflexContext
+	 * @return 件数と、続きがある場合はカーソルを返す。
+	 */
+	public FetchInfo<String> getCount(String namespace,
+			ManifestRequestParam param,
+			ManifestContext reflexContext)
+	throws IOException, TaggingException {
+		return getFeedKeys(namespace, param, true, reflexContext);
+	}
+
+	/**
+	 * 条件検索.
+	 * @param namespace 名前空間
+	 * @param param 親URI、検索条件(URI前方一致かどうか)
+	 * @param isCount 件数のみ取得する場合true
+	 * @param reflexContext ReflexContext
+	 * @return Entryの ID URI リスト (件数取得の場合は件数) と、続きがある場合はカーソルを返す。
+	 */
+	private FetchInfo<String> getFeedKeys(String namespace,
+			ManifestRequestParam param, boolean isCount,
+			ManifestContext reflexContext)
 	throws IOException, TaggingException {
 		RequestInfo requestInfo = reflexContext.getRequestInfo();
 		ConnectionInfo connectionInfo = reflexContext.getConnectionInfo();
@@ -332,16 +410,23 @@ public class ManifestManager {
 		int numRetries = BDBEnvUtil.getBDBRetryCount();
 		int waitMillis = BDBEnvUtil.getBDBRetryWaitmillis();
 		for (int r = 0; r <= numRetries; r++) {
+			BDBEnv bdbEnv = null;
 			try {
-				BDBEnv bdbEnv = getBDBEnvByNamespace(
+				bdbEnv = getBDBEnvByNamespace(
 						namespace);
 				if (bdbEnv == null) {
 					// 環境が存在しない場合はデータなし
 					return null;
 				}
 				BDBDatabase db = bdbEnv.getDb(ManifestConst.DB_MANIFEST);
-				FetchInfo<String> fetchInfo = bdbQuery.getByQuery(namespace, null, db,
-						binding, bdbCondition, limit, requestInfo);
+				FetchInfo<String> fetchInfo = null;
+				if (isCount) {
+					fetchInfo = bdbQuery.countByQuery(namespace, null, db, bdbCondition,
+							limit, requestInfo);
+				} else {
+					fetchInfo = bdbQuery.getByQuery(namespace, null, db,
+							binding, bdbCondition, limit, requestInfo);
+				}
 
 				return fetchInfo;
 
@@ -357,6 +442,8 @@ public class ManifestManager {
 							"[getFeedKeys] " + ReflexBDBLogUtil.getRetryLog(e, r));
 				}
 				BDBUtil.sleep(waitMillis + r * 10);
+			} finally {
+				BDBUtil.releaseBDBEnv(bdbEnv);
 			}
 		}
 		throw new IllegalStateException("Unreachable code.");
@@ -392,11 +479,12 @@ public class ManifestManager {
 		int numRetries = BDBEnvUtil.getBDBRetryCount();
 		int waitMillis = BDBEnvUtil.getBDBRetryWaitmillis();
 		for (int r = 0; r <= numRetries; r++) {
+			BDBEnv bdbEnv = null;
 			try {
 				// テーブル判定
 				BDBDatabase db = null;
 				EntryBinding<?> binding = null;
-				BDBEnv bdbEnv = getBDBEnvByNamespace(namespace);
+				bdbEnv = getBDBEnvByNamespace(namespace);
 				if (bdbEnv == null) {
 					return null;
 				}
@@ -407,6 +495,9 @@ public class ManifestManager {
 				} else if (ManifestConst.DB_MANIFEST_ANCESTOR.equals(tableName)) {
 					db = bdbEnv.getDb(ManifestConst.DB_MANIFEST_ANCESTOR);
 					binding = BDBUtil.getListBinding();
+				} else if (ManifestConst.DB_MANIFEST_COUNT.equals(tableName)) {
+					db = bdbEnv.getDb(ManifestConst.DB_MANIFEST_COUNT);
+					binding = BDBUtil.getStringBinding();
 
 				} else {
 					throw new IllegalArgumentException("The specified table does not exist. " + tableName);
@@ -416,8 +507,15 @@ public class ManifestManager {
 				String keyend = IndexUtil.getEndKeyStr(keyprefix);
 				BDBCondition bdbCondition = new BDBCondition(keyprefix, keyend, pointerStr);
 
-				FetchInfo<?> fetchInfo = bdbQuery.getByQuery(namespace, null, db, binding,
-						bdbCondition, limit, requestInfo);
+				FetchInfo<?> fetchInfo = null;
+				if (param.getOption(ManifestRequestParam.PARAM_COUNT) != null) {
+					// 件数取得はキーのみ参照
+					fetchInfo = bdbQuery.countByQuery(namespace, null, db, bdbCondition,
+							limit, requestInfo);
+				} else {
+					fetchInfo = bdbQuery.getByQuery(namespace, null, db, binding,
+							bdbCondition, limit, requestInfo);
+				}
 				return fetchInfo;
 
 			} catch (DatabaseException e) {
@@ -432,6 +530,8 @@ public class ManifestManager {
 							"[getList] " + ReflexBDBLogUtil.getRetryLog(e, r));
 				}
 				BDBUtil.sleep(waitMillis + r * 10);
+			} finally {
+				BDBUtil.releaseBDBEnv(bdbEnv);
 			}
 		}
 		throw new IllegalStateException("Unreachable code.");
@@ -546,6 +646,7 @@ public class ManifestManager {
 
 	/**
 	 * 名前空間からBDB環境情報を取得.
+	 * 使用後は{@link BDBUtil#releaseBDBEnv(BDBEnv)}を呼び出すこと。
 	 * @param namespace 名前空間
 	 * @param isCreate 指定された名前空間のBDB環境が存在しない時作成する場合true
 	 * @return BDB環境情報
@@ -553,7 +654,7 @@ public class ManifestManager {
 	private BDBEnv getBDBEnvByNamespace(String namespace,
 			boolean isCreate)
 	throws IOException, TaggingException {
-		boolean setAccesstime = false;	// 
+		boolean setAccesstime = true;
 		BDBEnvManager bdbEnvManager = new BDBEnvManager();
 		return bdbEnvManager.getBDBEnvByNamespace(ManifestConst.DB_NAMES,
 				namespace, isCreate, setAccesstime);
@@ -14,11 +14,14 @@ import jp.reflexworks.atom.entry.Link;
 import jp.reflexworks.atom.mapper.FeedTemplateMapper;
 import jp.reflexworks.taggingservice.api.BaseReflexContext;
 import jp.reflexworks.taggingservice.api.ReflexAuthentication;
+import jp.reflexworks.taggingservice.batch.ManifestFolderCountRebuildCallable;
 import jp.reflexworks.taggingservice.batch.ReflexBDBCleanCallable;
 import jp.reflexworks.taggingservice.bdb.ManifestConst;
+import jp.reflexworks.taggingservice.bdb.ManifestFolderCountManager;
 import jp.reflexworks.taggingservice.bdb.ManifestManager;
 import jp.reflexworks.taggingservice.conn.ReflexBDBConnectionInfo;
 import jp.reflexworks.taggingservice.env.BDBEnvUtil;
+import jp.reflexworks.taggingservice.exception.IllegalParameterException;
 import jp.reflexworks.taggingservice.exception.TaggingException;
 import jp.reflexworks.taggingservice.model.FetchInfo;
 import jp.reflexworks.taggingservice.model.ManifestRequestParam;
@@ -140,11 +143,59 @@ public class ManifestContext implements BaseReflexContext {
 	public FeedBase getCount(ManifestRequestParam param)
 	throws IOException, TaggingException {
 		ManifestManager bdbManager = new ManifestManager();
-		// id uri 一覧を取得
-		FetchInfo<String> fetchInfo = bdbManager.getFeedKeys(namespace, param, this);
+		// キーのみで件数を取得
+		FetchInfo<String> fetchInfo = bdbManager.getCount(namespace, param, this);
 		return returnCount(fetchInfo);
 	}
 
+	/**
+	 * フォルダ件数取得.
+	 * 条件指定のない親階層の件数を、フォルダ件数テーブルから取得する。
+	 * @param param 親階層
+	 * @return 件数 (Feedのtitleに設定)。フォルダ件数が使用可能でない場合null。
+	 */
+	public FeedBase getFolderCount(ManifestRequestParam param)
+	throws IOException, TaggingException {
+		ManifestFolderCountManager folderCountManager = new ManifestFolderCountManager();
+		Long count = folderCountManager.getFolderCount(namespace, param.getUri(),
+				serviceName, requestInfo, connectionInfo);
+		if (count == null) {
+			return null;
+		}
+		FeedBase retFeed = TaggingEntryUtil.createAtomFeed();
+		retFeed.title = String.valueOf(count);
+		return retFeed;
+	}
+
+	/**
+	 * フォルダ件数の再集計.
+	 * 非同期で実行する。
+	 * フォルダ件数の維持が無効の場合はエラーとする。
+	 */
+	public void rebuildFolderCount()
+	throws IOException, TaggingException {
+		if (!BDBEnvUtil.isEnableFolderCount()) {
+			throw new IllegalParameterException("The folder count is disabled.");
+		}
+		ManifestFolderCountRebuildCallable callable = new ManifestFolderCountRebuildCallable();
+		ManifestTaskQueueUtil.addTask(callable, 0,
+				serviceName, namespace, requestInfo);
+	}
+
+	/**
+	 * フォルダ件数の検証.
+	 * @param param URLパラメータ
+	 * @return 検証結果
+	 */
+	public FeedBase verifyFolderCount(ManifestRequestParam param)
+	throws IOException, TaggingException {
+		int limit = StringUtils.intValue(param.getOption(ManifestRequestParam.PARAM_LIMIT),
+				BDBEnvUtil.getEntryNumberLimit());
+		ManifestFolderCountManager folderCountManager = new ManifestFolderCountManager();
+		return folderCountManager.verify(namespace, limit, serviceName, requestInfo,
+				connectionInfo);
+	}
+
 	/**
 	 * テーブルリスト検索.
 	 * @param serviceName サービス名
@@ -207,10 +258,7 @@ public class ManifestContext implements BaseReflexContext {
 		FeedBase retFeed = TaggingEntryUtil.createAtomFeed();
 		int cnt = 0;
 		if (fetchInfo != null) {
-			Map<String, Object> result = (Map<String, Object>)fetchInfo.getResult();
-			if (result != null) {
-				cnt = result.size();
-			}
+			cnt = fetchInfo.getCount();
 			// カーソル
 			if (!StringUtils.isBlank(fetchInfo.getPointerStr())) {
 				TaggingEntryUtil.setCursorToFeed(fetchInfo.getPointerStr(), retFeed);
@@ -351,7 +399,8 @@ public class ManifestContext implements BaseReflexContext {
 	public void backupBDB(String storageUrl)
 	throws IOException, TaggingException {
 		// BDBクリーン、バックアップ
-		ReflexBDBBackupUtil.backup(namespace, storageUrl, serviceName, requestInfo);
+		ReflexBDBBackupUtil.backup(namespace, ManifestConst.DB_NAMES, storageUrl, serviceName,
+				requestInfo);
 	}
 
 }
@@ -97,6 +97,8 @@ public class ManifestServlet extends ReflexServlet {
 			// 件数取得 : GET /b{親キー}?c&{項目名}-{演算子}-{値}&l={件数}&p={カーソル}
 			// BDBデータ確認 (管理用) : GET /b/?_list={テーブル名}
 			// BDBの統計情報取得 (管理用) : GET /b/?_stats
+			// フォルダ件数取得 : GET /b{親キー}?_foldercount
+			// フォルダ件数の検証 (管理用) : GET /b/?_foldercount_verify
 
 			if (param.getOption(ManifestRequestParam.PARAM_LIST) != null) {
 				// テーブルリスト取得
@@ -121,6 +123,26 @@ public class ManifestServlet extends ReflexServlet {
 				}
 				retObj = feed;
 
+			} else if (param.getOption(ManifestRequestParam.PARAM_FOLDERCOUNT) != null) {
+				// フォルダ件数取得
+				if (logger.isTraceEnabled()) {
+					logger.debug(LogUtil.getRequestInfoStr(requestInfo) + "_foldercount");
+				}
+				FeedBase feed = reflexContext.getFolderCount(param);
+				retObj = feed;
+				if (retObj == null) {
+					// フォルダ件数が使用可能でない
+					status = HttpStatus.SC_NO_CONTENT;
+				}
+
+			} else if (param.getOption(ManifestRequestParam.PARAM_FOLDERCOUNT_VERIFY) != null) {
+				// フォルダ件数の検証
+				if (logger.isTraceEnabled()) {
+					logger.debug(LogUtil.getRequestInfoStr(requestInfo) + "_foldercount_verify");
+				}
+				FeedBase feed = reflexContext.verifyFolderCount(param);
+				retObj = feed;
+
 			} else if (param.getOption(ManifestRequestParam.PARAM_COUNT) != null) {
 				// 件数取得
 				if (logger.isTraceEnabled()) {
@@ -276,6 +298,7 @@ public class ManifestServlet extends ReflexServlet {
 
 			// PUT /b/?_index リクエストデータにFeed
 			// PUT /b/?_backup BDBバックアップ
+			// PUT /b/?_foldercount_rebuild フォルダ件数の再集計
 
 			if (param.getOption(ManifestRequestParam.PARAM_INDEX) != null) {
 				// データ更新
@@ -304,6 +327,14 @@ public class ManifestServlet extends ReflexServlet {
 
 				retObj = createMessageFeed("Backup complete. " + storageUrl);
 
+			} else if (param.getOption(ManifestRequestParam.PARAM_FOLDERCOUNT_REBUILD) != null) {
+				// フォルダ件数の再集計 (非同期)
+				if (logger.isTraceEnabled()) {
+					logger.debug(LogUtil.getRequestInfoStr(requestInfo) + "_foldercount_rebuild");
+				}
+				reflexContext.rebuildFolderCount();
+				retObj = createMessageFeed("Accepted. foldercount_rebuild");
+
 			} else {
 				throw new MethodNotAllowedException("Invalid parameter.");
 			}
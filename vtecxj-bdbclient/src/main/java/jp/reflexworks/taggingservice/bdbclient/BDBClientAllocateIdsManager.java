@@ -1,8 +1,14 @@
 package jp.reflexworks.taggingservice.bdbclient;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Date;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -11,9 +17,11 @@ import jp.reflexworks.atom.entry.FeedBase;
 import jp.reflexworks.atom.mapper.FeedTemplateMapper;
 import jp.reflexworks.taggingservice.api.ConnectionInfo;
 import jp.reflexworks.taggingservice.api.ReflexAuthentication;
+import jp.reflexworks.taggingservice.api.ReflexStatic;
 import jp.reflexworks.taggingservice.api.RequestInfo;
 import jp.reflexworks.taggingservice.api.RequestParam;
 import jp.reflexworks.taggingservice.env.TaggingEnvUtil;
+import jp.reflexworks.taggingservice.exception.StaticDuplicatedException;
 import jp.reflexworks.taggingservice.exception.TaggingException;
 import jp.reflexworks.taggingservice.plugin.AllocateIdsManager;
 import jp.reflexworks.taggingservice.requester.BDBClientServerConst.BDBResponseType;
@@ -21,15 +29,30 @@ import jp.reflexworks.taggingservice.requester.BDBClientServerConst.BDBServerTyp
 import jp.reflexworks.taggingservice.requester.BDBRequester;
 import jp.reflexworks.taggingservice.requester.BDBRequesterUtil;
 import jp.reflexworks.taggingservice.util.Constants;
+import jp.reflexworks.taggingservice.util.LogUtil;
 import jp.sourceforge.reflex.util.StringUtils;
 
 /**
  * 自動採番処理管理クラス.
+ * <p>
+ * 先行確保の採番数が設定されている場合、採番サーバから採番数をまとめて取得し、
+ * 残りをこのサーバのメモリ上に保持して次の採番で払い出す。
+ * 先行確保した採番値はサーバごとに保持するため、サーバをまたいだ採番値の大小は採番順と一致しない。
+ * また、有効期間を過ぎた採番値やシャットダウン時に未使用の採番値は欠番となる。
+ * </p>
+ * <p>
+ * 採番サーバへのリクエストは先行確保した採番値のロックを保持せずに行い、
+ * 同じキーで同時に不足したスレッドは取得中のリクエストの完了を待って払い出しをやり直す。
+ * </p>
  */
 public class BDBClientAllocateIdsManager implements AllocateIdsManager {
 
 	/** allocids実行メソッド */
 	private static final String METHOD_ALLOCIDS = Constants.GET;
+	/** メモリ上のstaticオブジェクト格納キー : 先行確保した採番値 */
+	private static final String STATIC_NAME_ALLOCIDS_LEASE = "_bdbclient_allocids_lease";
+	/** 先行確保した採番値Mapのキーの区切り文字 */
+	private static final String LEASE_KEY_DELIMITER = "\u0000";
 
 	/** ロガー. */
 	private Logger logger = LoggerFactory.getLogger(this.getClass());
@@ -38,7 +61,14 @@ public class BDBClientAllocateIdsManager implements AllocateIdsManager {
 	 * 初期起動時の処理.
 	 */
 	public void init() {
-		// Do nothing.
+		// 先行確保した採番値
+		// キー: サービス名とURI、値: 先行確保した採番値
+		ConcurrentMap<String, AllocidsLease> leaseMap = new ConcurrentHashMap<>();
+		try {
+			ReflexStatic.setStatic(STATIC_NAME_ALLOCIDS_LEASE, leaseMap);
+		} catch (StaticDuplicatedException e) {
+			logger.warn("[init] StaticDuplicatedException: " + STATIC_NAME_ALLOCIDS_LEASE, e);
+		}
 	}
 
 	/**
@@ -61,6 +91,119 @@ public class BDBClientAllocateIdsManager implements AllocateIdsManager {
 			RequestInfo requestInfo, ConnectionInfo connectionInfo)
 	throws IOException, TaggingException {
 		String serviceName = auth.getServiceName();
+		int leaseSize = BDBClientUtil.getAllocidsLeaseSize();
+		if (leaseSize <= 0 || num <= 0) {
+			return requestAllocids(serviceName, uri, num, requestInfo, connectionInfo);
+		}
+
+		// 先行確保した採番値から払い出す
+		ConcurrentMap<String, AllocidsLease> leaseMap = getLeaseMap();
+		String leaseKey = serviceName + LEASE_KEY_DELIMITER + uri;
+		AllocidsLease lease = leaseMap.computeIfAbsent(leaseKey, k -> new AllocidsLease());
+		while (true) {
+			CompletableFuture<Void> refill = null;
+			boolean isRefiller = false;
+			int requestNum = 0;
+			synchronized (lease) {
+				long now = new Date().getTime();
+				if (lease.expireTime < now) {
+					lease.allocids.clear();
+				}
+				if (lease.allocids.size() >= num) {
+					return pollAllocids(lease, num);
+				}
+				if (lease.refill == null) {
+					// 不足分と先行確保分を採番サーバから取得する
+					requestNum = Math.max(num - lease.allocids.size(), leaseSize);
+					lease.refill = new CompletableFuture<>();
+					isRefiller = true;
+				}
+				refill = lease.refill;
+			}
+			if (isRefiller) {
+				return refillAllocids(lease, refill, serviceName, uri, num, requestNum,
+						requestInfo, connectionInfo);
+			}
+			// 他のスレッドの取得完了を待って払い出しをやり直す。
+			// 取得に失敗した場合も完了とするため、やり直しで自身が取得する。
+			refill.join();
+		}
+	}
+
+	/**
+	 * 採番サーバから採番値を取得して先行確保分に追加し、払い出す.
+	 * 採番サーバへのリクエスト中は先行確保した採番値のロックを保持しない。
+	 * @param lease 先行確保した採番値
+	 * @param refill 取得完了を通知するFuture (先行確保した採番値に設定済みであること)
+	 * @param serviceName サービス名
+	 * @param uri URI
+	 * @param num 採番数
+	 * @param requestNum 採番サーバから取得する採番数
+	 * @param requestInfo リクエスト情報
+	 * @param connectionInfo コネクション情報
+	 * @return 採番結果
+	 */
+	private List<String> refillAllocids(AllocidsLease lease, CompletableFuture<Void> refill,
+			String serviceName, String uri, int num, int requestNum,
+			RequestInfo requestInfo, ConnectionInfo connectionInfo)
+	throws IOException, TaggingException {
+		try {
+			List<String> allocids = requestAllocids(serviceName, uri, requestNum,
+					requestInfo, connectionInfo);
+			if (allocids == null || allocids.isEmpty()) {
+				return allocids;
+			}
+			if (logger.isDebugEnabled()) {
+				logger.debug(LogUtil.getRequestInfoStr(requestInfo) +
+						"[allocateIds] lease. uri=" + uri + " requestNum=" + requestNum);
+			}
+			synchronized (lease) {
+				long now = new Date().getTime();
+				if (lease.expireTime < now) {
+					lease.allocids.clear();
+				}
+				if (lease.allocids.isEmpty()) {
+					lease.expireTime = now + BDBClientUtil.getAllocidsLeaseExpireSec() * 1000L;
+				}
+				lease.allocids.addAll(allocids);
+				return pollAllocids(lease, num);
+			}
+
+		} finally {
+			synchronized (lease) {
+				lease.refill = null;
+			}
+			refill.complete(null);
+		}
+	}
+
+	/**
+	 * 先行確保した採番値から払い出す.
+	 * 先行確保した採番値のロックを保持して呼び出すこと。
+	 * @param lease 先行確保した採番値
+	 * @param num 採番数
+	 * @return 採番結果。先行確保した採番値が不足する場合は残りの全て。
+	 */
+	private List<String> pollAllocids(AllocidsLease lease, int num) {
+		List<String> retAllocids = new ArrayList<>(num);
+		while (retAllocids.size() < num && !lease.allocids.isEmpty()) {
+			retAllocids.add(lease.allocids.poll());
+		}
+		return retAllocids;
+	}
+
+	/**
+	 * 採番サーバに採番をリクエスト.
+	 * @param serviceName サービス名
+	 * @param uri URI
+	 * @param num 採番数
+	 * @param requestInfo リクエスト情報
+	 * @param connectionInfo コネクション情報
+	 * @return 採番結果
+	 */
+	private List<String> requestAllocids(String serviceName, String uri, int num,
+			RequestInfo requestInfo, ConnectionInfo connectionInfo)
+	throws IOException, TaggingException {
 		try {
 			// リクエスト情報設定
 			String uriStr = getAllocidsUri(serviceName, uri, num);
@@ -108,6 +251,12 @@ public class BDBClientAllocateIdsManager implements AllocateIdsManager {
 	/**
 	 * 全ての採番情報を削除.
 	 * サービス削除時に使用
+	 * <p>
+	 * 破棄するのはこのサーバで先行確保した採番値のみ。
+	 * 他のサーバで先行確保した採番値は、有効期間(_bdbclient.allocids.lease.expire.sec)が
+	 * 過ぎるまで払い出される。
+	 * 同じサービス名でサービスを再作成する場合は、有効期間が過ぎてから行うこと。
+	 * </p>
 	 * @param serviceName サービス名
 	 * @param requestInfo リクエスト情報
 	 * @param connectionInfo コネクション情報
@@ -115,7 +264,12 @@ public class BDBClientAllocateIdsManager implements AllocateIdsManager {
 	public void deleteAll(String serviceName,
 			RequestInfo requestInfo, ConnectionInfo connectionInfo)
 	throws IOException, TaggingException {
-		// Do nothing.
+		// このサーバで先行確保した採番値を破棄する。
+		ConcurrentMap<String, AllocidsLease> leaseMap = getLeaseMap();
+		if (leaseMap != null) {
+			String prefix = serviceName + LEASE_KEY_DELIMITER;
+			leaseMap.keySet().removeIf(leaseKey -> leaseKey.startsWith(prefix));
+		}
 	}
 
 	/**
@@ -135,4 +289,28 @@ public class BDBClientAllocateIdsManager implements AllocateIdsManager {
 				serviceName, connectionInfo);
 	}
 
+	/**
+	 * static領域から先行確保した採番値Mapを取得.
+	 * @return 先行確保した採番値Map
+	 */
+	@SuppressWarnings("unchecked")
+	private ConcurrentMap<String, AllocidsLease> getLeaseMap() {
+		return (ConcurrentMap<String, AllocidsLease>)ReflexStatic.getStatic(
+				STATIC_NAME_ALLOCIDS_LEASE);
+	}
+
+	/**
+	 * 先行確保した採番値.
+	 * 参照・更新はこのオブジェクトで同期すること。
+	 */
+	private static class AllocidsLease {
+
+		/** 未使用の採番値 (採番順) */
+		private final LinkedList<String> allocids = new LinkedList<>();
+		/** 有効期限 */
+		private long expireTime;
+		/** 採番サーバから取得中の場合、取得完了を通知するFuture */
+		private CompletableFuture<Void> refill;
+	}
+
 }
@@ -0,0 +1,93 @@
+package jp.reflexworks.taggingservice.bdbclient;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jp.reflexworks.taggingservice.env.TaggingEnvUtil;
+import jp.reflexworks.taggingservice.exception.TaggingException;
+import jp.reflexworks.taggingservice.plugin.CacheManager;
+import jp.reflexworks.taggingservice.sys.SystemContext;
+import jp.reflexworks.taggingservice.util.LogUtil;
+
+/**
+ * キャッシュ(Redis)による更新時の排他.
+ * 全てのURIの排他・排他解除を、それぞれ1回のキャッシュ操作で行う。
+ */
+public class BDBClientCacheExclusion implements BDBClientExclusion {
+
+	/** 排他制御に使用するキー接頭辞 */
+	private static final String EXCLUSIVE_KEY_PREFIX = "EXCL:";
+
+	/** ロガー. */
+	private Logger logger = LoggerFactory.getLogger(this.getClass());
+
+	/**
+	 * 排他.
+	 * @param uris URIリスト (昇順、重複なし)
+	 * @param token 排他の所有者を識別する文字列
+	 * @param sec 排他の有効期間(秒)
+	 * @param systemContext SystemContext
+	 * @return 排他できた場合null、他の所有者が排他中のURIがある場合そのURI
+	 */
+	@Override
+	public String acquire(List<String> uris, String token, int sec,
+			SystemContext systemContext)
+	throws IOException, TaggingException {
+		CacheManager cacheManager = TaggingEnvUtil.getCacheManager();
+		String conflictKey = cacheManager.setStringsIfAbsent(getKeys(uris), token, sec,
+				systemContext);
+		if (logger.isTraceEnabled()) {
+			StringBuilder sb = new StringBuilder();
+			sb.append(LogUtil.getRequestInfoStr(systemContext.getRequestInfo()));
+			sb.append("[acquire] uris.size = ");
+			sb.append(uris.size());
+			sb.append(" conflict = ");
+			sb.append(conflictKey);
+			logger.debug(sb.toString());
+		}
+		if (conflictKey == null) {
+			return null;
+		}
+		return conflictKey.substring(EXCLUSIVE_KEY_PREFIX.length());
+	}
+
+	/**
+	 * 排他解除.
+	 * @param uris URIリスト
+	 * @param token 排他の所有者を識別する文字列
+	 * @param systemContext SystemContext
+	 */
+	@Override
+	public void release(List<String> uris, String token, SystemContext systemContext)
+	throws IOException, TaggingException {
+		CacheManager cacheManager = TaggingEnvUtil.getCacheManager();
+		long cnt = cacheManager.deleteStringsIfEqual(getKeys(uris), token, systemContext);
+		if (logger.isTraceEnabled()) {
+			StringBuilder sb = new StringBuilder();
+			sb.append(LogUtil.getRequestInfoStr(systemContext.getRequestInfo()));
+			sb.append("[release] uris.size = ");
+			sb.append(uris.size());
+			sb.append(" deleted = ");
+			sb.append(cnt);
+			logger.debug(sb.toString());
+		}
+	}
+
+	/**
+	 * URIリストからキャッシュのキーリストを生成.
+	 * @param uris URIリスト
+	 * @return キーリスト
+	 */
+	private List<String> getKeys(List<String> uris) {
+		List<String> keys = new ArrayList<>(uris.size());
+		for (String uri : uris) {
+			keys.add(EXCLUSIVE_KEY_PREFIX + uri);
+		}
+		return keys;
+	}
+
+}
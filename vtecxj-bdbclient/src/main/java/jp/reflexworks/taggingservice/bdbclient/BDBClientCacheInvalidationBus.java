@@ -0,0 +1,92 @@
+package jp.reflexworks.taggingservice.bdbclient;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import jp.reflexworks.taggingservice.env.TaggingEnvUtil;
+import jp.reflexworks.taggingservice.exception.TaggingException;
+import jp.reflexworks.taggingservice.plugin.CacheManager;
+import jp.reflexworks.taggingservice.sys.SystemContext;
+
+/**
+ * キャッシュ(Redis)のチャネルによるEntryキャッシュの無効化通知.
+ * 全てのサーバが同じチャネルを購読する。
+ */
+public class BDBClientCacheInvalidationBus implements BDBClientInvalidationBus {
+
+	/** 無効化通知のチャネル */
+	private static final String CHANNEL = "ENTRYCACHE:INVALIDATE";
+	/** 更新スタンプのキーの接頭辞 */
+	private static final String STAMP_PREFIX = "ENTRYCACHE:STAMP:";
+
+	/**
+	 * 無効化通知を送信.
+	 * @param message 通知メッセージ
+	 * @param systemContext SystemContext
+	 */
+	@Override
+	public void publish(String message, SystemContext systemContext)
+	throws IOException, TaggingException {
+		CacheManager cacheManager = TaggingEnvUtil.getCacheManager();
+		cacheManager.publish(CHANNEL, message, systemContext);
+	}
+
+	/**
+	 * 無効化通知の受信を開始.
+	 * @param listener 通知メッセージ受信時の処理
+	 */
+	@Override
+	public void subscribe(Consumer<String> listener)
+	throws IOException, TaggingException {
+		CacheManager cacheManager = TaggingEnvUtil.getCacheManager();
+		cacheManager.subscribe(CHANNEL, listener);
+	}
+
+	/**
+	 * 更新スタンプを登録.
+	 * キャッシュ(Redis)のキーはサービスごとに分かれるため、URIをキーとする。
+	 * @param serviceName サービス名
+	 * @param uris URIリスト
+	 * @param stamps 更新スタンプリスト (URIリストと同じ順序)
+	 * @param sec 有効時間(秒)
+	 * @param systemContext SystemContext
+	 */
+	@Override
+	public void putStamps(String serviceName, List<String> uris, List<String> stamps,
+			int sec, SystemContext systemContext)
+	throws IOException, TaggingException {
+		CacheManager cacheManager = TaggingEnvUtil.getCacheManager();
+		cacheManager.setStrings(getKeys(uris), stamps, sec, systemContext);
+	}
+
+	/**
+	 * 更新スタンプを取得.
+	 * @param serviceName サービス名
+	 * @param uris URIリスト
+	 * @param systemContext SystemContext
+	 * @return 更新スタンプリスト (URIリストと同じ順序。有効時間内に更新が無いURIはnull)
+	 */
+	@Override
+	public List<String> getStamps(String serviceName, List<String> uris,
+			SystemContext systemContext)
+	throws IOException, TaggingException {
+		CacheManager cacheManager = TaggingEnvUtil.getCacheManager();
+		return cacheManager.getStrings(getKeys(uris), systemContext);
+	}
+
+	/**
+	 * 更新スタンプのキーリストを取得.
+	 * @param uris URIリスト
+	 * @return キーリスト
+	 */
+	private List<String> getKeys(List<String> uris) {
+		List<String> keys = new ArrayList<>(uris.size());
+		for (String uri : uris) {
+			keys.add(STAMP_PREFIX + uri);
+		}
+		return keys;
+	}
+
+}
@@ -0,0 +1,253 @@
+package jp.reflexworks.taggingservice.bdbclient;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jp.reflexworks.atom.entry.Content;
+import jp.reflexworks.atom.entry.EntryBase;
+import jp.reflexworks.atom.entry.FeedBase;
+import jp.reflexworks.atom.mapper.FeedTemplateMapper;
+import jp.reflexworks.taggingservice.api.ConnectionInfo;
+import jp.reflexworks.taggingservice.api.RequestInfo;
+import jp.reflexworks.taggingservice.api.RequestType;
+import jp.reflexworks.taggingservice.conn.ConnectionInfoImpl;
+import jp.reflexworks.taggingservice.env.TaggingEnvUtil;
+import jp.reflexworks.taggingservice.exception.TaggingException;
+import jp.reflexworks.taggingservice.requester.BDBClientServerUtil;
+import jp.reflexworks.taggingservice.sys.SystemContext;
+import jp.reflexworks.taggingservice.sys.SystemUtil;
+import jp.reflexworks.taggingservice.util.EntryCodec;
+import jp.reflexworks.taggingservice.util.EntryCodecDictionary;
+import jp.reflexworks.taggingservice.util.EntrySerializer;
+import jp.reflexworks.taggingservice.util.LogUtil;
+import jp.reflexworks.taggingservice.util.TaggingEntryUtil;
+import jp.sourceforge.reflex.util.DeflateUtil;
+import jp.sourceforge.reflex.util.StringUtils;
+
+/**
+ * Entry圧縮辞書管理クラス.
+ * <p>
+ * サービスのEntryから生成した圧縮辞書をシステム管理サービスに登録し、
+ * Entryサーバに送信するEntryの圧縮に使用する。
+ * <ul>
+ *   <li>/_bdb/codecdictionary/{辞書ID} : contentに辞書(Base64)、titleに生成元サービス名</li>
+ *   <li>/_bdb/service/{サービス名}/codecdictionary : titleにサービスで使用する辞書ID</li>
+ * </ul>
+ * 辞書を変更しても、以前の辞書で圧縮されたEntryは辞書IDから辞書を取得して読み込む。
+ * </p>
+ */
+public class BDBClientCodecDictionaryManager {
+
+	/** URI : 圧縮辞書 */
+	public static final String URI_CODECDICTIONARY = "/_bdb/codecdictionary";
+	/** URI : サービスで使用する圧縮辞書 (/_bdb/service/{サービス名} 配下) */
+	public static final String URI_LAYER_CODECDICTIONARY = "/codecdictionary";
+
+	/** ロガー. */
+	private Logger logger = LoggerFactory.getLogger(this.getClass());
+
+	/**
+	 * 初期処理.
+	 * 保持していない辞書をシステム管理サービスから取得する処理を設定する。
+	 */
+	public void init() {
+		EntryCodec.setDictionaryResolver(new EntryCodec.DictionaryResolver() {
+			@Override
+			public EntryCodecDictionary resolve(long id) throws IOException {
+				return getDictionary(id);
+			}
+		});
+	}
+
+	/**
+	 * サービス初期設定時の処理.
+	 * サービスで使用する圧縮辞書を読み込む。
+	 * @param serviceName サービス名
+	 * @param requestInfo リクエスト情報
+	 * @param connectionInfo コネクション情報
+	 */
+	public void settingService(String serviceName, RequestInfo requestInfo,
+			ConnectionInfo connectionInfo)
+	throws IOException, TaggingException {
+		String systemService = TaggingEnvUtil.getSystemService();
+		if (systemService.equals(serviceName) || !BDBClientUtil.isEnableCodecDictionary()) {
+			// システム管理サービスのEntryは辞書なしで圧縮する。
+			EntryCodec.setWriteDictionary(serviceName, null);
+			return;
+		}
+		SystemContext systemContext = new SystemContext(systemService,
+				requestInfo, connectionInfo);
+		EntryBase serviceDictEntry = systemContext.getEntry(
+				getServiceDictionaryUri(serviceName), true);
+		EntryCodecDictionary dictionary = null;
+		if (serviceDictEntry != null && !StringUtils.isBlank(serviceDictEntry.title)) {
+			dictionary = getDictionary(serviceDictEntry.title, systemContext);
+			if (dictionary == null) {
+				logger.warn(LogUtil.getRequestInfoStr(requestInfo) +
+						"[settingService] The codec dictionary does not exist. serviceName=" +
+						serviceName + ", id=" + serviceDictEntry.title);
+			}
+		}
+		EntryCodec.setWriteDictionary(serviceName, dictionary);
+	}
+
+	/**
+	 * サービス情報クローズ.
+	 * @param serviceName サービス名
+	 */
+	public void closeService(String serviceName) {
+		EntryCodec.setWriteDictionary(serviceName, null);
+	}
+
+	/**
+	 * サービスのEntryから圧縮辞書を生成し、サービスで使用する辞書に設定する.
+	 * 他のAPサーバには、次回のサービス初期設定時に反映される。
+	 * @param serviceName 対象サービス名
+	 * @param parentUri サンプルEntryを取得するフォルダ
+	 * @param requestInfo リクエスト情報
+	 * @param connectionInfo コネクション情報
+	 * @return 辞書ID。サンプルから辞書を生成できない場合null。
+	 */
+	public String createDictionary(String serviceName, String parentUri,
+			RequestInfo requestInfo, ConnectionInfo connectionInfo)
+	throws IOException, TaggingException {
+		// サンプルEntryを取得
+		int limit = BDBClientUtil.getCodecDictionarySampleLimit();
+		SystemContext serviceContext = new SystemContext(serviceName,
+				requestInfo, connectionInfo);
+		StringBuilder sb = new StringBuilder();
+		sb.append(parentUri);
+		sb.append("?");
+		sb.append(RequestType.PARAM_LIMIT);
+		sb.append("=");
+		sb.append(limit);
+		FeedBase sampleFeed = serviceContext.getFeed(sb.toString());
+		if (sampleFeed == null || sampleFeed.entry == null) {
+			return null;
+		}
+		// 登録時と同じく暗号化したMessagePack形式に変換
+		FeedTemplateMapper mapper = TaggingEnvUtil.getResourceMapper(serviceName);
+		List<byte[]> samples = new ArrayList<>(sampleFeed.entry.size());
+		for (EntryBase sampleEntry : sampleFeed.entry) {
+			samples.add(EntrySerializer.serialize(mapper, sampleEntry,
+					EntryCodec.getCipherUtil(), null));
+		}
+		EntryCodecDictionary dictionary = EntryCodecDictionary.train(samples,
+				EntryCodecDictionary.MAX_SIZE);
+		if (dictionary == null) {
+			return null;
+		}
+
+		// 辞書を登録し、サービスで使用する辞書に設定
+		String systemService = TaggingEnvUtil.getSystemService();
+		SystemContext systemContext = new SystemContext(systemService,
+				requestInfo, connectionInfo);
+		String idStr = dictionary.getIdStr();
+		String dictUri = getDictionaryUri(idStr);
+		if (systemContext.getEntry(URI_CODECDICTIONARY, false) == null) {
+			EntryBase folderEntry = TaggingEntryUtil.createEntry(systemService);
+			folderEntry.setMyUri(URI_CODECDICTIONARY);
+			systemContext.post(folderEntry);
+		}
+		if (systemContext.getEntry(dictUri, false) == null) {
+			EntryBase dictEntry = TaggingEntryUtil.createEntry(systemService);
+			dictEntry.setMyUri(dictUri);
+			dictEntry.title = serviceName;
+			dictEntry.content = new Content();
+			dictEntry.content._$$text = Base64.getEncoder().encodeToString(
+					dictionary.getDictionary());
+			systemContext.post(dictEntry);
+		}
+		String serviceDictUri = getServiceDictionaryUri(serviceName);
+		EntryBase serviceDictEntry = TaggingEntryUtil.createEntry(systemService);
+		serviceDictEntry.setMyUri(serviceDictUri);
+		serviceDictEntry.title = idStr;
+		if (systemContext.getEntry(serviceDictUri, false) == null) {
+			systemContext.post(serviceDictEntry);
+		} else {
+			systemContext.put(serviceDictEntry);
+		}
+		EntryCodec.setWriteDictionary(serviceName, dictionary);
+
+		if (logger.isDebugEnabled()) {
+			logger.debug(LogUtil.getRequestInfoStr(requestInfo) +
+					"[createDictionary] serviceName=" + serviceName + ", id=" + idStr +
+					", size=" + dictionary.getDictionary().length +
+					", samples=" + samples.size());
+		}
+		return idStr;
+	}
+
+	/**
+	 * 辞書IDから辞書を取得.
+	 * Entryの解凍時に保持していない辞書を取得するため、システム管理サービスのリクエスト情報を生成する。
+	 * @param id 辞書ID
+	 * @return 辞書。存在しない場合null。
+	 */
+	private EntryCodecDictionary getDictionary(long id) throws IOException {
+		String systemService = TaggingEnvUtil.getSystemService();
+		RequestInfo requestInfo = SystemUtil.getRequestInfo(systemService,
+				"codecdictionary", "resolve");
+		ConnectionInfo connectionInfo = new ConnectionInfoImpl(new DeflateUtil(), requestInfo);
+		try {
+			SystemContext systemContext = new SystemContext(systemService,
+					requestInfo, connectionInfo);
+			return getDictionary(EntryCodecDictionary.toIdStr(id), systemContext);
+
+		} catch (TaggingException e) {
+			throw new IOException(e);
+		} finally {
+			connectionInfo.close();
+		}
+	}
+
+	/**
+	 * 辞書IDから辞書を取得.
+	 * @param idStr 辞書IDの16進数文字列
+	 * @param systemContext システム管理サービスのSystemContext
+	 * @return 辞書。存在しない場合null。
+	 */
+	private EntryCodecDictionary getDictionary(String idStr, SystemContext systemContext)
+	throws IOException, TaggingException {
+		EntryBase dictEntry = systemContext.getEntry(getDictionaryUri(idStr), true);
+		if (dictEntry == null || dictEntry.content == null ||
+				StringUtils.isBlank(dictEntry.content._$$text)) {
+			return null;
+		}
+		return new EntryCodecDictionary(Base64.getDecoder().decode(
+				dictEntry.content._$$text));
+	}
+
+	/**
+	 * 圧縮辞書のURIを取得.
+	 *   /_bdb/codecdictionary/{辞書ID}
+	 * @param idStr 辞書IDの16進数文字列
+	 * @return 圧縮辞書のURI
+	 */
+	private String getDictionaryUri(String idStr) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(URI_CODECDICTIONARY);
+		sb.append("/");
+		sb.append(idStr);
+		return sb.toString();
+	}
+
+	/**
+	 * サービスで使用する圧縮辞書のURIを取得.
+	 *   /_bdb/service/{サービス名}/codecdictionary
+	 * @param serviceName サービス名
+	 * @return サービスで使用する圧縮辞書のURI
+	 */
+	private String getServiceDictionaryUri(String serviceName) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(BDBClientServerUtil.getBDBServiceUri(serviceName));
+		sb.append(URI_LAYER_CODECDICTIONARY);
+		return sb.toString();
+	}
+
+}
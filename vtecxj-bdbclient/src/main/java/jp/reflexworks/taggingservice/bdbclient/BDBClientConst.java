@@ -52,6 +52,50 @@ public interface BDBClientConst {
 	public static final String BDBINDEXPUT_RETRY_COUNT = "_bdbindexput.retry.count";
 	/** インデックス登録更新リトライ時のスリープ時間(ミリ秒) **/
 	public static final String BDBINDEXPUT_RETRY_WAITMILLIS = "_bdbindexput.retry.waitmillis";
+	/** BDBリクエストの通信方式 (urlconnection: HttpURLConnection、httpclient: java.net.http.HttpClient) **/
+	public static final String BDBREQUEST_TRANSPORT = "_bdbrequest.transport";
+	/** BDBリクエストでHTTP/2を使用するかどうか (通信方式がhttpclientの場合のみ有効) **/
+	public static final String BDBREQUEST_ENABLE_HTTP2 = "_bdbrequest.enable.http2";
+	/** BDBリクエストのアクセス失敗時リトライ時の最大スリープ時間(ミリ秒) **/
+	public static final String BDBREQUEST_RETRY_MAXWAITMILLIS = "_bdbrequest.retry.maxwaitmillis";
+	/** Feed検索でIDリストの積集合に使用するインデックスの最大件数 (0以下の場合積集合を使用しない) **/
+	public static final String BDBCLIENT_INTERSECT_LIMIT = "_bdbclient.intersect.limit";
+	/** Feed検索でインメモリ条件による絞り込みをEntryサーバで行うかどうか **/
+	public static final String BDBCLIENT_ENABLE_FILTERPUSHDOWN = "_bdbclient.enable.filterpushdown";
+	/** Feed検索でOR条件ごとの検索を並列に実行するかどうか (検索結果がキー順になる) **/
+	public static final String BDBCLIENT_ENABLE_PARALLELOR = "_bdbclient.enable.parallelor";
+	/** 条件指定のない件数取得で、Manifestサーバのフォルダ件数を使用するかどうか **/
+	public static final String BDBCLIENT_ENABLE_FOLDERCOUNT = "_bdbclient.enable.foldercount";
+	/** 採番で先行して確保する採番数 (0以下の場合先行確保しない) **/
+	public static final String BDBCLIENT_ALLOCIDS_LEASE_SIZE = "_bdbclient.allocids.lease.size";
+	/** 先行確保した採番値の有効期間(秒) **/
+	public static final String BDBCLIENT_ALLOCIDS_LEASE_EXPIRE_SEC = "_bdbclient.allocids.lease.expire.sec";
+	/** Entryの圧縮にサービスごとの圧縮辞書を使用するかどうか **/
+	public static final String BDBCLIENT_ENABLE_CODECDICTIONARY = "_bdbclient.enable.codecdictionary";
+	/** 圧縮辞書の生成に使用するサンプルEntryの最大数 **/
+	public static final String BDBCLIENT_CODECDICTIONARY_SAMPLE_LIMIT = "_bdbclient.codecdictionary.sample.limit";
+	/** 更新時の排他の方式 (cache: キャッシュ(Redis)、memory: このサーバのメモリ) **/
+	public static final String BDBCLIENT_EXCLUSION_TYPE = "_bdbclient.exclusion.type";
+	/** インデックス更新をローカルのジャーナルに記録してから送信するかどうか **/
+	public static final String BDBCLIENT_ENABLE_INDEXJOURNAL = "_bdbclient.enable.indexjournal";
+	/** インデックス更新ジャーナルの格納ディレクトリ **/
+	public static final String BDBCLIENT_INDEXJOURNAL_DIR = "_bdbclient.indexjournal.dir";
+	/** インデックス更新ジャーナルの送信間隔(ミリ秒) **/
+	public static final String BDBCLIENT_INDEXJOURNAL_INTERVAL_MILLIS = "_bdbclient.indexjournal.interval.millis";
+	/** インデックス更新ジャーナルから1リクエストで送信するインデックス更新情報の最大数 **/
+	public static final String BDBCLIENT_INDEXJOURNAL_BATCH_SIZE = "_bdbclient.indexjournal.batch.size";
+	/** インデックス更新ジャーナルファイルを圧縮するサイズ(バイト) **/
+	public static final String BDBCLIENT_INDEXJOURNAL_COMPACT_BYTES = "_bdbclient.indexjournal.compact.bytes";
+	/** 取得したEntryをこのサーバのメモリにキャッシュするかどうか **/
+	public static final String BDBCLIENT_ENABLE_ENTRYCACHE = "_bdbclient.enable.entrycache";
+	/** Entryキャッシュの最大サイズ(バイト) **/
+	public static final String BDBCLIENT_ENTRYCACHE_MAX_BYTES = "_bdbclient.entrycache.max.bytes";
+	/** Entryキャッシュに格納するEntry1件の最大サイズ(バイト) **/
+	public static final String BDBCLIENT_ENTRYCACHE_ENTRY_MAX_BYTES = "_bdbclient.entrycache.entry.max.bytes";
+	/** Entryキャッシュの無効化通知の方式 (cache: キャッシュ(Redis)、memory: このサーバのメモリ) **/
+	public static final String BDBCLIENT_ENTRYCACHE_BUS = "_bdbclient.entrycache.bus";
+	/** Entryキャッシュの有効時間(秒) **/
+	public static final String BDBCLIENT_ENTRYCACHE_EXPIRE_SEC = "_bdbclient.entrycache.expire.sec";
 
 	/** 設定デフォルト : BDBリクエストのタイムアウト(ミリ秒) */
 	static final int BDBREQUEST_TIMEOUT_MILLIS_DEFAULT = 60000;
@@ -83,6 +127,65 @@ public interface BDBClientConst {
 	static final int BDBINDEXPUT_RETRY_COUNT_DEFAULT = 10;
 	/** 設定デフォルト : リトライ時のスリープ時間(ミリ秒) */
 	static final int BDBINDEXPUT_RETRY_WAITMILLIS_DEFAULT = 3000;
+	/** 設定デフォルト : BDBリクエストの通信方式 */
+	static final String BDBREQUEST_TRANSPORT_DEFAULT = "urlconnection";
+	/** 設定デフォルト : BDBリクエストのアクセス失敗時リトライ時の最大スリープ時間(ミリ秒) */
+	static final int BDBREQUEST_RETRY_MAXWAITMILLIS_DEFAULT = 3000;
+	/** 設定デフォルト : BDBリクエストでHTTP/2を使用するかどうか */
+	static final boolean BDBREQUEST_ENABLE_HTTP2_DEFAULT = true;
+	/** 設定デフォルト : Feed検索でIDリストの積集合に使用するインデックスの最大件数 */
+	static final int BDBCLIENT_INTERSECT_LIMIT_DEFAULT = 5000;
+	/** 設定デフォルト : Feed検索でインメモリ条件による絞り込みをEntryサーバで行うかどうか */
+	static final boolean BDBCLIENT_ENABLE_FILTERPUSHDOWN_DEFAULT = true;
+	/** 設定デフォルト : Feed検索でOR条件ごとの検索を並列に実行するかどうか (検索結果の順序が変わるため使用しない) */
+	static final boolean BDBCLIENT_ENABLE_PARALLELOR_DEFAULT = false;
+	/** 設定デフォルト : 条件指定のない件数取得で、Manifestサーバのフォルダ件数を使用するかどうか */
+	static final boolean BDBCLIENT_ENABLE_FOLDERCOUNT_DEFAULT = false;
+	/** 設定デフォルト : 採番で先行して確保する採番数 (先行確保しない) */
+	static final int BDBCLIENT_ALLOCIDS_LEASE_SIZE_DEFAULT = 0;
+	/** 設定デフォルト : 先行確保した採番値の有効期間(秒) */
+	static final int BDBCLIENT_ALLOCIDS_LEASE_EXPIRE_SEC_DEFAULT = 60;
+	/** 設定デフォルト : Entryの圧縮にサービスごとの圧縮辞書を使用するかどうか */
+	static final boolean BDBCLIENT_ENABLE_CODECDICTIONARY_DEFAULT = false;
+	/** 設定デフォルト : 圧縮辞書の生成に使用するサンプルEntryの最大数 */
+	static final int BDBCLIENT_CODECDICTIONARY_SAMPLE_LIMIT_DEFAULT = 500;
+	/** 設定デフォルト : 更新時の排他の方式 */
+	static final String BDBCLIENT_EXCLUSION_TYPE_DEFAULT = "cache";
+	/** 設定デフォルト : インデックス更新をローカルのジャーナルに記録してから送信するかどうか */
+	static final boolean BDBCLIENT_ENABLE_INDEXJOURNAL_DEFAULT = false;
+	/** 設定デフォルト : インデックス更新ジャーナルの格納ディレクトリ */
+	static final String BDBCLIENT_INDEXJOURNAL_DIR_DEFAULT = "/var/vtecx/indexjournal";
+	/** 設定デフォルト : インデックス更新ジャーナルの送信間隔(ミリ秒) */
+	static final int BDBCLIENT_INDEXJOURNAL_INTERVAL_MILLIS_DEFAULT = 200;
+	/** 設定デフォルト : インデックス更新ジャーナルから1リクエストで送信するインデックス更新情報の最大数 */
+	static final int BDBCLIENT_INDEXJOURNAL_BATCH_SIZE_DEFAULT = 500;
+	/** 設定デフォルト : インデックス更新ジャーナルファイルを圧縮するサイズ(バイト) */
+	static final long BDBCLIENT_INDEXJOURNAL_COMPACT_BYTES_DEFAULT = 64L * 1024 * 1024;
+	/** 設定デフォルト : 取得したEntryをこのサーバのメモリにキャッシュするかどうか */
+	static final boolean BDBCLIENT_ENABLE_ENTRYCACHE_DEFAULT = false;
+	/** 設定デフォルト : Entryキャッシュの最大サイズ(バイト) */
+	static final long BDBCLIENT_ENTRYCACHE_MAX_BYTES_DEFAULT = 64L * 1024 * 1024;
+	/** 設定デフォルト : Entryキャッシュに格納するEntry1件の最大サイズ(バイト) */
+	static final int BDBCLIENT_ENTRYCACHE_ENTRY_MAX_BYTES_DEFAULT = 256 * 1024;
+	/** 設定デフォルト : Entryキャッシュの無効化通知の方式 */
+	static final String BDBCLIENT_ENTRYCACHE_BUS_DEFAULT = "cache";
+	/** 設定デフォルト : Entryキャッシュの有効時間(秒) */
+	static final int BDBCLIENT_ENTRYCACHE_EXPIRE_SEC_DEFAULT = 300;
+
+	/** BDBリクエストの通信方式 : HttpURLConnection */
+	public static final String TRANSPORT_URLCONNECTION = "urlconnection";
+	/** BDBリクエストの通信方式 : java.net.http.HttpClient */
+	public static final String TRANSPORT_HTTPCLIENT = "httpclient";
+
+	/** 更新時の排他の方式 : キャッシュ(Redis) */
+	public static final String EXCLUSION_CACHE = "cache";
+	/** 更新時の排他の方式 : このサーバのメモリ (単一サーバでの実行・テスト用) */
+	public static final String EXCLUSION_MEMORY = "memory";
+
+	/** Entryキャッシュの無効化通知の方式 : キャッシュ(Redis) */
+	public static final String ENTRYCACHE_BUS_CACHE = "cache";
+	/** Entryキャッシュの無効化通知の方式 : このサーバのメモリ (単一サーバでの実行・テスト用) */
+	public static final String ENTRYCACHE_BUS_MEMORY = "memory";
 
 	/** コネクション情報格納キー : Entryメモリキャッシュ */
 	static final String CONNECTION_INFO_ENTRYMAP ="_ds_entrymap";
@@ -95,6 +198,12 @@ public interface BDBClientConst {
 
 	/** カーソル区切り文字 : {親階層},{カーソル} */
 	public static final String CURSOR_SEPARATOR = ",";
+	/** カーソルのOR条件Index部分 : OR条件ごとの検索位置を保持するカーソル {親階層},*,{OR条件ごとのカーソル} */
+	public static final String CURSOR_OR_BRANCHES = "*";
+	/** OR条件ごとのカーソルの区切り文字 */
+	static final String CURSOR_OR_BRANCH_SEPARATOR = ".";
+	/** OR条件ごとのカーソル : 検索終了 */
+	static final String CURSOR_OR_BRANCH_END = "~";
 	/** Request Header value : XMLHttpRequest */
 	public static final String X_REQUESTED_WITH_VALUE = "TaggingService";
 	/** BDBサーバの状態格納項目 */
@@ -129,6 +238,14 @@ public interface BDBClientConst {
 	public static final String MONITOR_FULLTEXTSEARCH = "fulltextsearch";
 	/** monitorパラメータ : 採番・カウンタ */
 	public static final String MONITOR_ALLOCIDS = "allocids";
+	/** monitorパラメータ : BDBリクエスト通信統計 (このサーバ内の情報) */
+	public static final String MONITOR_BDBREQUEST = "bdbrequest";
+	/** monitorパラメータ : 更新処理統計 (このサーバ内の情報) */
+	public static final String MONITOR_UPDATE = "update";
+	/** monitorパラメータ : インデックス更新ジャーナル (このサーバ内の情報) */
+	public static final String MONITOR_INDEXJOURNAL = "indexjournal";
+	/** monitorパラメータ : Entryキャッシュ (このサーバ内の情報) */
+	public static final String MONITOR_ENTRYCACHE = "entrycache";
 
 	/** Request Header value : Migrate */
 	public static final String X_REQUESTED_WITH_MIGRATE = "Migrate";
@@ -112,7 +112,6 @@ public class BDBClientDeletePrevEntryCallable extends ReflexCallable<Boolean> {
 			List<String> deleteIds = mapEntry.getValue();
 
 			// Entryを一定数ごとに区切ってリクエストする。
-			// リクエストヘッダのサイズ制限に引っかからないようにするため。(Header is too large)
 			int size = deleteIds.size();
 			int idx = 0;
 			while (idx < size) {
@@ -126,10 +125,11 @@ public class BDBClientDeletePrevEntryCallable extends ReflexCallable<Boolean> {
 				reqDeleteIds = deleteIds.subList(idx, toIdx);
 				idx = toIdx;
 
-				Map<String, String> additionalHeaders = BDBRequesterUtil.getEntryMultipleHeader(
-						reqDeleteIds, null);
+				// IDリストは複数Entryフレーム形式でリクエストデータに指定する。
+				byte[] reqData = BDBRequesterUtil.toRequestDataIds(reqDeleteIds);
+				Map<String, String> additionalHeaders = BDBRequesterUtil.getEntryFrameHeader();
 				BDBClientUpdateEntriesCallable callable = new BDBClientUpdateEntriesCallable(
-						entryServerUrl, entryMultipleUri, entryDeleteMethod, null, additionalHeaders);
+						entryServerUrl, entryMultipleUri, entryDeleteMethod, reqData, additionalHeaders);
 				callable.addTask(auth, requestInfo, connectionInfo);
 			}
 		}
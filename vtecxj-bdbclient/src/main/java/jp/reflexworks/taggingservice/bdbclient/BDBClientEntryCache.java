@@ -0,0 +1,404 @@
+package jp.reflexworks.taggingservice.bdbclient;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jp.reflexworks.atom.entry.EntryBase;
+import jp.reflexworks.atom.mapper.FeedTemplateMapper;
+import jp.reflexworks.taggingservice.exception.TaggingException;
+import jp.reflexworks.taggingservice.sys.SystemContext;
+import jp.reflexworks.taggingservice.util.EntrySerializer;
+import jp.reflexworks.taggingservice.util.TaggingEntryUtil;
+import jp.sourceforge.reflex.util.StringUtils;
+
+/**
+ * このサーバのメモリによるEntryキャッシュ.
+ * <p>
+ * サービスとURIをキーに、IDとシリアライズしたEntryを保持する。
+ * キャッシュを使用するのは、Manifestから取得したIDと一致し、有効時間内であり、
+ * かつ全てのサーバで共有する更新スタンプと一致する(または有効時間内に更新が無い)場合のみ。
+ * IDは削除後の再登録やsilent更新で同じ値になるため、更新の度に変わる更新スタンプ
+ * (IDと更新日時)で判定する。更新スタンプはEntryの更新前に登録されるため、
+ * 無効化通知が失われても、キャッシュ(Redis)の更新スタンプが失われない限り更新前のEntryは使用しない。
+ * 合計サイズが上限を超えた場合、最も長く参照されていないものから削除する。
+ * 取得時は毎回デシリアライズするため、返却したEntryを編集してもキャッシュには影響しない。
+ * </p>
+ */
+public class BDBClientEntryCache {
+
+	/** キーのサービス名とURIの区切り文字 */
+	private static final String KEY_DELIMITER = "\n";
+	/** 項目名の接頭辞 */
+	private static final String NAME_PREFIX = "entrycache.";
+	/** 更新スタンプのIDと更新日時の区切り文字 */
+	private static final String STAMP_DELIMITER = ",";
+	/** 削除時の更新スタンプの接頭辞 */
+	private static final String STAMP_PREFIX_DELETE = "-";
+
+	/** ロガー. */
+	private static Logger logger = LoggerFactory.getLogger(BDBClientEntryCache.class);
+
+	/** 最大サイズ(バイト) */
+	private final long maxBytes;
+	/** Entry1件の最大サイズ(バイト) */
+	private final int entryMaxBytes;
+	/** 有効時間(ミリ秒) */
+	private final long expireMillis;
+	/** 無効化通知 (更新スタンプの参照に使用) */
+	private final BDBClientInvalidationBus bus;
+	/** キャッシュ キー:{サービス名}\n{URI}、値:キャッシュ情報 (参照順) */
+	private final LinkedHashMap<String, CachedEntry> entries =
+			new LinkedHashMap<>(16, 0.75f, true);
+	/** 合計サイズ(バイト) */
+	private long totalBytes;
+	/** サービスごとの統計情報 */
+	private final ConcurrentMap<String, ServiceStats> statsMap = new ConcurrentHashMap<>();
+
+	/**
+	 * コンストラクタ.
+	 * @param maxBytes 最大サイズ(バイト)
+	 * @param entryMaxBytes Entry1件の最大サイズ(バイト)
+	 * @param expireMillis 有効時間(ミリ秒)
+	 * @param bus 無効化通知 (更新スタンプの参照に使用)
+	 */
+	BDBClientEntryCache(long maxBytes, int entryMaxBytes, long expireMillis,
+			BDBClientInvalidationBus bus) {
+		this.maxBytes = maxBytes;
+		this.entryMaxBytes = entryMaxBytes;
+		this.expireMillis = expireMillis;
+		this.bus = bus;
+	}
+
+	/**
+	 * キャッシュからEntryを取得.
+	 * <p>
+	 * IDが一致し有効時間内のEntryについて、更新スタンプをまとめて取得して判定する。
+	 * 更新スタンプが取得できない場合は、全てキャッシュに無いものとする。
+	 * </p>
+	 * @param serviceName サービス名
+	 * @param ids IDリスト
+	 * @param mapper FeedTemplateMapper
+	 * @param systemContext SystemContext
+	 * @return キー:ID、値:Entry。キャッシュを使用できないIDは含まない。
+	 */
+	Map<String, EntryBase> get(String serviceName, Collection<String> ids,
+			FeedTemplateMapper mapper, SystemContext systemContext)
+	throws IOException {
+		ServiceStats stats = getStats(serviceName);
+		Map<String, EntryBase> cachedEntries = new HashMap<>();
+		// IDと有効時間で判定
+		List<String> uris = new ArrayList<>();
+		List<CachedEntry> candidates = new ArrayList<>();
+		long now = System.currentTimeMillis();
+		synchronized (entries) {
+			for (String id : ids) {
+				String uri = TaggingEntryUtil.getUriById(id);
+				String key = getKey(serviceName, uri);
+				CachedEntry cachedEntry = entries.get(key);
+				if (cachedEntry != null && cachedEntry.expireTime <= now) {
+					removeEntry(key);
+					cachedEntry = null;
+				}
+				if (cachedEntry == null || !cachedEntry.id.equals(id) ||
+						cachedEntry.mapper != mapper) {
+					stats.misses.increment();
+				} else {
+					uris.add(uri);
+					candidates.add(cachedEntry);
+				}
+			}
+		}
+		if (candidates.isEmpty()) {
+			return cachedEntries;
+		}
+
+		// 更新スタンプで判定
+		List<String> stamps = null;
+		try {
+			stamps = bus.getStamps(serviceName, uris, systemContext);
+		} catch (IOException | TaggingException | RuntimeException e) {
+			logger.warn("[get] getStamps failed. " + e.getClass().getSimpleName() + ": " +
+					e.getMessage());
+			stats.misses.add(candidates.size());
+			return cachedEntries;
+		}
+		List<String> staleUris = new ArrayList<>();
+		for (int i = 0; i < candidates.size(); i++) {
+			CachedEntry cachedEntry = candidates.get(i);
+			String stamp = stamps.get(i);
+			if (stamp == null || stamp.equals(cachedEntry.stamp)) {
+				stats.hits.increment();
+				cachedEntries.put(cachedEntry.id, EntrySerializer.deserializeEntry(
+						mapper, cachedEntry.data, null, null));
+			} else {
+				stats.misses.increment();
+				staleUris.add(uris.get(i));
+			}
+		}
+		if (!staleUris.isEmpty()) {
+			invalidate(serviceName, staleUris);
+		}
+		return cachedEntries;
+	}
+
+	/**
+	 * キャッシュにEntryを格納.
+	 * Entry1件の最大サイズを超える場合は格納しない。
+	 * 有効期限は、Entryサーバへのリクエスト開始日時から計算する。
+	 * (リクエスト中に更新された場合も、更新スタンプの有効期限より先に期限切れとするため。)
+	 * @param serviceName サービス名
+	 * @param entry Entry
+	 * @param mapper FeedTemplateMapper
+	 * @param requestTime Entryサーバへのリクエスト開始日時(エポックミリ秒)
+	 */
+	void put(String serviceName, EntryBase entry, FeedTemplateMapper mapper,
+			long requestTime)
+	throws IOException {
+		if (entry == null || entry.id == null) {
+			return;
+		}
+		byte[] data = EntrySerializer.serialize(mapper, entry, null, null);
+		if (data == null || data.length > entryMaxBytes) {
+			return;
+		}
+		String uri = TaggingEntryUtil.getUriById(entry.id);
+		String key = getKey(serviceName, uri);
+		CachedEntry cachedEntry = new CachedEntry(serviceName, entry.id, getStamp(entry),
+				mapper, data, requestTime + expireMillis);
+		synchronized (entries) {
+			removeEntry(key);
+			entries.put(key, cachedEntry);
+			addBytes(cachedEntry, 1);
+			// 上限を超えた場合、参照されていない順に削除
+			Iterator<CachedEntry> it = entries.values().iterator();
+			while (totalBytes > maxBytes && it.hasNext()) {
+				CachedEntry eldest = it.next();
+				it.remove();
+				addBytes(eldest, -1);
+			}
+		}
+	}
+
+	/**
+	 * 指定されたURIのEntryをキャッシュから削除.
+	 * @param serviceName サービス名
+	 * @param uris URIリスト
+	 */
+	void invalidate(String serviceName, Collection<String> uris) {
+		int cnt = 0;
+		synchronized (entries) {
+			for (String uri : uris) {
+				if (removeEntry(getKey(serviceName, uri))) {
+					cnt++;
+				}
+			}
+		}
+		if (cnt > 0) {
+			getStats(serviceName).invalidations.add(cnt);
+		}
+	}
+
+	/**
+	 * 指定されたサービスのEntryを全てキャッシュから削除.
+	 * @param serviceName サービス名
+	 */
+	void clear(String serviceName) {
+		String prefix = serviceName + KEY_DELIMITER;
+		synchronized (entries) {
+			Iterator<Map.Entry<String, CachedEntry>> it = entries.entrySet().iterator();
+			while (it.hasNext()) {
+				Map.Entry<String, CachedEntry> mapEntry = it.next();
+				if (mapEntry.getKey().startsWith(prefix)) {
+					it.remove();
+					addBytes(mapEntry.getValue(), -1);
+				}
+			}
+		}
+	}
+
+	/**
+	 * 統計情報をEntryリストで取得.
+	 * titleに項目名、summaryに値を設定する。
+	 * @return 統計情報
+	 */
+	List<EntryBase> getStatsEntries() {
+		List<EntryBase> statsEntries = new ArrayList<>();
+		long allBytes = 0;
+		int allEntries = 0;
+		synchronized (entries) {
+			allBytes = totalBytes;
+			allEntries = entries.size();
+		}
+		statsEntries.add(createStatsEntry("bytes", String.valueOf(allBytes)));
+		statsEntries.add(createStatsEntry("max_bytes", String.valueOf(maxBytes)));
+		statsEntries.add(createStatsEntry("entries", String.valueOf(allEntries)));
+		for (Map.Entry<String, ServiceStats> mapEntry : new TreeMap<>(statsMap).entrySet()) {
+			String name = "service." + mapEntry.getKey() + ".";
+			ServiceStats stats = mapEntry.getValue();
+			long hitCnt = stats.hits.sum();
+			long missCnt = stats.misses.sum();
+			double hitRatio = 0;
+			if (hitCnt + missCnt > 0) {
+				hitRatio = (double)hitCnt / (hitCnt + missCnt);
+			}
+			statsEntries.add(createStatsEntry(name + "hits", String.valueOf(hitCnt)));
+			statsEntries.add(createStatsEntry(name + "misses", String.valueOf(missCnt)));
+			statsEntries.add(createStatsEntry(name + "hit_ratio", String.valueOf(hitRatio)));
+			statsEntries.add(createStatsEntry(name + "invalidations",
+					String.valueOf(stats.invalidations.sum())));
+			statsEntries.add(createStatsEntry(name + "entries",
+					String.valueOf(stats.entries.sum())));
+			statsEntries.add(createStatsEntry(name + "bytes",
+					String.valueOf(stats.bytes.sum())));
+		}
+		return statsEntries;
+	}
+
+	/**
+	 * 登録・更新するEntryの更新スタンプを取得.
+	 * 更新の度に変わるよう、IDと更新日時(ミリ秒)から編集する。
+	 * @param entry Entry
+	 * @return 更新スタンプ
+	 */
+	static String getStamp(EntryBase entry) {
+		return entry.id + STAMP_DELIMITER + StringUtils.null2blank(entry.updated);
+	}
+
+	/**
+	 * 削除するEntryの更新スタンプを取得.
+	 * 登録・更新時の更新スタンプと一致しない値とする。
+	 * @param entry 削除するEntry
+	 * @param currentTime 削除日時
+	 * @return 更新スタンプ
+	 */
+	static String getDeleteStamp(EntryBase entry, String currentTime) {
+		return STAMP_PREFIX_DELETE + entry.id + STAMP_DELIMITER + currentTime;
+	}
+
+	/**
+	 * キャッシュから削除.
+	 * entriesのロックを取得して呼び出すこと。
+	 * @param key キー
+	 * @return 削除した場合true
+	 */
+	private boolean removeEntry(String key) {
+		CachedEntry removed = entries.remove(key);
+		if (removed == null) {
+			return false;
+		}
+		addBytes(removed, -1);
+		return true;
+	}
+
+	/**
+	 * サイズと件数を加算.
+	 * entriesのロックを取得して呼び出すこと。
+	 * @param cachedEntry キャッシュ情報
+	 * @param sign 格納の場合1、削除の場合-1
+	 */
+	private void addBytes(CachedEntry cachedEntry, int sign) {
+		totalBytes += sign * cachedEntry.data.length;
+		ServiceStats stats = getStats(cachedEntry.serviceName);
+		stats.bytes.add(sign * cachedEntry.data.length);
+		stats.entries.add(sign);
+	}
+
+	/**
+	 * サービスの統計情報を取得.
+	 * @param serviceName サービス名
+	 * @return 統計情報
+	 */
+	private ServiceStats getStats(String serviceName) {
+		return statsMap.computeIfAbsent(serviceName, k -> new ServiceStats());
+	}
+
+	/**
+	 * キャッシュのキーを取得.
+	 * @param serviceName サービス名
+	 * @param uri URI
+	 * @return キー
+	 */
+	private String getKey(String serviceName, String uri) {
+		return serviceName + KEY_DELIMITER + uri;
+	}
+
+	/**
+	 * 統計情報Entryを生成.
+	 * @param name 項目名
+	 * @param value 値
+	 * @return 統計情報Entry
+	 */
+	private EntryBase createStatsEntry(String name, String value) {
+		EntryBase entry = TaggingEntryUtil.createAtomEntry();
+		entry.title = NAME_PREFIX + name;
+		entry.summary = value;
+		return entry;
+	}
+
+	/**
+	 * キャッシュ情報.
+	 */
+	private static class CachedEntry {
+		/** サービス名 */
+		private final String serviceName;
+		/** ID */
+		private final String id;
+		/** 更新スタンプ */
+		private final String stamp;
+		/** シリアライズに使用したFeedTemplateMapper */
+		private final FeedTemplateMapper mapper;
+		/** シリアライズしたEntry */
+		private final byte[] data;
+		/** 有効期限(エポックミリ秒) */
+		private final long expireTime;
+
+		/**
+		 * コンストラクタ.
+		 * @param serviceName サービス名
+		 * @param id ID
+		 * @param stamp 更新スタンプ
+		 * @param mapper シリアライズに使用したFeedTemplateMapper
+		 * @param data シリアライズしたEntry
+		 * @param expireTime 有効期限(エポックミリ秒)
+		 */
+		CachedEntry(String serviceName, String id, String stamp, FeedTemplateMapper mapper,
+				byte[] data, long expireTime) {
+			this.serviceName = serviceName;
+			this.id = id;
+			this.stamp = stamp;
+			this.mapper = mapper;
+			this.data = data;
+			this.expireTime = expireTime;
+		}
+	}
+
+	/**
+	 * サービスごとの統計情報.
+	 */
+	private static class ServiceStats {
+		/** ヒット件数 */
+		private final LongAdder hits = new LongAdder();
+		/** ミス件数 */
+		private final LongAdder misses = new LongAdder();
+		/** 無効化件数 */
+		private final LongAdder invalidations = new LongAdder();
+		/** 格納件数 */
+		private final LongAdder entries = new LongAdder();
+		/** 格納サイズ(バイト) */
+		private final LongAdder bytes = new LongAdder();
+	}
+
+}
@@ -0,0 +1,324 @@
+package jp.reflexworks.taggingservice.bdbclient;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jp.reflexworks.atom.entry.EntryBase;
+import jp.reflexworks.atom.entry.FeedBase;
+import jp.reflexworks.atom.mapper.FeedTemplateMapper;
+import jp.reflexworks.taggingservice.api.ReflexStatic;
+import jp.reflexworks.taggingservice.exception.StaticDuplicatedException;
+import jp.reflexworks.taggingservice.exception.TaggingException;
+import jp.reflexworks.taggingservice.sys.SystemContext;
+import jp.reflexworks.taggingservice.util.TaggingEntryUtil;
+
+/**
+ * Entryキャッシュの管理クラス.
+ * <p>
+ * Entryサーバから取得したEntryをこのサーバのメモリにキャッシュする。
+ * Entryを更新・削除する場合、全てのサーバで共有する更新スタンプを登録し、
+ * このサーバのキャッシュを削除した後、他のサーバに無効化を通知する。
+ * キャッシュはIDと更新スタンプが一致し、有効時間内の場合のみ使用する。
+ * 無効化通知は失われることがあるため、キャッシュの削除によるメモリ解放のみに使用する。
+ * </p>
+ */
+public class BDBClientEntryCacheManager {
+
+	/** メモリ上のstaticオブジェクト格納キー : Entryキャッシュ */
+	private static final String STATIC_NAME_BDBCLIENT_ENTRYCACHE = "_bdbclient_entrycache";
+	/** メモリ上のstaticオブジェクト格納キー : Entryキャッシュの無効化通知 */
+	private static final String STATIC_NAME_BDBCLIENT_ENTRYCACHE_BUS = "_bdbclient_entrycache_bus";
+	/** 無効化通知メッセージの区切り文字 */
+	private static final String MESSAGE_DELIMITER = "\n";
+
+	/** ロガー. */
+	private static Logger logger = LoggerFactory.getLogger(BDBClientEntryCacheManager.class);
+
+	/**
+	 * 初期処理に呼ばれるメソッド.
+	 * TaggingEnv.getPropはまだ使用できないため、Entryキャッシュは初回使用時に生成する。
+	 */
+	public void init() {
+		// Entryキャッシュ
+		// キー: 無効化通知の方式、値: Entryキャッシュ
+		ConcurrentMap<String, BDBClientEntryCache> entryCacheMap = new ConcurrentHashMap<>();
+		try {
+			ReflexStatic.setStatic(STATIC_NAME_BDBCLIENT_ENTRYCACHE, entryCacheMap);
+		} catch (StaticDuplicatedException e) {
+			logger.warn("[init] StaticDuplicatedException: " + STATIC_NAME_BDBCLIENT_ENTRYCACHE, e);
+		}
+		// 無効化通知
+		// キー: 無効化通知の方式、値: 無効化通知クラス
+		ConcurrentMap<String, BDBClientInvalidationBus> busMap = new ConcurrentHashMap<>();
+		try {
+			ReflexStatic.setStatic(STATIC_NAME_BDBCLIENT_ENTRYCACHE_BUS, busMap);
+		} catch (StaticDuplicatedException e) {
+			logger.warn("[init] StaticDuplicatedException: " + STATIC_NAME_BDBCLIENT_ENTRYCACHE_BUS, e);
+		}
+	}
+
+	/**
+	 * Entryキャッシュを使用するかどうか.
+	 * @return Entryキャッシュを使用する場合true
+	 */
+	public static boolean isEnabled() {
+		return BDBClientUtil.isEnableEntryCache();
+	}
+
+	/**
+	 * キャッシュからEntryを取得.
+	 * @param serviceName サービス名
+	 * @param id ID
+	 * @param mapper FeedTemplateMapper
+	 * @param systemContext SystemContext
+	 * @return Entry。キャッシュを使用できない場合null。
+	 */
+	public static EntryBase get(String serviceName, String id, FeedTemplateMapper mapper,
+			SystemContext systemContext)
+	throws IOException {
+		return getEntryCache().get(serviceName, Collections.singletonList(id), mapper,
+				systemContext).get(id);
+	}
+
+	/**
+	 * キャッシュからEntryを複数取得.
+	 * 更新スタンプはまとめて取得する。
+	 * @param serviceName サービス名
+	 * @param ids IDリスト
+	 * @param mapper FeedTemplateMapper
+	 * @param systemContext SystemContext
+	 * @return キー:ID、値:Entry。キャッシュを使用できないIDは含まない。
+	 */
+	public static Map<String, EntryBase> get(String serviceName, List<String> ids,
+			FeedTemplateMapper mapper, SystemContext systemContext)
+	throws IOException {
+		return getEntryCache().get(serviceName, ids, mapper, systemContext);
+	}
+
+	/**
+	 * キャッシュにEntryを格納.
+	 * @param serviceName サービス名
+	 * @param entry Entry
+	 * @param mapper FeedTemplateMapper
+	 * @param requestTime Entryサーバへのリクエスト開始日時(エポックミリ秒)
+	 */
+	public static void put(String serviceName, EntryBase entry, FeedTemplateMapper mapper,
+			long requestTime)
+	throws IOException {
+		getEntryCache().put(serviceName, entry, mapper, requestTime);
+	}
+
+	/**
+	 * 登録・更新・削除するEntryの更新スタンプを登録.
+	 * <p>
+	 * Entryの更新前に呼び出し、エラーの場合は更新を行わないこと。
+	 * 更新中に他のサーバがキャッシュした更新前のEntryは、更新スタンプが一致しないため使用されない。
+	 * 更新後にも呼び出して有効期限を延長し、更新中にキャッシュされたEntryより後に期限切れとする。
+	 * </p>
+	 * @param updateEntries 登録・更新するEntryリスト
+	 * @param deleteEntries 削除するEntryリスト
+	 * @param currentTime 更新日時
+	 * @param systemContext SystemContext
+	 */
+	public static void putStamps(List<EntryBase> updateEntries, List<EntryBase> deleteEntries,
+			String currentTime, SystemContext systemContext)
+	throws IOException, TaggingException {
+		List<String> uris = new ArrayList<>();
+		List<String> stamps = new ArrayList<>();
+		for (EntryBase entry : updateEntries) {
+			uris.add(TaggingEntryUtil.getUriById(entry.id));
+			stamps.add(BDBClientEntryCache.getStamp(entry));
+		}
+		for (EntryBase entry : deleteEntries) {
+			uris.add(TaggingEntryUtil.getUriById(entry.id));
+			stamps.add(BDBClientEntryCache.getDeleteStamp(entry, currentTime));
+		}
+		if (uris.isEmpty()) {
+			return;
+		}
+		// キャッシュの有効時間より長く保持する
+		int sec = BDBClientUtil.getEntryCacheExpireSec() + 1;
+		getBus().putStamps(systemContext.getServiceName(), uris, stamps, sec, systemContext);
+	}
+
+	/**
+	 * 更新・削除するEntryをこのサーバのキャッシュから削除.
+	 * @param serviceName サービス名
+	 * @param entries 更新・削除するEntryリスト
+	 */
+	public static void invalidate(String serviceName, List<EntryBase> entries) {
+		getEntryCache().invalidate(serviceName, getUris(entries));
+	}
+
+	/**
+	 * 更新・削除したEntryのキャッシュの無効化を他のサーバに通知.
+	 * @param entries 更新・削除したEntryリスト
+	 * @param systemContext SystemContext
+	 */
+	public static void publish(List<EntryBase> entries, SystemContext systemContext)
+	throws IOException, TaggingException {
+		if (entries == null || entries.isEmpty()) {
+			return;
+		}
+		StringBuilder sb = new StringBuilder();
+		sb.append(systemContext.getServiceName());
+		for (String uri : getUris(entries)) {
+			sb.append(MESSAGE_DELIMITER);
+			sb.append(uri);
+		}
+		getBus().publish(sb.toString(), systemContext);
+	}
+
+	/**
+	 * 指定されたサービスのEntryを全てキャッシュから削除.
+	 * @param serviceName サービス名
+	 */
+	public static void clear(String serviceName) {
+		if (!isEnabled()) {
+			return;
+		}
+		getEntryCache().clear(serviceName);
+	}
+
+	/**
+	 * Entryキャッシュの統計情報をFeedで取得.
+	 * @return Entryキャッシュの統計情報
+	 */
+	public static FeedBase getStatsFeed() {
+		FeedBase feed = TaggingEntryUtil.createAtomFeed();
+		if (isEnabled()) {
+			feed.entry = getEntryCache().getStatsEntries();
+		}
+		return feed;
+	}
+
+	/**
+	 * 設定された無効化通知の方式のEntryキャッシュを取得.
+	 * @return Entryキャッシュ
+	 */
+	private static BDBClientEntryCache getEntryCache() {
+		String busType = BDBClientUtil.getEntryCacheBusType();
+		ConcurrentMap<String, BDBClientEntryCache> entryCacheMap = getEntryCacheMap();
+		if (entryCacheMap == null) {
+			throw new IllegalStateException("static infomation does not exist. " + STATIC_NAME_BDBCLIENT_ENTRYCACHE);
+		}
+		return entryCacheMap.computeIfAbsent(busType, k -> createEntryCache(k));
+	}
+
+	/**
+	 * Entryキャッシュを生成し、無効化通知の受信を開始する.
+	 * @param busType 無効化通知の方式
+	 * @return Entryキャッシュ
+	 */
+	private static BDBClientEntryCache createEntryCache(String busType) {
+		BDBClientInvalidationBus bus = getBus(busType);
+		BDBClientEntryCache entryCache = new BDBClientEntryCache(
+				BDBClientUtil.getEntryCacheMaxBytes(), BDBClientUtil.getEntryCacheEntryMaxBytes(),
+				BDBClientUtil.getEntryCacheExpireSec() * 1000L, bus);
+		try {
+			bus.subscribe(message -> receive(entryCache, message));
+		} catch (IOException | TaggingException e) {
+			logger.warn("[createEntryCache] subscribe failed. " + busType, e);
+		}
+		return entryCache;
+	}
+
+	/**
+	 * 無効化通知を受信.
+	 * @param entryCache Entryキャッシュ
+	 * @param message 通知メッセージ ({サービス名}\n{URI}\n{URI}...)
+	 */
+	private static void receive(BDBClientEntryCache entryCache, String message) {
+		String[] parts = message.split(MESSAGE_DELIMITER);
+		if (parts.length < 2) {
+			return;
+		}
+		if (logger.isTraceEnabled()) {
+			logger.debug("[receive] serviceName = " + parts[0] + " uris.size = " +
+					(parts.length - 1));
+		}
+		entryCache.invalidate(parts[0], Arrays.asList(parts).subList(1, parts.length));
+	}
+
+	/**
+	 * 設定された無効化通知の方式の通知クラスを取得.
+	 * @return 無効化通知クラス
+	 */
+	private static BDBClientInvalidationBus getBus() {
+		return getBus(BDBClientUtil.getEntryCacheBusType());
+	}
+
+	/**
+	 * 無効化通知クラスを取得.
+	 * 送信と受信で同じインスタンスを使用する。
+	 * @param busType 無効化通知の方式
+	 * @return 無効化通知クラス
+	 */
+	private static BDBClientInvalidationBus getBus(String busType) {
+		ConcurrentMap<String, BDBClientInvalidationBus> busMap = getBusMap();
+		if (busMap == null) {
+			throw new IllegalStateException("static infomation does not exist. " + STATIC_NAME_BDBCLIENT_ENTRYCACHE_BUS);
+		}
+		return busMap.computeIfAbsent(busType, k -> createBus(k));
+	}
+
+	/**
+	 * 無効化通知クラスを生成.
+	 * @param busType 無効化通知の方式
+	 * @return 無効化通知クラス
+	 */
+	private static BDBClientInvalidationBus createBus(String busType) {
+		if (BDBClientConst.ENTRYCACHE_BUS_MEMORY.equals(busType)) {
+			return new BDBClientMemoryInvalidationBus();
+		}
+		if (!BDBClientConst.ENTRYCACHE_BUS_CACHE.equals(busType)) {
+			logger.warn("[createBus] entry cache bus type is invalid. " + busType);
+		}
+		return new BDBClientCacheInvalidationBus();
+	}
+
+	/**
+	 * EntryリストからURIリストを取得.
+	 * @param entries Entryリスト
+	 * @return URIリスト
+	 */
+	private static List<String> getUris(List<EntryBase> entries) {
+		List<String> uris = new ArrayList<>(entries.size());
+		for (EntryBase entry : entries) {
+			if (entry != null && entry.id != null) {
+				uris.add(TaggingEntryUtil.getUriById(entry.id));
+			}
+		}
+		return uris;
+	}
+
+	/**
+	 * static mapよりEntryキャッシュを取得.
+	 * @return Entryキャッシュ
+	 */
+	@SuppressWarnings("unchecked")
+	private static ConcurrentMap<String, BDBClientEntryCache> getEntryCacheMap() {
+		return (ConcurrentMap<String, BDBClientEntryCache>)ReflexStatic.getStatic(
+				STATIC_NAME_BDBCLIENT_ENTRYCACHE);
+	}
+
+	/**
+	 * static mapより無効化通知クラスを取得.
+	 * @return 無効化通知クラス
+	 */
+	@SuppressWarnings("unchecked")
+	private static ConcurrentMap<String, BDBClientInvalidationBus> getBusMap() {
+		return (ConcurrentMap<String, BDBClientInvalidationBus>)ReflexStatic.getStatic(
+				STATIC_NAME_BDBCLIENT_ENTRYCACHE_BUS);
+	}
+
+}
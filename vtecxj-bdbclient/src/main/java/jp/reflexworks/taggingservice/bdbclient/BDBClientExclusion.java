@@ -0,0 +1,39 @@
+package jp.reflexworks.taggingservice.bdbclient;
+
+import java.io.IOException;
+import java.util.List;
+
+import jp.reflexworks.taggingservice.exception.TaggingException;
+import jp.reflexworks.taggingservice.sys.SystemContext;
+
+/**
+ * 更新時の排他インタフェース.
+ * 同一トランザクションで更新するEntryのURIをまとめて排他する。
+ */
+public interface BDBClientExclusion {
+
+	/**
+	 * 排他.
+	 * 全てのURIを排他するか、全く排他しないかのいずれかとなる。
+	 * 同じ所有者が排他済みのURIは、排他できたものとみなす。
+	 * @param uris URIリスト (昇順、重複なし)
+	 * @param token 排他の所有者を識別する文字列
+	 * @param sec 排他の有効期間(秒)
+	 * @param systemContext SystemContext
+	 * @return 排他できた場合null、他の所有者が排他中のURIがある場合そのURI
+	 */
+	public String acquire(List<String> uris, String token, int sec,
+			SystemContext systemContext)
+	throws IOException, TaggingException;
+
+	/**
+	 * 排他解除.
+	 * 指定された所有者の排他のみ解除する。
+	 * @param uris URIリスト
+	 * @param token 排他の所有者を識別する文字列
+	 * @param systemContext SystemContext
+	 */
+	public void release(List<String> uris, String token, SystemContext systemContext)
+	throws IOException, TaggingException;
+
+}
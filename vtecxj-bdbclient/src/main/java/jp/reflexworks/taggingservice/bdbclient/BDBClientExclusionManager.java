@@ -0,0 +1,110 @@
+package jp.reflexworks.taggingservice.bdbclient;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jp.reflexworks.atom.entry.FeedBase;
+import jp.reflexworks.taggingservice.api.ReflexStatic;
+import jp.reflexworks.taggingservice.exception.StaticDuplicatedException;
+import jp.reflexworks.taggingservice.util.TaggingEntryUtil;
+
+/**
+ * 更新時の排他クラスと更新処理統計情報の管理クラス.
+ */
+public class BDBClientExclusionManager {
+
+	/** メモリ上のstaticオブジェクト格納キー : 排他クラス */
+	private static final String STATIC_NAME_BDBCLIENT_EXCLUSION = "_bdbclient_exclusion";
+	/** メモリ上のstaticオブジェクト格納キー : 更新処理統計情報 */
+	private static final String STATIC_NAME_BDBCLIENT_UPDATE_STATS = "_bdbclient_update_stats";
+
+	/** ロガー. */
+	private static Logger logger = LoggerFactory.getLogger(BDBClientExclusionManager.class);
+
+	/**
+	 * 初期処理に呼ばれるメソッド.
+	 * TaggingEnv.getPropはまだ使用できないため、排他クラスは初回使用時に生成する。
+	 */
+	public void init() {
+		// 排他クラス
+		// キー: 排他の方式、値: 排他クラス
+		ConcurrentMap<String, BDBClientExclusion> exclusionMap = new ConcurrentHashMap<>();
+		try {
+			ReflexStatic.setStatic(STATIC_NAME_BDBCLIENT_EXCLUSION, exclusionMap);
+		} catch (StaticDuplicatedException e) {
+			logger.warn("[init] StaticDuplicatedException: " + STATIC_NAME_BDBCLIENT_EXCLUSION, e);
+		}
+		// 更新処理統計情報
+		BDBClientUpdateStats updateStats = new BDBClientUpdateStats();
+		try {
+			ReflexStatic.setStatic(STATIC_NAME_BDBCLIENT_UPDATE_STATS, updateStats);
+		} catch (StaticDuplicatedException e) {
+			logger.warn("[init] StaticDuplicatedException: " + STATIC_NAME_BDBCLIENT_UPDATE_STATS, e);
+		}
+	}
+
+	/**
+	 * 設定された排他の方式の排他クラスを取得.
+	 * @return 排他クラス
+	 */
+	public static BDBClientExclusion getExclusion() {
+		String exclusionType = BDBClientUtil.getExclusionType();
+		ConcurrentMap<String, BDBClientExclusion> exclusionMap = getExclusionMap();
+		if (exclusionMap == null) {
+			throw new IllegalStateException("static infomation does not exist. " + STATIC_NAME_BDBCLIENT_EXCLUSION);
+		}
+		return exclusionMap.computeIfAbsent(exclusionType, k -> createExclusion(k));
+	}
+
+	/**
+	 * 更新処理統計情報を取得.
+	 * @return 更新処理統計情報
+	 */
+	public static BDBClientUpdateStats getUpdateStats() {
+		BDBClientUpdateStats updateStats = (BDBClientUpdateStats)ReflexStatic.getStatic(
+				STATIC_NAME_BDBCLIENT_UPDATE_STATS);
+		if (updateStats == null) {
+			throw new IllegalStateException("static infomation does not exist. " + STATIC_NAME_BDBCLIENT_UPDATE_STATS);
+		}
+		return updateStats;
+	}
+
+	/**
+	 * 更新処理統計情報をFeedで取得.
+	 * @return 更新処理統計情報
+	 */
+	public static FeedBase getUpdateStatsFeed() {
+		FeedBase feed = TaggingEntryUtil.createAtomFeed();
+		feed.entry = getUpdateStats().getStatsEntries();
+		return feed;
+	}
+
+	/**
+	 * 排他クラスを生成.
+	 * @param exclusionType 排他の方式
+	 * @return 排他クラス
+	 */
+	private static BDBClientExclusion createExclusion(String exclusionType) {
+		if (BDBClientConst.EXCLUSION_MEMORY.equals(exclusionType)) {
+			return new BDBClientMemoryExclusion();
+		}
+		if (!BDBClientConst.EXCLUSION_CACHE.equals(exclusionType)) {
+			logger.warn("[createExclusion] exclusion type is invalid. " + exclusionType);
+		}
+		return new BDBClientCacheExclusion();
+	}
+
+	/**
+	 * static mapより排他クラスを取得.
+	 * @return 排他クラス
+	 */
+	@SuppressWarnings("unchecked")
+	private static ConcurrentMap<String, BDBClientExclusion> getExclusionMap() {
+		return (ConcurrentMap<String, BDBClientExclusion>)ReflexStatic.getStatic(
+				STATIC_NAME_BDBCLIENT_EXCLUSION);
+	}
+
+}
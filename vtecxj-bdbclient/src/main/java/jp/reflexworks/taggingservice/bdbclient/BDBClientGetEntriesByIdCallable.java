@@ -19,6 +19,7 @@ import jp.reflexworks.taggingservice.requester.BDBRequester;
 import jp.reflexworks.taggingservice.requester.BDBClientServerConst.BDBResponseType;
 import jp.reflexworks.taggingservice.taskqueue.ReflexCallable;
 import jp.reflexworks.taggingservice.taskqueue.TaskQueueUtil;
+import jp.reflexworks.taggingservice.util.Constants;
 import jp.reflexworks.taggingservice.util.LogUtil;
 
 /**
@@ -32,6 +33,8 @@ public class BDBClientGetEntriesByIdCallable extends ReflexCallable<List<EntryBa
 	private String entryMultipleUriStr;
 	/** リクエストメソッド */
 	private String method;
+	/** リクエストデータ (IDリスト、または条件指定の複数Entryフレーム) */
+	private byte[] reqData;
 	/** 追加リクエストヘッダ */
 	private Map<String, String> additionalHeaders;
 
@@ -43,13 +46,15 @@ public class BDBClientGetEntriesByIdCallable extends ReflexCallable<List<EntryBa
 	 * @param entryServerUrl EntryサーバURL
 	 * @param entryMultipleUriStr リクエストURI
 	 * @param method リクエストメソッド
+	 * @param reqData リクエストデータ (IDリスト、または条件指定の複数Entryフレーム)
 	 * @param additionalHeaders 追加リクエストヘッダ
 	 */
 	public BDBClientGetEntriesByIdCallable(String entryServerUrl, String entryMultipleUriStr,
-			String method, Map<String, String> additionalHeaders) {
+			String method, byte[] reqData, Map<String, String> additionalHeaders) {
 		this.entryServerUrl = entryServerUrl;
 		this.entryMultipleUriStr = entryMultipleUriStr;
 		this.method = method;
+		this.reqData = reqData;
 		this.additionalHeaders = additionalHeaders;
 	}
 
@@ -79,17 +84,7 @@ public class BDBClientGetEntriesByIdCallable extends ReflexCallable<List<EntryBa
 		}
 
 		try {
-			String serviceName = getServiceName();
-			ConnectionInfo connectionInfo = getConnectionInfo();
-			FeedTemplateMapper mapper = TaggingEnvUtil.getResourceMapper(serviceName);
-
-			BDBRequester<List<EntryBase>> requester = new BDBRequester<>(
-					BDBResponseType.ENTRYLIST);
-			BDBResponseInfo<List<EntryBase>> respInfo = requester.request(entryServerUrl,
-					entryMultipleUriStr, method, null, additionalHeaders, mapper,
-					serviceName, requestInfo, connectionInfo);
-			// 成功
-			return respInfo.data;
+			return request(getServiceName(), requestInfo, getConnectionInfo());
 
 		} finally {
 			if (logger.isTraceEnabled()) {
@@ -99,4 +94,38 @@ public class BDBClientGetEntriesByIdCallable extends ReflexCallable<List<EntryBa
 		}
 	}
 
+	/**
+	 * EntryサーバへEntry取得リクエスト.
+	 * 非同期処理の中から呼ばれた場合は、非同期処理を登録せずこのメソッドを直接呼び出す。
+	 * @param serviceName サービス名
+	 * @param requestInfo リクエスト情報
+	 * @param connectionInfo コネクション情報
+	 * @return Entryリスト
+	 */
+	List<EntryBase> request(String serviceName, RequestInfo requestInfo,
+			ConnectionInfo connectionInfo)
+	throws IOException, TaggingException {
+		FeedTemplateMapper mapper = TaggingEnvUtil.getResourceMapper(serviceName);
+
+		// POSTメソッドだが検索のため、GETと同様にリトライする。
+		BDBRequester<List<EntryBase>> requester = new BDBRequester<>(
+				BDBResponseType.ENTRYLIST, true);
+		BDBResponseInfo<List<EntryBase>> respInfo = requester.request(entryServerUrl,
+				entryMultipleUriStr, method, reqData, additionalHeaders, mapper,
+				serviceName, requestInfo, connectionInfo);
+		if (logger.isTraceEnabled() && respInfo.headers != null &&
+				respInfo.headers.containsKey(Constants.HEADER_FILTER_SCANNED)) {
+			// 条件指定のEntry複数取得の件数
+			StringBuilder sb = new StringBuilder();
+			sb.append(LogUtil.getRequestInfoStr(requestInfo));
+			sb.append("[GetEntriesById call] filter scanned=");
+			sb.append(respInfo.headers.get(Constants.HEADER_FILTER_SCANNED));
+			sb.append(", matched=");
+			sb.append(respInfo.headers.get(Constants.HEADER_FILTER_MATCHED));
+			logger.debug(sb.toString());
+		}
+		// 成功
+		return respInfo.data;
+	}
+
 }
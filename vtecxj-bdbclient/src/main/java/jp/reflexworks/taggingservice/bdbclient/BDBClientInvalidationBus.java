@@ -0,0 +1,59 @@
+package jp.reflexworks.taggingservice.bdbclient;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.function.Consumer;
+
+import jp.reflexworks.taggingservice.exception.TaggingException;
+import jp.reflexworks.taggingservice.sys.SystemContext;
+
+/**
+ * Entryキャッシュの無効化通知インタフェース.
+ * <p>
+ * 更新したEntryのURIを他のサーバに通知する。
+ * また、全てのサーバで共有する更新スタンプ(URIごとに、更新の度に変わる値)を保持する。
+ * 通知は失われることがあるため、キャッシュの使用可否は更新スタンプで判定する。
+ * </p>
+ */
+public interface BDBClientInvalidationBus {
+
+	/**
+	 * 無効化通知を送信.
+	 * @param message 通知メッセージ
+	 * @param systemContext SystemContext
+	 */
+	public void publish(String message, SystemContext systemContext)
+	throws IOException, TaggingException;
+
+	/**
+	 * 無効化通知の受信を開始.
+	 * @param listener 通知メッセージ受信時の処理
+	 */
+	public void subscribe(Consumer<String> listener)
+	throws IOException, TaggingException;
+
+	/**
+	 * 更新スタンプを登録.
+	 * 既に登録されている場合は上書きする。
+	 * @param serviceName サービス名
+	 * @param uris URIリスト
+	 * @param stamps 更新スタンプリスト (URIリストと同じ順序)
+	 * @param sec 有効時間(秒)
+	 * @param systemContext SystemContext
+	 */
+	public void putStamps(String serviceName, List<String> uris, List<String> stamps,
+			int sec, SystemContext systemContext)
+	throws IOException, TaggingException;
+
+	/**
+	 * 更新スタンプを取得.
+	 * @param serviceName サービス名
+	 * @param uris URIリスト
+	 * @param systemContext SystemContext
+	 * @return 更新スタンプリスト (URIリストと同じ順序。有効時間内に更新が無いURIはnull)
+	 */
+	public List<String> getStamps(String serviceName, List<String> uris,
+			SystemContext systemContext)
+	throws IOException, TaggingException;
+
+}
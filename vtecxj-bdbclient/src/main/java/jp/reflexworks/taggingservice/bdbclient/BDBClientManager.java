@@ -37,6 +37,7 @@ import jp.reflexworks.taggingservice.exception.EntryDuplicatedException;
 import jp.reflexworks.taggingservice.exception.IllegalParameterException;
 import jp.reflexworks.taggingservice.exception.NoExistingEntryException;
 import jp.reflexworks.taggingservice.exception.TaggingException;
+import jp.reflexworks.taggingservice.index.IndexJournalManager;
 import jp.reflexworks.taggingservice.index.UpdateIndexRequester;
 import jp.reflexworks.taggingservice.migrate.BDBClientMaintenanceManager;
 import jp.reflexworks.taggingservice.migrate.BDBClientServiceManager;
@@ -49,6 +50,7 @@ import jp.reflexworks.taggingservice.requester.BDBClientServerConst.BDBResponseT
 import jp.reflexworks.taggingservice.requester.BDBClientServerManager;
 import jp.reflexworks.taggingservice.requester.BDBRequester;
 import jp.reflexworks.taggingservice.requester.BDBRequesterUtil;
+import jp.reflexworks.taggingservice.requester.BDBTransportManager;
 import jp.reflexworks.taggingservice.service.BDBClientInitMainThreadManager;
 import jp.reflexworks.taggingservice.sys.SystemAuthentication;
 import jp.reflexworks.taggingservice.sys.SystemContext;
@@ -80,6 +82,16 @@ public class BDBClientManager implements DatastoreManager {
 	 * 初期起動時の処理.
 	 */
 	public void init() {
+		// BDBサーバへの通信クラスと通信統計情報の格納先を準備
+		BDBTransportManager transportManager = new BDBTransportManager();
+		transportManager.init();
+		// 更新時の排他クラスと更新処理統計情報の格納先を準備
+		BDBClientExclusionManager exclusionManager = new BDBClientExclusionManager();
+		exclusionManager.init();
+		// Entryキャッシュの格納先を準備
+		BDBClientEntryCacheManager entryCacheManager = new BDBClientEntryCacheManager();
+		entryCacheManager.init();
+
 		// システム管理サーバへ接続テスト。ここで接続できなければしばらく待ってリトライする。
 		// (後続処理でBDBにアクセス出来ないとエラーでAPサーバ起動できないため。)
 
@@ -181,6 +193,15 @@ public class BDBClientManager implements DatastoreManager {
 			BDBClientServerManager serverManager = new BDBClientServerManager();
 			serverManager.init();
 
+			// Entry圧縮辞書の取得処理を設定
+			BDBClientCodecDictionaryManager codecDictionaryManager =
+					new BDBClientCodecDictionaryManager();
+			codecDictionaryManager.init();
+
+			// インデックス更新ジャーナルを開き、未送信のインデックス更新を再送する
+			IndexJournalManager indexJournalManager = new IndexJournalManager();
+			indexJournalManager.init();
+
 		} finally {
 			if (connectionInfo != null) {
 				connectionInfo.close();
@@ -192,7 +213,12 @@ public class BDBClientManager implements DatastoreManager {
 	 * シャットダウン時の処理.
 	 */
 	public void close() {
-		// Do nothing.
+		// インデックス更新ジャーナルの送信を停止する
+		IndexJournalManager indexJournalManager = new IndexJournalManager();
+		indexJournalManager.close();
+		// BDBサーバへのコネクションを閉じる
+		BDBTransportManager transportManager = new BDBTransportManager();
+		transportManager.close();
 	}
 
 	/**
@@ -1730,6 +1756,10 @@ public class BDBClientManager implements DatastoreManager {
 		// BDBサーバURL、サーバ名の取得処理
 		BDBClientServerManager serverManager = new BDBClientServerManager();
 		serverManager.settingService(serviceName, requestInfo, connectionInfo);
+		// Entry圧縮辞書の取得処理
+		BDBClientCodecDictionaryManager codecDictionaryManager =
+				new BDBClientCodecDictionaryManager();
+		codecDictionaryManager.settingService(serviceName, requestInfo, connectionInfo);
 	}
 
 	/**
@@ -1744,6 +1774,10 @@ public class BDBClientManager implements DatastoreManager {
 			throws IOException, TaggingException {
 		BDBClientServerManager serverManager = new BDBClientServerManager();
 		serverManager.closeService(serviceName, requestInfo, connectionInfo);
+		BDBClientCodecDictionaryManager codecDictionaryManager =
+				new BDBClientCodecDictionaryManager();
+		codecDictionaryManager.closeService(serviceName);
+		BDBClientEntryCacheManager.clear(serviceName);
 	}
 
 	/**
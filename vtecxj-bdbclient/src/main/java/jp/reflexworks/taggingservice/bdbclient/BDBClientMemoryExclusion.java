@@ -0,0 +1,133 @@
+package jp.reflexworks.taggingservice.bdbclient;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import jp.reflexworks.taggingservice.sys.SystemContext;
+
+/**
+ * このサーバのメモリによる更新時の排他.
+ * <p>
+ * 排他はこのサーバ内でのみ有効。
+ * 単一サーバでの実行や、Redisを使用しないテストで使用する。
+ * </p>
+ */
+public class BDBClientMemoryExclusion implements BDBClientExclusion {
+
+	/** キーのサービス名とURIの区切り文字 */
+	private static final String KEY_DELIMITER = "#";
+
+	/** 排他情報 キー:{サービス名}#{URI}、値:排他情報 */
+	private final Map<String, Lease> leases = new HashMap<>();
+
+	/**
+	 * 排他.
+	 * @param uris URIリスト (昇順、重複なし)
+	 * @param token 排他の所有者を識別する文字列
+	 * @param sec 排他の有効期間(秒)
+	 * @param systemContext SystemContext
+	 * @return 排他できた場合null、他の所有者が排他中のURIがある場合そのURI
+	 */
+	@Override
+	public String acquire(List<String> uris, String token, int sec,
+			SystemContext systemContext) {
+		return acquire(systemContext.getServiceName(), uris, token, sec,
+				System.currentTimeMillis());
+	}
+
+	/**
+	 * 排他.
+	 * @param serviceName サービス名
+	 * @param uris URIリスト (昇順、重複なし)
+	 * @param token 排他の所有者を識別する文字列
+	 * @param sec 排他の有効期間(秒)
+	 * @param now 現在時刻(ミリ秒)
+	 * @return 排他できた場合null、他の所有者が排他中のURIがある場合そのURI
+	 */
+	String acquire(String serviceName, List<String> uris, String token, int sec, long now) {
+		synchronized (leases) {
+			for (String uri : uris) {
+				Lease lease = leases.get(getKey(serviceName, uri));
+				if (lease != null && lease.expireTime > now && !lease.token.equals(token)) {
+					return uri;
+				}
+			}
+			long expireTime = now + sec * 1000L;
+			for (String uri : uris) {
+				leases.put(getKey(serviceName, uri), new Lease(token, expireTime));
+			}
+			// 有効期限切れの排他情報を削除
+			Iterator<Lease> it = leases.values().iterator();
+			while (it.hasNext()) {
+				if (it.next().expireTime <= now) {
+					it.remove();
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * 排他解除.
+	 * @param uris URIリスト
+	 * @param token 排他の所有者を識別する文字列
+	 * @param systemContext SystemContext
+	 */
+	@Override
+	public void release(List<String> uris, String token, SystemContext systemContext) {
+		release(systemContext.getServiceName(), uris, token);
+	}
+
+	/**
+	 * 排他解除.
+	 * @param serviceName サービス名
+	 * @param uris URIリスト
+	 * @param token 排他の所有者を識別する文字列
+	 */
+	void release(String serviceName, List<String> uris, String token) {
+		synchronized (leases) {
+			for (String uri : uris) {
+				String key = getKey(serviceName, uri);
+				Lease lease = leases.get(key);
+				if (lease != null && lease.token.equals(token)) {
+					leases.remove(key);
+				}
+			}
+		}
+	}
+
+	/**
+	 * 排他情報のキーを取得.
+	 * @param serviceName サービス名
+	 * @param uri URI
+	 * @return キー
+	 */
+	private String getKey(String serviceName, String uri) {
+		return serviceName + KEY_DELIMITER + uri;
+	}
+
+	/**
+	 * 排他情報.
+	 */
+	private static class Lease {
+
+		/** 排他の所有者を識別する文字列 */
+		private final String token;
+		/** 有効期限(ミリ秒) */
+		private final long expireTime;
+
+		/**
+		 * コンストラクタ.
+		 * @param token 排他の所有者を識別する文字列
+		 * @param expireTime 有効期限(ミリ秒)
+		 */
+		Lease(String token, long expireTime) {
+			this.token = token;
+			this.expireTime = expireTime;
+		}
+
+	}
+
+}
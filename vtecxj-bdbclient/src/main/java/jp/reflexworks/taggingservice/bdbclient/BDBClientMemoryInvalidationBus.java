@@ -0,0 +1,130 @@
+package jp.reflexworks.taggingservice.bdbclient;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import jp.reflexworks.taggingservice.sys.SystemContext;
+
+/**
+ * このサーバのメモリによるEntryキャッシュの無効化通知.
+ * <p>
+ * 通知と更新スタンプはこのサーバ内でのみ有効。
+ * 単一サーバでの実行や、Redisを使用しないテストで使用する。
+ * </p>
+ */
+public class BDBClientMemoryInvalidationBus implements BDBClientInvalidationBus {
+
+	/** 有効時間切れの更新スタンプを削除する最小件数 */
+	private static final int PURGE_SIZE_MIN = 1024;
+
+	/** 受信処理リスト */
+	private final List<Consumer<String>> listeners = new CopyOnWriteArrayList<>();
+	/** 更新スタンプ キー:{サービス名}\n{URI}、値:更新スタンプ */
+	private final ConcurrentMap<String, Stamp> stamps = new ConcurrentHashMap<>();
+	/** 次に有効時間切れの更新スタンプを削除する件数 */
+	private volatile int purgeSize = PURGE_SIZE_MIN;
+
+	/**
+	 * 無効化通知を送信.
+	 * 受信処理を呼び出し元のスレッドで実行する。
+	 * @param message 通知メッセージ
+	 * @param systemContext SystemContext
+	 */
+	@Override
+	public void publish(String message, SystemContext systemContext) {
+		for (Consumer<String> listener : listeners) {
+			listener.accept(message);
+		}
+	}
+
+	/**
+	 * 無効化通知の受信を開始.
+	 * @param listener 通知メッセージ受信時の処理
+	 */
+	@Override
+	public void subscribe(Consumer<String> listener) {
+		listeners.add(listener);
+	}
+
+	/**
+	 * 更新スタンプを登録.
+	 * @param serviceName サービス名
+	 * @param uris URIリスト
+	 * @param stampValues 更新スタンプリスト (URIリストと同じ順序)
+	 * @param sec 有効時間(秒)
+	 * @param systemContext SystemContext
+	 */
+	@Override
+	public void putStamps(String serviceName, List<String> uris, List<String> stampValues,
+			int sec, SystemContext systemContext) {
+		long now = System.currentTimeMillis();
+		long expireTime = now + sec * 1000L;
+		for (int i = 0; i < uris.size(); i++) {
+			stamps.put(getKey(serviceName, uris.get(i)),
+					new Stamp(stampValues.get(i), expireTime));
+		}
+		// 件数が増えた場合、有効時間切れの更新スタンプを削除
+		if (stamps.size() >= purgeSize) {
+			stamps.values().removeIf(stamp -> stamp.expireTime <= now);
+			purgeSize = Math.max(PURGE_SIZE_MIN, stamps.size() * 2);
+		}
+	}
+
+	/**
+	 * 更新スタンプを取得.
+	 * @param serviceName サービス名
+	 * @param uris URIリスト
+	 * @param systemContext SystemContext
+	 * @return 更新スタンプリスト (URIリストと同じ順序。有効時間内に更新が無いURIはnull)
+	 */
+	@Override
+	public List<String> getStamps(String serviceName, List<String> uris,
+			SystemContext systemContext) {
+		long now = System.currentTimeMillis();
+		List<String> stampValues = new ArrayList<>(uris.size());
+		for (String uri : uris) {
+			Stamp stamp = stamps.get(getKey(serviceName, uri));
+			if (stamp == null || stamp.expireTime <= now) {
+				stampValues.add(null);
+			} else {
+				stampValues.add(stamp.value);
+			}
+		}
+		return stampValues;
+	}
+
+	/**
+	 * 更新スタンプのキーを取得.
+	 * @param serviceName サービス名
+	 * @param uri URI
+	 * @return キー
+	 */
+	private String getKey(String serviceName, String uri) {
+		return serviceName + "\n" + uri;
+	}
+
+	/**
+	 * 更新スタンプ.
+	 */
+	private static class Stamp {
+		/** 値 */
+		private final String value;
+		/** 有効期限(エポックミリ秒) */
+		private final long expireTime;
+
+		/**
+		 * コンストラクタ.
+		 * @param value 値
+		 * @param expireTime 有効期限(エポックミリ秒)
+		 */
+		Stamp(String value, long expireTime) {
+			this.value = value;
+			this.expireTime = expireTime;
+		}
+	}
+
+}
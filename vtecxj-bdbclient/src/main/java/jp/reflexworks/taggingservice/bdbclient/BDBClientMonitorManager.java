@@ -15,9 +15,11 @@ import jp.reflexworks.taggingservice.api.RequestParam;
 import jp.reflexworks.taggingservice.env.TaggingEnvUtil;
 import jp.reflexworks.taggingservice.exception.IllegalParameterException;
 import jp.reflexworks.taggingservice.exception.TaggingException;
+import jp.reflexworks.taggingservice.index.IndexJournalManager;
 import jp.reflexworks.taggingservice.requester.BDBClientServerConst.BDBResponseType;
 import jp.reflexworks.taggingservice.requester.BDBRequester;
 import jp.reflexworks.taggingservice.requester.BDBRequesterUtil;
+import jp.reflexworks.taggingservice.requester.BDBTransportManager;
 import jp.reflexworks.taggingservice.util.CheckUtil;
 import jp.reflexworks.taggingservice.util.Constants;
 import jp.sourceforge.reflex.util.StringUtils;
@@ -43,6 +45,22 @@ public class BDBClientMonitorManager {
 		String monitor = param.getOption(RequestParam.PARAM_MONITOR);
 		String targetService = param.getOption(BDBClientConst.PARAM_SERVICE);
 		String server = param.getOption(RequestParam.PARAM_SERVER);
+		if (BDBClientConst.MONITOR_BDBREQUEST.equals(monitor)) {
+			// BDBリクエスト通信統計 (このサーバ内の情報)
+			return BDBTransportManager.getStatsFeed();
+		}
+		if (BDBClientConst.MONITOR_UPDATE.equals(monitor)) {
+			// 更新処理統計 (このサーバ内の情報)
+			return BDBClientExclusionManager.getUpdateStatsFeed();
+		}
+		if (BDBClientConst.MONITOR_INDEXJOURNAL.equals(monitor)) {
+			// インデックス更新ジャーナル (このサーバ内の情報)
+			return IndexJournalManager.getStatsFeed();
+		}
+		if (BDBClientConst.MONITOR_ENTRYCACHE.equals(monitor)) {
+			// Entryキャッシュ (このサーバ内の情報)
+			return BDBClientEntryCacheManager.getStatsFeed();
+		}
 		CheckUtil.checkNotNull(targetService, "list servicename (" + BDBClientConst.PARAM_SERVICE + ")");
 
 		// BDBサーバにリクエスト
@@ -0,0 +1,542 @@
+package jp.reflexworks.taggingservice.bdbclient;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jp.reflexworks.atom.api.Condition;
+import jp.reflexworks.atom.entry.EntryBase;
+import jp.reflexworks.atom.entry.FeedBase;
+import jp.reflexworks.taggingservice.api.ConnectionInfo;
+import jp.reflexworks.taggingservice.api.ReflexAuthentication;
+import jp.reflexworks.taggingservice.api.ReflexContext;
+import jp.reflexworks.taggingservice.api.RequestInfo;
+import jp.reflexworks.taggingservice.env.TaggingEnvUtil;
+import jp.reflexworks.taggingservice.exception.IllegalParameterException;
+import jp.reflexworks.taggingservice.exception.TaggingException;
+import jp.reflexworks.taggingservice.util.EntryFilterUtil;
+import jp.reflexworks.taggingservice.util.LogUtil;
+import jp.reflexworks.taggingservice.util.TaggingEntryUtil;
+import jp.sourceforge.reflex.util.StringUtils;
+
+/**
+ * OR条件のFeed検索を並列に実行するクラス.
+ * <p>
+ * OR条件ごとの検索を並列に実行し、各条件の検索結果をキーの順にマージ(k-wayマージ)する。
+ * いずれかの条件の取得済みEntryがなくなった時点で、その条件のみ続きを検索してマージを続ける。<br>
+ * 複数の条件に合致するEntryは、合致する条件のうち先頭の条件の検索結果としてのみ返却する。
+ * 前の条件に合致するかどうかはEntryに対してインメモリで判定するため、
+ * セッションに検索済みキーを保持せずにページをまたいだ重複を除くことができる。
+ * </p>
+ * <p>
+ * カーソルはOR条件ごとの検索位置を保持する。<br>
+ * {OR条件0のカーソル}.{OR条件1のカーソル}. ...<br>
+ * 各カーソルはBase64(URLセーフ)でエンコードする。未検索の場合は空文字、検索終了の場合は"~"とする。
+ * </p>
+ * <p>
+ * 従来のOR検索とは次の点が異なるため、デフォルトでは使用しない。
+ * <ul>
+ * <li>検索結果はOR条件の順ではなく、全ての条件を通したキーの順になる。</li>
+ * <li>ページをまたいだ重複の除去は、前の条件に合致するかどうかをこのサーバで判定して行うため、
+ * インメモリで判定できる条件のみ対象とする。</li>
+ * <li>途中まで返却した条件のカーソルを再取得するため、検索のリクエスト回数が増える場合がある。</li>
+ * </ul>
+ * </p>
+ */
+public class BDBClientOrFeedManager {
+
+	/** ロガー. */
+	private Logger logger = LoggerFactory.getLogger(this.getClass());
+
+	/**
+	 * OR条件の並列検索を行うかどうか.
+	 * 全文検索条件はインメモリで判定できないため、全文検索条件を含む場合は並列検索を行わない。
+	 * @param conditions OR条件ごとの検索条件
+	 * @param innerCursor カーソル
+	 * @return OR条件の並列検索を行う場合true
+	 */
+	public boolean isTarget(List<List<Condition>> conditions, InnerCursor innerCursor) {
+		if (conditions == null || conditions.size() <= 1) {
+			return false;
+		}
+		for (List<Condition> conditionList : conditions) {
+			if (conditionList == null) {
+				continue;
+			}
+			for (Condition condition : conditionList) {
+				if (Condition.FULL_TEXT_SEARCH.equals(condition.getEquations())) {
+					return false;
+				}
+			}
+		}
+		if (innerCursor != null && innerCursor.getCursorStr() != null) {
+			// 並列検索のカーソルの場合のみ対象
+			return innerCursor.isOrBranches();
+		}
+		return BDBClientUtil.isEnableParallelOr();
+	}
+
+	/**
+	 * OR条件のFeed検索.
+	 * @param conditionUri 親階層またはURI前方一致条件。末尾スラッシュ付加済み。
+	 * @param isUriForwardMatch URI前方一致の場合のtrue
+	 * @param conditions OR条件ごとの検索条件
+	 * @param limit 取得する最大Entry数
+	 * @param orCursorStr OR条件ごとのカーソル (初回検索の場合null)
+	 * @param idSet 検索済みEntryのID格納リスト
+	 * @param useCache キャッシュを使用する場合true
+	 * @param reflexContext ReflexContext
+	 * @return 検索結果。カーソルは「*,{OR条件ごとのカーソル}」形式。
+	 */
+	public FeedBase getFeed(String conditionUri, boolean isUriForwardMatch,
+			List<List<Condition>> conditions, int limit, String orCursorStr,
+			Set<String> idSet, boolean useCache, ReflexContext reflexContext)
+	throws IOException, TaggingException {
+		String serviceName = reflexContext.getServiceName();
+		ReflexAuthentication auth = reflexContext.getAuth();
+		RequestInfo requestInfo = reflexContext.getRequestInfo();
+		ConnectionInfo connectionInfo = reflexContext.getConnectionInfo();
+
+		List<Branch> branches = createBranches(conditions, orCursorStr);
+		final int fetchLimit = TaggingEnvUtil.getFetchLimit();
+		int fetchCnt = 0;
+		boolean exceedEntryLimit = false;
+		List<EntryBase> retEntries = new ArrayList<>();
+
+		while (retEntries.size() < limit && !exceedEntryLimit) {
+			// 取得済みEntryがない条件の続きを並列に検索
+			List<Branch> targets = new ArrayList<>();
+			for (Branch branch : branches) {
+				if (!branch.isEnd && !branch.hasBuffered()) {
+					targets.add(branch);
+				}
+			}
+			if (!targets.isEmpty()) {
+				int searchLimit = limit - retEntries.size() + 1;
+				List<FeedBase> feeds = requestGetFeeds(conditionUri, isUriForwardMatch,
+						targets, searchLimit, useCache, auth, requestInfo, connectionInfo);
+				for (int i = 0; i < targets.size(); i++) {
+					Branch branch = targets.get(i);
+					FeedBase feed = feeds.get(i);
+					setPage(branch, feed, branches);
+					if (feed != null) {
+						if (BDBClientConst.MARK_FETCH_LIMIT.equals(feed.rights)) {
+							exceedEntryLimit = true;
+						}
+					}
+					// インメモリ検索等で検索を繰り返す場合のためのフェッチ件数チェック
+					if (branch.pageCursorStr != null) {
+						fetchCnt += searchLimit;
+					} else if (feed != null && feed.entry != null) {
+						fetchCnt += feed.entry.size();
+					}
+				}
+				if (fetchCnt > fetchLimit) {
+					exceedEntryLimit = true;
+				}
+			}
+
+			// k-wayマージ
+			// 検索が終了していない条件の取得済みEntryがなくなった時点で、続きを検索する。
+			boolean needNext = false;
+			while (retEntries.size() < limit) {
+				Branch minBranch = null;
+				for (Branch branch : branches) {
+					if (!branch.hasBuffered()) {
+						if (!branch.isEnd) {
+							needNext = true;
+							break;
+						}
+						continue;
+					}
+					if (minBranch == null ||
+							branch.peekKey().compareTo(minBranch.peekKey()) < 0) {
+						minBranch = branch;
+					}
+				}
+				if (needNext || minBranch == null) {
+					break;
+				}
+				EntryBase entry = minBranch.next();
+				if (!idSet.contains(entry.id)) {
+					idSet.add(entry.id);
+					retEntries.add(entry);
+				}
+			}
+			if (!needNext) {
+				break;
+			}
+		}
+
+		FeedBase retFeed = TaggingEntryUtil.createFeed(serviceName);
+		retFeed.setEntry(retEntries);
+		if (exceedEntryLimit) {
+			retFeed.rights = BDBClientConst.MARK_FETCH_LIMIT;
+		}
+		String retCursorStr = getOrCursor(conditionUri, isUriForwardMatch, branches,
+				useCache, auth, requestInfo, connectionInfo);
+		if (logger.isTraceEnabled()) {
+			logger.debug(LogUtil.getRequestInfoStr(requestInfo) +
+					"[getFeed] OR branches=" + branches.size() + ", entries=" +
+					retEntries.size() + ", cursor=" + retCursorStr);
+		}
+		if (retCursorStr != null) {
+			// OR条件ごとのカーソルであることを付加
+			retCursorStr = BDBClientConst.CURSOR_OR_BRANCHES +
+					BDBClientConst.CURSOR_SEPARATOR + retCursorStr;
+		}
+		TaggingEntryUtil.setCursorToFeed(retCursorStr, retFeed);
+		return retFeed;
+	}
+
+	/**
+	 * OR条件ごとの検索状態を生成.
+	 * @param conditions OR条件ごとの検索条件
+	 * @param orCursorStr OR条件ごとのカーソル
+	 * @return OR条件ごとの検索状態
+	 */
+	private List<Branch> createBranches(List<List<Condition>> conditions, String orCursorStr) {
+		int size = conditions.size();
+		String[] cursors = null;
+		if (!StringUtils.isBlank(orCursorStr)) {
+			cursors = orCursorStr.split("\\" + BDBClientConst.CURSOR_OR_BRANCH_SEPARATOR, -1);
+			if (cursors.length != size) {
+				throw new IllegalParameterException("The cursor is invalid. " + orCursorStr);
+			}
+		}
+		List<Branch> branches = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			Branch branch = new Branch(conditions.get(i));
+			if (cursors != null) {
+				String cursor = cursors[i];
+				if (BDBClientConst.CURSOR_OR_BRANCH_END.equals(cursor)) {
+					branch.isEnd = true;
+				} else if (!cursor.isEmpty()) {
+					branch.cursorStr = decodeCursor(cursor, orCursorStr);
+				}
+			}
+			branches.add(branch);
+		}
+		return branches;
+	}
+
+	/**
+	 * OR条件ごとの検索を並列に実行.
+	 * @param conditionUri 親階層またはURI前方一致条件
+	 * @param isUriForwardMatch URI前方一致の場合のtrue
+	 * @param targets 検索するOR条件
+	 * @param searchLimit 最大取得件数
+	 * @param useCache キャッシュを使用する場合true
+	 * @param auth 認証情報
+	 * @param requestInfo リクエスト情報
+	 * @param connectionInfo コネクション情報
+	 * @return 検索結果 (OR条件と同じ順序)
+	 */
+	private List<FeedBase> requestGetFeeds(String conditionUri, boolean isUriForwardMatch,
+			List<Branch> targets, int searchLimit, boolean useCache,
+			ReflexAuthentication auth, RequestInfo requestInfo, ConnectionInfo connectionInfo)
+	throws IOException, TaggingException {
+		List<Integer> limits = new ArrayList<>(targets.size());
+		List<String> cursors = new ArrayList<>(targets.size());
+		for (Branch branch : targets) {
+			limits.add(searchLimit);
+			cursors.add(branch.cursorStr);
+		}
+		return requestGetFeeds(conditionUri, isUriForwardMatch, targets, limits, cursors,
+				useCache, auth, requestInfo, connectionInfo);
+	}
+
+	/**
+	 * OR条件ごとの検索を並列に実行.
+	 * 検索が1件のみの場合は呼び出しスレッドで実行する。
+	 * 各条件の検索は非同期処理で実行するため、その中のEntry取得は非同期処理を登録せず
+	 * 同じスレッドで行われる。
+	 * @param conditionUri 親階層またはURI前方一致条件
+	 * @param isUriForwardMatch URI前方一致の場合のtrue
+	 * @param targets 検索するOR条件
+	 * @param limits OR条件ごとの最大取得件数
+	 * @param cursors OR条件ごとのカーソル
+	 * @param useCache キャッシュを使用する場合true
+	 * @param auth 認証情報
+	 * @param requestInfo リクエスト情報
+	 * @param connectionInfo コネクション情報
+	 * @return 検索結果 (OR条件と同じ順序)
+	 */
+	private List<FeedBase> requestGetFeeds(String conditionUri, boolean isUriForwardMatch,
+			List<Branch> targets, List<Integer> limits, List<String> cursors, boolean useCache,
+			ReflexAuthentication auth, RequestInfo requestInfo, ConnectionInfo connectionInfo)
+	throws IOException, TaggingException {
+		List<FeedBase> feeds = new ArrayList<>(targets.size());
+		if (targets.size() == 1) {
+			BDBClientRetrieveManager retrieveManager = new BDBClientRetrieveManager();
+			feeds.add(retrieveManager.requestGetFeed(conditionUri, isUriForwardMatch,
+					targets.get(0).conditions, limits.get(0), cursors.get(0), useCache,
+					auth, requestInfo, connectionInfo));
+			return feeds;
+		}
+
+		List<Future<FeedBase>> futures = new ArrayList<>(targets.size());
+		for (int i = 0; i < targets.size(); i++) {
+			BDBClientRequestGetFeedCallable callable = new BDBClientRequestGetFeedCallable(
+					conditionUri, isUriForwardMatch, targets.get(i).conditions,
+					limits.get(i), cursors.get(i), useCache);
+			futures.add(callable.addTask(auth, requestInfo, connectionInfo));
+		}
+		for (Future<FeedBase> future : futures) {
+			try {
+				feeds.add(future.get());
+
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				if (logger.isInfoEnabled()) {
+					logger.info(LogUtil.getRequestInfoStr(requestInfo) +
+							"[requestGetFeeds] ExecutionException: " +
+							cause.getMessage());
+				}
+				if (cause instanceof IOException) {
+					throw (IOException)cause;
+				} else if (cause instanceof TaggingException) {
+					throw (TaggingException)cause;
+				} else {
+					throw new IOException(cause);
+				}
+			} catch (InterruptedException e) {
+				if (logger.isInfoEnabled()) {
+					logger.info(LogUtil.getRequestInfoStr(requestInfo) +
+							"[requestGetFeeds] InterruptedException: " +
+							e.getMessage());
+				}
+				Thread.currentThread().interrupt();
+				throw new IOException(e);
+			}
+		}
+		return feeds;
+	}
+
+	/**
+	 * 検索結果をOR条件の取得済みEntryに設定.
+	 * 前のOR条件に合致するEntryは、前のOR条件の検索結果として返却するため除く。
+	 * @param branch OR条件の検索状態
+	 * @param feed 検索結果
+	 * @param branches 全てのOR条件の検索状態
+	 */
+	private void setPage(Branch branch, FeedBase feed, List<Branch> branches) {
+		branch.pageStartCursorStr = branch.cursorStr;
+		branch.entries = new ArrayList<>();
+		branch.positions = new ArrayList<>();
+		branch.pos = 0;
+		branch.consumedPosition = 0;
+		branch.pageCursorStr = TaggingEntryUtil.getCursorFromFeed(feed);
+		if (feed != null && feed.entry != null) {
+			int cnt = 0;
+			for (EntryBase entry : feed.entry) {
+				cnt++;
+				if (!isMatchPrevious(entry, branch, branches)) {
+					branch.entries.add(entry);
+					branch.positions.add(cnt);
+				}
+			}
+		}
+		branch.cursorStr = branch.pageCursorStr;
+		if (!branch.hasBuffered() && branch.pageCursorStr == null) {
+			branch.isEnd = true;
+		}
+	}
+
+	/**
+	 * Entryが前のOR条件に合致するかどうか.
+	 * @param entry Entry
+	 * @param branch OR条件の検索状態
+	 * @param branches 全てのOR条件の検索状態
+	 * @return 前のOR条件に合致する場合true
+	 */
+	private boolean isMatchPrevious(EntryBase entry, Branch branch, List<Branch> branches) {
+		for (Branch prevBranch : branches) {
+			if (prevBranch == branch) {
+				return false;
+			}
+			if (EntryFilterUtil.isMatch(entry, prevBranch.matchConditions)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * 返却するOR条件ごとのカーソルを取得.
+	 * 取得済みEntryを途中まで返却したOR条件は、返却した位置のカーソルを再取得する。
+	 * @param conditionUri 親階層またはURI前方一致条件
+	 * @param isUriForwardMatch URI前方一致の場合のtrue
+	 * @param branches OR条件ごとの検索状態
+	 * @param useCache キャッシュを使用する場合true
+	 * @param auth 認証情報
+	 * @param requestInfo リクエスト情報
+	 * @param connectionInfo コネクション情報
+	 * @return OR条件ごとのカーソル。全てのOR条件の検索が終了した場合null。
+	 */
+	private String getOrCursor(String conditionUri, boolean isUriForwardMatch,
+			List<Branch> branches, boolean useCache,
+			ReflexAuthentication auth, RequestInfo requestInfo, ConnectionInfo connectionInfo)
+	throws IOException, TaggingException {
+		// 途中まで返却したOR条件のカーソルを並列に再取得
+		List<Branch> targets = new ArrayList<>();
+		List<Integer> limits = new ArrayList<>();
+		List<String> cursors = new ArrayList<>();
+		for (Branch branch : branches) {
+			if (branch.hasBuffered()) {
+				if (branch.consumedPosition > 0) {
+					targets.add(branch);
+					limits.add(branch.consumedPosition);
+					cursors.add(branch.pageStartCursorStr);
+				} else {
+					// このページは1件も返却していない
+					branch.cursorStr = branch.pageStartCursorStr;
+				}
+			}
+		}
+		if (!targets.isEmpty()) {
+			List<FeedBase> feeds = requestGetFeeds(conditionUri, isUriForwardMatch,
+					targets, limits, cursors, useCache, auth, requestInfo, connectionInfo);
+			for (int i = 0; i < targets.size(); i++) {
+				Branch branch = targets.get(i);
+				branch.cursorStr = TaggingEntryUtil.getCursorFromFeed(feeds.get(i));
+				if (branch.cursorStr == null) {
+					// 続きのEntryが返却位置以降の検索で除かれた
+					branch.isEnd = true;
+				}
+			}
+		}
+
+		boolean isEnd = true;
+		StringBuilder sb = new StringBuilder();
+		boolean isFirst = true;
+		for (Branch branch : branches) {
+			if (isFirst) {
+				isFirst = false;
+			} else {
+				sb.append(BDBClientConst.CURSOR_OR_BRANCH_SEPARATOR);
+			}
+			if (branch.isEnd) {
+				sb.append(BDBClientConst.CURSOR_OR_BRANCH_END);
+			} else {
+				isEnd = false;
+				if (branch.cursorStr != null) {
+					sb.append(encodeCursor(branch.cursorStr));
+				}
+			}
+		}
+		if (isEnd) {
+			return null;
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * OR条件のカーソルをエンコード.
+	 * @param cursorStr カーソル
+	 * @return エンコードしたカーソル
+	 */
+	private String encodeCursor(String cursorStr) {
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(
+				cursorStr.getBytes(StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * OR条件のカーソルをデコード.
+	 * @param cursor エンコードしたカーソル
+	 * @param orCursorStr OR条件ごとのカーソル (エラーメッセージ用)
+	 * @return カーソル
+	 */
+	private String decodeCursor(String cursor, String orCursorStr) {
+		try {
+			return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+		} catch (IllegalArgumentException e) {
+			throw new IllegalParameterException("The cursor is invalid. " + orCursorStr);
+		}
+	}
+
+	/**
+	 * OR条件ごとの検索状態.
+	 */
+	private static class Branch {
+
+		/** 検索条件 */
+		private final List<Condition> conditions;
+		/** インメモリ判定用の検索条件 (ソート条件を除く) */
+		private final Condition[] matchConditions;
+		/** 次の検索のカーソル */
+		private String cursorStr;
+		/** 検索が終了した場合true */
+		private boolean isEnd;
+		/** 取得済みページの検索に使用したカーソル */
+		private String pageStartCursorStr;
+		/** 取得済みページのカーソル */
+		private String pageCursorStr;
+		/** 取得済みEntryリスト */
+		private List<EntryBase> entries;
+		/** 取得済みEntryの検索結果中の位置 (1からスタート) */
+		private List<Integer> positions;
+		/** 次に返却する取得済みEntryの添字 */
+		private int pos;
+		/** 返却した取得済みEntryの検索結果中の位置 */
+		private int consumedPosition;
+
+		/**
+		 * コンストラクタ.
+		 * @param conditions 検索条件
+		 */
+		Branch(List<Condition> conditions) {
+			this.conditions = conditions;
+			List<Condition> tmpConditions = new ArrayList<>();
+			if (conditions != null) {
+				for (Condition condition : conditions) {
+					if (!Condition.ASC.equals(condition.getEquations()) &&
+							!Condition.DESC.equals(condition.getEquations())) {
+						tmpConditions.add(condition);
+					}
+				}
+			}
+			this.matchConditions = tmpConditions.toArray(new Condition[0]);
+		}
+
+		/**
+		 * 取得済みEntryがあるかどうか.
+		 * @return 取得済みEntryがある場合true
+		 */
+		boolean hasBuffered() {
+			return entries != null && pos < entries.size();
+		}
+
+		/**
+		 * 次に返却するEntryのキーを取得.
+		 * @return キー
+		 */
+		String peekKey() {
+			return entries.get(pos).getMyUri();
+		}
+
+		/**
+		 * 次に返却するEntryを取得.
+		 * 取得済みEntryを全て返却し、続きがない場合は検索終了とする。
+		 * @return Entry
+		 */
+		EntryBase next() {
+			EntryBase entry = entries.get(pos);
+			consumedPosition = positions.get(pos);
+			pos++;
+			if (!hasBuffered() && pageCursorStr == null) {
+				isEnd = true;
+			}
+			return entry;
+		}
+	}
+
+}
@@ -0,0 +1,101 @@
+package jp.reflexworks.taggingservice.bdbclient;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jp.reflexworks.atom.api.Condition;
+import jp.reflexworks.atom.entry.FeedBase;
+import jp.reflexworks.taggingservice.api.ConnectionInfo;
+import jp.reflexworks.taggingservice.api.ReflexAuthentication;
+import jp.reflexworks.taggingservice.api.RequestInfo;
+import jp.reflexworks.taggingservice.exception.TaggingException;
+import jp.reflexworks.taggingservice.taskqueue.ReflexCallable;
+import jp.reflexworks.taggingservice.taskqueue.TaskQueueUtil;
+import jp.reflexworks.taggingservice.util.LogUtil;
+
+/**
+ * Feed検索処理.
+ */
+public class BDBClientRequestGetFeedCallable extends ReflexCallable<FeedBase> {
+
+	/** 親階層またはURI前方一致条件 */
+	private String conditionUri;
+	/** URI前方一致の場合true */
+	private boolean isUriForwardMatch;
+	/** 検索条件リスト */
+	private List<Condition> conditions;
+	/** 最大取得件数 */
+	private int limit;
+	/** カーソル */
+	private String cursorStr;
+	/** キャッシュを使用する場合true */
+	private boolean useCache;
+
+	/** ロガー. */
+	private Logger logger = LoggerFactory.getLogger(this.getClass());
+
+	/**
+	 * コンストラクタ
+	 * @param conditionUri 親階層またはURI前方一致条件
+	 * @param isUriForwardMatch URI前方一致の場合true
+	 * @param conditions 検索条件リスト
+	 * @param limit 最大取得件数
+	 * @param cursorStr カーソル
+	 * @param useCache キャッシュを使用する場合true
+	 */
+	public BDBClientRequestGetFeedCallable(String conditionUri, boolean isUriForwardMatch,
+			List<Condition> conditions, int limit, String cursorStr, boolean useCache) {
+		this.conditionUri = conditionUri;
+		this.isUriForwardMatch = isUriForwardMatch;
+		this.conditions = conditions;
+		this.limit = limit;
+		this.cursorStr = cursorStr;
+		this.useCache = useCache;
+	}
+
+	/**
+	 * 非同期処理登録.
+	 * @param auth 認証情報
+	 * @param requestInfo リクエスト情報
+	 * @param connectionInfo コネクション情報 (ReadEntryMapを利用)
+	 * @return Future
+	 */
+	public Future<FeedBase> addTask(ReflexAuthentication auth, RequestInfo requestInfo,
+			ConnectionInfo connectionInfo)
+	throws IOException, TaggingException {
+		return (Future<FeedBase>)TaskQueueUtil.addTask(this, 0, auth, requestInfo, connectionInfo);
+	}
+
+	/**
+	 * Feed検索処理.
+	 * @return 検索結果
+	 */
+	@Override
+	public FeedBase call() throws IOException, TaggingException {
+		RequestInfo requestInfo = getRequestInfo();
+		ConnectionInfo connectionInfo = getConnectionInfo();
+		ReflexAuthentication auth = getAuth();
+		if (logger.isTraceEnabled()) {
+			logger.trace(LogUtil.getRequestInfoStr(requestInfo) +
+					"[Request GetFeed call] start.");
+		}
+
+		try {
+			BDBClientRetrieveManager retrieveManager = new BDBClientRetrieveManager();
+			return retrieveManager.requestGetFeed(conditionUri, isUriForwardMatch,
+					conditions, limit, cursorStr, useCache, auth, requestInfo,
+					connectionInfo);
+
+		} finally {
+			if (logger.isTraceEnabled()) {
+				logger.trace(LogUtil.getRequestInfoStr(requestInfo) +
+						"[Request GetFeed call] end.");
+			}
+		}
+	}
+
+}
@@ -9,6 +9,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
@@ -34,16 +35,21 @@ import jp.reflexworks.taggingservice.exception.TaggingException;
 import jp.reflexworks.taggingservice.index.BDBClientIndexUtil;
 import jp.reflexworks.taggingservice.index.EntryManager;
 import jp.reflexworks.taggingservice.index.FullTextSearchManager;
+import jp.reflexworks.taggingservice.index.IndexIntersectManager;
 import jp.reflexworks.taggingservice.index.InnerIndexManager;
 import jp.reflexworks.taggingservice.index.ManifestManager;
 import jp.reflexworks.taggingservice.model.EditedCondition;
+import jp.reflexworks.taggingservice.model.Template;
 import jp.reflexworks.taggingservice.model.Value;
 import jp.reflexworks.taggingservice.requester.BDBClientServerConst.BDBResponseType;
 import jp.reflexworks.taggingservice.requester.BDBRequester;
 import jp.reflexworks.taggingservice.requester.BDBRequesterUtil;
 import jp.reflexworks.taggingservice.sys.SystemAuthentication;
+import jp.reflexworks.taggingservice.sys.SystemContext;
+import jp.reflexworks.taggingservice.taskqueue.TaskQueueUtil;
 import jp.reflexworks.taggingservice.util.CheckUtil;
 import jp.reflexworks.taggingservice.util.Constants;
+import jp.reflexworks.taggingservice.util.EntryFilterUtil;
 import jp.reflexworks.taggingservice.util.LogUtil;
 import jp.reflexworks.taggingservice.util.TaggingEntryUtil;
 import jp.sourceforge.reflex.util.StringUtils;
@@ -55,6 +61,8 @@ public class BDBClientRetrieveManager {
 
 	/** GETメソッド */
 	private static final String METHOD_GET = Constants.GET;
+	/** POSTメソッド */
+	private static final String METHOD_POST = Constants.POST;
 	/** Feed検索条件の符号区切り文字をエンコードしたもの */
 	//private static final String ENCODED_EQUATIONS_DELIMITER =
 	//		BDBClientUtil.urlEncode(Condition.DELIMITER);
@@ -214,6 +222,20 @@ public class BDBClientRetrieveManager {
 
 		Integer tmpLimit = limit;
 
+		// 条件指定のない親階層の件数は、Manifestサーバのフォルダ件数から取得する。
+		// フォルダ件数はManifestの件数のため、Entry本体の存在チェックは行わない。
+		if (!isUrlForwardMatch && (conditions == null || conditions.isEmpty()) &&
+				StringUtils.isBlank(cursorStr) && BDBClientUtil.isEnableFolderCount()) {
+			ManifestManager manifestManager = new ManifestManager();
+			Long folderCount = manifestManager.getFolderCount(
+					TaggingEntryUtil.editSlash(parentUri), reflexContext.getAuth(),
+					reflexContext.getRequestInfo(), reflexContext.getConnectionInfo());
+			if (folderCount != null && (limit == null || folderCount <= limit)) {
+				feed.title = String.valueOf(folderCount);
+				return feed;
+			}
+		}
+
 		String conditionUri = TaggingEntryUtil.editSlash(parentUri);
 		if (isUrlForwardMatch) {
 			conditionUri = conditionUri + uriForwardSelfid;
@@ -436,6 +458,13 @@ public class BDBClientRetrieveManager {
 			}
 		}
 
+		// OR条件の場合、条件ごとの検索を並列に実行する。
+		BDBClientOrFeedManager orFeedManager = new BDBClientOrFeedManager();
+		if (orFeedManager.isTarget(conditions, innerCursor)) {
+			return orFeedManager.getFeed(conditionUri, isUriForwardMatch,
+					conditions, limit, retCursorStr, idSet, useCache, reflexContext);
+		}
+
 		// データ検索
 		// カーソルを返すかどうか
 		FeedBase retFeed = null;
@@ -903,31 +932,44 @@ public class BDBClientRetrieveManager {
 
 			EntryBase respEntry = null;
 			if (!StringUtils.isBlank(id)) {
-				// IDをキーにEntry検索
-				String entryUriStr = BDBClientUtil.getEntryUri(id);
-				// Entryサーバ検索
-				String idUri = TaggingEntryUtil.getUriById(id);
-				String entryServerUrl = BDBClientUtil.getEntryServerUrl(idUri, serviceName,
-						requestInfo, connectionInfo);
 				FeedTemplateMapper mapper = TaggingEnvUtil.getResourceMapper(serviceName);
+				// Entryキャッシュ検索
+				boolean useEntryCache = BDBClientEntryCacheManager.isEnabled();
+				if (useEntryCache) {
+					respEntry = BDBClientEntryCacheManager.get(serviceName, id, mapper,
+							new SystemContext(auth, requestInfo, connectionInfo));
+				}
+				if (respEntry == null) {
+					long requestTime = System.currentTimeMillis();
+					// IDをキーにEntry検索
+					String entryUriStr = BDBClientUtil.getEntryUri(id);
+					// Entryサーバ検索
+					String idUri = TaggingEntryUtil.getUriById(id);
+					String entryServerUrl = BDBClientUtil.getEntryServerUrl(idUri, serviceName,
+							requestInfo, connectionInfo);
 
-				BDBRequester<EntryBase> requester = new BDBRequester<>(BDBResponseType.ENTRY);
-				BDBResponseInfo<EntryBase> respInfo = requester.request(entryServerUrl,
-						entryUriStr, method, null, mapper, serviceName, requestInfo,
-						connectionInfo);
+					BDBRequester<EntryBase> requester = new BDBRequester<>(BDBResponseType.ENTRY);
+					BDBResponseInfo<EntryBase> respInfo = requester.request(entryServerUrl,
+							entryUriStr, method, null, mapper, serviceName, requestInfo,
+							connectionInfo);
 
-				if (isEnableAccessLog()) {
-					StringBuilder sb = new StringBuilder();
-					sb.append(LogUtil.getRequestInfoStr(requestInfo));
-					sb.append("[requestGetEntry] request to entry server. uri=");
-					sb.append(uri);
-					sb.append(LogUtil.getElapsedTimeLog(startTime));
-					logger.debug(sb.toString());
-					startTime = new Date().getTime();
-				}
+					if (isEnableAccessLog()) {
+						StringBuilder sb = new StringBuilder();
+						sb.append(LogUtil.getRequestInfoStr(requestInfo));
+						sb.append("[requestGetEntry] request to entry server. uri=");
+						sb.append(uri);
+						sb.append(LogUtil.getElapsedTimeLog(startTime));
+						logger.debug(sb.toString());
+						startTime = new Date().getTime();
+					}
 
-				// 成功
-				respEntry = respInfo.data;
+					// 成功
+					respEntry = respInfo.data;
+					if (useEntryCache) {
+						BDBClientEntryCacheManager.put(serviceName, respEntry, mapper,
+								requestTime);
+					}
+				}
 			}
 
 			// スレッド内キャッシュに格納
@@ -979,6 +1021,18 @@ public class BDBClientRetrieveManager {
 		String serviceName = auth.getServiceName();
 		// BDBサーバにリクエスト
 		try {
+			FeedTemplateMapper mapper = TaggingEnvUtil.getResourceMapper(serviceName);
+			// Entryキャッシュ検索
+			boolean useEntryCache = BDBClientEntryCacheManager.isEnabled();
+			if (useEntryCache) {
+				EntryBase cachedEntry = BDBClientEntryCacheManager.get(serviceName, id, mapper,
+						new SystemContext(auth, requestInfo, connectionInfo));
+				if (cachedEntry != null) {
+					return cachedEntry;
+				}
+			}
+			long requestTime = System.currentTimeMillis();
+
 			// IDをキーにEntry検索
 			String entryUriStr = BDBClientUtil.getEntryUri(id);
 			// Entryサーバ検索
@@ -986,13 +1040,15 @@ public class BDBClientRetrieveManager {
 			String idUri = TaggingEntryUtil.getUriById(id);
 			String entryServerUrl = BDBClientUtil.getEntryServerUrl(idUri, serviceName,
 					requestInfo, connectionInfo);
-			FeedTemplateMapper mapper = TaggingEnvUtil.getResourceMapper(serviceName);
 
 			BDBRequester<EntryBase> requester = new BDBRequester<>(BDBResponseType.ENTRY);
 			BDBResponseInfo<EntryBase> respInfo = requester.request(entryServerUrl,
 					entryUriStr, method, null, mapper, serviceName, requestInfo, connectionInfo);
 			// 成功
 			EntryBase respEntry = respInfo.data;
+			if (useEntryCache) {
+				BDBClientEntryCacheManager.put(serviceName, respEntry, mapper, requestTime);
+			}
 			return respEntry;
 
 		} finally {
@@ -1011,6 +1067,29 @@ public class BDBClientRetrieveManager {
 	 */
 	public List<EntryBase> requestGetEntriesByIds(List<String> ids, ReflexAuthentication auth,
 			RequestInfo requestInfo, ConnectionInfo connectionInfo)
+	throws IOException, TaggingException {
+		return requestGetEntriesByIds(ids, null, auth, requestInfo, connectionInfo);
+	}
+
+	/**
+	 * IDリスト指定でEntryを複数件検索.
+	 * Entryサーバにリクエストする。
+	 * 絞り込み条件が指定された場合、Entryサーバで条件に合致しないEntryを除く。
+	 * 暗号化項目の条件はEntryサーバで判定できないため送信しない。
+	 * <p>
+	 * IDリストは複数Entryフレーム形式でPOSTメソッドにより送信する。
+	 * フレーム形式に対応していないEntryサーバは405を返すため、Entryサーバを先にデプロイすること。
+	 * POSTメソッドだが検索のため、SocketExceptionはGETと同様にリトライする。
+	 * </p>
+	 * @param ids IDリスト
+	 * @param filterConditions Entryサーバで絞り込む条件 (絞り込みを行わない場合null)
+	 * @param auth 認証情報
+	 * @param requestInfo リクエスト情報
+	 * @param connectionInfo コネクション情報
+	 * @return Entryリスト
+	 */
+	public List<EntryBase> requestGetEntriesByIds(List<String> ids, Condition[] filterConditions,
+			ReflexAuthentication auth, RequestInfo requestInfo, ConnectionInfo connectionInfo)
 	throws IOException, TaggingException {
 		String serviceName = auth.getServiceName();
 		// BDBサーバにリクエスト
@@ -1028,6 +1107,32 @@ public class BDBClientRetrieveManager {
 			Map<String, EntryBase> gotEntriesMap = new HashMap<>();
 			// IDリストをキーにEntry複数検索
 			String entryMultipleUriStr = BDBClientUtil.getEntryMultipleUri();
+			// Entryサーバでの絞り込み条件
+			Template template = null;
+			Condition[] pushdownConditions = null;
+			if (filterConditions != null && filterConditions.length > 0 &&
+					BDBClientUtil.isEnableFilterPushdown()) {
+				template = TaggingEnvUtil.getResourceMapperManager().getTemplate(serviceName);
+				if (template != null) {
+					pushdownConditions = EntryFilterUtil.getFilterConditions(filterConditions,
+							template.rights);
+				}
+				if (pushdownConditions != null) {
+					entryMultipleUriStr = BDBClientUtil.getEntryMultipleFilterUri();
+				}
+			}
+
+			// Entryキャッシュ検索
+			// Entryサーバで絞り込む場合は、条件に合致するかどうかが分からないため使用しない。
+			boolean useEntryCache = pushdownConditions == null &&
+					BDBClientEntryCacheManager.isEnabled();
+			FeedTemplateMapper mapper = null;
+			if (useEntryCache) {
+				mapper = TaggingEnvUtil.getResourceMapper(serviceName);
+				gotEntriesMap.putAll(BDBClientEntryCacheManager.get(serviceName, ids, mapper,
+						new SystemContext(auth, requestInfo, connectionInfo)));
+			}
+			long requestTime = System.currentTimeMillis();
 
 			if (logger.isTraceEnabled()) {
 				StringBuilder sb = new StringBuilder();
@@ -1068,7 +1173,11 @@ public class BDBClientRetrieveManager {
 
 			int limit = BDBClientUtil.getEntryserverGetLimit();
 			List<Future<List<EntryBase>>> futures = new ArrayList<>();
-			String method = METHOD_GET;
+			// IDリストは複数Entryフレーム形式でリクエストデータに指定する。
+			String method = METHOD_POST;
+			// 非同期処理の中から呼ばれた場合 (OR条件の並列検索など) は、
+			// 非同期処理の完了待ちでスレッドを占有しないよう呼び出しスレッドでリクエストする。
+			boolean isInTask = TaskQueueUtil.isInTask();
 			for (Map.Entry<String, List<String>> mapEntry : divideServerMap.entrySet()) {
 				String entryServerUrl = mapEntry.getKey();
 				List<String> idList = mapEntry.getValue();
@@ -1076,8 +1185,7 @@ public class BDBClientRetrieveManager {
 				int size = idList.size();
 				int idx = 0;
 				while (idx < size) {
-					// Entryを一定数ごとに区切ってリクエストする。
-					// リクエストヘッダのサイズ制限に引っかからないようにするため。(Header is too large)
+					// Entryを一定数ごとに区切ってリクエストする。(並列処理)
 					List<String> reqIdList = null;
 					int toIdx = 0;
 					if (size - idx > limit) {
@@ -1088,15 +1196,27 @@ public class BDBClientRetrieveManager {
 					reqIdList = idList.subList(idx, toIdx);
 					idx = toIdx;
 
+					byte[] reqData = null;
+					if (pushdownConditions != null) {
+						reqData = EntryFilterUtil.encode(reqIdList, template,
+								pushdownConditions);
+					} else {
+						reqData = BDBRequesterUtil.toRequestDataIds(reqIdList);
+					}
 					Map<String, String> additionalHeaders =
-							BDBRequesterUtil.getEntryMultipleHeader(reqIdList, null);
+							BDBRequesterUtil.getEntryFrameHeader();
 
 					// Entryサーバ検索 (並列処理)
 					BDBClientGetEntriesByIdCallable callable = new BDBClientGetEntriesByIdCallable(
-							entryServerUrl, entryMultipleUriStr, method, additionalHeaders);
-					Future<List<EntryBase>> future = callable.addTask(auth, requestInfo,
-							connectionInfo);
-					futures.add(future);
+							entryServerUrl, entryMultipleUriStr, method, reqData, additionalHeaders);
+					if (isInTask) {
+						futures.add(CompletableFuture.completedFuture(
+								callable.request(serviceName, requestInfo, connectionInfo)));
+					} else {
+						Future<List<EntryBase>> future = callable.addTask(auth, requestInfo,
+								connectionInfo);
+						futures.add(future);
+					}
 				}
 			}
 
@@ -1126,6 +1246,10 @@ public class BDBClientRetrieveManager {
 						for (EntryBase respEntry : respEntries) {
 							if (respEntry != null) {
 								gotEntriesMap.put(respEntry.id, respEntry);
+								if (useEntryCache) {
+									BDBClientEntryCacheManager.put(serviceName, respEntry,
+											mapper, requestTime);
+								}
 							}
 						}
 					}
@@ -1262,6 +1386,20 @@ public class BDBClientRetrieveManager {
 			tmpLimit++;
 		}
 
+		// インメモリ条件のうちインデックスを使用できる条件で、Entry取得対象のURIを絞り込む。
+		Set<String> intersectUris = null;
+		if (checkInnerConditions) {
+			IndexIntersectManager intersectManager = new IndexIntersectManager();
+			intersectUris = intersectManager.getIntersectUris(editedCondition, auth,
+					requestInfo, connectionInfo);
+			if (intersectUris != null && intersectUris.isEmpty()) {
+				// 該当データなし
+				FeedBase retFeed = TaggingEntryUtil.createFeed(serviceName);
+				retFeed.entry = new ArrayList<>();
+				return retFeed;
+			}
+		}
+
 		String retCursorStr = cursorStr;
 		String prevCursorStr = null;	// 1つ前の検索のカーソル
 		int fetchCnt = 0;
@@ -1306,7 +1444,6 @@ public class BDBClientRetrieveManager {
 			fetchCnt += ids.size();
 
 			// Entry本体を取得
-			EntryManager entryManager = new EntryManager();
 			if (logger.isTraceEnabled()) {
 				StringBuilder sb = new StringBuilder();
 				sb.append(LogUtil.getRequestInfoStr(requestInfo));
@@ -1315,8 +1452,8 @@ public class BDBClientRetrieveManager {
 				logger.debug(sb.toString());
 				startTime = new Date().getTime();
 			}
-			List<EntryBase> entries = entryManager.getEntiesByIds(ids, auth, requestInfo,
-					connectionInfo);
+			List<EntryBase> entries = getEntiesByIds(ids, intersectUris, innerConditions,
+					auth, requestInfo, connectionInfo);
 			if (logger.isTraceEnabled()) {
 				StringBuilder sb = new StringBuilder();
 				sb.append(LogUtil.getRequestInfoStr(requestInfo));
@@ -1442,6 +1579,53 @@ public class BDBClientRetrieveManager {
 		return idsFeed;
 	}
 
+	/**
+	 * IDリストのEntryを取得.
+	 * URIの積集合が指定されている場合、積集合に含まれるIDのみEntryサーバにリクエストする。
+	 * インメモリ条件が指定されている場合、Entryサーバで条件に合致しないEntryを除く。
+	 * 戻り値はIDリストと同じ位置にEntryを設定し、積集合に含まれないIDや条件に合致しないIDの位置はnullとする。
+	 * @param ids IDリスト
+	 * @param intersectUris URIの積集合 (絞り込みを行わない場合null)
+	 * @param innerConditions インメモリ条件 (絞り込みを行わない場合null)
+	 * @param auth 認証情報
+	 * @param requestInfo リクエスト情報
+	 * @param connectionInfo コネクション情報
+	 * @return Entryリスト
+	 */
+	private List<EntryBase> getEntiesByIds(List<String> ids, Set<String> intersectUris,
+			Condition[] innerConditions, ReflexAuthentication auth,
+			RequestInfo requestInfo, ConnectionInfo connectionInfo)
+	throws IOException, TaggingException {
+		EntryManager entryManager = new EntryManager();
+		if (intersectUris == null) {
+			return entryManager.getEntiesByIds(ids, innerConditions, auth, requestInfo,
+					connectionInfo);
+		}
+		List<String> targetIds = new ArrayList<>();
+		for (String id : ids) {
+			if (intersectUris.contains(TaggingEntryUtil.getUriById(id))) {
+				targetIds.add(id);
+			}
+		}
+		List<EntryBase> targetEntries = null;
+		if (!targetIds.isEmpty()) {
+			targetEntries = entryManager.getEntiesByIds(targetIds, innerConditions, auth,
+					requestInfo, connectionInfo);
+		}
+		// IDリストと位置を合わせる
+		List<EntryBase> entries = new ArrayList<>(ids.size());
+		int j = 0;
+		for (String id : ids) {
+			if (targetEntries != null && j < targetIds.size() && id.equals(targetIds.get(j))) {
+				entries.add(targetEntries.get(j));
+				j++;
+			} else {
+				entries.add(null);
+			}
+		}
+		return entries;
+	}
+
 	/**
 	 * URIリストの指定された位置にURIを追加
 	 * @param i 添字
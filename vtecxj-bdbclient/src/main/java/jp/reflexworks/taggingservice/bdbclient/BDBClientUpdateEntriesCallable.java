@@ -32,8 +32,8 @@ public class BDBClientUpdateEntriesCallable extends ReflexCallable<Boolean> {
 	private String entryMultipleUri;
 	/** リクエストメソッド */
 	private String method;
-	/** 更新Entryリスト */
-	private List<EntryBase> entries;
+	/** 送信データ (登録更新の場合Entryリスト、削除の場合IDリストの複数Entryフレーム) */
+	private Object reqObj;
 	/** 追加リクエストヘッダ */
 	private Map<String, String> additionalHeaders;
 
@@ -45,15 +45,15 @@ public class BDBClientUpdateEntriesCallable extends ReflexCallable<Boolean> {
 	 * @param entryServerUrl EntryサーバURL
 	 * @param entryMultipleUri リクエストURI
 	 * @param method リクエストメソッド
-	 * @param entries 更新Entryリスト(登録更新の場合に指定)
+	 * @param reqObj 送信データ (登録更新の場合Entryリスト、削除の場合IDリストの複数Entryフレーム)
 	 * @param additionalHeaders 追加リクエストヘッダ(削除の場合に指定)
 	 */
 	public BDBClientUpdateEntriesCallable(String entryServerUrl, String entryMultipleUri,
-			String method, List<EntryBase> entries, Map<String, String> additionalHeaders) {
+			String method, Object reqObj, Map<String, String> additionalHeaders) {
 		this.entryServerUrl = entryServerUrl;
 		this.entryMultipleUri = entryMultipleUri;
 		this.method = method;
-		this.entries = entries;
+		this.reqObj = reqObj;
 		this.additionalHeaders = additionalHeaders;
 	}
 
@@ -89,7 +89,7 @@ public class BDBClientUpdateEntriesCallable extends ReflexCallable<Boolean> {
 
 			BDBRequester<List<EntryBase>> requester = new BDBRequester<>(
 					BDBResponseType.FEED);
-			requester.request(entryServerUrl, entryMultipleUri, method, entries,
+			requester.request(entryServerUrl, entryMultipleUri, method, reqObj,
 					additionalHeaders, mapper, serviceName, requestInfo, connectionInfo);
 
 			return true;
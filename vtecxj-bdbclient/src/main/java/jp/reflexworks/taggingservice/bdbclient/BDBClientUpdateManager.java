@@ -2,10 +2,14 @@ package jp.reflexworks.taggingservice.bdbclient;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 
@@ -32,10 +36,10 @@ import jp.reflexworks.taggingservice.exception.TaggingException;
 import jp.reflexworks.taggingservice.index.EntryManager;
 import jp.reflexworks.taggingservice.model.UpdatedInfo;
 import jp.reflexworks.taggingservice.model.Value;
-import jp.reflexworks.taggingservice.plugin.CacheManager;
 import jp.reflexworks.taggingservice.requester.BDBClientServerConst.BDBResponseType;
 import jp.reflexworks.taggingservice.requester.BDBRequester;
 import jp.reflexworks.taggingservice.requester.BDBRequesterUtil;
+import jp.reflexworks.taggingservice.requester.BDBTransportManager;
 import jp.reflexworks.taggingservice.service.BDBClientInitMainThreadManager;
 import jp.reflexworks.taggingservice.sys.SystemAuthentication;
 import jp.reflexworks.taggingservice.sys.SystemContext;
@@ -45,7 +49,6 @@ import jp.reflexworks.taggingservice.util.Constants;
 import jp.reflexworks.taggingservice.util.Constants.OperationType;
 import jp.reflexworks.taggingservice.util.LogUtil;
 import jp.reflexworks.taggingservice.util.MetadataUtil;
-import jp.reflexworks.taggingservice.util.RetryUtil;
 import jp.reflexworks.taggingservice.util.TaggingEntryUtil;
 import jp.sourceforge.reflex.util.StringUtils;
 
@@ -65,11 +68,6 @@ public class BDBClientUpdateManager {
 	private static final String METHOD_PUT = Constants.PUT;
 	/** delete実行メソッド */
 	private static final String METHOD_DELETE = Constants.DELETE;
-
-	/** 排他制御に使用するキー接頭辞 */
-	private static final String EXCLUSIVE_KEY_PREFIX = "EXCL:";
-	/** 排他制御に使用するダミー文字列 */
-	private static final String EXCLUSIVE_TEXT = "excl";
 	
 	/** ログ出力しないURL接頭辞 */
 	private static final String PARENTURI_LOG = Constants.URI_LOG + "/";
@@ -108,31 +106,30 @@ public class BDBClientUpdateManager {
 		BDBRequester<FeedBase> requesterFeed = new BDBRequester<>(BDBResponseType.FEED);
 
 		List<String> exclusionIdUris = new ArrayList<>();
+		String exclusionToken = UUID.randomUUID().toString();
 		List<UpdatedInfo> updatedInfos = new ArrayList<>();
 		boolean isDeletedReadEntryMap = false;
 		try {
 			List<Link> mnfGetLinks = new ArrayList<>();
-			// まずCacheによる排他を行う
+			// まず排他を行う。全てのURIをまとめて排他する。
+			Set<String> uris = new TreeSet<>();
 			for (EntryBase entry : entries) {
 				String uri = entry.getMyUri();
-				boolean isExclusion = exclusive(uri, systemContext);
-				if (!isExclusion) {
-					if (logger.isInfoEnabled()) {
-						StringBuilder sb = new StringBuilder();
-						sb.append(LogUtil.getRequestInfoStr(requestInfo));
-						sb.append("[update] OptimisticLockingException (exclusive) uri = ");
-						sb.append(uri);
-						logger.info(sb.toString());
-					}
-					throw new OptimisticLockingException(
-							OptimisticLockingException.MSG_PREFIX + uri);
+				if (!uris.add(uri)) {
+					// 同一URIの重複指定
+					throwExclusiveError(uri, requestInfo);
 				}
-				exclusionIdUris.add(uri);
 
 				// ManifestサーバへのID取得リクエスト生成
 				Link mnfLink = createManifestLink(uri, null);
 				mnfGetLinks.add(mnfLink);
 			}
+			List<String> sortedUris = new ArrayList<>(uris);
+			String conflictUri = exclusive(sortedUris, exclusionToken, systemContext);
+			if (conflictUri != null) {
+				throwExclusiveError(conflictUri, requestInfo);
+			}
+			exclusionIdUris.addAll(sortedUris);
 
 			// Manifestサーバに、EntryのID取得リクエスト。
 			// POST /b?e
@@ -249,10 +246,7 @@ public class BDBClientUpdateManager {
 
 			// Entry更新処理はスレッド化して並行処理する。
 			// Entryチェック・編集処理はスレッド化して並行処理する。 
-			List<Future<UpdatedInfo>> futures = new ArrayList<>();
-			int waitMillis = TaggingEnvUtil.getSystemPropInt(
-					BDBClientConst.BULKPUT_SYNC_WAITMILLIS,
-					BDBClientConst.BULKPUT_SYNC_WAITMILLIS_DEFAULT);
+			List<CompletableFuture<UpdatedInfo>> futures = new ArrayList<>();
 
 			// 入力チェック、編集処理
 			int len = entries.size();
@@ -272,92 +266,61 @@ public class BDBClientUpdateManager {
 				Future<UpdatedInfo> future = (Future<UpdatedInfo>)TaskQueueUtil.addTask(
 						callable, isDisabledErrorLogEntry, 0, auth, requestInfo,
 						connectionInfo);
-				futures.add(future);
+				futures.add(TaskQueueUtil.toCompletableFuture(future));
 			}
 
 			// Entryチェック完了を待つ
-			for (Future<UpdatedInfo> future : futures) {
-				while (!future.isDone()) {
-					RetryUtil.sleep(waitMillis);
-				}
-				try {
-					UpdatedInfo updatedInfo = future.get();
-					updatedInfos.add(updatedInfo);
-
-				} catch (ExecutionException e) {
-					StringBuilder sb = new StringBuilder();
-					sb.append(LogUtil.getRequestInfoStr(requestInfo));
-					sb.append("[update] ExecutionException: ");
-					sb.append(e.getMessage());
-					logger.warn(sb.toString());
-					Throwable cause = e.getCause();
-					if (cause instanceof IOException) {
-						throw (IOException)cause;
-					} else if (cause instanceof TaggingException) {
-						throw (TaggingException)cause;
-					} else if (cause instanceof RuntimeException) {
-						throw (RuntimeException)cause;
-					} else if (cause instanceof Error) {
-						throw (Error)cause;
-					} else {
-						throw new IOException(cause);
-					}
-				} catch (InterruptedException e) {
-					StringBuilder sb = new StringBuilder();
-					sb.append(LogUtil.getRequestInfoStr(requestInfo));
-					sb.append("[update] InterruptedException: ");
-					sb.append(e.getMessage());
-					logger.warn(sb.toString());
-
-					throw new IOException(e);
-				}
+			// 全てのチェックの完了時に完了するため、完了待ちのポーリングは行わない。
+			try {
+				updatedInfos.addAll(TaskQueueUtil.join(TaskQueueUtil.allOf(futures)));
+			} catch (IOException | TaggingException | RuntimeException e) {
+				StringBuilder sb = new StringBuilder();
+				sb.append(LogUtil.getRequestInfoStr(requestInfo));
+				sb.append("[update] ");
+				sb.append(e.getClass().getSimpleName());
+				sb.append(": ");
+				sb.append(e.getMessage());
+				logger.warn(sb.toString());
+				throw e;
 			}
 
-			// Entryサーバに登録更新リクエスト。
+			// Entryサーバに登録更新リクエスト、その完了後にManifestサーバに更新リクエスト。
+			// Entryサーバごとのリクエストは並行して行い、全ての完了時にManifestの更新を開始する。
 			List<EntryBase> updateEntries = new ArrayList<>();
+			List<EntryBase> deleteEntries = new ArrayList<>();
 			for (UpdatedInfo updatedInfo : updatedInfos) {
 				if (updatedInfo.getFlg() == OperationType.INSERT ||
 						updatedInfo.getFlg() == OperationType.UPDATE) {
 					updateEntries.add(updatedInfo.getUpdEntry());
+				} else if (updatedInfo.getFlg() == OperationType.DELETE) {
+					deleteEntries.add(updatedInfo.getPrevEntry());
 				}
 			}
-			entryManager.putEntries(updateEntries, auth, requestInfo, connectionInfo);
+			FeedBase mnfReqPutFeed = createManifestPutFeed(flgs, updatedInfos);
 
-			// Manifestサーバに更新リクエスト。
-			FeedBase mnfReqPutFeed = TaggingEntryUtil.createAtomFeed();
-			List<Link> mnfPutLinks = new ArrayList<>();
-			mnfReqPutFeed.link = mnfPutLinks;
-			for (int i = 0; i < len; i++) {
-				OperationType flg = flgs.get(i);
-				boolean isDelete = (flg == OperationType.DELETE);
-				UpdatedInfo updatedInfo = updatedInfos.get(i);
-				EntryBase entry = null;
-				if (isDelete) {
-					entry = updatedInfo.getPrevEntry();
-				} else {
-					entry = updatedInfo.getUpdEntry();
+			// Entryキャッシュの更新スタンプ登録 (失敗した場合は更新しない)
+			boolean useEntryCache = BDBClientEntryCacheManager.isEnabled();
+			if (useEntryCache) {
+				BDBClientEntryCacheManager.putStamps(updateEntries, deleteEntries,
+						currentTime, systemContext);
+			}
+			CompletableFuture<Void> committed = BDBClientUpdateStages.chain(
+					() -> entryManager.putEntriesAsync(updateEntries, auth, requestInfo,
+							connectionInfo),
+					() -> putManifestAsync(mnfReqPutFeed, auth, requestInfo, connectionInfo));
+			try {
+				TaskQueueUtil.join(committed);
+			} finally {
+				if (useEntryCache) {
+					entryManager.publishEntryCacheInvalidation(updateEntries, auth,
+							requestInfo, connectionInfo);
 				}
+			}
 
-				// ID URI
-				String idUri = entry.getMyUri();
-				Link mnfLink = createManifestLink(idUri, entry.id, isDelete);
-				mnfPutLinks.add(mnfLink);
-				if (!isDelete) {
-					// Alias
-					List<String> aliases = entry.getAlternate();
-					if (aliases != null) {
-						for (String alias : aliases) {
-							mnfLink = createManifestLink(alias, entry.id, isDelete);
-							mnfPutLinks.add(mnfLink);
-						}
-					}
-				}
+			// Entryキャッシュの更新スタンプの有効期限延長と、削除したEntryの無効化
+			if (useEntryCache) {
+				refreshEntryCache(updateEntries, deleteEntries, currentTime, systemContext);
 			}
-			String mnfPutRequestUri = BDBClientUtil.getPutManifestUri();
-			String mnfPutMethod = METHOD_PUT;
-			requesterFeed.requestToManifest(
-					mnfPutRequestUri, mnfPutMethod, mnfReqPutFeed, serviceName,
-					requestInfo, connectionInfo);
 
 			// 更新時はReadEntryMapにもEntryを残さない。(大量データ登録時のメモリリーク防止)
 			deleteReadEntryMap(updatedInfos, serviceName, requestInfo, connectionInfo);
@@ -379,8 +342,8 @@ public class BDBClientUpdateManager {
 
 		} finally {
 			// 排他の解除
-			for (String exclusionUri : exclusionIdUris) {
-				releaseExclusion(exclusionUri, systemContext);
+			if (!exclusionIdUris.isEmpty()) {
+				releaseExclusion(exclusionIdUris, exclusionToken, systemContext);
 			}
 
 			// 一時メモリのクリア
@@ -392,6 +355,102 @@ public class BDBClientUpdateManager {
 		}
 	}
 
+	/**
+	 * Manifestサーバへの更新リクエストデータを生成.
+	 * @param flgs 更新区分リスト
+	 * @param updatedInfos 更新情報リスト
+	 * @return Manifestサーバへの更新リクエストデータ
+	 */
+	private FeedBase createManifestPutFeed(List<OperationType> flgs,
+			List<UpdatedInfo> updatedInfos) {
+		FeedBase mnfReqPutFeed = TaggingEntryUtil.createAtomFeed();
+		List<Link> mnfPutLinks = new ArrayList<>();
+		mnfReqPutFeed.link = mnfPutLinks;
+		int len = flgs.size();
+		for (int i = 0; i < len; i++) {
+			OperationType flg = flgs.get(i);
+			boolean isDelete = (flg == OperationType.DELETE);
+			UpdatedInfo updatedInfo = updatedInfos.get(i);
+			EntryBase entry = null;
+			if (isDelete) {
+				entry = updatedInfo.getPrevEntry();
+			} else {
+				entry = updatedInfo.getUpdEntry();
+			}
+
+			// ID URI
+			String idUri = entry.getMyUri();
+			Link mnfLink = createManifestLink(idUri, entry.id, isDelete);
+			mnfPutLinks.add(mnfLink);
+			if (!isDelete) {
+				// Alias
+				List<String> aliases = entry.getAlternate();
+				if (aliases != null) {
+					for (String alias : aliases) {
+						mnfLink = createManifestLink(alias, entry.id, isDelete);
+						mnfPutLinks.add(mnfLink);
+					}
+				}
+			}
+		}
+		return mnfReqPutFeed;
+	}
+
+	/**
+	 * Manifestサーバに更新リクエスト (非同期).
+	 * 通信方式が非同期通信をサポートしない場合、リクエストを非同期処理に登録する。
+	 * (前の段階を完了したスレッドで、完了待ちをしないようにするため。)
+	 * @param mnfReqPutFeed 更新リクエストデータ
+	 * @param auth 認証情報
+	 * @param requestInfo リクエスト情報
+	 * @param connectionInfo コネクション情報
+	 * @return リクエストの終了時に完了するFuture
+	 */
+	private CompletableFuture<Void> putManifestAsync(FeedBase mnfReqPutFeed,
+			ReflexAuthentication auth, RequestInfo requestInfo, ConnectionInfo connectionInfo)
+	throws IOException, TaggingException {
+		String mnfPutRequestUri = BDBClientUtil.getPutManifestUri();
+		String mnfPutMethod = METHOD_PUT;
+		if (BDBTransportManager.getTransport().isAsync()) {
+			BDBRequester<FeedBase> requesterFeed = new BDBRequester<>(BDBResponseType.FEED);
+			return requesterFeed.requestToManifestAsync(mnfPutRequestUri, mnfPutMethod,
+					mnfReqPutFeed, auth, requestInfo, connectionInfo).thenApply(r -> null);
+		}
+		BDBClientUpdateManifestCallable callable = new BDBClientUpdateManifestCallable(
+				mnfPutRequestUri, mnfPutMethod, mnfReqPutFeed);
+		Future<Boolean> future = callable.addTask(auth, requestInfo, connectionInfo);
+		return TaskQueueUtil.toCompletableFuture(future).thenApply(r -> null);
+	}
+
+	/**
+	 * 更新完了後のEntryキャッシュ処理.
+	 * <p>
+	 * 更新スタンプを再登録して有効期限を延長し、削除したEntryをこのサーバのキャッシュから削除して
+	 * 他のサーバに無効化を通知する。(登録・更新したEntryの通知はEntry登録時に行う。)
+	 * 更新は完了しているため、失敗してもエラーとしない。
+	 * </p>
+	 * @param updateEntries 登録・更新したEntryリスト
+	 * @param deleteEntries 削除したEntryリスト
+	 * @param currentTime 更新日時
+	 * @param systemContext SystemContext
+	 */
+	private void refreshEntryCache(List<EntryBase> updateEntries, List<EntryBase> deleteEntries,
+			String currentTime, SystemContext systemContext) {
+		try {
+			BDBClientEntryCacheManager.putStamps(updateEntries, deleteEntries, currentTime,
+					systemContext);
+			if (!deleteEntries.isEmpty()) {
+				BDBClientEntryCacheManager.invalidate(systemContext.getServiceName(),
+						deleteEntries);
+				BDBClientEntryCacheManager.publish(deleteEntries, systemContext);
+			}
+		} catch (IOException | TaggingException | RuntimeException e) {
+			logger.warn(LogUtil.getRequestInfoStr(systemContext.getRequestInfo()) +
+					"[refreshEntryCache] " + e.getClass().getSimpleName() + ": " +
+					e.getMessage(), e);
+		}
+	}
+
 	/**
 	 * Entry更新のためのチェック、Entry編集.
 	 * 検索チェックがあるため、各Entryごとにスレッド実行する。
@@ -1107,54 +1166,63 @@ public class BDBClientUpdateManager {
 
 	/**
 	 * 排他処理.
-	 * Redisに排他フラグを立てる。
-	 * @param idUri ID URI
+	 * 全てのURIをまとめて排他する。排他の取得時間は更新処理統計情報に記録する。
+	 * @param uris URIリスト (昇順、重複なし)
+	 * @param token 排他の所有者を識別する文字列
 	 * @param systemContext SystemContext
-	 * @return 排他が成功した場合true
+	 * @return 排他が成功した場合null、他で排他中のURIがある場合そのURI
 	 */
-	private boolean exclusive(String idUri, SystemContext systemContext)
+	private String exclusive(List<String> uris, String token, SystemContext systemContext)
 	throws IOException, TaggingException {
-		String key = EXCLUSIVE_KEY_PREFIX + idUri;
-		CacheManager cacheManager = TaggingEnvUtil.getCacheManager();
-		boolean ret = cacheManager.setStringIfAbsent(key, EXCLUSIVE_TEXT, systemContext);
-		if (ret) {
-			if (logger.isTraceEnabled()) {
-				StringBuilder sb = new StringBuilder();
-				sb.append(LogUtil.getRequestInfoStr(systemContext.getRequestInfo()));
-				sb.append("[exclusive] uri = ");
-				sb.append(idUri);
-				logger.debug(sb.toString());
-			}
-			// 有効期間の設定
-			int sec = TaggingEnvUtil.getSystemPropInt(BDBClientConst.BDBCLIENT_EXCLUSION_EXPIRE_SEC,
-					BDBClientConst.BDBCLIENT_EXCLUSION_EXPIRE_SEC_DEFAULT);
-			cacheManager.setExpireString(key, sec, systemContext);
+		long startTime = new Date().getTime();
+		int sec = BDBClientUtil.getExclusionExpireSec();
+		BDBClientExclusion exclusion = BDBClientExclusionManager.getExclusion();
+		String conflictUri = exclusion.acquire(uris, token, sec, systemContext);
+		long elapsedMillis = new Date().getTime() - startTime;
+		BDBClientExclusionManager.getUpdateStats().lock(elapsedMillis, uris.size(),
+				conflictUri != null);
+		if (logger.isTraceEnabled()) {
+			StringBuilder sb = new StringBuilder();
+			sb.append(LogUtil.getRequestInfoStr(systemContext.getRequestInfo()));
+			sb.append("[exclusive] uris.size = ");
+			sb.append(uris.size());
+			sb.append(" conflict = ");
+			sb.append(conflictUri);
+			sb.append(LogUtil.getElapsedTimeLog(startTime));
+			logger.debug(sb.toString());
 		}
-		return ret;
+		return conflictUri;
 	}
 
 	/**
 	 * 排他解除.
-	 * Redisから排他フラグを削除する。
-	 * @param idUri ID URI
+	 * @param uris URIリスト
+	 * @param token 排他の所有者を識別する文字列
 	 * @param systemContext SystemContext
-	 * @return 排他が成功した場合true
 	 */
-	private boolean releaseExclusion(String idUri, SystemContext systemContext)
+	private void releaseExclusion(List<String> uris, String token,
+			SystemContext systemContext)
 	throws IOException, TaggingException {
-		String key = EXCLUSIVE_KEY_PREFIX + idUri;
-		CacheManager cacheManager = TaggingEnvUtil.getCacheManager();
-		boolean ret = cacheManager.deleteString(key, systemContext);
-		if (logger.isTraceEnabled()) {
+		BDBClientExclusion exclusion = BDBClientExclusionManager.getExclusion();
+		exclusion.release(uris, token, systemContext);
+	}
+
+	/**
+	 * 排他エラー.
+	 * @param uri 排他できなかったURI
+	 * @param requestInfo リクエスト情報
+	 */
+	private void throwExclusiveError(String uri, RequestInfo requestInfo)
+	throws OptimisticLockingException {
+		if (logger.isInfoEnabled()) {
 			StringBuilder sb = new StringBuilder();
-			sb.append(LogUtil.getRequestInfoStr(systemContext.getRequestInfo()));
-			sb.append("[releaseExclusion] uri = ");
-			sb.append(idUri);
-			sb.append(" ret=");
-			sb.append(ret);
-			logger.debug(sb.toString());
+			sb.append(LogUtil.getRequestInfoStr(requestInfo));
+			sb.append("[update] OptimisticLockingException (exclusive) uri = ");
+			sb.append(uri);
+			logger.info(sb.toString());
 		}
-		return ret;
+		throw new OptimisticLockingException(
+				OptimisticLockingException.MSG_PREFIX + uri);
 	}
 
 	/**
@@ -0,0 +1,87 @@
+package jp.reflexworks.taggingservice.bdbclient;
+
+import java.io.IOException;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jp.reflexworks.atom.entry.FeedBase;
+import jp.reflexworks.taggingservice.api.ConnectionInfo;
+import jp.reflexworks.taggingservice.api.ReflexAuthentication;
+import jp.reflexworks.taggingservice.api.RequestInfo;
+import jp.reflexworks.taggingservice.exception.TaggingException;
+import jp.reflexworks.taggingservice.requester.BDBClientServerConst.BDBResponseType;
+import jp.reflexworks.taggingservice.requester.BDBRequester;
+import jp.reflexworks.taggingservice.taskqueue.ReflexCallable;
+import jp.reflexworks.taggingservice.taskqueue.TaskQueueUtil;
+import jp.reflexworks.taggingservice.util.LogUtil;
+
+/**
+ * ManifestサーバへManifest更新処理.
+ */
+public class BDBClientUpdateManifestCallable extends ReflexCallable<Boolean> {
+
+	/** リクエストURI */
+	private String requestUri;
+	/** リクエストメソッド */
+	private String method;
+	/** 送信データ */
+	private FeedBase reqFeed;
+
+	/** ロガー. */
+	private Logger logger = LoggerFactory.getLogger(this.getClass());
+
+	/**
+	 * コンストラクタ
+	 * @param requestUri リクエストURI
+	 * @param method リクエストメソッド
+	 * @param reqFeed 送信データ
+	 */
+	public BDBClientUpdateManifestCallable(String requestUri, String method,
+			FeedBase reqFeed) {
+		this.requestUri = requestUri;
+		this.method = method;
+		this.reqFeed = reqFeed;
+	}
+
+	/**
+	 * 非同期処理登録.
+	 * @param auth 認証情報
+	 * @param requestInfo リクエスト情報
+	 * @param connectionInfo コネクション情報
+	 * @return Future
+	 */
+	public Future<Boolean> addTask(ReflexAuthentication auth, RequestInfo requestInfo,
+			ConnectionInfo connectionInfo)
+	throws IOException, TaggingException {
+		return (Future<Boolean>)TaskQueueUtil.addTask(this, 0, auth, requestInfo,
+				connectionInfo);
+	}
+
+	/**
+	 * ManifestサーバへManifest更新処理.
+	 */
+	@Override
+	public Boolean call() throws IOException, TaggingException {
+		RequestInfo requestInfo = getRequestInfo();
+		if (logger.isTraceEnabled()) {
+			logger.trace(LogUtil.getRequestInfoStr(requestInfo) +
+					"[UpdateManifest call] start.");
+		}
+
+		try {
+			BDBRequester<FeedBase> requester = new BDBRequester<>(BDBResponseType.FEED);
+			requester.requestToManifest(requestUri, method, reqFeed, getServiceName(),
+					requestInfo, getConnectionInfo());
+			return true;
+
+		} finally {
+			if (logger.isTraceEnabled()) {
+				logger.trace(LogUtil.getRequestInfoStr(requestInfo) +
+						"[UpdateManifest call] end.");
+			}
+		}
+	}
+
+}
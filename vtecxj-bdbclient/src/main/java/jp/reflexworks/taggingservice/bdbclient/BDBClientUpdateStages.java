@@ -0,0 +1,58 @@
+package jp.reflexworks.taggingservice.bdbclient;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import jp.reflexworks.taggingservice.exception.TaggingException;
+
+/**
+ * 更新処理の段階の連結.
+ * <p>
+ * 前の段階の完了時に次の段階を開始するFutureを生成する。
+ * 完了待ちでスレッドを占有しないよう、各段階は処理を開始してFutureを返すこと。
+ * 前の段階が異常終了した場合、次の段階は開始せず、その例外で異常完了する。
+ * </p>
+ */
+class BDBClientUpdateStages {
+
+	/**
+	 * 更新処理の段階.
+	 */
+	@FunctionalInterface
+	interface Stage {
+		/**
+		 * 段階の処理を開始.
+		 * @return 段階の処理の完了時に完了するFuture
+		 */
+		CompletableFuture<Void> start() throws IOException, TaggingException;
+	}
+
+	/**
+	 * 段階を順に連結.
+	 * @param stages 段階 (実行順)
+	 * @return 最後の段階の完了時に完了するFuture
+	 */
+	static CompletableFuture<Void> chain(Stage... stages) {
+		CompletableFuture<Void> future = CompletableFuture.completedFuture(null);
+		for (Stage stage : stages) {
+			future = future.thenCompose(v -> start(stage));
+		}
+		return future;
+	}
+
+	/**
+	 * 段階の処理を開始.
+	 * 処理の開始時の例外は、Futureの異常完了とする。
+	 * @param stage 段階
+	 * @return 段階の処理の完了時に完了するFuture
+	 */
+	private static CompletableFuture<Void> start(Stage stage) {
+		try {
+			return stage.start();
+		} catch (IOException | TaggingException e) {
+			throw new CompletionException(e);
+		}
+	}
+
+}
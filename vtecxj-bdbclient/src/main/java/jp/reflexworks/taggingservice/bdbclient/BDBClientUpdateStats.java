@@ -0,0 +1,104 @@
+package jp.reflexworks.taggingservice.bdbclient;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import jp.reflexworks.atom.entry.EntryBase;
+import jp.reflexworks.taggingservice.util.TaggingEntryUtil;
+
+/**
+ * 更新処理の統計情報.
+ * 更新時の排他の取得件数・競合件数と、排他の取得時間のヒストグラムを保持する。
+ */
+public class BDBClientUpdateStats {
+
+	/** 取得時間ヒストグラムの区切り(ミリ秒)。最後の区切りを超えるものはその上の区分に計上する。 */
+	private static final long[] LATENCY_BUCKETS = {1, 2, 5, 10, 20, 50, 100, 200, 500,
+			1000, 2000, 5000, 10000};
+	/** 項目名の接頭辞 */
+	private static final String NAME_PREFIX = "update.lock.";
+
+	/** 排他の取得回数 */
+	private final LongAdder lockRequests = new LongAdder();
+	/** 排他の競合回数 */
+	private final LongAdder lockConflicts = new LongAdder();
+	/** 排他したURI数 */
+	private final LongAdder lockKeys = new LongAdder();
+	/** 排他の取得時間合計(ミリ秒) */
+	private final LongAdder lockTotalMillis = new LongAdder();
+	/** 排他の取得時間ヒストグラム */
+	private final LongAdder[] lockLatencyCounts = new LongAdder[LATENCY_BUCKETS.length + 1];
+
+	/**
+	 * コンストラクタ.
+	 */
+	BDBClientUpdateStats() {
+		for (int i = 0; i < lockLatencyCounts.length; i++) {
+			lockLatencyCounts[i] = new LongAdder();
+		}
+	}
+
+	/**
+	 * 排他の取得を記録.
+	 * @param elapsedMillis 取得時間(ミリ秒)
+	 * @param keyCount 排他対象のURI数
+	 * @param isConflict 他で排他中のため取得できなかった場合true
+	 */
+	void lock(long elapsedMillis, int keyCount, boolean isConflict) {
+		lockRequests.increment();
+		if (isConflict) {
+			lockConflicts.increment();
+		} else {
+			lockKeys.add(keyCount);
+		}
+		lockTotalMillis.add(elapsedMillis);
+		int idx = 0;
+		while (idx < LATENCY_BUCKETS.length && elapsedMillis > LATENCY_BUCKETS[idx]) {
+			idx++;
+		}
+		lockLatencyCounts[idx].increment();
+	}
+
+	/**
+	 * 統計情報をEntryリストで取得.
+	 * titleに項目名、summaryに値を設定する。
+	 * @return 統計情報
+	 */
+	public List<EntryBase> getStatsEntries() {
+		long requestCnt = lockRequests.sum();
+		List<EntryBase> statsEntries = new ArrayList<>();
+		statsEntries.add(createStatsEntry("requests", String.valueOf(requestCnt)));
+		statsEntries.add(createStatsEntry("conflicts", String.valueOf(lockConflicts.sum())));
+		statsEntries.add(createStatsEntry("keys", String.valueOf(lockKeys.sum())));
+		double avgMillis = 0;
+		if (requestCnt > 0) {
+			avgMillis = (double)lockTotalMillis.sum() / requestCnt;
+		}
+		statsEntries.add(createStatsEntry("latency.avg_millis", String.valueOf(avgMillis)));
+		for (int i = 0; i < lockLatencyCounts.length; i++) {
+			String name = null;
+			if (i < LATENCY_BUCKETS.length) {
+				name = "latency.le_" + LATENCY_BUCKETS[i];
+			} else {
+				name = "latency.gt_" + LATENCY_BUCKETS[LATENCY_BUCKETS.length - 1];
+			}
+			statsEntries.add(createStatsEntry(name, String.valueOf(lockLatencyCounts[i].sum())));
+		}
+		return statsEntries;
+	}
+
+	/**
+	 * 統計情報Entryを生成.
+	 * @param name 項目名
+	 * @param value 値
+	 * @return 統計情報Entry
+	 */
+	private EntryBase createStatsEntry(String name, String value) {
+		EntryBase entry = TaggingEntryUtil.createAtomEntry();
+		entry.title = NAME_PREFIX + name;
+		entry.summary = value;
+		return entry;
+	}
+
+}
@@ -105,7 +105,21 @@ public class BDBClientUtil {
 	 */
 	public static void convertError(IOException e, String method, RequestInfo requestInfo)
 	throws IOException {
-		if (RetryUtil.isRetryError(e, method)) {
+		convertError(e, method, false, requestInfo);
+	}
+
+	/**
+	 * 例外を変換する.
+	 * リトライ対象の場合例外をスローしない。
+	 * @param e データストア例外
+	 * @param method GET, POST, PUT or DELETE
+	 * @param isIdempotent GET以外のメソッドで、再送しても結果が変わらないリクエストの場合true
+	 * @param requestInfo リクエスト情報
+	 */
+	public static void convertError(IOException e, String method, boolean isIdempotent,
+			RequestInfo requestInfo)
+	throws IOException {
+		if (RetryUtil.isRetryError(e, method, isIdempotent)) {
 			return;
 		}
 		throw e;
@@ -655,4 +669,213 @@ public class BDBClientUtil {
 				BDBClientConst.ENTRYSERVER_PUT_LIMIT_DEFAULT);
 	}
 
+	/**
+	 * Feed検索でIDリストの積集合に使用するインデックスの最大件数を取得.
+	 * 件数がこの値以下のインデックス検索条件のみ、IDリストを取得して積集合に使用する。
+	 * @return Feed検索でIDリストの積集合に使用するインデックスの最大件数
+	 */
+	public static int getIntersectLimit() {
+		return TaggingEnvUtil.getSystemPropInt(BDBClientConst.BDBCLIENT_INTERSECT_LIMIT,
+				BDBClientConst.BDBCLIENT_INTERSECT_LIMIT_DEFAULT);
+	}
+
+	/**
+	 * Feed検索でインメモリ条件による絞り込みをEntryサーバで行うかどうかを取得.
+	 * @return Feed検索でインメモリ条件による絞り込みをEntryサーバで行う場合true
+	 */
+	public static boolean isEnableFilterPushdown() {
+		return TaggingEnvUtil.getSystemPropBoolean(
+				BDBClientConst.BDBCLIENT_ENABLE_FILTERPUSHDOWN,
+				BDBClientConst.BDBCLIENT_ENABLE_FILTERPUSHDOWN_DEFAULT);
+	}
+
+	/**
+	 * Feed検索でOR条件ごとの検索を並列に実行するかどうかを取得.
+	 * @return Feed検索でOR条件ごとの検索を並列に実行する場合true
+	 */
+	public static boolean isEnableParallelOr() {
+		return TaggingEnvUtil.getSystemPropBoolean(
+				BDBClientConst.BDBCLIENT_ENABLE_PARALLELOR,
+				BDBClientConst.BDBCLIENT_ENABLE_PARALLELOR_DEFAULT);
+	}
+
+	/**
+	 * 条件指定のない件数取得で、Manifestサーバのフォルダ件数を使用するかどうかを取得.
+	 * @return Manifestサーバのフォルダ件数を使用する場合true
+	 */
+	public static boolean isEnableFolderCount() {
+		return TaggingEnvUtil.getSystemPropBoolean(
+				BDBClientConst.BDBCLIENT_ENABLE_FOLDERCOUNT,
+				BDBClientConst.BDBCLIENT_ENABLE_FOLDERCOUNT_DEFAULT);
+	}
+
+	/**
+	 * 採番で先行して確保する採番数を取得.
+	 * @return 採番で先行して確保する採番数 (0以下の場合先行確保しない)
+	 */
+	public static int getAllocidsLeaseSize() {
+		return TaggingEnvUtil.getSystemPropInt(
+				BDBClientConst.BDBCLIENT_ALLOCIDS_LEASE_SIZE,
+				BDBClientConst.BDBCLIENT_ALLOCIDS_LEASE_SIZE_DEFAULT);
+	}
+
+	/**
+	 * 先行確保した採番値の有効期間(秒)を取得.
+	 * @return 先行確保した採番値の有効期間(秒)
+	 */
+	public static int getAllocidsLeaseExpireSec() {
+		return TaggingEnvUtil.getSystemPropInt(
+				BDBClientConst.BDBCLIENT_ALLOCIDS_LEASE_EXPIRE_SEC,
+				BDBClientConst.BDBCLIENT_ALLOCIDS_LEASE_EXPIRE_SEC_DEFAULT);
+	}
+
+	/**
+	 * Entryの圧縮にサービスごとの圧縮辞書を使用するかどうかを取得.
+	 * @return サービスごとの圧縮辞書を使用する場合true
+	 */
+	public static boolean isEnableCodecDictionary() {
+		return TaggingEnvUtil.getSystemPropBoolean(
+				BDBClientConst.BDBCLIENT_ENABLE_CODECDICTIONARY,
+				BDBClientConst.BDBCLIENT_ENABLE_CODECDICTIONARY_DEFAULT);
+	}
+
+	/**
+	 * 圧縮辞書の生成に使用するサンプルEntryの最大数を取得.
+	 * @return 圧縮辞書の生成に使用するサンプルEntryの最大数
+	 */
+	public static int getCodecDictionarySampleLimit() {
+		return TaggingEnvUtil.getSystemPropInt(
+				BDBClientConst.BDBCLIENT_CODECDICTIONARY_SAMPLE_LIMIT,
+				BDBClientConst.BDBCLIENT_CODECDICTIONARY_SAMPLE_LIMIT_DEFAULT);
+	}
+
+	/**
+	 * 更新時の排他の方式を取得.
+	 * @return 更新時の排他の方式
+	 */
+	public static String getExclusionType() {
+		return TaggingEnvUtil.getSystemProp(BDBClientConst.BDBCLIENT_EXCLUSION_TYPE,
+				BDBClientConst.BDBCLIENT_EXCLUSION_TYPE_DEFAULT);
+	}
+
+	/**
+	 * Cacheによる排他の有効期間(秒)を取得.
+	 * @return Cacheによる排他の有効期間(秒)
+	 */
+	public static int getExclusionExpireSec() {
+		return TaggingEnvUtil.getSystemPropInt(BDBClientConst.BDBCLIENT_EXCLUSION_EXPIRE_SEC,
+				BDBClientConst.BDBCLIENT_EXCLUSION_EXPIRE_SEC_DEFAULT);
+	}
+
+	/**
+	 * インデックス更新をローカルのジャーナルに記録してから送信するかどうかを取得.
+	 * @return インデックス更新ジャーナルを使用する場合true
+	 */
+	public static boolean isEnableIndexJournal() {
+		return TaggingEnvUtil.getSystemPropBoolean(
+				BDBClientConst.BDBCLIENT_ENABLE_INDEXJOURNAL,
+				BDBClientConst.BDBCLIENT_ENABLE_INDEXJOURNAL_DEFAULT);
+	}
+
+	/**
+	 * インデックス更新ジャーナルの格納ディレクトリを取得.
+	 * @return インデックス更新ジャーナルの格納ディレクトリ
+	 */
+	public static String getIndexJournalDir() {
+		return TaggingEnvUtil.getSystemProp(BDBClientConst.BDBCLIENT_INDEXJOURNAL_DIR,
+				BDBClientConst.BDBCLIENT_INDEXJOURNAL_DIR_DEFAULT);
+	}
+
+	/**
+	 * インデックス更新ジャーナルの送信間隔(ミリ秒)を取得.
+	 * @return インデックス更新ジャーナルの送信間隔(ミリ秒)
+	 */
+	public static int getIndexJournalIntervalMillis() {
+		return TaggingEnvUtil.getSystemPropInt(
+				BDBClientConst.BDBCLIENT_INDEXJOURNAL_INTERVAL_MILLIS,
+				BDBClientConst.BDBCLIENT_INDEXJOURNAL_INTERVAL_MILLIS_DEFAULT);
+	}
+
+	/**
+	 * インデックス更新ジャーナルから1リクエストで送信するインデックス更新情報の最大数を取得.
+	 * @return 1リクエストで送信するインデックス更新情報の最大数
+	 */
+	public static int getIndexJournalBatchSize() {
+		return TaggingEnvUtil.getSystemPropInt(
+				BDBClientConst.BDBCLIENT_INDEXJOURNAL_BATCH_SIZE,
+				BDBClientConst.BDBCLIENT_INDEXJOURNAL_BATCH_SIZE_DEFAULT);
+	}
+
+	/**
+	 * インデックス更新ジャーナルファイルを圧縮するサイズ(バイト)を取得.
+	 * @return インデックス更新ジャーナルファイルを圧縮するサイズ(バイト)
+	 */
+	public static long getIndexJournalCompactBytes() {
+		return TaggingEnvUtil.getSystemPropLong(
+				BDBClientConst.BDBCLIENT_INDEXJOURNAL_COMPACT_BYTES,
+				BDBClientConst.BDBCLIENT_INDEXJOURNAL_COMPACT_BYTES_DEFAULT);
+	}
+
+	/**
+	 * 取得したEntryをこのサーバのメモリにキャッシュするかどうか.
+	 * @return 取得したEntryをキャッシュする場合true
+	 */
+	public static boolean isEnableEntryCache() {
+		return TaggingEnvUtil.getSystemPropBoolean(
+				BDBClientConst.BDBCLIENT_ENABLE_ENTRYCACHE,
+				BDBClientConst.BDBCLIENT_ENABLE_ENTRYCACHE_DEFAULT);
+	}
+
+	/**
+	 * Entryキャッシュの最大サイズ(バイト)を取得.
+	 * @return Entryキャッシュの最大サイズ(バイト)
+	 */
+	public static long getEntryCacheMaxBytes() {
+		return TaggingEnvUtil.getSystemPropLong(
+				BDBClientConst.BDBCLIENT_ENTRYCACHE_MAX_BYTES,
+				BDBClientConst.BDBCLIENT_ENTRYCACHE_MAX_BYTES_DEFAULT);
+	}
+
+	/**
+	 * Entryキャッシュに格納するEntry1件の最大サイズ(バイト)を取得.
+	 * @return Entryキャッシュに格納するEntry1件の最大サイズ(バイト)
+	 */
+	public static int getEntryCacheEntryMaxBytes() {
+		return TaggingEnvUtil.getSystemPropInt(
+				BDBClientConst.BDBCLIENT_ENTRYCACHE_ENTRY_MAX_BYTES,
+				BDBClientConst.BDBCLIENT_ENTRYCACHE_ENTRY_MAX_BYTES_DEFAULT);
+	}
+
+	/**
+	 * Entryキャッシュの無効化通知の方式を取得.
+	 * @return Entryキャッシュの無効化通知の方式
+	 */
+	public static String getEntryCacheBusType() {
+		return TaggingEnvUtil.getSystemProp(BDBClientConst.BDBCLIENT_ENTRYCACHE_BUS,
+				BDBClientConst.BDBCLIENT_ENTRYCACHE_BUS_DEFAULT);
+	}
+
+	/**
+	 * Entryキャッシュの有効時間(秒)を取得.
+	 * @return Entryキャッシュの有効時間(秒)
+	 */
+	public static int getEntryCacheExpireSec() {
+		return TaggingEnvUtil.getSystemPropInt(
+				BDBClientConst.BDBCLIENT_ENTRYCACHE_EXPIRE_SEC,
+				BDBClientConst.BDBCLIENT_ENTRYCACHE_EXPIRE_SEC_DEFAULT);
+	}
+
+	/**
+	 * 条件指定のEntry複数取得リクエストURIを編集.
+	 * POSTメソッドで、IDリスト・テンプレート・条件をリクエストデータに指定する時に使用。
+	 * @return 条件指定のEntry複数取得リクエストURI
+	 */
+	public static String getEntryMultipleFilterUri() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(getEntryMultipleUri());
+		sb.append("&");
+		sb.append(RequestParam.PARAM_FILTER);
+		return sb.toString();
+	}
+
 }
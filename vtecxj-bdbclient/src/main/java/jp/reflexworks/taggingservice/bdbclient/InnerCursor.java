@@ -18,6 +18,8 @@ public class InnerCursor {
 	private String dsCursorStr;
 	/** カーソル使用済みかどうか */
 	private boolean isUsed;
+	/** OR条件ごとの検索位置を保持するカーソルかどうか */
+	private boolean isOrBranches;
 
 	/**
 	 * コンストラクタ
@@ -33,9 +35,14 @@ public class InnerCursor {
 				int idx2 = cursorStr.indexOf(BDBClientConst.CURSOR_SEPARATOR, idx1);
 				if (idx2 > 0) {
 					String orIdxStr = cursorStr.substring(idx1, idx2);
-					orIdx = StringUtils.intValue(orIdxStr, NO_DEFINITION);
-					if (orIdx < 0 || orIdx == Integer.MAX_VALUE) {
-						orIdx = NO_DEFINITION;
+					if (BDBClientConst.CURSOR_OR_BRANCHES.equals(orIdxStr)) {
+						// カーソルは、{parentUri},*,{OR条件ごとのカーソル}
+						isOrBranches = true;
+					} else {
+						orIdx = StringUtils.intValue(orIdxStr, NO_DEFINITION);
+						if (orIdx < 0 || orIdx == Integer.MAX_VALUE) {
+							orIdx = NO_DEFINITION;
+						}
 					}
 					dsCursorStr = cursorStr.substring(idx2 + 1);
 				} else {
@@ -76,6 +83,14 @@ public class InnerCursor {
 		return orIdx;
 	}
 	
+	/**
+	 * OR条件ごとの検索位置を保持するカーソルかどうか.
+	 * @return OR条件ごとの検索位置を保持するカーソルの場合true
+	 */
+	public boolean isOrBranches() {
+		return isOrBranches;
+	}
+
 	/**
 	 * カーソルを取得
 	 * @return カーソル
@@ -110,7 +125,10 @@ public class InnerCursor {
 			sb.append(parentUri);
 			sb.append(BDBClientConst.CURSOR_SEPARATOR);
 		}
-		if (orIdx != null) {
+		if (isOrBranches) {
+			sb.append(BDBClientConst.CURSOR_OR_BRANCHES);
+			sb.append(BDBClientConst.CURSOR_SEPARATOR);
+		} else if (orIdx != null) {
 			sb.append(orIdx);
 			sb.append(BDBClientConst.CURSOR_SEPARATOR);
 		}
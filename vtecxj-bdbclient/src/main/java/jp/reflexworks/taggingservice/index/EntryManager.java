@@ -5,23 +5,31 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Future;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import jp.reflexworks.atom.api.Condition;
 import jp.reflexworks.atom.entry.EntryBase;
+import jp.reflexworks.atom.mapper.FeedTemplateMapper;
 import jp.reflexworks.taggingservice.api.ConnectionInfo;
 import jp.reflexworks.taggingservice.api.ReflexAuthentication;
 import jp.reflexworks.taggingservice.api.ReflexContext;
 import jp.reflexworks.taggingservice.api.RequestInfo;
+import jp.reflexworks.taggingservice.bdbclient.BDBClientEntryCacheManager;
 import jp.reflexworks.taggingservice.bdbclient.BDBClientRetrieveManager;
 import jp.reflexworks.taggingservice.bdbclient.BDBClientUpdateEntriesCallable;
 import jp.reflexworks.taggingservice.bdbclient.BDBClientUtil;
-import jp.reflexworks.taggingservice.exception.IllegalParameterException;
+import jp.reflexworks.taggingservice.env.TaggingEnvUtil;
 import jp.reflexworks.taggingservice.exception.TaggingException;
 import jp.reflexworks.taggingservice.requester.BDBClientServerConst.BDBIndexType;
+import jp.reflexworks.taggingservice.requester.BDBClientServerConst.BDBResponseType;
+import jp.reflexworks.taggingservice.requester.BDBRequester;
+import jp.reflexworks.taggingservice.requester.BDBTransportManager;
+import jp.reflexworks.taggingservice.sys.SystemContext;
+import jp.reflexworks.taggingservice.taskqueue.TaskQueueUtil;
 import jp.reflexworks.taggingservice.util.Constants;
 import jp.reflexworks.taggingservice.util.LogUtil;
 import jp.reflexworks.taggingservice.util.TaggingEntryUtil;
@@ -55,8 +63,32 @@ public class EntryManager extends IndexCommonManager {
 		return retrieveManager.requestGetEntriesByIds(ids, auth, requestInfo, connectionInfo);
 	}
 
+	/**
+	 * 条件指定のEntry検索.
+	 * Entryサーバへ一括で取得する。条件に合致しないEntryはEntryサーバで除かれ、nullとなる。
+	 * @param ids IDリスト
+	 * @param filterConditions Entryサーバで絞り込む条件
+	 * @param auth 認証情報
+	 * @param requestInfo リクエスト情報
+	 * @param connectionInfo コネクション情報
+	 * @return 検索結果
+	 */
+	public List<EntryBase> getEntiesByIds(List<String> ids, Condition[] filterConditions,
+			ReflexAuthentication auth, RequestInfo requestInfo,
+			ConnectionInfo connectionInfo)
+	throws IOException, TaggingException {
+		if (ids == null || ids.isEmpty()) {
+			return null;
+		}
+
+		BDBClientRetrieveManager retrieveManager = new BDBClientRetrieveManager();
+		return retrieveManager.requestGetEntriesByIds(ids, filterConditions, auth,
+				requestInfo, connectionInfo);
+	}
+
 	/**
 	 * Entry登録更新.
+	 * Entryキャッシュを使用する場合、終了後に他のサーバへキャッシュの無効化を通知する。
 	 * @param entries Entryリスト
 	 * @param auth 認証情報
 	 * @param requestInfo リクエスト情報
@@ -64,10 +96,74 @@ public class EntryManager extends IndexCommonManager {
 	 */
 	public void putEntries(List<EntryBase> entries, ReflexAuthentication auth,
 			RequestInfo requestInfo, ConnectionInfo connectionInfo)
+	throws IOException, TaggingException {
+		CompletableFuture<Void> future = putEntriesAsync(entries, auth, requestInfo,
+				connectionInfo);
+		// 処理の終了を待つ
+		try {
+			TaskQueueUtil.join(future);
+		} catch (IOException | TaggingException e) {
+			if (logger.isDebugEnabled()) {
+				logger.debug(LogUtil.getRequestInfoStr(requestInfo) +
+						"[putEntries] " + e.getClass().getSimpleName() + ": " +
+						e.getMessage());
+			}
+			throw e;
+		} finally {
+			if (BDBClientEntryCacheManager.isEnabled()) {
+				publishEntryCacheInvalidation(entries, auth, requestInfo, connectionInfo);
+			}
+		}
+	}
+
+	/**
+	 * Entryキャッシュの無効化を他のサーバに通知.
+	 * 通知に失敗しても更新処理はエラーとしない。
+	 * (キャッシュの使用可否は更新スタンプで判定するため、通知はメモリ解放のみに使用する。)
+	 * @param entries 更新したEntryリスト
+	 * @param auth 認証情報
+	 * @param requestInfo リクエスト情報
+	 * @param connectionInfo コネクション情報
+	 */
+	public void publishEntryCacheInvalidation(List<EntryBase> entries,
+			ReflexAuthentication auth, RequestInfo requestInfo, ConnectionInfo connectionInfo) {
+		try {
+			SystemContext systemContext = new SystemContext(auth, requestInfo, connectionInfo);
+			BDBClientEntryCacheManager.publish(entries, systemContext);
+		} catch (IOException | TaggingException | RuntimeException e) {
+			logger.warn(LogUtil.getRequestInfoStr(requestInfo) +
+					"[publishEntryCacheInvalidation] " + e.getClass().getSimpleName() + ": " +
+					e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Entry登録更新 (非同期).
+	 * <p>
+	 * EntryのID URIによりEntryサーバを振り分け、Entryサーバごと・一定件数ごとのリクエストを並行して送信する。
+	 * 通信方式が非同期通信をサポートする場合(httpclient)、リクエストの完了待ちでスレッドを占有しない。
+	 * サポートしない場合は、リクエストごとに非同期処理を登録して並行して送信する。
+	 * 返却されたFutureは、全てのリクエストが終了した時点で完了する。
+	 * </p>
+	 * @param entries Entryリスト
+	 * @param auth 認証情報
+	 * @param requestInfo リクエスト情報
+	 * @param connectionInfo コネクション情報
+	 * @return 全てのリクエストの終了時に完了するFuture。
+	 *         いずれかのリクエストがエラーの場合、その例外を原因として異常完了する。
+	 */
+	public CompletableFuture<Void> putEntriesAsync(List<EntryBase> entries,
+			ReflexAuthentication auth, RequestInfo requestInfo, ConnectionInfo connectionInfo)
 	throws IOException, TaggingException {
 		String serviceName = auth.getServiceName();
 		String entryPutMethod = Constants.PUT;
 		String entryMultipleUri = BDBClientUtil.getEntryMultipleUri();
+		FeedTemplateMapper mapper = TaggingEnvUtil.getResourceMapper(serviceName);
+
+		// このサーバのEntryキャッシュから削除
+		if (BDBClientEntryCacheManager.isEnabled()) {
+			BDBClientEntryCacheManager.invalidate(serviceName, entries);
+		}
 
 		// EntryのID URIによりEntryサーバを振り分ける。
 		Map<String, List<EntryBase>> urlEntriesMap = new HashMap<>();
@@ -84,7 +180,11 @@ public class EntryManager extends IndexCommonManager {
 
 		// Entryサーバごとに並列処理
 		int limit = BDBClientUtil.getEntryserverPutLimit();
-		List<Future<Boolean>> futures = new ArrayList<>();
+		// 非同期通信をサポートしない通信方式の場合、requestAsyncは呼び出しスレッドで
+		// リクエストを実行するため、非同期処理に振り分ける。
+		boolean isAsync = BDBTransportManager.getTransport().isAsync();
+		BDBRequester<List<EntryBase>> requester = new BDBRequester<>(BDBResponseType.FEED);
+		List<CompletableFuture<?>> futures = new ArrayList<>();
 		for (Map.Entry<String, List<EntryBase>> mapEntry : urlEntriesMap.entrySet()) {
 			String entryServerUrl = mapEntry.getKey();
 			List<EntryBase> tmpEntries = mapEntry.getValue();
@@ -103,42 +203,19 @@ public class EntryManager extends IndexCommonManager {
 				reqEntries = tmpEntries.subList(idx, toIdx);
 				idx = toIdx;
 
-				BDBClientUpdateEntriesCallable callable = new BDBClientUpdateEntriesCallable(
-						entryServerUrl, entryMultipleUri, entryPutMethod, reqEntries, null);
-				Future<Boolean> future = callable.addTask(auth, requestInfo, connectionInfo);
-				futures.add(future);
-			}
-		}
-
-		// 処理の終了を待つ
-		for (Future<Boolean> future : futures) {
-			try {
-				future.get();
-			} catch (ExecutionException e) {
-				Throwable cause = e.getCause();
-				if (logger.isDebugEnabled()) {
-					logger.debug(LogUtil.getRequestInfoStr(requestInfo) +
-							"[putEntries] ExecutionException: " +
-							cause.getMessage());
-				}
-				if (cause instanceof IOException) {
-					throw (IOException)cause;
-				} else if (cause instanceof TaggingException) {
-					throw (TaggingException)cause;
-				} else if (cause instanceof IllegalParameterException) {
-					throw (IllegalParameterException)cause;
+				if (isAsync) {
+					futures.add(requester.requestAsync(entryServerUrl, entryMultipleUri,
+							entryPutMethod, reqEntries, null, mapper, auth, requestInfo,
+							connectionInfo));
 				} else {
-					throw new IOException(cause);
-				}
-			} catch (InterruptedException e) {
-				if (logger.isDebugEnabled()) {
-					logger.debug(LogUtil.getRequestInfoStr(requestInfo) +
-							"[putEntries] InterruptedException: " +
-							e.getMessage());
+					BDBClientUpdateEntriesCallable callable = new BDBClientUpdateEntriesCallable(
+							entryServerUrl, entryMultipleUri, entryPutMethod, reqEntries, null);
+					Future<Boolean> future = callable.addTask(auth, requestInfo, connectionInfo);
+					futures.add(TaskQueueUtil.toCompletableFuture(future));
 				}
-				throw new IOException(e);
 			}
 		}
+		return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]));
 	}
 
 	/**
@@ -2,6 +2,7 @@ package jp.reflexworks.taggingservice.index;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
@@ -148,7 +149,8 @@ public class IndexCommonManager {
 		}
 		String requestUri = null;
 		if (BDBIndexType.FULLTEXT.equals(indexType)) {
-			requestUri = getGetFeedUri(uri, condition, isRequestCount);
+			requestUri = getGetFeedUri(uri, condition, editedCondition.getFtAndConditions(),
+					isRequestCount);
 		} else if (BDBIndexType.INDEX.equals(indexType)) {
 			requestUri = getGetFeedUri(uri, condition, conditionRange, isRequestCount);
 		} else {	// MANIFEST
@@ -210,6 +212,18 @@ public class IndexCommonManager {
 				deleteIndexInfos, isPartial, serverUrls, indexType, serviceName, requestInfo,
 				connectionInfo);
 
+		// インデックス更新ジャーナルが有効な場合、ジャーナルに記録する。送信はジャーナルから行う。
+		if (IndexJournalManager.isEnabled()) {
+			IndexJournalManager journalManager = new IndexJournalManager();
+			journalManager.append(indexInfoMap, deleteIndexInfoMap, isPartial, serviceName,
+					requestInfo);
+			if (logger.isTraceEnabled()) {
+				logger.debug(LogUtil.getRequestInfoStr(requestInfo) +
+						"[putIndex] end. (journal)");
+			}
+			return true;
+		}
+
 		// サーバごとにリクエストを送る。
 		ConnectionInfo sharingConnectionInfo = BDBClientUtil.copySharingConnectionInfo(
 				requestInfo, connectionInfo);
@@ -763,13 +777,18 @@ public class IndexCommonManager {
 	 * 全文検索時に使用
 	 * @param uri URI
 	 * @param condition 検索条件
+	 * @param andConditions 検索条件と同じ項目のAND条件
 	 * @param isCount 件数のみ取得の場合true
 	 * @return リクエストURL
 	 */
-	private String getGetFeedUri(String uri, Condition condition, boolean isCount)
+	private String getGetFeedUri(String uri, Condition condition, Condition[] andConditions,
+			boolean isCount)
 	throws IOException, TaggingException {
 		List<Condition> conditions = new ArrayList<>();
 		conditions.add(condition);
+		if (andConditions != null) {
+			conditions.addAll(Arrays.asList(andConditions));
+		}
 		return getGetFeedUri(uri, false, conditions, isCount);
 	}
 
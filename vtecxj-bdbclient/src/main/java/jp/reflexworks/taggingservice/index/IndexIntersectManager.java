@@ -0,0 +1,183 @@
+package jp.reflexworks.taggingservice.index;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jp.reflexworks.atom.entry.FeedBase;
+import jp.reflexworks.taggingservice.api.ConnectionInfo;
+import jp.reflexworks.taggingservice.api.ReflexAuthentication;
+import jp.reflexworks.taggingservice.api.RequestInfo;
+import jp.reflexworks.taggingservice.bdbclient.BDBClientUtil;
+import jp.reflexworks.taggingservice.exception.TaggingException;
+import jp.reflexworks.taggingservice.model.EditedCondition;
+import jp.reflexworks.taggingservice.util.Constants;
+import jp.reflexworks.taggingservice.util.LogUtil;
+import jp.reflexworks.taggingservice.util.TaggingEntryUtil;
+import jp.sourceforge.reflex.util.StringUtils;
+
+/**
+ * 複数インデックスの積集合によるFeed検索の絞り込みクラス.
+ * <p>
+ * Feed検索のインデックス検索条件(またはManifest検索)は1件のみのため、
+ * インデックスを使用できる他の条件はEntry取得後のインメモリ検索となる。
+ * このクラスでは、積集合に使用するインデックス検索条件ごとに件数をインデックスサーバに問い合わせ、
+ * 件数が上限以下の条件について件数の少ない順にIDリストを取得し、URIの積集合を求める。
+ * Entryサーバには積集合に含まれるIDのみリクエストする。
+ * </p>
+ * <p>
+ * 検索結果の並び順とカーソルは、インデックス検索条件(またはManifest検索)のものを使用する。
+ * </p>
+ */
+public class IndexIntersectManager {
+
+	/** ロガー. */
+	private Logger logger = LoggerFactory.getLogger(this.getClass());
+
+	/**
+	 * 積集合に使用するインデックス検索条件から、検索対象となるURIの積集合を取得.
+	 * @param editedCondition 編集した検索条件
+	 * @param auth 認証情報
+	 * @param requestInfo リクエスト情報
+	 * @param connectionInfo コネクション情報
+	 * @return URIの積集合。絞り込みを行わない場合null。該当データがない場合は空のセット。
+	 */
+	public Set<String> getIntersectUris(EditedCondition editedCondition,
+			ReflexAuthentication auth, RequestInfo requestInfo, ConnectionInfo connectionInfo)
+	throws IOException, TaggingException {
+		EditedCondition[] intersectConditions = editedCondition.getIntersectConditions();
+		if (intersectConditions == null || intersectConditions.length == 0) {
+			return null;
+		}
+		int intersectLimit = BDBClientUtil.getIntersectLimit();
+		if (intersectLimit <= 0) {
+			return null;
+		}
+
+		// 件数を取得し、上限以下の条件を件数の少ない順に並べる。
+		InnerIndexManager idxManager = new InnerIndexManager();
+		List<IntersectCandidate> candidates = new ArrayList<>();
+		for (EditedCondition intersectCondition : intersectConditions) {
+			FeedBase countFeed = idxManager.getByInnerIndex(intersectCondition, null,
+					intersectLimit + 1, true, auth, requestInfo, connectionInfo);
+			if (countFeed != null &&
+					(Constants.MARK_FETCH_LIMIT.equals(countFeed.rights) ||
+					 !StringUtils.isBlank(TaggingEntryUtil.getCursorFromFeed(countFeed)))) {
+				// 上限を超える
+				continue;
+			}
+			int cnt = 0;
+			if (countFeed != null && StringUtils.isInteger(countFeed.title)) {
+				cnt = Integer.parseInt(countFeed.title);
+			}
+			if (cnt == 0) {
+				// 該当データなし
+				if (logger.isTraceEnabled()) {
+					logger.debug(LogUtil.getRequestInfoStr(requestInfo) +
+							"[getIntersectUris] no data. " + intersectCondition.getIndexCondition());
+				}
+				return new HashSet<>();
+			}
+			if (cnt <= intersectLimit) {
+				candidates.add(new IntersectCandidate(intersectCondition, cnt));
+			}
+		}
+		if (candidates.isEmpty()) {
+			return null;
+		}
+		Collections.sort(candidates, new Comparator<IntersectCandidate>() {
+			@Override
+			public int compare(IntersectCandidate c1, IntersectCandidate c2) {
+				return Integer.compare(c1.count, c2.count);
+			}
+		});
+
+		// 件数の少ない順にIDリストを取得し、積集合を求める。
+		Set<String> intersectUris = null;
+		for (IntersectCandidate candidate : candidates) {
+			Set<String> uris = getUris(candidate.condition, intersectLimit, intersectUris,
+					idxManager, auth, requestInfo, connectionInfo);
+			if (uris == null) {
+				// 件数取得後に上限を超えた
+				continue;
+			}
+			intersectUris = uris;
+			if (intersectUris.isEmpty()) {
+				break;
+			}
+		}
+		if (logger.isTraceEnabled() && intersectUris != null) {
+			logger.debug(LogUtil.getRequestInfoStr(requestInfo) +
+					"[getIntersectUris] size=" + intersectUris.size());
+		}
+		return intersectUris;
+	}
+
+	/**
+	 * インデックス検索条件に合致するURIを取得.
+	 * @param condition インデックス検索条件
+	 * @param intersectLimit 最大件数
+	 * @param intersectUris これまでの積集合 (最初の条件の場合null)
+	 * @param idxManager インデックス管理クラス
+	 * @param auth 認証情報
+	 * @param requestInfo リクエスト情報
+	 * @param connectionInfo コネクション情報
+	 * @return インデックス検索条件に合致するURIと、これまでの積集合との積集合。最大件数を超えた場合null。
+	 */
+	private Set<String> getUris(EditedCondition condition, int intersectLimit,
+			Set<String> intersectUris, InnerIndexManager idxManager,
+			ReflexAuthentication auth, RequestInfo requestInfo, ConnectionInfo connectionInfo)
+	throws IOException, TaggingException {
+		Set<String> uris = new HashSet<>();
+		int cnt = 0;
+		String cursorStr = null;
+		do {
+			FeedBase idsFeed = idxManager.getByInnerIndex(condition, cursorStr,
+					intersectLimit + 1, false, auth, requestInfo, connectionInfo);
+			cursorStr = TaggingEntryUtil.getCursorFromFeed(idsFeed);
+			List<String> ids = TaggingEntryUtil.getIds(idsFeed);
+			if (ids != null) {
+				cnt += ids.size();
+				if (cnt > intersectLimit) {
+					return null;
+				}
+				for (String id : ids) {
+					String uri = TaggingEntryUtil.getUriById(id);
+					if (intersectUris == null || intersectUris.contains(uri)) {
+						uris.add(uri);
+					}
+				}
+			}
+		} while (!StringUtils.isBlank(cursorStr));
+		return uris;
+	}
+
+	/**
+	 * 積集合に使用するインデックス検索条件と件数.
+	 */
+	private static class IntersectCandidate {
+
+		/** インデックス検索条件 */
+		private final EditedCondition condition;
+		/** 件数 */
+		private final int count;
+
+		/**
+		 * コンストラクタ.
+		 * @param condition インデックス検索条件
+		 * @param count 件数
+		 */
+		IntersectCandidate(EditedCondition condition, int count) {
+			this.condition = condition;
+			this.count = count;
+		}
+	}
+
+}
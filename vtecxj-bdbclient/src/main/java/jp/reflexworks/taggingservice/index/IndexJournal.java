@@ -0,0 +1,718 @@
+package jp.reflexworks.taggingservice.index;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jp.reflexworks.atom.entry.EntryBase;
+import jp.reflexworks.atom.entry.FeedBase;
+import jp.reflexworks.atom.mapper.FeedTemplateMapper;
+import jp.reflexworks.taggingservice.util.TaggingEntryUtil;
+
+/**
+ * インデックス更新ジャーナル.
+ * <p>
+ * インデックス更新情報をローカルファイルに追記し、インデックスサーバへの送信が完了するまで保持する。
+ * 同じEntryの未送信の更新情報は、最新のものだけを残す。
+ * 起動時はファイルを読み込み、未送信の更新情報を復元する。
+ * </p>
+ * <p>
+ * 追加レコードの同期書き込み(fsync)はまとめて行う(グループコミット)。
+ * 追加はこのオブジェクトのロックでファイルに書き込み、同期書き込みはロックの外で行う。
+ * 同期書き込み中に追加されたレコードは次の同期書き込みにまとめ、
+ * 追加したスレッドは自身のレコードを含む同期書き込みの完了を待つ。
+ * ロックを取得する場合は、同期書き込みのロック、このオブジェクトのロックの順とする。
+ * </p>
+ */
+public class IndexJournal {
+
+	/** ジャーナルファイル名 */
+	private static final String FILENAME_JOURNAL = "index.journal";
+	/** ジャーナル圧縮時の一時ファイル名 */
+	private static final String FILENAME_COMPACT = "index.journal.compact";
+	/** ロックファイル名 */
+	private static final String FILENAME_LOCK = "index.journal.lock";
+	/** レコード種別 : 追加 */
+	private static final byte TYPE_APPEND = 'A';
+	/** レコード種別 : 送信完了 */
+	private static final byte TYPE_DONE = 'D';
+	/** レコードヘッダ長 (データ長 + CRC32) */
+	private static final int HEADER_LEN = 8;
+	/** 統計情報の項目名の接頭辞 */
+	private static final String NAME_PREFIX = "indexjournal.";
+
+	/** ジャーナルファイル */
+	private final Path journalPath;
+	/** ジャーナル圧縮時の一時ファイル */
+	private final Path compactPath;
+	/** インデックス更新情報のシリアライズに使用するResourceMapper */
+	private final FeedTemplateMapper mapper;
+	/** ロックファイルのチャネル */
+	private final FileChannel lockChannel;
+	/** ロック */
+	private final FileLock lock;
+	/** ジャーナルファイルのチャネル */
+	private FileChannel channel;
+	/** 次の連番 */
+	private long nextSeq = 1;
+	/** 送信キュー キー:送信キューのキー、値:送信キュー */
+	private final Map<String, Queue> queues = new HashMap<>();
+	/** 未送信レコード キー:連番、値:レコード */
+	private final TreeMap<Long, IndexJournalRecord> records = new TreeMap<>();
+	/** まとめ対象の最新レコード キー:まとめ対象キー、値:レコード */
+	private final Map<String, IndexJournalRecord> coalesceRecords = new HashMap<>();
+	/** 同期書き込みのロック */
+	private final Object syncLock = new Object();
+	/** ファイルに書き込み、同期書き込みを待っているレコード */
+	private SyncBatch syncBatch = new SyncBatch();
+
+	/** 追加したインデックス更新情報の数 */
+	private final LongAdder appendedCount = new LongAdder();
+	/** 新しい更新情報にまとめたレコード数 */
+	private final LongAdder coalescedCount = new LongAdder();
+	/** 送信したインデックス更新情報の数 */
+	private final LongAdder sentCount = new LongAdder();
+	/** 送信リクエスト数 */
+	private final LongAdder requestCount = new LongAdder();
+	/** 送信失敗回数 */
+	private final LongAdder failureCount = new LongAdder();
+	/** 送信を断念したインデックス更新情報の数 */
+	private final LongAdder droppedCount = new LongAdder();
+
+	/** ロガー. */
+	private Logger logger = LoggerFactory.getLogger(this.getClass());
+
+	/**
+	 * 送信キュー.
+	 * サービスとインデックスサーバごとに、未送信レコードを連番順に保持する。
+	 */
+	private static class Queue {
+		/** 未送信レコード キー:連番、値:レコード */
+		private final TreeMap<Long, IndexJournalRecord> records = new TreeMap<>();
+		/** 送信処理中の場合true */
+		private boolean busy;
+		/** 次に送信可能な時刻(ミリ秒) */
+		private long retryAt;
+		/** 連続した送信失敗回数 */
+		private int retryCount;
+	}
+
+	/**
+	 * 同期書き込みの単位.
+	 * 参照・更新は同期書き込みのロックで同期すること。(レコードの追加はこのオブジェクトのロックで行う)
+	 */
+	private static class SyncBatch {
+		/** ファイルに書き込んだレコード (連番順) */
+		private final List<IndexJournalRecord> records = new ArrayList<>();
+		/** 同期書き込みを終了した場合true */
+		private boolean done;
+		/** 同期書き込みに失敗した場合の例外 */
+		private IOException error;
+	}
+
+	/**
+	 * コンストラクタ.
+	 * @param dir ジャーナル格納ディレクトリ
+	 * @param mapper インデックス更新情報のシリアライズに使用するResourceMapper
+	 */
+	private IndexJournal(File dir, FeedTemplateMapper mapper)
+	throws IOException {
+		this.journalPath = new File(dir, FILENAME_JOURNAL).toPath();
+		this.compactPath = new File(dir, FILENAME_COMPACT).toPath();
+		this.mapper = mapper;
+		this.lockChannel = FileChannel.open(new File(dir, FILENAME_LOCK).toPath(),
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+		FileLock tmpLock = null;
+		try {
+			tmpLock = lockChannel.tryLock();
+		} finally {
+			if (tmpLock == null) {
+				lockChannel.close();
+			}
+		}
+		if (tmpLock == null) {
+			throw new IOException("The index journal is locked by another process. " + dir.getPath());
+		}
+		this.lock = tmpLock;
+	}
+
+	/**
+	 * ジャーナルを開く.
+	 * ジャーナルファイルを読み込み、未送信レコードを復元する。
+	 * 書き込み途中で終了したレコードは破棄する。
+	 * @param dir ジャーナル格納ディレクトリ
+	 * @param mapper インデックス更新情報のシリアライズに使用するResourceMapper
+	 * @return ジャーナル
+	 */
+	public static IndexJournal open(File dir, FeedTemplateMapper mapper)
+	throws IOException {
+		if (!dir.isDirectory() && !dir.mkdirs()) {
+			throw new IOException("The index journal directory could not be created. " + dir.getPath());
+		}
+		IndexJournal journal = new IndexJournal(dir, mapper);
+		try {
+			journal.replay();
+		} catch (IOException | RuntimeException e) {
+			journal.close();
+			throw e;
+		}
+		return journal;
+	}
+
+	/**
+	 * ジャーナルファイルを読み込み、未送信レコードを復元する.
+	 */
+	private synchronized void replay()
+	throws IOException {
+		long validLength = 0;
+		if (Files.exists(journalPath)) {
+			long fileSize = Files.size(journalPath);
+			try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+					Files.newInputStream(journalPath)))) {
+				while (true) {
+					byte[] payload = readRecord(in, fileSize - validLength - HEADER_LEN);
+					if (payload == null) {
+						break;
+					}
+					readPayload(payload);
+					validLength += HEADER_LEN + payload.length;
+				}
+			}
+		}
+		channel = FileChannel.open(journalPath, StandardOpenOption.CREATE,
+				StandardOpenOption.READ, StandardOpenOption.WRITE);
+		if (channel.size() > validLength) {
+			logger.warn("[replay] The incomplete record is discarded. journal=" + journalPath +
+					", size=" + channel.size() + ", validLength=" + validLength);
+			channel.truncate(validLength);
+		}
+		channel.position(validLength);
+		if (logger.isInfoEnabled()) {
+			logger.info("[replay] journal=" + journalPath + ", pending=" + records.size());
+		}
+	}
+
+	/**
+	 * レコードを1件読み込む.
+	 * @param in 入力ストリーム
+	 * @param maxLen データ部の最大長 (ファイルの残りサイズ)
+	 * @return レコードのデータ部。終端または不完全なレコードの場合null。
+	 */
+	private byte[] readRecord(DataInputStream in, long maxLen)
+	throws IOException {
+		try {
+			int len = in.readInt();
+			long crc = in.readInt() & 0xffffffffL;
+			if (len <= 0 || len > maxLen) {
+				return null;
+			}
+			byte[] payload = new byte[len];
+			in.readFully(payload);
+			if (getCrc(payload) != crc) {
+				return null;
+			}
+			return payload;
+		} catch (EOFException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * レコードのデータ部を読み込み、未送信レコードに反映する.
+	 * @param payload レコードのデータ部
+	 */
+	private void readPayload(byte[] payload)
+	throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+		byte type = in.readByte();
+		long seq = in.readLong();
+		if (type == TYPE_DONE) {
+			remove(seq);
+		} else if (type == TYPE_APPEND) {
+			long time = in.readLong();
+			String serviceName = in.readUTF();
+			String serverUrl = in.readUTF();
+			String coalesceKey = in.readUTF();
+			long revision = in.readLong();
+			boolean isDelete = in.readBoolean();
+			FeedBase feed = readFeed(in);
+			IndexJournalRecord record = new IndexJournalRecord(time, serviceName, serverUrl,
+					coalesceKey.isEmpty() ? null : coalesceKey, revision, isDelete, feed.entry);
+			record.setSeq(seq);
+			apply(record);
+		} else {
+			throw new IOException("The record type is invalid. " + type);
+		}
+		if (seq >= nextSeq) {
+			nextSeq = seq + 1;
+		}
+	}
+
+	/**
+	 * インデックス更新情報を読み込む.
+	 * @param in 入力ストリーム
+	 * @return インデックス更新情報
+	 */
+	private FeedBase readFeed(DataInputStream in)
+	throws IOException {
+		byte[] data = new byte[in.readInt()];
+		in.readFully(data);
+		try {
+			return (FeedBase)mapper.fromMessagePack(data, true);
+		} catch (ClassNotFoundException e) {
+			throw new IOException(e);
+		}
+	}
+
+	/**
+	 * レコードを追加する.
+	 * ファイルへの同期書き込みが完了してから未送信レコードに反映する。
+	 * @param newRecords レコードリスト
+	 */
+	public void append(List<IndexJournalRecord> newRecords)
+	throws IOException {
+		if (newRecords == null || newRecords.isEmpty()) {
+			return;
+		}
+		SyncBatch batch = null;
+		synchronized (this) {
+			ByteArrayOutputStream bout = new ByteArrayOutputStream();
+			long seq = nextSeq;
+			for (IndexJournalRecord record : newRecords) {
+				record.setSeq(seq++);
+				writeRecord(bout, createAppendPayload(record));
+			}
+			write(bout.toByteArray());
+			nextSeq = seq;
+			batch = syncBatch;
+			batch.records.addAll(newRecords);
+		}
+		sync(batch);
+	}
+
+	/**
+	 * 追加レコードを同期書き込みし、未送信レコードに反映する.
+	 * 指定された同期書き込みが終了していない場合、その時点でファイルに書き込まれている
+	 * 全ての追加レコードをまとめて同期書き込みする。
+	 * @param batch 追加レコードを含む同期書き込みの単位
+	 */
+	private void sync(SyncBatch batch)
+	throws IOException {
+		synchronized (syncLock) {
+			if (!batch.done) {
+				// 同期書き込み中に追加されたレコードは次の同期書き込みの単位とする
+				FileChannel syncChannel = null;
+				synchronized (this) {
+					syncChannel = channel;
+					syncBatch = new SyncBatch();
+				}
+				try {
+					syncChannel.force(false);
+					synchronized (this) {
+						for (IndexJournalRecord record : batch.records) {
+							appendedCount.add(record.getIndexInfos().size());
+							apply(record);
+						}
+					}
+				} catch (IOException e) {
+					batch.error = e;
+				} finally {
+					batch.done = true;
+				}
+			}
+			if (batch.error != null) {
+				throw new IOException(batch.error.getMessage(), batch.error);
+			}
+		}
+	}
+
+	/**
+	 * 未送信レコードに反映する.
+	 * 同じまとめ対象キーの未送信レコードがあれば、新しいレコードに置き換える。
+	 * ただし、古いリビジョンの登録更新は反映しない。
+	 * @param record レコード
+	 */
+	private void apply(IndexJournalRecord record) {
+		String coalesceKey = record.getCoalesceKey();
+		if (coalesceKey != null) {
+			IndexJournalRecord prevRecord = coalesceRecords.get(coalesceKey);
+			if (prevRecord != null) {
+				if (!record.isDelete() && !prevRecord.isDelete() &&
+						record.getRevision() < prevRecord.getRevision()) {
+					// 古いリビジョンの登録更新
+					coalescedCount.increment();
+					return;
+				}
+				if (!prevRecord.isSending()) {
+					remove(prevRecord.getSeq());
+					coalescedCount.increment();
+				}
+			}
+			coalesceRecords.put(coalesceKey, record);
+		}
+		records.put(record.getSeq(), record);
+		queues.computeIfAbsent(record.getQueueKey(), k -> new Queue()).records.put(
+				record.getSeq(), record);
+	}
+
+	/**
+	 * 未送信レコードから取り除く.
+	 * @param seq 連番
+	 */
+	private void remove(long seq) {
+		IndexJournalRecord record = records.remove(seq);
+		if (record == null) {
+			return;
+		}
+		String coalesceKey = record.getCoalesceKey();
+		if (coalesceKey != null && coalesceRecords.get(coalesceKey) == record) {
+			coalesceRecords.remove(coalesceKey);
+		}
+		String queueKey = record.getQueueKey();
+		Queue queue = queues.get(queueKey);
+		if (queue != null) {
+			queue.records.remove(seq);
+			if (queue.records.isEmpty() && !queue.busy) {
+				queues.remove(queueKey);
+			}
+		}
+	}
+
+	/**
+	 * 送信可能な送信キューを取得し、送信処理中にする.
+	 * @param now 現在時刻(ミリ秒)
+	 * @return 送信キューのキーリスト
+	 */
+	public synchronized List<String> acquireQueues(long now) {
+		List<String> queueKeys = new ArrayList<>();
+		for (Map.Entry<String, Queue> mapEntry : queues.entrySet()) {
+			Queue queue = mapEntry.getValue();
+			if (!queue.busy && queue.retryAt <= now && !queue.records.isEmpty()) {
+				queue.busy = true;
+				queueKeys.add(mapEntry.getKey());
+			}
+		}
+		return queueKeys;
+	}
+
+	/**
+	 * 送信キューの先頭から、同じインデックスサーバURLに送信するレコードを取得する.
+	 * 取得したレコードは送信中となり、新しいレコードに置き換えられない。
+	 * @param queueKey 送信キューのキー
+	 * @param limit 1リクエストで送信するインデックス更新情報の最大数
+	 * @return レコードリスト。未送信レコードがない場合は空のリスト。
+	 */
+	public synchronized List<IndexJournalRecord> takeBatch(String queueKey, int limit) {
+		List<IndexJournalRecord> batch = new ArrayList<>();
+		Queue queue = queues.get(queueKey);
+		if (queue == null) {
+			return batch;
+		}
+		String serverUrl = null;
+		int cnt = 0;
+		for (IndexJournalRecord record : queue.records.values()) {
+			if (serverUrl == null) {
+				serverUrl = record.getServerUrl();
+			} else if (!serverUrl.equals(record.getServerUrl()) || cnt >= limit) {
+				break;
+			}
+			record.setSending(true);
+			batch.add(record);
+			cnt += record.getIndexInfos().size();
+		}
+		return batch;
+	}
+
+	/**
+	 * 送信を完了したレコードを取り除く.
+	 * @param batch レコードリスト
+	 * @param isDropped 送信を断念した場合true
+	 */
+	public synchronized void complete(List<IndexJournalRecord> batch, boolean isDropped)
+	throws IOException {
+		ByteArrayOutputStream bout = new ByteArrayOutputStream();
+		int cnt = 0;
+		for (IndexJournalRecord record : batch) {
+			writeRecord(bout, createDonePayload(record));
+			cnt += record.getIndexInfos().size();
+			remove(record.getSeq());
+		}
+		if (isDropped) {
+			droppedCount.add(cnt);
+		} else {
+			sentCount.add(cnt);
+			requestCount.increment();
+		}
+		// 完了レコードが失われても再送されるだけのため、同期書き込みは行わない。
+		write(bout.toByteArray());
+	}
+
+	/**
+	 * 送信に失敗したレコードを未送信に戻す.
+	 * @param batch レコードリスト
+	 */
+	public synchronized void fail(List<IndexJournalRecord> batch) {
+		for (IndexJournalRecord record : batch) {
+			record.setSending(false);
+		}
+		failureCount.increment();
+	}
+
+	/**
+	 * 送信キューの送信処理を終了する.
+	 * @param queueKey 送信キューのキー
+	 * @param isFailed 送信に失敗した場合true
+	 * @param retryWaitMillis 送信失敗時の再送までの基本待ち時間(ミリ秒)
+	 * @param retryMaxWaitMillis 送信失敗時の再送までの最大待ち時間(ミリ秒)
+	 */
+	public synchronized void releaseQueue(String queueKey, boolean isFailed,
+			long retryWaitMillis, long retryMaxWaitMillis) {
+		Queue queue = queues.get(queueKey);
+		if (queue == null) {
+			return;
+		}
+		queue.busy = false;
+		if (isFailed) {
+			// 失敗が続くほど再送間隔を空ける
+			long waitMillis = retryWaitMillis << Math.min(queue.retryCount, 16);
+			queue.retryAt = System.currentTimeMillis() + Math.min(waitMillis, retryMaxWaitMillis);
+			queue.retryCount++;
+		} else {
+			queue.retryAt = 0;
+			queue.retryCount = 0;
+		}
+		if (queue.records.isEmpty()) {
+			queues.remove(queueKey);
+		}
+	}
+
+	/**
+	 * ジャーナルファイルが指定サイズを超えた場合、未送信レコードのみのファイルに置き換える.
+	 * 同期書き込みを待っている追加レコードも、新しいファイルに含める。
+	 * @param maxBytes ジャーナルファイルの最大サイズ(バイト)
+	 */
+	public void compact(long maxBytes)
+	throws IOException {
+		synchronized (syncLock) {
+			synchronized (this) {
+				compactProc(maxBytes);
+			}
+		}
+	}
+
+	/**
+	 * ジャーナルファイルを未送信レコードのみのファイルに置き換える.
+	 * 同期書き込みのロックとこのオブジェクトのロックを取得して呼び出すこと。
+	 * @param maxBytes ジャーナルファイルの最大サイズ(バイト)
+	 */
+	private void compactProc(long maxBytes)
+	throws IOException {
+		long size = channel.size();
+		if (size <= maxBytes) {
+			return;
+		}
+		// 未送信レコードの後に、同期書き込みを待っている追加レコード(連番が大きい)を書き込む
+		List<IndexJournalRecord> compactRecords = new ArrayList<>(records.values());
+		compactRecords.addAll(syncBatch.records);
+		try (FileChannel compactChannel = FileChannel.open(compactPath,
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			for (IndexJournalRecord record : compactRecords) {
+				ByteArrayOutputStream bout = new ByteArrayOutputStream();
+				writeRecord(bout, createAppendPayload(record));
+				ByteBuffer buf = ByteBuffer.wrap(bout.toByteArray());
+				while (buf.hasRemaining()) {
+					compactChannel.write(buf);
+				}
+			}
+			compactChannel.force(true);
+		}
+		channel.close();
+		Files.move(compactPath, journalPath, StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+		channel = FileChannel.open(journalPath, StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+		channel.position(channel.size());
+		if (logger.isInfoEnabled()) {
+			logger.info("[compact] journal=" + journalPath + ", size=" + size + " -> " +
+					channel.size() + ", pending=" + records.size());
+		}
+	}
+
+	/**
+	 * サービスごとのインデックス更新の遅れを取得.
+	 * @param now 現在時刻(ミリ秒)
+	 * @return キー:サービス名、値:[0]最も古い未送信レコードの経過時間(秒)、[1]未送信レコード数
+	 */
+	public synchronized Map<String, long[]> getServiceLags(long now) {
+		Map<String, long[]> lags = new TreeMap<>();
+		for (IndexJournalRecord record : records.values()) {
+			long[] lag = lags.get(record.getServiceName());
+			if (lag == null) {
+				// 連番順のため、最初のレコードが最も古い
+				lag = new long[]{Math.max(0, (now - record.getTime()) / 1000), 0};
+				lags.put(record.getServiceName(), lag);
+			}
+			lag[1]++;
+		}
+		return lags;
+	}
+
+	/**
+	 * 統計情報をEntryリストで取得.
+	 * titleに項目名、summaryに値を設定する。
+	 * @return 統計情報
+	 */
+	public List<EntryBase> getStatsEntries() {
+		List<EntryBase> statsEntries = new ArrayList<>();
+		statsEntries.add(createStatsEntry("appended", appendedCount.sum()));
+		statsEntries.add(createStatsEntry("coalesced", coalescedCount.sum()));
+		statsEntries.add(createStatsEntry("sent", sentCount.sum()));
+		statsEntries.add(createStatsEntry("requests", requestCount.sum()));
+		statsEntries.add(createStatsEntry("failures", failureCount.sum()));
+		statsEntries.add(createStatsEntry("dropped", droppedCount.sum()));
+		for (Map.Entry<String, long[]> mapEntry :
+				getServiceLags(System.currentTimeMillis()).entrySet()) {
+			String serviceName = mapEntry.getKey();
+			long[] lag = mapEntry.getValue();
+			statsEntries.add(createStatsEntry("lag." + serviceName + ".seconds", lag[0]));
+			statsEntries.add(createStatsEntry("lag." + serviceName + ".entries", lag[1]));
+		}
+		return statsEntries;
+	}
+
+	/**
+	 * ジャーナルを閉じる.
+	 */
+	public synchronized void close() {
+		try {
+			if (channel != null) {
+				channel.close();
+			}
+		} catch (IOException e) {
+			logger.warn("[close] Error occured. journal=" + journalPath, e);
+		}
+		try {
+			lock.release();
+			lockChannel.close();
+		} catch (IOException e) {
+			logger.warn("[close] Error occured. journal=" + journalPath, e);
+		}
+	}
+
+	/**
+	 * 追加レコードのデータ部を生成.
+	 * @param record レコード
+	 * @return データ部
+	 */
+	private byte[] createAppendPayload(IndexJournalRecord record)
+	throws IOException {
+		FeedBase feed = TaggingEntryUtil.createAtomFeed();
+		feed.entry = record.getIndexInfos();
+		byte[] data = mapper.toMessagePack(feed);
+		String coalesceKey = record.getCoalesceKey();
+
+		ByteArrayOutputStream bout = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bout);
+		out.writeByte(TYPE_APPEND);
+		out.writeLong(record.getSeq());
+		out.writeLong(record.getTime());
+		out.writeUTF(record.getServiceName());
+		out.writeUTF(record.getServerUrl());
+		out.writeUTF(coalesceKey == null ? "" : coalesceKey);
+		out.writeLong(record.getRevision());
+		out.writeBoolean(record.isDelete());
+		out.writeInt(data.length);
+		out.write(data);
+		out.flush();
+		return bout.toByteArray();
+	}
+
+	/**
+	 * 送信完了レコードのデータ部を生成.
+	 * @param record レコード
+	 * @return データ部
+	 */
+	private byte[] createDonePayload(IndexJournalRecord record)
+	throws IOException {
+		ByteArrayOutputStream bout = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bout);
+		out.writeByte(TYPE_DONE);
+		out.writeLong(record.getSeq());
+		out.flush();
+		return bout.toByteArray();
+	}
+
+	/**
+	 * ヘッダ(データ長、CRC32)を付けてレコードを出力する.
+	 * @param bout 出力先
+	 * @param payload データ部
+	 */
+	private void writeRecord(ByteArrayOutputStream bout, byte[] payload)
+	throws IOException {
+		DataOutputStream out = new DataOutputStream(bout);
+		out.writeInt(payload.length);
+		out.writeInt((int)getCrc(payload));
+		out.write(payload);
+		out.flush();
+	}
+
+	/**
+	 * ジャーナルファイルに書き込む.
+	 * @param data データ
+	 */
+	private void write(byte[] data)
+	throws IOException {
+		ByteBuffer buf = ByteBuffer.wrap(data);
+		while (buf.hasRemaining()) {
+			channel.write(buf);
+		}
+	}
+
+	/**
+	 * CRC32を取得.
+	 * @param data データ
+	 * @return CRC32
+	 */
+	private static long getCrc(byte[] data) {
+		CRC32 crc32 = new CRC32();
+		crc32.update(data);
+		return crc32.getValue();
+	}
+
+	/**
+	 * 統計情報Entryを生成.
+	 * @param name 項目名
+	 * @param value 値
+	 * @return 統計情報Entry
+	 */
+	private EntryBase createStatsEntry(String name, long value) {
+		EntryBase entry = TaggingEntryUtil.createAtomEntry();
+		entry.title = NAME_PREFIX + name;
+		entry.summary = String.valueOf(value);
+		return entry;
+	}
+
+}
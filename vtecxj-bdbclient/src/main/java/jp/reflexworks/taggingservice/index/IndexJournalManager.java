@@ -0,0 +1,353 @@
+package jp.reflexworks.taggingservice.index;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jp.reflexworks.atom.entry.EntryBase;
+import jp.reflexworks.atom.entry.FeedBase;
+import jp.reflexworks.taggingservice.api.ConnectionInfo;
+import jp.reflexworks.taggingservice.api.ReflexStatic;
+import jp.reflexworks.taggingservice.api.RequestInfo;
+import jp.reflexworks.taggingservice.bdbclient.BDBClientUtil;
+import jp.reflexworks.taggingservice.conn.ConnectionInfoImpl;
+import jp.reflexworks.taggingservice.env.TaggingEnvUtil;
+import jp.reflexworks.taggingservice.exception.StaticDuplicatedException;
+import jp.reflexworks.taggingservice.exception.TaggingException;
+import jp.reflexworks.taggingservice.requester.BDBRequesterUtil;
+import jp.reflexworks.taggingservice.sys.SystemUtil;
+import jp.reflexworks.taggingservice.util.Constants;
+import jp.reflexworks.taggingservice.util.LogUtil;
+import jp.reflexworks.taggingservice.util.RetryUtil;
+import jp.reflexworks.taggingservice.util.TaggingEntryUtil;
+import jp.sourceforge.reflex.util.DeflateUtil;
+import jp.sourceforge.reflex.util.StringUtils;
+
+/**
+ * インデックス更新ジャーナルの管理クラス.
+ * <p>
+ * インデックス更新情報をジャーナルに追加し、サービスとインデックスサーバごとに一定間隔でまとめて送信する。
+ * 送信に失敗した場合は、間隔を空けて再送する。
+ * ジャーナルが有効でない場合、インデックス更新情報は非同期処理で直接送信する。
+ * </p>
+ */
+public class IndexJournalManager {
+
+	/** メモリ上のstaticオブジェクト格納キー : インデックス更新ジャーナル */
+	private static final String STATIC_NAME_INDEXJOURNAL = "_bdbclient_indexjournal";
+	/** メモリ上のstaticオブジェクト格納キー : 送信タイマー */
+	private static final String STATIC_NAME_INDEXJOURNAL_SCHEDULED = "_bdbclient_indexjournal_scheduled";
+	/** メモリ上のstaticオブジェクト格納キー : 送信処理 */
+	private static final String STATIC_NAME_INDEXJOURNAL_SENDER = "_bdbclient_indexjournal_sender";
+	/** インデックスサーバへのリクエストメソッド */
+	private static final String METHOD = Constants.PUT;
+	/** 送信失敗時の再送までの最大待ち時間(ミリ秒) */
+	private static final long RETRY_MAX_WAITMILLIS = 60000;
+	/** シャットダウン時の送信処理終了待ち時間(秒) */
+	private static final int AWAITTERMINATION_SEC = 10;
+
+	/** ロガー. */
+	private static Logger logger = LoggerFactory.getLogger(IndexJournalManager.class);
+
+	/**
+	 * 初期処理に呼ばれるメソッド.
+	 * ジャーナルを開いて未送信のインデックス更新情報を復元し、送信処理を開始する。
+	 * ジャーナルを開けない場合は、インデックス更新情報を直接送信する。
+	 */
+	public void init() {
+		if (!BDBClientUtil.isEnableIndexJournal()) {
+			return;
+		}
+		File dir = new File(BDBClientUtil.getIndexJournalDir());
+		IndexJournal journal = null;
+		try {
+			journal = IndexJournal.open(dir, TaggingEnvUtil.getAtomResourceMapper());
+		} catch (IOException e) {
+			logger.error("[init] The index journal could not be opened. Index updates are sent directly. dir=" +
+					dir.getPath(), e);
+			return;
+		}
+		try {
+			ReflexStatic.setStatic(STATIC_NAME_INDEXJOURNAL, journal);
+		} catch (StaticDuplicatedException e) {
+			logger.warn("[init] StaticDuplicatedException: " + STATIC_NAME_INDEXJOURNAL, e);
+			journal.close();
+			return;
+		}
+		// 送信処理はサーバごとに並行して行う
+		ExecutorService sender = Executors.newVirtualThreadPerTaskExecutor();
+		try {
+			ReflexStatic.setStatic(STATIC_NAME_INDEXJOURNAL_SENDER, sender);
+		} catch (StaticDuplicatedException e) {
+			logger.warn("[init] StaticDuplicatedException: " + STATIC_NAME_INDEXJOURNAL_SENDER, e);
+		}
+		ScheduledExecutorService scheduled = Executors.newSingleThreadScheduledExecutor();
+		try {
+			ReflexStatic.setStatic(STATIC_NAME_INDEXJOURNAL_SCHEDULED, scheduled);
+		} catch (StaticDuplicatedException e) {
+			logger.warn("[init] StaticDuplicatedException: " + STATIC_NAME_INDEXJOURNAL_SCHEDULED, e);
+		}
+		long intervalMillis = BDBClientUtil.getIndexJournalIntervalMillis();
+		scheduled.scheduleWithFixedDelay(() -> drain(), intervalMillis, intervalMillis,
+				TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * シャットダウン時の処理.
+	 * 送信処理を停止してジャーナルを閉じる。未送信のインデックス更新情報は次回起動時に送信する。
+	 */
+	public void close() {
+		IndexJournal journal = getJournal();
+		if (journal == null) {
+			return;
+		}
+		ScheduledExecutorService scheduled = (ScheduledExecutorService)ReflexStatic.getStatic(
+				STATIC_NAME_INDEXJOURNAL_SCHEDULED);
+		if (scheduled != null) {
+			scheduled.shutdown();
+		}
+		ExecutorService sender = (ExecutorService)ReflexStatic.getStatic(
+				STATIC_NAME_INDEXJOURNAL_SENDER);
+		if (sender != null) {
+			sender.shutdown();
+			try {
+				if (!sender.awaitTermination(AWAITTERMINATION_SEC, TimeUnit.SECONDS)) {
+					logger.warn("[close] awaitTermination failed.");
+				}
+			} catch (InterruptedException e) {
+				logger.warn("[close] InterruptedException: " + e.getMessage(), e);
+			}
+		}
+		journal.close();
+	}
+
+	/**
+	 * インデックス更新ジャーナルが有効かどうか.
+	 * @return インデックス更新ジャーナルが有効な場合true
+	 */
+	public static boolean isEnabled() {
+		return getJournal() != null;
+	}
+
+	/**
+	 * インデックス更新情報をジャーナルに追加.
+	 * Entry全体のインデックス更新の場合、インデックスサーバごと・Entryごとに最新の更新情報のみ送信する。
+	 * @param indexInfoMap 登録更新インデックス(キー:サーバURL、値:インデックスリスト)
+	 * @param deleteIndexInfoMap 削除インデックス(キー:サーバURL、値:インデックスリスト)
+	 * @param isPartial 部分更新の場合true
+	 * @param serviceName サービス名
+	 * @param requestInfo リクエスト情報
+	 */
+	public void append(Map<String, List<EntryBase>> indexInfoMap,
+			Map<String, List<EntryBase>> deleteIndexInfoMap, boolean isPartial,
+			String serviceName, RequestInfo requestInfo)
+	throws IOException {
+		IndexJournal journal = getJournal();
+		if (journal == null) {
+			throw new IllegalStateException("static infomation does not exist. " + STATIC_NAME_INDEXJOURNAL);
+		}
+		long now = System.currentTimeMillis();
+		List<IndexJournalRecord> records = new ArrayList<>();
+		addRecords(records, indexInfoMap, false, isPartial, serviceName, now);
+		addRecords(records, deleteIndexInfoMap, true, isPartial, serviceName, now);
+		journal.append(records);
+		if (logger.isTraceEnabled()) {
+			logger.debug(LogUtil.getRequestInfoStr(requestInfo) +
+					"[append] records=" + records.size());
+		}
+	}
+
+	/**
+	 * インデックス更新情報からレコードを生成する.
+	 * @param records レコードリスト
+	 * @param indexInfoMap インデックス(キー:サーバURL、値:インデックスリスト)
+	 * @param isDelete 削除の場合true
+	 * @param isPartial 部分更新の場合true
+	 * @param serviceName サービス名
+	 * @param now 現在時刻(ミリ秒)
+	 */
+	private void addRecords(List<IndexJournalRecord> records,
+			Map<String, List<EntryBase>> indexInfoMap, boolean isDelete, boolean isPartial,
+			String serviceName, long now) {
+		for (Map.Entry<String, List<EntryBase>> mapEntry : indexInfoMap.entrySet()) {
+			String serverUrl = mapEntry.getKey();
+			if (isPartial) {
+				// 部分更新は項目ごとの差分のため、まとめずに送信する。
+				records.add(new IndexJournalRecord(now, serviceName, serverUrl, null, 0,
+						isDelete, mapEntry.getValue()));
+				continue;
+			}
+			// Entryごとに分ける
+			// キー: ID
+			Map<String, List<EntryBase>> indexInfosById = new LinkedHashMap<>();
+			for (EntryBase indexInfo : mapEntry.getValue()) {
+				String id = StringUtils.null2blank(indexInfo.id);
+				List<EntryBase> tmpIndexInfos = indexInfosById.get(id);
+				if (tmpIndexInfos == null) {
+					tmpIndexInfos = new ArrayList<>();
+					indexInfosById.put(id, tmpIndexInfos);
+				}
+				tmpIndexInfos.add(indexInfo);
+			}
+			String baseServerUrl = IndexJournalRecord.getBaseServerUrl(serverUrl);
+			for (Map.Entry<String, List<EntryBase>> idEntry : indexInfosById.entrySet()) {
+				String id = idEntry.getKey();
+				String coalesceKey = null;
+				long revision = 0;
+				if (!StringUtils.isBlank(id)) {
+					// 登録更新・削除ともにIDのURI単位で置き換える
+					coalesceKey = serviceName + " " + baseServerUrl + " " +
+							TaggingEntryUtil.getUriById(id);
+					revision = TaggingEntryUtil.getRevisionById(id);
+				}
+				records.add(new IndexJournalRecord(now, serviceName, serverUrl, coalesceKey,
+						revision, isDelete, idEntry.getValue()));
+			}
+		}
+	}
+
+	/**
+	 * 統計情報をFeedで取得.
+	 * ジャーナルが有効でない場合はEntryなしのFeedを返す。
+	 * @return 統計情報
+	 */
+	public static FeedBase getStatsFeed() {
+		FeedBase feed = TaggingEntryUtil.createAtomFeed();
+		IndexJournal journal = getJournal();
+		if (journal != null) {
+			feed.entry = journal.getStatsEntries();
+		}
+		return feed;
+	}
+
+	/**
+	 * 送信可能な送信キューごとに送信処理を開始する.
+	 * 送信タイマーから一定間隔で呼ばれる。
+	 */
+	private static void drain() {
+		try {
+			IndexJournal journal = getJournal();
+			ExecutorService sender = (ExecutorService)ReflexStatic.getStatic(
+					STATIC_NAME_INDEXJOURNAL_SENDER);
+			if (journal == null || sender == null) {
+				return;
+			}
+			journal.compact(BDBClientUtil.getIndexJournalCompactBytes());
+			for (String queueKey : journal.acquireQueues(System.currentTimeMillis())) {
+				try {
+					sender.execute(() -> sendQueue(journal, queueKey));
+				} catch (RejectedExecutionException e) {
+					// シャットダウン中
+					journal.releaseQueue(queueKey, false, 0, 0);
+				}
+			}
+		} catch (Throwable e) {
+			// 送信タイマーを止めないため例外はスローしない
+			logger.warn("[drain] Error occured. " + e.getClass().getName(), e);
+		}
+	}
+
+	/**
+	 * 送信キューのレコードがなくなるか、送信に失敗するまで送信する.
+	 * @param journal ジャーナル
+	 * @param queueKey 送信キューのキー
+	 */
+	private static void sendQueue(IndexJournal journal, String queueKey) {
+		int limit = BDBClientUtil.getIndexJournalBatchSize();
+		boolean isFailed = false;
+		try {
+			while (true) {
+				List<IndexJournalRecord> batch = journal.takeBatch(queueKey, limit);
+				if (batch.isEmpty()) {
+					break;
+				}
+				if (!send(journal, batch)) {
+					isFailed = true;
+					break;
+				}
+			}
+		} catch (Throwable e) {
+			logger.warn("[sendQueue] Error occured. queue=" + queueKey + " " +
+					e.getClass().getName(), e);
+			isFailed = true;
+		} finally {
+			journal.releaseQueue(queueKey, isFailed,
+					BDBRequesterUtil.getBDBIndexPutRetryWaitmillis(), RETRY_MAX_WAITMILLIS);
+		}
+	}
+
+	/**
+	 * レコードをまとめてインデックスサーバに送信する.
+	 * リトライ対象外のエラーの場合は送信を断念し、エラーログを出力する。
+	 * @param journal ジャーナル
+	 * @param batch 同じインデックスサーバURLに送信するレコードリスト
+	 * @return 送信が完了した、または送信を断念した場合true。再送が必要な場合false。
+	 */
+	private static boolean send(IndexJournal journal, List<IndexJournalRecord> batch)
+	throws IOException {
+		IndexJournalRecord firstRecord = batch.get(0);
+		String serviceName = firstRecord.getServiceName();
+		String serverUrl = firstRecord.getServerUrl();
+		RequestInfo requestInfo = SystemUtil.getRequestInfo(serviceName, METHOD,
+				IndexJournalManager.class.getSimpleName());
+		FeedBase feed = TaggingEntryUtil.createAtomFeed();
+		feed.entry = new ArrayList<>();
+		for (IndexJournalRecord record : batch) {
+			feed.entry.addAll(record.getIndexInfos());
+		}
+
+		boolean isDropped = false;
+		ConnectionInfo connectionInfo = new ConnectionInfoImpl(new DeflateUtil(), requestInfo);
+		try {
+			IndexCommonManager idxManager = new IndexCommonManager();
+			idxManager.requestPut(serverUrl, feed, serviceName, requestInfo, connectionInfo);
+
+		} catch (IOException e) {
+			if (RetryUtil.isRetryError(e, METHOD)) {
+				journal.fail(batch);
+				if (logger.isInfoEnabled()) {
+					logger.info(LogUtil.getRequestInfoStr(requestInfo) +
+							"[send] retry later. serverUrl=" + serverUrl + " " +
+							e.getClass().getName() + ": " + e.getMessage());
+				}
+				return false;
+			}
+			logger.error(LogUtil.getRequestInfoStr(requestInfo) +
+					"[send] The index update is dropped. serverUrl=" + serverUrl +
+					", count=" + feed.entry.size(), e);
+			isDropped = true;
+
+		} catch (TaggingException e) {
+			logger.error(LogUtil.getRequestInfoStr(requestInfo) +
+					"[send] The index update is dropped. serverUrl=" + serverUrl +
+					", count=" + feed.entry.size(), e);
+			isDropped = true;
+
+		} finally {
+			connectionInfo.close();
+		}
+
+		journal.complete(batch, isDropped);
+		return true;
+	}
+
+	/**
+	 * static領域からインデックス更新ジャーナルを取得.
+	 * @return インデックス更新ジャーナル。有効でない場合null。
+	 */
+	private static IndexJournal getJournal() {
+		return (IndexJournal)ReflexStatic.getStatic(STATIC_NAME_INDEXJOURNAL);
+	}
+
+}
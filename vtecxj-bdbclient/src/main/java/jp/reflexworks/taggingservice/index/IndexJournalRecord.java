@@ -0,0 +1,163 @@
+package jp.reflexworks.taggingservice.index;
+
+import java.util.List;
+
+import jp.reflexworks.atom.entry.EntryBase;
+
+/**
+ * インデックス更新ジャーナルのレコード.
+ * 1件のEntryについて、1つのインデックスサーバに送信するインデックス更新情報を保持する。
+ */
+public class IndexJournalRecord {
+
+	/** 連番 */
+	private long seq;
+	/** 登録時刻(ミリ秒) */
+	private final long time;
+	/** サービス名 */
+	private final String serviceName;
+	/** インデックスサーバURL (QueryString含む) */
+	private final String serverUrl;
+	/** まとめ対象キー (まとめない場合null) */
+	private final String coalesceKey;
+	/** EntryのIDのリビジョン (比較しない場合0) */
+	private final long revision;
+	/** 削除の場合true */
+	private final boolean isDelete;
+	/** インデックス更新情報 */
+	private final List<EntryBase> indexInfos;
+	/** 送信中の場合true */
+	private boolean sending;
+
+	/**
+	 * コンストラクタ.
+	 * @param time 登録時刻(ミリ秒)
+	 * @param serviceName サービス名
+	 * @param serverUrl インデックスサーバURL (QueryString含む)
+	 * @param coalesceKey まとめ対象キー (まとめない場合null)
+	 * @param revision EntryのIDのリビジョン (比較しない場合0)
+	 * @param isDelete 削除の場合true
+	 * @param indexInfos インデックス更新情報
+	 */
+	public IndexJournalRecord(long time, String serviceName, String serverUrl,
+			String coalesceKey, long revision, boolean isDelete, List<EntryBase> indexInfos) {
+		this.time = time;
+		this.serviceName = serviceName;
+		this.serverUrl = serverUrl;
+		this.coalesceKey = coalesceKey;
+		this.revision = revision;
+		this.isDelete = isDelete;
+		this.indexInfos = indexInfos;
+	}
+
+	/**
+	 * 連番を取得.
+	 * @return 連番
+	 */
+	public long getSeq() {
+		return seq;
+	}
+
+	/**
+	 * 連番を設定.
+	 * @param seq 連番
+	 */
+	void setSeq(long seq) {
+		this.seq = seq;
+	}
+
+	/**
+	 * 登録時刻を取得.
+	 * @return 登録時刻(ミリ秒)
+	 */
+	public long getTime() {
+		return time;
+	}
+
+	/**
+	 * サービス名を取得.
+	 * @return サービス名
+	 */
+	public String getServiceName() {
+		return serviceName;
+	}
+
+	/**
+	 * インデックスサーバURLを取得.
+	 * @return インデックスサーバURL (QueryString含む)
+	 */
+	public String getServerUrl() {
+		return serverUrl;
+	}
+
+	/**
+	 * まとめ対象キーを取得.
+	 * @return まとめ対象キー (まとめない場合null)
+	 */
+	public String getCoalesceKey() {
+		return coalesceKey;
+	}
+
+	/**
+	 * EntryのIDのリビジョンを取得.
+	 * @return EntryのIDのリビジョン (比較しない場合0)
+	 */
+	public long getRevision() {
+		return revision;
+	}
+
+	/**
+	 * 削除かどうか.
+	 * @return 削除の場合true
+	 */
+	public boolean isDelete() {
+		return isDelete;
+	}
+
+	/**
+	 * インデックス更新情報を取得.
+	 * @return インデックス更新情報
+	 */
+	public List<EntryBase> getIndexInfos() {
+		return indexInfos;
+	}
+
+	/**
+	 * 送信キューのキーを取得.
+	 * サービスとインデックスサーバ(QueryStringを除く)ごとに送信順を保つ。
+	 * @return 送信キューのキー
+	 */
+	public String getQueueKey() {
+		return serviceName + " " + getBaseServerUrl(serverUrl);
+	}
+
+	/**
+	 * 送信中かどうか.
+	 * @return 送信中の場合true
+	 */
+	boolean isSending() {
+		return sending;
+	}
+
+	/**
+	 * 送信中かどうかを設定.
+	 * @param sending 送信中の場合true
+	 */
+	void setSending(boolean sending) {
+		this.sending = sending;
+	}
+
+	/**
+	 * インデックスサーバURLからQueryStringを除いたものを取得.
+	 * @param serverUrl インデックスサーバURL
+	 * @return QueryStringを除いたインデックスサーバURL
+	 */
+	static String getBaseServerUrl(String serverUrl) {
+		int idx = serverUrl.indexOf("?");
+		if (idx < 0) {
+			return serverUrl;
+		}
+		return serverUrl.substring(0, idx);
+	}
+
+}
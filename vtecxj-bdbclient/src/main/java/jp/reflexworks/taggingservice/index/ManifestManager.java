@@ -22,6 +22,7 @@ import jp.reflexworks.taggingservice.requester.BDBClientServerConst.BDBResponseT
 import jp.reflexworks.taggingservice.requester.BDBRequester;
 import jp.reflexworks.taggingservice.util.Constants;
 import jp.reflexworks.taggingservice.util.TaggingEntryUtil;
+import jp.sourceforge.reflex.util.StringUtils;
 
 /**
  * Manifest管理クラス.
@@ -85,6 +86,32 @@ public class ManifestManager extends IndexCommonManager {
 		return bdbResponseInfo.data;
 	}
 
+	/**
+	 * フォルダ件数取得.
+	 * Manifestサーバで維持している親階層ごとの件数を取得する。
+	 * @param parentUri 親階層
+	 * @param auth 認証情報
+	 * @param requestInfo リクエスト情報
+	 * @param connectionInfo コネクション情報
+	 * @return 件数。Manifestサーバでフォルダ件数が使用可能でない場合null。
+	 */
+	public Long getFolderCount(String parentUri, ReflexAuthentication auth,
+			RequestInfo requestInfo, ConnectionInfo connectionInfo)
+	throws IOException, TaggingException {
+		String serviceName = auth.getServiceName();
+		String requestUri = parentUri + "?" + RequestParam.PARAM_FOLDERCOUNT;
+		String method = Constants.GET;
+
+		BDBRequester<FeedBase> bdbRequester = new BDBRequester<>(BDBResponseType.FEED);
+		BDBResponseInfo<FeedBase> bdbResponseInfo = bdbRequester.requestToManifest(requestUri,
+				method, null, serviceName, requestInfo, connectionInfo);
+		FeedBase retFeed = bdbResponseInfo.data;
+		if (retFeed == null || StringUtils.isBlank(retFeed.title)) {
+			return null;
+		}
+		return StringUtils.longValue(retFeed.title, 0);
+	}
+
 	/**
 	 * Manifestの環境クローズ
 	 * @param serviceName サービス名
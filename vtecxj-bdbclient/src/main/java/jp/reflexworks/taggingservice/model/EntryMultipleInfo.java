@@ -7,15 +7,15 @@ import java.util.Map;
  */
 public class EntryMultipleInfo {
 
-	/** Entryバイト配列を並べたもの */
+	/** 複数Entryフレーム (IDとEntryバイト配列を並べたもの) */
 	private byte[] entriesData;
-	/** 追加リクエストヘッダ（IDリスト、バイト長リスト） */
+	/** 追加リクエストヘッダ（データ形式） */
 	private Map<String, String> additionalHeaders;
 
 	/**
 	 * コンストラクタ.
-	 * @param entriesData Entryバイト配列を並べたもの
-	 * @param additionalHeaders 追加リクエストヘッダ（IDリスト、バイト長リスト）
+	 * @param entriesData 複数Entryフレーム (IDとEntryバイト配列を並べたもの)
+	 * @param additionalHeaders 追加リクエストヘッダ（データ形式）
 	 */
 	public EntryMultipleInfo(byte[] entriesData,  Map<String, String> additionalHeaders) {
 		this.entriesData = entriesData;
@@ -23,16 +23,16 @@ public class EntryMultipleInfo {
 	}
 
 	/**
-	 * Entryバイト配列を並べたものを取得
-	 * @return Entryバイト配列を並べたもの
+	 * 複数Entryフレームを取得
+	 * @return 複数Entryフレーム (IDとEntryバイト配列を並べたもの)
 	 */
 	public byte[] getEntriesData() {
 		return entriesData;
 	}
 
 	/**
-	 * IDリスト文字列を取得
-	 * @return IDリスト文字列
+	 * 追加リクエストヘッダを取得
+	 * @return 追加リクエストヘッダ
 	 */
 	public Map<String, String> getAdditionalHeaders() {
 		return additionalHeaders;
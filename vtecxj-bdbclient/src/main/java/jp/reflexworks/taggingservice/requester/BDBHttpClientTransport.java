@@ -0,0 +1,280 @@
+package jp.reflexworks.taggingservice.requester;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jp.reflexworks.servlet.HttpStatus;
+import jp.reflexworks.servlet.ReflexServletConst;
+
+/**
+ * java.net.http.HttpClientによるBDBサーバへの通信クラス.
+ * <p>
+ * BDBサーバ(スキーム://ホスト:ポート)と接続タイムアウトの組み合わせごとにHttpClientを生成し、
+ * コネクションを保持(keep-alive)して再利用する。
+ * 接続タイムアウトはHttpClientの生成時にしか指定できないため、接続タイムアウトもキーに含める。
+ * HTTP/2が有効な場合、サーバが対応していれば1コネクションで複数リクエストを多重化する。
+ * </p>
+ */
+public class BDBHttpClientTransport implements BDBTransport {
+
+	/** HttpClientで指定できないリクエストヘッダ (小文字) */
+	private static final Set<String> RESTRICTED_HEADERS = Set.of(
+			"connection", "content-length", "expect", "host", "upgrade");
+
+	/** サーバと接続タイムアウトごとのHttpClient (キー: スキーム://ホスト:ポート#接続タイムアウト(ミリ秒)) */
+	private final ConcurrentMap<String, HttpClient> clientMap = new ConcurrentHashMap<>();
+	/** HTTP/2を使用する場合true */
+	private final boolean enableHttp2;
+
+	/** ロガー. */
+	private Logger logger = LoggerFactory.getLogger(this.getClass());
+
+	/**
+	 * コンストラクタ.
+	 * @param enableHttp2 HTTP/2を使用する場合true
+	 */
+	public BDBHttpClientTransport(boolean enableHttp2) {
+		this.enableHttp2 = enableHttp2;
+	}
+
+	/**
+	 * リクエスト.
+	 * @param urlStr URL
+	 * @param method リクエストメソッド
+	 * @param inputData リクエストデータ
+	 * @param reqStream リクエストデータのストリーム (inputDataがnullの場合に使用)
+	 * @param headers リクエストヘッダ
+	 * @param timeoutMillis タイムアウト(ミリ秒)
+	 * @return レスポンス
+	 */
+	@Override
+	public BDBTransportResponse request(String urlStr, String method, byte[] inputData,
+			InputStream reqStream, Map<String, String> headers, int timeoutMillis)
+	throws IOException {
+		HttpRequest.BodyPublisher bodyPublisher = null;
+		if (inputData == null && reqStream != null) {
+			bodyPublisher = HttpRequest.BodyPublishers.ofInputStream(() -> reqStream);
+		} else {
+			bodyPublisher = getBodyPublisher(inputData);
+		}
+		URI uri = URI.create(urlStr);
+		HttpRequest httpReq = createRequest(uri, method, bodyPublisher, headers, timeoutMillis);
+		try {
+			HttpResponse<InputStream> httpResp = getClient(uri, timeoutMillis).send(httpReq,
+					HttpResponse.BodyHandlers.ofInputStream());
+			return toResponse(httpResp);
+
+		} catch (IOException e) {
+			throw convertException(e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException(e);
+		}
+	}
+
+	/**
+	 * 非同期リクエスト.
+	 * @param urlStr URL
+	 * @param method リクエストメソッド
+	 * @param inputData リクエストデータ
+	 * @param headers リクエストヘッダ
+	 * @param timeoutMillis タイムアウト(ミリ秒)
+	 * @return レスポンスのFuture
+	 */
+	@Override
+	public CompletableFuture<BDBTransportResponse> requestAsync(String urlStr, String method,
+			byte[] inputData, Map<String, String> headers, int timeoutMillis) {
+		URI uri = URI.create(urlStr);
+		HttpRequest httpReq = createRequest(uri, method, getBodyPublisher(inputData), headers,
+				timeoutMillis);
+		return getClient(uri, timeoutMillis).sendAsync(httpReq,
+				HttpResponse.BodyHandlers.ofInputStream())
+				.handle((httpResp, ex) -> {
+					if (ex != null) {
+						Throwable cause = ex;
+						if (cause instanceof CompletionException && cause.getCause() != null) {
+							cause = cause.getCause();
+						}
+						if (cause instanceof IOException) {
+							throw new CompletionException(convertException((IOException)cause));
+						}
+						throw new CompletionException(cause);
+					}
+					return toResponse(httpResp);
+				});
+	}
+
+	/**
+	 * 非同期通信をサポートするかどうか.
+	 * @return true
+	 */
+	@Override
+	public boolean isAsync() {
+		return true;
+	}
+
+	/**
+	 * クローズ処理.
+	 */
+	@Override
+	public void close() {
+		for (Map.Entry<String, HttpClient> mapEntry : clientMap.entrySet()) {
+			try {
+				mapEntry.getValue().close();
+			} catch (RuntimeException e) {
+				logger.warn("[close] Error occured. server=" + mapEntry.getKey(), e);
+			}
+		}
+		clientMap.clear();
+	}
+
+	/**
+	 * サーバと接続タイムアウトのHttpClientを取得.
+	 * 存在しない場合は生成する。
+	 * @param uri リクエストURI
+	 * @param timeoutMillis 接続タイムアウト(ミリ秒)
+	 * @return HttpClient
+	 */
+	private HttpClient getClient(URI uri, int timeoutMillis) {
+		int connectTimeoutMillis = Math.max(timeoutMillis, 0);
+		String clientKey = BDBTransportManager.getServer(uri) + "#" + connectTimeoutMillis;
+		return clientMap.computeIfAbsent(clientKey, k -> {
+			HttpClient.Builder builder = HttpClient.newBuilder()
+					.followRedirects(HttpClient.Redirect.NEVER);
+			if (enableHttp2) {
+				builder.version(HttpClient.Version.HTTP_2);
+			} else {
+				builder.version(HttpClient.Version.HTTP_1_1);
+			}
+			if (connectTimeoutMillis > 0) {
+				builder.connectTimeout(Duration.ofMillis(connectTimeoutMillis));
+			}
+			if (logger.isDebugEnabled()) {
+				logger.debug("[getClient] create HttpClient. server=" + k);
+			}
+			return builder.build();
+		});
+	}
+
+	/**
+	 * リクエストを生成.
+	 * @param uri リクエストURI
+	 * @param method リクエストメソッド
+	 * @param bodyPublisher リクエストデータ
+	 * @param headers リクエストヘッダ
+	 * @param timeoutMillis タイムアウト(ミリ秒)
+	 * @return リクエスト
+	 */
+	private HttpRequest createRequest(URI uri, String method,
+			HttpRequest.BodyPublisher bodyPublisher, Map<String, String> headers,
+			int timeoutMillis) {
+		HttpRequest.Builder builder = HttpRequest.newBuilder(uri)
+				.method(method, bodyPublisher);
+		if (timeoutMillis > 0) {
+			builder.timeout(Duration.ofMillis(timeoutMillis));
+		}
+		if (headers != null) {
+			for (Map.Entry<String, String> mapEntry : headers.entrySet()) {
+				String name = mapEntry.getKey();
+				String value = mapEntry.getValue();
+				if (name == null || value == null ||
+						RESTRICTED_HEADERS.contains(name.toLowerCase(Locale.ENGLISH))) {
+					continue;
+				}
+				builder.header(name, value);
+			}
+		}
+		return builder.build();
+	}
+
+	/**
+	 * リクエストデータを取得.
+	 * @param inputData リクエストデータ
+	 * @return リクエストデータ
+	 */
+	private HttpRequest.BodyPublisher getBodyPublisher(byte[] inputData) {
+		if (inputData == null) {
+			return HttpRequest.BodyPublishers.noBody();
+		}
+		return HttpRequest.BodyPublishers.ofByteArray(inputData);
+	}
+
+	/**
+	 * HttpResponseをレスポンス情報に変換.
+	 * レスポンスデータのない204の場合はストリームをクローズし、ストリームなしで返す。
+	 * @param httpResp HttpResponse
+	 * @return レスポンス情報
+	 */
+	private BDBTransportResponse toResponse(HttpResponse<InputStream> httpResp) {
+		// HTTP/2ではヘッダ名が小文字になるため、大文字小文字を区別せずに参照できるようにする。
+		Map<String, String> respHeaders = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+		for (Map.Entry<String, List<String>> mapEntry : httpResp.headers().map().entrySet()) {
+			respHeaders.put(mapEntry.getKey(), String.join(",", mapEntry.getValue()));
+		}
+		String contentType = httpResp.headers().firstValue(
+				ReflexServletConst.HEADER_CONTENT_TYPE).orElse(null);
+		InputStream in = httpResp.body();
+		if (httpResp.statusCode() == HttpStatus.SC_NO_CONTENT) {
+			closeQuietly(in, httpResp.uri());
+			in = null;
+		}
+		return new BDBTransportResponse(httpResp.statusCode(), contentType, respHeaders, in);
+	}
+
+	/**
+	 * レスポンスデータのストリームをクローズ.
+	 * クローズでエラーが発生した場合はログ出力のみ行う。
+	 * @param in レスポンスデータのストリーム
+	 * @param uri リクエストURI (ログ用)
+	 */
+	private void closeQuietly(InputStream in, URI uri) {
+		if (in == null) {
+			return;
+		}
+		try {
+			in.close();
+		} catch (IOException e) {
+			logger.warn("[closeQuietly] close error. [URL]" + uri, e);
+		}
+	}
+
+	/**
+	 * HttpClientの例外を、HttpURLConnectionと同じリトライ判定ができる例外に変換する.
+	 * @param e 例外
+	 * @return 変換した例外
+	 */
+	private IOException convertException(IOException e) {
+		if (e instanceof HttpConnectTimeoutException) {
+			ConnectException ce = new ConnectException(e.getMessage());
+			ce.initCause(e);
+			return ce;
+		} else if (e instanceof HttpTimeoutException) {
+			SocketTimeoutException se = new SocketTimeoutException(e.getMessage());
+			se.initCause(e);
+			return se;
+		}
+		return e;
+	}
+
+}
@@ -2,10 +2,13 @@ package jp.reflexworks.taggingservice.requester;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.net.HttpURLConnection;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -17,6 +20,7 @@ import jp.reflexworks.servlet.HttpStatus;
 import jp.reflexworks.servlet.ReflexServletConst;
 import jp.reflexworks.servlet.util.UrlUtil;
 import jp.reflexworks.taggingservice.api.ConnectionInfo;
+import jp.reflexworks.taggingservice.api.ReflexAuthentication;
 import jp.reflexworks.taggingservice.api.RequestInfo;
 import jp.reflexworks.taggingservice.bdbclient.BDBClientUtil;
 import jp.reflexworks.taggingservice.bdbclient.BDBResponseInfo;
@@ -24,10 +28,10 @@ import jp.reflexworks.taggingservice.env.TaggingEnvUtil;
 import jp.reflexworks.taggingservice.exception.TaggingException;
 import jp.reflexworks.taggingservice.model.EntryMultipleInfo;
 import jp.reflexworks.taggingservice.requester.BDBClientServerConst.BDBResponseType;
+import jp.reflexworks.taggingservice.taskqueue.TaskQueueUtil;
 import jp.reflexworks.taggingservice.util.Constants;
 import jp.reflexworks.taggingservice.util.LogUtil;
 import jp.sourceforge.reflex.util.DeflateUtil;
-import jp.sourceforge.reflex.util.Requester;
 import jp.sourceforge.reflex.util.StringUtils;
 
 /**
@@ -37,6 +41,8 @@ public class BDBRequester<T> {
 
 	/** BDBサーバからのレスポンス戻り値の型指定 */
 	private BDBResponseType responseType;
+	/** GET以外のメソッドで、再送しても結果が変わらないリクエストの場合true */
+	private boolean isIdempotent;
 
 	/** ロガー. */
 	private Logger logger = LoggerFactory.getLogger(this.getClass());
@@ -46,7 +52,19 @@ public class BDBRequester<T> {
 	 * @param responseType BDBサーバからのレスポンス戻り値の型指定
 	 */
 	public BDBRequester(BDBResponseType responseType) {
+		this(responseType, false);
+	}
+
+	/**
+	 * コンストラクタ.
+	 * POSTメソッドによる検索など、再送しても結果が変わらないリクエストの場合、
+	 * isIdempotentにtrueを指定する。GETと同様にSocketExceptionをリトライ対象とする。
+	 * @param responseType BDBサーバからのレスポンス戻り値の型指定
+	 * @param isIdempotent GET以外のメソッドで、再送しても結果が変わらないリクエストの場合true
+	 */
+	public BDBRequester(BDBResponseType responseType, boolean isIdempotent) {
 		this.responseType = responseType;
+		this.isIdempotent = isIdempotent;
 	}
 
 	/**
@@ -76,12 +94,37 @@ public class BDBRequester<T> {
 				serviceName, requestInfo, connectionInfo);
 	}
 
+	/**
+	 * Manifestサーバへの非同期リクエスト処理.
+	 * @param requestUri サーブレットパスより後のURL
+	 * @param method リクエストメソッド
+	 * @param reqFeed 送信するFeed
+	 * @param auth 認証情報
+	 * @param requestInfo リクエスト情報
+	 * @param connectionInfo コネクション情報
+	 * @return レスポンス情報のFuture
+	 */
+	public CompletableFuture<BDBResponseInfo<T>> requestToManifestAsync(String requestUri,
+			String method, FeedBase reqFeed, ReflexAuthentication auth,
+			RequestInfo requestInfo, ConnectionInfo connectionInfo)
+	throws IOException, TaggingException {
+		// リクエスト先を取得
+		String url = BDBRequesterUtil.getMnfServerUrl(auth.getServiceName(),
+				requestInfo, connectionInfo);
+		if (StringUtils.isBlank(url)) {
+			throw new IllegalStateException("Manifest URL setting is required.");
+		}
+		FeedTemplateMapper mapper = TaggingEnvUtil.getAtomResourceMapper();
+		return requestAsync(url, requestUri, method, reqFeed, null, mapper, auth,
+				requestInfo, connectionInfo);
+	}
+
 	/**
 	 * BDBサーバへのリクエスト処理.
 	 * @param bdbServerUrl BDBサーバURL
 	 * @param requestUri サーブレットパスより後のURL
 	 * @param method リクエストメソッド
-	 * @param reqObj 送信するオブジェクト (Feed, Entry or InputStream)
+	 * @param reqObj 送信するオブジェクト (Feed, Entry, InputStream or byte[])
 	 * @param mapper FeedTemplateMapper
 	 * @param serviceName サービス名
 	 * @param requestInfo リクエスト情報
@@ -101,7 +144,7 @@ public class BDBRequester<T> {
 	 * @param bdbServerUrl BDBサーバURL
 	 * @param requestUri サーブレットパスより後のURL
 	 * @param method リクエストメソッド
-	 * @param reqObj 送信するオブジェクト (Feed, Entry or InputStream)
+	 * @param reqObj 送信するオブジェクト (Feed, Entry, InputStream or byte[])
 	 * @param additionalHeaders 追加リクエストヘッダ
 	 * @param mapper FeedTemplateMapper
 	 * @param serviceName サービス名
@@ -123,7 +166,7 @@ public class BDBRequester<T> {
 	 * @param bdbServerUrl BDBサーバURL
 	 * @param requestUri サーブレットパスより後のURL
 	 * @param method リクエストメソッド
-	 * @param reqObj 送信するオブジェクト (Feed, Entry or InputStream)
+	 * @param reqObj 送信するオブジェクト (Feed, Entry, InputStream or byte[])
 	 * @param sid SID
 	 * @param distkeyItem DISTKEY項目
 	 * @param distkeyValue DISTKEYの値
@@ -195,22 +238,291 @@ public class BDBRequester<T> {
 			FeedTemplateMapper mapper, String serviceName, RequestInfo requestInfo,
 			ConnectionInfo connectionInfo)
 	throws IOException, TaggingException {
-		// リクエストデータにEntryを指定している場合、暗号化を行う。
-		boolean isEncrypt = false;
-		boolean isPutEntry = false;
+		return requestByUrlProc(urlStr, method, reqObj, namespace, sid, distkeyItem,
+				distkeyValue, additionalHeaders, isEncrypt(reqObj), isPutEntry(reqObj), mapper,
+				serviceName, requestInfo, connectionInfo);
+	}
+
+	/**
+	 * BDBサーバへの非同期リクエスト処理.
+	 * <p>
+	 * 通信方式が非同期通信をサポートする場合(httpclient)、レスポンスを待たずにFutureを返す。
+	 * サポートしない場合はリクエストを実行し、完了済みのFutureを返す。
+	 * 複数サーバへのリクエストを並行して行う場合に使用する。
+	 * リクエストデータの編集は呼び出し元スレッドで行う。
+	 * </p>
+	 * @param bdbServerUrl BDBサーバURL
+	 * @param requestUri サーブレットパスより後のURL
+	 * @param method リクエストメソッド
+	 * @param reqObj 送信するオブジェクト (Feed, Entry, List&lt;Entry&gt; or byte[])
+	 * @param additionalHeaders 追加リクエストヘッダ
+	 * @param mapper FeedTemplateMapper
+	 * @param auth 認証情報 (リトライの非同期処理登録に使用)
+	 * @param requestInfo リクエスト情報
+	 * @param connectionInfo コネクション情報
+	 * @return レスポンス情報のFuture。
+	 *         エラーの場合IOExceptionまたはTaggingExceptionを原因とするCompletionExceptionで完了する。
+	 */
+	public CompletableFuture<BDBResponseInfo<T>> requestAsync(String bdbServerUrl,
+			String requestUri, String method, Object reqObj,
+			Map<String, String> additionalHeaders, FeedTemplateMapper mapper,
+			ReflexAuthentication auth, RequestInfo requestInfo, ConnectionInfo connectionInfo)
+	throws IOException, TaggingException {
+		String serviceName = auth.getServiceName();
+		if (reqObj instanceof InputStream) {
+			throw new IllegalArgumentException("InputStream is not supported for asynchronous requests.");
+		}
+		String urlStr = editRequestUrl(bdbServerUrl, requestUri);
+		String namespace = BDBRequesterUtil.getNamespace(serviceName, requestInfo,
+				connectionInfo);
+		boolean isEncrypt = isEncrypt(reqObj);
+		boolean isPutEntry = isPutEntry(reqObj);
+		Map<String, String> reqHeader = getRequestHeader(reqObj, namespace, null, null, null,
+				additionalHeaders, isPutEntry, serviceName);
+		byte[] inputData = toRequestData(reqObj, reqHeader, isEncrypt, mapper,
+				serviceName, requestInfo, connectionInfo);
+		int numRetries = BDBRequesterUtil.getBDBRequestRetryCount();
+		int waitMillis = BDBRequesterUtil.getBDBRequestRetryWaitmillis();
+		return requestAsyncProc(urlStr, method, inputData, reqHeader, isEncrypt, serviceName,
+				auth, requestInfo, connectionInfo, 0, numRetries, waitMillis);
+	}
+
+	/**
+	 * BDBサーバへの非同期リクエスト処理.
+	 * 通信エラーでリトライ対象の場合、スリープ時間経過後に再度リクエストする。
+	 * @param urlStr URL
+	 * @param method リクエストメソッド
+	 * @param inputData リクエストデータ
+	 * @param reqHeader リクエストヘッダ
+	 * @param isEncrypt 暗号化・復号化する場合true
+	 * @param serviceName サービス名
+	 * @param auth 認証情報
+	 * @param requestInfo リクエスト情報
+	 * @param connectionInfo コネクション情報
+	 * @param r リトライ回数
+	 * @param numRetries リトライ総数
+	 * @param waitMillis リトライ時のスリープ時間(ミリ秒)
+	 * @return レスポンス情報のFuture
+	 */
+	private CompletableFuture<BDBResponseInfo<T>> requestAsyncProc(String urlStr,
+			String method, byte[] inputData, Map<String, String> reqHeader,
+			boolean isEncrypt, String serviceName, ReflexAuthentication auth,
+			RequestInfo requestInfo, ConnectionInfo connectionInfo,
+			int r, int numRetries, int waitMillis) {
+		BDBTransport transport = BDBTransportManager.getTransport();
+		BDBTransportStats stats = BDBTransportManager.getStats(urlStr);
+		int timeoutMillis = BDBRequesterUtil.getBDBRequestTimeoutMillis();
+		long startTime = new Date().getTime();
+		if (BDBClientUtil.isEnableAccessLog()) {
+			logger.debug(LogUtil.getRequestInfoStr(requestInfo) +
+					BDBRequesterUtil.getStartLog(serviceName, method, urlStr, reqHeader));
+		}
+		stats.start();
+		return transport.requestAsync(urlStr, method, inputData, reqHeader, timeoutMillis)
+				.handle((resp, ex) -> {
+					long elapsed = new Date().getTime() - startTime;
+					if (ex != null) {
+						stats.end(elapsed, true);
+						return retryAsync(unwrap(ex), urlStr, method, inputData, reqHeader,
+								isEncrypt, serviceName, auth, requestInfo, connectionInfo,
+								r, numRetries, waitMillis);
+					}
+					stats.end(elapsed, resp.getStatus() >= HttpStatus.SC_INTERNAL_SERVER_ERROR);
+					// レスポンスの変換は別スレッドで行われるため、DeflateUtilを生成して使用する。
+					DeflateUtil deflateUtil = new DeflateUtil();
+					try {
+						return CompletableFuture.completedFuture(getResponseInfo(resp, urlStr,
+								method, reqHeader, serviceName, deflateUtil, isEncrypt,
+								requestInfo, startTime));
+					} catch (IOException e) {
+						return retryAsync(e, urlStr, method, inputData, reqHeader,
+								isEncrypt, serviceName, auth, requestInfo, connectionInfo,
+								r, numRetries, waitMillis);
+					} catch (TaggingException e) {
+						return CompletableFuture.<BDBResponseInfo<T>>failedFuture(e);
+					} finally {
+						deflateUtil.end();
+					}
+				})
+				.thenCompose(future -> future);
+	}
+
+	/**
+	 * 非同期リクエストのリトライ処理.
+	 * スリープ時間経過後に非同期処理でリクエストする。
+	 * (通信方式が非同期通信をサポートしない場合、リクエストは非同期処理のスレッドで実行される。)
+	 * @param e 例外
+	 * @param urlStr URL
+	 * @param method リクエストメソッド
+	 * @param inputData リクエストデータ
+	 * @param reqHeader リクエストヘッダ
+	 * @param isEncrypt 暗号化・復号化する場合true
+	 * @param serviceName サービス名
+	 * @param auth 認証情報
+	 * @param requestInfo リクエスト情報
+	 * @param connectionInfo コネクション情報
+	 * @param r リトライ回数
+	 * @param numRetries リトライ総数
+	 * @param waitMillis リトライ時のスリープ時間(ミリ秒)
+	 * @return レスポンス情報のFuture
+	 */
+	private CompletableFuture<BDBResponseInfo<T>> retryAsync(Throwable e, String urlStr,
+			String method, byte[] inputData, Map<String, String> reqHeader,
+			boolean isEncrypt, String serviceName, ReflexAuthentication auth,
+			RequestInfo requestInfo, ConnectionInfo connectionInfo,
+			int r, int numRetries, int waitMillis) {
+		if (!(e instanceof IOException)) {
+			return CompletableFuture.failedFuture(e);
+		}
+		IOException ie = (IOException)e;
+		try {
+			// リトライ判定、入力エラー判定
+			BDBClientUtil.convertError(ie, method, isIdempotent, requestInfo);
+		} catch (IOException ce) {
+			return CompletableFuture.failedFuture(ce);
+		}
+		if (r >= numRetries) {
+			// リトライ対象だがリトライ回数を超えた場合
+			return CompletableFuture.failedFuture(ie);
+		}
+		if (logger.isInfoEnabled()) {
+			logger.info(getRetryLog(ie, method, urlStr, r, requestInfo));
+		}
+		BDBTransportManager.getStats(urlStr).retry();
+		BDBRequesterRetryCallable<T> callable = new BDBRequesterRetryCallable<>(
+				() -> requestAsyncProc(urlStr, method, inputData, reqHeader, isEncrypt,
+						serviceName, auth, requestInfo, connectionInfo, r + 1, numRetries,
+						waitMillis));
+		try {
+			Future<CompletableFuture<BDBResponseInfo<T>>> future = callable.addTask(
+					BDBRequesterUtil.getRetryWaitMillis(waitMillis, r), auth, requestInfo,
+					connectionInfo);
+			return TaskQueueUtil.toCompletableFuture(future).thenCompose(f -> f);
+		} catch (IOException | TaggingException | RuntimeException te) {
+			// 非同期処理の登録に失敗した場合は元のエラーとする
+			logger.warn(LogUtil.getRequestInfoStr(requestInfo) +
+					"[retryAsync] addTask failed. " + te.getClass().getSimpleName() + ": " +
+					te.getMessage());
+			return CompletableFuture.failedFuture(ie);
+		}
+	}
+
+	/**
+	 * CompletionExceptionの原因を取得.
+	 * @param e 例外
+	 * @return 原因の例外
+	 */
+	private Throwable unwrap(Throwable e) {
+		if ((e instanceof CompletionException || e instanceof ExecutionException) &&
+				e.getCause() != null) {
+			return e.getCause();
+		}
+		return e;
+	}
+
+	/**
+	 * リクエストデータにEntryを指定している場合、暗号化を行う.
+	 * @param reqObj 送信するオブジェクト
+	 * @return 暗号化・復号化する場合true
+	 */
+	private boolean isEncrypt(Object reqObj) {
 		if (reqObj instanceof EntryBase || reqObj instanceof List) {
-			isEncrypt = true;
-			isPutEntry = true;
-		} else if (reqObj instanceof InputStream) {	// InputStreamの場合Entry登録とみなす
-			isPutEntry = true;
-		} else if (responseType == BDBResponseType.ENTRY ||
-				responseType == BDBResponseType.ENTRYLIST) {
-			isEncrypt = true;
+			return true;
+		} else if (reqObj instanceof InputStream) {
+			return false;
 		}
+		// バイト配列(複数Entryフレーム)の場合もレスポンスの型で判定する
+		return responseType == BDBResponseType.ENTRY ||
+				responseType == BDBResponseType.ENTRYLIST;
+	}
 
-		return requestByUrlProc(urlStr, method, reqObj, namespace, sid, distkeyItem,
-				distkeyValue, additionalHeaders, isEncrypt, isPutEntry, mapper, serviceName,
-				requestInfo, connectionInfo);
+	/**
+	 * Entry登録更新かどうか.
+	 * @param reqObj 送信するオブジェクト
+	 * @return Entry登録更新の場合true
+	 */
+	private boolean isPutEntry(Object reqObj) {
+		// InputStreamの場合Entry登録とみなす
+		// バイト配列(複数Entryフレーム)の場合そのまま送信する
+		return reqObj instanceof EntryBase || reqObj instanceof List ||
+				reqObj instanceof InputStream || reqObj instanceof byte[];
+	}
+
+	/**
+	 * リクエストヘッダを編集.
+	 * @param reqObj 送信するオブジェクト
+	 * @param namespace 名前空間
+	 * @param sid SID
+	 * @param distkeyItem DISTKEY項目
+	 * @param distkeyValue DISTKEYの値
+	 * @param additionalHeaders 追加リクエストヘッダ
+	 * @param isPutEntry Entry登録更新の場合true
+	 * @param serviceName サービス名
+	 * @return リクエストヘッダ
+	 */
+	private Map<String, String> getRequestHeader(Object reqObj, String namespace, String sid,
+			String distkeyItem, String distkeyValue, Map<String, String> additionalHeaders,
+			boolean isPutEntry, String serviceName) {
+		boolean setOutput = (reqObj != null);
+		Map<String, String> reqHeader = BDBRequesterUtil.getRequestHeader(serviceName,
+				setOutput, isPutEntry, namespace, sid, distkeyItem, distkeyValue);
+		if (additionalHeaders != null) {
+			for (Map.Entry<String, String> mapEntry : additionalHeaders.entrySet()) {
+				reqHeader.put(mapEntry.getKey(), mapEntry.getValue());
+			}
+		}
+		return reqHeader;
+	}
+
+	/**
+	 * 送信するオブジェクトをリクエストデータに変換.
+	 * InputStreamの場合はnullを返す。
+	 * @param reqObj 送信するオブジェクト
+	 * @param reqHeader リクエストヘッダ (データ形式のヘッダを追加する)
+	 * @param isEncrypt 暗号化する場合true
+	 * @param mapper FeedTemplateMapper
+	 * @param serviceName サービス名
+	 * @param requestInfo リクエスト情報
+	 * @param connectionInfo コネクション情報
+	 * @return リクエストデータ
+	 */
+	private byte[] toRequestData(Object reqObj, Map<String, String> reqHeader,
+			boolean isEncrypt, FeedTemplateMapper mapper, String serviceName,
+			RequestInfo requestInfo, ConnectionInfo connectionInfo)
+	throws IOException {
+		byte[] inputData = null;
+		if (reqObj != null) {
+			if (reqObj instanceof InputStream) {
+				// Do nothing.
+			} else if (reqObj instanceof byte[]) {
+				inputData = (byte[])reqObj;
+			} else if (reqObj instanceof FeedBase) {
+				inputData = BDBRequesterUtil.toRequestData((FeedBase)reqObj, mapper,
+						connectionInfo.getDeflateUtil());
+			} else if (reqObj instanceof EntryBase) {
+				inputData = BDBRequesterUtil.toRequestData((EntryBase)reqObj, mapper,
+						connectionInfo.getDeflateUtil(), isEncrypt, serviceName);
+			} else if (reqObj instanceof List) {	// List<EntryBase>
+				// Entryリストを複数Entryフレームに変換する。
+				// リクエストヘッダを指定する。(データ形式)
+				EntryMultipleInfo entryMultipleInfo = BDBRequesterUtil.toRequestDataMultiple(
+						(List<EntryBase>)reqObj, mapper,
+						connectionInfo.getDeflateUtil(), isEncrypt, serviceName);
+				inputData = entryMultipleInfo.getEntriesData();
+				Map<String, String> entryMultipleHeaders =
+						entryMultipleInfo.getAdditionalHeaders();
+				if (entryMultipleHeaders != null) {
+					for (Map.Entry<String, String> mapEntry : entryMultipleHeaders.entrySet()) {
+						reqHeader.put(mapEntry.getKey(), mapEntry.getValue());
+					}
+				}
+			} else {
+				logger.warn(LogUtil.getRequestInfoStr(requestInfo) +
+						"[toRequestData] request object type is invalid. " +
+						reqObj.getClass().getName());
+			}
+		}
+		return inputData;
 	}
 
 	/**
@@ -240,150 +552,43 @@ public class BDBRequester<T> {
 		// BDBサーバにリクエスト
 		try {
 			// リクエスト情報設定
-			boolean setOutput = (reqObj != null);
-			Map<String, String> reqHeader = BDBRequesterUtil.getRequestHeader(serviceName,
-					setOutput, isPutEntry, namespace, sid, distkeyItem, distkeyValue);
-			if (additionalHeaders != null) {
-				for (Map.Entry<String, String> mapEntry : additionalHeaders.entrySet()) {
-					reqHeader.put(mapEntry.getKey(), mapEntry.getValue());
-				}
-			}
+			Map<String, String> reqHeader = getRequestHeader(reqObj, namespace, sid,
+					distkeyItem, distkeyValue, additionalHeaders, isPutEntry, serviceName);
 			int timeoutMillis = BDBRequesterUtil.getBDBRequestTimeoutMillis();
-			byte[] inputData = null;
+			byte[] inputData = toRequestData(reqObj, reqHeader, isEncrypt, mapper,
+					serviceName, requestInfo, connectionInfo);
 			InputStream reqStream = null;
-			if (setOutput) {
-				if (reqObj != null) {
-					if (reqObj instanceof InputStream) {
-						reqStream = (InputStream)reqObj;
-					} else if (reqObj instanceof FeedBase) {
-						inputData = BDBRequesterUtil.toRequestData((FeedBase)reqObj, mapper,
-								connectionInfo.getDeflateUtil());
-					} else if (reqObj instanceof EntryBase) {
-						inputData = BDBRequesterUtil.toRequestData((EntryBase)reqObj, mapper,
-								connectionInfo.getDeflateUtil(), isEncrypt);
-					} else if (reqObj instanceof List) {	// List<EntryBase>
-						// Entryリストをバイト配列リストに変換する。
-						// リクエストヘッダを指定する。(id、バイト長)
-						EntryMultipleInfo entryMultipleInfo = BDBRequesterUtil.toRequestDataMultiple(
-								(List<EntryBase>)reqObj, mapper,
-								connectionInfo.getDeflateUtil(), isEncrypt);
-						inputData = entryMultipleInfo.getEntriesData();
-						Map<String, String> entryMultipleHeaders =
-								entryMultipleInfo.getAdditionalHeaders();
-						if (entryMultipleHeaders != null) {
-							for (Map.Entry<String, String> mapEntry : entryMultipleHeaders.entrySet()) {
-								reqHeader.put(mapEntry.getKey(), mapEntry.getValue());
-							}
-						}
-					} else {
-						logger.warn(LogUtil.getRequestInfoStr(requestInfo) +
-								"[requestByUrlProc] request object type is invalid. " +
-								reqObj.getClass().getName());
-					}
-				}
+			if (reqObj instanceof InputStream) {
+				reqStream = (InputStream)reqObj;
 			}
 
-			Requester requester = new Requester();
+			BDBTransport transport = BDBTransportManager.getTransport();
+			BDBTransportStats stats = BDBTransportManager.getStats(urlStr);
 
 			int numRetries = BDBRequesterUtil.getBDBRequestRetryCount();
 			int waitMillis = BDBRequesterUtil.getBDBRequestRetryWaitmillis();
 			for (int r = 0; r <= numRetries; r++) {
 				try {
-					long startTime = 0;
+					long startTime = new Date().getTime();
 					if (BDBClientUtil.isEnableAccessLog()) {
 						logger.debug(LogUtil.getRequestInfoStr(requestInfo) +
 								BDBRequesterUtil.getStartLog(serviceName, method, urlStr, reqHeader));
-						startTime = new Date().getTime();
 					}
 
 					// リクエスト
-					HttpURLConnection http = null;
-					if (inputData == null && reqStream != null) {
-						http = requester.prepare(urlStr, method, reqStream,
-								reqHeader, timeoutMillis);
-					} else {
-						http = requester.prepare(urlStr, method, inputData,
+					BDBTransportResponse resp = null;
+					boolean isError = true;
+					stats.start();
+					try {
+						resp = transport.request(urlStr, method, inputData, reqStream,
 								reqHeader, timeoutMillis);
+						isError = resp.getStatus() >= HttpStatus.SC_INTERNAL_SERVER_ERROR;
+					} finally {
+						stats.end(new Date().getTime() - startTime, isError);
 					}
-					/*
-					if (BDBClientUtil.isEnableAccessLog()) {
-						logger.debug(LogUtil.getRequestInfoStr(requestInfo) +
-								BDBRequesterUtil.prepareLog(serviceName, method, urlStr,
-										reqHeader, startTime));
-						startTime = new Date().getTime();
-					}
-					*/
-
-					int status = http.getResponseCode();
 
-					/*
-					if (BDBClientUtil.isEnableAccessLog()) {
-						logger.debug(LogUtil.getRequestInfoStr(requestInfo) +
-								BDBRequesterUtil.getResponseLog(serviceName, method, urlStr,
-										reqHeader, status, startTime));
-						startTime = new Date().getTime();
-					}
-					*/
-
-					if (status < 400) {
-						// 成功
-						T data = null;
-						Map<String, String> respHeaders = BDBRequesterUtil.getResponseHeaders(http);
-						if (status != HttpStatus.SC_NO_CONTENT) {
-							data = getObject(urlStr, http.getInputStream(),
-									http.getContentType(), respHeaders, serviceName,
-									connectionInfo.getDeflateUtil(), isEncrypt);
-						}
-						BDBResponseInfo<T> respInfo = new BDBResponseInfo<T>(status, data);
-						respInfo.headers = respHeaders;
-
-						if (BDBClientUtil.isEnableAccessLog()) {
-							logger.debug(LogUtil.getRequestInfoStr(requestInfo) +
-									BDBRequesterUtil.getEndLog(serviceName, method, urlStr,
-											reqHeader, status, startTime));
-							startTime = new Date().getTime();
-						}
-
-						return respInfo;
-
-					} else {
-						// エラー
-						String respContextType = http.getContentType();
-						FeedBase errFeed = (FeedBase)BDBRequesterUtil.getObject(urlStr,
-								http.getErrorStream(), respContextType, serviceName,
-								connectionInfo.getDeflateUtil(), true, false);
-
-						if (BDBClientUtil.isEnableAccessLog()) {
-							logger.debug(LogUtil.getRequestInfoStr(requestInfo) +
-									BDBRequesterUtil.getEndLog(serviceName, method, urlStr,
-											reqHeader, status, startTime));
-							startTime = new Date().getTime();
-						}
-						// ContextTypeが"text/"で始まる場合は致命的エラー
-						if (!StringUtils.isBlank(respContextType) &&
-								respContextType.startsWith(ReflexServletConst.CONTENT_TYPE_TEXT)) {
-							StringBuilder sb = new StringBuilder();
-							sb.append(LogUtil.getRequestInfoStr(requestInfo));
-							sb.append("[requestByUrlProc] Unexpected Error occured.");
-							sb.append(" method=");
-							sb.append(method);
-							sb.append(" urlStr=");
-							sb.append(urlStr);
-							sb.append(" status=");
-							sb.append(status);
-							sb.append(" message=");
-							if (errFeed != null) {
-								sb.append(errFeed.title);
-							} else {
-								sb.append("null");
-							}
-							logger.warn(sb.toString());
-							// statusを500にする
-							status = HttpStatus.SC_INTERNAL_SERVER_ERROR;
-						}
-						BDBRequesterUtil.doException(urlStr, method, status, errFeed, serviceName,
-								requestInfo);
-					}
+					return getResponseInfo(resp, urlStr, method, reqHeader, serviceName,
+							connectionInfo.getDeflateUtil(), isEncrypt, requestInfo, startTime);
 
 				} catch (IOException e) {
 					if (logger.isDebugEnabled()) {
@@ -400,23 +605,16 @@ public class BDBRequester<T> {
 						logger.debug(sb.toString());
 					}
 					// リトライ判定、入力エラー判定
-					BDBClientUtil.convertError(e, method, requestInfo);
+					BDBClientUtil.convertError(e, method, isIdempotent, requestInfo);
 					if (r >= numRetries) {
 						// リトライ対象だがリトライ回数を超えた場合
 						throw e;
 					}
 					if (logger.isInfoEnabled()) {
-						StringBuilder sb = new StringBuilder();
-						sb.append(LogUtil.getRequestInfoStr(requestInfo));
-						sb.append("[request] ");
-						sb.append(method);
-						sb.append(" ");
-						sb.append(urlStr);
-						sb.append(" ");
-						sb.append(BDBClientUtil.getRetryLog(e, r));
-						logger.info(sb.toString());
+						logger.info(getRetryLog(e, method, urlStr, r, requestInfo));
 					}
-					BDBClientUtil.sleep(waitMillis);
+					stats.retry();
+					BDBClientUtil.sleep(BDBRequesterUtil.getRetryWaitMillis(waitMillis, r));
 				}
 			}
 
@@ -428,6 +626,140 @@ public class BDBRequester<T> {
 		throw new IllegalStateException("Unreachable code generates internal error");
 	}
 
+	/**
+	 * BDBサーバからのレスポンスをレスポンス情報に変換.
+	 * エラーステータスの場合は例外をスローする。
+	 * 変換の成否にかかわらず、レスポンスデータのストリームはクローズする。
+	 * @param resp BDBサーバからのレスポンス
+	 * @param urlStr URL
+	 * @param method リクエストメソッド
+	 * @param reqHeader リクエストヘッダ (ログ出力用)
+	 * @param serviceName サービス名
+	 * @param deflateUtil DeflateUtil
+	 * @param isEncrypt 暗号化・復号化する場合true
+	 * @param requestInfo リクエスト情報
+	 * @param startTime リクエスト開始時刻 (ログ出力用)
+	 * @return レスポンス情報
+	 */
+	private BDBResponseInfo<T> getResponseInfo(BDBTransportResponse resp, String urlStr,
+			String method, Map<String, String> reqHeader, String serviceName,
+			DeflateUtil deflateUtil, boolean isEncrypt, RequestInfo requestInfo,
+			long startTime)
+	throws IOException, TaggingException {
+		try {
+			return getResponseInfoProc(resp, urlStr, method, reqHeader, serviceName,
+					deflateUtil, isEncrypt, requestInfo, startTime);
+		} finally {
+			try {
+				resp.close();
+			} catch (IOException e) {
+				logger.warn(LogUtil.getRequestInfoStr(requestInfo) +
+						"[getResponseInfo] close error. [URL]" + urlStr, e);
+			}
+		}
+	}
+
+	/**
+	 * BDBサーバからのレスポンスをレスポンス情報に変換.
+	 * エラーステータスの場合は例外をスローする。
+	 * @param resp BDBサーバからのレスポンス
+	 * @param urlStr URL
+	 * @param method リクエストメソッド
+	 * @param reqHeader リクエストヘッダ (ログ出力用)
+	 * @param serviceName サービス名
+	 * @param deflateUtil DeflateUtil
+	 * @param isEncrypt 暗号化・復号化する場合true
+	 * @param requestInfo リクエスト情報
+	 * @param startTime リクエスト開始時刻 (ログ出力用)
+	 * @return レスポンス情報
+	 */
+	private BDBResponseInfo<T> getResponseInfoProc(BDBTransportResponse resp, String urlStr,
+			String method, Map<String, String> reqHeader, String serviceName,
+			DeflateUtil deflateUtil, boolean isEncrypt, RequestInfo requestInfo,
+			long startTime)
+	throws IOException, TaggingException {
+		int status = resp.getStatus();
+		if (status < 400) {
+			// 成功
+			T data = null;
+			Map<String, String> respHeaders = resp.getHeaders();
+			if (status != HttpStatus.SC_NO_CONTENT) {
+				data = getObject(urlStr, resp.getInputStream(), resp.getContentType(),
+						respHeaders, serviceName, deflateUtil, isEncrypt);
+			}
+			BDBResponseInfo<T> respInfo = new BDBResponseInfo<T>(status, data);
+			respInfo.headers = respHeaders;
+
+			if (BDBClientUtil.isEnableAccessLog()) {
+				logger.debug(LogUtil.getRequestInfoStr(requestInfo) +
+						BDBRequesterUtil.getEndLog(serviceName, method, urlStr,
+								reqHeader, status, startTime));
+			}
+			return respInfo;
+
+		} else {
+			// エラー
+			String respContextType = resp.getContentType();
+			FeedBase errFeed = (FeedBase)BDBRequesterUtil.getObject(urlStr,
+					resp.getInputStream(), respContextType, serviceName,
+					deflateUtil, true, false);
+
+			if (BDBClientUtil.isEnableAccessLog()) {
+				logger.debug(LogUtil.getRequestInfoStr(requestInfo) +
+						BDBRequesterUtil.getEndLog(serviceName, method, urlStr,
+								reqHeader, status, startTime));
+			}
+			// ContextTypeが"text/"で始まる場合は致命的エラー
+			if (!StringUtils.isBlank(respContextType) &&
+					respContextType.startsWith(ReflexServletConst.CONTENT_TYPE_TEXT)) {
+				StringBuilder sb = new StringBuilder();
+				sb.append(LogUtil.getRequestInfoStr(requestInfo));
+				sb.append("[requestByUrlProc] Unexpected Error occured.");
+				sb.append(" method=");
+				sb.append(method);
+				sb.append(" urlStr=");
+				sb.append(urlStr);
+				sb.append(" status=");
+				sb.append(status);
+				sb.append(" message=");
+				if (errFeed != null) {
+					sb.append(errFeed.title);
+				} else {
+					sb.append("null");
+				}
+				logger.warn(sb.toString());
+				// statusを500にする
+				status = HttpStatus.SC_INTERNAL_SERVER_ERROR;
+			}
+			BDBRequesterUtil.doException(urlStr, method, status, errFeed, serviceName,
+					requestInfo);
+			// doExceptionで例外がスローされる
+			throw new IllegalStateException("Unreachable code generates internal error");
+		}
+	}
+
+	/**
+	 * リトライログを編集.
+	 * @param e 例外
+	 * @param method リクエストメソッド
+	 * @param urlStr URL
+	 * @param r リトライ回数
+	 * @param requestInfo リクエスト情報
+	 * @return リトライログ
+	 */
+	private String getRetryLog(IOException e, String method, String urlStr, int r,
+			RequestInfo requestInfo) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(LogUtil.getRequestInfoStr(requestInfo));
+		sb.append("[request] ");
+		sb.append(method);
+		sb.append(" ");
+		sb.append(urlStr);
+		sb.append(" ");
+		sb.append(BDBClientUtil.getRetryLog(e, r));
+		return sb.toString();
+	}
+
 	/**
 	 * レスポンスデータのストリームからオブジェクトを取得する。
 	 * MessagePack形式で受信。
@@ -454,6 +786,11 @@ public class BDBRequester<T> {
 		boolean isFeed = BDBResponseType.FEED.equals(responseType);
 		List<Integer> entryLengthList = null;
 		if (BDBResponseType.ENTRYLIST.equals(responseType)) {
+			if (BDBRequesterUtil.isEntryFrame(respHeaders)) {
+				// 複数Entryフレーム形式
+				return (T)BDBRequesterUtil.getEntryListByFrame(in, serviceName,
+						deflateUtil, isDecrypt);
+			}
 			String entryLengthStr = null;
 			if (respHeaders != null) {
 				entryLengthStr = respHeaders.get(Constants.HEADER_ENTRY_LENGTH);
@@ -0,0 +1,59 @@
+package jp.reflexworks.taggingservice.requester;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+import jp.reflexworks.taggingservice.api.ConnectionInfo;
+import jp.reflexworks.taggingservice.api.ReflexAuthentication;
+import jp.reflexworks.taggingservice.api.RequestInfo;
+import jp.reflexworks.taggingservice.bdbclient.BDBResponseInfo;
+import jp.reflexworks.taggingservice.exception.TaggingException;
+import jp.reflexworks.taggingservice.taskqueue.ReflexCallable;
+import jp.reflexworks.taggingservice.taskqueue.TaskQueueUtil;
+
+/**
+ * BDBサーバへの非同期リクエストのリトライ処理.
+ * 通信方式が非同期通信をサポートしない場合、リクエストはこの非同期処理のスレッドで実行される。
+ */
+public class BDBRequesterRetryCallable<T>
+extends ReflexCallable<CompletableFuture<BDBResponseInfo<T>>> {
+
+	/** リトライするリクエスト */
+	private Supplier<CompletableFuture<BDBResponseInfo<T>>> retryRequest;
+
+	/**
+	 * コンストラクタ
+	 * @param retryRequest リトライするリクエスト
+	 */
+	BDBRequesterRetryCallable(Supplier<CompletableFuture<BDBResponseInfo<T>>> retryRequest) {
+		this.retryRequest = retryRequest;
+	}
+
+	/**
+	 * 非同期処理登録.
+	 * @param waitMillis リトライ開始までの待ち時間(ミリ秒)
+	 * @param auth 認証情報
+	 * @param requestInfo リクエスト情報
+	 * @param connectionInfo コネクション情報
+	 * @return Future
+	 */
+	@SuppressWarnings("unchecked")
+	Future<CompletableFuture<BDBResponseInfo<T>>> addTask(long waitMillis,
+			ReflexAuthentication auth, RequestInfo requestInfo, ConnectionInfo connectionInfo)
+	throws IOException, TaggingException {
+		return (Future<CompletableFuture<BDBResponseInfo<T>>>)TaskQueueUtil.addTask(this,
+				waitMillis, auth, requestInfo, connectionInfo);
+	}
+
+	/**
+	 * リトライ処理.
+	 * @return レスポンス情報のFuture
+	 */
+	@Override
+	public CompletableFuture<BDBResponseInfo<T>> call() throws IOException, TaggingException {
+		return retryRequest.get();
+	}
+
+}
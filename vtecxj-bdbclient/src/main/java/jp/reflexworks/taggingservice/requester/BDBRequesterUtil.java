@@ -13,6 +13,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -37,10 +38,14 @@ import jp.reflexworks.taggingservice.exception.NoExistingEntryException;
 import jp.reflexworks.taggingservice.exception.NotInServiceException;
 import jp.reflexworks.taggingservice.exception.OptimisticLockingException;
 import jp.reflexworks.taggingservice.exception.TaggingException;
+import jp.reflexworks.taggingservice.model.EntryFrameInfo;
 import jp.reflexworks.taggingservice.model.EntryMultipleInfo;
 import jp.reflexworks.taggingservice.requester.BDBClientServerConst.BDBIndexType;
 import jp.reflexworks.taggingservice.requester.BDBClientServerConst.BDBServerType;
 import jp.reflexworks.taggingservice.util.Constants;
+import jp.reflexworks.taggingservice.util.EntryFrameUtil;
+import jp.reflexworks.taggingservice.util.EntryCodec;
+import jp.reflexworks.taggingservice.util.EntryCodecDictionary;
 import jp.reflexworks.taggingservice.util.EntrySerializer;
 import jp.reflexworks.taggingservice.util.LogUtil;
 import jp.reflexworks.taggingservice.util.NamespaceUtil;
@@ -87,6 +92,52 @@ public class BDBRequesterUtil {
 				BDBClientConst.BDBREQUEST_RETRY_WAITMILLIS_DEFAULT);
 	}
 
+	/**
+	 * BDBリクエストのアクセス失敗時リトライ時の最大スリープ時間を取得.
+	 * @return BDBリクエストのアクセス失敗時の最大スリープ時間(ミリ秒)
+	 */
+	public static int getBDBRequestRetryMaxWaitmillis() {
+		return TaggingEnvUtil.getSystemPropInt(BDBClientConst.BDBREQUEST_RETRY_MAXWAITMILLIS,
+				BDBClientConst.BDBREQUEST_RETRY_MAXWAITMILLIS_DEFAULT);
+	}
+
+	/**
+	 * BDBリクエストの通信方式を取得.
+	 * @return BDBリクエストの通信方式
+	 */
+	public static String getBDBRequestTransport() {
+		return TaggingEnvUtil.getSystemProp(BDBClientConst.BDBREQUEST_TRANSPORT,
+				BDBClientConst.BDBREQUEST_TRANSPORT_DEFAULT);
+	}
+
+	/**
+	 * BDBリクエストでHTTP/2を使用するかどうか.
+	 * @return BDBリクエストでHTTP/2を使用する場合true
+	 */
+	public static boolean isBDBRequestEnableHttp2() {
+		return TaggingEnvUtil.getSystemPropBoolean(BDBClientConst.BDBREQUEST_ENABLE_HTTP2,
+				BDBClientConst.BDBREQUEST_ENABLE_HTTP2_DEFAULT);
+	}
+
+	/**
+	 * BDBリクエストのリトライ時のスリープ時間を取得.
+	 * リトライ回数に応じて指数的に増やし(最大スリープ時間まで)、
+	 * 複数スレッドのリトライが同時に集中しないようランダムな揺らぎを加える。
+	 * @param waitMillis スリープ時間の基準値(ミリ秒)
+	 * @param r リトライ回数 (0始まり)
+	 * @return スリープ時間(ミリ秒)
+	 */
+	public static long getRetryWaitMillis(int waitMillis, int r) {
+		long maxWaitMillis = Math.max(getBDBRequestRetryMaxWaitmillis(), waitMillis);
+		long backoff = (long)waitMillis << Math.min(r, 16);
+		if (backoff > maxWaitMillis || backoff < 0) {
+			backoff = maxWaitMillis;
+		}
+		// backoffの1/2〜backoffの範囲
+		long half = backoff / 2;
+		return half + ThreadLocalRandom.current().nextLong(backoff - half + 1);
+	}
+
 	/**
 	 * BDBインデックス生成リクエストのアクセス失敗時リトライ総数を取得.
 	 * @return BDBインデックス生成リクエストのアクセス失敗時リトライ総数
@@ -389,7 +440,7 @@ public class BDBRequesterUtil {
 		FeedTemplateMapper mapper = TaggingEnvUtil.getResourceMapper(serviceName);
 		CipherUtil cipherUtil = null;
 		if (isDecrypt) {
-			cipherUtil = new CipherUtil();
+			cipherUtil = EntryCodec.getCipherUtil();
 		}
 
 		// ストリームからバイト配列を取得
@@ -448,7 +499,7 @@ public class BDBRequesterUtil {
 		FeedTemplateMapper mapper = TaggingEnvUtil.getResourceMapper(serviceName);
 		CipherUtil cipherUtil = null;
 		if (isDecrypt) {
-			cipherUtil = new CipherUtil();
+			cipherUtil = EntryCodec.getCipherUtil();
 		}
 
 		long startTime = 0;
@@ -495,6 +546,55 @@ public class BDBRequesterUtil {
 		return entries;
 	}
 
+	/**
+	 * 複数Entryフレーム形式のレスポンスデータのストリームからEntryリストを取得する。
+	 * ストリームを1つのバイト配列に読み込み、IDとバイト配列長は文字列変換や分割を行わずその場で読み込む。
+	 * Entryオブジェクト形式で取得する場合、必ず復号化する。
+	 * @param in InputStream
+	 * @param serviceName サービス名
+	 * @param deflateUtil DeflateUtil
+	 * @param isDecrypt 暗号項目の復号化を行う場合true
+	 * @return Entryリスト
+	 */
+	public static List<EntryBase> getEntryListByFrame(InputStream in, String serviceName,
+			DeflateUtil deflateUtil, boolean isDecrypt)
+	throws IOException {
+		if (in == null) {
+			return null;
+		}
+		// レスポンスされるEntryはDeflate圧縮されたMessagePack。項目暗号化されている。
+		FeedTemplateMapper mapper = TaggingEnvUtil.getResourceMapper(serviceName);
+		CipherUtil cipherUtil = null;
+		if (isDecrypt) {
+			cipherUtil = EntryCodec.getCipherUtil();
+		}
+
+		// ストリームからバイト配列を取得
+		byte[] frame = null;
+		try {
+			frame = FileUtil.readInputStream(in);
+		} finally {
+			in.close();
+		}
+
+		EntryFrameInfo frameInfo = EntryFrameUtil.decode(frame);
+		if (frameInfo == null) {
+			return null;
+		}
+		int size = frameInfo.size();
+		List<EntryBase> entries = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			if (frameInfo.getLength(i) > 0) {
+				// デシリアライズ処理がバイト配列単位のため、Entryごとに切り出す。
+				EntryBase entry = getEntry(frameInfo.getData(i), mapper, deflateUtil, cipherUtil);
+				entries.add(entry);
+			} else {
+				entries.add(null);
+			}
+		}
+		return entries;
+	}
+
 	/**
 	 * Entryバイト配列長をリストに変換する.
 	 * @param entryLengthStr Entryバイト配列長文字列
@@ -543,16 +643,18 @@ public class BDBRequesterUtil {
 	 * @param mapper FeedTemplateMapper
 	 * @param deflateUtil Deflate圧縮解凍ユーティリティ
 	 * @param isEncrypt 指定された項目を暗号化する場合true
+	 * @param serviceName サービス名 (圧縮辞書の取得に使用)
 	 * @return バイト配列
 	 */
 	public static byte[] toRequestData(EntryBase entry, FeedTemplateMapper mapper,
-			DeflateUtil deflateUtil, boolean isEncrypt)
+			DeflateUtil deflateUtil, boolean isEncrypt, String serviceName)
 	throws IOException {
 		CipherUtil cipherUtil = null;
 		if (isEncrypt) {
-			cipherUtil = new CipherUtil();
+			cipherUtil = EntryCodec.getCipherUtil();
 		}
-		return EntrySerializer.serialize(mapper, entry, cipherUtil, deflateUtil);
+		return EntrySerializer.serialize(mapper, entry, cipherUtil, deflateUtil,
+				EntryCodec.getWriteDictionary(serviceName));
 	}
 
 	/**
@@ -561,22 +663,26 @@ public class BDBRequesterUtil {
 	 * @param mapper FeedTemplateMapper
 	 * @param deflateUtil Deflate圧縮解凍ユーティリティ
 	 * @param isEncrypt 指定された項目を暗号化する場合true
+	 * @param serviceName サービス名 (圧縮辞書の取得に使用)
 	 * @return EntryリストをEntryサーバに送信するための情報
 	 */
 	public static EntryMultipleInfo toRequestDataMultiple(List<EntryBase> entries,
-			FeedTemplateMapper mapper, DeflateUtil deflateUtil, boolean isEncrypt)
+			FeedTemplateMapper mapper, DeflateUtil deflateUtil, boolean isEncrypt,
+			String serviceName)
 	throws IOException {
 		CipherUtil cipherUtil = null;
 		if (isEncrypt) {
-			cipherUtil = new CipherUtil();
+			cipherUtil = EntryCodec.getCipherUtil();
 		}
+		EntryCodecDictionary dictionary = EntryCodec.getWriteDictionary(serviceName);
 		List<byte[]> dataList = new ArrayList<>();
 		for (EntryBase entry : entries) {
-			byte[] data = EntrySerializer.serialize(mapper, entry, cipherUtil, deflateUtil);
+			byte[] data = EntrySerializer.serialize(mapper, entry, cipherUtil, deflateUtil,
+					dictionary);
 			dataList.add(data);
 		}
 
-		// IDリスト文字列
+		// IDリスト
 		List<String> idList = new ArrayList<>();
 		for (EntryBase entry : entries) {
 			String id = null;
@@ -586,72 +692,44 @@ public class BDBRequesterUtil {
 			idList.add(id);
 		}
 
-		// 追加ヘッダ情報
-		Map<String, String> additionalHeaders = BDBRequesterUtil.getEntryMultipleHeader(
-				idList, dataList);
-
-		// バイト配列を結合
-		int size = 0;
-		for (byte[] data : dataList) {
-			if (data != null) {
-				size += data.length;
-			}
-		}
-		byte[] allData = new byte[size];
-		int destPos = 0;
-		for (byte[] data : dataList) {
-			if (data != null && data.length > 0) {
-				System.arraycopy(data, 0, allData, destPos, data.length);
-				destPos += data.length;
-			}
-		}
+		// IDリストとバイト配列を複数Entryフレームにまとめる
+		byte[] allData = EntryFrameUtil.encode(idList, dataList);
+		return new EntryMultipleInfo(allData, getEntryFrameHeader());
+	}
 
-		return new EntryMultipleInfo(allData, additionalHeaders);
+	/**
+	 * IDリストをEntryサーバに送信するための複数Entryフレームを編集.
+	 * @param ids IDリスト
+	 * @return 複数Entryフレーム
+	 */
+	public static byte[] toRequestDataIds(List<String> ids) {
+		return EntryFrameUtil.encode(ids, null);
 	}
 
 	/**
 	 * 複数Entry処理のヘッダを取得.
-	 * @param ids IDリスト
-	 * @param dataList Entryバイト配列リスト
+	 * リクエストデータが複数Entryフレーム形式であることを示す。
 	 * @return 複数Entry処理ヘッダ
 	 */
-	public static Map<String, String> getEntryMultipleHeader(List<String> ids, List<byte[]> dataList) {
-		if (ids == null || ids.isEmpty()) {
-			return null;
-		}
+	public static Map<String, String> getEntryFrameHeader() {
 		Map<String, String> headers = new HashMap<>();
-		StringBuilder sb = new StringBuilder();
-		boolean isFirst = true;
-		for (String id : ids) {
-			if (isFirst) {
-				isFirst = false;
-			} else {
-				sb.append(Constants.HEADER_VALUE_SEPARATOR);
-			}
-			sb.append(id);
-		}
-		headers.put(Constants.HEADER_ID, UrlUtil.urlEncode(sb.toString()));
-
-		if (dataList != null && !dataList.isEmpty()) {
-			sb = new StringBuilder();
-			isFirst = true;
-			for (byte[] data : dataList) {
-				if (isFirst) {
-					isFirst = false;
-				} else {
-					sb.append(Constants.HEADER_VALUE_SEPARATOR);
-				}
-				int len = 0;
-				if (data != null) {
-					len = data.length;
-				}
-				sb.append(len);
-			}
-			headers.put(Constants.HEADER_ENTRY_LENGTH, sb.toString());
-		}
+		headers.put(Constants.HEADER_ENTRY_FORMAT, Constants.HEADER_VALUE_ENTRY_FORMAT_FRAME);
 		return headers;
 	}
 
+	/**
+	 * レスポンスが複数Entryフレーム形式かどうか.
+	 * @param respHeaders レスポンスヘッダ
+	 * @return レスポンスが複数Entryフレーム形式の場合true
+	 */
+	public static boolean isEntryFrame(Map<String, String> respHeaders) {
+		if (respHeaders == null) {
+			return false;
+		}
+		return Constants.HEADER_VALUE_ENTRY_FORMAT_FRAME.equals(
+				respHeaders.get(Constants.HEADER_ENTRY_FORMAT));
+	}
+
 	/**
 	 * エラー判定.
 	 * エラーに合った例外をスローする。
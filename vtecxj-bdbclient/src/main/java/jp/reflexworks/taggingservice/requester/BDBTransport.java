@@ -0,0 +1,52 @@
+package jp.reflexworks.taggingservice.requester;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * BDBサーバへの通信インタフェース.
+ * BDBRequesterから使用する。
+ */
+public interface BDBTransport {
+
+	/**
+	 * リクエスト.
+	 * @param urlStr URL
+	 * @param method リクエストメソッド
+	 * @param inputData リクエストデータ
+	 * @param reqStream リクエストデータのストリーム (inputDataがnullの場合に使用)
+	 * @param headers リクエストヘッダ
+	 * @param timeoutMillis タイムアウト(ミリ秒)
+	 * @return レスポンス
+	 */
+	public BDBTransportResponse request(String urlStr, String method, byte[] inputData,
+			InputStream reqStream, Map<String, String> headers, int timeoutMillis)
+	throws IOException;
+
+	/**
+	 * 非同期リクエスト.
+	 * 非同期通信をサポートしない場合は、リクエストを実行し完了済みのFutureを返す。
+	 * @param urlStr URL
+	 * @param method リクエストメソッド
+	 * @param inputData リクエストデータ
+	 * @param headers リクエストヘッダ
+	 * @param timeoutMillis タイムアウト(ミリ秒)
+	 * @return レスポンスのFuture
+	 */
+	public CompletableFuture<BDBTransportResponse> requestAsync(String urlStr, String method,
+			byte[] inputData, Map<String, String> headers, int timeoutMillis);
+
+	/**
+	 * 非同期通信をサポートするかどうか.
+	 * @return 非同期通信をサポートする場合true
+	 */
+	public boolean isAsync();
+
+	/**
+	 * クローズ処理.
+	 */
+	public void close();
+
+}
@@ -0,0 +1,168 @@
+package jp.reflexworks.taggingservice.requester;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jp.reflexworks.atom.entry.EntryBase;
+import jp.reflexworks.atom.entry.FeedBase;
+import jp.reflexworks.taggingservice.api.ReflexStatic;
+import jp.reflexworks.taggingservice.bdbclient.BDBClientConst;
+import jp.reflexworks.taggingservice.exception.StaticDuplicatedException;
+import jp.reflexworks.taggingservice.util.TaggingEntryUtil;
+
+/**
+ * BDBサーバへの通信クラスと通信統計情報の管理クラス.
+ */
+public class BDBTransportManager {
+
+	/** メモリ上のstaticオブジェクト格納キー : 通信クラス */
+	private static final String STATIC_NAME_BDBTRANSPORT = "_bdbtransport";
+	/** メモリ上のstaticオブジェクト格納キー : サーバごとの通信統計情報 */
+	private static final String STATIC_NAME_BDBTRANSPORT_STATS = "_bdbtransport_stats";
+
+	/** ロガー. */
+	private static Logger logger = LoggerFactory.getLogger(BDBTransportManager.class);
+
+	/**
+	 * 初期処理に呼ばれるメソッド.
+	 * TaggingEnv.getPropはまだ使用できないため、通信クラスは初回使用時に生成する。
+	 */
+	public void init() {
+		// 通信クラス
+		// キー: 通信方式、値: 通信クラス
+		ConcurrentMap<String, BDBTransport> transportMap = new ConcurrentHashMap<>();
+		try {
+			ReflexStatic.setStatic(STATIC_NAME_BDBTRANSPORT, transportMap);
+		} catch (StaticDuplicatedException e) {
+			logger.warn("[init] StaticDuplicatedException: " + STATIC_NAME_BDBTRANSPORT, e);
+		}
+		// サーバごとの通信統計情報
+		// キー: スキーム://ホスト:ポート、値: 通信統計情報
+		ConcurrentMap<String, BDBTransportStats> statsMap = new ConcurrentHashMap<>();
+		try {
+			ReflexStatic.setStatic(STATIC_NAME_BDBTRANSPORT_STATS, statsMap);
+		} catch (StaticDuplicatedException e) {
+			logger.warn("[init] StaticDuplicatedException: " + STATIC_NAME_BDBTRANSPORT_STATS, e);
+		}
+	}
+
+	/**
+	 * シャットダウン時の処理.
+	 * 保持しているコネクションを閉じる。
+	 */
+	public void close() {
+		ConcurrentMap<String, BDBTransport> transportMap = getTransportMap();
+		if (transportMap == null) {
+			return;
+		}
+		for (BDBTransport transport : transportMap.values()) {
+			transport.close();
+		}
+		transportMap.clear();
+	}
+
+	/**
+	 * 設定された通信方式の通信クラスを取得.
+	 * @return 通信クラス
+	 */
+	public static BDBTransport getTransport() {
+		String transportName = BDBRequesterUtil.getBDBRequestTransport();
+		ConcurrentMap<String, BDBTransport> transportMap = getTransportMap();
+		if (transportMap == null) {
+			throw new IllegalStateException("static infomation does not exist. " + STATIC_NAME_BDBTRANSPORT);
+		}
+		return transportMap.computeIfAbsent(transportName, k -> createTransport(k));
+	}
+
+	/**
+	 * 通信クラスを生成.
+	 * @param transportName 通信方式
+	 * @return 通信クラス
+	 */
+	private static BDBTransport createTransport(String transportName) {
+		if (BDBClientConst.TRANSPORT_HTTPCLIENT.equals(transportName)) {
+			return new BDBHttpClientTransport(BDBRequesterUtil.isBDBRequestEnableHttp2());
+		}
+		if (!BDBClientConst.TRANSPORT_URLCONNECTION.equals(transportName)) {
+			logger.warn("[createTransport] transport is invalid. " + transportName);
+		}
+		return new BDBUrlConnectionTransport();
+	}
+
+	/**
+	 * リクエストURLのサーバの通信統計情報を取得.
+	 * 存在しない場合は生成する。
+	 * @param urlStr リクエストURL
+	 * @return 通信統計情報
+	 */
+	public static BDBTransportStats getStats(String urlStr) {
+		ConcurrentMap<String, BDBTransportStats> statsMap = getStatsMap();
+		if (statsMap == null) {
+			throw new IllegalStateException("static infomation does not exist. " + STATIC_NAME_BDBTRANSPORT_STATS);
+		}
+		String server = getServer(URI.create(urlStr));
+		return statsMap.computeIfAbsent(server, k -> new BDBTransportStats(k));
+	}
+
+	/**
+	 * 全サーバの通信統計情報をFeedで取得.
+	 * @return 通信統計情報
+	 */
+	public static FeedBase getStatsFeed() {
+		List<EntryBase> entries = new ArrayList<>();
+		ConcurrentMap<String, BDBTransportStats> statsMap = getStatsMap();
+		if (statsMap != null) {
+			for (Map.Entry<String, BDBTransportStats> mapEntry : statsMap.entrySet()) {
+				entries.addAll(mapEntry.getValue().getStatsEntries());
+			}
+		}
+		FeedBase feed = TaggingEntryUtil.createAtomFeed();
+		if (!entries.isEmpty()) {
+			feed.entry = entries;
+		}
+		return feed;
+	}
+
+	/**
+	 * URIからサーバ (スキーム://ホスト:ポート) を取得.
+	 * @param uri URI
+	 * @return サーバ
+	 */
+	static String getServer(URI uri) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(uri.getScheme());
+		sb.append("://");
+		sb.append(uri.getHost());
+		if (uri.getPort() > -1) {
+			sb.append(":");
+			sb.append(uri.getPort());
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * static mapより通信クラスを取得.
+	 * @return 通信クラス
+	 */
+	private static ConcurrentMap<String, BDBTransport> getTransportMap() {
+		return (ConcurrentMap<String, BDBTransport>)ReflexStatic.getStatic(
+				STATIC_NAME_BDBTRANSPORT);
+	}
+
+	/**
+	 * static mapより通信統計情報を取得.
+	 * @return 通信統計情報
+	 */
+	private static ConcurrentMap<String, BDBTransportStats> getStatsMap() {
+		return (ConcurrentMap<String, BDBTransportStats>)ReflexStatic.getStatic(
+				STATIC_NAME_BDBTRANSPORT_STATS);
+	}
+
+}
@@ -0,0 +1,81 @@
+package jp.reflexworks.taggingservice.requester;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+
+/**
+ * BDBサーバからのレスポンス情報.
+ * レスポンスデータを読み込んだ後は、コネクションを解放するためクローズすること。
+ */
+public class BDBTransportResponse implements Closeable {
+
+	/** ステータス */
+	private int status;
+	/** Content-Type */
+	private String contentType;
+	/** レスポンスヘッダ */
+	private Map<String, String> headers;
+	/** レスポンスデータのストリーム (エラーの場合はエラーレスポンスのストリーム) */
+	private InputStream inputStream;
+
+	/**
+	 * コンストラクタ.
+	 * @param status ステータス
+	 * @param contentType Content-Type
+	 * @param headers レスポンスヘッダ
+	 * @param inputStream レスポンスデータのストリーム
+	 */
+	public BDBTransportResponse(int status, String contentType, Map<String, String> headers,
+			InputStream inputStream) {
+		this.status = status;
+		this.contentType = contentType;
+		this.headers = headers;
+		this.inputStream = inputStream;
+	}
+
+	/**
+	 * ステータスを取得.
+	 * @return ステータス
+	 */
+	public int getStatus() {
+		return status;
+	}
+
+	/**
+	 * Content-Typeを取得.
+	 * @return Content-Type
+	 */
+	public String getContentType() {
+		return contentType;
+	}
+
+	/**
+	 * レスポンスヘッダを取得.
+	 * @return レスポンスヘッダ
+	 */
+	public Map<String, String> getHeaders() {
+		return headers;
+	}
+
+	/**
+	 * レスポンスデータのストリームを取得.
+	 * @return レスポンスデータのストリーム (エラーの場合はエラーレスポンスのストリーム)
+	 */
+	public InputStream getInputStream() {
+		return inputStream;
+	}
+
+	/**
+	 * レスポンスデータのストリームをクローズ.
+	 * 読み込み済み・クローズ済みの場合も呼び出してよい。
+	 */
+	@Override
+	public void close() throws IOException {
+		if (inputStream != null) {
+			inputStream.close();
+		}
+	}
+
+}
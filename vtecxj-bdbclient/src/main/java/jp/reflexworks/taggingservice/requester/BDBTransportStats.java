@@ -0,0 +1,130 @@
+package jp.reflexworks.taggingservice.requester;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import jp.reflexworks.atom.entry.EntryBase;
+import jp.reflexworks.taggingservice.util.TaggingEntryUtil;
+
+/**
+ * BDBサーバごとの通信統計情報.
+ * 実行中リクエスト数と、応答時間のヒストグラムを保持する。
+ */
+public class BDBTransportStats {
+
+	/** 応答時間ヒストグラムの区切り(ミリ秒)。最後の区切りを超えるものはその上の区分に計上する。 */
+	private static final long[] LATENCY_BUCKETS = {1, 2, 5, 10, 20, 50, 100, 200, 500,
+			1000, 2000, 5000, 10000};
+
+	/** サーバ (スキーム://ホスト:ポート) */
+	private final String server;
+	/** 実行中リクエスト数 */
+	private final AtomicLong inFlight = new AtomicLong();
+	/** リクエスト数 */
+	private final LongAdder requests = new LongAdder();
+	/** 通信エラー数 */
+	private final LongAdder errors = new LongAdder();
+	/** リトライ数 */
+	private final LongAdder retries = new LongAdder();
+	/** 応答時間合計(ミリ秒) */
+	private final LongAdder totalMillis = new LongAdder();
+	/** 応答時間ヒストグラム */
+	private final LongAdder[] latencyCounts = new LongAdder[LATENCY_BUCKETS.length + 1];
+
+	/**
+	 * コンストラクタ.
+	 * @param server サーバ (スキーム://ホスト:ポート)
+	 */
+	BDBTransportStats(String server) {
+		this.server = server;
+		for (int i = 0; i < latencyCounts.length; i++) {
+			latencyCounts[i] = new LongAdder();
+		}
+	}
+
+	/**
+	 * リクエスト開始.
+	 */
+	void start() {
+		inFlight.incrementAndGet();
+	}
+
+	/**
+	 * リクエスト終了.
+	 * @param elapsedMillis 応答時間(ミリ秒)
+	 * @param isError 通信エラーの場合true
+	 */
+	void end(long elapsedMillis, boolean isError) {
+		inFlight.decrementAndGet();
+		requests.increment();
+		if (isError) {
+			errors.increment();
+		}
+		totalMillis.add(elapsedMillis);
+		int idx = 0;
+		while (idx < LATENCY_BUCKETS.length && elapsedMillis > LATENCY_BUCKETS[idx]) {
+			idx++;
+		}
+		latencyCounts[idx].increment();
+	}
+
+	/**
+	 * リトライ数を加算.
+	 */
+	void retry() {
+		retries.increment();
+	}
+
+	/**
+	 * 実行中リクエスト数を取得.
+	 * @return 実行中リクエスト数
+	 */
+	public long getInFlight() {
+		return inFlight.get();
+	}
+
+	/**
+	 * 統計情報をEntryリストで取得.
+	 * titleに項目名、summaryに値を設定する。
+	 * @return 統計情報
+	 */
+	public List<EntryBase> getStatsEntries() {
+		long requestCnt = requests.sum();
+		List<EntryBase> statsEntries = new ArrayList<>();
+		statsEntries.add(createStatsEntry("inflight", String.valueOf(inFlight.get())));
+		statsEntries.add(createStatsEntry("requests", String.valueOf(requestCnt)));
+		statsEntries.add(createStatsEntry("errors", String.valueOf(errors.sum())));
+		statsEntries.add(createStatsEntry("retries", String.valueOf(retries.sum())));
+		double avgMillis = 0;
+		if (requestCnt > 0) {
+			avgMillis = (double)totalMillis.sum() / requestCnt;
+		}
+		statsEntries.add(createStatsEntry("latency.avg_millis", String.valueOf(avgMillis)));
+		for (int i = 0; i < latencyCounts.length; i++) {
+			String name = null;
+			if (i < LATENCY_BUCKETS.length) {
+				name = "latency.le_" + LATENCY_BUCKETS[i];
+			} else {
+				name = "latency.gt_" + LATENCY_BUCKETS[LATENCY_BUCKETS.length - 1];
+			}
+			statsEntries.add(createStatsEntry(name, String.valueOf(latencyCounts[i].sum())));
+		}
+		return statsEntries;
+	}
+
+	/**
+	 * 統計情報Entryを生成.
+	 * @param name 項目名
+	 * @param value 値
+	 * @return 統計情報Entry
+	 */
+	private EntryBase createStatsEntry(String name, String value) {
+		EntryBase entry = TaggingEntryUtil.createAtomEntry();
+		entry.title = server + " " + name;
+		entry.summary = value;
+		return entry;
+	}
+
+}
@@ -0,0 +1,90 @@
+package jp.reflexworks.taggingservice.requester;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import jp.reflexworks.servlet.HttpStatus;
+import jp.sourceforge.reflex.util.Requester;
+
+/**
+ * HttpURLConnectionによるBDBサーバへの通信クラス.
+ * 非同期通信はサポートしない。
+ */
+public class BDBUrlConnectionTransport implements BDBTransport {
+
+	/**
+	 * リクエスト.
+	 * @param urlStr URL
+	 * @param method リクエストメソッド
+	 * @param inputData リクエストデータ
+	 * @param reqStream リクエストデータのストリーム (inputDataがnullの場合に使用)
+	 * @param headers リクエストヘッダ
+	 * @param timeoutMillis タイムアウト(ミリ秒)
+	 * @return レスポンス
+	 */
+	@Override
+	public BDBTransportResponse request(String urlStr, String method, byte[] inputData,
+			InputStream reqStream, Map<String, String> headers, int timeoutMillis)
+	throws IOException {
+		Requester requester = new Requester();
+		HttpURLConnection http = null;
+		if (inputData == null && reqStream != null) {
+			http = requester.prepare(urlStr, method, reqStream, headers, timeoutMillis);
+		} else {
+			http = requester.prepare(urlStr, method, inputData, headers, timeoutMillis);
+		}
+		int status = http.getResponseCode();
+		Map<String, String> respHeaders = BDBRequesterUtil.getResponseHeaders(http);
+		InputStream in = null;
+		if (status < 400) {
+			if (status != HttpStatus.SC_NO_CONTENT) {
+				in = http.getInputStream();
+			}
+		} else {
+			in = http.getErrorStream();
+		}
+		return new BDBTransportResponse(status, http.getContentType(), respHeaders, in);
+	}
+
+	/**
+	 * 非同期リクエスト.
+	 * 非同期通信はサポートしないため、リクエストを実行し完了済みのFutureを返す。
+	 * @param urlStr URL
+	 * @param method リクエストメソッド
+	 * @param inputData リクエストデータ
+	 * @param headers リクエストヘッダ
+	 * @param timeoutMillis タイムアウト(ミリ秒)
+	 * @return レスポンスのFuture
+	 */
+	@Override
+	public CompletableFuture<BDBTransportResponse> requestAsync(String urlStr, String method,
+			byte[] inputData, Map<String, String> headers, int timeoutMillis) {
+		try {
+			return CompletableFuture.completedFuture(
+					request(urlStr, method, inputData, null, headers, timeoutMillis));
+		} catch (IOException e) {
+			return CompletableFuture.failedFuture(e);
+		}
+	}
+
+	/**
+	 * 非同期通信をサポートするかどうか.
+	 * @return false
+	 */
+	@Override
+	public boolean isAsync() {
+		return false;
+	}
+
+	/**
+	 * クローズ処理.
+	 */
+	@Override
+	public void close() {
+		// Do nothing.
+	}
+
+}
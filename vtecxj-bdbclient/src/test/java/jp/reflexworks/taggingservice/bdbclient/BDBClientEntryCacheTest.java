@@ -0,0 +1,114 @@
+package jp.reflexworks.taggingservice.bdbclient;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import jp.reflexworks.atom.api.AtomConst;
+import jp.reflexworks.atom.entry.EntryBase;
+import jp.reflexworks.atom.mapper.FeedTemplateMapper;
+import jp.reflexworks.taggingservice.util.TaggingEntryUtil;
+
+public class BDBClientEntryCacheTest {
+
+	private static final String SERVICE_NAME = "testservice";
+	private static final String URI = "/test/1";
+	private static final String ID = URI + ",1";
+
+	private FeedTemplateMapper mapper;
+	private BDBClientMemoryInvalidationBus bus;
+
+	@Before
+	public void setUp() throws Exception {
+		mapper = new FeedTemplateMapper(AtomConst.TEMPLATE_DEFAULT_ARRAY, null, 30, null);
+		bus = new BDBClientMemoryInvalidationBus();
+	}
+
+	@Test
+	public void testHit() throws Exception {
+		BDBClientEntryCache cache = new BDBClientEntryCache(1024 * 1024, 64 * 1024, 60000, bus);
+		cache.put(SERVICE_NAME, createEntry(ID, "2026-01-01T00:00:00.000+09:00", "v1"),
+				mapper, System.currentTimeMillis());
+
+		Map<String, EntryBase> cachedEntries = get(cache, ID);
+		assertEquals("v1", cachedEntries.get(ID).title);
+	}
+
+	@Test
+	public void testDeleteAndInsertWithLostInvalidation() throws Exception {
+		// サーバA: 無効化通知を受信しない (通知が失われた状態)
+		BDBClientEntryCache cacheA = new BDBClientEntryCache(1024 * 1024, 64 * 1024, 60000, bus);
+		EntryBase oldEntry = createEntry(ID, "2026-01-01T00:00:00.000+09:00", "v1");
+		cacheA.put(SERVICE_NAME, oldEntry, mapper, System.currentTimeMillis());
+
+		// サーバB: 削除後に再登録 (再登録のIDはリビジョン1に戻るため削除前と同じ)
+		String deleteTime = "2026-01-01T00:00:01.000+09:00";
+		bus.putStamps(SERVICE_NAME, Collections.singletonList(URI),
+				Collections.singletonList(BDBClientEntryCache.getDeleteStamp(oldEntry, deleteTime)),
+				61, null);
+		EntryBase newEntry = createEntry(ID, "2026-01-01T00:00:02.000+09:00", "v2");
+		bus.putStamps(SERVICE_NAME, Collections.singletonList(URI),
+				Collections.singletonList(BDBClientEntryCache.getStamp(newEntry)), 61, null);
+
+		// サーバAは削除前のEntryを返却しない
+		assertNull(get(cacheA, ID).get(ID));
+
+		// 再登録後のEntryはキャッシュを使用できる
+		cacheA.put(SERVICE_NAME, newEntry, mapper, System.currentTimeMillis());
+		assertEquals("v2", get(cacheA, ID).get(ID).title);
+	}
+
+	@Test
+	public void testSilentUpdateWithLostInvalidation() throws Exception {
+		BDBClientEntryCache cacheA = new BDBClientEntryCache(1024 * 1024, 64 * 1024, 60000, bus);
+		cacheA.put(SERVICE_NAME, createEntry(ID, "2026-01-01T00:00:00.000+09:00", "v1"),
+				mapper, System.currentTimeMillis());
+
+		// リビジョンを変えない更新
+		EntryBase newEntry = createEntry(ID, "2026-01-01T00:00:01.000+09:00", "v2");
+		bus.putStamps(SERVICE_NAME, Collections.singletonList(URI),
+				Collections.singletonList(BDBClientEntryCache.getStamp(newEntry)), 61, null);
+
+		assertNull(get(cacheA, ID).get(ID));
+	}
+
+	@Test
+	public void testExpire() throws Exception {
+		BDBClientEntryCache cache = new BDBClientEntryCache(1024 * 1024, 64 * 1024, 1000, bus);
+		// Entryサーバへのリクエスト開始から有効時間が経過している
+		cache.put(SERVICE_NAME, createEntry(ID, "2026-01-01T00:00:00.000+09:00", "v1"),
+				mapper, System.currentTimeMillis() - 2000);
+
+		assertNull(get(cache, ID).get(ID));
+	}
+
+	@Test
+	public void testInvalidate() throws Exception {
+		BDBClientEntryCache cache = new BDBClientEntryCache(1024 * 1024, 64 * 1024, 60000, bus);
+		cache.put(SERVICE_NAME, createEntry(ID, "2026-01-01T00:00:00.000+09:00", "v1"),
+				mapper, System.currentTimeMillis());
+		cache.invalidate(SERVICE_NAME, Arrays.asList(URI));
+
+		assertNull(get(cache, ID).get(ID));
+	}
+
+	private Map<String, EntryBase> get(BDBClientEntryCache cache, String id)
+	throws Exception {
+		return cache.get(SERVICE_NAME, Collections.singletonList(id), mapper, null);
+	}
+
+	private EntryBase createEntry(String id, String updated, String title) {
+		EntryBase entry = TaggingEntryUtil.createEntry(mapper);
+		entry.id = id;
+		entry.updated = updated;
+		entry.title = title;
+		return entry;
+	}
+
+}
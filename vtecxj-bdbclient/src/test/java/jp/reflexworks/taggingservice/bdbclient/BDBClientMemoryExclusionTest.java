@@ -0,0 +1,90 @@
+package jp.reflexworks.taggingservice.bdbclient;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class BDBClientMemoryExclusionTest {
+
+	private static final String SERVICE_NAME = "testservice";
+	private static final int SEC = 10;
+	private static final long NOW = 1000000L;
+
+	@Test
+	public void testAllOrNothing() {
+		BDBClientMemoryExclusion exclusion = new BDBClientMemoryExclusion();
+		assertNull(exclusion.acquire(SERVICE_NAME, Arrays.asList("/b"), "owner1", SEC, NOW));
+
+		// /bが排他中のため、/aと/cも排他しない
+		assertEquals("/b", exclusion.acquire(SERVICE_NAME, Arrays.asList("/a", "/b", "/c"),
+				"owner2", SEC, NOW));
+		assertNull(exclusion.acquire(SERVICE_NAME, Arrays.asList("/a"), "owner3", SEC, NOW));
+		assertNull(exclusion.acquire(SERVICE_NAME, Arrays.asList("/c"), "owner3", SEC, NOW));
+	}
+
+	@Test
+	public void testConflictKey() {
+		BDBClientMemoryExclusion exclusion = new BDBClientMemoryExclusion();
+		assertNull(exclusion.acquire(SERVICE_NAME, Arrays.asList("/c", "/d"), "owner1",
+				SEC, NOW));
+
+		// 最初に見つかった排他中のURIを返す
+		assertEquals("/c", exclusion.acquire(SERVICE_NAME,
+				Arrays.asList("/a", "/b", "/c", "/d"), "owner2", SEC, NOW));
+		assertEquals("/d", exclusion.acquire(SERVICE_NAME, Arrays.asList("/a", "/d"),
+				"owner2", SEC, NOW));
+	}
+
+	@Test
+	public void testServiceIsolation() {
+		BDBClientMemoryExclusion exclusion = new BDBClientMemoryExclusion();
+		assertNull(exclusion.acquire(SERVICE_NAME, Arrays.asList("/a"), "owner1", SEC, NOW));
+		assertNull(exclusion.acquire("otherservice", Arrays.asList("/a"), "owner2", SEC, NOW));
+	}
+
+	@Test
+	public void testReleaseByOwner() {
+		BDBClientMemoryExclusion exclusion = new BDBClientMemoryExclusion();
+		List<String> uris = Arrays.asList("/a", "/b");
+		assertNull(exclusion.acquire(SERVICE_NAME, uris, "owner1", SEC, NOW));
+
+		// 他の所有者は解除できない
+		exclusion.release(SERVICE_NAME, uris, "owner2");
+		assertEquals("/a", exclusion.acquire(SERVICE_NAME, uris, "owner2", SEC, NOW));
+
+		exclusion.release(SERVICE_NAME, uris, "owner1");
+		assertNull(exclusion.acquire(SERVICE_NAME, uris, "owner2", SEC, NOW));
+	}
+
+	@Test
+	public void testExpiredLeaseTakenOver() {
+		BDBClientMemoryExclusion exclusion = new BDBClientMemoryExclusion();
+		List<String> uris = Arrays.asList("/a", "/b");
+		assertNull(exclusion.acquire(SERVICE_NAME, uris, "owner1", SEC, NOW));
+
+		// 有効期限切れの後、他の所有者が排他
+		long afterExpire = NOW + SEC * 1000L;
+		assertNull(exclusion.acquire(SERVICE_NAME, uris, "owner2", SEC, afterExpire));
+
+		// 期限切れの所有者の解除で、他の所有者の排他を削除しない
+		exclusion.release(SERVICE_NAME, uris, "owner1");
+		assertEquals("/a", exclusion.acquire(SERVICE_NAME, uris, "owner3", SEC, afterExpire));
+	}
+
+	@Test
+	public void testReacquireOwnKeys() {
+		BDBClientMemoryExclusion exclusion = new BDBClientMemoryExclusion();
+		assertNull(exclusion.acquire(SERVICE_NAME, Arrays.asList("/a"), "owner1", SEC, NOW));
+
+		// 自身が排他済みのURIを含めて排他できる (リトライ時)
+		assertNull(exclusion.acquire(SERVICE_NAME, Arrays.asList("/a", "/b"), "owner1",
+				SEC, NOW + 1000));
+		assertEquals("/b", exclusion.acquire(SERVICE_NAME, Arrays.asList("/b"), "owner2",
+				SEC, NOW + 1000));
+	}
+
+}
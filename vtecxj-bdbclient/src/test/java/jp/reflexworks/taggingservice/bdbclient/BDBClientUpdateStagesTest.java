@@ -0,0 +1,165 @@
+package jp.reflexworks.taggingservice.bdbclient;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * 更新処理の段階の順序テスト.
+ * Entryサーバ・Manifestサーバの代わりにローカルのHTTPサーバを使用する。
+ */
+public class BDBClientUpdateStagesTest {
+
+	private static final int ENTRY_SERVERS = 3;
+	private static final int REQUESTS_PER_SERVER = 4;
+
+	private final List<String> events = Collections.synchronizedList(new ArrayList<>());
+	private final List<HttpServer> entryServers = new ArrayList<>();
+	private HttpServer manifestServer;
+	private HttpClient client;
+
+	@Before
+	public void setUp() throws IOException {
+		for (int i = 0; i < ENTRY_SERVERS; i++) {
+			// 後のサーバほど応答を遅くする
+			int delayMillis = 50 * (i + 1);
+			entryServers.add(startServer("entry", delayMillis, 200));
+		}
+		manifestServer = startServer("manifest", 0, 200);
+		client = HttpClient.newHttpClient();
+	}
+
+	@After
+	public void tearDown() {
+		for (HttpServer server : entryServers) {
+			server.stop(0);
+		}
+		manifestServer.stop(0);
+	}
+
+	@Test
+	public void testOrder() throws Exception {
+		CompletableFuture<Void> committed = BDBClientUpdateStages.chain(
+				() -> putEntries(entryServers),
+				() -> put(manifestServer));
+		committed.get();
+		events.add("aftercommit");
+
+		// 全てのEntry登録の終了後にManifest更新を開始し、その終了後に登録完了後の処理を行う
+		int entryCnt = ENTRY_SERVERS * REQUESTS_PER_SERVER;
+		assertEquals(entryCnt * 2 + 3, events.size());
+		assertEquals(entryCnt, Collections.frequency(events, "entry end"));
+		int manifestStartIdx = events.indexOf("manifest start");
+		assertTrue(events.lastIndexOf("entry end") < manifestStartIdx);
+		assertEquals(manifestStartIdx + 1, events.indexOf("manifest end"));
+		assertEquals(events.size() - 1, events.indexOf("aftercommit"));
+	}
+
+	@Test
+	public void testEntryFailure() throws Exception {
+		// 1台のEntryサーバがエラーを返す
+		entryServers.get(0).stop(0);
+		entryServers.set(0, startServer("entry", 0, 500));
+
+		CompletableFuture<Void> committed = BDBClientUpdateStages.chain(
+				() -> putEntries(entryServers),
+				() -> put(manifestServer));
+		try {
+			committed.get();
+			fail("ExecutionException is expected.");
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof IOException);
+		}
+		// Manifestの更新は行わない
+		assertTrue(!events.contains("manifest start"));
+	}
+
+	@Test
+	public void testStartFailure() throws Exception {
+		CompletableFuture<Void> committed = BDBClientUpdateStages.chain(
+				() -> {
+					throw new IOException("start failed.");
+				},
+				() -> put(manifestServer));
+		try {
+			committed.get();
+			fail("ExecutionException is expected.");
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof IOException);
+		}
+		assertTrue(events.isEmpty());
+	}
+
+	private CompletableFuture<Void> putEntries(List<HttpServer> servers) {
+		List<CompletableFuture<Void>> futures = new ArrayList<>();
+		for (HttpServer server : servers) {
+			for (int i = 0; i < REQUESTS_PER_SERVER; i++) {
+				futures.add(put(server));
+			}
+		}
+		return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]));
+	}
+
+	private CompletableFuture<Void> put(HttpServer server) {
+		HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" +
+				server.getAddress().getPort() + "/"))
+				.PUT(HttpRequest.BodyPublishers.ofString("data")).build();
+		return client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+				.thenApply(response -> {
+					if (response.statusCode() != 200) {
+						throw new CompletionException(
+								new IOException("status = " + response.statusCode()));
+					}
+					return null;
+				});
+	}
+
+	private HttpServer startServer(String name, int delayMillis, int status)
+	throws IOException {
+		HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.setExecutor(Executors.newCachedThreadPool());
+		server.createContext("/", exchange -> {
+			try (InputStream in = exchange.getRequestBody()) {
+				in.readAllBytes();
+			}
+			if (status == 200) {
+				events.add(name + " start");
+				try {
+					Thread.sleep(delayMillis);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				events.add(name + " end");
+			}
+			exchange.sendResponseHeaders(status, -1);
+			try (OutputStream out = exchange.getResponseBody()) {
+				// レスポンスデータなし
+			}
+		});
+		server.start();
+		return server;
+	}
+
+}
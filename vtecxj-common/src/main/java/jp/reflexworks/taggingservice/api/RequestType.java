@@ -206,6 +206,14 @@ public interface RequestType {
 	public static final String PARAM_DISTVALUE = "_distvalue";
 	/** URLパラメータ : BDBバックアップ */
 	public static final String PARAM_BACKUP = "_backup";
+	/** URLパラメータ : 複数Entry取得時の条件による絞り込み */
+	public static final String PARAM_FILTER = "_filter";
+	/** URLパラメータ : フォルダ件数取得 : GET /b{親キー}?_foldercount */
+	public static final String PARAM_FOLDERCOUNT = "_foldercount";
+	/** URLパラメータ : フォルダ件数の再集計 : PUT /b/?_foldercount_rebuild */
+	public static final String PARAM_FOLDERCOUNT_REBUILD = "_foldercount_rebuild";
+	/** URLパラメータ : フォルダ件数の検証 : GET /b/?_foldercount_verify */
+	public static final String PARAM_FOLDERCOUNT_VERIFY = "_foldercount_verify";
 
 	/** URLパラメータ : ワイルドカード */
 	public static final String WILDCARD = "*";
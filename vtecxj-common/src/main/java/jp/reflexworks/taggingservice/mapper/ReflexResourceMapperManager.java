@@ -55,6 +55,8 @@ public abstract class ReflexResourceMapperManager implements ResourceMapperManag
 	private static final String STATIC_NAME_MAPPER_TEMPLATEUPDATEDSMAP ="_mapper_templateupdatedsmap";
 	/** メモリ上のstaticオブジェクト格納キー : テンプレートDISTKEY保持Map */
 	private static final String STATIC_NAME_MAPPER_TEMPLATEDISTKEYSMAP ="_mapper_templatedistkeysmap";
+	/** メモリ上のstaticオブジェクト格納キー : テンプレート情報保持Map */
+	private static final String STATIC_NAME_MAPPER_TEMPLATESMAP ="_mapper_templatesmap";
 
 	/** ロガー. */
 	private Logger logger = LoggerFactory.getLogger(this.getClass());
@@ -132,6 +134,14 @@ public abstract class ReflexResourceMapperManager implements ResourceMapperManag
 		} catch (StaticDuplicatedException e) {
 			logger.warn("[init] StaticDuplicatedException: " + STATIC_NAME_MAPPER_TEMPLATEDISTKEYSMAP, e);
 		}
+		// テンプレート情報保持Map
+		ConcurrentMap<String, Template> templates =
+						new ConcurrentHashMap<String, Template>();
+		try {
+			ReflexStatic.setStatic(STATIC_NAME_MAPPER_TEMPLATESMAP, templates);
+		} catch (StaticDuplicatedException e) {
+			logger.warn("[init] StaticDuplicatedException: " + STATIC_NAME_MAPPER_TEMPLATESMAP, e);
+		}
 
 		String systemService = env.getSystemService();
 		// 標準ATOMのResourceMapperを生成
@@ -370,6 +380,18 @@ public abstract class ReflexResourceMapperManager implements ResourceMapperManag
 		return templateDistkeyMap;
 	}
 
+	/**
+	 * サービスのテンプレート情報を取得.
+	 * @param serviceName サービス名
+	 * @return テンプレート情報。サービスのテンプレートが登録されていない場合null。
+	 */
+	public Template getTemplate(String serviceName) {
+		if (serviceName == null) {
+			return null;
+		}
+		return getTemplates().get(serviceName);
+	}
+
 	/**
 	 * テンプレートURIを取得
 	 * @return テンプレートURI
@@ -564,6 +586,15 @@ public abstract class ReflexResourceMapperManager implements ResourceMapperManag
 				STATIC_NAME_MAPPER_TEMPLATEDISTKEYSMAP);
 	}
 
+	/**
+	 * static領域からテンプレート情報保持Mapを取得.
+	 * @return テンプレート情報保持Map
+	 */
+	private ConcurrentMap<String, Template> getTemplates() {
+		return (ConcurrentMap<String, Template>)ReflexStatic.getStatic(
+				STATIC_NAME_MAPPER_TEMPLATESMAP);
+	}
+
 	/**
 	 * サービスごとの設定処理.
 	 * 引数が BaseReflexContext のメソッドが呼ばれるため、このメソッドは使用しない。
@@ -617,6 +648,7 @@ public abstract class ReflexResourceMapperManager implements ResourceMapperManag
 					ConcurrentMap<String, FeedTemplateMapper> resourceMappers =
 							getResourceMappers();
 					resourceMappers.put(serviceName, mapper);
+					getTemplates().put(serviceName, template);
 					putTemplateIndex(serviceName);
 					revisions.put(serviceName, newRev);
 					updateds.put(serviceName, newUpdated);
@@ -660,6 +692,10 @@ public abstract class ReflexResourceMapperManager implements ResourceMapperManag
 		if (resourceMappers != null && resourceMappers.containsKey(serviceName)) {
 			resourceMappers.remove(serviceName);
 		}
+		Map<String, Template> templates = getTemplates();
+		if (templates != null && templates.containsKey(serviceName)) {
+			templates.remove(serviceName);
+		}
 		Map<String, Integer> revisions = getRevisions();
 		if (revisions != null && revisions.containsKey(serviceName)) {
 			revisions.remove(serviceName);
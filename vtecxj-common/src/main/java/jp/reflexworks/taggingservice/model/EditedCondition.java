@@ -1,5 +1,7 @@
 package jp.reflexworks.taggingservice.model;
 
+import java.util.Arrays;
+
 import jp.reflexworks.atom.api.Condition;
 import jp.reflexworks.atom.mapper.FeedTemplateMapper.Meta;
 
@@ -31,6 +33,16 @@ public class EditedCondition {
 	 * インデックスに使用する条件か、全文検索条件のいずれかが指定される。
 	 */
 	private Condition ftCondition;
+	/**
+	 * 全文検索条件とAND条件で全文検索サーバで検索する条件.
+	 * 全文検索条件と同じ項目の2番目以降の全文検索条件。
+	 */
+	private Condition[] ftAndConditions;
+	/**
+	 * 積集合に使用するインデックス検索条件.
+	 * インメモリ条件のうちインデックスを使用できる条件。Entry取得前にIDリストの絞り込みに使用する。
+	 */
+	private EditedCondition[] intersectConditions;
 
 	/**
 	 * コンストラクタ.
@@ -41,12 +53,15 @@ public class EditedCondition {
 	 * @param indexMeta インデックスに使用する項目のMeta情報
 	 * @param innerConditions インメモリ条件 (インデックス検索分を除いた条件)
 	 * @param ftCondition 全文検索条件
+	 * @param ftAndConditions 全文検索条件とAND条件で全文検索サーバで検索する条件
+	 * @param intersectConditions 積集合に使用するインデックス検索条件
 	 * @param distkeyItem DISTKEY項目
 	 * @param distkeyValue DISTKEYの値
 	 */
 	public EditedCondition(String conditionUri, boolean isUriForwardMatch,
 			Condition indexCondition, Condition indexConditionRange,
 			Meta indexMeta, Condition[] innerConditions, Condition ftCondition,
+			Condition[] ftAndConditions, EditedCondition[] intersectConditions,
 			String distkeyItem, String distkeyValue) {
 		this.conditionUri = conditionUri;
 		this.isUriForwardMatch = isUriForwardMatch;
@@ -55,6 +70,8 @@ public class EditedCondition {
 		this.indexMeta = indexMeta;
 		this.innerConditions = innerConditions;
 		this.ftCondition = ftCondition;
+		this.ftAndConditions = ftAndConditions;
+		this.intersectConditions = intersectConditions;
 		this.distkeyItem = distkeyItem;
 		this.distkeyValue = distkeyValue;
 	}
@@ -115,6 +132,22 @@ public class EditedCondition {
 		return ftCondition;
 	}
 
+	/**
+	 * 全文検索条件とAND条件で全文検索サーバで検索する条件を取得
+	 * @return 全文検索条件とAND条件で全文検索サーバで検索する条件
+	 */
+	public Condition[] getFtAndConditions() {
+		return ftAndConditions;
+	}
+
+	/**
+	 * 積集合に使用するインデックス検索条件を取得
+	 * @return 積集合に使用するインデックス検索条件
+	 */
+	public EditedCondition[] getIntersectConditions() {
+		return intersectConditions;
+	}
+
 	/**
 	 * DISTKEY項目名を取得
 	 * @return DISTKEY項目名
@@ -165,6 +198,14 @@ public class EditedCondition {
 		}
 		sb.append(", ftCondition=");
 		sb.append(ftCondition);
+		if (ftAndConditions != null && ftAndConditions.length > 0) {
+			sb.append(", ftAndConditions=");
+			sb.append(Arrays.toString(ftAndConditions));
+		}
+		if (intersectConditions != null && intersectConditions.length > 0) {
+			sb.append(", intersectConditions=");
+			sb.append(Arrays.toString(intersectConditions));
+		}
 		sb.append(", distkeyItem=");
 		sb.append(distkeyItem);
 		sb.append(", distkeyValue=");
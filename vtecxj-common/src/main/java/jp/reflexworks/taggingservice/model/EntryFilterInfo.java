@@ -0,0 +1,80 @@
+package jp.reflexworks.taggingservice.model;
+
+import java.util.List;
+
+import jp.reflexworks.atom.api.Condition;
+
+/**
+ * 条件指定のEntry複数取得リクエストの読み込み結果.
+ * <p>
+ * Entryサーバで条件に合致するEntryのみを返却するために使用する。
+ * </p>
+ */
+public class EntryFilterInfo {
+
+	/** IDリスト */
+	private List<String> ids;
+	/** エンティティ定義 */
+	private String[] template;
+	/** Index・暗号化・項目ACL定義 */
+	private String[] rights;
+	/** 絞り込み条件 */
+	private Condition[] conditions;
+
+	/**
+	 * コンストラクタ.
+	 * @param ids IDリスト
+	 * @param template エンティティ定義
+	 * @param rights Index・暗号化・項目ACL定義
+	 * @param conditions 絞り込み条件
+	 */
+	public EntryFilterInfo(List<String> ids, String[] template, String[] rights,
+			Condition[] conditions) {
+		this.ids = ids;
+		this.template = template;
+		this.rights = rights;
+		this.conditions = conditions;
+	}
+
+	/**
+	 * IDリストを取得.
+	 * @return IDリスト
+	 */
+	public List<String> getIds() {
+		return ids;
+	}
+
+	/**
+	 * エンティティ定義を取得.
+	 * @return エンティティ定義
+	 */
+	public String[] getTemplate() {
+		return template;
+	}
+
+	/**
+	 * Index・暗号化・項目ACL定義を取得.
+	 * @return Index・暗号化・項目ACL定義
+	 */
+	public String[] getRights() {
+		return rights;
+	}
+
+	/**
+	 * 絞り込み条件を取得.
+	 * @return 絞り込み条件
+	 */
+	public Condition[] getConditions() {
+		return conditions;
+	}
+
+	/**
+	 * 絞り込み条件があるかどうか.
+	 * @return 絞り込み条件とエンティティ定義がある場合true
+	 */
+	public boolean hasConditions() {
+		return template != null && template.length > 0 &&
+				conditions != null && conditions.length > 0;
+	}
+
+}
@@ -0,0 +1,105 @@
+package jp.reflexworks.taggingservice.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 複数Entryフレームの読み込み結果.
+ * <p>
+ * 受信したバイト配列をコピーせずに保持し、各Entryデータの位置と長さのみ管理する。
+ * </p>
+ */
+public class EntryFrameInfo {
+
+	/** フレームのバイト配列 */
+	private byte[] buffer;
+	/** IDリスト */
+	private List<String> ids;
+	/** 各Entryデータの開始位置 */
+	private int[] offsets;
+	/** 各Entryデータの長さ */
+	private int[] lengths;
+
+	/**
+	 * コンストラクタ.
+	 * @param buffer フレームのバイト配列
+	 * @param ids IDリスト
+	 * @param offsets 各Entryデータの開始位置
+	 * @param lengths 各Entryデータの長さ
+	 */
+	public EntryFrameInfo(byte[] buffer, List<String> ids, int[] offsets, int[] lengths) {
+		this.buffer = buffer;
+		this.ids = ids;
+		this.offsets = offsets;
+		this.lengths = lengths;
+	}
+
+	/**
+	 * 件数を取得.
+	 * @return 件数
+	 */
+	public int size() {
+		return ids.size();
+	}
+
+	/**
+	 * IDリストを取得.
+	 * @return IDリスト
+	 */
+	public List<String> getIds() {
+		return ids;
+	}
+
+	/**
+	 * フレームのバイト配列を取得.
+	 * @return フレームのバイト配列
+	 */
+	public byte[] getBuffer() {
+		return buffer;
+	}
+
+	/**
+	 * Entryデータの開始位置を取得.
+	 * @param idx インデックス
+	 * @return Entryデータの開始位置
+	 */
+	public int getOffset(int idx) {
+		return offsets[idx];
+	}
+
+	/**
+	 * Entryデータの長さを取得.
+	 * @param idx インデックス
+	 * @return Entryデータの長さ。データなしの場合0。
+	 */
+	public int getLength(int idx) {
+		return lengths[idx];
+	}
+
+	/**
+	 * Entryデータを取得.
+	 * @param idx インデックス
+	 * @return Entryデータ。データなしの場合null。
+	 */
+	public byte[] getData(int idx) {
+		if (lengths[idx] == 0) {
+			return null;
+		}
+		return Arrays.copyOfRange(buffer, offsets[idx], offsets[idx] + lengths[idx]);
+	}
+
+	/**
+	 * Entryデータリストを取得.
+	 * @return Entryデータリスト (IDリストと同じ順序)
+	 */
+	public List<byte[]> getDataList() {
+		int size = size();
+		List<byte[]> dataList = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			dataList.add(getData(i));
+		}
+		return dataList;
+	}
+
+}
@@ -19,6 +19,8 @@ public class FetchInfo<T> implements Serializable {
 	private String pointerStr;
 	/** フェッチ制限超えかどうか */
 	private boolean isFetchExceeded;
+	/** 件数 (件数のみ取得した場合に設定。未設定の場合は-1) */
+	private int count = -1;
 
 	/**
 	 * コンストラクタ.
@@ -30,6 +32,17 @@ public class FetchInfo<T> implements Serializable {
 		this.pointerStr = pointerStr;
 	}
 
+	/**
+	 * コンストラクタ.
+	 * 件数のみ取得した場合に使用する。
+	 * @param count 件数
+	 * @param pointerStr カーソル
+	 */
+	public FetchInfo(int count, String pointerStr) {
+		this.count = count;
+		this.pointerStr = pointerStr;
+	}
+
 	/**
 	 * フェッチ結果を取得
 	 * @return フェッチ結果
@@ -64,6 +77,21 @@ public class FetchInfo<T> implements Serializable {
 		return values;
 	}
 
+	/**
+	 * 件数を取得.
+	 * 件数のみ取得した場合はその件数、それ以外はフェッチ結果の件数を返す。
+	 * @return 件数
+	 */
+	public int getCount() {
+		if (count >= 0) {
+			return count;
+		}
+		if (result == null) {
+			return 0;
+		}
+		return result.size();
+	}
+
 	/**
 	 * カーソルを取得.
 	 * @return カーソル
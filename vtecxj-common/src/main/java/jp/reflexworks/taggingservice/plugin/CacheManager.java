@@ -1,6 +1,8 @@
 package jp.reflexworks.taggingservice.plugin;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.function.Consumer;
 
 import jp.reflexworks.atom.entry.EntryBase;
 import jp.reflexworks.atom.entry.FeedBase;
@@ -96,6 +98,31 @@ public interface CacheManager extends ReflexPlugin {
 			BaseReflexContext reflexContext)
 	throws IOException, TaggingException;
 
+	/**
+	 * 全てのキーにデータが存在しない場合のみ、キャッシュに文字列を一括登録.
+	 * 登録は全てのキーに対して行うか、全く行わないかのいずれかとなる。
+	 * @param names キーリスト
+	 * @param text 文字列
+	 * @param sec 有効時間(秒)
+	 * @param reflexContext ReflexContext
+	 * @return 登録できた場合null、既にデータが存在するキーがある場合そのキー
+	 */
+	public String setStringsIfAbsent(List<String> names, String text, int sec,
+			BaseReflexContext reflexContext)
+	throws IOException, TaggingException;
+
+	/**
+	 * キャッシュに文字列を一括登録.
+	 * 既にデータが存在する場合は上書き。
+	 * @param names キーリスト
+	 * @param texts 文字列リスト (キーリストと同じ順序)
+	 * @param sec 有効時間(秒)
+	 * @param reflexContext ReflexContext
+	 */
+	public void setStrings(List<String> names, List<String> texts, int sec,
+			BaseReflexContext reflexContext)
+	throws IOException, TaggingException;
+
 	/**
 	 * データが存在しない場合のみキャッシュに数値を登録.
 	 * @param name キー
@@ -142,6 +169,18 @@ public interface CacheManager extends ReflexPlugin {
 	public boolean deleteString(String name, BaseReflexContext reflexContext)
 	throws IOException, TaggingException;
 
+	/**
+	 * キャッシュから文字列を一括削除.
+	 * 値が指定された文字列と等しいキーのみ削除する。
+	 * @param names キーリスト
+	 * @param text 文字列
+	 * @param reflexContext ReflexContext
+	 * @return 削除件数
+	 */
+	public long deleteStringsIfEqual(List<String> names, String text,
+			BaseReflexContext reflexContext)
+	throws IOException, TaggingException;
+
 	/**
 	 * キャッシュから整数値を削除.
 	 * @param name キー
@@ -177,6 +216,15 @@ public interface CacheManager extends ReflexPlugin {
 	public String getString(String name, BaseReflexContext reflexContext)
 	throws IOException, TaggingException;
 
+	/**
+	 * キャッシュから文字列を一括取得.
+	 * @param names キーリスト
+	 * @param reflexContext ReflexContext
+	 * @return 文字列リスト (キーリストと同じ順序。データが存在しないキーはnull)
+	 */
+	public List<String> getStrings(List<String> names, BaseReflexContext reflexContext)
+	throws IOException, TaggingException;
+
 	/**
 	 * キャッシュから整数値を取得.
 	 * @param name キー
@@ -235,4 +283,25 @@ public interface CacheManager extends ReflexPlugin {
 	public String flushAll(BaseReflexContext reflexContext)
 	throws IOException, TaggingException;
 
+	/**
+	 * チャネルにメッセージを送信.
+	 * 他ノードへの通知に使用する。
+	 * @param channel チャネル
+	 * @param message メッセージ
+	 * @param reflexContext ReflexContext
+	 * @return メッセージを受信したクライアント数
+	 */
+	public long publish(String channel, String message, BaseReflexContext reflexContext)
+	throws IOException, TaggingException;
+
+	/**
+	 * チャネルの購読を開始.
+	 * 受信処理は別スレッドで行い、本メソッドは待たずに終了する。
+	 * 接続エラー時は再接続して購読を継続する。
+	 * @param channel チャネル
+	 * @param listener メッセージ受信時の処理
+	 */
+	public void subscribe(String channel, Consumer<String> listener)
+	throws IOException, TaggingException;
+
 }
@@ -77,6 +77,14 @@ public interface ResourceMapperManager extends SettingService {
 	 */
 	public Template getTemplate(EntryBase settingsEntry, String serviceName);
 
+	/**
+	 * サービスのテンプレート情報を取得.
+	 * サービス初期設定で読み込んだテンプレート情報を返却します。
+	 * @param serviceName サービス名
+	 * @return テンプレート情報。サービスのテンプレートが登録されていない場合null。
+	 */
+	public Template getTemplate(String serviceName);
+
 	/**
 	 * サービス初期設定時の処理.
 	 * 実行ノードで指定されたサービスが初めて実行された際に呼び出されます。
@@ -8,4 +8,13 @@ import java.util.concurrent.Callable;
  */
 public interface ReflexTaskQueue<T> extends Callable<T> {
 
+	/**
+	 * 非同期処理の対象サービス名を取得.
+	 * サービスごとの同時実行数制限と統計情報に使用する。
+	 * @return サービス名。指定しない場合null。
+	 */
+	public default String getServiceName() {
+		return null;
+	}
+
 }
@@ -1,14 +1,14 @@
 package jp.reflexworks.taggingservice.taskqueue;
 
-import java.util.ArrayList;
 import java.util.Date;
-import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
@@ -22,6 +22,15 @@ import jp.reflexworks.taggingservice.plugin.TaskQueueManager;
 
 /**
  * 非同期処理管理クラス.
+ * <p>
+ * 実行方式は設定で選択する。
+ * <ul>
+ *   <li>fixed (デフォルト) : 固定数のスレッドプールで実行する。</li>
+ *   <li>virtual : 非同期処理ごとに仮想スレッドで実行する。
+ *       サービスごとの同時実行数を超えた非同期処理は、仮想スレッド上で実行待ちとなる。</li>
+ * </ul>
+ * 非同期処理の実行結果は完了時にタスクリストから自身を取り除く。
+ * </p>
  */
 public abstract class ReflexTaskQueueAbstractManager implements TaskQueueManager {
 
@@ -29,6 +38,16 @@ public abstract class ReflexTaskQueueAbstractManager implements TaskQueueManager
 	public static final String PROP_TASKQUEUE_AWAITTERMINATION_SEC = "_taskqueue.awaittermination.sec";
 	/** シャットダウン時の強制終了待ち時間(秒) デフォルト値 */
 	public static final int TASKQUEUE_AWAITTERMINATION_SEC_DEFAULT = 60;
+	/** 設定 : 非同期処理の実行方式 (fixed または virtual) */
+	public static final String PROP_TASKQUEUE_EXECUTOR = "_taskqueue.executor";
+	/** 設定 : サービスごとの非同期処理の同時実行数 (virtualの場合のみ有効。0以下は無制限。非同期処理の中から登録された非同期処理は数えない) */
+	public static final String PROP_TASKQUEUE_SERVICE_CONCURRENCY = "_taskqueue.service.concurrency";
+	/** 非同期処理の実行方式 : 固定数のスレッドプール */
+	public static final String TASKQUEUE_EXECUTOR_FIXED = "fixed";
+	/** 非同期処理の実行方式 : 仮想スレッド */
+	public static final String TASKQUEUE_EXECUTOR_VIRTUAL = "virtual";
+	/** サービスごとの非同期処理の同時実行数 デフォルト値 */
+	public static final int TASKQUEUE_SERVICE_CONCURRENCY_DEFAULT = 100;
 
 	/** メモリ上のstaticオブジェクト格納キー : ExecutorService */
 	protected static final String STATIC_NAME_TASKQUEUE = "_taskqueue";
@@ -36,6 +55,12 @@ public abstract class ReflexTaskQueueAbstractManager implements TaskQueueManager
 	protected static final String STATIC_NAME_TASKQUEUE_SCHEDULED = "_taskqueue_scheduled";
 	/** メモリ上のstaticオブジェクト格納キー : 非同期実行タスクリスト */
 	protected static final String STATIC_NAME_FUTURES = "_futures";
+	/** メモリ上のstaticオブジェクト格納キー : 非同期処理統計情報 */
+	protected static final String STATIC_NAME_TASKQUEUE_STATS = "_taskqueue_stats";
+	/** メモリ上のstaticオブジェクト格納キー : サービスごとの同時実行数制限 */
+	protected static final String STATIC_NAME_TASKQUEUE_SEMAPHORES = "_taskqueue_semaphores";
+	/** 仮想スレッド名の接頭辞 */
+	private static final String VIRTUAL_THREAD_NAME_PREFIX = "taskqueue-";
 
 	/** ロガー */
 	private Logger logger = LoggerFactory.getLogger(this.getClass());
@@ -51,9 +76,16 @@ public abstract class ReflexTaskQueueAbstractManager implements TaskQueueManager
 				ReflexEnvConst.TASKQUEUE_POOLSIZE_BATCHJOB,
 				ReflexEnvConst.TASKQUEUE_POOLSIZE_BATCHJOB_DEFAULT);
 
+		boolean isVirtual = isVirtualExecutor();
+
 		// ExecutoreService
-		ExecutorService taskQueueExecutorService =
-				Executors.newFixedThreadPool(poolSizeBatchjobSystem);
+		ExecutorService taskQueueExecutorService = null;
+		if (isVirtual) {
+			taskQueueExecutorService = Executors.newThreadPerTaskExecutor(
+					Thread.ofVirtual().name(VIRTUAL_THREAD_NAME_PREFIX, 0).factory());
+		} else {
+			taskQueueExecutorService = Executors.newFixedThreadPool(poolSizeBatchjobSystem);
+		}
 		try {
 			ReflexStatic.setStatic(STATIC_NAME_TASKQUEUE, taskQueueExecutorService);
 		} catch (StaticDuplicatedException e) {
@@ -62,8 +94,9 @@ public abstract class ReflexTaskQueueAbstractManager implements TaskQueueManager
 		}
 
 		// ScheduledExecutoreService
+		// 仮想スレッドの場合、待ち時間経過後に仮想スレッドに処理を渡すだけのため1スレッドとする。
 		ScheduledExecutorService taskQueueScheduledExecutorService =
-				Executors.newScheduledThreadPool(poolSizeBatchjob);
+				Executors.newScheduledThreadPool(isVirtual ? 1 : poolSizeBatchjob);
 		try {
 			ReflexStatic.setStatic(STATIC_NAME_TASKQUEUE_SCHEDULED, taskQueueScheduledExecutorService);
 		} catch (StaticDuplicatedException e) {
@@ -80,6 +113,27 @@ public abstract class ReflexTaskQueueAbstractManager implements TaskQueueManager
 					STATIC_NAME_FUTURES);
 		}
 
+		// 統計情報
+		ReflexTaskQueueStats stats = new ReflexTaskQueueStats();
+		try {
+			ReflexStatic.setStatic(STATIC_NAME_TASKQUEUE_STATS, stats);
+		} catch (StaticDuplicatedException e) {
+			stats = (ReflexTaskQueueStats)ReflexStatic.getStatic(STATIC_NAME_TASKQUEUE_STATS);
+		}
+
+		// サービスごとの同時実行数制限
+		ConcurrentMap<String, Semaphore> semaphores = new ConcurrentHashMap<>();
+		try {
+			ReflexStatic.setStatic(STATIC_NAME_TASKQUEUE_SEMAPHORES, semaphores);
+		} catch (StaticDuplicatedException e) {
+			semaphores = (ConcurrentMap<String, Semaphore>)ReflexStatic.getStatic(
+					STATIC_NAME_TASKQUEUE_SEMAPHORES);
+		}
+
+		if (logger.isDebugEnabled()) {
+			logger.debug("[init] executor=" + (isVirtual ? TASKQUEUE_EXECUTOR_VIRTUAL :
+					TASKQUEUE_EXECUTOR_FIXED));
+		}
 	}
 
 	/**
@@ -156,6 +210,9 @@ public abstract class ReflexTaskQueueAbstractManager implements TaskQueueManager
 			}
 		}
 
+		if (logger.isDebugEnabled()) {
+			logger.debug("[close] TaskQueueStats : " + getStats());
+		}
 	}
 
 	/**
@@ -165,30 +222,46 @@ public abstract class ReflexTaskQueueAbstractManager implements TaskQueueManager
 	 * @return Future
 	 */
 	public Future<?> addTask(ReflexTaskQueue<?> taskQueue, long countdownMillis) {
-		// 非同期処理実行
-		Future<?> future = null;
-		if (countdownMillis > 0) {
-			ScheduledExecutorService taskQueueScheduledExecutorService =
-					(ScheduledExecutorService)ReflexStatic.getStatic(STATIC_NAME_TASKQUEUE_SCHEDULED);
-			future = taskQueueScheduledExecutorService.schedule(taskQueue, countdownMillis,
-					TimeUnit.MILLISECONDS);
-		} else {
-			ExecutorService taskQueueExecutorService =
-					(ExecutorService)ReflexStatic.getStatic(STATIC_NAME_TASKQUEUE);
-			future = taskQueueExecutorService.submit(taskQueue);
-		}
-
 		// バッチ起動の場合のみタスクリスト管理を行う。(終了時に実行中スレッドがチェックされないため)
+		// タスクリストからは完了時に取り除かれる。
+		ConcurrentMap<Future<?>, Boolean> futuresSet = null;
 		if (isStoredFuture()) {
-			// タスクリストに追加
-			ConcurrentMap<Future<?>, Boolean> futuresSet =
-					(ConcurrentMap<Future<?>, Boolean>)ReflexStatic.getStatic(STATIC_NAME_FUTURES);
-			futuresSet.put(future, true);
-
-			// タスクリストのうち終了したものをクリアする。
-			cleanFutures(futuresSet);
+			futuresSet = (ConcurrentMap<Future<?>, Boolean>)ReflexStatic.getStatic(STATIC_NAME_FUTURES);
+		}
+		boolean isVirtual = isVirtualExecutor();
+		String serviceName = taskQueue.getServiceName();
+		Semaphore semaphore = null;
+		if (isVirtual && !ReflexTaskQueueFuture.isInTask(serviceName)) {
+			// 同じサービスの非同期処理の中から登録された場合は、親の非同期処理の許可で実行する。
+			// 別のサービスの場合は、そのサービスの許可を取得する。
+			semaphore = getSemaphore(serviceName);
 		}
+		ReflexTaskQueueFuture<?> future = createFuture(taskQueue, serviceName, semaphore,
+				futuresSet);
 
+		// 非同期処理実行
+		ExecutorService taskQueueExecutorService =
+				(ExecutorService)ReflexStatic.getStatic(STATIC_NAME_TASKQUEUE);
+		try {
+			if (countdownMillis > 0) {
+				ScheduledExecutorService taskQueueScheduledExecutorService =
+						(ScheduledExecutorService)ReflexStatic.getStatic(STATIC_NAME_TASKQUEUE_SCHEDULED);
+				if (isVirtual) {
+					// 待ち時間経過後、仮想スレッドで実行する
+					taskQueueScheduledExecutorService.schedule(
+							() -> execute(taskQueueExecutorService, future),
+							countdownMillis, TimeUnit.MILLISECONDS);
+				} else {
+					taskQueueScheduledExecutorService.schedule(future, countdownMillis,
+							TimeUnit.MILLISECONDS);
+				}
+			} else {
+				taskQueueExecutorService.execute(future);
+			}
+		} catch (RejectedExecutionException e) {
+			future.cancel(false);
+			throw e;
+		}
 		return future;
 	}
 
@@ -200,26 +273,76 @@ public abstract class ReflexTaskQueueAbstractManager implements TaskQueueManager
 	public boolean hasTask() {
 		ConcurrentMap<Future<?>, Boolean> futuresSet =
 				(ConcurrentMap<Future<?>, Boolean>)ReflexStatic.getStatic(STATIC_NAME_FUTURES);
-		cleanFutures(futuresSet);
 		return !futuresSet.isEmpty();
 	}
 
 	/**
-	 * メモリに保持するタスクリストから、完了したものを取り除く.
-	 * @param futuresSet タスクリスト
+	 * 非同期処理統計情報を取得.
+	 * @return 非同期処理統計情報
 	 */
-	private void cleanFutures(ConcurrentMap<Future<?>, Boolean> futuresSet) {
-		List<Future<?>> doneFutures = new ArrayList<Future<?>>();
-		for (Future<?> tmpFuture : futuresSet.keySet()) {
-			if (tmpFuture.isDone() || tmpFuture.isCancelled()) {
-				doneFutures.add(tmpFuture);
-			}
+	public ReflexTaskQueueStats getStats() {
+		return (ReflexTaskQueueStats)ReflexStatic.getStatic(STATIC_NAME_TASKQUEUE_STATS);
+	}
+
+	/**
+	 * 仮想スレッドで実行するかどうか.
+	 * @return 仮想スレッドで実行する場合true
+	 */
+	protected boolean isVirtualExecutor() {
+		return TASKQUEUE_EXECUTOR_VIRTUAL.equals(ReflexEnvUtil.getSystemProp(
+				PROP_TASKQUEUE_EXECUTOR, TASKQUEUE_EXECUTOR_FIXED));
+	}
+
+	/**
+	 * 非同期処理の実行結果オブジェクトを生成.
+	 * @param taskQueue Reflex非同期処理
+	 * @param serviceName サービス名
+	 * @param semaphore サービスの同時実行数制限 (制限しない場合null)
+	 * @param futuresSet タスクリスト (保持しない場合null)
+	 * @return 非同期処理の実行結果オブジェクト
+	 */
+	private <T> ReflexTaskQueueFuture<T> createFuture(ReflexTaskQueue<T> taskQueue,
+			String serviceName, Semaphore semaphore,
+			ConcurrentMap<Future<?>, Boolean> futuresSet) {
+		return new ReflexTaskQueueFuture<T>(taskQueue, serviceName, semaphore, futuresSet,
+				getStats());
+	}
+
+	/**
+	 * 待ち時間経過後の非同期処理を実行.
+	 * 終了処理中で実行できない場合はキャンセルする。
+	 * @param taskQueueExecutorService ExecutorService
+	 * @param future 非同期処理の実行結果オブジェクト
+	 */
+	private void execute(ExecutorService taskQueueExecutorService,
+			ReflexTaskQueueFuture<?> future) {
+		try {
+			taskQueueExecutorService.execute(future);
+		} catch (RejectedExecutionException e) {
+			logger.warn("[execute] RejectedExecutionException: " + e.getMessage());
+			future.cancel(false);
 		}
-		if (!doneFutures.isEmpty()) {
-			for (Future<?> doneFuture : doneFutures) {
-				futuresSet.remove(doneFuture);
-			}
+	}
+
+	/**
+	 * サービスの同時実行数制限を取得.
+	 * @param serviceName サービス名
+	 * @return サービスの同時実行数制限。制限しない場合null。
+	 */
+	private Semaphore getSemaphore(String serviceName) {
+		if (serviceName == null) {
+			return null;
+		}
+		int concurrency = ReflexEnvUtil.getSystemPropInt(
+				PROP_TASKQUEUE_SERVICE_CONCURRENCY,
+				TASKQUEUE_SERVICE_CONCURRENCY_DEFAULT);
+		if (concurrency <= 0) {
+			return null;
 		}
+		ConcurrentMap<String, Semaphore> semaphores =
+				(ConcurrentMap<String, Semaphore>)ReflexStatic.getStatic(
+						STATIC_NAME_TASKQUEUE_SEMAPHORES);
+		return semaphores.computeIfAbsent(serviceName, k -> new Semaphore(concurrency));
 	}
 
 	/**
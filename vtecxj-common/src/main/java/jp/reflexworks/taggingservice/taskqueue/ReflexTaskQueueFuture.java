@@ -0,0 +1,164 @@
+package jp.reflexworks.taggingservice.taskqueue;
+
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 非同期処理の実行結果.
+ * <p>
+ * 完了時(正常終了・例外・キャンセル)にタスクリストから自身を取り除き、統計情報を更新する。
+ * サービスごとの同時実行数制限が指定されている場合、実行開始前に許可を取得する。
+ * 非同期処理の中から同じサービスの非同期処理が登録された場合、親の非同期処理が許可を保持しているため許可を取得しない。
+ * (親が子の完了を待つ間に、全ての許可が親に保持され子が開始できなくなることを防ぐため。)
+ * 別のサービスの非同期処理は、そのサービスの許可を取得する。
+ * 完了はCompletableFutureにも通知するため、完了待ちをポーリングせずに後続処理を組み立てられる。
+ * </p>
+ * @param <T> 非同期処理の戻り型
+ */
+public class ReflexTaskQueueFuture<T> extends FutureTask<T> {
+
+	/** スレッドで実行中の非同期処理 (実行中でない場合null) */
+	private static final ThreadLocal<ReflexTaskQueueFuture<?>> IN_TASK = new ThreadLocal<>();
+
+	/** サービス名 */
+	private final String serviceName;
+	/** タスクリスト (保持しない場合null) */
+	private final ConcurrentMap<Future<?>, Boolean> futuresSet;
+	/** 統計情報 */
+	private final ReflexTaskQueueStats stats;
+	/** 開始済みまたはキャンセル済みの場合true */
+	private final AtomicBoolean started;
+	/** 完了通知 */
+	private final CompletableFuture<T> completion = new CompletableFuture<>();
+
+	/**
+	 * コンストラクタ.
+	 * @param taskQueue Reflex非同期処理
+	 * @param serviceName サービス名
+	 * @param semaphore サービスの同時実行数制限 (制限しない場合null)
+	 * @param futuresSet タスクリスト (保持しない場合null)
+	 * @param stats 統計情報
+	 */
+	ReflexTaskQueueFuture(ReflexTaskQueue<T> taskQueue, String serviceName,
+			Semaphore semaphore, ConcurrentMap<Future<?>, Boolean> futuresSet,
+			ReflexTaskQueueStats stats) {
+		this(taskQueue, serviceName, semaphore, futuresSet, stats, new AtomicBoolean(),
+				new ReflexTaskQueueFuture<?>[1]);
+	}
+
+	/**
+	 * コンストラクタ.
+	 * @param taskQueue Reflex非同期処理
+	 * @param serviceName サービス名
+	 * @param semaphore サービスの同時実行数制限 (制限しない場合null)
+	 * @param futuresSet タスクリスト (保持しない場合null)
+	 * @param stats 統計情報
+	 * @param started 開始済みまたはキャンセル済みフラグ
+	 * @param self 生成した自身を設定する配列 (実行時に実行中の非同期処理として参照する)
+	 */
+	private ReflexTaskQueueFuture(ReflexTaskQueue<T> taskQueue, String serviceName,
+			Semaphore semaphore, ConcurrentMap<Future<?>, Boolean> futuresSet,
+			ReflexTaskQueueStats stats, AtomicBoolean started,
+			ReflexTaskQueueFuture<?>[] self) {
+		super(() -> {
+			if (semaphore != null) {
+				semaphore.acquire();
+			}
+			try {
+				if (!started.compareAndSet(false, true)) {
+					// 許可の取得中にキャンセルされた
+					throw new CancellationException();
+				}
+				stats.addStart(serviceName);
+				ReflexTaskQueueFuture<?> parent = IN_TASK.get();
+				IN_TASK.set(self[0]);
+				try {
+					return taskQueue.call();
+				} finally {
+					if (parent != null) {
+						IN_TASK.set(parent);
+					} else {
+						IN_TASK.remove();
+					}
+					stats.addEnd(serviceName);
+				}
+			} finally {
+				if (semaphore != null) {
+					semaphore.release();
+				}
+			}
+		});
+		this.serviceName = serviceName;
+		this.futuresSet = futuresSet;
+		this.stats = stats;
+		this.started = started;
+		self[0] = this;
+		stats.addQueued(serviceName);
+		if (futuresSet != null) {
+			futuresSet.put(this, true);
+		}
+	}
+
+	/**
+	 * 現在のスレッドが非同期処理の実行中かどうか.
+	 * @return 非同期処理の実行中の場合true
+	 */
+	static boolean isInTask() {
+		return IN_TASK.get() != null;
+	}
+
+	/**
+	 * 現在のスレッドが指定されたサービスの非同期処理の実行中かどうか.
+	 * @param serviceName サービス名
+	 * @return 指定されたサービスの非同期処理の実行中の場合true
+	 */
+	static boolean isInTask(String serviceName) {
+		ReflexTaskQueueFuture<?> running = IN_TASK.get();
+		return running != null && Objects.equals(running.serviceName, serviceName);
+	}
+
+	/**
+	 * 完了時の処理.
+	 * タスクリストから取り除く。
+	 */
+	@Override
+	protected void done() {
+		if (futuresSet != null) {
+			futuresSet.remove(this);
+		}
+		if (started.compareAndSet(false, true)) {
+			// 実行前にキャンセルされた
+			stats.addCancel(serviceName);
+		}
+		// 完了通知
+		if (isCancelled()) {
+			completion.cancel(false);
+			return;
+		}
+		try {
+			completion.complete(get());
+		} catch (ExecutionException e) {
+			completion.completeExceptionally(e.getCause());
+		} catch (InterruptedException | CancellationException e) {
+			completion.completeExceptionally(e);
+		}
+	}
+
+	/**
+	 * 完了時に完了するCompletableFutureを取得.
+	 * 非同期処理が例外で終了した場合、その例外で異常完了する。
+	 * 返却されたCompletableFutureを完了させても、非同期処理には影響しない。
+	 * @return CompletableFuture
+	 */
+	public CompletableFuture<T> toCompletableFuture() {
+		return completion.copy();
+	}
+
+}
@@ -0,0 +1,193 @@
+package jp.reflexworks.taggingservice.taskqueue;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 非同期処理統計情報.
+ * 実行待ち・実行中の非同期処理数を、全体とサービスごとに保持する。
+ */
+public class ReflexTaskQueueStats {
+
+	/** サービス名が指定されていない非同期処理の集計キー */
+	public static final String SERVICE_NONE = "-";
+
+	/** 実行待ち件数 */
+	private final AtomicInteger queued = new AtomicInteger();
+	/** 実行中件数 */
+	private final AtomicInteger running = new AtomicInteger();
+	/** 完了件数 */
+	private final AtomicLong completedCount = new AtomicLong();
+	/** 実行前キャンセル件数 */
+	private final AtomicLong cancelledCount = new AtomicLong();
+	/** サービスごとの実行待ち件数 */
+	private final ConcurrentMap<String, AtomicInteger> serviceQueued = new ConcurrentHashMap<>();
+	/** サービスごとの実行中件数 */
+	private final ConcurrentMap<String, AtomicInteger> serviceRunning = new ConcurrentHashMap<>();
+
+	/**
+	 * 非同期処理の登録を記録.
+	 * @param serviceName サービス名
+	 */
+	void addQueued(String serviceName) {
+		queued.incrementAndGet();
+		getCounter(serviceQueued, serviceName).incrementAndGet();
+	}
+
+	/**
+	 * 非同期処理の開始を記録.
+	 * @param serviceName サービス名
+	 */
+	void addStart(String serviceName) {
+		queued.decrementAndGet();
+		getCounter(serviceQueued, serviceName).decrementAndGet();
+		running.incrementAndGet();
+		getCounter(serviceRunning, serviceName).incrementAndGet();
+	}
+
+	/**
+	 * 非同期処理の終了を記録.
+	 * @param serviceName サービス名
+	 */
+	void addEnd(String serviceName) {
+		running.decrementAndGet();
+		getCounter(serviceRunning, serviceName).decrementAndGet();
+		completedCount.incrementAndGet();
+	}
+
+	/**
+	 * 実行前のキャンセルを記録.
+	 * @param serviceName サービス名
+	 */
+	void addCancel(String serviceName) {
+		queued.decrementAndGet();
+		getCounter(serviceQueued, serviceName).decrementAndGet();
+		cancelledCount.incrementAndGet();
+	}
+
+	/**
+	 * 実行待ち件数を取得.
+	 * @return 実行待ち件数
+	 */
+	public int getQueued() {
+		return queued.get();
+	}
+
+	/**
+	 * 実行中件数を取得.
+	 * @return 実行中件数
+	 */
+	public int getRunning() {
+		return running.get();
+	}
+
+	/**
+	 * 完了件数を取得.
+	 * @return 完了件数
+	 */
+	public long getCompletedCount() {
+		return completedCount.get();
+	}
+
+	/**
+	 * 実行前キャンセル件数を取得.
+	 * @return 実行前キャンセル件数
+	 */
+	public long getCancelledCount() {
+		return cancelledCount.get();
+	}
+
+	/**
+	 * サービスの実行待ち件数を取得.
+	 * @param serviceName サービス名
+	 * @return 実行待ち件数
+	 */
+	public int getQueued(String serviceName) {
+		AtomicInteger counter = serviceQueued.get(toKey(serviceName));
+		return counter == null ? 0 : counter.get();
+	}
+
+	/**
+	 * サービスの実行中件数を取得.
+	 * @param serviceName サービス名
+	 * @return 実行中件数
+	 */
+	public int getRunning(String serviceName) {
+		AtomicInteger counter = serviceRunning.get(toKey(serviceName));
+		return counter == null ? 0 : counter.get();
+	}
+
+	/**
+	 * 実行待ちまたは実行中の非同期処理があるサービスごとの件数を取得.
+	 * @return キー:サービス名、値:[0]実行待ち件数、[1]実行中件数
+	 */
+	public Map<String, int[]> getServiceDepths() {
+		Map<String, int[]> depths = new TreeMap<>();
+		for (String serviceName : serviceQueued.keySet()) {
+			int queuedCnt = getQueued(serviceName);
+			int runningCnt = getRunning(serviceName);
+			if (queuedCnt > 0 || runningCnt > 0) {
+				depths.put(serviceName, new int[]{queuedCnt, runningCnt});
+			}
+		}
+		return depths;
+	}
+
+	/**
+	 * サービスごとのカウンタを取得.
+	 * @param counters カウンタMap
+	 * @param serviceName サービス名
+	 * @return カウンタ
+	 */
+	private AtomicInteger getCounter(ConcurrentMap<String, AtomicInteger> counters,
+			String serviceName) {
+		return counters.computeIfAbsent(toKey(serviceName), k -> new AtomicInteger());
+	}
+
+	/**
+	 * 集計キーを取得.
+	 * @param serviceName サービス名
+	 * @return 集計キー
+	 */
+	private String toKey(String serviceName) {
+		return serviceName == null ? SERVICE_NONE : serviceName;
+	}
+
+	/**
+	 * 文字列表現を取得.
+	 * @return 文字列表現
+	 */
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("queued=");
+		sb.append(getQueued());
+		sb.append(", running=");
+		sb.append(getRunning());
+		sb.append(", completedCount=");
+		sb.append(getCompletedCount());
+		sb.append(", cancelledCount=");
+		sb.append(getCancelledCount());
+		sb.append(", services={");
+		boolean isFirst = true;
+		for (Map.Entry<String, int[]> mapEntry : getServiceDepths().entrySet()) {
+			if (isFirst) {
+				isFirst = false;
+			} else {
+				sb.append(", ");
+			}
+			sb.append(mapEntry.getKey());
+			sb.append("=");
+			sb.append(mapEntry.getValue()[0]);
+			sb.append("/");
+			sb.append(mapEntry.getValue()[1]);
+		}
+		sb.append("}");
+		return sb.toString();
+	}
+
+}
@@ -237,6 +237,14 @@ public interface Constants extends AtomConst {
 	public static final String HEADER_ID = "X-ID";
 	/** リクエストヘッダ : ENTRYバイト長 */
 	public static final String HEADER_ENTRY_LENGTH = "X-ENTRY-LENGTH";
+	/** リクエスト・レスポンスヘッダ : 複数Entryのデータ形式 */
+	public static final String HEADER_ENTRY_FORMAT = "X-ENTRY-FORMAT";
+	/** 複数Entryのデータ形式 : 長さ付きバイナリフレーム (EntryFrameUtil) */
+	public static final String HEADER_VALUE_ENTRY_FORMAT_FRAME = "frame";
+	/** レスポンスヘッダ : 条件指定のEntry複数取得の読み込み件数 */
+	public static final String HEADER_FILTER_SCANNED = "X-FILTER-SCANNED";
+	/** レスポンスヘッダ : 条件指定のEntry複数取得の条件合致件数 */
+	public static final String HEADER_FILTER_MATCHED = "X-FILTER-MATCHED";
 
 	/** リクエストヘッダの値区切り文字 */
 	public static final String HEADER_VALUE_SEPARATOR = ";";
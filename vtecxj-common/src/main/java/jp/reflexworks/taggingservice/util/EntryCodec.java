@@ -0,0 +1,419 @@
+package jp.reflexworks.taggingservice.util;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import jp.reflexworks.atom.mapper.CipherUtil;
+import jp.sourceforge.reflex.util.DeflateUtil;
+
+/**
+ * Entryバイト配列の圧縮・解凍クラス.
+ * <p>
+ * 圧縮辞書を指定した場合、先頭にフォーマット識別バイトとフォーマットバージョンを付加し、
+ * 辞書付きのzlib形式で圧縮する。辞書IDはzlib形式のヘッダに含まれる。<br>
+ * フォーマット識別バイトのないデータは従来のDeflateUtilによる圧縮データとして解凍するため、
+ * 既存のデータはそのまま読み込める。
+ * フォーマット識別バイト(0xFE)は、Deflate圧縮データとしては不正なブロック種別となり、
+ * MessagePack形式のEntry(配列)の先頭とも重ならない。
+ * </p>
+ * <p>
+ * 暗号化ツールはスレッドごとに保持して再利用する。
+ * 圧縮・解凍に使用するDeflater、Inflaterはネイティブメモリを使用するため、
+ * 上限付きのプールで再利用し、プールに戻せないものはその場で解放(end)する。
+ * 仮想スレッドのようにタスクごとにスレッドが生成される場合も、保持数はプールの上限を超えない。
+ * </p>
+ */
+public class EntryCodec {
+
+	/** フォーマット識別バイト */
+	public static final byte FORMAT_MARKER = (byte)0xfe;
+	/** フォーマットバージョン : 辞書付きzlib圧縮 */
+	public static final byte FORMAT_VERSION_DICTIONARY = 0x01;
+	/** ヘッダ長 (フォーマット識別バイト + フォーマットバージョン) */
+	private static final int HEADER_LEN = 2;
+	/** 圧縮レベル */
+	private static final int COMPRESSION_LEVEL = Deflater.DEFAULT_COMPRESSION;
+	/** 圧縮・解凍状態のプール上限 */
+	static final int POOL_SIZE = Math.max(2, Runtime.getRuntime().availableProcessors() * 2);
+	/** プールに戻す圧縮用バッファの最大サイズ。超える場合はバッファを破棄して戻す。 */
+	private static final int POOL_BUFFER_MAX_SIZE = 1024 * 1024;
+
+	/** スレッドごとの暗号化ツール */
+	private static final ThreadLocal<CipherUtil> cipherUtils =
+			ThreadLocal.withInitial(CipherUtil::new);
+	/** 圧縮・解凍状態のプール */
+	private static final BlockingQueue<CodecState> codecPool =
+			new ArrayBlockingQueue<>(POOL_SIZE);
+	/** 解凍に使用する辞書 キー:辞書ID、値:辞書 */
+	private static final ConcurrentMap<Long, EntryCodecDictionary> dictionaries =
+			new ConcurrentHashMap<>();
+	/** 圧縮に使用する辞書 キー:サービス名、値:辞書 */
+	private static final ConcurrentMap<String, EntryCodecDictionary> writeDictionaries =
+			new ConcurrentHashMap<>();
+	/** 保持していない辞書の取得処理 */
+	private static volatile DictionaryResolver dictionaryResolver;
+
+	/**
+	 * スレッドで使用する暗号化ツールを取得.
+	 * 同一スレッド内では同じインスタンスを返す。
+	 * @return 暗号化ツール
+	 */
+	public static CipherUtil getCipherUtil() {
+		return cipherUtils.get();
+	}
+
+	/**
+	 * 圧縮.
+	 * @param msgVal MessagePack形式のEntry
+	 * @param deflateUtil 圧縮ツール。nullの場合は圧縮なし。
+	 * @param dictionary 圧縮辞書。nullの場合は従来形式で圧縮する。
+	 * @return 圧縮データ
+	 */
+	public static byte[] encode(byte[] msgVal, DeflateUtil deflateUtil,
+			EntryCodecDictionary dictionary) {
+		if (deflateUtil == null) {
+			return msgVal;
+		}
+		if (dictionary == null) {
+			return deflateUtil.deflate(msgVal);
+		}
+		CodecState state = acquireState();
+		try {
+			Deflater deflater = state.getDeflater();
+			deflater.reset();
+			deflater.setDictionary(dictionary.getDictionary());
+			deflater.setInput(msgVal);
+			deflater.finish();
+
+			byte[] buf = state.getBuffer(HEADER_LEN + 5 + msgVal.length + 64);
+			buf[0] = FORMAT_MARKER;
+			buf[1] = FORMAT_VERSION_DICTIONARY;
+			int pos = writeVarInt(buf, HEADER_LEN, msgVal.length);
+			while (!deflater.finished()) {
+				if (pos == buf.length) {
+					buf = state.growBuffer(pos);
+				}
+				pos += deflater.deflate(buf, pos, buf.length - pos);
+			}
+			byte[] data = new byte[pos];
+			System.arraycopy(buf, 0, data, 0, pos);
+			return data;
+
+		} finally {
+			releaseState(state);
+		}
+	}
+
+	/**
+	 * 解凍.
+	 * @param data 圧縮データ
+	 * @param deflateUtil 圧縮ツール。nullの場合は従来形式のデータを解凍しない。
+	 * @return MessagePack形式のEntry
+	 */
+	public static byte[] decode(byte[] data, DeflateUtil deflateUtil)
+	throws IOException, DataFormatException {
+		if (!isVersioned(data)) {
+			if (deflateUtil == null) {
+				return data;
+			}
+			return deflateUtil.inflate(data);
+		}
+		byte version = data[1];
+		if (version != FORMAT_VERSION_DICTIONARY) {
+			throw new DataFormatException("Unsupported entry format version: " + version);
+		}
+		int[] lenInfo = readVarInt(data, HEADER_LEN);
+		int len = lenInfo[0];
+		int pos = lenInfo[1];
+
+		CodecState state = acquireState();
+		try {
+			Inflater inflater = state.getInflater();
+			inflater.reset();
+			inflater.setInput(data, pos, data.length - pos);
+			// 圧縮前の長さがヘッダに記録されているため、出力先は1度だけ確保する。
+			byte[] msgVal = new byte[len];
+			int off = 0;
+			while (!inflater.finished()) {
+				int cnt = 0;
+				if (off < len) {
+					cnt = inflater.inflate(msgVal, off, len - off);
+					off += cnt;
+				} else if (inflater.inflate(state.getBuffer(1), 0, 1) > 0) {
+					// 末尾の読み込み。記録された長さを超えるデータはエラー。
+					off++;
+					break;
+				}
+				if (cnt == 0 && !inflater.finished()) {
+					if (inflater.needsDictionary()) {
+						EntryCodecDictionary dictionary = getDictionary(
+								inflater.getAdler() & 0xffffffffL);
+						inflater.setDictionary(dictionary.getDictionary());
+					} else if (inflater.needsInput()) {
+						throw new DataFormatException("The entry data is truncated.");
+					}
+				}
+			}
+			if (off != len) {
+				throw new DataFormatException("The entry data length is invalid. expected=" +
+						len + ", actual=" + off);
+			}
+			return msgVal;
+
+		} finally {
+			releaseState(state);
+		}
+	}
+
+	/**
+	 * フォーマットバージョン付きのデータかどうか.
+	 * @param data データ
+	 * @return フォーマットバージョン付きのデータの場合true
+	 */
+	public static boolean isVersioned(byte[] data) {
+		return data != null && data.length > HEADER_LEN && data[0] == FORMAT_MARKER;
+	}
+
+	/**
+	 * 解凍に使用する辞書を登録.
+	 * @param dictionary 辞書
+	 */
+	public static void addDictionary(EntryCodecDictionary dictionary) {
+		if (dictionary != null) {
+			dictionaries.putIfAbsent(dictionary.getId(), dictionary);
+		}
+	}
+
+	/**
+	 * 解凍に使用する辞書を取得.
+	 * 保持していない場合は辞書の取得処理を呼び出す。
+	 * @param id 辞書ID
+	 * @return 辞書
+	 */
+	public static EntryCodecDictionary getDictionary(long id) throws IOException {
+		EntryCodecDictionary dictionary = dictionaries.get(id);
+		if (dictionary == null) {
+			DictionaryResolver resolver = dictionaryResolver;
+			if (resolver != null) {
+				dictionary = resolver.resolve(id);
+			}
+			if (dictionary == null || dictionary.getId() != id) {
+				throw new IOException("The entry compression dictionary does not exist. id=" +
+						EntryCodecDictionary.toIdStr(id));
+			}
+			addDictionary(dictionary);
+		}
+		return dictionary;
+	}
+
+	/**
+	 * サービスの圧縮に使用する辞書を設定.
+	 * 解凍に使用する辞書にも登録する。
+	 * @param serviceName サービス名
+	 * @param dictionary 辞書。nullの場合は辞書を使用しない。
+	 */
+	public static void setWriteDictionary(String serviceName, EntryCodecDictionary dictionary) {
+		if (dictionary == null) {
+			writeDictionaries.remove(serviceName);
+		} else {
+			addDictionary(dictionary);
+			writeDictionaries.put(serviceName, dictionary);
+		}
+	}
+
+	/**
+	 * サービスの圧縮に使用する辞書を取得.
+	 * @param serviceName サービス名
+	 * @return 辞書。辞書を使用しない場合null。
+	 */
+	public static EntryCodecDictionary getWriteDictionary(String serviceName) {
+		if (serviceName == null) {
+			return null;
+		}
+		return writeDictionaries.get(serviceName);
+	}
+
+	/**
+	 * 保持していない辞書の取得処理を設定.
+	 * @param resolver 辞書の取得処理
+	 */
+	public static void setDictionaryResolver(DictionaryResolver resolver) {
+		dictionaryResolver = resolver;
+	}
+
+	/**
+	 * プールから圧縮・解凍状態を取得.
+	 * プールが空の場合は生成する。
+	 * @return 圧縮・解凍状態
+	 */
+	private static CodecState acquireState() {
+		CodecState state = codecPool.poll();
+		if (state == null) {
+			state = new CodecState();
+		}
+		return state;
+	}
+
+	/**
+	 * 圧縮・解凍状態をプールに戻す.
+	 * プールが上限に達している場合は解放する。
+	 * @param state 圧縮・解凍状態
+	 */
+	private static void releaseState(CodecState state) {
+		state.trimBuffer(POOL_BUFFER_MAX_SIZE);
+		if (!codecPool.offer(state)) {
+			state.end();
+		}
+	}
+
+	/**
+	 * プールに保持している圧縮・解凍状態の数を取得.
+	 * @return プールに保持している圧縮・解凍状態の数
+	 */
+	static int getPooledCount() {
+		return codecPool.size();
+	}
+
+	/**
+	 * 可変長整数を書き込む.
+	 * @param buf バッファ
+	 * @param pos 書き込み位置
+	 * @param value 値
+	 * @return 書き込み後の位置
+	 */
+	private static int writeVarInt(byte[] buf, int pos, int value) {
+		while ((value & ~0x7f) != 0) {
+			buf[pos++] = (byte)((value & 0x7f) | 0x80);
+			value >>>= 7;
+		}
+		buf[pos++] = (byte)value;
+		return pos;
+	}
+
+	/**
+	 * 可変長整数を読み込む.
+	 * @param data データ
+	 * @param pos 読み込み位置
+	 * @return [0]値、[1]読み込み後の位置
+	 */
+	private static int[] readVarInt(byte[] data, int pos) throws DataFormatException {
+		int value = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			if (pos >= data.length) {
+				break;
+			}
+			byte b = data[pos++];
+			value |= (b & 0x7f) << shift;
+			if ((b & 0x80) == 0) {
+				if (value < 0) {
+					break;
+				}
+				return new int[]{value, pos};
+			}
+		}
+		throw new DataFormatException("The entry data length is invalid.");
+	}
+
+	/**
+	 * 保持していない辞書の取得処理.
+	 */
+	public interface DictionaryResolver {
+
+		/**
+		 * 辞書を取得.
+		 * @param id 辞書ID
+		 * @return 辞書。存在しない場合null。
+		 */
+		public EntryCodecDictionary resolve(long id) throws IOException;
+	}
+
+	/**
+	 * 圧縮・解凍状態.
+	 */
+	private static class CodecState {
+
+		/** 圧縮 */
+		private Deflater deflater;
+		/** 解凍 */
+		private Inflater inflater;
+		/** 圧縮用バッファ */
+		private byte[] buffer;
+
+		/**
+		 * 圧縮を取得.
+		 * @return Deflater
+		 */
+		Deflater getDeflater() {
+			if (deflater == null) {
+				deflater = new Deflater(COMPRESSION_LEVEL);
+			}
+			return deflater;
+		}
+
+		/**
+		 * 解凍を取得.
+		 * @return Inflater
+		 */
+		Inflater getInflater() {
+			if (inflater == null) {
+				inflater = new Inflater();
+			}
+			return inflater;
+		}
+
+		/**
+		 * 指定サイズ以上の圧縮用バッファを取得.
+		 * @param size サイズ
+		 * @return 圧縮用バッファ
+		 */
+		byte[] getBuffer(int size) {
+			if (buffer == null || buffer.length < size) {
+				buffer = new byte[size];
+			}
+			return buffer;
+		}
+
+		/**
+		 * 圧縮用バッファを拡張.
+		 * @param len 書き込み済みの長さ
+		 * @return 拡張した圧縮用バッファ
+		 */
+		byte[] growBuffer(int len) {
+			byte[] newBuffer = new byte[buffer.length * 2];
+			System.arraycopy(buffer, 0, newBuffer, 0, len);
+			buffer = newBuffer;
+			return buffer;
+		}
+
+		/**
+		 * 指定サイズを超える圧縮用バッファを破棄.
+		 * @param maxSize 保持する圧縮用バッファの最大サイズ
+		 */
+		void trimBuffer(int maxSize) {
+			if (buffer != null && buffer.length > maxSize) {
+				buffer = null;
+			}
+		}
+
+		/**
+		 * DeflaterとInflaterのネイティブメモリを解放.
+		 */
+		void end() {
+			if (deflater != null) {
+				deflater.end();
+				deflater = null;
+			}
+			if (inflater != null) {
+				inflater.end();
+				inflater = null;
+			}
+		}
+	}
+
+}
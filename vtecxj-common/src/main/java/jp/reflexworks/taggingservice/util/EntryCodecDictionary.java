@@ -0,0 +1,214 @@
+package jp.reflexworks.taggingservice.util;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.Adler32;
+
+/**
+ * Entry圧縮辞書.
+ * <p>
+ * サービスのEntryに共通して現れるバイト列(テンプレートの項目名や定型値など)を
+ * Deflate圧縮のプリセット辞書として保持する。
+ * 辞書IDはzlib形式と同じく辞書のAdler-32値とし、圧縮データのヘッダに記録される。
+ * </p>
+ */
+public class EntryCodecDictionary {
+
+	/** 辞書の最大サイズ (Deflateのスライド窓サイズ) */
+	public static final int MAX_SIZE = 32 * 1024;
+
+	/** 学習時に頻度を数えるバイト列の長さ */
+	private static final int GRAM_LEN = 8;
+	/** 学習時に辞書へ採用するバイト列の長さ */
+	private static final int SEGMENT_LEN = 64;
+
+	/** 辞書ID */
+	private final long id;
+	/** 辞書 */
+	private final byte[] dictionary;
+
+	/**
+	 * コンストラクタ.
+	 * @param dictionary 辞書
+	 */
+	public EntryCodecDictionary(byte[] dictionary) {
+		if (dictionary == null || dictionary.length == 0) {
+			throw new IllegalArgumentException("The dictionary is empty.");
+		}
+		this.dictionary = dictionary;
+		this.id = getId(dictionary);
+	}
+
+	/**
+	 * 辞書IDを取得.
+	 * @return 辞書ID
+	 */
+	public long getId() {
+		return id;
+	}
+
+	/**
+	 * 辞書を取得.
+	 * @return 辞書
+	 */
+	public byte[] getDictionary() {
+		return dictionary;
+	}
+
+	/**
+	 * 辞書IDの文字列表現を取得.
+	 * @return 辞書IDの16進数文字列
+	 */
+	public String getIdStr() {
+		return toIdStr(id);
+	}
+
+	/**
+	 * 辞書IDを16進数文字列に変換.
+	 * @param id 辞書ID
+	 * @return 辞書IDの16進数文字列
+	 */
+	public static String toIdStr(long id) {
+		return Long.toHexString(id);
+	}
+
+	/**
+	 * 辞書IDを取得.
+	 * @param dictionary 辞書
+	 * @return 辞書ID (辞書のAdler-32値)
+	 */
+	public static long getId(byte[] dictionary) {
+		Adler32 adler32 = new Adler32();
+		adler32.update(dictionary, 0, dictionary.length);
+		return adler32.getValue();
+	}
+
+	/**
+	 * サンプルデータから辞書を生成.
+	 * <p>
+	 * サンプル中の固定長バイト列について出現するサンプル数を数え、
+	 * 複数のサンプルに共通するバイト列を多く含む区間から順に辞書に採用する。
+	 * Deflateは近い位置の一致ほど短い符号になるため、評価の高い区間を辞書の末尾に配置する。
+	 * </p>
+	 * @param samples サンプルデータ (圧縮前のMessagePack形式Entry)
+	 * @param maxSize 辞書の最大サイズ
+	 * @return 辞書。共通するバイト列がない場合null。
+	 */
+	public static EntryCodecDictionary train(List<byte[]> samples, int maxSize) {
+		if (samples == null || samples.size() < 2) {
+			return null;
+		}
+		int dictSize = Math.min(maxSize, MAX_SIZE);
+
+		// バイト列ごとに出現するサンプル数を数える
+		Map<ByteBuffer, Integer> gramCounts = new HashMap<>();
+		for (byte[] sample : samples) {
+			if (sample == null) {
+				continue;
+			}
+			Set<ByteBuffer> grams = new HashSet<>();
+			for (int i = 0; i + GRAM_LEN <= sample.length; i++) {
+				grams.add(ByteBuffer.wrap(sample, i, GRAM_LEN).slice());
+			}
+			for (ByteBuffer gram : grams) {
+				Integer cnt = gramCounts.get(gram);
+				gramCounts.put(gram, cnt == null ? 1 : cnt + 1);
+			}
+		}
+
+		// 区間ごとに評価値を計算する
+		List<Segment> segments = new ArrayList<>();
+		for (byte[] sample : samples) {
+			if (sample == null) {
+				continue;
+			}
+			for (int start = 0; start < sample.length; start += SEGMENT_LEN / 2) {
+				int end = Math.min(start + SEGMENT_LEN, sample.length);
+				long score = 0;
+				for (int i = start; i + GRAM_LEN <= end; i++) {
+					int cnt = gramCounts.get(ByteBuffer.wrap(sample, i, GRAM_LEN).slice());
+					if (cnt > 1) {
+						score += cnt - 1;
+					}
+				}
+				if (score > 0) {
+					segments.add(new Segment(sample, start, end, score));
+				}
+			}
+		}
+		if (segments.isEmpty()) {
+			return null;
+		}
+		Collections.sort(segments);
+
+		// 評価の高い順に採用し、評価の低い区間から辞書の先頭に並べる
+		List<Segment> selected = new ArrayList<>();
+		Set<ByteBuffer> selectedData = new HashSet<>();
+		int size = 0;
+		for (Segment segment : segments) {
+			int len = segment.end - segment.start;
+			if (size + len > dictSize) {
+				continue;
+			}
+			ByteBuffer data = ByteBuffer.wrap(segment.sample, segment.start, len).slice();
+			if (!selectedData.add(data)) {
+				continue;
+			}
+			selected.add(segment);
+			size += len;
+		}
+		ByteArrayOutputStream bout = new ByteArrayOutputStream(size);
+		for (int i = selected.size() - 1; i >= 0; i--) {
+			Segment segment = selected.get(i);
+			bout.write(segment.sample, segment.start, segment.end - segment.start);
+		}
+		return new EntryCodecDictionary(bout.toByteArray());
+	}
+
+	/**
+	 * 辞書の候補区間.
+	 */
+	private static class Segment implements Comparable<Segment> {
+
+		/** サンプルデータ */
+		private final byte[] sample;
+		/** 開始位置 */
+		private final int start;
+		/** 終了位置 (この位置を含まない) */
+		private final int end;
+		/** 評価値 */
+		private final long score;
+
+		/**
+		 * コンストラクタ.
+		 * @param sample サンプルデータ
+		 * @param start 開始位置
+		 * @param end 終了位置 (この位置を含まない)
+		 * @param score 評価値
+		 */
+		Segment(byte[] sample, int start, int end, long score) {
+			this.sample = sample;
+			this.start = start;
+			this.end = end;
+			this.score = score;
+		}
+
+		/**
+		 * 評価値の降順に比較.
+		 * @param other 比較対象
+		 * @return 評価値が大きい場合負の値
+		 */
+		@Override
+		public int compareTo(Segment other) {
+			return Long.compare(other.score, score);
+		}
+	}
+
+}
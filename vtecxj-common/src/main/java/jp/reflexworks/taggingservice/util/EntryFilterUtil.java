@@ -0,0 +1,289 @@
+package jp.reflexworks.taggingservice.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import jp.reflexworks.atom.api.Condition;
+import jp.reflexworks.atom.entry.EntryBase;
+import jp.reflexworks.taggingservice.exception.IllegalParameterException;
+import jp.reflexworks.taggingservice.model.EntryFilterInfo;
+import jp.reflexworks.taggingservice.model.EntryFrameInfo;
+import jp.reflexworks.taggingservice.model.Template;
+import jp.sourceforge.reflex.util.StringUtils;
+
+/**
+ * 条件指定のEntry複数取得ユーティリティ.
+ * <p>
+ * Feed検索のインメモリ条件をEntryサーバに送信し、条件に合致するEntryのみを返却させるために使用する。<br>
+ * リクエストは複数Entryフレーム形式で、IDの代わりに以下の予約キーで付加情報を設定する。
+ * <ul>
+ *   <li>_template : エンティティ定義 (改行区切り)</li>
+ *   <li>_rights : Index・暗号化・項目ACL定義 (改行区切り)</li>
+ *   <li>_condition : 絞り込み条件 ({項目}\u0000{演算子}\u0000{値})。条件ごとに指定する。</li>
+ * </ul>
+ * 取得対象のIDはEntryデータなしで設定する。
+ * </p>
+ */
+public class EntryFilterUtil {
+
+	/** 予約キー : エンティティ定義 */
+	private static final String KEY_TEMPLATE = "_template";
+	/** 予約キー : Index・暗号化・項目ACL定義 */
+	private static final String KEY_RIGHTS = "_rights";
+	/** 予約キー : 絞り込み条件 */
+	private static final String KEY_CONDITION = "_condition";
+	/** 定義の区切り文字 */
+	private static final String LINE_SEPARATOR = "\n";
+	/** 条件の区切り文字 */
+	private static final String CONDITION_SEPARATOR = "\u0000";
+	/** OR演算子で分割する際のエスケープ条件 */
+	private static final String OR_REGEX = "\\" + Condition.OR;
+	/** 暗号化項目の接尾辞 */
+	private static final String ENCRYPTED_SUFFIX = "#";
+
+	/**
+	 * コンストラクタ.
+	 */
+	private EntryFilterUtil() {}
+
+	/**
+	 * 条件指定のEntry複数取得リクエストを編集.
+	 * @param ids IDリスト
+	 * @param template テンプレート
+	 * @param conditions 絞り込み条件
+	 * @return 複数Entryフレーム
+	 */
+	public static byte[] encode(List<String> ids, Template template, Condition[] conditions) {
+		List<String> keys = new ArrayList<>();
+		List<byte[]> dataList = new ArrayList<>();
+		if (template != null) {
+			keys.add(KEY_TEMPLATE);
+			dataList.add(joinLines(template.template));
+			keys.add(KEY_RIGHTS);
+			dataList.add(joinLines(template.rights));
+		}
+		if (conditions != null) {
+			for (Condition condition : conditions) {
+				StringBuilder sb = new StringBuilder();
+				sb.append(condition.getProp());
+				sb.append(CONDITION_SEPARATOR);
+				sb.append(StringUtils.null2blank(condition.getEquations()));
+				sb.append(CONDITION_SEPARATOR);
+				sb.append(StringUtils.null2blank(condition.getValue()));
+				keys.add(KEY_CONDITION);
+				dataList.add(sb.toString().getBytes(StandardCharsets.UTF_8));
+			}
+		}
+		for (String id : ids) {
+			keys.add(id);
+			dataList.add(null);
+		}
+		return EntryFrameUtil.encode(keys, dataList);
+	}
+
+	/**
+	 * 条件指定のEntry複数取得リクエストを読み込む.
+	 * @param frameInfo 複数Entryフレームの読み込み結果
+	 * @return 条件指定のEntry複数取得リクエストの読み込み結果
+	 */
+	public static EntryFilterInfo decode(EntryFrameInfo frameInfo) {
+		if (frameInfo == null) {
+			return null;
+		}
+		List<String> ids = new ArrayList<>();
+		String[] template = null;
+		String[] rights = null;
+		List<Condition> conditions = new ArrayList<>();
+		int size = frameInfo.size();
+		List<String> keys = frameInfo.getIds();
+		for (int i = 0; i < size; i++) {
+			String key = keys.get(i);
+			if (KEY_TEMPLATE.equals(key)) {
+				template = splitLines(frameInfo.getData(i));
+			} else if (KEY_RIGHTS.equals(key)) {
+				rights = splitLines(frameInfo.getData(i));
+			} else if (KEY_CONDITION.equals(key)) {
+				conditions.add(toCondition(frameInfo.getData(i)));
+			} else {
+				ids.add(key);
+			}
+		}
+		return new EntryFilterInfo(ids, template, rights,
+				conditions.toArray(new Condition[0]));
+	}
+
+	/**
+	 * 検索条件インメモリチェック.
+	 * 項目OR指定の場合を考慮
+	 * @param entry Entry
+	 * @param conditions インメモリ条件
+	 * @return 条件を満たす場合true
+	 */
+	public static boolean isMatch(EntryBase entry, Condition[] conditions) {
+		if (conditions == null || conditions.length == 0) {
+			return true;
+		}
+		for (Condition condition : conditions) {
+			if (condition.getProp().indexOf(Condition.OR) > 0) {
+				// 項目OR指定
+				boolean isMatchOr = false;
+				String[] propParts = condition.getProp().split(OR_REGEX);
+				for (String propPart : propParts) {
+					Condition conditionPart = new Condition(propPart,
+							condition.getEquations(), condition.getValue());
+					if (entry.isMatch(new Condition[] {conditionPart})) {
+						isMatchOr = true;
+						break;
+					}
+				}
+				if (!isMatchOr) {
+					return false;
+				}
+
+			} else {
+				// 通常
+				if (!entry.isMatch(new Condition[] {condition})) {
+					return false;
+				}
+			}
+		}
+		// 全ての条件がtrue
+		return true;
+	}
+
+	/**
+	 * Entryサーバで絞り込み可能な条件を取得.
+	 * Entryサーバでは暗号化項目を復号しないため、暗号化項目に関する条件は除く。
+	 * @param conditions インメモリ条件
+	 * @param rights Index・暗号化・項目ACL定義
+	 * @return Entryサーバで絞り込み可能な条件。該当する条件がない場合null。
+	 */
+	public static Condition[] getFilterConditions(Condition[] conditions, String[] rights) {
+		if (conditions == null || conditions.length == 0) {
+			return null;
+		}
+		Set<String> encryptedItems = getEncryptedItems(rights);
+		List<Condition> filterConditions = new ArrayList<>();
+		for (Condition condition : conditions) {
+			boolean isEncrypted = false;
+			for (String propPart : condition.getProp().split(OR_REGEX)) {
+				if (isEncryptedItem(propPart, encryptedItems)) {
+					isEncrypted = true;
+					break;
+				}
+			}
+			if (!isEncrypted) {
+				filterConditions.add(condition);
+			}
+		}
+		if (filterConditions.isEmpty()) {
+			return null;
+		}
+		return filterConditions.toArray(new Condition[0]);
+	}
+
+	/**
+	 * Index・暗号化・項目ACL定義から暗号化項目を取得.
+	 * 項目名の末尾が#の項目が暗号化項目。
+	 * @param rights Index・暗号化・項目ACL定義
+	 * @return 暗号化項目 (末尾の#を除く)
+	 */
+	private static Set<String> getEncryptedItems(String[] rights) {
+		Set<String> encryptedItems = new HashSet<>();
+		if (rights == null) {
+			return encryptedItems;
+		}
+		for (String line : rights) {
+			if (StringUtils.isBlank(line)) {
+				continue;
+			}
+			String name = line.trim();
+			int idx = indexOfNameEnd(name);
+			if (idx > -1) {
+				name = name.substring(0, idx);
+			}
+			if (name.endsWith(ENCRYPTED_SUFFIX)) {
+				encryptedItems.add(name.substring(0, name.length() - ENCRYPTED_SUFFIX.length()));
+			}
+		}
+		return encryptedItems;
+	}
+
+	/**
+	 * 定義の項目名の終了位置を取得.
+	 * @param line 定義
+	 * @return 項目名の終了位置。項目名のみの場合-1。
+	 */
+	private static int indexOfNameEnd(String line) {
+		int ret = -1;
+		for (char c : new char[]{':', ';', '='}) {
+			int idx = line.indexOf(c);
+			if (idx > -1 && (ret == -1 || idx < ret)) {
+				ret = idx;
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * 条件の項目が暗号化項目に関係するかどうか.
+	 * 暗号化項目自身、その配下、またはその親項目の場合true。
+	 * @param prop 条件の項目
+	 * @param encryptedItems 暗号化項目
+	 * @return 暗号化項目に関係する場合true
+	 */
+	private static boolean isEncryptedItem(String prop, Set<String> encryptedItems) {
+		for (String encryptedItem : encryptedItems) {
+			if (prop.equals(encryptedItem) ||
+					prop.startsWith(encryptedItem + ".") ||
+					encryptedItem.startsWith(prop + ".")) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * 定義を改行区切りのバイト配列に変換.
+	 * @param lines 定義
+	 * @return バイト配列
+	 */
+	private static byte[] joinLines(String[] lines) {
+		if (lines == null || lines.length == 0) {
+			return null;
+		}
+		return String.join(LINE_SEPARATOR, lines).getBytes(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * 改行区切りのバイト配列を定義に変換.
+	 * @param data バイト配列
+	 * @return 定義
+	 */
+	private static String[] splitLines(byte[] data) {
+		if (data == null) {
+			return null;
+		}
+		return new String(data, StandardCharsets.UTF_8).split(LINE_SEPARATOR);
+	}
+
+	/**
+	 * バイト配列を条件に変換.
+	 * @param data バイト配列
+	 * @return 条件
+	 */
+	private static Condition toCondition(byte[] data) {
+		if (data == null) {
+			throw new IllegalParameterException("Invalid filter condition.");
+		}
+		String[] parts = new String(data, StandardCharsets.UTF_8).split(CONDITION_SEPARATOR, -1);
+		if (parts.length != 3) {
+			throw new IllegalParameterException("Invalid filter condition.");
+		}
+		return new Condition(parts[0], parts[1], parts[2]);
+	}
+
+}
@@ -0,0 +1,139 @@
+package jp.reflexworks.taggingservice.util;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import jp.reflexworks.taggingservice.exception.IllegalParameterException;
+import jp.reflexworks.taggingservice.model.EntryFrameInfo;
+
+/**
+ * 複数Entryフレームユーティリティ.
+ * <p>
+ * Entryサーバとの複数Entry送受信で使用する、長さ付きバイナリ形式の編集・読み込みを行う。<br>
+ * 形式 (数値は4バイト ビッグエンディアン)<br>
+ * {件数} [{IDバイト長} {ID(UTF-8)} {Entryデータバイト長} {Entryデータ}] ...<br>
+ * IDがnullの場合IDバイト長は-1、Entryデータがない場合Entryデータバイト長は0とする。
+ * </p>
+ */
+public class EntryFrameUtil {
+
+	/** 数値のバイト長 */
+	private static final int INT_BYTES = Integer.BYTES;
+
+	/**
+	 * コンストラクタ.
+	 */
+	private EntryFrameUtil() {}
+
+	/**
+	 * 複数Entryフレームを編集.
+	 * @param ids IDリスト
+	 * @param dataList Entryデータリスト (IDリストと同じ順序)。IDのみ送信する場合はnull。
+	 * @return 複数Entryフレーム
+	 */
+	public static byte[] encode(List<String> ids, List<byte[]> dataList) {
+		if (ids == null) {
+			return null;
+		}
+		int size = ids.size();
+		if (dataList != null && dataList.size() != size) {
+			throw new IllegalParameterException(
+					"The number of IDs and data does not match. ids=" + size +
+					", data=" + dataList.size());
+		}
+		byte[][] idBytesArray = new byte[size][];
+		int frameLength = INT_BYTES;
+		for (int i = 0; i < size; i++) {
+			String id = ids.get(i);
+			if (id != null) {
+				idBytesArray[i] = id.getBytes(StandardCharsets.UTF_8);
+				frameLength += idBytesArray[i].length;
+			}
+			frameLength += INT_BYTES * 2;
+			if (dataList != null && dataList.get(i) != null) {
+				frameLength += dataList.get(i).length;
+			}
+		}
+
+		ByteBuffer buf = ByteBuffer.allocate(frameLength);
+		buf.putInt(size);
+		for (int i = 0; i < size; i++) {
+			byte[] idBytes = idBytesArray[i];
+			if (idBytes != null) {
+				buf.putInt(idBytes.length);
+				buf.put(idBytes);
+			} else {
+				buf.putInt(-1);
+			}
+			byte[] data = null;
+			if (dataList != null) {
+				data = dataList.get(i);
+			}
+			if (data != null) {
+				buf.putInt(data.length);
+				buf.put(data);
+			} else {
+				buf.putInt(0);
+			}
+		}
+		return buf.array();
+	}
+
+	/**
+	 * 複数Entryフレームを読み込む.
+	 * Entryデータはコピーせず、フレーム中の位置と長さを保持する。
+	 * @param frame 複数Entryフレーム
+	 * @return 複数Entryフレームの読み込み結果
+	 */
+	public static EntryFrameInfo decode(byte[] frame) {
+		if (frame == null || frame.length == 0) {
+			return null;
+		}
+		try {
+			ByteBuffer buf = ByteBuffer.wrap(frame);
+			int size = buf.getInt();
+			// 1件あたり最低でもID長とデータ長の8バイトが必要
+			if (size < 0 || size > buf.remaining() / (INT_BYTES * 2)) {
+				throw new IllegalParameterException("Invalid entry frame. size=" + size);
+			}
+			List<String> ids = new ArrayList<>(size);
+			int[] offsets = new int[size];
+			int[] lengths = new int[size];
+			for (int i = 0; i < size; i++) {
+				int idLength = buf.getInt();
+				String id = null;
+				if (idLength >= 0) {
+					checkLength(buf, idLength);
+					id = new String(frame, buf.position(), idLength, StandardCharsets.UTF_8);
+					buf.position(buf.position() + idLength);
+				}
+				ids.add(id);
+				int dataLength = buf.getInt();
+				checkLength(buf, dataLength);
+				offsets[i] = buf.position();
+				lengths[i] = dataLength;
+				buf.position(buf.position() + dataLength);
+			}
+			return new EntryFrameInfo(frame, ids, offsets, lengths);
+
+		} catch (BufferUnderflowException e) {
+			throw new IllegalParameterException("Invalid entry frame. " + e.getClass().getName(), e);
+		}
+	}
+
+	/**
+	 * フレームの残りバイト数チェック.
+	 * @param buf フレーム
+	 * @param length 読み込むバイト長
+	 */
+	private static void checkLength(ByteBuffer buf, int length) {
+		if (length < 0 || length > buf.remaining()) {
+			throw new IllegalParameterException("Invalid entry frame. length=" + length +
+					", remaining=" + buf.remaining());
+		}
+	}
+
+}
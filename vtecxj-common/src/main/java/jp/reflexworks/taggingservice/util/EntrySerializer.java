@@ -29,6 +29,24 @@ public class EntrySerializer {
 	public static final byte[] serialize(
 			FeedTemplateMapper mapper, EntryBase entry, 
 			CipherUtil cipherUtil, DeflateUtil deflateUtil) 
+	throws IOException {
+		return serialize(mapper, entry, cipherUtil, deflateUtil, null);
+	}
+
+	/**
+	 * シリアライズ.
+	 * 暗号化、MessagePack形式変換、圧縮を行います。
+	 * @param mapper FeedTemplateMapper
+	 * @param entry Entry
+	 * @param cipherUtil 暗号化ツール。nullの場合は暗号化・復号化なし。
+	 * @param deflateUtil 圧縮ツール。nullの場合は圧縮・解凍なし。
+	 * @param dictionary 圧縮辞書。nullの場合は辞書なしで圧縮。
+	 * @return Entryのバイト配列
+	 */
+	public static final byte[] serialize(
+			FeedTemplateMapper mapper, EntryBase entry, 
+			CipherUtil cipherUtil, DeflateUtil deflateUtil,
+			EntryCodecDictionary dictionary) 
 	throws IOException {
 		if (entry == null) {
 			return null;
@@ -39,13 +57,8 @@ public class EntrySerializer {
 				cipherUtil.encrypt(entry);
 			}
 	
-			byte[] eVal = null;
 			byte[] msgVal = mapper.toMessagePack(entry);
-			if (deflateUtil == null) {
-				eVal = msgVal;
-			} else {
-				eVal = deflateUtil.deflate(msgVal);
-			}
+			byte[] eVal = EntryCodec.encode(msgVal, deflateUtil, dictionary);
 	
 			// 復号化 (元に戻す)
 			if (cipherUtil != null) {
@@ -121,12 +134,7 @@ public class EntrySerializer {
 		
 		EntryBase entry = null;
 		try {
-			byte[] msgVal = null;
-			if (deflateUtil == null) {
-				msgVal = eVal;
-			} else {
-				msgVal = deflateUtil.inflate(eVal);
-			}
+			byte[] msgVal = EntryCodec.decode(eVal, deflateUtil);
 			entry = (EntryBase) mapper.fromMessagePack(msgVal, false);	// Entry
 
 			// 復号化
@@ -163,12 +171,7 @@ public class EntrySerializer {
 		
 		FeedBase feed = null;
 		try {
-			byte[] msgVal = null;
-			if (deflateUtil == null) {
-				msgVal = fVal;
-			} else {
-				msgVal = deflateUtil.inflate(fVal);
-			}
+			byte[] msgVal = EntryCodec.decode(fVal, deflateUtil);
 			feed = (FeedBase) mapper.fromMessagePack(msgVal, true);	// Feed
 
 			// 復号化
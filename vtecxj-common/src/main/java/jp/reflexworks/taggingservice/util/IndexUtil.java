@@ -4,8 +4,10 @@ import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -55,6 +57,7 @@ public class IndexUtil {
 		Condition[] innerConditions = null;
 		List<Condition> tmpFtConditions = new ArrayList<Condition>();
 		Condition ftCondition = null;
+		List<Condition> ftAndConditionList = new ArrayList<>();
 		String distkeyItem = null;
 		String distkeyValue = null;
 
@@ -131,6 +134,9 @@ public class IndexUtil {
 					if (ftCondition == null) {
 						// 先頭の全文検索条件は全文検索サーバで検索
 						ftCondition = condition;
+					} else if (ftCondition.getProp().equals(condition.getProp())) {
+						// 先頭の全文検索条件と同じ項目の条件は、全文検索サーバでAND条件として検索
+						ftAndConditionList.add(condition);
 					} else {
 						// 2番目以降の全文検索条件は正規表現検索に変換
 						Condition rgFtCondition = convertFtCondition(condition);
@@ -305,13 +311,119 @@ public class IndexUtil {
 			}
 		}
 
+		Condition[] ftAndConditions = null;
+		if (!ftAndConditionList.isEmpty()) {
+			ftAndConditions = ftAndConditionList.toArray(new Condition[0]);
+		}
+		// インメモリ条件のうちインデックスを使用できる条件は、IDリストの積集合に使用する。
+		EditedCondition[] intersectConditions = null;
+		if (!isUriForwardMatch) {
+			String indexProp = null;
+			if (indexCondition != null) {
+				indexProp = indexCondition.getProp();
+			}
+			intersectConditions = getIntersectConditions(parentUri, innerConditions, indexProp,
+					metalist, templateIndexMap, distkeyItemsByUri, distkeyItem, distkeyValue);
+		}
 		return new EditedCondition(parentUri, isUriForwardMatch, indexCondition,
 				indexConditionRange, indexMeta, innerConditions, ftCondition,
-				distkeyItem, distkeyValue);
+				ftAndConditions, intersectConditions, distkeyItem, distkeyValue);
+	}
+
+	/**
+	 * インメモリ条件から、IDリストの積集合に使用するインデックス検索条件を抽出する.
+	 * <p>
+	 * インデックス項目かつ親階層がインデックスパターンに合致し、インデックスで検索できる演算子の条件が対象。
+	 * 1項目につき1条件とし、同じ項目の範囲指定があれば範囲条件とする。
+	 * インデックス検索に使用している項目は対象外。
+	 * 抽出した条件はインメモリ条件からは除かない。
+	 * </p>
+	 * @param parentUri 親階層
+	 * @param innerConditions インメモリ条件
+	 * @param indexProp インデックス検索に使用している項目
+	 * @param metalist Metalist
+	 * @param templateIndexMap インデックス情報 キー:項目、値:URLパターン
+	 * @param distkeyItemsByUri 親階層のDISTKEY項目リスト
+	 * @param distkeyItem DISTKEY項目
+	 * @param distkeyValue DISTKEYの値
+	 * @return 積集合に使用するインデックス検索条件。対象がない場合null。
+	 */
+	private static EditedCondition[] getIntersectConditions(String parentUri,
+			Condition[] innerConditions, String indexProp, List<Meta> metalist,
+			Map<String, Pattern> templateIndexMap, List<String> distkeyItemsByUri,
+			String distkeyItem, String distkeyValue) {
+		if (innerConditions == null || innerConditions.length == 0 ||
+				templateIndexMap == null || templateIndexMap.isEmpty()) {
+			return null;
+		}
+		// DISTKEY対象URIであり、DISTKEYの指定がない場合はインデックスが作成されていない
+		if (distkeyItemsByUri != null && !distkeyItemsByUri.isEmpty() &&
+				StringUtils.isBlank(distkeyItem)) {
+			return null;
+		}
+		List<EditedCondition> intersectConditionList = new ArrayList<>();
+		Set<String> props = new HashSet<>();
+		if (indexProp != null) {
+			props.add(indexProp);
+		}
+		for (Condition condition : innerConditions) {
+			String prop = condition.getProp();
+			String operation = condition.getEquations();
+			if (props.contains(prop) || !isIndexOperation(operation)) {
+				continue;
+			}
+			Pattern pattern = templateIndexMap.get(prop);
+			if (pattern == null || !pattern.matcher(parentUri).matches()) {
+				continue;
+			}
+			props.add(prop);
+			// 同じ項目の範囲指定
+			Condition conditionRange = null;
+			for (Condition rangeCondition : innerConditions) {
+				if (!prop.equals(rangeCondition.getProp())) {
+					continue;
+				}
+				String rangeOperation = rangeCondition.getEquations();
+				if ((operation.equals(Condition.GREATER_THAN) ||
+						operation.equals(Condition.GREATER_THAN_OR_EQUAL)) &&
+						(rangeOperation.equals(Condition.LESS_THAN) ||
+						 rangeOperation.equals(Condition.LESS_THAN_OR_EQUAL))) {
+					conditionRange = rangeCondition;
+					break;
+				} else if ((operation.equals(Condition.LESS_THAN) ||
+						operation.equals(Condition.LESS_THAN_OR_EQUAL)) &&
+						(rangeOperation.equals(Condition.GREATER_THAN) ||
+						 rangeOperation.equals(Condition.GREATER_THAN_OR_EQUAL))) {
+					conditionRange = rangeCondition;
+					break;
+				}
+			}
+			Meta meta = TaggingEntryUtil.getMeta(metalist, prop);
+			intersectConditionList.add(new EditedCondition(parentUri, false, condition,
+					conditionRange, meta, null, null, null, null, distkeyItem, distkeyValue));
+		}
+		if (intersectConditionList.isEmpty()) {
+			return null;
+		}
+		return intersectConditionList.toArray(new EditedCondition[0]);
+	}
+
+	/**
+	 * インデックスで検索できる演算子かどうか (ソートを除く).
+	 * @param operation 演算子
+	 * @return インデックスで検索できる演算子の場合true
+	 */
+	private static boolean isIndexOperation(String operation) {
+		return operation.equals(Condition.EQUAL) ||
+				operation.equals(Condition.GREATER_THAN) ||
+				operation.equals(Condition.GREATER_THAN_OR_EQUAL) ||
+				operation.equals(Condition.LESS_THAN) ||
+				operation.equals(Condition.LESS_THAN_OR_EQUAL) ||
+				operation.equals(Condition.FORWARD_MATCH);
 	}
 
 	/**
-	 * 2番目以降の全文検索条件を正規表現検索に変換
+	 * 先頭の全文検索条件と異なる項目の全文検索条件を正規表現検索に変換
 	 * @param ftCondition 全文検索条件
 	 * @return 全文検索条件を正規表現検索に変換したもの
 	 */
@@ -90,11 +90,23 @@ public class RetryUtil {
 	 * @return リトライエラーの場合true
 	 */
 	public static boolean isRetryError(IOException e, String method) {
+		return isRetryError(e, method, false);
+	}
+
+	/**
+	 * リトライエラーの場合trueを返す.
+	 * @param e IOException
+	 * @param method Method
+	 * @param isIdempotent GET以外のメソッドで、再送しても結果が変わらないリクエストの場合true
+	 *        (リクエストデータに条件を指定する検索など)
+	 * @return リトライエラーの場合true
+	 */
+	public static boolean isRetryError(IOException e, String method, boolean isIdempotent) {
 		if (isRetryError(e)) {
 			return true;
 		}
 
-		if (Constants.GET.equalsIgnoreCase(method)) {
+		if (isIdempotent || Constants.GET.equalsIgnoreCase(method)) {
 			// 検索の場合のみ、SocketExceptionをリトライ対象とする。
 			if (e instanceof java.net.SocketException) {
 				return true;
@@ -0,0 +1,84 @@
+package jp.reflexworks.taggingservice.taskqueue;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * 非同期処理の実行結果のテスト.
+ */
+public class ReflexTaskQueueFutureTest {
+
+	/**
+	 * 実行中の非同期処理のサービスを判定できること.
+	 */
+	@Test
+	public void testInTaskByService() throws Exception {
+		ReflexTaskQueueStats stats = new ReflexTaskQueueStats();
+		assertFalse(ReflexTaskQueueFuture.isInTask());
+		assertFalse(ReflexTaskQueueFuture.isInTask("service1"));
+
+		ReflexTaskQueueFuture<boolean[]> future = new ReflexTaskQueueFuture<>(
+				createTask("service1", () -> new boolean[]{
+						ReflexTaskQueueFuture.isInTask(),
+						ReflexTaskQueueFuture.isInTask("service1"),
+						ReflexTaskQueueFuture.isInTask("service2")}),
+				"service1", null, null, stats);
+		future.run();
+		boolean[] result = future.get();
+		assertTrue(result[0]);
+		assertTrue(result[1]);
+		assertFalse(result[2]);
+
+		assertFalse(ReflexTaskQueueFuture.isInTask());
+		assertEquals(1, stats.getCompletedCount());
+	}
+
+	/**
+	 * 同じスレッドで入れ子に実行した場合、終了後に親の非同期処理のサービスに戻ること.
+	 */
+	@Test
+	public void testNestedRestoresParent() throws Exception {
+		ReflexTaskQueueStats stats = new ReflexTaskQueueStats();
+		ReflexTaskQueueFuture<boolean[]> parent = new ReflexTaskQueueFuture<>(
+				createTask("service1", () -> {
+					ReflexTaskQueueFuture<Boolean> child = new ReflexTaskQueueFuture<>(
+							createTask("service2", () -> ReflexTaskQueueFuture.isInTask("service2")),
+							"service2", null, null, stats);
+					child.run();
+					return new boolean[]{child.get(),
+							ReflexTaskQueueFuture.isInTask("service1"),
+							ReflexTaskQueueFuture.isInTask("service2")};
+				}),
+				"service1", null, null, stats);
+		parent.run();
+		boolean[] result = parent.get();
+		assertTrue(result[0]);
+		assertTrue(result[1]);
+		assertFalse(result[2]);
+		assertFalse(ReflexTaskQueueFuture.isInTask());
+	}
+
+	/**
+	 * テスト用非同期処理を生成.
+	 * @param serviceName サービス名
+	 * @param task 処理
+	 * @return 非同期処理
+	 */
+	private static <T> ReflexTaskQueue<T> createTask(String serviceName,
+			ReflexTaskQueue<T> task) {
+		return new ReflexTaskQueue<T>() {
+			@Override
+			public T call() throws Exception {
+				return task.call();
+			}
+			@Override
+			public String getServiceName() {
+				return serviceName;
+			}
+		};
+	}
+
+}
@@ -0,0 +1,118 @@
+package jp.reflexworks.taggingservice.util;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DataFormatException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import jp.sourceforge.reflex.util.DeflateUtil;
+
+/**
+ * Entryバイト配列の圧縮・解凍ベンチマーク.
+ * <p>
+ * 従来形式(DeflateUtil)と辞書付き形式の圧縮・解凍を比較する。
+ * テストクラスのコンパイル後、mainメソッドを実行する。
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class EntryCodecBenchmark {
+
+	/** サンプル数 */
+	private static final int SAMPLE_NUM = 256;
+
+	private DeflateUtil deflateUtil;
+	private EntryCodecDictionary dictionary;
+	private byte[][] msgVals;
+	private byte[][] legacyData;
+	private byte[][] dictionaryData;
+
+	@Setup
+	public void setup() {
+		deflateUtil = new DeflateUtil();
+		List<byte[]> samples = new ArrayList<>();
+		msgVals = new byte[SAMPLE_NUM][];
+		legacyData = new byte[SAMPLE_NUM][];
+		dictionaryData = new byte[SAMPLE_NUM][];
+		for (int i = 0; i < SAMPLE_NUM; i++) {
+			msgVals[i] = EntryCodecTest.sample(i);
+			samples.add(msgVals[i]);
+		}
+		dictionary = EntryCodecDictionary.train(samples, EntryCodecDictionary.MAX_SIZE);
+		EntryCodec.addDictionary(dictionary);
+		for (int i = 0; i < SAMPLE_NUM; i++) {
+			legacyData[i] = EntryCodec.encode(msgVals[i], deflateUtil, null);
+			dictionaryData[i] = EntryCodec.encode(msgVals[i], deflateUtil, dictionary);
+		}
+	}
+
+	@Benchmark
+	public int encodeLegacy() {
+		int len = 0;
+		for (byte[] msgVal : msgVals) {
+			len += EntryCodec.encode(msgVal, deflateUtil, null).length;
+		}
+		return len;
+	}
+
+	@Benchmark
+	public int encodeDictionary() {
+		int len = 0;
+		for (byte[] msgVal : msgVals) {
+			len += EntryCodec.encode(msgVal, deflateUtil, dictionary).length;
+		}
+		return len;
+	}
+
+	@Benchmark
+	public int decodeLegacy() throws IOException, DataFormatException {
+		int len = 0;
+		for (byte[] data : legacyData) {
+			len += EntryCodec.decode(data, deflateUtil).length;
+		}
+		return len;
+	}
+
+	@Benchmark
+	public int decodeDictionary() throws IOException, DataFormatException {
+		int len = 0;
+		for (byte[] data : dictionaryData) {
+			len += EntryCodec.decode(data, deflateUtil).length;
+		}
+		return len;
+	}
+
+	/**
+	 * ベンチマーク実行.
+	 * @param args 引数
+	 */
+	public static void main(String[] args) throws RunnerException {
+		Options options = new OptionsBuilder()
+				.include(EntryCodecBenchmark.class.getSimpleName())
+				.build();
+		new Runner(options).run();
+	}
+
+}
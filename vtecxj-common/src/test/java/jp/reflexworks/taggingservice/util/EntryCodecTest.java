@@ -0,0 +1,203 @@
+package jp.reflexworks.taggingservice.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.DataFormatException;
+
+import org.junit.After;
+import org.junit.Test;
+
+import jp.sourceforge.reflex.util.DeflateUtil;
+
+/**
+ * Entryバイト配列の圧縮・解凍テスト.
+ */
+public class EntryCodecTest {
+
+	private final DeflateUtil deflateUtil = new DeflateUtil();
+
+	@After
+	public void tearDown() {
+		EntryCodec.setDictionaryResolver(null);
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException, DataFormatException {
+		EntryCodecDictionary dictionary = newDictionary();
+		EntryCodec.addDictionary(dictionary);
+		byte[] msgVal = sample(1);
+
+		byte[] data = EntryCodec.encode(msgVal, deflateUtil, dictionary);
+		assertTrue(EntryCodec.isVersioned(data));
+		assertEquals(EntryCodec.FORMAT_VERSION_DICTIONARY, data[1]);
+		assertArrayEquals(msgVal, EntryCodec.decode(data, deflateUtil));
+
+		// 辞書なしの従来形式より小さくなる
+		assertTrue(data.length < deflateUtil.deflate(msgVal).length);
+	}
+
+	@Test
+	public void testRoundTripLarge() throws IOException, DataFormatException {
+		EntryCodecDictionary dictionary = newDictionary();
+		EntryCodec.addDictionary(dictionary);
+
+		// 圧縮できないデータ (圧縮用バッファの拡張)
+		byte[] msgVal = new byte[256 * 1024];
+		new Random(1).nextBytes(msgVal);
+		byte[] data = EntryCodec.encode(msgVal, deflateUtil, dictionary);
+		assertArrayEquals(msgVal, EntryCodec.decode(data, deflateUtil));
+
+		// 空データ
+		data = EntryCodec.encode(new byte[0], deflateUtil, dictionary);
+		assertArrayEquals(new byte[0], EntryCodec.decode(data, deflateUtil));
+	}
+
+	@Test
+	public void testLegacyFormat() throws IOException, DataFormatException {
+		byte[] msgVal = sample(2);
+
+		// 辞書なしの場合は従来の圧縮データ
+		byte[] data = EntryCodec.encode(msgVal, deflateUtil, null);
+		assertFalse(EntryCodec.isVersioned(data));
+		assertArrayEquals(deflateUtil.deflate(msgVal), data);
+
+		// 従来の圧縮データを解凍できる
+		assertArrayEquals(msgVal, EntryCodec.decode(deflateUtil.deflate(msgVal), deflateUtil));
+
+		// 圧縮なし
+		assertSame(msgVal, EntryCodec.encode(msgVal, null, newDictionary()));
+		assertSame(msgVal, EntryCodec.decode(msgVal, null));
+	}
+
+	@Test
+	public void testMissingDictionary() throws IOException, DataFormatException {
+		EntryCodecDictionary dictionary = newDictionary();
+		byte[] msgVal = sample(3);
+		// 解凍用に登録しない辞書で圧縮
+		byte[] data = EntryCodec.encode(msgVal, deflateUtil, dictionary);
+
+		try {
+			EntryCodec.decode(data, deflateUtil);
+			fail("IOException is expected.");
+		} catch (IOException e) {
+			assertTrue(e.getMessage().contains(dictionary.getIdStr()));
+		}
+
+		// 取得処理が異なる辞書を返す場合もエラー
+		EntryCodecDictionary other = newDictionary();
+		EntryCodec.setDictionaryResolver(id -> other);
+		try {
+			EntryCodec.decode(data, deflateUtil);
+			fail("IOException is expected.");
+		} catch (IOException e) {
+			assertTrue(e.getMessage().contains(dictionary.getIdStr()));
+		}
+
+		// 取得処理で辞書を取得して解凍
+		List<Long> resolved = new ArrayList<>();
+		EntryCodec.setDictionaryResolver(id -> {
+			resolved.add(id);
+			return id == dictionary.getId() ? dictionary : null;
+		});
+		assertArrayEquals(msgVal, EntryCodec.decode(data, deflateUtil));
+		assertArrayEquals(msgVal, EntryCodec.decode(data, deflateUtil));
+		// 取得した辞書は保持する
+		assertEquals(1, resolved.size());
+	}
+
+	@Test
+	public void testInvalidData() throws IOException {
+		EntryCodecDictionary dictionary = newDictionary();
+		EntryCodec.addDictionary(dictionary);
+		byte[] data = EntryCodec.encode(sample(4), deflateUtil, dictionary);
+
+		// 未対応のバージョン
+		byte[] unsupported = data.clone();
+		unsupported[1] = 0x7f;
+		assertDataFormatException(unsupported);
+
+		// 途中までのデータ
+		byte[] truncated = new byte[data.length - 4];
+		System.arraycopy(data, 0, truncated, 0, truncated.length);
+		assertDataFormatException(truncated);
+
+		// 記録された長さと異なる
+		byte[] shorter = data.clone();
+		shorter[2] = (byte)(shorter[2] - 1);
+		assertDataFormatException(shorter);
+	}
+
+	@Test
+	public void testConcurrentPool() throws Exception {
+		EntryCodecDictionary dictionary = newDictionary();
+		EntryCodec.addDictionary(dictionary);
+
+		// タスクごとにスレッドを生成しても、保持する圧縮・解凍状態はプールの上限まで
+		int tasks = EntryCodec.POOL_SIZE * 8;
+		List<Future<Boolean>> futures = new ArrayList<>();
+		try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			for (int i = 0; i < tasks; i++) {
+				byte[] msgVal = sample(i);
+				futures.add(executor.submit(() -> {
+					byte[] data = EntryCodec.encode(msgVal, deflateUtil, dictionary);
+					return Arrays.equals(msgVal,
+							EntryCodec.decode(data, deflateUtil));
+				}));
+			}
+			for (Future<Boolean> future : futures) {
+				assertTrue(future.get());
+			}
+		}
+		assertTrue(EntryCodec.getPooledCount() <= EntryCodec.POOL_SIZE);
+	}
+
+	private void assertDataFormatException(byte[] data) throws IOException {
+		try {
+			EntryCodec.decode(data, deflateUtil);
+			fail("DataFormatException is expected.");
+		} catch (DataFormatException e) {
+			// OK
+		}
+	}
+
+	/**
+	 * 共通部分を持つEntry相当のデータ.
+	 */
+	static byte[] sample(int i) {
+		return ("{\"id\":\"/registry/" + i + ",1\",\"link\":[{\"___rel\":\"self\"," +
+				"\"___href\":\"/registry/" + i + "\"}],\"title\":\"entry " + i + "\"," +
+				"\"summary\":\"registered by user\",\"author\":[{\"uri\":\"urn:vte.cx:created:1\"}]," +
+				"\"updated\":\"2026-10-18T10:00:00.000+09:00\"}").getBytes(StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * テストごとに異なる辞書.
+	 */
+	private static EntryCodecDictionary newDictionary() {
+		List<byte[]> samples = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			samples.add(sample(i));
+		}
+		byte[] dict = EntryCodecDictionary.train(samples, 4096).getDictionary();
+		byte[] nonce = Long.toString(System.nanoTime()).getBytes(StandardCharsets.UTF_8);
+		byte[] unique = new byte[nonce.length + dict.length];
+		System.arraycopy(nonce, 0, unique, 0, nonce.length);
+		System.arraycopy(dict, 0, unique, nonce.length, dict.length);
+		return new EntryCodecDictionary(unique);
+	}
+
+}
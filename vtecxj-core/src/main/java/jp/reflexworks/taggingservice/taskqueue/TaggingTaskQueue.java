@@ -141,4 +141,16 @@ public class TaggingTaskQueue<T> implements ReflexTaskQueue<T> {
 		}
 	}
 
+	/**
+	 * 非同期処理の対象サービス名を取得.
+	 * @return サービス名
+	 */
+	@Override
+	public String getServiceName() {
+		if (auth != null) {
+			return auth.getServiceName();
+		}
+		return requestInfo != null ? requestInfo.getServiceName() : null;
+	}
+
 }
@@ -1,6 +1,11 @@
 package jp.reflexworks.taggingservice.taskqueue;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 
 import org.slf4j.Logger;
@@ -135,4 +140,91 @@ public class TaskQueueUtil {
 		return taskQueueManager.addTask(taskQueue, countdownMillis);
 	}
 
+	/**
+	 * 現在のスレッドが非同期処理の実行中かどうか.
+	 * 非同期処理の中から非同期処理を登録して完了を待つと、待っている間スレッドを占有するため、
+	 * 実行中の場合は呼び出しスレッドで処理すること。
+	 * @return 非同期処理の実行中の場合true
+	 */
+	public static boolean isInTask() {
+		return ReflexTaskQueueFuture.isInTask();
+	}
+
+	/**
+	 * 非同期処理の実行結果をCompletableFutureに変換.
+	 * <p>
+	 * 非同期処理管理クラスが返したFutureの場合、完了時に完了するCompletableFutureを返す。
+	 * それ以外のFutureの場合、共通スレッドプールで完了を待ち合わせる。
+	 * </p>
+	 * @param future 非同期処理の実行結果
+	 * @return CompletableFuture
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> CompletableFuture<T> toCompletableFuture(Future<T> future) {
+		if (future instanceof CompletableFuture) {
+			return (CompletableFuture<T>)future;
+		}
+		if (future instanceof ReflexTaskQueueFuture) {
+			return ((ReflexTaskQueueFuture<T>)future).toCompletableFuture();
+		}
+		return CompletableFuture.supplyAsync(() -> {
+			try {
+				return future.get();
+			} catch (ExecutionException e) {
+				throw new CompletionException(e.getCause());
+			} catch (InterruptedException e) {
+				throw new CompletionException(e);
+			}
+		});
+	}
+
+	/**
+	 * 全ての非同期処理の完了時に、結果リストで完了するCompletableFutureを取得.
+	 * 結果リストの順序は引数のリストの順序と同じ。
+	 * いずれかが例外で終了した場合、全ての完了後にその例外で異常完了する。
+	 * @param futures 非同期処理の実行結果リスト
+	 * @return 結果リストのCompletableFuture
+	 */
+	public static <T> CompletableFuture<List<T>> allOf(List<CompletableFuture<T>> futures) {
+		return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
+				.thenApply(v -> {
+					List<T> results = new ArrayList<>(futures.size());
+					for (CompletableFuture<T> future : futures) {
+						results.add(future.join());
+					}
+					return results;
+				});
+	}
+
+	/**
+	 * CompletableFutureの完了を待ち、結果を取得.
+	 * 例外で完了した場合、原因の例外をスローする。
+	 * @param future CompletableFuture
+	 * @return 結果
+	 */
+	public static <T> T join(CompletableFuture<T> future)
+	throws IOException, TaggingException {
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			while (cause instanceof CompletionException && cause.getCause() != null) {
+				cause = cause.getCause();
+			}
+			if (cause instanceof IOException) {
+				throw (IOException)cause;
+			} else if (cause instanceof TaggingException) {
+				throw (TaggingException)cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException)cause;
+			} else if (cause instanceof Error) {
+				throw (Error)cause;
+			} else {
+				throw new IOException(cause);
+			}
+		} catch (InterruptedException e) {
+			throw new IOException(e);
+		}
+	}
+
 }
@@ -45,9 +45,6 @@ public final class CheckUtil extends ReflexCheckUtil {
 	/** URN length : acl */
 	private static final int URN_PREFIX_ACL_LEN = Constants.URN_PREFIX_ACL.length();
 
-	/** OR演算子で分割する際のエスケープ条件 */
-	private static final String OR_REGEX = "\\" + Condition.OR;
-
 	/**
 	 * 生成不可コンストラクタ.
 	 */
@@ -825,35 +822,7 @@ public final class CheckUtil extends ReflexCheckUtil {
 	 * @return 条件を満たす場合true
 	 */
 	public static boolean isMatchInnerCondition(EntryBase entry, Condition[] innerConditions) {
-		if (innerConditions == null || innerConditions.length == 0) {
-			return true;
-		}
-		for (Condition condition : innerConditions) {
-			if (condition.getProp().indexOf(Condition.OR) > 0) {
-				// 項目OR指定
-				boolean isMatchOr = false;
-				String[] propParts = condition.getProp().split(OR_REGEX);
-				for (String propPart : propParts) {
-					Condition conditionPart = new Condition(propPart,
-							condition.getEquations(), condition.getValue());
-					if (entry.isMatch(new Condition[] {conditionPart})) {
-						isMatchOr = true;
-						break;
-					}
-				}
-				if (!isMatchOr) {
-					return false;
-				}
-
-			} else {
-				// 通常
-				if (!entry.isMatch(new Condition[] {condition})) {
-					return false;
-				}
-			}
-		}
-		// 全ての条件がtrue
-		return true;
+		return EntryFilterUtil.isMatch(entry, innerConditions);
 	}
 	
 	/**
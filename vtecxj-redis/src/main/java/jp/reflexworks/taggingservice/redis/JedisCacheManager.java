@@ -4,6 +4,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Consumer;
 
 import jp.reflexworks.atom.entry.EntryBase;
 import jp.reflexworks.atom.entry.FeedBase;
@@ -20,6 +21,64 @@ import jp.reflexworks.taggingservice.plugin.CacheManager;
 public class JedisCacheManager extends JedisCommonManager
 implements CacheManager {
 
+	/**
+	 * 文字列一括登録スクリプト.
+	 * 全てのキーに値が存在しない(または指定値と等しい)場合のみ、有効時間付きで登録する。
+	 * 戻り値は登録できた場合0、他の値が存在する場合そのキーの位置(1始まり)。
+	 * 指定値と等しい場合は登録済みとみなすため、リトライで再実行しても結果は変わらない。
+	 */
+	static final String SCRIPT_SET_STRINGS_IF_ABSENT =
+			"for i = 1, #KEYS do " +
+			"local v = redis.call('get', KEYS[i]) " +
+			"if v and v ~= ARGV[1] then return i end " +
+			"end " +
+			"for i = 1, #KEYS do " +
+			"redis.call('set', KEYS[i], ARGV[1], 'EX', ARGV[2]) " +
+			"end " +
+			"return 0";
+	/** 文字列一括登録スクリプトのSHA1ダイジェスト */
+	private static final String SCRIPT_SET_STRINGS_IF_ABSENT_SHA1 =
+			JedisUtil.getScriptSha1(SCRIPT_SET_STRINGS_IF_ABSENT);
+	/**
+	 * 文字列一括削除スクリプト.
+	 * 値が指定値と等しいキーのみ削除する。戻り値は削除件数。
+	 */
+	static final String SCRIPT_DELETE_STRINGS_IF_EQUAL =
+			"local n = 0 " +
+			"for i = 1, #KEYS do " +
+			"if redis.call('get', KEYS[i]) == ARGV[1] then " +
+			"n = n + redis.call('del', KEYS[i]) " +
+			"end " +
+			"end " +
+			"return n";
+	/** 文字列一括削除スクリプトのSHA1ダイジェスト */
+	private static final String SCRIPT_DELETE_STRINGS_IF_EQUAL_SHA1 =
+			JedisUtil.getScriptSha1(SCRIPT_DELETE_STRINGS_IF_EQUAL);
+
+	/**
+	 * 文字列一括上書き登録スクリプト.
+	 * ARGVはキーと同じ順序の値と、最後に有効時間(秒)を指定する。戻り値は登録件数。
+	 */
+	private static final String SCRIPT_SET_STRINGS =
+			"for i = 1, #KEYS do " +
+			"redis.call('set', KEYS[i], ARGV[i], 'EX', ARGV[#ARGV]) " +
+			"end " +
+			"return #KEYS";
+	/** 文字列一括上書き登録スクリプトのSHA1ダイジェスト */
+	private static final String SCRIPT_SET_STRINGS_SHA1 =
+			JedisUtil.getScriptSha1(SCRIPT_SET_STRINGS);
+	/**
+	 * 文字列一括取得スクリプト.
+	 * 値が存在しないキーはnilを返す。
+	 */
+	private static final String SCRIPT_GET_STRINGS =
+			"return redis.call('mget', unpack(KEYS))";
+	/** 文字列一括取得スクリプトのSHA1ダイジェスト */
+	private static final String SCRIPT_GET_STRINGS_SHA1 =
+			JedisUtil.getScriptSha1(SCRIPT_GET_STRINGS);
+	/** スクリプト1回で処理するキーの最大数 (Luaのunpackの上限より小さくする) */
+	private static final int SCRIPT_KEYS_LIMIT = 1000;
+
 	/**
 	 * 初期処理.
 	 */
@@ -183,6 +242,73 @@ implements CacheManager {
 		return setStringIfAbsentProc(key, text, requestInfo, connectionInfo);
 	}
 
+	/**
+	 * 全てのキーにデータが存在しない場合のみ、キャッシュに文字列を一括登録.
+	 * 1回のスクリプト実行で、全てのキーの存在チェックと登録を行う。
+	 * @param names キーリスト
+	 * @param text 文字列
+	 * @param sec 有効時間(秒)
+	 * @param reflexContext ReflexContext
+	 * @return 登録できた場合null、既にデータが存在するキーがある場合そのキー
+	 */
+	public String setStringsIfAbsent(List<String> names, String text, int sec,
+			BaseReflexContext reflexContext)
+	throws IOException, TaggingException {
+		if (names == null || names.isEmpty()) {
+			return null;
+		}
+		String serviceName = reflexContext.getServiceName();
+		String namespace = reflexContext.getNamespace();
+		RequestInfo requestInfo = reflexContext.getRequestInfo();
+		ConnectionInfo connectionInfo = reflexContext.getConnectionInfo();
+		List<String> keys = new ArrayList<>(names.size());
+		for (String name : names) {
+			keys.add(createStringKey(name, serviceName, namespace, requestInfo, connectionInfo));
+		}
+		List<String> args = new ArrayList<>(2);
+		args.add(text);
+		args.add(String.valueOf(sec));
+		Object ret = evalProc(SCRIPT_SET_STRINGS_IF_ABSENT, SCRIPT_SET_STRINGS_IF_ABSENT_SHA1,
+				keys, args, requestInfo, connectionInfo);
+		int idx = ((Number)ret).intValue();
+		if (idx == 0) {
+			return null;
+		}
+		return names.get(idx - 1);
+	}
+
+	/**
+	 * キャッシュに文字列を一括登録.
+	 * 既にデータが存在する場合は上書き。
+	 * @param names キーリスト
+	 * @param texts 文字列リスト (キーリストと同じ順序)
+	 * @param sec 有効時間(秒)
+	 * @param reflexContext ReflexContext
+	 */
+	public void setStrings(List<String> names, List<String> texts, int sec,
+			BaseReflexContext reflexContext)
+	throws IOException, TaggingException {
+		if (names == null || names.isEmpty()) {
+			return;
+		}
+		String serviceName = reflexContext.getServiceName();
+		String namespace = reflexContext.getNamespace();
+		RequestInfo requestInfo = reflexContext.getRequestInfo();
+		ConnectionInfo connectionInfo = reflexContext.getConnectionInfo();
+		int size = names.size();
+		for (int idx = 0; idx < size; idx += SCRIPT_KEYS_LIMIT) {
+			int toIdx = Math.min(idx + SCRIPT_KEYS_LIMIT, size);
+			List<String> keys = new ArrayList<>(toIdx - idx);
+			for (String name : names.subList(idx, toIdx)) {
+				keys.add(createStringKey(name, serviceName, namespace, requestInfo, connectionInfo));
+			}
+			List<String> args = new ArrayList<>(texts.subList(idx, toIdx));
+			args.add(String.valueOf(sec));
+			evalProc(SCRIPT_SET_STRINGS, SCRIPT_SET_STRINGS_SHA1, keys, args,
+					requestInfo, connectionInfo);
+		}
+	}
+
 	/**
 	 * データが存在しない場合のみキャッシュに整数値を登録.
 	 * @param name キー
@@ -266,6 +392,35 @@ implements CacheManager {
 		return deleteStringProc(key, requestInfo, connectionInfo);
 	}
 
+	/**
+	 * キャッシュから文字列を一括削除.
+	 * 値が指定された文字列と等しいキーのみ削除する。
+	 * @param names キーリスト
+	 * @param text 文字列
+	 * @param reflexContext ReflexContext
+	 * @return 削除件数
+	 */
+	public long deleteStringsIfEqual(List<String> names, String text,
+			BaseReflexContext reflexContext)
+	throws IOException, TaggingException {
+		if (names == null || names.isEmpty()) {
+			return 0;
+		}
+		String serviceName = reflexContext.getServiceName();
+		String namespace = reflexContext.getNamespace();
+		RequestInfo requestInfo = reflexContext.getRequestInfo();
+		ConnectionInfo connectionInfo = reflexContext.getConnectionInfo();
+		List<String> keys = new ArrayList<>(names.size());
+		for (String name : names) {
+			keys.add(createStringKey(name, serviceName, namespace, requestInfo, connectionInfo));
+		}
+		List<String> args = new ArrayList<>(1);
+		args.add(text);
+		Object ret = evalProc(SCRIPT_DELETE_STRINGS_IF_EQUAL, SCRIPT_DELETE_STRINGS_IF_EQUAL_SHA1,
+				keys, args, requestInfo, connectionInfo);
+		return ((Number)ret).longValue();
+	}
+
 	/**
 	 * キャッシュから整数を削除.
 	 * @param name キー
@@ -336,6 +491,38 @@ implements CacheManager {
 		return getStringProc(key, requestInfo, connectionInfo);
 	}
 
+	/**
+	 * キャッシュから文字列を一括取得.
+	 * @param names キーリスト
+	 * @param reflexContext ReflexContext
+	 * @return 文字列リスト (キーリストと同じ順序。データが存在しないキーはnull)
+	 */
+	public List<String> getStrings(List<String> names, BaseReflexContext reflexContext)
+	throws IOException, TaggingException {
+		List<String> texts = new ArrayList<>();
+		if (names == null || names.isEmpty()) {
+			return texts;
+		}
+		String serviceName = reflexContext.getServiceName();
+		String namespace = reflexContext.getNamespace();
+		RequestInfo requestInfo = reflexContext.getRequestInfo();
+		ConnectionInfo connectionInfo = reflexContext.getConnectionInfo();
+		int size = names.size();
+		for (int idx = 0; idx < size; idx += SCRIPT_KEYS_LIMIT) {
+			int toIdx = Math.min(idx + SCRIPT_KEYS_LIMIT, size);
+			List<String> keys = new ArrayList<>(toIdx - idx);
+			for (String name : names.subList(idx, toIdx)) {
+				keys.add(createStringKey(name, serviceName, namespace, requestInfo, connectionInfo));
+			}
+			Object ret = evalProc(SCRIPT_GET_STRINGS, SCRIPT_GET_STRINGS_SHA1, keys,
+					new ArrayList<>(), requestInfo, connectionInfo);
+			for (Object val : (List<?>)ret) {
+				texts.add(val == null ? null : val.toString());
+			}
+		}
+		return texts;
+	}
+
 	/**
 	 * キャッシュから整数値を取得.
 	 * @param name キー
@@ -508,6 +695,33 @@ implements CacheManager {
 		return ret;
 	}
 
+	/**
+	 * チャネルにメッセージを送信.
+	 * 他ノードへの通知に使用する。
+	 * @param channel チャネル
+	 * @param message メッセージ
+	 * @param reflexContext ReflexContext
+	 * @return メッセージを受信したクライアント数
+	 */
+	public long publish(String channel, String message, BaseReflexContext reflexContext)
+	throws IOException, TaggingException {
+		RequestInfo requestInfo = reflexContext.getRequestInfo();
+		ConnectionInfo connectionInfo = reflexContext.getConnectionInfo();
+		return publishProc(channel, message, requestInfo, connectionInfo);
+	}
+
+	/**
+	 * チャネルの購読を開始.
+	 * 受信処理は別スレッドで行い、本メソッドは待たずに終了する。
+	 * 接続エラー時は再接続して購読を継続する。
+	 * @param channel チャネル
+	 * @param listener メッセージ受信時の処理
+	 */
+	public void subscribe(String channel, Consumer<String> listener)
+	throws IOException, TaggingException {
+		JedisUtil.getJedisEnv().subscribe(channel, listener);
+	}
+
 	/**
 	 * Feedキャッシュキーを取得
 	 * @param name キー
@@ -1,6 +1,7 @@
 package jp.reflexworks.taggingservice.redis;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Set;
 
 import org.slf4j.Logger;
@@ -279,6 +280,67 @@ public class JedisCommonManager {
 		throw new IllegalStateException("Unreachable code");
 	}
 
+	/**
+	 * Luaスクリプトを実行.
+	 * リトライ時は同じスクリプトを再実行するため、スクリプトは再実行しても結果が変わらないこと。
+	 * @param script スクリプト
+	 * @param sha1 スクリプトのSHA1ダイジェスト(16進数)
+	 * @param keys キーリスト
+	 * @param args 引数リスト
+	 * @param requestInfo リクエスト情報
+	 * @param connectionInfo コネクション情報
+	 * @return 実行結果
+	 */
+	protected Object evalProc(String script, String sha1, List<String> keys, List<String> args,
+			RequestInfo requestInfo, ConnectionInfo connectionInfo)
+	throws IOException {
+		// リトライ回数
+		int numRetries = JedisUtil.getRedisRetryCount();
+		int waitMillis = JedisUtil.getRedisRetryWaitmillis();
+
+		for (int r = 0; r <= numRetries; r++) {
+			try {
+				JedisConnection jedisConn = JedisUtil.getWriteConnection(requestInfo, connectionInfo);
+				return jedisConn.eval(script, sha1, keys, args);
+
+			} catch (IOException e) {
+				checkRetry(e, r, numRetries, waitMillis, requestInfo);
+			}
+		}
+
+		// Unreachable code
+		throw new IllegalStateException("Unreachable code");
+	}
+
+	/**
+	 * チャネルにメッセージを送信.
+	 * @param channel チャネル
+	 * @param message メッセージ
+	 * @param requestInfo リクエスト情報
+	 * @param connectionInfo コネクション情報
+	 * @return メッセージを受信したクライアント数
+	 */
+	protected long publishProc(String channel, String message, RequestInfo requestInfo,
+			ConnectionInfo connectionInfo)
+	throws IOException {
+		// リトライ回数
+		int numRetries = JedisUtil.getRedisRetryCount();
+		int waitMillis = JedisUtil.getRedisRetryWaitmillis();
+
+		for (int r = 0; r <= numRetries; r++) {
+			try {
+				JedisConnection jedisConn = JedisUtil.getWriteConnection(requestInfo, connectionInfo);
+				return jedisConn.publish(channel, message);
+
+			} catch (IOException e) {
+				checkRetry(e, r, numRetries, waitMillis, requestInfo);
+			}
+		}
+
+		// Unreachable code
+		throw new IllegalStateException("Unreachable code");
+	}
+
 	/**
 	 * キャッシュからバイト配列を取得.
 	 * @param key キー
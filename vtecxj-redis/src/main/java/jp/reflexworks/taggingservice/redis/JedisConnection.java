@@ -14,6 +14,7 @@ import redis.clients.jedis.Jedis;
 import redis.clients.jedis.Response;
 import redis.clients.jedis.Transaction;
 import redis.clients.jedis.exceptions.JedisException;
+import redis.clients.jedis.exceptions.JedisNoScriptException;
 import redis.clients.jedis.params.SortingParams;
 
 /**
@@ -1501,6 +1502,68 @@ public class JedisConnection implements ReflexConnection<Jedis> {
 		}
 	}
 
+	/**
+	 * Luaスクリプトを実行.
+	 * SHA1ダイジェストで実行し、Redisにスクリプトが登録されていない場合はスクリプト本体で実行する。
+	 * @param script スクリプト
+	 * @param sha1 スクリプトのSHA1ダイジェスト(16進数)
+	 * @param keys キーリスト
+	 * @param args 引数リスト
+	 * @return 実行結果
+	 * @throws IOException IOエラー。causeにJedisExceptionが格納されます。
+	 */
+	public Object eval(String script, String sha1, List<String> keys, List<String> args)
+			throws IOException {
+		String[] keyArray = keys.toArray(new String[0]);
+		try {
+			String command = "evalsha";
+			long startTime = 0;
+			if (isEnableAccessLog()) {
+				logger.debug(JedisUtil.getStartLog(command, keyArray));
+				startTime = new Date().getTime();
+			}
+			Object ret = null;
+			try {
+				ret = jedis.evalsha(sha1, keys, args);
+			} catch (JedisNoScriptException e) {
+				// スクリプト未登録の場合、スクリプト本体で実行する。(実行時に登録される)
+				ret = jedis.eval(script, keys, args);
+			}
+			if (isEnableAccessLog()) {
+				logger.debug(JedisUtil.getEndLog(command, keyArray, startTime));
+			}
+			return ret;
+		} catch (JedisException e) {
+			throw JedisUtil.convertException(e, jedis, connName, connectionInfo);
+		}
+	}
+
+	/**
+	 * チャネルにメッセージを送信.
+	 * @param channel チャネル
+	 * @param message メッセージ
+	 * @return メッセージを受信したクライアント数
+	 * @throws IOException IOエラー。causeにJedisExceptionが格納されます。
+	 */
+	public long publish(String channel, String message)
+			throws IOException {
+		try {
+			String command = "publish";
+			long startTime = 0;
+			if (isEnableAccessLog()) {
+				logger.debug(JedisUtil.getStartLog(command, channel));
+				startTime = new Date().getTime();
+			}
+			long ret = jedis.publish(channel, message);
+			if (isEnableAccessLog()) {
+				logger.debug(JedisUtil.getEndLog(command, channel, startTime));
+			}
+			return ret;
+		} catch (JedisException e) {
+			throw JedisUtil.convertException(e, jedis, connName, connectionInfo);
+		}
+	}
+
 	/**
 	 * 現在トランザクション中の場合trueを返す.
 	 * @return 現在トランザクション中の場合true
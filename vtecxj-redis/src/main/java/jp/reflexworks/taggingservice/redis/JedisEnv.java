@@ -3,8 +3,11 @@ package jp.reflexworks.taggingservice.redis;
 import java.io.IOException;
 import java.time.Duration;
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -54,6 +57,8 @@ public class JedisEnv {
 	private AtomicLong closeTime = new AtomicLong();
 	/** Jedis pool 生成時間 */
 	private AtomicLong createTime = new AtomicLong();
+	/** チャネル購読処理リスト */
+	private final List<JedisSubscriber> subscribers = new CopyOnWriteArrayList<>();
 
 	/** ロガー. */
 	private Logger logger = LoggerFactory.getLogger(this.getClass());
@@ -179,9 +184,34 @@ public class JedisEnv {
 	 * クローズ処理
 	 */
 	public void close() {
+		closeSubscribers();
 		closeJedisPool();
 	}
 
+	/**
+	 * チャネルの購読を開始.
+	 * 購読はコネクションを占有するため、チャネルごとにデーモンスレッドで実行する。
+	 * @param channel チャネル
+	 * @param listener メッセージ受信時の処理
+	 */
+	void subscribe(String channel, Consumer<String> listener) {
+		JedisSubscriber subscriber = new JedisSubscriber(channel, listener);
+		subscribers.add(subscriber);
+		Thread thread = new Thread(subscriber, "jedis-subscriber-" + channel);
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * チャネルの購読を終了.
+	 */
+	private void closeSubscribers() {
+		for (JedisSubscriber subscriber : subscribers) {
+			subscriber.close();
+		}
+		subscribers.clear();
+	}
+
 	/**
 	 * JedisPoolをclose.
 	 */
@@ -0,0 +1,97 @@
+package jp.reflexworks.taggingservice.redis;
+
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPubSub;
+
+/**
+ * Redisチャネル購読処理.
+ * 購読中はコネクションを占有するため、専用スレッドで実行する。
+ * 接続エラー時はリトライ待ち時間をおいて再接続する。
+ */
+public class JedisSubscriber implements Runnable {
+
+	/** チャネル */
+	private final String channel;
+	/** メッセージ受信時の処理 */
+	private final Consumer<String> listener;
+	/** 購読処理 */
+	private final JedisPubSub pubSub;
+	/** 終了した場合true */
+	private volatile boolean closed;
+
+	/** ロガー. */
+	private Logger logger = LoggerFactory.getLogger(this.getClass());
+
+	/**
+	 * コンストラクタ.
+	 * @param channel チャネル
+	 * @param listener メッセージ受信時の処理
+	 */
+	JedisSubscriber(String channel, Consumer<String> listener) {
+		this.channel = channel;
+		this.listener = listener;
+		this.pubSub = new JedisPubSub() {
+			@Override
+			public void onMessage(String ch, String message) {
+				try {
+					JedisSubscriber.this.listener.accept(message);
+				} catch (Throwable e) {
+					logger.warn("[onMessage] Error occured. channel = " + ch, e);
+				}
+			}
+		};
+	}
+
+	/**
+	 * 購読処理.
+	 * 終了するまで購読を継続する。
+	 */
+	@Override
+	public void run() {
+		while (!closed) {
+			JedisEnv jedisEnv = JedisUtil.getJedisEnv();
+			try (Jedis jedis = jedisEnv.getMasterConnection()) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("[run] subscribe start. channel = " + channel);
+				}
+				// 購読解除されるまで戻らない
+				jedis.subscribe(pubSub, channel);
+			} catch (Throwable e) {
+				if (closed) {
+					break;
+				}
+				logger.warn("[run] subscribe failed. channel = " + channel, e);
+			}
+			if (!closed) {
+				try {
+					Thread.sleep(JedisUtil.getRedisRetryWaitmillis());
+				} catch (InterruptedException e) {
+					break;
+				}
+			}
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("[run] subscribe end. channel = " + channel);
+		}
+	}
+
+	/**
+	 * 購読を終了.
+	 */
+	void close() {
+		closed = true;
+		try {
+			if (pubSub.isSubscribed()) {
+				pubSub.unsubscribe();
+			}
+		} catch (Throwable e) {
+			logger.warn("[close] unsubscribe failed. channel = " + channel, e);
+		}
+	}
+
+}
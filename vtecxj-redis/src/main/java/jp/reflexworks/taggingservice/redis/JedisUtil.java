@@ -4,8 +4,12 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.StringReader;
 import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HexFormat;
 import java.util.Map;
 
 import org.slf4j.Logger;
@@ -306,6 +310,21 @@ public final class JedisUtil {
 		return sb.toString();
 	}
 
+	/**
+	 * LuaスクリプトのSHA1ダイジェストを取得.
+	 * EVALSHAコマンドで使用する。
+	 * @param script スクリプト
+	 * @return SHA1ダイジェスト(16進数)
+	 */
+	public static String getScriptSha1(String script) {
+		try {
+			MessageDigest md = MessageDigest.getInstance("SHA-1");
+			return HexFormat.of().formatHex(md.digest(script.getBytes(StandardCharsets.UTF_8)));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
 	/**
 	 * 実行開始ログ編集
 	 * @param command コマンド
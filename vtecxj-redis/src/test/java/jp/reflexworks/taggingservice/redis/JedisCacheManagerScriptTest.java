@@ -0,0 +1,156 @@
+package jp.reflexworks.taggingservice.redis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import redis.clients.jedis.Jedis;
+
+/**
+ * 排他に使用するスクリプトのテスト.
+ * <p>
+ * Redisサーバ(システムプロパティ redis.test.host、redis.test.port。デフォルトはlocalhost:6379)
+ * に接続できない場合はスキップする。
+ * キーはテストごとに一意の接頭辞を付け、終了時に削除する。
+ * </p>
+ */
+public class JedisCacheManagerScriptTest {
+
+	private static final String SEC = "10";
+
+	private Jedis jedis;
+	private String prefix;
+	private final List<String> usedKeys = new ArrayList<>();
+
+	@Before
+	public void setUp() {
+		String host = System.getProperty("redis.test.host", "localhost");
+		int port = Integer.parseInt(System.getProperty("redis.test.port", "6379"));
+		try {
+			jedis = new Jedis(host, port);
+			jedis.ping();
+		} catch (RuntimeException e) {
+			jedis = null;
+		}
+		Assume.assumeTrue("Redis server is not available.", jedis != null);
+		prefix = "TEST:" + UUID.randomUUID().toString() + ":";
+	}
+
+	@After
+	public void tearDown() {
+		if (jedis != null) {
+			for (String key : usedKeys) {
+				jedis.del(key);
+			}
+			jedis.close();
+		}
+	}
+
+	@Test
+	public void testAllOrNothing() {
+		List<String> keys = keys("a", "b", "c");
+		assertEquals(0L, setIfAbsent(keys("b"), "owner1"));
+
+		// bが排他中のため、aとcも登録しない
+		assertEquals(2L, setIfAbsent(keys, "owner2"));
+		assertFalse(jedis.exists(keys.get(0)));
+		assertFalse(jedis.exists(keys.get(2)));
+		assertEquals("owner1", jedis.get(keys.get(1)));
+	}
+
+	@Test
+	public void testConflictKey() {
+		assertEquals(0L, setIfAbsent(keys("c", "d"), "owner1"));
+
+		// 最初に見つかった他の所有者のキーの位置(1始まり)を返す
+		assertEquals(3L, setIfAbsent(keys("a", "b", "c", "d"), "owner2"));
+		assertEquals(2L, setIfAbsent(keys("a", "d"), "owner2"));
+	}
+
+	@Test
+	public void testReleaseByOwner() {
+		List<String> keys = keys("a", "b");
+		assertEquals(0L, setIfAbsent(keys, "owner1"));
+
+		// 他の所有者は解除できない
+		assertEquals(0L, deleteIfEqual(keys, "owner2"));
+		assertEquals("owner1", jedis.get(keys.get(0)));
+
+		assertEquals(2L, deleteIfEqual(keys, "owner1"));
+		assertFalse(jedis.exists(keys.get(0)));
+		assertFalse(jedis.exists(keys.get(1)));
+	}
+
+	@Test
+	public void testExpiredLeaseTakenOver() throws InterruptedException {
+		List<String> keys = keys("a", "b");
+		assertEquals(0L, setIfAbsent(keys, "owner1"));
+
+		// 有効期限切れの後、他の所有者が排他
+		for (String key : keys) {
+			jedis.pexpire(key, 1);
+		}
+		Thread.sleep(50);
+		assertEquals(0L, setIfAbsent(keys, "owner2"));
+
+		// 期限切れの所有者の解除で、他の所有者の排他を削除しない
+		assertEquals(0L, deleteIfEqual(keys, "owner1"));
+		assertEquals("owner2", jedis.get(keys.get(0)));
+		assertEquals("owner2", jedis.get(keys.get(1)));
+	}
+
+	@Test
+	public void testReacquireOwnKeys() {
+		assertEquals(0L, setIfAbsent(keys("a"), "owner1"));
+
+		// 自身が排他済みのキーを含めて登録できる (リトライ時)
+		assertEquals(0L, setIfAbsent(keys("a", "b"), "owner1"));
+		assertEquals("owner1", jedis.get(key("b")));
+		assertEquals(1L, setIfAbsent(keys("b"), "owner2"));
+	}
+
+	@Test
+	public void testMissingKeyIsNotDeleted() {
+		assertEquals(0L, deleteIfEqual(keys("a"), "owner1"));
+		assertNull(jedis.get(key("a")));
+	}
+
+	private long setIfAbsent(List<String> keys, String token) {
+		Object ret = jedis.eval(JedisCacheManager.SCRIPT_SET_STRINGS_IF_ABSENT, keys,
+				Arrays.asList(token, SEC));
+		return ((Number)ret).longValue();
+	}
+
+	private long deleteIfEqual(List<String> keys, String token) {
+		Object ret = jedis.eval(JedisCacheManager.SCRIPT_DELETE_STRINGS_IF_EQUAL, keys,
+				Arrays.asList(token));
+		return ((Number)ret).longValue();
+	}
+
+	private List<String> keys(String... names) {
+		List<String> keys = new ArrayList<>(names.length);
+		for (String name : names) {
+			keys.add(key(name));
+		}
+		return keys;
+	}
+
+	private String key(String name) {
+		String key = prefix + name;
+		if (!usedKeys.contains(key)) {
+			usedKeys.add(key);
+		}
+		return key;
+	}
+
+}